@@ -11,6 +11,7 @@ import java.lang.reflect.Array;
 import java.lang.reflect.Field;
 import java.util.AbstractCollection;
 import java.util.ArrayList;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.zip.GZIPInputStream;
 import java.util.zip.GZIPOutputStream;
 
@@ -138,91 +139,61 @@ public abstract class Algorithm {
 		input.clear();
 		option.clear();
 
-		// parsing
-		ArrayList<String> inputResult = parser(inputs);
-		ArrayList<String> optionResult = parser(options);
+		Profile profile = getProfile();
+		int nbInputs = profile.inputFields.length;
+		int nbOptionsMax = profile.optionFields.length;
 
 		// Checking if the number of given parameters is at least
 		// the number of mandatory parameters and less than the full set of
 		// parameters
-		if (inputList.size() < inputResult.size()
-				|| inputList.size() > inputResult.size() + optionResult.size())
+		if (inputList.size() < nbInputs
+				|| inputList.size() > nbInputs + nbOptionsMax)
 			throw new InvalidNumberOfParametersException(
 					"Number of parameters is incorrect : " + inputList.size()
-							+ " instead of [" + inputResult.size() + ","
-							+ (inputResult.size() + optionResult.size()) + "]");
+							+ " instead of [" + nbInputs + ","
+							+ (nbInputs + nbOptionsMax) + "]");
 
-		Class c = this.getClass();
-		Field f = null;
 		Object o;
 
 		// Mandatory input parameters
-		for (int i = 0; i < inputResult.size(); i++) {
-
+		for (int i = 0; i < nbInputs; i++) {
 			o = inputList.get(i);
-			try {
-				f = c.getDeclaredField(inputResult.get(i));
-			} catch (SecurityException e) {
-				e.printStackTrace();
-			} catch (NoSuchFieldException e) {
-				System.out.println("Input #" + i + " " + inputResult.get(i)
-						+ " does not exist in " + c);
-				e.printStackTrace();
-			}
-			Class t = f.getType();
-
-			/*
-			 * Class oc = o.getClass(); if (t.isPrimitive()) t =
-			 * primitiveToObject(t);
-			 */
-
+			Field f = profile.field(profile.inputFields, profile.inputNames,
+					i, "Input");
 			input.add(o);
 			try {
-				f.set(this, input.get(i));// Set the attributes of the
+				f.set(this, o);// Set the attributes of the
 				// inherited algorithm
 			} catch (IllegalArgumentException e) {
 				// If the type is incorrect
 				throw new InvalidTypeOfParameterException("Input type #" + i
 						+ " is not correct : " + o.getClass().getName()
-						+ " instead of " + t.getName());
+						+ " instead of " + f.getType().getName());
 			} catch (IllegalAccessException e) {
 				e.printStackTrace();
 			}
 		}
 
 		// Optional input parameters
-		int nbOptions = Math.min(inputList.size() - inputResult.size(),
-				optionResult.size());
-		int indOptions = inputResult.size();
+		int nbOptions = Math.min(inputList.size() - nbInputs, nbOptionsMax);
 		for (int i = 0; i < nbOptions; i++) {
 
-			o = inputList.get(i + indOptions);
+			o = inputList.get(i + nbInputs);
+			option.add(o);
 
 			// If null option, skip it
-			if (o == null) {
-				option.add(o);
+			if (o == null)
 				continue;
-			}
 
+			Field f = profile.field(profile.optionFields, profile.optionNames,
+					i, "Option");
 			try {
-				f = c.getDeclaredField(optionResult.get(i));
-			} catch (SecurityException e) {
-				e.printStackTrace();
-			} catch (NoSuchFieldException e) {
-				System.out.println("Option #" + i + " " + optionResult.get(i)
-						+ " does not exist in " + c);
-				e.printStackTrace();
-			}
-			Class t = f.getType();
-
-			option.add(o);
-			try {
-				f.set(this, option.get(i)); // Set the attributes of the
+				f.set(this, o); // Set the attributes of the
 				// inherited algorithm
 			} catch (IllegalArgumentException e) {
 				throw new InvalidTypeOfParameterException("Option type #" + i
 						+ " is not correct : " + o.getClass() + " instead of "
-						+ t);
+						+ f.getType());
 			} catch (IllegalAccessException e) {
 				e.printStackTrace();
 			}
@@ -235,33 +206,17 @@ public abstract class Algorithm {
 	 * 
 	 * @return the list containing the outputs
 	 */
-
-
 	public ArrayList getOutput() {
 
-
-
-		// parsing
-		ArrayList<String> parserResult = parser(outputs);
-
 		// clear output
 		output.clear();
 
-		Class c = this.getClass();
-		Field f = null;
+		Profile profile = getProfile();
 		Object o = null;
 
-		for (int i = 0; i < parserResult.size(); i++) {
-
-			try {
-				f = c.getDeclaredField(parserResult.get(i));
-			} catch (SecurityException e) {
-				e.printStackTrace();
-			} catch (NoSuchFieldException e) {
-				System.out.println("Output #" + i + " " + parserResult.get(i)
-						+ " does not exist in " + c);
-				e.printStackTrace();
-			}
+		for (int i = 0; i < profile.outputFields.length; i++) {
+			Field f = profile.field(profile.outputFields, profile.outputNames,
+					i, "Output");
 			try {
 				o = f.get(this);
 			} catch (IllegalArgumentException e) {
@@ -282,61 +237,7 @@ public abstract class Algorithm {
 	 * @return An array containing the types of each input attribute
 	 */
 	public Class[] getInputTypes() {
-
-		ArrayList<String> parserResult = parser(inputs);
-
-		Class[] tab = new Class[parserResult.size()];
-		Class c = this.getClass();
-		Field f = null;
-
-		for (int i = 0; i < parserResult.size(); i++) {
-			try {
-				f = c.getDeclaredField(parserResult.get(i));
-			} catch (SecurityException e) {
-				e.printStackTrace();
-			} catch (NoSuchFieldException e) {
-				e.printStackTrace();
-			}
-
-			if (f.getType() == int.class) {
-				tab[i] = Integer.class;
-			} else {
-				if (f.getType() == char.class) {
-					tab[i] = Character.class;
-				} else {
-					if (f.getType() == byte.class) {
-						tab[i] = Byte.class;
-					} else {
-						if (f.getType() == short.class) {
-							tab[i] = Short.class;
-						} else {
-							if (f.getType() == long.class) {
-								tab[i] = Long.class;
-							} else {
-								if (f.getType() == float.class) {
-									tab[i] = Float.class;
-								} else {
-									if (f.getType() == double.class) {
-										tab[i] = Double.class;
-									} else {
-										if (f.getType() == boolean.class) {
-											tab[i] = Boolean.class;
-										} else {
-											if (f.getType() == void.class) {
-												tab[i] = Void.class;
-											} else {
-												tab[i] = f.getType();
-											}
-										}
-									}
-								}
-							}
-						}
-					}
-				}
-			}
-		}
-		return tab;
+		return getProfile().inputTypes.clone();
 	}
 
 	/**
@@ -346,96 +247,7 @@ public abstract class Algorithm {
 	 * @return An array containing the types of each option attribute
 	 */
 	public Class[] getOptionTypes() {
-
-		ArrayList<String> parserResult = parser(options);
-
-		Class[] tab = new Class[parserResult.size()];
-		Class c = this.getClass();
-		Field f = null;
-
-		for (int i = 0; i < parserResult.size(); i++) {
-			try {
-				f = c.getDeclaredField(parserResult.get(i));
-			} catch (SecurityException e) {
-				e.printStackTrace();
-			} catch (NoSuchFieldException e) {
-				e.printStackTrace();
-			}
-			if (f.getType() == int.class) {
-				tab[i] = Integer.class;
-			} else {
-				if (f.getType() == char.class) {
-					tab[i] = Character.class;
-				} else {
-					if (f.getType() == byte.class) {
-						tab[i] = Byte.class;
-					} else {
-						if (f.getType() == short.class) {
-							tab[i] = Short.class;
-						} else {
-							if (f.getType() == long.class) {
-								tab[i] = Long.class;
-							} else {
-								if (f.getType() == float.class) {
-									tab[i] = Float.class;
-								} else {
-									if (f.getType() == double.class) {
-										tab[i] = Double.class;
-									} else {
-										if (f.getType() == boolean.class) {
-											tab[i] = Boolean.class;
-										} else {
-											if (f.getType() == void.class) {
-												tab[i] = Void.class;
-											} else {
-												if (f.getType() == int[].class) {
-													tab[i] = Integer[].class;
-												} else {
-													if (f.getType() == char[].class) {
-														tab[i] = Character[].class;
-													} else {
-														if (f.getType() == byte[].class) {
-															tab[i] = Byte[].class;
-														} else {
-															if (f.getType() == short[].class) {
-																tab[i] = Short[].class;
-															} else {
-																if (f.getType() == long[].class) {
-																	tab[i] = Long[].class;
-																} else {
-																	if (f
-																			.getType() == float[].class) {
-																		tab[i] = Float[].class;
-																	} else {
-																		if (f
-																				.getType() == double[].class) {
-																			tab[i] = Double[].class;
-																		} else {
-																			if (f
-																					.getType() == boolean[].class) {
-																				tab[i] = Boolean[].class;
-																			} else {
-																				tab[i] = f
-																						.getType();
-																			}
-																		}
-																	}
-																}
-															}
-														}
-													}
-												}
-											}
-										}
-									}
-								}
-							}
-						}
-					}
-				}
-			}
-		}
-		return tab;
+		return getProfile().optionTypes.clone();
 	}
 
 	/**
@@ -445,97 +257,167 @@ public abstract class Algorithm {
 	 * @return An array containing the types of each output attribute
 	 */
 	public Class[] getOutputTypes() {
+		return getProfile().outputTypes.clone();
+	}
 
-		ArrayList<String> parserResult = parser(outputs);
-
-		Class[] tab = new Class[parserResult.size()];
+	/**
+	 * Gets the parameter profile of this algorithm. It is built on the first
+	 * call for each class and rebuilt only if the instance declares other
+	 * parameter names than the cached profile.
+	 * 
+	 * @return the parameter profile of this algorithm
+	 */
+	private Profile getProfile() {
 		Class c = this.getClass();
-		Field f = null;
+		Profile profile = profiles.get(c);
+		if (profile == null || !profile.matches(inputs, options, outputs)) {
+			profile = new Profile(c, inputs, options, outputs);
+			profiles.put(c, profile);
+		}
+		return profile;
+	}
 
-		for (int i = 0; i < parserResult.size(); i++) {
-			try {
-				f = c.getDeclaredField(parserResult.get(i));
-			} catch (SecurityException e) {
-				e.printStackTrace();
-			} catch (NoSuchFieldException e) {
-				e.printStackTrace();
-			}
-			if (f.getType() == int.class) {
-				tab[i] = Integer.class;
-			} else {
-				if (f.getType() == char.class) {
-					tab[i] = Character.class;
-				} else {
-					if (f.getType() == byte.class) {
-						tab[i] = Byte.class;
-					} else {
-						if (f.getType() == short.class) {
-							tab[i] = Short.class;
-						} else {
-							if (f.getType() == long.class) {
-								tab[i] = Long.class;
-							} else {
-								if (f.getType() == float.class) {
-									tab[i] = Float.class;
-								} else {
-									if (f.getType() == double.class) {
-										tab[i] = Double.class;
-									} else {
-										if (f.getType() == boolean.class) {
-											tab[i] = Boolean.class;
-										} else {
-											if (f.getType() == void.class) {
-												tab[i] = Void.class;
-											} else {
-												if (f.getType() == int[].class) {
-													tab[i] = Integer[].class;
-												} else {
-													if (f.getType() == char[].class) {
-														tab[i] = Character[].class;
-													} else {
-														if (f.getType() == byte[].class) {
-															tab[i] = Byte[].class;
-														} else {
-															if (f.getType() == short[].class) {
-																tab[i] = Short[].class;
-															} else {
-																if (f.getType() == long[].class) {
-																	tab[i] = Long[].class;
-																} else {
-																	if (f
-																			.getType() == float[].class) {
-																		tab[i] = Float[].class;
-																	} else {
-																		if (f
-																				.getType() == double[].class) {
-																			tab[i] = Double[].class;
-																		} else {
-																			if (f
-																					.getType() == boolean[].class) {
-																				tab[i] = Boolean[].class;
-																			} else {
-																				tab[i] = f
-																						.getType();
-																			}
-																		}
-																	}
-																}
-															}
-														}
-													}
-												}
-											}
-										}
-									}
-								}
-							}
-						}
-					}
+	/**
+	 * Profiles of the algorithm classes already used.
+	 */
+	private static final ConcurrentHashMap<Class, Profile> profiles = new ConcurrentHashMap<Class, Profile>();
+
+	/**
+	 * Parameter profile of an algorithm class : names, fields and types of its
+	 * inputs, options and outputs, resolved once so setInput and getOutput do
+	 * not have to parse the names and look for the fields on each call.
+	 */
+	private static final class Profile {
+
+		final Class algorithmClass;
+
+		final String inputs;
+		final String options;
+		final String outputs;
+
+		final ArrayList<String> inputNames;
+		final ArrayList<String> optionNames;
+		final ArrayList<String> outputNames;
+
+		/**
+		 * Fields of the parameters, null when the field does not exist.
+		 */
+		final Field[] inputFields;
+		final Field[] optionFields;
+		final Field[] outputFields;
+
+		final Class[] inputTypes;
+		final Class[] optionTypes;
+		final Class[] outputTypes;
+
+		Profile(Class c, String inputs, String options, String outputs) {
+			this.algorithmClass = c;
+			this.inputs = inputs;
+			this.options = options;
+			this.outputs = outputs;
+			inputNames = parser(inputs);
+			optionNames = parser(options);
+			outputNames = parser(outputs);
+			inputFields = resolve(c, inputNames);
+			optionFields = resolve(c, optionNames);
+			outputFields = resolve(c, outputNames);
+			inputTypes = new Class[inputFields.length];
+			for (int i = 0; i < inputFields.length; i++)
+				if (inputFields[i] != null)
+					inputTypes[i] = wrapper(inputFields[i].getType());
+			optionTypes = new Class[optionFields.length];
+			for (int i = 0; i < optionFields.length; i++)
+				if (optionFields[i] != null)
+					optionTypes[i] = wrapperArray(optionFields[i].getType());
+			outputTypes = new Class[outputFields.length];
+			for (int i = 0; i < outputFields.length; i++)
+				if (outputFields[i] != null)
+					outputTypes[i] = wrapperArray(outputFields[i].getType());
+		}
+
+		/**
+		 * Checks that the profile has been built from the given names.
+		 */
+		boolean matches(String inputs, String options, String outputs) {
+			return (this.inputs == inputs || this.inputs.equals(inputs))
+					&& (this.options == options || this.options.equals(options))
+					&& (this.outputs == outputs || this.outputs.equals(outputs));
+		}
+
+		/**
+		 * Gets the field of a parameter, or throws an exception if the
+		 * algorithm does not declare it.
+		 */
+		Field field(Field[] fields, ArrayList<String> names, int i, String kind) {
+			if (fields[i] == null)
+				throw new AlgorithmException(kind + " #" + i + " "
+						+ names.get(i) + " does not exist in "
+						+ algorithmClass);
+			return fields[i];
+		}
+
+		private static Field[] resolve(Class c, ArrayList<String> names) {
+			Field[] fields = new Field[names.size()];
+			for (int i = 0; i < fields.length; i++) {
+				try {
+					fields[i] = c.getDeclaredField(names.get(i));
+					fields[i].setAccessible(true);
+				} catch (SecurityException e) {
+					e.printStackTrace();
+				} catch (NoSuchFieldException e) {
+					fields[i] = null;
 				}
 			}
+			return fields;
+		}
 
+		/**
+		 * Gets the wrapper class of a primitive type, or the type itself.
+		 */
+		private static Class wrapper(Class t) {
+			if (t == int.class)
+				return Integer.class;
+			if (t == char.class)
+				return Character.class;
+			if (t == byte.class)
+				return Byte.class;
+			if (t == short.class)
+				return Short.class;
+			if (t == long.class)
+				return Long.class;
+			if (t == float.class)
+				return Float.class;
+			if (t == double.class)
+				return Double.class;
+			if (t == boolean.class)
+				return Boolean.class;
+			if (t == void.class)
+				return Void.class;
+			return t;
+		}
+
+		/**
+		 * Same as wrapper, also converting arrays of primitive types.
+		 */
+		private static Class wrapperArray(Class t) {
+			if (t == int[].class)
+				return Integer[].class;
+			if (t == char[].class)
+				return Character[].class;
+			if (t == byte[].class)
+				return Byte[].class;
+			if (t == short[].class)
+				return Short[].class;
+			if (t == long[].class)
+				return Long[].class;
+			if (t == float[].class)
+				return Float[].class;
+			if (t == double[].class)
+				return Double[].class;
+			if (t == boolean[].class)
+				return Boolean[].class;
+			return wrapper(t);
 		}
-		return tab;
 	}
 
 	/**
@@ -556,7 +438,7 @@ public abstract class Algorithm {
 	 * @return A list of string where each element is a names of an inherited
 	 *         attribute.
 	 */
-	private ArrayList<String> parser(String string) {
+	private static ArrayList<String> parser(String string) {
 
 		int beg = 0;
 		ArrayList<String> list = new ArrayList<String>();
@@ -604,7 +486,7 @@ public abstract class Algorithm {
 	 * @return the list containing the input names.
 	 */
 	public ArrayList<String> getInputNames() {
-		return parser(inputs);
+		return new ArrayList<String>(getProfile().inputNames);
 	}
 
 	/**
@@ -613,7 +495,7 @@ public abstract class Algorithm {
 	 * @return the list containing the option names.
 	 */
 	public ArrayList<String> getOptionNames() {
-		return parser(options);
+		return new ArrayList<String>(getProfile().optionNames);
 	}
 
 	/**
@@ -622,7 +504,7 @@ public abstract class Algorithm {
 	 * @return the list containing the output names.
 	 */
 	public ArrayList<String> getOutputNames() {
-		return parser(outputs);
+		return new ArrayList<String>(getProfile().outputNames);
 	}
 
 	/**
@@ -646,10 +528,11 @@ public abstract class Algorithm {
 		}
 		this.setInput(inputs);
 		this.launch();
-		if (this.getOutput() == null || this.getOutput().isEmpty()) {
+		ArrayList result = this.getOutput();
+		if (result == null || result.isEmpty()) {
 			return null;
 		} else {
-			return (Object) this.getOutput().get(0);
+			return (Object) result.get(0);
 		}
 	}
 
@@ -676,11 +559,7 @@ public abstract class Algorithm {
 		}
 		this.setInput(inputs);
 		this.launch();
-		if (this.getOutput() == null) {
-			return null;
-		} else {
-			return this.getOutput();
-		}
+		return this.getOutput();
 	}
 
 	/**
@@ -707,10 +586,11 @@ public abstract class Algorithm {
 		}
 		this.setInput(inputs);
 		this.launch();
-		if (this.getOutput() == null || x < 0 || x >= this.getOutput().size())
+		ArrayList result = this.getOutput();
+		if (result == null || x < 0 || x >= result.size())
 			throw new InvalidNumberOfParametersException("output " + x
 					+ " does not exist");
-		return this.getOutput().get(x);
+		return result.get(x);
 
 	}
 
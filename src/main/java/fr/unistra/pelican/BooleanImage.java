@@ -42,7 +42,7 @@ public class BooleanImage extends Image implements Serializable
 	public BooleanImage(BooleanImage image)
 	{
 		super(image);
-		this.pixels = (boolean[])image.pixels.clone();	// deep copy with clone valid only for primitives.
+		this.pixels = image.getPixels();	// a copy, whatever the storage of image
 	}
 	
 	/**
@@ -78,7 +78,7 @@ public class BooleanImage extends Image implements Serializable
 		super(image);
 
 		if(copy == true)
-			this.pixels = (boolean[])image.pixels.clone();
+			this.pixels = image.getPixels();
 		else
 			this.pixels = new boolean[image.getXDim() * image.getYDim() * image.getZDim() * image.getTDim() * image.getBDim()];
 	}
@@ -108,6 +108,16 @@ public class IntegerImage extends Image implements Serializable
 		pixels = (int[])values.clone();
 	}
 
+	/**
+	 * Gets the pixel array (not a copy !), use it at your own risk.
+	 * @return	the pixel array
+	 */
+
+	public int[] getPixelsUnsafe()
+	{
+		return pixels;
+	}
+
 	/**
 	 * Sets all the pixel values to the given value
 	 * @param	b	Desired value for the pixels
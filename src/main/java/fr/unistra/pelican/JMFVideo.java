@@ -8,7 +8,7 @@ import java.io.NotSerializableException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.net.URL;
-import java.util.HashMap;
+import java.util.concurrent.ConcurrentHashMap;
 
 import javax.media.Buffer;
 import javax.media.Duration;
@@ -290,7 +290,7 @@ public class JMFVideo extends LargeByteImage implements LargeImageInterface {
 	private void readObject(ObjectInputStream in) throws IOException,
 			ClassNotFoundException {
 		in.defaultReadObject();
-		this.unitMap = new HashMap<Integer, Unit>();
+		this.unitMap = new ConcurrentHashMap<Integer, Unit>();
 		this.memoryId = LargeImageMemoryManager.getInstance().addImage(this);
 	}
 }
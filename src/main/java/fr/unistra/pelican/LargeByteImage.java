@@ -4,7 +4,7 @@ import java.io.File;
 import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
-import java.util.HashMap;
+import java.util.concurrent.ConcurrentHashMap;
 
 import fr.unistra.pelican.util.largeImages.ByteUnit;
 import fr.unistra.pelican.util.largeImages.IntegerUnit;
@@ -33,6 +33,16 @@ public class LargeByteImage extends ByteImage implements LargeImageInterface {
 	 */
 	private transient File fichier;
 
+	/**
+	 * Position of the first unit in the file
+	 */
+	private transient long fileOffset = 0;
+
+	/**
+	 * Whether the file was given by attachFile
+	 */
+	private transient boolean attached = false;
+
 	/**
 	 * Stores number of pixels in the Image
 	 */
@@ -56,25 +66,13 @@ public class LargeByteImage extends ByteImage implements LargeImageInterface {
 	/**
 	 * Hashmap which contains the soft references to the units
 	 */
-	protected transient HashMap<Integer, Unit> unitMap;
+	protected transient ConcurrentHashMap<Integer, Unit> unitMap;
 
 	/**
 	 * Memory id given by the LargeImageMemoryManager
 	 */
 	protected transient int memoryId;
 
-	/**
-	 * unitId is a field in order to avoid creating it at each call of getPixel
-	 * or setPixel
-	 */
-	private transient long unitId;
-
-	/**
-	 * unitLoc is a field in order to avoid creating it at each call of getPixel
-	 * or setPixel
-	 */
-	private transient long unitLoc;
-
 	/**
 	 * Long version of xdim
 	 */
@@ -105,7 +103,7 @@ public class LargeByteImage extends ByteImage implements LargeImageInterface {
 	 */
 	public LargeByteImage() {
 		super();
-		this.unitMap = new HashMap<Integer, Unit>();
+		this.unitMap = new ConcurrentHashMap<Integer, Unit>();
 		this.memoryId = LargeImageMemoryManager.getInstance().addImage(this);
 	}
 
@@ -295,6 +293,23 @@ public class LargeByteImage extends ByteImage implements LargeImageInterface {
 		this.fichier = file;
 	}
 
+	@Override
+	public long getFileOffset() {
+		return this.fileOffset;
+	}
+
+	@Override
+	public boolean isAttached() {
+		return this.attached;
+	}
+
+	@Override
+	public void attachFile(File file, long offset) {
+		this.fichier = file;
+		this.fileOffset = offset;
+		this.attached = true;
+	}
+
 	@Override
 	public int getUnitSize() {
 		return 1 << this.getUnitPowerSize();
@@ -381,8 +396,8 @@ public class LargeByteImage extends ByteImage implements LargeImageInterface {
 	 */
 	private byte getPixel(long loc) {
 
-		unitId = loc >> getUnitPowerSize();
-		unitLoc = loc & ((1 << getUnitPowerSize()) - 1);
+		long unitId = loc >> getUnitPowerSize();
+		long unitLoc = loc & ((1 << getUnitPowerSize()) - 1);
 
 		ByteUnit currentUnit = this.getAnUnit((int) unitId);
 		return currentUnit.getPixel((int) unitLoc);
@@ -438,8 +453,8 @@ public class LargeByteImage extends ByteImage implements LargeImageInterface {
 	 */
 	private void setPixel(long loc, byte value) {
 
-		unitId = loc >> getUnitPowerSize();
-		unitLoc = loc & ((1 << getUnitPowerSize()) - 1);
+		long unitId = loc >> getUnitPowerSize();
+		long unitLoc = loc & ((1 << getUnitPowerSize()) - 1);
 
 		LargeImageMemoryManager.getInstance().lock.lock();
 		try{
@@ -675,7 +690,7 @@ public class LargeByteImage extends ByteImage implements LargeImageInterface {
 	}
 
 	@Override
-	public HashMap<Integer, Unit> getMap() {
+	public ConcurrentHashMap<Integer, Unit> getMap() {
 		return this.unitMap;
 	}
 
@@ -692,7 +707,7 @@ public class LargeByteImage extends ByteImage implements LargeImageInterface {
 	private void readObject(ObjectInputStream in) throws IOException,
 			ClassNotFoundException {
 		in.defaultReadObject();
-		this.unitMap = new HashMap<Integer, Unit>();
+		this.unitMap = new ConcurrentHashMap<Integer, Unit>();
 		this.memoryId = LargeImageMemoryManager.getInstance().addImage(this);
 		this.createFile();
 		ByteUnit unit;
@@ -4,7 +4,7 @@ import java.io.File;
 import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
-import java.util.HashMap;
+import java.util.concurrent.ConcurrentHashMap;
 
 import fr.unistra.pelican.util.largeImages.DoubleUnit;
 import fr.unistra.pelican.util.largeImages.LargeImageInterface;
@@ -32,6 +32,16 @@ public class LargeDoubleImage extends DoubleImage implements
 	 */
 	private transient File fichier;
 
+	/**
+	 * Position of the first unit in the file
+	 */
+	private transient long fileOffset = 0;
+
+	/**
+	 * Whether the file was given by attachFile
+	 */
+	private transient boolean attached = false;
+
 	/**
 	 * Stores number of pixels in the Image
 	 */
@@ -55,25 +65,13 @@ public class LargeDoubleImage extends DoubleImage implements
 	/**
 	 * Hashmap which contains the soft references to the units
 	 */
-	private transient HashMap<Integer, Unit> unitMap;
+	private transient ConcurrentHashMap<Integer, Unit> unitMap;
 
 	/**
 	 * Memory id given by the LargeImageMemoryManager
 	 */
 	private transient int memoryId;
 
-	/**
-	 * unitId is a field in order to avoid creating it at each call of getPixel
-	 * or setPixel
-	 */
-	private transient long unitId;
-
-	/**
-	 * unitLoc is a field in order to avoid creating it at each call of getPixel
-	 * or setPixel
-	 */
-	private transient long unitLoc;
-
 	/**
 	 * Long version of xdim
 	 */
@@ -104,7 +102,7 @@ public class LargeDoubleImage extends DoubleImage implements
 	 */
 	public LargeDoubleImage() {
 		super();
-		this.unitMap = new HashMap<Integer, Unit>();
+		this.unitMap = new ConcurrentHashMap<Integer, Unit>();
 		this.memoryId = LargeImageMemoryManager.getInstance().addImage(this);
 	}
 
@@ -289,6 +287,23 @@ public class LargeDoubleImage extends DoubleImage implements
 		this.fichier = file;
 	}
 
+	@Override
+	public long getFileOffset() {
+		return this.fileOffset;
+	}
+
+	@Override
+	public boolean isAttached() {
+		return this.attached;
+	}
+
+	@Override
+	public void attachFile(File file, long offset) {
+		this.fichier = file;
+		this.fileOffset = offset;
+		this.attached = true;
+	}
+
 	@Override
 	public int getUnitSize() {
 		return 1 << this.getUnitPowerSize();
@@ -375,8 +390,8 @@ public class LargeDoubleImage extends DoubleImage implements
 	 */
 	private double getPixel(long loc) {
 
-		unitId = loc >> getUnitPowerSize();
-		unitLoc = loc & ((1 << getUnitPowerSize()) - 1);
+		long unitId = loc >> getUnitPowerSize();
+		long unitLoc = loc & ((1 << getUnitPowerSize()) - 1);
 
 		DoubleUnit currentUnit = this.getAnUnit((int) unitId);
 		return currentUnit.getPixel((int) unitLoc);
@@ -438,8 +453,8 @@ public class LargeDoubleImage extends DoubleImage implements
 	 */
 	private void setPixel(long loc, double value) {
 
-		unitId = loc >> getUnitPowerSize();
-		unitLoc = loc & ((1 << getUnitPowerSize()) - 1);
+		long unitId = loc >> getUnitPowerSize();
+		long unitLoc = loc & ((1 << getUnitPowerSize()) - 1);
 
 		LargeImageMemoryManager.getInstance().lock.lock();
 		try{
@@ -614,7 +629,7 @@ public class LargeDoubleImage extends DoubleImage implements
 	}
 
 	@Override
-	public HashMap<Integer, Unit> getMap() {
+	public ConcurrentHashMap<Integer, Unit> getMap() {
 		return this.unitMap;
 	}
 
@@ -631,7 +646,7 @@ public class LargeDoubleImage extends DoubleImage implements
 	private void readObject(ObjectInputStream in) throws IOException,
 			ClassNotFoundException {
 		in.defaultReadObject();
-		this.unitMap = new HashMap<Integer, Unit>();
+		this.unitMap = new ConcurrentHashMap<Integer, Unit>();
 		this.memoryId = LargeImageMemoryManager.getInstance().addImage(this);
 		this.createFile();
 		DoubleUnit unit;
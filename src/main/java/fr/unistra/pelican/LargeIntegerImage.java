@@ -4,7 +4,7 @@ import java.io.File;
 import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
-import java.util.HashMap;
+import java.util.concurrent.ConcurrentHashMap;
 
 import fr.unistra.pelican.util.largeImages.ByteUnit;
 import fr.unistra.pelican.util.largeImages.DoubleUnit;
@@ -34,6 +34,16 @@ public class LargeIntegerImage extends IntegerImage implements
 	 */
 	private transient File fichier;
 
+	/**
+	 * Position of the first unit in the file
+	 */
+	private transient long fileOffset = 0;
+
+	/**
+	 * Whether the file was given by attachFile
+	 */
+	private transient boolean attached = false;
+
 	/**
 	 * Stores number of pixels in the Image
 	 */
@@ -57,25 +67,13 @@ public class LargeIntegerImage extends IntegerImage implements
 	/**
 	 * Hashmap which contains the soft references to the units
 	 */
-	private transient HashMap<Integer, Unit> unitMap;
+	private transient ConcurrentHashMap<Integer, Unit> unitMap;
 
 	/**
 	 * Memory id given by the LargeImageMemoryManager
 	 */
 	private transient int memoryId;
 
-	/**
-	 * unitId is a field in order to avoid creating it at each call of getPixel
-	 * or setPixel
-	 */
-	private transient long unitId;
-
-	/**
-	 * unitLoc is a field in order to avoid creating it at each call of getPixel
-	 * or setPixel
-	 */
-	private transient long unitLoc;
-
 	/**
 	 * Long version of xdim
 	 */
@@ -106,7 +104,7 @@ public class LargeIntegerImage extends IntegerImage implements
 	 */
 	public LargeIntegerImage() {
 		super();
-		this.unitMap = new HashMap<Integer, Unit>();
+		this.unitMap = new ConcurrentHashMap<Integer, Unit>();
 		this.memoryId = LargeImageMemoryManager.getInstance().addImage(this);
 	}
 
@@ -349,8 +347,8 @@ public class LargeIntegerImage extends IntegerImage implements
 	 */
 	private int getPixel(long loc) {
 
-		unitId = loc >> getUnitPowerSize();
-		unitLoc = loc & ((1 << getUnitPowerSize()) - 1);
+		long unitId = loc >> getUnitPowerSize();
+		long unitLoc = loc & ((1 << getUnitPowerSize()) - 1);
 
 		IntegerUnit currentUnit = this.getAnUnit((int) unitId);
 		return currentUnit.getPixel((int) unitLoc);
@@ -456,6 +454,23 @@ public class LargeIntegerImage extends IntegerImage implements
 		this.fichier = fichier;
 	}
 
+	@Override
+	public long getFileOffset() {
+		return this.fileOffset;
+	}
+
+	@Override
+	public boolean isAttached() {
+		return this.attached;
+	}
+
+	@Override
+	public void attachFile(File file, long offset) {
+		this.fichier = file;
+		this.fileOffset = offset;
+		this.attached = true;
+	}
+
 	/**
 	 * Sets the pixels at the given location to the given value as integer
 	 * 
@@ -466,8 +481,8 @@ public class LargeIntegerImage extends IntegerImage implements
 	 */
 	private void setPixel(long loc, int value) {
 
-		unitId = loc >> getUnitPowerSize();
-		unitLoc = loc & ((1 << getUnitPowerSize()) - 1);
+		long unitId = loc >> getUnitPowerSize();
+		long unitLoc = loc & ((1 << getUnitPowerSize()) - 1);
 
 		LargeImageMemoryManager.getInstance().lock.lock();
 		try{	
@@ -762,7 +777,7 @@ public class LargeIntegerImage extends IntegerImage implements
 	}
 
 	@Override
-	public HashMap<Integer, Unit> getMap() {
+	public ConcurrentHashMap<Integer, Unit> getMap() {
 		return this.unitMap;
 	}
 
@@ -779,7 +794,7 @@ public class LargeIntegerImage extends IntegerImage implements
 	private void readObject(ObjectInputStream in) throws IOException,
 			ClassNotFoundException {
 		in.defaultReadObject();
-		this.unitMap = new HashMap<Integer, Unit>();
+		this.unitMap = new ConcurrentHashMap<Integer, Unit>();
 		this.memoryId = LargeImageMemoryManager.getInstance().addImage(this);
 		this.createFile();
 		IntegerUnit unit;
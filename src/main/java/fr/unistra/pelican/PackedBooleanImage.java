@@ -0,0 +1,326 @@
+package fr.unistra.pelican;
+
+import java.util.Arrays;
+
+/**
+ * This class extends BooleanImage to store the pixels as bits, 64 pixels per
+ * long word, so binary images take 8 times less memory and can be processed
+ * a word at a time.
+ * <p>
+ * The pixel at index <tt>loc</tt> is the bit <tt>loc&amp;63</tt> of the word
+ * <tt>loc&gt;&gt;&gt;6</tt>. The bits after the last pixel are always 0, so
+ * the words of two images of the same size can be combined directly.
+ * <p>
+ * Writing two pixels of the same word from two threads is not safe : the
+ * parallel algorithms split packed images on 64 pixel boundaries.
+ *
+ * @see fr.unistra.pelican.BooleanImage
+ * @author PELICAN team
+ */
+public class PackedBooleanImage extends BooleanImage {
+
+	/**
+	 * Serial
+	 */
+	private static final long serialVersionUID = 5190262357216358241L;
+
+	/**
+	 * Pixel data array, 64 pixels per word
+	 */
+	private long[] words;
+
+	/**
+	 * Number of pixels
+	 */
+	private int size;
+
+	/**
+	 * Constructs a PackedBooleanImage with the given dimensions
+	 *
+	 * @param xdim
+	 *            the horizontal dimension
+	 * @param ydim
+	 *            the vertical dimension
+	 * @param zdim
+	 *            the depth
+	 * @param tdim
+	 *            the frame number
+	 * @param bdim
+	 *            the channel number
+	 */
+	public PackedBooleanImage(int xdim, int ydim, int zdim, int tdim, int bdim) {
+		super();
+		this.setDim(xdim, ydim, zdim, tdim, bdim);
+		this.size = xdim * ydim * zdim * tdim * bdim;
+		this.words = new long[wordCount(size)];
+	}
+
+	/**
+	 * Constructs a PackedBooleanImage identical to the given argument
+	 *
+	 * @param image
+	 *            Image to copy
+	 */
+	public PackedBooleanImage(Image image) {
+		this(image, true);
+	}
+
+	/**
+	 * Constructs a PackedBooleanImage with the dimensions and attributes of
+	 * the given argument. The pixels are copied if and only if ''copyData'' is
+	 * set to true.
+	 *
+	 * @param image
+	 *            Image to copy
+	 * @param copyData
+	 *            if and only if it is set to true are the pixels copied
+	 */
+	public PackedBooleanImage(Image image, boolean copyData) {
+		this(image.getXDim(), image.getYDim(), image.getZDim(), image
+				.getTDim(), image.getBDim());
+		this.copyAttributes(image);
+		if (!copyData)
+			return;
+		if (image instanceof PackedBooleanImage)
+			System.arraycopy(((PackedBooleanImage) image).words, 0, words, 0,
+					words.length);
+		else
+			for (int i = 0; i < size; i++)
+				if (image.getPixelBoolean(i))
+					words[i >>> 6] |= 1L << i;
+	}
+
+	/**
+	 * Gives the number of words needed to store some pixels
+	 *
+	 * @param pixels
+	 *            number of pixels
+	 * @return the number of words
+	 */
+	public static int wordCount(int pixels) {
+		return (pixels + 63) >>> 6;
+	}
+
+	/**
+	 * Reads 64 consecutive pixels of a packed array, from any index. The
+	 * pixels after the end of the array are 0.
+	 *
+	 * @param words
+	 *            packed pixels
+	 * @param bit
+	 *            index of the first pixel, which gives the lowest bit
+	 * @return the 64 pixels
+	 */
+	public static long getBits(long[] words, int bit) {
+		int w = bit >>> 6;
+		int shift = bit & 63;
+		long low = w < words.length ? words[w] : 0;
+		if (shift == 0)
+			return low;
+		long high = w + 1 < words.length ? words[w + 1] : 0;
+		return (low >>> shift) | (high << (64 - shift));
+	}
+
+	/**
+	 * Writes up to 64 consecutive pixels of a packed array, from any index.
+	 *
+	 * @param words
+	 *            packed pixels
+	 * @param bit
+	 *            index of the first pixel, which is given by the lowest bit
+	 * @param value
+	 *            pixels to write
+	 * @param count
+	 *            number of pixels to write, from 1 to 64
+	 */
+	public static void setBits(long[] words, int bit, long value, int count) {
+		long mask = count == 64 ? -1L : (1L << count) - 1;
+		value &= mask;
+		int w = bit >>> 6;
+		int shift = bit & 63;
+		words[w] = (words[w] & ~(mask << shift)) | (value << shift);
+		if (shift != 0 && shift + count > 64) {
+			int rest = 64 - shift;
+			words[w + 1] = (words[w + 1] & ~(mask >>> rest)) | (value >>> rest);
+		}
+	}
+
+	/**
+	 * Gets the word array (not a copy !), use it at your own risk : the bits
+	 * after the last pixel must stay 0.
+	 *
+	 * @return the word array
+	 */
+	public long[] getWordsUnsafe() {
+		return words;
+	}
+
+	/**
+	 * Clears the bits after the last pixel.
+	 */
+	private void clearTail() {
+		if ((size & 63) != 0)
+			words[words.length - 1] &= (1L << size) - 1;
+	}
+
+	/**
+	 * Creates a copy of this PackedBooleanImage
+	 *
+	 * @return an exact copy of this PackedBooleanImage
+	 */
+	public PackedBooleanImage copyImage(boolean copyData) {
+		return new PackedBooleanImage(this, copyData);
+	}
+
+	/**
+	 * Creates a new instance of PackedBooleanImage
+	 *
+	 * @param xdim
+	 *            the horizontal dimension
+	 * @param ydim
+	 *            the vertical dimension
+	 * @param zdim
+	 *            the depth
+	 * @param tdim
+	 *            the frame number
+	 * @param bdim
+	 *            the channel number
+	 */
+	public Image newInstance(int xdim, int ydim, int zdim, int tdim, int bdim) {
+		return new PackedBooleanImage(xdim, ydim, zdim, tdim, bdim);
+	}
+
+	@Override
+	public void fill(boolean b) {
+		Arrays.fill(words, b ? -1L : 0L);
+		clearTail();
+	}
+
+	@Override
+	public boolean isEmpty() {
+		for (int w = 0; w < words.length; w++)
+			if (words[w] != 0)
+				return false;
+		return true;
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public boolean[] getPixels() {
+		boolean[] pixels = new boolean[size];
+		for (int i = 0; i < size; i++)
+			pixels[i] = (words[i >>> 6] & (1L << i)) != 0;
+		return pixels;
+	}
+
+	@Override
+	public void setPixels(boolean[] values) {
+		Arrays.fill(words, 0L);
+		for (int i = 0; i < size; i++)
+			if (values[i])
+				words[i >>> 6] |= 1L << i;
+	}
+
+	@Override
+	public PackedBooleanImage getComplement() {
+		PackedBooleanImage im = new PackedBooleanImage(this, false);
+		for (int w = 0; w < words.length; w++)
+			im.words[w] = ~words[w];
+		im.clearTail();
+		return im;
+	}
+
+	@Override
+	public int getSum() {
+		if (!getMask().isTransparent())
+			return super.getSum();
+		int sum = 0;
+		for (int w = 0; w < words.length; w++)
+			sum += Long.bitCount(words[w]);
+		return sum;
+	}
+
+	@Override
+	public boolean minimum() {
+		for (int w = 0; w < size >>> 6; w++)
+			if (words[w] != -1L)
+				return false;
+		return (size & 63) == 0
+				|| words[words.length - 1] == (1L << size) - 1;
+	}
+
+	@Override
+	public boolean maximum() {
+		return !isEmpty();
+	}
+
+	@Override
+	public boolean equals(Image im) {
+		if (im instanceof PackedBooleanImage && haveSameDimensions(im, this)
+				&& getMask().isTransparent() && im.getMask().isTransparent())
+			return Arrays.equals(words, ((PackedBooleanImage) im).words);
+		if (im == null || !(im instanceof BooleanImage)
+				|| !haveSameDimensions(im, this))
+			return false;
+		for (int i = 0; i < size; i++) {
+			boolean impresent = im.isPresent(i);
+			if (impresent != this.isPresent(i))
+				return false;
+			if (impresent && im.getPixelBoolean(i) != getPixelBoolean(i))
+				return false;
+		}
+		return true;
+	}
+
+	@Override
+	public double getPixelDouble(int loc) {
+		return booleanToDouble(getPixelBoolean(loc));
+	}
+
+	@Override
+	public int getPixelInt(int loc) {
+		return booleanToInt(getPixelBoolean(loc));
+	}
+
+	@Override
+	public int getPixelByte(int loc) {
+		return booleanToUnsignedByte(getPixelBoolean(loc));
+	}
+
+	@Override
+	public boolean getPixelBoolean(int loc) {
+		if (loc >= size)
+			throw new ArrayIndexOutOfBoundsException(loc);
+		return (words[loc >>> 6] & (1L << loc)) != 0;
+	}
+
+	@Override
+	public void setPixelDouble(int loc, double value) {
+		setPixelBoolean(loc, doubleToBoolean(value));
+	}
+
+	@Override
+	public void setPixelInt(int loc, int value) {
+		setPixelBoolean(loc, intToBoolean(value));
+	}
+
+	@Override
+	public void setPixelByte(int loc, int value) {
+		setPixelBoolean(loc, unsignedByteToBoolean(value));
+	}
+
+	@Override
+	public void setPixelBoolean(int loc, boolean value) {
+		if (loc >= size)
+			throw new ArrayIndexOutOfBoundsException(loc);
+		if (value)
+			words[loc >>> 6] |= 1L << loc;
+		else
+			words[loc >>> 6] &= ~(1L << loc);
+	}
+
+}
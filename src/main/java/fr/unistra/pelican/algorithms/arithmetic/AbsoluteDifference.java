@@ -4,6 +4,7 @@ import fr.unistra.pelican.Algorithm;
 import fr.unistra.pelican.AlgorithmException;
 import fr.unistra.pelican.Image;
 import fr.unistra.pelican.InvalidParameterException;
+import fr.unistra.pelican.util.Parallel;
 import fr.unistra.pelican.util.mask.MaskStack;
 
 /**
@@ -61,19 +62,22 @@ public class AbsoluteDifference extends Algorithm {
 		mask.push( inputImage2.getMask() );
 		outputImage.setMask( mask );
 
-		int size = inputImage1.size();
-		boolean isHere1, isHere2;
-		double pixel1, pixel2;
-		for ( int i = 0 ; i < size ; ++i ) {  
+		Parallel.forPixels(outputImage, new Parallel.Range() {
+			public void run(int from, int to) {
+				boolean isHere1, isHere2;
+				double pixel1, pixel2;
+				for ( int i = from ; i < to ; ++i ) {  
 
-			isHere1 = inputImage1.isPresent(i);
-			isHere2 = inputImage2.isPresent(i);
-			if ( isHere1 ) pixel1 = inputImage1.getPixelDouble(i);
-			else pixel1 = 0.0;
-			if ( isHere2 ) pixel2 = inputImage2.getPixelDouble(i);
-			else pixel2 = 0.0;
-			outputImage.setPixelDouble( i, Math.abs( pixel1 - pixel2 ) );
-		}
+					isHere1 = inputImage1.isPresent(i);
+					isHere2 = inputImage2.isPresent(i);
+					if ( isHere1 ) pixel1 = inputImage1.getPixelDouble(i);
+					else pixel1 = 0.0;
+					if ( isHere2 ) pixel2 = inputImage2.getPixelDouble(i);
+					else pixel2 = 0.0;
+					outputImage.setPixelDouble( i, Math.abs( pixel1 - pixel2 ) );
+				}
+			}
+		});
 	}
 
 	/**
@@ -4,6 +4,7 @@ import fr.unistra.pelican.Algorithm;
 import fr.unistra.pelican.AlgorithmException;
 import fr.unistra.pelican.Image;
 import fr.unistra.pelican.InvalidParameterException;
+import fr.unistra.pelican.util.Parallel;
 import fr.unistra.pelican.util.mask.MaskStack;
 
 /**
@@ -60,38 +61,22 @@ public class AbsoluteDifferenceHSY extends Algorithm {
 		mask.push( inputImage2.getMask() );
 		outputImage.setMask( mask );
 
-		for (int b = 0; b < inputImage1.getBDim(); b++) {
-			for (int t = 0; t < inputImage1.getTDim(); t++) {
-				for (int z = 0; z < inputImage1.getZDim(); z++) {
-					for (int x = 0; x < inputImage1.getXDim(); x++) {
-						for (int y = 0; y < inputImage1.getYDim(); y++) {
-							if (b > 0)
-								outputImage.setPixelXYZTBDouble(x, y, z, t, b,
-										Math.abs(inputImage1
-												.getPixelXYZTBDouble(x, y, z,
-														t, b)
-												- inputImage2
-														.getPixelXYZTBDouble(x,
-																y, z, t, b)));
-							else {
-								double abs = Math.abs(inputImage1
-										.getPixelXYZTBDouble(x, y, z, t, b)
-										- inputImage2.getPixelXYZTBDouble(x, y,
-												z, t, b));
-
-								if (abs > 0.5)
-									abs = 1.0 - abs;
-
-								abs *= 2.0; // get into [0,1]
-
-								outputImage.setPixelXYZTBDouble(x, y, z, t, b,
-										abs);
-							}
-						}
+		final int bdim = inputImage1.getBDim();
+		Parallel.forPixels(outputImage, new Parallel.Range() {
+			public void run(int from, int to) {
+				for (int i = from; i < to; i++) {
+					double abs = Math.abs(inputImage1.getPixelDouble(i)
+							- inputImage2.getPixelDouble(i));
+					// the hue, band 0, is an angle
+					if (i % bdim == 0) {
+						if (abs > 0.5)
+							abs = 1.0 - abs;
+						abs *= 2.0; // get into [0,1]
 					}
+					outputImage.setPixelDouble(i, abs);
 				}
 			}
-		}
+		});
 	}
 
 	/**
@@ -4,6 +4,7 @@ import fr.unistra.pelican.Algorithm;
 import fr.unistra.pelican.AlgorithmException;
 import fr.unistra.pelican.Image;
 import fr.unistra.pelican.InvalidParameterException;
+import fr.unistra.pelican.util.Parallel;
 import fr.unistra.pelican.util.mask.MaskStack;
 
 
@@ -61,12 +62,14 @@ public class AdditionChecked extends Algorithm{
 		mask.push( inputImage1.getMask() );
 		mask.push( inputImage2.getMask() );
 		outputImage.setMask( mask );
-		int size = inputImage1.size();
-		
 //		if(inputImage1 instanceof DoubleImage) {
-			for(int i = 0; i < size; ++i)
-				outputImage.setPixelDouble(i, 
-						Math.max(0.0,Math.min(1.0, inputImage1.getPixelDouble(i) + inputImage2.getPixelDouble(i))));
+		Parallel.forPixels(outputImage, new Parallel.Range() {
+			public void run(int from, int to) {
+				for(int i = from; i < to; ++i)
+					outputImage.setPixelDouble(i, 
+							Math.max(0.0,Math.min(1.0, inputImage1.getPixelDouble(i) + inputImage2.getPixelDouble(i))));
+			}
+		});
 //		}
 //		// General path as int
 //		else {
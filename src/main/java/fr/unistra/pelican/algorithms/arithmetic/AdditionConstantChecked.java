@@ -3,6 +3,7 @@ package fr.unistra.pelican.algorithms.arithmetic;
 import fr.unistra.pelican.Algorithm;
 import fr.unistra.pelican.AlgorithmException;
 import fr.unistra.pelican.Image;
+import fr.unistra.pelican.util.Parallel;
 
 
 /** 
@@ -62,25 +63,36 @@ public class AdditionConstantChecked extends Algorithm{
 	public void launch() throws AlgorithmException{		
 		outputImage = inputImage1.newInstance(inputImage1.getXDim(), inputImage1.getYDim(), inputImage1.getZDim(), inputImage1.getTDim(), inputImage1.getBDim());
 		outputImage.setMask( inputImage1.getMask() );
-		int size = inputImage1.size();
 		if(mode==DOUBLEMODE)
 		{
-			double dconstant=constant.doubleValue();
-			for(int i = 0; i < size; ++i)
-				outputImage.setPixelDouble(i, 
-						Math.max(0.0,Math.min(1.0, inputImage1.getPixelDouble(i) + dconstant)));
+			final double dconstant=constant.doubleValue();
+			Parallel.forPixels(outputImage, new Parallel.Range() {
+				public void run(int from, int to) {
+					for(int i = from; i < to; ++i)
+						outputImage.setPixelDouble(i, 
+								Math.max(0.0,Math.min(1.0, inputImage1.getPixelDouble(i) + dconstant)));
+				}
+			});
 		} else if(mode==BYTEMODE)
 		{
-			int iconstant=constant.intValue();
-			for(int i = 0; i < size; ++i)
-				outputImage.setPixelByte(i, 
-						Math.max(0,Math.min(255, inputImage1.getPixelByte(i) + iconstant)));
+			final int iconstant=constant.intValue();
+			Parallel.forPixels(outputImage, new Parallel.Range() {
+				public void run(int from, int to) {
+					for(int i = from; i < to; ++i)
+						outputImage.setPixelByte(i, 
+								Math.max(0,Math.min(255, inputImage1.getPixelByte(i) + iconstant)));
+				}
+			});
 		} else if(mode==INTMODE)
 		{
-			int iconstant=constant.intValue();
-			for(int i = 0; i < size; ++i)
-				outputImage.setPixelInt(i, 
-						Math.max(Integer.MIN_VALUE,Math.min(Integer.MAX_VALUE, inputImage1.getPixelInt(i) + iconstant)));
+			final int iconstant=constant.intValue();
+			Parallel.forPixels(outputImage, new Parallel.Range() {
+				public void run(int from, int to) {
+					for(int i = from; i < to; ++i)
+						outputImage.setPixelInt(i, 
+								Math.max(Integer.MIN_VALUE,Math.min(Integer.MAX_VALUE, inputImage1.getPixelInt(i) + iconstant)));
+				}
+			});
 		} else
 		{
 			System.err.println("This mode is not managed !");
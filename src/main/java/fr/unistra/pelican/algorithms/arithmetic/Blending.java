@@ -4,6 +4,7 @@ import fr.unistra.pelican.Algorithm;
 import fr.unistra.pelican.AlgorithmException;
 import fr.unistra.pelican.Image;
 import fr.unistra.pelican.InvalidParameterException;
+import fr.unistra.pelican.util.Parallel;
 
 /**
  * Blend two image with a blending coeficient. 
@@ -68,21 +69,29 @@ public class Blending extends Algorithm {
 			outputImage.setMask( inputImage1.getMask() );
 			if(!ignoreBackgroundOfInputImage2)
 			{
-				int size = inputImage1.size();
-				for (int i = 0; i < size; ++i)
-					if ( inputImage2.isPresent(i) )
-					outputImage.setPixelDouble(i,
-						(inputImage1.getPixelDouble(i) * coef + inputImage2
-							.getPixelDouble(i)* (1.0 - coef)));
-					else outputImage.setPixelDouble( i, inputImage1.getPixelDouble(i)*coef );
+				Parallel.forPixels(outputImage, new Parallel.Range() {
+					public void run(int from, int to) {
+						for (int i = from; i < to; ++i)
+							if ( inputImage2.isPresent(i) )
+							outputImage.setPixelDouble(i,
+								(inputImage1.getPixelDouble(i) * coef + inputImage2
+									.getPixelDouble(i)* (1.0 - coef)));
+							else outputImage.setPixelDouble( i, inputImage1.getPixelDouble(i)*coef );
+					}
+				});
 			}
 			else
 			{
-				
-				for(int x=0;x<inputImage1.getXDim();x++)
-					for(int y=0;y<inputImage1.getYDim();y++)
-						for(int z=0;z<inputImage1.getZDim();z++)
-							for(int t=0;t<inputImage1.getTDim();t++)
+				// a line holds whole pixels, with all their bands
+				final int ydim = inputImage1.getYDim();
+				final int zdim = inputImage1.getZDim();
+				Parallel.forLines(outputImage, ydim * zdim * inputImage1.getTDim(), new Parallel.Range() {
+					public void run(int from, int to) {
+						for (int line = from; line < to; line++) {
+							int y = line % ydim;
+							int z = line / ydim % zdim;
+							int t = line / (ydim * zdim);
+							for(int x=0;x<inputImage1.getXDim();x++)
 							{
 								boolean considered=false;
 								for(int b=0;b<inputImage1.getBDim();b++)
@@ -97,6 +106,9 @@ public class Blending extends Algorithm {
 										outputImage.setPixelDouble(x,y,z,t,b,inputImage1.getPixelDouble(x,y,z,t,b));
 									
 							}
+						}
+					}
+				});
 			}
 
 		}
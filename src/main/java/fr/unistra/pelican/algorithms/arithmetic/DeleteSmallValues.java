@@ -3,6 +3,7 @@ package fr.unistra.pelican.algorithms.arithmetic;
 import fr.unistra.pelican.Algorithm;
 import fr.unistra.pelican.AlgorithmException;
 import fr.unistra.pelican.Image;
+import fr.unistra.pelican.util.Parallel;
 
 
 /** 
@@ -45,20 +46,22 @@ public class DeleteSmallValues extends Algorithm{
 	public void launch() throws AlgorithmException{		
 		outputImage = inputImage.copyImage(false);
 		outputImage.setMask( inputImage.getMask() );
-		int size = inputImage.size();
-
-		for (int i = 0; i < size; ++i)
-			if ( inputImage.isPresent(i) ) 
-			{
-				if (inputImage.getPixelDouble(i) <= threshold)
-				{
-					outputImage.setPixelDouble(i, 0.0);
-				}
-				else
-				{
-					outputImage.setPixelDouble(i, inputImage.getPixelDouble(i));
-				}
-			}	
+		Parallel.forPixels(outputImage, new Parallel.Range() {
+			public void run(int from, int to) {
+				for (int i = from; i < to; ++i)
+					if ( inputImage.isPresent(i) ) 
+					{
+						if (inputImage.getPixelDouble(i) <= threshold)
+						{
+							outputImage.setPixelDouble(i, 0.0);
+						}
+						else
+						{
+							outputImage.setPixelDouble(i, inputImage.getPixelDouble(i));
+						}
+					}
+			}
+		});
 	}
 	
 	/**
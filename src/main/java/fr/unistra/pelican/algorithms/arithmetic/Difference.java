@@ -3,6 +3,7 @@ package fr.unistra.pelican.algorithms.arithmetic;
 import fr.unistra.pelican.Algorithm;
 import fr.unistra.pelican.AlgorithmException;
 import fr.unistra.pelican.Image;
+import fr.unistra.pelican.util.Parallel;
 import fr.unistra.pelican.util.mask.MaskStack;
 
 /**
@@ -70,22 +71,25 @@ public class Difference extends Algorithm {
 		mask.push( inputImage2.getMask() );
 		outputImage.setMask( mask );
 
-		int size = inputImage1.size();
-		boolean isHere1, isHere2;
-		double val1, val2;
-		for (int i = 0; i < size; ++i) { 
+		Parallel.forPixels(outputImage, new Parallel.Range() {
+			public void run(int from, int to) {
+				boolean isHere1, isHere2;
+				double val1, val2;
+				for (int i = from; i < to; ++i) { 
 
-			isHere1 = inputImage1.isPresent(i);
-			isHere2 = inputImage2.isPresent(i);
-			if ( isHere1 ) val1 = inputImage1.getPixelDouble(i);
-			else val1 = 0.0;
-			if ( isHere2 ) val2 = inputImage2.getPixelDouble(i);
-			else val2 = 0.0;
-			double val = val1 - val2;
-			if (Math.abs(val) < 0.0000001) val = 0;
-			outputImage.setPixelDouble( i, safe ? Math.min( 1.0, Math.max(0.0,val)) 
-												: val );
-		}
+					isHere1 = inputImage1.isPresent(i);
+					isHere2 = inputImage2.isPresent(i);
+					if ( isHere1 ) val1 = inputImage1.getPixelDouble(i);
+					else val1 = 0.0;
+					if ( isHere2 ) val2 = inputImage2.getPixelDouble(i);
+					else val2 = 0.0;
+					double val = val1 - val2;
+					if (Math.abs(val) < 0.0000001) val = 0;
+					outputImage.setPixelDouble( i, safe ? Math.min( 1.0, Math.max(0.0,val)) 
+														: val );
+				}
+			}
+		});
 	}
 
 	/**
@@ -3,6 +3,7 @@ package fr.unistra.pelican.algorithms.arithmetic;
 import fr.unistra.pelican.Algorithm;
 import fr.unistra.pelican.AlgorithmException;
 import fr.unistra.pelican.Image;
+import fr.unistra.pelican.util.Parallel;
 
 /**
  * Divison by a constant or an array of constants for multichannel data
@@ -49,17 +50,17 @@ public class Division extends Algorithm
 		output = input.copyImage(false);
 		output.setMask( input.getMask() );
 
-		for (int b = 0; b < input.getBDim(); b++) {
-			double div = dividerArray[b];
-
-			for (int x = 0; x < input.getXDim(); x++) {
-				for (int y = 0; y < input.getYDim(); y++) {
-
-					int tmp = (int) Math.floor( input.getPixelXYBByte(x, y, b) / div );
-					output.setPixelXYBByte(x, y, b, tmp);
+		// only the first frame, z = t = 0, at the start of the pixel array
+		final int bdim = input.getBDim();
+		final int frame = input.getXDim() * input.getYDim() * bdim;
+		Parallel.forPixels(output, new Parallel.Range() {
+			public void run(int from, int to) {
+				for (int i = from; i < Math.min(to, frame); i++) {
+					int tmp = (int) Math.floor( input.getPixelByte(i) / dividerArray[i % bdim] );
+					output.setPixelByte(i, tmp);
 				}
 			}
-		}
+		});
 	}
 	
 	/**
@@ -6,6 +6,7 @@ import fr.unistra.pelican.ByteImage;
 import fr.unistra.pelican.DoubleImage;
 import fr.unistra.pelican.Image;
 import fr.unistra.pelican.IntegerImage;
+import fr.unistra.pelican.util.Parallel;
 
 /**
  * Compute the euclidian norm on a multiband image. for a pixel, the new image
@@ -62,37 +63,34 @@ public class EuclideanNorm extends Algorithm {
 
 		outputImage.setMask( inputImage.getMask() );
 		// Do it for all bands
-		int xDim = inputImage.getXDim();
-		int yDim = inputImage.getYDim();
-		int zDim = inputImage.getZDim();
-		int tDim = inputImage.getTDim();
-		int bDim = inputImage.getBDim();
+		final int bDim = inputImage.getBDim();
 		// Standard case
 		if (!integer)
-			for (int x = 0; x < xDim; x++)
-				for (int y = 0; y < yDim; y++)
-					for (int z = 0; z < zDim; z++)
-						for (int t = 0; t < tDim; t++) {
-							double dist = 0.0;
-							for (int b = 0; b < bDim; b++) {
-								double pixel = inputImage.getPixelXYZTBDouble( x, y, z, t, b );
-								dist += pixel * pixel;
-							}
-							outputImage.setPixelXYZTDouble(x, y, z, t, Math.sqrt(dist));
+			Parallel.forPixels(outputImage, new Parallel.Range() {
+				public void run(int from, int to) {
+					for (int p = from; p < to; p++) {
+						double dist = 0.0;
+						for (int b = 0; b < bDim; b++) {
+							double pixel = inputImage.getPixelDouble( p * bDim + b );
+							dist += pixel * pixel;
 						}
+						outputImage.setPixelDouble(p, Math.sqrt(dist));
+					}
+				}
+			});
 		else {
-			for (int x = 0; x < xDim; x++)
-				for (int y = 0; y < yDim; y++)
-					for (int z = 0; z < zDim; z++)
-						for (int t = 0; t < tDim; t++) {
-							double dist = 0.0;
-							for (int b = 0; b < bDim; b++) {
-								double pixel = inputImage.getPixelXYZTBDouble(
-										x, y, z, t, b);
-								dist += Math.abs(pixel);
-							}
-							outputImage.setPixelXYZTDouble(x, y, z, t, dist);
+			Parallel.forPixels(outputImage, new Parallel.Range() {
+				public void run(int from, int to) {
+					for (int p = from; p < to; p++) {
+						double dist = 0.0;
+						for (int b = 0; b < bDim; b++) {
+							double pixel = inputImage.getPixelDouble(p * bDim + b);
+							dist += Math.abs(pixel);
 						}
+						outputImage.setPixelDouble(p, dist);
+					}
+				}
+			});
 		}
 	}
 
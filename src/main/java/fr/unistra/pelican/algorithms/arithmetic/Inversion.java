@@ -5,6 +5,7 @@ import fr.unistra.pelican.AlgorithmException;
 import fr.unistra.pelican.BooleanImage;
 import fr.unistra.pelican.ByteImage;
 import fr.unistra.pelican.Image;
+import fr.unistra.pelican.util.Parallel;
 
 /**
  * Invert an image (default complement function). 
@@ -47,16 +48,24 @@ public class Inversion extends Algorithm {
 	public void launch() throws AlgorithmException {
 		outputImage = inputImage.copyImage(false);
 		if (inputImage instanceof ByteImage) {
-			for (int i = 0; i < inputImage.size(); i++)
-				outputImage.setPixelByte(i,255 - inputImage.getPixelByte(i));
+			Parallel.forPixels(outputImage, new Parallel.Range() {
+				public void run(int from, int to) {
+					for (int i = from; i < to; i++)
+						outputImage.setPixelByte(i,255 - inputImage.getPixelByte(i));
+				}
+			});
 
 		} else if (inputImage instanceof BooleanImage) {
 			BooleanImage inputBool = (BooleanImage) inputImage;
 			BooleanImage outputBool = inputBool.getComplement();
 			outputImage = outputBool;
 		} else {
-			for (int i = 0; i < inputImage.size(); i++)
-				outputImage.setPixelDouble(i,1.0 - inputImage.getPixelDouble(i));
+			Parallel.forPixels(outputImage, new Parallel.Range() {
+				public void run(int from, int to) {
+					for (int i = from; i < to; i++)
+						outputImage.setPixelDouble(i,1.0 - inputImage.getPixelDouble(i));
+				}
+			});
 		}
 	}
 	
@@ -4,6 +4,7 @@ import fr.unistra.pelican.Algorithm;
 import fr.unistra.pelican.AlgorithmException;
 import fr.unistra.pelican.DoubleImage;
 import fr.unistra.pelican.Image;
+import fr.unistra.pelican.util.Parallel;
 import fr.unistra.pelican.util.mask.MaskStack;
 
 /**
@@ -58,16 +59,19 @@ public class LinearCombination extends Algorithm {
 		outputImage = new DoubleImage(inputImage[0].getXDim(), inputImage[0]
 				.getYDim(), inputImage[0].getZDim(), inputImage[0].getTDim(),
 				inputImage[0].getBDim());
-		int size = inputImage[0].size();
-		int nb = inputImage.length;
-		double val;
-		for (int i = 0; i < size; ++i) {
-			val = 0;
-			for (int k = 0; k < nb; k++)
-				if ( inputImage[k].isPresent(i) )
-				val += inputImage[k].getPixelDouble(i) * coef[k];
-			outputImage.setPixelDouble(i, val);
-		}
+		final int nb = inputImage.length;
+		Parallel.forPixels(outputImage, new Parallel.Range() {
+			public void run(int from, int to) {
+				double val;
+				for (int i = from; i < to; ++i) {
+					val = 0;
+					for (int k = 0; k < nb; k++)
+						if ( inputImage[k].isPresent(i) )
+						val += inputImage[k].getPixelDouble(i) * coef[k];
+					outputImage.setPixelDouble(i, val);
+				}
+			}
+		});
 
 		MaskStack mask = new MaskStack( MaskStack.AND );
 		for ( int k = 0 ; k < nb ; k++ ) mask.push( this.inputImage[k].getMask() );
@@ -3,6 +3,7 @@ package fr.unistra.pelican.algorithms.arithmetic;
 import fr.unistra.pelican.Algorithm;
 import fr.unistra.pelican.AlgorithmException;
 import fr.unistra.pelican.Image;
+import fr.unistra.pelican.util.Parallel;
 import fr.unistra.pelican.util.mask.MaskStack;
 
 /**
@@ -53,19 +54,22 @@ public class Multiplication extends Algorithm {
 		mask.push( inputImage1.getMask() );
 		mask.push( inputImage2.getMask() );
 		outputImage.setMask( mask );
-		int size = inputImage1.size();
 
-		boolean isHere1, isHere2;
-		for ( int i = 0 ; i < size ; ++i ) {  
+		Parallel.forPixels(outputImage, new Parallel.Range() {
+			public void run(int from, int to) {
+				boolean isHere1, isHere2;
+				for ( int i = from ; i < to ; ++i ) {  
 
-			isHere1 = inputImage1.isPresent(i);
-			isHere2 = inputImage2.isPresent(i);
-			double pixel1 = inputImage1.getPixelDouble(i);
-			double pixel2 = inputImage2.getPixelDouble(i);
-			if ( isHere1 && isHere2 ) outputImage.setPixelDouble(i, pixel1*pixel2 );
-			else if ( isHere1 && !isHere2 ) outputImage.setPixelDouble( i, pixel1 );
-			else if ( !isHere1 && isHere2 ) outputImage.setPixelDouble( i, pixel2 );
-		}
+					isHere1 = inputImage1.isPresent(i);
+					isHere2 = inputImage2.isPresent(i);
+					double pixel1 = inputImage1.getPixelDouble(i);
+					double pixel2 = inputImage2.getPixelDouble(i);
+					if ( isHere1 && isHere2 ) outputImage.setPixelDouble(i, pixel1*pixel2 );
+					else if ( isHere1 && !isHere2 ) outputImage.setPixelDouble( i, pixel1 );
+					else if ( !isHere1 && isHere2 ) outputImage.setPixelDouble( i, pixel2 );
+				}
+			}
+		});
 	}
 	
 	/**
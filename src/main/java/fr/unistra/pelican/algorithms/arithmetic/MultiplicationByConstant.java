@@ -3,6 +3,7 @@ package fr.unistra.pelican.algorithms.arithmetic;
 import fr.unistra.pelican.Algorithm;
 import fr.unistra.pelican.AlgorithmException;
 import fr.unistra.pelican.Image;
+import fr.unistra.pelican.util.Parallel;
 
 /**
  * Channel-wise multiplication with a constant. Operates on double precision
@@ -47,13 +48,18 @@ public class MultiplicationByConstant extends Algorithm
 
 		output = input.copyImage(false);
 
-		for( int b = 0 ; b < input.getBDim() ; b++ ) { 
-		for( int x = 0 ; x < input.getXDim() ; x++ ) { 
-		for( int y = 0 ; y < input.getYDim() ; y++ ) { 
+		// only the first frame, z = t = 0, at the start of the pixel array
+		final int bdim = input.getBDim();
+		final int frame = input.getXDim() * input.getYDim() * bdim;
+		Parallel.forPixels(output, new Parallel.Range() {
+			public void run(int from, int to) {
+				for( int i = from ; i < Math.min(to, frame) ; i++ ) { 
 
-					double p = input.getPixelXYBDouble(x,y,b);
-					output.setPixelXYBDouble(x,y,b,Math.min(p*Math.abs(factors[b]),1.0));
-		}	}	}
+					double p = input.getPixelDouble(i);
+					output.setPixelDouble(i,Math.min(p*Math.abs(factors[i % bdim]),1.0));
+				}
+			}
+		});
 	}
 	
 	/**
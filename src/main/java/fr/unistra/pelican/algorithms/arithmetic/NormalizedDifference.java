@@ -4,6 +4,7 @@ import fr.unistra.pelican.Algorithm;
 import fr.unistra.pelican.AlgorithmException;
 import fr.unistra.pelican.Image;
 import fr.unistra.pelican.InvalidParameterException;
+import fr.unistra.pelican.util.Parallel;
 import fr.unistra.pelican.util.mask.MaskStack;
 
 /**
@@ -61,27 +62,26 @@ public class NormalizedDifference extends Algorithm {
 			mask.push( image1.getMask() );
 			mask.push( image2.getMask() );
 			outputImage.setMask( mask );
-			boolean isHere1, isHere2;
-			for ( int b = 0 ; b < image1.getBDim() ; b++ ) 
-			for ( int t = 0 ; t < image1.getTDim() ; t++ ) 
-			for ( int z = 0 ; z < image1.getZDim() ; z++ ) 
-			for ( int y = 0 ; y < image1.getYDim() ; y++ ) 
-			for ( int x = 0 ; x < image1.getXDim() ; x++ ) { 
-
-				isHere1 = image1.isPresent( x,y,z,t,b );
-				isHere2 = image2.isPresent( x,y,z,t,b );
-				double pixel1 = image1.getPixelDouble( x,y,z,t,b );
-				double pixel2 = image2.getPixelDouble( x,y,z,t,b );
-				double ND = 0.;
-				if ( isHere1 && isHere2 ) 
-					ND = (((	pixel1 - pixel2 ) / ( pixel1+pixel2 )) +1. ) /2.;
-				else if ( isHere1 && !isHere2 ) ND = pixel1;
-				else if ( !isHere1 && isHere2 ) ND = pixel2;
-				//For undefined reasons sometimes values are > 1 or < 0 so we checked them.
-				if( ND > 1 ) ND = 1;
-				else if( ND < 0 ) ND = 0;
-				this.outputImage.setPixelDouble( x,y,z,t,b, ND );
-			}
+			Parallel.forPixels(outputImage, new Parallel.Range() {
+				public void run(int from, int to) {
+					boolean isHere1, isHere2;
+					for ( int i = from ; i < to ; i++ ) { 
+						isHere1 = image1.isPresent( i );
+						isHere2 = image2.isPresent( i );
+						double pixel1 = image1.getPixelDouble( i );
+						double pixel2 = image2.getPixelDouble( i );
+						double ND = 0.;
+						if ( isHere1 && isHere2 ) 
+							ND = (((	pixel1 - pixel2 ) / ( pixel1+pixel2 )) +1. ) /2.;
+						else if ( isHere1 && !isHere2 ) ND = pixel1;
+						else if ( !isHere1 && isHere2 ) ND = pixel2;
+						//For undefined reasons sometimes values are > 1 or < 0 so we checked them.
+						if( ND > 1 ) ND = 1;
+						else if( ND < 0 ) ND = 0;
+						outputImage.setPixelDouble( i, ND );
+					}
+				}
+			});
 		}
 		else throw (new InvalidParameterException("The images must have the same dimensions"));
 	}
@@ -6,6 +6,7 @@ package fr.unistra.pelican.algorithms.arithmetic;
 import fr.unistra.pelican.Algorithm;
 import fr.unistra.pelican.AlgorithmException;
 import fr.unistra.pelican.Image;
+import fr.unistra.pelican.util.Parallel;
 
 /**
  * Set all pixels marked as masked to the given value
@@ -55,11 +56,15 @@ public class ReplaceMaskedPixelsByValue extends Algorithm {
 			outputImage=inputImage;
 		else outputImage=inputImage.copyImage(true);
 
-		for(int i=0;i<inputImage.size();i++)
-		{
-			if(!inputImage.isPresent(i))
-				outputImage.setPixelDouble(i, newValue);
-		}
+		Parallel.forPixels(outputImage, new Parallel.Range() {
+			public void run(int from, int to) {
+				for(int i=from;i<to;i++)
+				{
+					if(!inputImage.isPresent(i))
+						outputImage.setPixelDouble(i, newValue);
+				}
+			}
+		});
 	}
 
 	@SuppressWarnings("unchecked")
@@ -6,6 +6,7 @@ package fr.unistra.pelican.algorithms.arithmetic;
 import fr.unistra.pelican.Algorithm;
 import fr.unistra.pelican.AlgorithmException;
 import fr.unistra.pelican.Image;
+import fr.unistra.pelican.util.Parallel;
 
 /**
  * A very simple algorithm to replace a value by a new one.
@@ -60,13 +61,17 @@ public class ReplaceValue extends Algorithm {
 			outputImage=inputImage;
 		else outputImage=inputImage.copyImage(false);
 
-		for(int i=0;i<inputImage.size();i++)
-		{
-			double v=inputImage.getPixelDouble(i);
-			if(v==oldValue)
-				outputImage.setPixelDouble(i, newValue);
-			else outputImage.setPixelDouble(i, v);
-		}
+		Parallel.forPixels(outputImage, new Parallel.Range() {
+			public void run(int from, int to) {
+				for(int i=from;i<to;i++)
+				{
+					double v=inputImage.getPixelDouble(i);
+					if(v==oldValue)
+						outputImage.setPixelDouble(i, newValue);
+					else outputImage.setPixelDouble(i, v);
+				}
+			}
+		});
 	}
 
 	@SuppressWarnings("unchecked")
@@ -5,6 +5,7 @@ import fr.unistra.pelican.AlgorithmException;
 import fr.unistra.pelican.ByteImage;
 import fr.unistra.pelican.Image;
 import fr.unistra.pelican.algorithms.histogram.ContrastStretch;
+import fr.unistra.pelican.util.Parallel;
 
 /**
  * Transforms a gray image into a pseudo-colors image using a LUT
@@ -48,15 +49,15 @@ public class AngleToPseudoColors extends Algorithm {
 	 * @see fr.unistra.pelican.Algorithm#launch()
 	 */
 	public void launch() throws AlgorithmException {
-		Image work;
+		final Image work;
 		if (stretch)
 			work = ContrastStretch.exec(input);
 		else
 			work = input;
-		int xdim = input.getXDim();
-		int ydim = input.getYDim();
-		int zdim = input.getZDim();
-		int tdim = input.getTDim();
+		final int xdim = input.getXDim();
+		final int ydim = input.getYDim();
+		final int zdim = input.getZDim();
+		final int tdim = input.getTDim();
 		int bdim = input.getBDim();
 
 		if (bdim != 1)
@@ -64,11 +65,14 @@ public class AngleToPseudoColors extends Algorithm {
 
 		output = new ByteImage(xdim, ydim, zdim, tdim, 3);
 		output.setColor(true);
-		double step = 1.0 / 6;
+		final double step = 1.0 / 6;
 
-		for (int t = 0; t < tdim; t++)
-			for (int z = 0; z < zdim; z++)
-				for (int y = 0; y < ydim; y++)
+		Parallel.forLines(output, ydim * zdim * tdim, new Parallel.Range() {
+			public void run(int from, int to) {
+				for (int line = from; line < to; line++) {
+					int y = line % ydim;
+					int z = line / ydim % zdim;
+					int t = line / (ydim * zdim);
 					for (int x = 0; x < xdim; x++) {
 						double p = work.getPixelXYZTDouble(x, y, z, t);
 						if (p < step) { // 1,0,1 => 0,0,1
@@ -96,8 +100,10 @@ public class AngleToPseudoColors extends Algorithm {
 							output.setPixelDouble(x, y, z, t, 1, 0);
 							output.setPixelDouble(x, y, z, t, 2, 1 - (1 - p) / step);
 						}
-
 					}
+				}
+			}
+		});
 	}
 
 	/**
@@ -3,6 +3,7 @@ package fr.unistra.pelican.algorithms.conversion;
 import fr.unistra.pelican.Algorithm;
 import fr.unistra.pelican.AlgorithmException;
 import fr.unistra.pelican.Image;
+import fr.unistra.pelican.util.Parallel;
 
 /**
  *	This class realizes the averaging of all bands of a multiband image into a graylevel image
@@ -44,11 +45,11 @@ public class AverageChannels extends Algorithm {
 	 */
 	public void launch() throws AlgorithmException { 
 
-		int xdim = input.getXDim();
-		int ydim = input.getYDim();
-		int zdim = input.getZDim();
-		int tdim = input.getTDim();
-		int bdim = input.getBDim();
+		final int xdim = input.getXDim();
+		final int ydim = input.getYDim();
+		final int zdim = input.getZDim();
+		final int tdim = input.getTDim();
+		final int bdim = input.getBDim();
 
 		if ( bdim < 1 ) throw new AlgorithmException("The input must be a multiband image");
 
@@ -61,11 +62,14 @@ public class AverageChannels extends Algorithm {
 			output = input.newInstance(xdim, ydim, zdim, tdim, 1);
 			output.setColor(false);
 
-			double val;
-			int nbPresentBands;
-			for ( int t = 0; t < tdim; t++ )
-				for ( int z = 0; z < zdim; z++ )
-					for ( int y = 0; y < ydim; y++ )
+			Parallel.forLines( output, ydim * zdim * tdim, new Parallel.Range() {
+				public void run( int from, int to ) {
+					double val;
+					int nbPresentBands;
+					for ( int line = from; line < to; line++ ) {
+						int y = line % ydim;
+						int z = line / ydim % zdim;
+						int t = line / ( ydim * zdim );
 						for ( int x = 0; x < xdim; x++ )				
 						{
 							val = 0;
@@ -78,6 +82,9 @@ public class AverageChannels extends Algorithm {
 							if ( nbPresentBands == 0 ) output.setPixelXYZTBDouble( x,y,z,t,0, val );
 							else output.setPixelXYZTBDouble(x, y, z, t, 0, val / nbPresentBands );
 						}
+					}
+				}
+			});
 		}
 	}
 
@@ -4,6 +4,7 @@ import fr.unistra.pelican.Algorithm;
 import fr.unistra.pelican.AlgorithmException;
 import fr.unistra.pelican.Image;
 import fr.unistra.pelican.IntegerImage;
+import fr.unistra.pelican.util.Parallel;
 
 /**
  *	This class combines several binary images into a single label image. A boolean
@@ -51,36 +52,42 @@ public class BinaryArrayToLabels extends Algorithm {
 
 		// generate output
 		outputImage = new IntegerImage(inputImage[0], false);
-		int size = inputImage[0].size();
-		int length = inputImage.length;
-		int val;
+		final int length = inputImage.length;
 
-		fr.unistra.pelican.util.mask.MaskStack[] masks = 
+		final fr.unistra.pelican.util.mask.MaskStack[] masks = 
 			new fr.unistra.pelican.util.mask.MaskStack[length];
 		for ( int t = 0 ; t < length ; t++ ) masks[t] = this.inputImage[t].getMask();
 
 		// accumulate mode
 		if (accumulate == true)
-			for (int p = 0; p < size; p++) {
-				val = 0;
-				for (int t = 0; t < length; t++)
-					if (	inputImage[t].getPixelBoolean(p) 
-						&&	masks[t] != null && !masks[t].empty() && inputImage[t].isPresent( p ) )
-						val++;
-				outputImage.setPixelInt(p, val);
-			}
+			Parallel.forPixels(outputImage, new Parallel.Range() {
+				public void run(int from, int to) {
+					for (int p = from; p < to; p++) {
+						int val = 0;
+						for (int t = 0; t < length; t++)
+							if (	inputImage[t].getPixelBoolean(p) 
+								&&	masks[t] != null && !masks[t].empty() && inputImage[t].isPresent( p ) )
+								val++;
+						outputImage.setPixelInt(p, val);
+					}
+				}
+			});
 		else
-			for (int p = 0; p < size; p++) {
-				val = -1;
-				for (int t = 0; t < length; t++)
-					if (	inputImage[t].getPixelBoolean(p) 
-						&&	masks[t] != null && !masks[t].empty() && inputImage[t].isPresent( p ) )
-						if (val == -1)
-							val = t;
-						else
-							val = length;
-				outputImage.setPixelInt(p, val + 1);
-			}
+			Parallel.forPixels(outputImage, new Parallel.Range() {
+				public void run(int from, int to) {
+					for (int p = from; p < to; p++) {
+						int val = -1;
+						for (int t = 0; t < length; t++)
+							if (	inputImage[t].getPixelBoolean(p) 
+								&&	masks[t] != null && !masks[t].empty() && inputImage[t].isPresent( p ) )
+								if (val == -1)
+									val = t;
+								else
+									val = length;
+						outputImage.setPixelInt(p, val + 1);
+					}
+				}
+			});
 
 	}
 
@@ -4,6 +4,7 @@ import fr.unistra.pelican.Algorithm;
 import fr.unistra.pelican.AlgorithmException;
 import fr.unistra.pelican.ByteImage;
 import fr.unistra.pelican.Image;
+import fr.unistra.pelican.util.Parallel;
 import fr.unistra.pelican.util.Tools;
 
 /**
@@ -63,10 +64,10 @@ public class ColourDistanceImage extends Algorithm {
 	 * @see fr.unistra.pelican.Algorithm#launch()
 	 */
 	public void launch() throws AlgorithmException {
-		int xdim = input.getXDim();
-		int ydim = input.getYDim();
-		int zdim = input.getZDim();
-		int tdim = input.getTDim();
+		final int xdim = input.getXDim();
+		final int ydim = input.getYDim();
+		final int zdim = input.getZDim();
+		final int tdim = input.getTDim();
 		int bdim = input.getBDim();
 
 		if (bdim != 3)
@@ -76,20 +77,22 @@ public class ColourDistanceImage extends Algorithm {
 		output = new ByteImage(xdim, ydim, zdim, tdim, 1);
 		this.output.setMask( this.input.getMask() );
 
-		double[] refColor = { c1 / 255.0, c2 / 255.0, c3 / 255.0 };
-
-		for (int x = 0; x < xdim; x++) {
-			for (int y = 0; y < ydim; y++) {
-				for (int z = 0; z < zdim; z++) {
-					for (int t = 0; t < tdim; t++) { 
+		final double[] refColor = { c1 / 255.0, c2 / 255.0, c3 / 255.0 };
 
+		Parallel.forLines(output, ydim * zdim * tdim, new Parallel.Range() {
+			public void run(int from, int to) {
+				for (int line = from; line < to; line++) {
+					int y = line % ydim;
+					int z = line / ydim % zdim;
+					int t = line / (ydim * zdim);
+					for (int x = 0; x < xdim; x++) {
 						double[] p = input.getVectorPixelXYZTDouble(x, y, 0, 0);
 						double distance = Tools.euclideanDistance(refColor,p);
 						output.setPixelXYZTDouble(x, y, z, t, distance/3.0);
 					}
 				}
 			}
-		}
+		});
 	}
 
 	/**
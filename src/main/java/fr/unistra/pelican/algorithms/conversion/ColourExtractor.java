@@ -4,6 +4,7 @@ import fr.unistra.pelican.Algorithm;
 import fr.unistra.pelican.AlgorithmException;
 import fr.unistra.pelican.BooleanImage;
 import fr.unistra.pelican.Image;
+import fr.unistra.pelican.util.Parallel;
 import fr.unistra.pelican.util.mask.BooleanMask;
 
 
@@ -63,10 +64,10 @@ public class ColourExtractor extends Algorithm {
 	 * @see fr.unistra.pelican.Algorithm#launch()
 	 */
 	public void launch() throws AlgorithmException {
-		int xdim = input.getXDim();
-		int ydim = input.getYDim();
-		int zdim = input.getZDim();
-		int tdim = input.getTDim();
+		final int xdim = input.getXDim();
+		final int ydim = input.getYDim();
+		final int zdim = input.getZDim();
+		final int tdim = input.getTDim();
 		int bdim = input.getBDim();
 
 		if (bdim != 3)
@@ -76,12 +77,14 @@ public class ColourExtractor extends Algorithm {
 		output = new BooleanImage(xdim, ydim, zdim, tdim, 1);
 		output.setColor(true);
 
-		boolean flag;
-
-		for (int x = 0; x < xdim; x++) {
-			for (int y = 0; y < ydim; y++) {
-				for (int z = 0; z < zdim; z++) {
-					for (int t = 0; t < tdim; t++) {
+		Parallel.forLines(output, ydim * zdim * tdim, new Parallel.Range() {
+			public void run(int from, int to) {
+				boolean flag;
+				for (int line = from; line < to; line++) {
+					int y = line % ydim;
+					int z = line / ydim % zdim;
+					int t = line / (ydim * zdim);
+					for (int x = 0; x < xdim; x++) {
 						int p1 = input.getPixelXYZTBByte(x, y, z, t, 0);
 						int p2 = input.getPixelXYZTBByte(x, y, z, t, 1);
 						int p3 = input.getPixelXYZTBByte(x, y, z, t, 2);
@@ -94,11 +97,10 @@ public class ColourExtractor extends Algorithm {
 									&& input.isPresentXYZTB( x,y,z,t, 2 );
 
 						output.setPixelXYZTBoolean(x, y, z, t, flag);
-
 					}
 				}
 			}
-		}
+		});
 
 		BooleanImage mask = new BooleanImage( xdim, ydim, zdim, tdim, 1 );
 		for ( int x = 0 ; x < xdim ; x++ ) 
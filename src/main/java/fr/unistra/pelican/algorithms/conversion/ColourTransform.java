@@ -0,0 +1,257 @@
+package fr.unistra.pelican.algorithms.conversion;
+
+import fr.unistra.pelican.AlgorithmException;
+import fr.unistra.pelican.ByteImage;
+import fr.unistra.pelican.DoubleImage;
+import fr.unistra.pelican.Image;
+import fr.unistra.pelican.util.Parallel;
+import fr.unistra.pelican.util.largeImages.LargeImageInterface;
+
+/**
+ * Conversion of the colours of a three band image from a colour space to
+ * another, pixel by pixel.
+ *
+ * The transforms are composed with {@link #then(ColourTransform)} into a
+ * single transform, so that for instance RGB is converted to LCH through XYZ
+ * and Lab in one pass over the image, without any intermediate image. The
+ * pass is made in parallel, directly on the pixel arrays when possible.
+ *
+ * The RGB colours are read as unsigned bytes with getPixelByte, as the
+ * conversion algorithms do, the others with getPixelDouble. The result is a
+ * DoubleImage, with the mask of the input.
+ *
+ * @author PELICAN team
+ */
+public abstract class ColourTransform {
+
+	public static final String RGB = "RGB";
+	public static final String XYZ = "XYZ";
+	public static final String LAB = "LAB";
+	public static final String LCH = "LCH";
+	public static final String LUV = "LUV";
+	public static final String HSV = "HSV";
+	public static final String HSL = "HSL";
+	public static final String HSY = "HSY";
+	public static final String YUV = "YUV";
+	public static final String YIQ = "YIQ";
+	public static final String I1I2I3 = "I1I2I3";
+
+	public static final ColourTransform RGB_TO_XYZ = new ColourTransform(RGB, XYZ) {
+		public void apply(double[] colour) {
+			RGBToXYZ.convert(colour);
+		}
+	};
+
+	public static final ColourTransform XYZ_TO_LAB = new ColourTransform(XYZ, LAB) {
+		public void apply(double[] colour) {
+			XYZToLAB.convert(colour);
+		}
+	};
+
+	public static final ColourTransform LAB_TO_XYZ = new ColourTransform(LAB, XYZ) {
+		public void apply(double[] colour) {
+			LABToXYZ.convert(colour);
+		}
+	};
+
+	public static final ColourTransform LAB_TO_LCH = new ColourTransform(LAB, LCH) {
+		public void apply(double[] colour) {
+			LABToLCH.convert(colour);
+		}
+	};
+
+	public static final ColourTransform LCH_TO_LAB = new ColourTransform(LCH, LAB) {
+		public void apply(double[] colour) {
+			LCHToLAB.convert(colour);
+		}
+	};
+
+	public static final ColourTransform XYZ_TO_LUV = new ColourTransform(XYZ, LUV) {
+		public void apply(double[] colour) {
+			XYZToLUV.convert(colour);
+		}
+	};
+
+	public static final ColourTransform RGB_TO_HSV = new ColourTransform(RGB, HSV) {
+		public void apply(double[] colour) {
+			RGBToHSV.convert(colour);
+		}
+	};
+
+	public static final ColourTransform RGB_TO_HSL = new ColourTransform(RGB, HSL) {
+		public void apply(double[] colour) {
+			RGBToHSL.convert(colour);
+		}
+	};
+
+	public static final ColourTransform RGB_TO_HSY = new ColourTransform(RGB, HSY) {
+		public void apply(double[] colour) {
+			RGBToHSY.convert(colour);
+		}
+	};
+
+	public static final ColourTransform RGB_TO_YUV = new ColourTransform(RGB, YUV) {
+		public void apply(double[] colour) {
+			RGBToYUV.convert(colour);
+		}
+	};
+
+	public static final ColourTransform RGB_TO_YIQ = new ColourTransform(RGB, YIQ) {
+		public void apply(double[] colour) {
+			RGBToYIQ.convert(colour);
+		}
+	};
+
+	public static final ColourTransform RGB_TO_I1I2I3 = new ColourTransform(RGB, I1I2I3) {
+		public void apply(double[] colour) {
+			RGBToI1I2I3.convert(colour);
+		}
+	};
+
+	public static final ColourTransform RGB_TO_LAB = RGB_TO_XYZ.then(XYZ_TO_LAB);
+
+	public static final ColourTransform RGB_TO_LCH = RGB_TO_LAB.then(LAB_TO_LCH);
+
+	public static final ColourTransform RGB_TO_LUV = RGB_TO_XYZ.then(XYZ_TO_LUV);
+
+	/**
+	 * Colour space of the input
+	 */
+	private final String from;
+
+	/**
+	 * Colour space of the output
+	 */
+	private final String to;
+
+	/**
+	 * Constructor
+	 *
+	 * @param from
+	 *            colour space of the input
+	 * @param to
+	 *            colour space of the output
+	 */
+	protected ColourTransform(String from, String to) {
+		this.from = from;
+		this.to = to;
+	}
+
+	/**
+	 * Converts a colour. It is called by several threads at the same time.
+	 *
+	 * @param colour
+	 *            the three bands of the colour, replaced by the converted ones.
+	 *            RGB bands are in [0,255].
+	 */
+	public abstract void apply(double[] colour);
+
+	/**
+	 * @return the colour space of the input
+	 */
+	public String getFrom() {
+		return from;
+	}
+
+	/**
+	 * @return the colour space of the output
+	 */
+	public String getTo() {
+		return to;
+	}
+
+	/**
+	 * Composes this transform with another one, applied after it
+	 *
+	 * @param next
+	 *            transform from the output colour space of this one
+	 * @return the composed transform
+	 */
+	public ColourTransform then(ColourTransform next) {
+		if (!to.equals(next.from))
+			throw new AlgorithmException("Can not apply a " + next.from + " transform to " + to + " colours");
+		ColourTransform[] first = stages(this), second = stages(next);
+		ColourTransform[] stages = new ColourTransform[first.length + second.length];
+		System.arraycopy(first, 0, stages, 0, first.length);
+		System.arraycopy(second, 0, stages, first.length, second.length);
+		return new Chain(stages);
+	}
+
+	private static ColourTransform[] stages(ColourTransform transform) {
+		if (transform instanceof Chain)
+			return ((Chain) transform).stages;
+		return new ColourTransform[] { transform };
+	}
+
+	/**
+	 * Converts the colours of an image
+	 *
+	 * @param input
+	 *            three band image in the input colour space
+	 * @return a DoubleImage in the output colour space
+	 */
+	public DoubleImage convert(final Image input) {
+		if (input.getBDim() != 3)
+			throw new AlgorithmException("The input must be a tristumulus " + from + " image");
+		final DoubleImage output = input.newDoubleImage();
+		output.setMask(input.getMask());
+		output.setColor(true);
+		final boolean bytes = RGB.equals(from);
+
+		if (input instanceof LargeImageInterface || output instanceof LargeImageInterface) {
+			double[] colour = new double[3];
+			for (int i = 0; i < output.size(); i += 3) {
+				for (int b = 0; b < 3; b++)
+					colour[b] = bytes ? input.getPixelByte(i + b) : input.getPixelDouble(i + b);
+				apply(colour);
+				for (int b = 0; b < 3; b++)
+					output.setPixelDouble(i + b, colour[b]);
+			}
+			return output;
+		}
+
+		final double[] values = output.getPixelsUnsafe();
+		final byte[] bytePixels = bytes && input instanceof ByteImage ? ((ByteImage) input).getPixels() : null;
+		final double[] doublePixels = !bytes && input instanceof DoubleImage ? ((DoubleImage) input).getPixelsUnsafe() : null;
+		Parallel.forItems(values.length / 3, values.length, new Parallel.Range() {
+			public void run(int from, int to) {
+				double[] colour = new double[3];
+				for (int i = 3 * from; i < 3 * to; i += 3) {
+					for (int b = 0; b < 3; b++)
+						// ByteImage holds the values with an offset of Byte.MIN_VALUE
+						colour[b] = bytePixels != null ? bytePixels[i + b] - Byte.MIN_VALUE
+								: doublePixels != null ? doublePixels[i + b]
+								: bytes ? input.getPixelByte(i + b) : input.getPixelDouble(i + b);
+					apply(colour);
+					values[i] = colour[0];
+					values[i + 1] = colour[1];
+					values[i + 2] = colour[2];
+				}
+			}
+		});
+		return output;
+	}
+
+	public String toString() {
+		return from + "To" + to;
+	}
+
+	/**
+	 * Transforms applied one after the other
+	 */
+	private static final class Chain extends ColourTransform {
+
+		private final ColourTransform[] stages;
+
+		Chain(ColourTransform[] stages) {
+			super(stages[0].from, stages[stages.length - 1].to);
+			this.stages = stages;
+		}
+
+		public void apply(double[] colour) {
+			for (ColourTransform stage : stages)
+				stage.apply(colour);
+		}
+	}
+
+}
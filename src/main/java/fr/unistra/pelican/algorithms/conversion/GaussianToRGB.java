@@ -4,6 +4,7 @@ import fr.unistra.pelican.Algorithm;
 import fr.unistra.pelican.AlgorithmException;
 import fr.unistra.pelican.ByteImage;
 import fr.unistra.pelican.Image;
+import fr.unistra.pelican.util.Parallel;
 
 /**	
  *	Conversion from Gaussian opponent colour model.
@@ -31,10 +32,10 @@ public class GaussianToRGB  extends Algorithm {
 
 	public void launch() throws AlgorithmException {
 
-		int xdim = input.getXDim();
-		int ydim = input.getYDim();
-		int zdim = input.getZDim();
-		int tdim = input.getTDim();
+		final int xdim = input.getXDim();
+		final int ydim = input.getYDim();
+		final int zdim = input.getZDim();
+		final int tdim = input.getTDim();
 		int bdim = input.getBDim();
 
 		if (bdim != 3)
@@ -44,30 +45,32 @@ public class GaussianToRGB  extends Algorithm {
 		this.output.setMask( this.input.getMask() );
 		output.setColor( true );
 
-		for ( int x = 0 ; x < xdim ; x++ ) { 
-			for ( int y = 0 ; y < ydim ; y++) { 
-				for ( int z = 0 ; z < zdim ; z++) { 
-					for ( int t = 0 ; t < tdim ; t++) { 
+		Parallel.forLines(output, ydim * zdim * tdim, new Parallel.Range() {
+			public void run(int from, int to) {
+				for (int line = from; line < to; line++) {
+					int y = line % ydim;
+					int z = line / ydim % zdim;
+					int t = line / (ydim * zdim);
+					for (int x = 0; x < xdim; x++) {
+												double  I = input.getPixelXYZTBDouble( x,y,z,t, 0 );
+												double YB = input.getPixelXYZTBDouble( x,y,z,t, 1 );
+												double RG = input.getPixelXYZTBDouble( x,y,z,t, 2 );
 
-						double  I = input.getPixelXYZTBDouble( x,y,z,t, 0 );
-						double YB = input.getPixelXYZTBDouble( x,y,z,t, 1 );
-						double RG = input.getPixelXYZTBDouble( x,y,z,t, 2 );
+						//						double R = I + 4.0*YB/3.0 + 4.0*RG/3.0 ;
+						//						double G = I - 4.0*RG/3.0 ;
+						//						double B = I - 4.0*YB/3.0 ;
 
-//						double R = I + 4.0*YB/3.0 + 4.0*RG/3.0 ;
-//						double G = I - 4.0*RG/3.0 ;
-//						double B = I - 4.0*YB/3.0 ;
+												int R = (int)( I*1.184397659182579 + YB*1.568510876407638 + RG*1.3481849339022172 );
+												int G = (int)( I*0.9908838684106221 + YB*0.47562425683709875 - RG*0.5945303210463734 );
+												int B = (int)( I*1.1284418642605674 - YB*1.4583479051549277 + RG*1.0876407637966006 );
 
-						int R = (int)( I*1.184397659182579 + YB*1.568510876407638 + RG*1.3481849339022172 );
-						int G = (int)( I*0.9908838684106221 + YB*0.47562425683709875 - RG*0.5945303210463734 );
-						int B = (int)( I*1.1284418642605674 - YB*1.4583479051549277 + RG*1.0876407637966006 );
-
-						output.setPixelXYZTBByte( x,y,z,t, 0, R );
-						output.setPixelXYZTBByte( x,y,z,t, 1, G );
-						output.setPixelXYZTBByte( x,y,z,t, 2, B );
+												output.setPixelXYZTBByte( x,y,z,t, 0, R );
+												output.setPixelXYZTBByte( x,y,z,t, 1, G );
+												output.setPixelXYZTBByte( x,y,z,t, 2, B );
 					}
 				}
 			}
-		}
+		});
 	}
 
 	public static Image exec(Image input) {
@@ -5,6 +5,7 @@ import fr.unistra.pelican.AlgorithmException;
 import fr.unistra.pelican.ByteImage;
 import fr.unistra.pelican.Image;
 import fr.unistra.pelican.algorithms.histogram.ContrastStretch;
+import fr.unistra.pelican.util.Parallel;
 
 /**
  * Transforms a gray image into a pseudo-colors image using a LUT
@@ -51,15 +52,15 @@ public class GrayToPseudoColors extends Algorithm {
 	 * @see fr.unistra.pelican.Algorithm#launch()
 	 */
 	public void launch() throws AlgorithmException {
-		Image work;
+		final Image work;
 		if (stretch)
 			work = ContrastStretch.exec(input);
 		else
 			work = input;
-		int xdim = input.getXDim();
-		int ydim = input.getYDim();
-		int zdim = input.getZDim();
-		int tdim = input.getTDim();
+		final int xdim = input.getXDim();
+		final int ydim = input.getYDim();
+		final int zdim = input.getZDim();
+		final int tdim = input.getTDim();
 		int bdim = input.getBDim();
 
 		if (bdim != 1)
@@ -69,9 +70,12 @@ public class GrayToPseudoColors extends Algorithm {
 		this.output.setMask( this.input.getMask() );
 		output.setColor(true);
 
-		for (int t = 0; t < tdim; t++)
-			for (int z = 0; z < zdim; z++)
-				for (int y = 0; y < ydim; y++)
+		Parallel.forLines(output, ydim * zdim * tdim, new Parallel.Range() {
+			public void run(int from, int to) {
+				for (int line = from; line < to; line++) {
+					int y = line % ydim;
+					int z = line / ydim % zdim;
+					int t = line / (ydim * zdim);
 					for (int x = 0; x < xdim; x++) {
 						double p = work.getPixelXYZTDouble(x, y, z, t);
 						if (p < 0.2) {
@@ -95,8 +99,10 @@ public class GrayToPseudoColors extends Algorithm {
 							output.setPixelDouble(x, y, z, t, 1, (1.0 - p) / 0.2);
 							output.setPixelDouble(x, y, z, t, 2, 0);
 						}
-
 					}
+				}
+			}
+		});
 	}
 
 	/**
@@ -4,6 +4,7 @@ import fr.unistra.pelican.Algorithm;
 import fr.unistra.pelican.AlgorithmException;
 import fr.unistra.pelican.ByteImage;
 import fr.unistra.pelican.Image;
+import fr.unistra.pelican.util.Parallel;
 
 /**
  * Transforms a gray image into a RGB colour image by tripling the channels
@@ -58,18 +59,13 @@ public class GrayToRGB extends Algorithm {
 		this.output.setMask( this.input.getMask() );
 		output.setColor(true);
 
-		for(int t=0;t<tdim;t++)
-			for(int z=0;z<zdim;z++)
-				for (int y = 0; y < ydim; y++)
-					for (int x = 0; x < xdim; x++) 
-					{
+		Parallel.forPixels(output, new Parallel.Range() {
+			public void run(int from, int to) {
+				for (int i = from; i < to; i++)
+					output.setPixelDouble(i, input.getPixelDouble(i / 3));
+			}
+		});
 
-						double p = input.getPixelXYZTDouble(x, y,z,t);
-						output.setPixelXYZTBDouble(x, y, z, t, 0, p);
-						output.setPixelXYZTBDouble(x, y, z, t, 1, p);
-						output.setPixelXYZTBDouble(x, y, z, t, 2, p);
-					}
-		
 	}
 	
 	/**
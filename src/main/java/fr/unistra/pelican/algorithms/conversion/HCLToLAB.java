@@ -4,6 +4,7 @@ import fr.unistra.pelican.Algorithm;
 import fr.unistra.pelican.AlgorithmException;
 import fr.unistra.pelican.DoubleImage;
 import fr.unistra.pelican.Image;
+import fr.unistra.pelican.util.Parallel;
 
 /**
  * This class realizes the transformation of a tristumulus double valued CIE LCH
@@ -47,10 +48,10 @@ public class HCLToLAB extends Algorithm {
 	 * @see fr.unistra.pelican.Algorithm#launch()
 	 */
 	public void launch() throws AlgorithmException {
-		int xdim = input.getXDim();
-		int ydim = input.getYDim();
-		int zdim = input.getZDim();
-		int tdim = input.getTDim();
+		final int xdim = input.getXDim();
+		final int ydim = input.getYDim();
+		final int zdim = input.getZDim();
+		final int tdim = input.getTDim();
 		int bdim = input.getBDim();
 
 		if (bdim != 3)
@@ -61,10 +62,13 @@ public class HCLToLAB extends Algorithm {
 		this.output.setMask( this.input.getMask() );
 		output.setColor(true);
 
-		for (int x = 0; x < xdim; x++) {
-			for (int y = 0; y < ydim; y++) {
-				for (int z = 0; z < zdim; z++) {
-					for (int t = 0; t < tdim; t++) {
+		Parallel.forLines(output, ydim * zdim * tdim, new Parallel.Range() {
+			public void run(int from, int to) {
+				for (int line = from; line < to; line++) {
+					int y = line % ydim;
+					int z = line / ydim % zdim;
+					int t = line / (ydim * zdim);
+					for (int x = 0; x < xdim; x++) {
 						double H = input.getPixelXYZTBDouble(x, y, z, t, 0);
 						double C = input.getPixelXYZTBDouble(x, y, z, t, 1);
 						double L = input.getPixelXYZTBDouble(x, y, z, t, 2);
@@ -77,7 +81,7 @@ public class HCLToLAB extends Algorithm {
 					}
 				}
 			}
-		}
+		});
 	}
 
 	/**
@@ -2,7 +2,6 @@ package fr.unistra.pelican.algorithms.conversion;
 
 import fr.unistra.pelican.Algorithm;
 import fr.unistra.pelican.AlgorithmException;
-import fr.unistra.pelican.DoubleImage;
 import fr.unistra.pelican.Image;
 
 /**
@@ -47,39 +46,14 @@ public class LABToLCH extends Algorithm {
 	 * @see fr.unistra.pelican.Algorithm#launch()
 	 */
 	public void launch() throws AlgorithmException {
-		int xdim = input.getXDim();
-		int ydim = input.getYDim();
-		int zdim = input.getZDim();
-		int tdim = input.getTDim();
-		int bdim = input.getBDim();
-
-		if (bdim != 3)
+		if (input.getBDim() != 3)
 			throw new AlgorithmException(
 					"The input must be a tristumulus CIE LAB image");
 
-		output = new DoubleImage(xdim, ydim, zdim, tdim, bdim);
-		this.output.setMask( this.input.getMask() );
-		output.setColor(true);
-
-		for (int x = 0; x < xdim; x++) {
-			for (int y = 0; y < ydim; y++) {
-				for (int z = 0; z < zdim; z++) {
-					for (int t = 0; t < tdim; t++) {
-						double L = input.getPixelXYZTBDouble(x, y, z, t, 0);
-						double A = input.getPixelXYZTBDouble(x, y, z, t, 1);
-						double B = input.getPixelXYZTBDouble(x, y, z, t, 2);
-
-						double[] lch = convert(L, A, B);
-
-						output.setPixelXYZTBDouble(x, y, z, t, 0, lch[0]);
-						output.setPixelXYZTBDouble(x, y, z, t, 1, lch[1]);
-						output.setPixelXYZTBDouble(x, y, z, t, 2, lch[2]);
-					}
-				}
-			}
-		}
+		output = ColourTransform.LAB_TO_LCH.convert(input);
 	}
 
+
 	/**
 	 * converts a triplet of cielab into lch
 	 * 
@@ -89,7 +63,23 @@ public class LABToLCH extends Algorithm {
 	 * @return the array of lch values
 	 */
 	public static double[] convert(double l, double a, double b) {
-		double[] lch = new double[3];
+		double[] lch = { l, a, b };
+		convert(lch);
+		return lch;
+	}
+
+	/**
+	 * converts in place a triplet of cielab into lch
+	 * 
+	 * @param colour
+	 *            the lab values, replaced by the lch ones
+	 */
+	public static void convert(double[] colour) {
+		double l = colour[0];
+		double a = colour[1];
+		double b = colour[2];
+
+		double[] lch = colour;
 
 		lch[0] = l;
 
@@ -103,8 +93,6 @@ public class LABToLCH extends Algorithm {
 		lch[1] = Math.sqrt(a * a + b * b);
 
 		lch[2] = lch[2] / 360.0;
-
-		return lch;
 	}
 
 	/**
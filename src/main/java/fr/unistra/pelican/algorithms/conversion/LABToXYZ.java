@@ -2,7 +2,6 @@ package fr.unistra.pelican.algorithms.conversion;
 
 import fr.unistra.pelican.Algorithm;
 import fr.unistra.pelican.AlgorithmException;
-import fr.unistra.pelican.DoubleImage;
 import fr.unistra.pelican.Image;
 
 /**
@@ -47,39 +46,14 @@ public class LABToXYZ extends Algorithm {
 	 * @see fr.unistra.pelican.Algorithm#launch()
 	 */
 	public void launch() throws AlgorithmException {
-		int xdim = input.getXDim();
-		int ydim = input.getYDim();
-		int zdim = input.getZDim();
-		int tdim = input.getTDim();
-		int bdim = input.getBDim();
-
-		if (bdim != 3)
+		if (input.getBDim() != 3)
 			throw new AlgorithmException(
 					"The input must be a tristumulus CIE LAB image");
 
-		output = new DoubleImage(xdim, ydim, zdim, tdim, bdim);
-		this.output.setMask( this.input.getMask() );
-		output.setColor(true);
-
-		for (int x = 0; x < xdim; x++) {
-			for (int y = 0; y < ydim; y++) {
-				for (int z = 0; z < zdim; z++) {
-					for (int t = 0; t < tdim; t++) {
-						double L = input.getPixelXYZTBDouble(x, y, z, t, 0);
-						double A = input.getPixelXYZTBDouble(x, y, z, t, 1);
-						double B = input.getPixelXYZTBDouble(x, y, z, t, 2);
-
-						double[] xyz = convert(L, A, B);
-
-						output.setPixelXYZTBDouble(x, y, z, t, 0, xyz[0]);
-						output.setPixelXYZTBDouble(x, y, z, t, 1, xyz[1]);
-						output.setPixelXYZTBDouble(x, y, z, t, 2, xyz[2]);
-					}
-				}
-			}
-		}
+		output = ColourTransform.LAB_TO_XYZ.convert(input);
 	}
 
+
 	/**
 	 * converts a triplet of cielab into xyz
 	 * 
@@ -89,6 +63,22 @@ public class LABToXYZ extends Algorithm {
 	 * @return the array of xyz values
 	 */
 	public static double[] convert(double L, double A, double B) {
+		double[] xyz = { L, A, B };
+		convert(xyz);
+		return xyz;
+	}
+
+	/**
+	 * converts in place a triplet of cielab into xyz
+	 * 
+	 * @param colour
+	 *            the lab values, replaced by the xyz ones
+	 */
+	public static void convert(double[] colour) {
+		double L = colour[0];
+		double A = colour[1];
+		double B = colour[2];
+
 		// THE white point
 		double Xn = 0.950456;
 		double Yn = 1.0;
@@ -100,7 +90,7 @@ public class LABToXYZ extends Algorithm {
 		double fx = fy + A / 500.0;
 		double fz = fy - B / 200.0;
 
-		double[] xyz = new double[3];
+		double[] xyz = colour;
 
 		if (fy > delta)
 			xyz[1] = Yn * Math.pow(fy, 3);
@@ -116,8 +106,6 @@ public class LABToXYZ extends Algorithm {
 			xyz[2] = Zn * Math.pow(fz, 3);
 		else
 			xyz[2] = (fz - 16.0 / 116.0) * 3 * delta * delta * Zn;
-
-		return xyz;
 	}
 
 	/**
@@ -2,7 +2,6 @@ package fr.unistra.pelican.algorithms.conversion;
 
 import fr.unistra.pelican.Algorithm;
 import fr.unistra.pelican.AlgorithmException;
-import fr.unistra.pelican.DoubleImage;
 import fr.unistra.pelican.Image;
 
 /**
@@ -47,39 +46,14 @@ public class LCHToLAB extends Algorithm {
 	 * @see fr.unistra.pelican.Algorithm#launch()
 	 */
 	public void launch() throws AlgorithmException {
-		int xdim = input.getXDim();
-		int ydim = input.getYDim();
-		int zdim = input.getZDim();
-		int tdim = input.getTDim();
-		int bdim = input.getBDim();
-
-		if (bdim != 3)
+		if (input.getBDim() != 3)
 			throw new AlgorithmException(
 					"The input must be a tristumulus XYZ image");
 
-		output = new DoubleImage(xdim, ydim, zdim, tdim, bdim);
-		this.output.setMask( this.input.getMask() );
-		output.setColor(true);
-
-		for (int x = 0; x < xdim; x++) {
-			for (int y = 0; y < ydim; y++) {
-				for (int z = 0; z < zdim; z++) {
-					for (int t = 0; t < tdim; t++) {
-						double L = input.getPixelXYZTBDouble(x, y, z, t, 0);
-						double C = input.getPixelXYZTBDouble(x, y, z, t, 1);
-						double H = input.getPixelXYZTBDouble(x, y, z, t, 2);
-
-						double[] lab = convert(L, C, H);
-
-						output.setPixelXYZTBDouble(x, y, z, t, 0, lab[0]);
-						output.setPixelXYZTBDouble(x, y, z, t, 1, lab[1]);
-						output.setPixelXYZTBDouble(x, y, z, t, 2, lab[2]);
-					}
-				}
-			}
-		}
+		output = ColourTransform.LCH_TO_LAB.convert(input);
 	}
 
+
 	/**
 	 * converts a triplet of lch into cielab
 	 * 
@@ -89,7 +63,23 @@ public class LCHToLAB extends Algorithm {
 	 * @return the array of lab values
 	 */
 	public static double[] convert(double l, double c, double h) {
-		double[] lab = new double[3];
+		double[] lab = { l, c, h };
+		convert(lab);
+		return lab;
+	}
+
+	/**
+	 * converts in place a triplet of lch into cielab
+	 * 
+	 * @param colour
+	 *            the lch values, replaced by the lab ones
+	 */
+	public static void convert(double[] colour) {
+		double l = colour[0];
+		double c = colour[1];
+		double h = colour[2];
+
+		double[] lab = colour;
 
 		lab[0] = l;
 
@@ -97,8 +87,6 @@ public class LCHToLAB extends Algorithm {
 
 		lab[1] = Math.cos(h) * c;
 		lab[2] = Math.sin(h) * c;
-
-		return lab;
 	}
 
 	/**
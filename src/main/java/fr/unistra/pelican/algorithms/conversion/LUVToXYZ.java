@@ -4,6 +4,7 @@ import fr.unistra.pelican.Algorithm;
 import fr.unistra.pelican.AlgorithmException;
 import fr.unistra.pelican.DoubleImage;
 import fr.unistra.pelican.Image;
+import fr.unistra.pelican.util.Parallel;
 
 /**
  * This class realizes the transformation of a tristumulus double valued CIE LUV
@@ -46,10 +47,10 @@ public class LUVToXYZ extends Algorithm {
 	 * @see fr.unistra.pelican.Algorithm#launch()
 	 */
 	public void launch() throws AlgorithmException {
-		int xdim = input.getXDim();
-		int ydim = input.getYDim();
-		int zdim = input.getZDim();
-		int tdim = input.getTDim();
+		final int xdim = input.getXDim();
+		final int ydim = input.getYDim();
+		final int zdim = input.getZDim();
+		final int tdim = input.getTDim();
 		int bdim = input.getBDim();
 
 		if (bdim != 3)
@@ -61,14 +62,17 @@ public class LUVToXYZ extends Algorithm {
 		output.setColor(true);
 
 		// white point
-		double Un = 0.197839; // calculated like Up and Vn for the white
+		final double Un = 0.197839; // calculated like Up and Vn for the white
 		// Xn,Yn,Zn
-		double Vn = 0.468342;
-
-		for (int x = 0; x < xdim; x++) {
-			for (int y = 0; y < ydim; y++) {
-				for (int z = 0; z < zdim; z++) {
-					for (int t = 0; t < tdim; t++) {
+		final double Vn = 0.468342;
+
+		Parallel.forLines(output, ydim * zdim * tdim, new Parallel.Range() {
+			public void run(int from, int to) {
+				for (int line = from; line < to; line++) {
+					int y = line % ydim;
+					int z = line / ydim % zdim;
+					int t = line / (ydim * zdim);
+					for (int x = 0; x < xdim; x++) {
 						double L = input.getPixelXYZTBDouble(x, y, z, t, 0);
 						double U = input.getPixelXYZTBDouble(x, y, z, t, 1);
 						double V = input.getPixelXYZTBDouble(x, y, z, t, 2);
@@ -88,7 +92,7 @@ public class LUVToXYZ extends Algorithm {
 					}
 				}
 			}
-		}
+		});
 	}
 
 	/**
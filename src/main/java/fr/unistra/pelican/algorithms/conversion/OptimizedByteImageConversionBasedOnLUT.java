@@ -4,6 +4,7 @@ import fr.unistra.pelican.Algorithm;
 import fr.unistra.pelican.AlgorithmException;
 import fr.unistra.pelican.ByteImage;
 import fr.unistra.pelican.PelicanException;
+import fr.unistra.pelican.util.Parallel;
 import fr.unistra.pelican.util.largeImages.LargeImageInterface;
 import fr.unistra.pelican.util.lut.ThreeBandByteConversionLUT;
 
@@ -38,29 +39,30 @@ public class OptimizedByteImageConversionBasedOnLUT extends Algorithm{
 	
 	@Override
 	public void launch() throws AlgorithmException {
+		if (input.getBDim() != 3)
+			throw new AlgorithmException("The input must be a three band image");
 		output = input.copyImage(false);
-		byte[][][] lut0=lut.lut0;
-		byte[][][] lut1=lut.lut1;
-		byte[][][] lut2=lut.lut2;
+		final byte[] table=lut.getTable();
 		
 		if(input instanceof LargeImageInterface)
 		{
 			throw new PelicanException("LargeImage are not managed yet !");
 		} else
 		{
-			byte[] origin = input.getPixels();
-			byte[] newValues = output.getPixels();
-			int origin0,origin1,origin2;
-			for(int i=0;i<origin.length;i=i+3)
-			{
-				origin0 = origin[i]+128;
-				origin1 = origin[i+1]+128;
-				origin2 = origin[i+2]+128;
-				newValues[i]=lut0[origin0][origin1][origin2];
-				newValues[i+1]=lut1[origin0][origin1][origin2];
-				newValues[i+2]=lut2[origin0][origin1][origin2];
-			}
-			output.setPixelsUnsafe(newValues);
+			final byte[] origin = input.getPixels();
+			final byte[] newValues = output.getPixels();
+			// the three bands of a pixel are converted together
+			Parallel.forItems(origin.length/3, origin.length, new Parallel.Range() {
+				public void run(int from, int to) {
+					for(int i=3*from;i<3*to;i=i+3)
+					{
+						int index=ThreeBandByteConversionLUT.index(origin[i]+128, origin[i+1]+128, origin[i+2]+128);
+						newValues[i]=table[index];
+						newValues[i+1]=table[index+1];
+						newValues[i+2]=table[index+2];
+					}
+				}
+			});
 		}		
 	}
 	
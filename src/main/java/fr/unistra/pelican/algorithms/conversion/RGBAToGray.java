@@ -1,6 +1,7 @@
 package fr.unistra.pelican.algorithms.conversion;
 
 import fr.unistra.pelican.*;
+import fr.unistra.pelican.util.Parallel;
 
 /**
  *	Transforms a quadristumulus RGBA image into a graylevel image using the formula : 
@@ -33,10 +34,10 @@ public class RGBAToGray extends Algorithm {
 
 	public void launch() throws AlgorithmException { 
 
-		int xdim = this.input.getXDim();
-		int ydim = this.input.getYDim();
-		int zdim = this.input.getZDim();
-		int tdim = this.input.getTDim();
+		final int xdim = this.input.getXDim();
+		final int ydim = this.input.getYDim();
+		final int zdim = this.input.getZDim();
+		final int tdim = this.input.getTDim();
 		int bdim = this.input.getBDim();
 
 		if ( bdim != 4 && bdim != 3 ) 
@@ -46,17 +47,23 @@ public class RGBAToGray extends Algorithm {
 		this.output.setMask( this.input.getMask() );
 		this.output.setColor( false );
 
-		for ( int x = 0 ; x < xdim ; x++ ) 
-		for ( int y = 0 ; y < ydim ; y++ ) 
-		for ( int z = 0 ; z < zdim ; z++ ) 
-		for ( int t = 0 ; t < tdim ; t++ ) { 
-
-			double R = this.input.getPixelXYZTBDouble( x,y,z,t,0 );
-			double G = this.input.getPixelXYZTBDouble( x,y,z,t,1 );
-			double B = this.input.getPixelXYZTBDouble( x,y,z,t,2 );
-			double gray = 0.299 * R + 0.587 * G + 0.114 * B;
-			output.setPixelXYZTDouble( x,y,z,t, gray );
-		}
+		Parallel.forLines( output, ydim * zdim * tdim, new Parallel.Range() {
+			public void run( int from, int to ) {
+				for ( int line = from ; line < to ; line++ ) {
+					int y = line % ydim;
+					int z = line / ydim % zdim;
+					int t = line / ( ydim * zdim );
+					for ( int x = 0 ; x < xdim ; x++ ) { 
+
+						double R = input.getPixelXYZTBDouble( x,y,z,t,0 );
+						double G = input.getPixelXYZTBDouble( x,y,z,t,1 );
+						double B = input.getPixelXYZTBDouble( x,y,z,t,2 );
+						double gray = 0.299 * R + 0.587 * G + 0.114 * B;
+						output.setPixelXYZTDouble( x,y,z,t, gray );
+					}
+				}
+			}
+		});
 	}
 
 	public static Image exec( Image input ) { 
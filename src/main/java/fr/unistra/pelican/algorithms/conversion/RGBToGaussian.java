@@ -4,6 +4,7 @@ import fr.unistra.pelican.Algorithm;
 import fr.unistra.pelican.AlgorithmException;
 import fr.unistra.pelican.DoubleImage;
 import fr.unistra.pelican.Image;
+import fr.unistra.pelican.util.Parallel;
 
 
 
@@ -44,10 +45,10 @@ public class RGBToGaussian extends Algorithm {
 
 	public void launch() throws AlgorithmException {
 
-		int xdim = input.getXDim();
-		int ydim = input.getYDim();
-		int zdim = input.getZDim();
-		int tdim = input.getTDim();
+		final int xdim = input.getXDim();
+		final int ydim = input.getYDim();
+		final int zdim = input.getZDim();
+		final int tdim = input.getTDim();
 		int bdim = input.getBDim();
 
 		if (bdim != 3) throw new AlgorithmException( "The input must be a tristumulus RGB image" );
@@ -56,30 +57,32 @@ public class RGBToGaussian extends Algorithm {
 		this.output.setMask( this.input.getMask() );
 		output.setColor( true );
 
-		for ( int x = 0 ; x < xdim ; x++ ) { 
-			for ( int y = 0 ; y < ydim ; y++) { 
-				for ( int z = 0 ; z < zdim ; z++) { 
-					for ( int t = 0 ; t < tdim ; t++) { 
-
-						int R = input.getPixelXYZTBByte( x,y,z,t, 0 );
-						int G = input.getPixelXYZTBByte( x,y,z,t, 1 );
-						int B = input.getPixelXYZTBByte( x,y,z,t, 2 );
-
-//						double I = ( R+G+B ) / ( 3.0*255.0 );
-//						double YB = ( R+G-2.0*B ) / ( 4.0*255.0 );
-//						double RG = ( R-2.0*G+B ) / ( 4.0*255.0 );
-
-						double  I = 0.06*R + 0.63*G + 0.27*B;
-						double YB = 0.30*R + 0.04*G - 0.35*B;
-						double RG = 0.34*R - 0.60*G + 0.17*B;
-
-						output.setPixelXYZTBDouble( x,y,z,t, 0,  I );
-						output.setPixelXYZTBDouble( x,y,z,t, 1, YB );
-						output.setPixelXYZTBDouble( x,y,z,t, 2, RG );
+		Parallel.forLines(output, ydim * zdim * tdim, new Parallel.Range() {
+			public void run(int from, int to) {
+				for (int line = from; line < to; line++) {
+					int y = line % ydim;
+					int z = line / ydim % zdim;
+					int t = line / (ydim * zdim);
+					for (int x = 0; x < xdim; x++) {
+												int R = input.getPixelXYZTBByte( x,y,z,t, 0 );
+												int G = input.getPixelXYZTBByte( x,y,z,t, 1 );
+												int B = input.getPixelXYZTBByte( x,y,z,t, 2 );
+
+						//						double I = ( R+G+B ) / ( 3.0*255.0 );
+						//						double YB = ( R+G-2.0*B ) / ( 4.0*255.0 );
+						//						double RG = ( R-2.0*G+B ) / ( 4.0*255.0 );
+
+												double  I = 0.06*R + 0.63*G + 0.27*B;
+												double YB = 0.30*R + 0.04*G - 0.35*B;
+												double RG = 0.34*R - 0.60*G + 0.17*B;
+
+												output.setPixelXYZTBDouble( x,y,z,t, 0,  I );
+												output.setPixelXYZTBDouble( x,y,z,t, 1, YB );
+												output.setPixelXYZTBDouble( x,y,z,t, 2, RG );
 					}
 				}
 			}
-		}
+		});
 	}
 
 	/**
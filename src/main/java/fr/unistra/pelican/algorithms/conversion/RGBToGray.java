@@ -4,6 +4,7 @@ import fr.unistra.pelican.Algorithm;
 import fr.unistra.pelican.AlgorithmException;
 import fr.unistra.pelican.ByteImage;
 import fr.unistra.pelican.Image;
+import fr.unistra.pelican.util.Parallel;
 
 /**
  * This class realizes the transformation of a tristumulus RGB image into a
@@ -60,19 +61,17 @@ public class RGBToGray extends Algorithm {
 		this.output.setMask( this.input.getMask() );
 		output.setColor(false);
 
-		for (int x = 0; x < xdim; x++) {
-			for (int y = 0; y < ydim; y++) {
-				for (int z = 0; z < zdim; z++) {
-					for (int t = 0; t < tdim; t++) {
-						double R = input.getPixelXYZTBDouble(x, y, z, t, 0);
-						double G = input.getPixelXYZTBDouble(x, y, z, t, 1);
-						double B = input.getPixelXYZTBDouble(x, y, z, t, 2);
-						double g = 0.299 * R + 0.587 * G + 0.114 * B;
-						output.setPixelXYZTBDouble(x, y, z, t, 0, g);
-					}
+		Parallel.forPixels(output, new Parallel.Range() {
+			public void run(int from, int to) {
+				for (int p = from; p < to; p++) {
+					double R = input.getPixelDouble(3 * p);
+					double G = input.getPixelDouble(3 * p + 1);
+					double B = input.getPixelDouble(3 * p + 2);
+					double g = 0.299 * R + 0.587 * G + 0.114 * B;
+					output.setPixelDouble(p, g);
 				}
 			}
-		}
+		});
 	}
 
 	/**
@@ -2,7 +2,6 @@ package fr.unistra.pelican.algorithms.conversion;
 
 import fr.unistra.pelican.Algorithm;
 import fr.unistra.pelican.AlgorithmException;
-import fr.unistra.pelican.DoubleImage;
 import fr.unistra.pelican.Image;
 
 /**
@@ -50,85 +49,73 @@ public class RGBToHSL extends Algorithm {
 	 * @see fr.unistra.pelican.Algorithm#launch()
 	 */
 	public void launch() throws AlgorithmException {
-		int xdim = input.getXDim();
-		int ydim = input.getYDim();
-		int zdim = input.getZDim();
-		int tdim = input.getTDim();
-		int bdim = input.getBDim();
-
-		if (bdim != 3)
+		if (input.getBDim() != 3)
 			throw new AlgorithmException(
 					"The input image must be a tristumulus RGB image");
 
-		output = new DoubleImage(xdim, ydim, zdim, tdim, bdim);
-		this.output.setMask( this.input.getMask() );
-		output.setColor(true);
-
-		for (int x = 0; x < xdim; x++) {
-			for (int y = 0; y < ydim; y++) {
-				for (int z = 0; z < zdim; z++) {
-					for (int t = 0; t < tdim; t++) {
-						int R = input.getPixelXYZTBByte(x, y, z, t, 0);
-						int G = input.getPixelXYZTBByte(x, y, z, t, 1);
-						int B = input.getPixelXYZTBByte(x, y, z, t, 2);
-
-						// normalise to [0,1]
-						double rN = R * 0.003921;
-						double gN = G * 0.003921;
-						double bN = B * 0.003921;
-
-						double H, S, L;
-
-						H = S = L = 0.0;
-
-						double min = rN;
-						if (gN < min)
-							min = gN;
-						if (bN < min)
-							min = bN;
-
-						double max = rN;
-						if (gN > max)
-							max = gN;
-						if (bN > max)
-							max = bN;
-
-						double delta = max - min;
-
-						L = (max + min) * 0.5;
-
-						if (delta >= 0.0 && delta <= 0.0) {
-							H = S = 0.0;
-						} else {
-							if (L < 0.5)
-								S = delta / (max + min);
-							else
-								S = delta / (2 - max - min);
-						}
-
-						double _R = (((max - rN) / 6.0) + delta * 0.5) / delta;
-						double _G = (((max - gN) / 6.0) + delta * 0.5) / delta;
-						double _B = (((max - bN) / 6.0) + delta * 0.5) / delta;
-
-						if (rN == max)
-							H = _B - _G;
-						else if (gN == max)
-							H = 1.0 / 3.0 + _R - _B;
-						else if (bN == max)
-							H = 2.0 / 3.0 + _G - _R;
-
-						if (H < 0.0)
-							H += 1.0;
-						if (H > 1.0)
-							H -= 1.0;
-
-						output.setPixelXYZTBDouble(x, y, z, t, 0, H);
-						output.setPixelXYZTBDouble(x, y, z, t, 1, S);
-						output.setPixelXYZTBDouble(x, y, z, t, 2, L);
-					}
-				}
-			}
+		output = ColourTransform.RGB_TO_HSL.convert(input);
+	}
+
+	/**
+	 * converts in place a triplet of rgb in [0,255] into hsl
+	 * 
+	 * @param colour
+	 *            the rgb values, replaced by the hsl ones
+	 */
+	public static void convert(double[] colour) {
+		// normalise to [0,1]
+		double rN = colour[0] * 0.003921;
+		double gN = colour[1] * 0.003921;
+		double bN = colour[2] * 0.003921;
+
+		double H, S, L;
+
+		H = S = L = 0.0;
+
+		double min = rN;
+		if (gN < min)
+			min = gN;
+		if (bN < min)
+			min = bN;
+
+		double max = rN;
+		if (gN > max)
+			max = gN;
+		if (bN > max)
+			max = bN;
+
+		double delta = max - min;
+
+		L = (max + min) * 0.5;
+
+		if (delta >= 0.0 && delta <= 0.0) {
+			H = S = 0.0;
+		} else {
+			if (L < 0.5)
+				S = delta / (max + min);
+			else
+				S = delta / (2 - max - min);
 		}
+
+		double _R = (((max - rN) / 6.0) + delta * 0.5) / delta;
+		double _G = (((max - gN) / 6.0) + delta * 0.5) / delta;
+		double _B = (((max - bN) / 6.0) + delta * 0.5) / delta;
+
+		if (rN == max)
+			H = _B - _G;
+		else if (gN == max)
+			H = 1.0 / 3.0 + _R - _B;
+		else if (bN == max)
+			H = 2.0 / 3.0 + _G - _R;
+
+		if (H < 0.0)
+			H += 1.0;
+		if (H > 1.0)
+			H -= 1.0;
+
+		colour[0] = H;
+		colour[1] = S;
+		colour[2] = L;
 	}
 
 	/**
@@ -51,72 +51,69 @@ public class RGBToHSV extends Algorithm {
 	 * @see fr.unistra.pelican.Algorithm#launch()
 	 */
 	public void launch() throws AlgorithmException {
-		int size = input.size();
-
 		if (input.getBDim() != 3)
 			throw new AlgorithmException(
 					"The input must be a tristumulus RGB image");
 
-		output = input.newDoubleImage();
-		this.output.setMask( this.input.getMask() );
-		output.setColor(true);
-
-		for (int i = 0; i < size; i=i+3) {			
-			int R = input.getPixelByte(i);
-			int G = input.getPixelByte(i+1);
-			int B = input.getPixelByte(i+2);
-
-			// normalise to [0,1]
-			double rN = R * 0.003921;
-			double gN = G * 0.003921;
-			double bN = B * 0.003921;
+		output = ColourTransform.RGB_TO_HSV.convert(input);
+		if (scaleToByte)
+			output=scaleToByte(output);
+	}
 
-			double H, S, V;
+	/**
+	 * converts in place a triplet of rgb in [0,255] into hsv
+	 * 
+	 * @param colour
+	 *            the rgb values, replaced by the hsv ones
+	 */
+	public static void convert(double[] colour) {
+		// normalise to [0,1]
+		double rN = colour[0] * 0.003921;
+		double gN = colour[1] * 0.003921;
+		double bN = colour[2] * 0.003921;
 
-			double min = rN;
-			if (gN < min)
-				min = gN;
-			if (bN < min)
-				min = bN;
+		double H, S, V;
 
-			double max = rN;
-			if (gN > max)
-				max = gN;
-			if (bN > max)
-				max = bN;
+		double min = rN;
+		if (gN < min)
+			min = gN;
+		if (bN < min)
+			min = bN;
 
-			S = H = 0.0;
-			V = max;
+		double max = rN;
+		if (gN > max)
+			max = gN;
+		if (bN > max)
+			max = bN;
 
-			double delta = max - min;
+		S = H = 0.0;
+		V = max;
 
-			if (max != 0 && delta != 0.0) {
-				S = delta / max;
+		double delta = max - min;
 
-				if (rN == max)
-					H = 60 * (gN - bN) / delta;
+		if (max != 0 && delta != 0.0) {
+			S = delta / max;
 
-				else if (gN == max)
-					H = 60 * (bN - rN) / delta + 120;
+			if (rN == max)
+				H = 60 * (gN - bN) / delta;
 
-				else
-					H = 60 * (rN - gN) / delta + 240; // bN == max
+			else if (gN == max)
+				H = 60 * (bN - rN) / delta + 120;
 
-					if (H < 0.0)
-						H += 360;
-					if (H > 360)
-						H -= 360;
+			else
+				H = 60 * (rN - gN) / delta + 240; // bN == max
 
-					H = H / 360.0;
-			}
+			if (H < 0.0)
+				H += 360;
+			if (H > 360)
+				H -= 360;
 
-			output.setPixelDouble(i, H);
-			output.setPixelDouble(i+1, S);
-			output.setPixelDouble(i+2, V);
+			H = H / 360.0;
 		}
-		if (scaleToByte)
-			output=scaleToByte(output);
 
+		colour[0] = H;
+		colour[1] = S;
+		colour[2] = V;
 	}
 
 	private static Image HSVToVSH(Image hsv) {
@@ -2,7 +2,6 @@ package fr.unistra.pelican.algorithms.conversion;
 
 import fr.unistra.pelican.Algorithm;
 import fr.unistra.pelican.AlgorithmException;
-import fr.unistra.pelican.DoubleImage;
 import fr.unistra.pelican.Image;
 
 /**
@@ -50,39 +49,14 @@ public class RGBToHSY extends Algorithm {
 	 * @see fr.unistra.pelican.Algorithm#launch()
 	 */
 	public void launch() throws AlgorithmException {
-		int xdim = input.getXDim();
-		int ydim = input.getYDim();
-		int zdim = input.getZDim();
-		int tdim = input.getTDim();
-		int bdim = input.getBDim();
-
-		if (bdim != 3)
+		if (input.getBDim() != 3)
 			throw new AlgorithmException(
 					"The input must be a tristumulus RGB image");
 
-		output = new DoubleImage(xdim, ydim, zdim, tdim, bdim);
-		this.output.setMask( this.input.getMask() );
-		output.setColor(true);
-
-		for (int x = 0; x < xdim; x++) {
-			for (int y = 0; y < ydim; y++) {
-				for (int z = 0; z < zdim; z++) {
-					for (int t = 0; t < tdim; t++) {
-						int R = input.getPixelXYZTBByte(x, y, z, t, 0);
-						int G = input.getPixelXYZTBByte(x, y, z, t, 1);
-						int B = input.getPixelXYZTBByte(x, y, z, t, 2);
-
-						double[] hsy = convert(R, G, B);
-
-						output.setPixelXYZTBDouble(x, y, z, t, 0, hsy[0]);
-						output.setPixelXYZTBDouble(x, y, z, t, 1, hsy[1]);
-						output.setPixelXYZTBDouble(x, y, z, t, 2, hsy[2]);
-					}
-				}
-			}
-		}
+		output = ColourTransform.RGB_TO_HSY.convert(input);
 	}
 
+
 	/**
 	 * converts a triplet of rgb in [0,255] into hsy
 	 * 
@@ -92,12 +66,28 @@ public class RGBToHSY extends Algorithm {
 	 * @return the array of hsy values
 	 */
 	public static double[] convert(int r, int g, int b) {
+		double[] hsy = { r, g, b };
+		convert(hsy);
+		return hsy;
+	}
+
+	/**
+	 * converts in place a triplet of rgb in [0,255] into hsy
+	 * 
+	 * @param colour
+	 *            the rgb values, replaced by the hsy ones
+	 */
+	public static void convert(double[] colour) {
+		double r = colour[0];
+		double g = colour[1];
+		double b = colour[2];
+
 		// normalise to [0,1]
 		double rN = r * 0.003921;
 		double gN = g * 0.003921;
 		double bN = b * 0.003921;
 
-		double[] hsy = new double[3];
+		double[] hsy = colour;
 
 		hsy[0] = hsy[1] = hsy[2] = 0.0;
 
@@ -126,8 +116,6 @@ public class RGBToHSY extends Algorithm {
 
 		// H to [0,1]
 		hsy[0] = hsy[0] / (2.0 * Math.PI);
-
-		return hsy;
 	}
 
 	/**
@@ -2,7 +2,6 @@ package fr.unistra.pelican.algorithms.conversion;
 
 import fr.unistra.pelican.Algorithm;
 import fr.unistra.pelican.AlgorithmException;
-import fr.unistra.pelican.DoubleImage;
 import fr.unistra.pelican.Image;
 
 public class RGBToI1I2I3 extends Algorithm {
@@ -19,44 +18,28 @@ public class RGBToI1I2I3 extends Algorithm {
 	}
 
 	public void launch() throws AlgorithmException {
-		int xdim = input.getXDim();
-		int ydim = input.getYDim();
-		int zdim = input.getZDim();
-		int tdim = input.getTDim();
-		int bdim = input.getBDim();
-
-		if (bdim != 3)
+		if (input.getBDim() != 3)
 			throw new AlgorithmException(
 					"The input must be a tristumulus RGB image");
 
-		output = new DoubleImage(xdim, ydim, zdim, tdim, bdim);
-		this.output.setMask( this.input.getMask() );
-		output.setColor(true);
-
-		for (int x = 0; x < xdim; x++) {
-			for (int y = 0; y < ydim; y++) {
-				for (int z = 0; z < zdim; z++) {
-					for (int t = 0; t < tdim; t++) {
-						int R = input.getPixelXYZTBByte(x, y, z, t, 0);
-						int G = input.getPixelXYZTBByte(x, y, z, t, 1);
-						int B = input.getPixelXYZTBByte(x, y, z, t, 2);
-
-						// normalise to [0,1]
-						double rN = R * 0.003921;
-						double gN = G * 0.003921;
-						double bN = B * 0.003921;
-
-						double I1 = (rN + gN + bN) / 3.0;
-						double I2 = 0.5 * (rN - bN) + 0.5;
-						double I3 = 0.25 * (2 * gN - rN - bN) + 0.5;
+		output = ColourTransform.RGB_TO_I1I2I3.convert(input);
+	}
 
-						output.setPixelXYZTBDouble(x, y, z, t, 0, I1);
-						output.setPixelXYZTBDouble(x, y, z, t, 1, I2);
-						output.setPixelXYZTBDouble(x, y, z, t, 2, I3);
-					}
-				}
-			}
-		}
+	/**
+	 * converts in place a triplet of rgb in [0,255] into i1i2i3
+	 * 
+	 * @param colour
+	 *            the rgb values, replaced by the i1i2i3 ones
+	 */
+	public static void convert(double[] colour) {
+		// normalise to [0,1]
+		double rN = colour[0] * 0.003921;
+		double gN = colour[1] * 0.003921;
+		double bN = colour[2] * 0.003921;
+
+		colour[0] = (rN + gN + bN) / 3.0;
+		colour[1] = 0.5 * (rN - bN) + 0.5;
+		colour[2] = 0.25 * (2 * gN - rN - bN) + 0.5;
 	}
 
 	public static Image exec(Image input) {
@@ -4,6 +4,7 @@ import fr.unistra.pelican.Algorithm;
 import fr.unistra.pelican.DoubleImage;
 import fr.unistra.pelican.Image;
 import fr.unistra.pelican.PelicanException;
+import fr.unistra.pelican.util.Parallel;
 
 
 /**
@@ -51,10 +52,10 @@ public class RGBToIHLS extends Algorithm {
 	 */
 	public void launch() throws PelicanException 
 	{
-		int xdim = input.getXDim();
-		int ydim = input.getYDim();
-		int zdim = input.getZDim();
-		int tdim = input.getTDim();
+		final int xdim = input.getXDim();
+		final int ydim = input.getYDim();
+		final int zdim = input.getZDim();
+		final int tdim = input.getTDim();
 		int bdim = input.getBDim();
 
 		if (bdim != 3)
@@ -62,11 +63,13 @@ public class RGBToIHLS extends Algorithm {
 		
 		output = input.newDoubleImage();
 		
-		for(int t=0;t<tdim;t++)
-			for(int z=0;z<zdim;z++)
-				for(int y=0;y<ydim;y++)
-					for(int x=0;x<xdim;x++)
-					{
+		Parallel.forLines(output, ydim * zdim * tdim, new Parallel.Range() {
+			public void run(int from, int to) {
+				for (int line = from; line < to; line++) {
+					int y = line % ydim;
+					int z = line / ydim % zdim;
+					int t = line / (ydim * zdim);
+					for (int x = 0; x < xdim; x++) {
 						double R = input.getPixelXYZTBDouble(x, y, z, t, 0);
 						double G = input.getPixelXYZTBDouble(x, y, z, t, 1);
 						double B = input.getPixelXYZTBDouble(x, y, z, t, 2);
@@ -76,7 +79,10 @@ public class RGBToIHLS extends Algorithm {
 						output.setPixelXYZTBDouble(x, y, z, t, 0, ihls[0]);
 						output.setPixelXYZTBDouble(x, y, z, t, 1, ihls[1]);
 						output.setPixelXYZTBDouble(x, y, z, t, 2, ihls[2]);
-					}		
+					}
+				}
+			}
+		});		
 	}
 
 	/**
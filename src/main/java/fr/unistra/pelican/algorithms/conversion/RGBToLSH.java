@@ -1,6 +1,7 @@
 package fr.unistra.pelican.algorithms.conversion;
 
 import fr.unistra.pelican.*;
+import fr.unistra.pelican.util.Parallel;
 
 
 
@@ -40,16 +41,20 @@ public class RGBToLSH extends Algorithm {
 		this.output.setMask( this.input.getMask() );
 		this.output.setColor(true);
 		
-		for(int i=0;i<size;i=i+3)
-		{
-			double R = this.input.getPixelDouble( i );
-			double G = this.input.getPixelDouble( i+1 );
-			double B = this.input.getPixelDouble( i+2 );
-			double[] lsh = convert( R,G,B );
-			this.output.setPixelDouble( i, lsh[0] );
-			this.output.setPixelDouble( i+1, lsh[1] );
-			this.output.setPixelDouble( i+2, lsh[2] );
-		}
+		Parallel.forLines( output, size / 3, new Parallel.Range() {
+			public void run( int from, int to ) {
+				for(int i=from*3;i<to*3;i=i+3)
+				{
+					double R = input.getPixelDouble( i );
+					double G = input.getPixelDouble( i+1 );
+					double B = input.getPixelDouble( i+2 );
+					double[] lsh = convert( R,G,B );
+					output.setPixelDouble( i, lsh[0] );
+					output.setPixelDouble( i+1, lsh[1] );
+					output.setPixelDouble( i+2, lsh[2] );
+				}
+			}
+		});
 		if (scaleToByte)
 			output=scaleToByte(output);
 	}
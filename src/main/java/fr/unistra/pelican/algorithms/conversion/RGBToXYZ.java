@@ -3,6 +3,7 @@ package fr.unistra.pelican.algorithms.conversion;
 import fr.unistra.pelican.Algorithm;
 import fr.unistra.pelican.AlgorithmException;
 import fr.unistra.pelican.Image;
+import fr.unistra.pelican.util.lut.ThreeBandGridLUT;
 
 /**
  * This class realizes the transformation of a tristumulus RGB image into a
@@ -14,6 +15,9 @@ import fr.unistra.pelican.Image;
  *	- input's mask becomes output's mask.
  *	- no modification on color calculation.
  * 
+ *	An optional grid LUT (see ThreeBandGridLUT.getRGBToXYZLUT) converts the
+ *	pixels by interpolation, in parallel.
+ * 
  * @author Erchan Aptoula, Jonathan Weber
  * 
  */
@@ -30,6 +34,11 @@ public class RGBToXYZ extends Algorithm {
 	 */
 	public Image output;
 
+	/**
+	 * Optional grid LUT, the pixels being read with getPixelDouble
+	 */
+	public ThreeBandGridLUT lut = null;
+
 	/**
 	 * Constructor
 	 * 
@@ -38,6 +47,7 @@ public class RGBToXYZ extends Algorithm {
 
 		super();
 		super.inputs = "input";
+		super.options = "lut";
 		super.outputs = "output";
 		
 	}
@@ -48,29 +58,18 @@ public class RGBToXYZ extends Algorithm {
 	 * @see fr.unistra.pelican.Algorithm#launch()
 	 */
 	public void launch() throws AlgorithmException {
-		int size = input.size();
-
 		if (input.getBDim() != 3)
 			throw new AlgorithmException(
 					"The input must be a tristumulus RGB image");
 
-		output = input.newDoubleImage();
-		this.output.setMask( this.input.getMask() );
-		output.setColor(true);
-		
-		for(int i=0;i<size;i=i+3)
-		{
-			int R = input.getPixelByte(i);
-			int G = input.getPixelByte(i+1);
-			int B = input.getPixelByte(i+2);
-
-			double[] xyz = convert(R, G, B);
-
-			output.setPixelDouble(i, xyz[0]);
-			output.setPixelDouble(i+1, xyz[1]);
-			output.setPixelDouble(i+2, xyz[2]);
-			
-		}		
+		if (lut != null) {
+			output = lut.convert(input);
+			this.output.setMask( this.input.getMask() );
+			output.setColor(true);
+			return;
+		}
+
+		output = ColourTransform.RGB_TO_XYZ.convert(input);
 	}
 
 	/**
@@ -82,18 +81,38 @@ public class RGBToXYZ extends Algorithm {
 	 * @return the array of xyz values
 	 */
 	public static double[] convert(int r, int g, int b) {
-		// normalise to [0,1]
-		double rN = r * 0.003921;
-		double gN = g * 0.003921;
-		double bN = b * 0.003921;
+		return convert((double) r, (double) g, (double) b);
+	}
 
-		double[] xyz = new double[3];
+	/**
+	 * converts a triplet of rgb in [0,255], not necessarily integers, into xyz
+	 * 
+	 * @param r
+	 * @param g
+	 * @param b
+	 * @return the array of xyz values
+	 */
+	public static double[] convert(double r, double g, double b) {
+		double[] xyz = { r, g, b };
+		convert(xyz);
+		return xyz;
+	}
 
-		xyz[0] = 0.412453 * rN + 0.357580 * gN + 0.180423 * bN;
-		xyz[1] = 0.212671 * rN + 0.715160 * gN + 0.072169 * bN;
-		xyz[2] = 0.019334 * rN + 0.119193 * gN + 0.950227 * bN;
+	/**
+	 * converts in place a triplet of rgb in [0,255] into xyz
+	 * 
+	 * @param colour
+	 *            the rgb values, replaced by the xyz ones
+	 */
+	public static void convert(double[] colour) {
+		// normalise to [0,1]
+		double rN = colour[0] * 0.003921;
+		double gN = colour[1] * 0.003921;
+		double bN = colour[2] * 0.003921;
 
-		return xyz;
+		colour[0] = 0.412453 * rN + 0.357580 * gN + 0.180423 * bN;
+		colour[1] = 0.212671 * rN + 0.715160 * gN + 0.072169 * bN;
+		colour[2] = 0.019334 * rN + 0.119193 * gN + 0.950227 * bN;
 	}
 
 	/**
@@ -109,4 +128,18 @@ public class RGBToXYZ extends Algorithm {
 	public static Image exec(Image input) {
 		return (Image) new RGBToXYZ().process(input);
 	}
+
+	/**
+	 * Converts a tristumulus RGB image into a double valued CIE XYZ image with
+	 * a grid LUT.
+	 * 
+	 * @param input
+	 *            Tristumulus RGB image.
+	 * @param lut
+	 *            grid LUT of the conversion.
+	 * @return A double valued CIE XYZ image.
+	 */
+	public static Image exec(Image input, ThreeBandGridLUT lut) {
+		return (Image) new RGBToXYZ().process(input, lut);
+	}
 }
\ No newline at end of file
@@ -2,7 +2,6 @@ package fr.unistra.pelican.algorithms.conversion;
 
 import fr.unistra.pelican.Algorithm;
 import fr.unistra.pelican.AlgorithmException;
-import fr.unistra.pelican.DoubleImage;
 import fr.unistra.pelican.Image;
 
 /**
@@ -49,46 +48,31 @@ public class RGBToYIQ extends Algorithm {
 	 * @see fr.unistra.pelican.Algorithm#launch()
 	 */
 	public void launch() throws AlgorithmException {
-		int xdim = input.getXDim();
-		int ydim = input.getYDim();
-		int zdim = input.getZDim();
-		int tdim = input.getTDim();
-		int bdim = input.getBDim();
-
-		if (bdim != 3)
+		if (input.getBDim() != 3)
 			throw new AlgorithmException(
 					"The input must be a tristumulus RGB image");
 
-		output = new DoubleImage(xdim, ydim, zdim, tdim, bdim);
-		this.output.setMask( this.input.getMask() );
-		output.setColor(true);
-
-		for (int x = 0; x < xdim; x++) {
-			for (int y = 0; y < ydim; y++) {
-				for (int z = 0; z < zdim; z++) {
-					for (int t = 0; t < tdim; t++) {
-						int R = input.getPixelXYZTBByte(x, y, z, t, 0);
-						int G = input.getPixelXYZTBByte(x, y, z, t, 1);
-						int B = input.getPixelXYZTBByte(x, y, z, t, 2);
-
-						// normalise to [0,1]
-						double rN = R * 0.003921;
-						double gN = G * 0.003921;
-						double bN = B * 0.003921;
+		output = ColourTransform.RGB_TO_YIQ.convert(input);
+	}
 
-						double Y = 0.299 * rN + 0.587 * gN + 0.114 * bN;
-						double I = 0.596 * rN - 0.275 * gN - 0.321 * bN;
-						double Q = 0.212 * rN - 0.523 * gN + 0.311 * bN;
+	/**
+	 * converts in place a triplet of rgb in [0,255] into yiq
+	 * 
+	 * @param colour
+	 *            the rgb values, replaced by the yiq ones
+	 */
+	public static void convert(double[] colour) {
+		// normalise to [0,1]
+		double rN = colour[0] * 0.003921;
+		double gN = colour[1] * 0.003921;
+		double bN = colour[2] * 0.003921;
 
-						output.setPixelXYZTBDouble(x, y, z, t, 0, Y);
-						output.setPixelXYZTBDouble(x, y, z, t, 1, I);
-						output.setPixelXYZTBDouble(x, y, z, t, 2, Q);
-					}
-				}
-			}
-		}
+		colour[0] = 0.299 * rN + 0.587 * gN + 0.114 * bN;
+		colour[1] = 0.596 * rN - 0.275 * gN - 0.321 * bN;
+		colour[2] = 0.212 * rN - 0.523 * gN + 0.311 * bN;
 	}
 
+
 	/**
 	 * This class realizes the transformation of a tristumulus RGB image into a
 	 * double valued YIQ image with pixel values eventually outside of the [0,1]
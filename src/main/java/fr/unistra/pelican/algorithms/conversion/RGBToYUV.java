@@ -3,7 +3,6 @@ package fr.unistra.pelican.algorithms.conversion;
 import fr.unistra.pelican.Algorithm;
 import fr.unistra.pelican.AlgorithmException;
 import fr.unistra.pelican.ByteImage;
-import fr.unistra.pelican.DoubleImage;
 import fr.unistra.pelican.Image;
 
 /**
@@ -50,46 +49,31 @@ public class RGBToYUV extends Algorithm {
 	 * @see fr.unistra.pelican.Algorithm#launch()
 	 */
 	public void launch() throws AlgorithmException {
-		int xdim = input.getXDim();
-		int ydim = input.getYDim();
-		int zdim = input.getZDim();
-		int tdim = input.getTDim();
-		int bdim = input.getBDim();
-
-		if (bdim != 3)
+		if (input.getBDim() != 3)
 			throw new AlgorithmException(
 					"The input must be a tristumulus RGB image");
 
-		output = new DoubleImage(xdim, ydim, zdim, tdim, bdim);
-		this.output.setMask( this.input.getMask() );
-		output.setColor(true);
-
-		for (int x = 0; x < xdim; x++) {
-			for (int y = 0; y < ydim; y++) {
-				for (int z = 0; z < zdim; z++) {
-					for (int t = 0; t < tdim; t++) {
-						int R = input.getPixelXYZTBByte(x, y, z, t, 0);
-						int G = input.getPixelXYZTBByte(x, y, z, t, 1);
-						int B = input.getPixelXYZTBByte(x, y, z, t, 2);
-
-						// normalise to [0,1]
-						double rN = R * 0.003921;
-						double gN = G * 0.003921;
-						double bN = B * 0.003921;
-
-						double Y = 0.299 * rN + 0.587 * gN + 0.114 * bN;
-						double U = -0.147 * rN - 0.289 * gN + 0.436 * bN;
-						double V = 0.615 * rN - 0.515 * gN - 0.100 * bN;
-
-						output.setPixelXYZTBDouble(x, y, z, t, 0, Y);
-						output.setPixelXYZTBDouble(x, y, z, t, 1, U);
-						output.setPixelXYZTBDouble(x, y, z, t, 2, V);
-					}
-				}
-			}
-		}
+		output = ColourTransform.RGB_TO_YUV.convert(input);
 	}
 
+	/**
+	 * converts in place a triplet of rgb in [0,255] into yuv
+	 * 
+	 * @param colour
+	 *            the rgb values, replaced by the yuv ones
+	 */
+	public static void convert(double[] colour) {
+		// normalise to [0,1]
+		double rN = colour[0] * 0.003921;
+		double gN = colour[1] * 0.003921;
+		double bN = colour[2] * 0.003921;
+
+		colour[0] = 0.299 * rN + 0.587 * gN + 0.114 * bN;
+		colour[1] = -0.147 * rN - 0.289 * gN + 0.436 * bN;
+		colour[2] = 0.615 * rN - 0.515 * gN - 0.100 * bN;
+	}
+
+
 	/**
 	 * Scales each band of the resulting yuv image according to the value
 	 * intervals Y in [0,1], U in [-0.436,0.436], V in [-0.615,0.615] and
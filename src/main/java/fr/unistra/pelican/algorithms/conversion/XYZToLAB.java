@@ -4,6 +4,7 @@ import fr.unistra.pelican.Algorithm;
 import fr.unistra.pelican.AlgorithmException;
 import fr.unistra.pelican.ByteImage;
 import fr.unistra.pelican.Image;
+import fr.unistra.pelican.util.lut.ThreeBandGridLUT;
 
 /**
  * This class realizes the transformation of a tristumulus double valued CIE XYZ
@@ -13,6 +14,9 @@ import fr.unistra.pelican.Image;
  *	- input's mask becomes output's mask.
  *	- no modification on color calculation.
  * 
+ *	An optional grid LUT (see ThreeBandGridLUT.getXYZToLabLUT) converts the
+ *	pixels by interpolation, in parallel.
+ * 
  * @author Erchan Aptoula, Jonathan Weber
  * 
  */
@@ -30,6 +34,11 @@ public class XYZToLAB extends Algorithm {
 	public Image output;
 
 	public boolean scaleToByte=false;
+
+	/**
+	 * Optional grid LUT
+	 */
+	public ThreeBandGridLUT lut=null;
 	
 	/**
 	 * Constructor
@@ -37,7 +46,7 @@ public class XYZToLAB extends Algorithm {
 	 */
 	public XYZToLAB() {
 		super.inputs = "input";
-		super.options="scaleToByte";
+		super.options="scaleToByte,lut";
 		super.outputs = "output";
 		
 	}
@@ -48,28 +57,16 @@ public class XYZToLAB extends Algorithm {
 	 * @see fr.unistra.pelican.Algorithm#launch()
 	 */
 	public void launch() throws AlgorithmException {
-		int size = input.size();
-
 		if (input.getBDim() != 3)
 			throw new AlgorithmException(
 					"The input must be a tristumulus XYZ image");
 
-		output = input.newDoubleImage();
-		this.output.setMask( this.input.getMask() );
-		output.setColor(true);
-
-		for(int i=0;i<size;i=i+3)
-		{
-			double X = input.getPixelDouble(i);
-			double Y = input.getPixelDouble(i+1);
-			double Z = input.getPixelDouble(i+2);
-
-			double[] lab = convert(X, Y, Z);
-
-			output.setPixelDouble(i, lab[0]);
-			output.setPixelDouble(i+1, lab[1]);
-			output.setPixelDouble(i+2, lab[2]);
-		}
+		if (lut != null) {
+			output = lut.convert(input);
+			this.output.setMask( this.input.getMask() );
+			output.setColor(true);
+		} else
+			output = ColourTransform.XYZ_TO_LAB.convert(input);
 		if (scaleToByte)
 			output=scaleToByte(output);
 	}
@@ -83,6 +80,22 @@ public class XYZToLAB extends Algorithm {
 	 * @return the array of lab values
 	 */
 	public static double[] convert(double x, double y, double z) {
+		double[] lab = { x, y, z };
+		convert(lab);
+		return lab;
+	}
+
+	/**
+	 * converts in place a triplet of xyz into cielab
+	 * 
+	 * @param colour
+	 *            the xyz values, replaced by the lab ones
+	 */
+	public static void convert(double[] colour) {
+		double x = colour[0];
+		double y = colour[1];
+		double z = colour[2];
+
 		// THE white point..D65
 		double Xn = 0.950456;
 		double Yn = 1.0;
@@ -107,13 +120,9 @@ public class XYZToLAB extends Algorithm {
 		else
 			Zfrac = 7.787 * Zfrac + 16.0 / 116.0;
 
-		double[] lab = new double[3];
-
-		lab[0] = 116 * Yfrac - 16.0;
-		lab[1] = 500 * (Xfrac - Yfrac);
-		lab[2] = 200 * (Yfrac - Zfrac);
-
-		return lab;
+		colour[0] = 116 * Yfrac - 16.0;
+		colour[1] = 500 * (Xfrac - Yfrac);
+		colour[2] = 200 * (Yfrac - Zfrac);
 	}
 
 	/**
@@ -160,4 +169,8 @@ public class XYZToLAB extends Algorithm {
 	public static Image exec(Image input,boolean scaleToByte) {
 		return (Image) new XYZToLAB().process(input,scaleToByte);
 	}
+
+	public static Image exec(Image input,boolean scaleToByte,ThreeBandGridLUT lut) {
+		return (Image) new XYZToLAB().process(input,scaleToByte,lut);
+	}
 }
\ No newline at end of file
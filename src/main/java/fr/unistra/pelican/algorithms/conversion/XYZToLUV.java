@@ -2,7 +2,6 @@ package fr.unistra.pelican.algorithms.conversion;
 
 import fr.unistra.pelican.Algorithm;
 import fr.unistra.pelican.AlgorithmException;
-import fr.unistra.pelican.DoubleImage;
 import fr.unistra.pelican.Image;
 
 /**
@@ -46,48 +45,38 @@ public class XYZToLUV extends Algorithm {
 	 * @see fr.unistra.pelican.Algorithm#launch()
 	 */
 	public void launch() throws AlgorithmException {
-		int xdim = input.getXDim();
-		int ydim = input.getYDim();
-		int zdim = input.getZDim();
-		int tdim = input.getTDim();
-		int bdim = input.getBDim();
-
-		if (bdim != 3)
+		if (input.getBDim() != 3)
 			throw new AlgorithmException(
 					"The input must be a tristumulus XYZ image");
 
-		output = new DoubleImage(xdim, ydim, zdim, tdim, bdim);
-		this.output.setMask( this.input.getMask() );
-		output.setColor(true);
+		output = ColourTransform.XYZ_TO_LUV.convert(input);
+	}
 
+	/**
+	 * converts in place a triplet of xyz into cieluv
+	 * 
+	 * @param colour
+	 *            the xyz values, replaced by the luv ones
+	 */
+	public static void convert(double[] colour) {
 		double Un = 0.197839; // calculated like Up and Vn for the white
 		// Xn,Yn,Zn
 		double Vn = 0.468342;
 
-		for (int x = 0; x < xdim; x++) {
-			for (int y = 0; y < ydim; y++) {
-				for (int z = 0; z < zdim; z++) {
-					for (int t = 0; t < tdim; t++) {
-						double X = input.getPixelXYZTBDouble(x, y, z, t, 0);
-						double Y = input.getPixelXYZTBDouble(x, y, z, t, 1);
-						double Z = input.getPixelXYZTBDouble(x, y, z, t, 2);
-
-						double Up = 4 * X / (X + 15 * Y + 3 * Z);
-						double Vp = 9 * Y / (X + 15 * Y + 3 * Z);
+		double X = colour[0];
+		double Y = colour[1];
+		double Z = colour[2];
 
-						double L = 116 * Math.pow(Y, 0.333333) - 16;
-						double U = 13 * L * (Up - Un);
-						double V = 13 * L * (Vp - Vn);
+		double Up = 4 * X / (X + 15 * Y + 3 * Z);
+		double Vp = 9 * Y / (X + 15 * Y + 3 * Z);
 
-						output.setPixelXYZTBDouble(x, y, z, t, 0, L);
-						output.setPixelXYZTBDouble(x, y, z, t, 1, U);
-						output.setPixelXYZTBDouble(x, y, z, t, 2, V);
-					}
-				}
-			}
-		}
+		double L = 116 * Math.pow(Y, 0.333333) - 16;
+		colour[0] = L;
+		colour[1] = 13 * L * (Up - Un);
+		colour[2] = 13 * L * (Vp - Vn);
 	}
 
+
 	/**
 	 * This class realizes the transformation of a tristumulus double valued CIE
 	 * XYZ image into a CIE LUV image.
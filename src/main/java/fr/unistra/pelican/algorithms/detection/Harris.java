@@ -11,6 +11,7 @@ import fr.unistra.pelican.Image;
 import fr.unistra.pelican.algorithms.conversion.AverageChannels;
 import fr.unistra.pelican.algorithms.io.ImageLoader;
 import fr.unistra.pelican.algorithms.visualisation.Viewer2D;
+import fr.unistra.pelican.util.Gaussian1D;
 import fr.unistra.pelican.util.Keypoint;
 import fr.unistra.pelican.util.NumericValuedPoint;
 
@@ -82,17 +83,6 @@ public class Harris extends Algorithm {
 		super.options="maxNumber,sigma,k,spacing";
 	}
 
-	/**
-	 * Gaussian function
-	 */
-	private double gaussian(double x, double y, double sigma) {
-		double sigma2 = sigma*sigma;
-		double t = (x*x+y*y)/(2*sigma2);
-		double u = 1.0/(2*Math.PI*sigma2);
-		double e = u*Math.exp( -t );
-		return e;
-	}
-
 	/**
 	 * Sobel gradient 3x3
 	 */
@@ -130,41 +120,43 @@ public class Harris extends Algorithm {
 			for (int x=0; x<image.xdim; x++)
 				grad[x][y] = sobel(x,y);
 
-		// precompute the coefficients of the gaussian filter
+		// products of the derivatives
+		int xdim = image.xdim, ydim = image.ydim;
+		double[] gx2 = new double[xdim*ydim];
+		double[] gy2 = new double[xdim*ydim];
+		double[] gxy = new double[xdim*ydim];
+		for (int y=0; y<ydim; y++)
+			for (int x=0; x<xdim; x++) {
+				float[] g = grad[x][y];
+				gx2[x+xdim*y] = g[0]*g[0];
+				gy2[x+xdim*y] = g[1]*g[1];
+				gxy[x+xdim*y] = g[0]*g[1];
+			}
+
+		// coefficients of the gaussian filter, the 2D kernel being the product
+		// of two 1D kernels
 		int radius = (int)(2*sigma);
-		int window = 1+2*radius;
-		float[][] gaussian = new float[window][window];
-		for(int j=-radius;j<=radius;j++)
-			for(int i=-radius;i<=radius;i++)
-				gaussian[i+radius][j+radius]=(float)gaussian(i,j,sigma);
+		double[] gaussian = Gaussian1D.sample(sigma, -radius, radius);
 
-		// Convolve gradient with gaussian filter:
+		// Convolve gradient with gaussian filter, along the rows then the columns:
 		//
 		// Ix2 = (F) * (Gx^2)
 		// Iy2 = (F) * (Gy^2)
 		// Ixy = (F) * (Gx.Gy)
 		//
-		for (int y=0; y<image.ydim; y++) {
-			for (int x=0; x<image.xdim; x++) {
-
-				for(int dy=-radius;dy<=radius;dy++) {
-					for(int dx=-radius;dx<=radius;dx++) {
-						int xk = x + dx;
-						int yk = y + dy;
-						if (xk<0 || xk>=image.xdim) continue;
-						if (yk<0 || yk>=image.ydim) continue;
-
-						// gaussian weight
-						double gw = gaussian[dx+radius][dy+radius];
-
-						// convolution
-						this.Lx2[x][y]+=gw*grad[xk][yk][0]*grad[xk][yk][0];
-						this.Ly2[x][y]+=gw*grad[xk][yk][1]*grad[xk][yk][1];
-						this.Lxy[x][y]+=gw*grad[xk][yk][0]*grad[xk][yk][1];
-					}
-				}
-			}
+		double[] buffer = new double[Math.max(xdim, ydim)];
+		for (double[] data : new double[][] { gx2, gy2, gxy }) {
+			for (int y=0; y<ydim; y++)
+				Gaussian1D.convolve(data, xdim*y, 1, xdim, gaussian, radius, Gaussian1D.ZERO, buffer);
+			for (int x=0; x<xdim; x++)
+				Gaussian1D.convolve(data, x, xdim, ydim, gaussian, radius, Gaussian1D.ZERO, buffer);
 		}
+		for (int y=0; y<ydim; y++)
+			for (int x=0; x<xdim; x++) {
+				this.Lx2[x][y] = (float) gx2[x+xdim*y];
+				this.Ly2[x][y] = (float) gy2[x+xdim*y];
+				this.Lxy[x][y] = (float) gxy[x+xdim*y];
+			}
 	}
 
 	/**
@@ -0,0 +1,521 @@
+package fr.unistra.pelican.algorithms.frequential;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import fr.unistra.pelican.PelicanException;
+import fr.unistra.pelican.util.Parallel;
+
+/**
+ * Fast Fourier transform of a given length. A plan holds everything which
+ * depends only on the length (factorisation, twiddle factors, chirp), is built
+ * once per length by {@link #get(int)} and can be shared by several threads.
+ * <p>
+ * Lengths whose prime factors are small are transformed with the mixed radix
+ * algorithm of {@link FFT2}. Other lengths are transformed with the algorithm
+ * of Bluestein, which turns the transform into a convolution of power of two
+ * length, so any length costs O(n log n).
+ * <p>
+ * Real lines of even length are transformed as complex lines of half length.
+ * <p>
+ * The forward transform is not normalised, the inverse one is divided by the
+ * length, so that both are inverse of each other.
+ *
+ * @author PELICAN team.
+ */
+public class FFTPlan {
+
+	/**
+	 * Largest prime factor handled by the mixed radix algorithm, larger ones
+	 * are handled by the algorithm of Bluestein.
+	 */
+	public static final int MAX_PRIME_FACTOR = 31;
+
+	/**
+	 * Number of plans kept in the cache.
+	 */
+	private static final int CACHE_SIZE = 64;
+
+	/**
+	 * Plans by length, the least recently used being dropped first.
+	 */
+	private static final Map<Integer, FFTPlan> plans = new LinkedHashMap<Integer, FFTPlan>(
+			16, 0.75f, true) {
+		private static final long serialVersionUID = 1L;
+
+		protected boolean removeEldestEntry(Map.Entry<Integer, FFTPlan> eldest) {
+			return size() > CACHE_SIZE;
+		}
+	};
+
+	/**
+	 * Length of the transform.
+	 */
+	private final int n;
+
+	/**
+	 * Mixed radix transform, null if the algorithm of Bluestein is used.
+	 */
+	private final ComplexDoubleFFT_Mixed mixed;
+
+	/**
+	 * Power of two transform computing the convolution of Bluestein.
+	 */
+	private final FFTPlan convolution;
+
+	/**
+	 * Chirp exp(-i.pi.k²/n) of Bluestein, interleaved.
+	 */
+	private final double[] chirp;
+
+	/**
+	 * Transform of the convolution kernel of Bluestein, interleaved and
+	 * divided by the length of the convolution.
+	 */
+	private final double[] kernel;
+
+	/**
+	 * Transform of half length used for real lines, null if n is odd.
+	 */
+	private final FFTPlan half;
+
+	/**
+	 * exp(-2i.pi.k/n) for k from 0 to n/2, interleaved, for real lines.
+	 */
+	private final double[] twiddle;
+
+	/**
+	 * Number of doubles used by {@link #complex} after the data.
+	 */
+	private final int work;
+
+	/**
+	 * Gets the plan of a length, building it if needed.
+	 *
+	 * @param n
+	 *            length of the transform
+	 * @return the plan
+	 */
+	public static FFTPlan get(int n) {
+		synchronized (plans) {
+			FFTPlan plan = plans.get(n);
+			if (plan == null) {
+				plan = new FFTPlan(n);
+				plans.put(n, plan);
+			}
+			return plan;
+		}
+	}
+
+	/**
+	 * Builds a plan, use {@link #get(int)} to share them.
+	 *
+	 * @param n
+	 *            length of the transform
+	 */
+	private FFTPlan(int n) {
+		if (n <= 0)
+			throw new PelicanException("FFT length must be positive : " + n);
+		this.n = n;
+		if (largestPrimeFactor(n) <= MAX_PRIME_FACTOR) {
+			mixed = new ComplexDoubleFFT_Mixed(n);
+			convolution = null;
+			chirp = null;
+			kernel = null;
+			work = 2 * n;
+		} else {
+			mixed = null;
+			int m = Integer.highestOneBit(2 * n - 1) << 1;
+			convolution = get(m);
+			chirp = new double[2 * n];
+			for (int k = 0; k < n; k++) {
+				// k² modulo 2n keeps the angle accurate for long lines
+				double angle = Math.PI * (int) ((long) k * k % (2 * n)) / n;
+				chirp[2 * k] = Math.cos(angle);
+				chirp[2 * k + 1] = -Math.sin(angle);
+			}
+			double[] buffer = new double[2 * m + convolution.work];
+			for (int k = 0; k < n; k++) {
+				buffer[2 * k] = chirp[2 * k] / m;
+				buffer[2 * k + 1] = -chirp[2 * k + 1] / m;
+				if (k > 0) {
+					buffer[2 * (m - k)] = buffer[2 * k];
+					buffer[2 * (m - k) + 1] = buffer[2 * k + 1];
+				}
+			}
+			convolution.complex(buffer, 0, -1);
+			kernel = new double[2 * m];
+			System.arraycopy(buffer, 0, kernel, 0, 2 * m);
+			work = 2 * m + convolution.work;
+		}
+
+		if (n % 2 == 0) {
+			half = get(n / 2);
+			twiddle = new double[n + 2];
+			for (int k = 0; k <= n / 2; k++) {
+				twiddle[2 * k] = Math.cos(2 * Math.PI * k / n);
+				twiddle[2 * k + 1] = -Math.sin(2 * Math.PI * k / n);
+			}
+		} else {
+			half = null;
+			twiddle = null;
+		}
+	}
+
+	/**
+	 * Gives the largest prime factor of a number.
+	 */
+	private static int largestPrimeFactor(int n) {
+		int largest = 1;
+		for (int f = 2; f * f <= n; f++)
+			while (n % f == 0) {
+				n /= f;
+				largest = f;
+			}
+		return Math.max(largest, n);
+	}
+
+	/**
+	 * Gets the length of the transform.
+	 *
+	 * @return the length
+	 */
+	public int size() {
+		return n;
+	}
+
+	/**
+	 * Allocates the buffer needed by the transforms of this plan. A buffer
+	 * cannot be used by two threads at the same time.
+	 *
+	 * @return a new buffer
+	 */
+	public double[] newBuffer() {
+		int real = half == null ? 0 : 2 * n + 2 + half.work;
+		return new double[Math.max(2 * n + work, real)];
+	}
+
+	/**
+	 * Transforms interleaved complex data, in place and without any
+	 * normalisation.
+	 *
+	 * @param buffer
+	 *            array holding the data from <tt>at</tt>, followed by
+	 *            {@link #work} free values
+	 * @param at
+	 *            index of the real part of the first value
+	 * @param sign
+	 *            -1 for the forward transform, +1 for the inverse one
+	 */
+	private void complex(double[] buffer, int at, int sign) {
+		if (mixed != null) {
+			mixed.transform_internal(buffer, at, 2, sign, buffer, at + 2 * n);
+			return;
+		}
+		// Bluestein : X[k] = w[k] * sum( x[j] w[j] conj(w[k-j]) ), the inverse
+		// transform being the conjugate of the transform of the conjugate
+		int m = convolution.n;
+		int c = at + 2 * n;
+		for (int k = 0; k < n; k++) {
+			double re = buffer[at + 2 * k];
+			double im = -sign * buffer[at + 2 * k + 1];
+			buffer[c + 2 * k] = re * chirp[2 * k] - im * chirp[2 * k + 1];
+			buffer[c + 2 * k + 1] = re * chirp[2 * k + 1] + im * chirp[2 * k];
+		}
+		for (int k = 2 * n; k < 2 * m; k++)
+			buffer[c + k] = 0;
+		convolution.complex(buffer, c, -1);
+		for (int k = 0; k < m; k++) {
+			double re = buffer[c + 2 * k];
+			double im = buffer[c + 2 * k + 1];
+			// conjugated, so that the forward transform gives the inverse
+			buffer[c + 2 * k] = re * kernel[2 * k] - im * kernel[2 * k + 1];
+			buffer[c + 2 * k + 1] = -(re * kernel[2 * k + 1] + im
+					* kernel[2 * k]);
+		}
+		convolution.complex(buffer, c, -1);
+		for (int k = 0; k < n; k++) {
+			double re = buffer[c + 2 * k];
+			double im = -buffer[c + 2 * k + 1];
+			buffer[at + 2 * k] = re * chirp[2 * k] - im * chirp[2 * k + 1];
+			buffer[at + 2 * k + 1] = -sign
+					* (re * chirp[2 * k + 1] + im * chirp[2 * k]);
+		}
+	}
+
+	/**
+	 * Transforms a complex line, in place.
+	 *
+	 * @param re
+	 *            real parts
+	 * @param im
+	 *            imaginary parts
+	 * @param offset
+	 *            index of the first value of the line
+	 * @param stride
+	 *            distance between two values of the line
+	 * @param inverse
+	 *            true for the inverse transform
+	 * @param buffer
+	 *            buffer given by {@link #newBuffer()}
+	 */
+	public void transform(double[] re, double[] im, int offset, int stride,
+			boolean inverse, double[] buffer) {
+		for (int k = 0, p = offset; k < n; k++, p += stride) {
+			buffer[2 * k] = re[p];
+			buffer[2 * k + 1] = im[p];
+		}
+		complex(buffer, 0, inverse ? 1 : -1);
+		double scale = inverse ? 1.0 / n : 1.0;
+		for (int k = 0, p = offset; k < n; k++, p += stride) {
+			re[p] = buffer[2 * k] * scale;
+			im[p] = buffer[2 * k + 1] * scale;
+		}
+	}
+
+	/**
+	 * Transforms a real line. Since the transform of a real line is hermitian,
+	 * only the values from 0 to n/2 are computed.
+	 *
+	 * @param data
+	 *            real line
+	 * @param offset
+	 *            index of the first value of the line
+	 * @param stride
+	 *            distance between two values of the line
+	 * @param re
+	 *            real parts of the transform, may be <tt>data</tt>
+	 * @param im
+	 *            imaginary parts of the transform
+	 * @param outOffset
+	 *            index of the transform of frequency 0
+	 * @param outStride
+	 *            distance between two frequencies
+	 * @param buffer
+	 *            buffer given by {@link #newBuffer()}
+	 */
+	public void forwardReal(double[] data, int offset, int stride,
+			double[] re, double[] im, int outOffset, int outStride,
+			double[] buffer) {
+		if (half == null) {
+			for (int k = 0, p = offset; k < n; k++, p += stride) {
+				buffer[2 * k] = data[p];
+				buffer[2 * k + 1] = 0;
+			}
+			complex(buffer, 0, -1);
+			for (int k = 0, p = outOffset; k <= n / 2; k++, p += outStride) {
+				re[p] = buffer[2 * k];
+				im[p] = buffer[2 * k + 1];
+			}
+			return;
+		}
+		// even and odd values as one complex line of half length
+		int m = n / 2;
+		for (int k = 0, p = offset; k < n; k++, p += stride)
+			buffer[k] = data[p];
+		half.complex(buffer, 0, -1);
+		for (int k = 0, p = outOffset; k <= m; k++, p += outStride) {
+			int a = 2 * (k % m), b = 2 * ((m - k) % m);
+			// even part E = (Z[k] + conj(Z[m-k]))/2, odd part
+			// O = (Z[k] - conj(Z[m-k]))/2i
+			double er = (buffer[a] + buffer[b]) / 2;
+			double ei = (buffer[a + 1] - buffer[b + 1]) / 2;
+			double or = (buffer[a + 1] + buffer[b + 1]) / 2;
+			double oi = -(buffer[a] - buffer[b]) / 2;
+			double wr = twiddle[2 * k], wi = twiddle[2 * k + 1];
+			re[p] = er + wr * or - wi * oi;
+			im[p] = ei + wr * oi + wi * or;
+		}
+	}
+
+	/**
+	 * Inverse transform of a hermitian line, given by its values from 0 to
+	 * n/2, to a real line.
+	 *
+	 * @param re
+	 *            real parts of the transform
+	 * @param im
+	 *            imaginary parts of the transform
+	 * @param offset
+	 *            index of the frequency 0
+	 * @param stride
+	 *            distance between two frequencies
+	 * @param data
+	 *            real line, may be <tt>re</tt>
+	 * @param outOffset
+	 *            index of the first value of the line
+	 * @param outStride
+	 *            distance between two values of the line
+	 * @param buffer
+	 *            buffer given by {@link #newBuffer()}
+	 */
+	public void inverseReal(double[] re, double[] im, int offset, int stride,
+			double[] data, int outOffset, int outStride, double[] buffer) {
+		if (half == null) {
+			for (int k = 0, p = offset; k <= n / 2; k++, p += stride) {
+				buffer[2 * k] = re[p];
+				buffer[2 * k + 1] = im[p];
+			}
+			for (int k = n / 2 + 1; k < n; k++) {
+				buffer[2 * k] = buffer[2 * (n - k)];
+				buffer[2 * k + 1] = -buffer[2 * (n - k) + 1];
+			}
+			complex(buffer, 0, 1);
+			for (int k = 0, p = outOffset; k < n; k++, p += outStride)
+				data[p] = buffer[2 * k] / n;
+			return;
+		}
+		int m = n / 2;
+		// the complex line is built after the values, read from re and im
+		int z = n + 2;
+		for (int k = 0, p = offset; k <= m; k++, p += stride) {
+			buffer[2 * k] = re[p];
+			buffer[2 * k + 1] = im[p];
+		}
+		for (int k = 0; k < m; k++) {
+			int a = 2 * k, b = 2 * (m - k);
+			// E = (X[k] + conj(X[m-k]))/2, O = (X[k] - conj(X[m-k]))/(2w)
+			double er = (buffer[a] + buffer[b]) / 2;
+			double ei = (buffer[a + 1] - buffer[b + 1]) / 2;
+			double dr = (buffer[a] - buffer[b]) / 2;
+			double di = (buffer[a + 1] + buffer[b + 1]) / 2;
+			double wr = twiddle[a], wi = twiddle[a + 1];
+			double or = dr * wr + di * wi;
+			double oi = di * wr - dr * wi;
+			// Z = E + iO
+			buffer[z + a] = er - oi;
+			buffer[z + a + 1] = ei + or;
+		}
+		half.complex(buffer, z, 1);
+		for (int k = 0, p = outOffset; k < n; k++, p += outStride)
+			data[p] = buffer[z + k] / m;
+	}
+
+	/**
+	 * Transforms every line of complex data along one dimension, in place.
+	 * The lines are shared between threads.
+	 *
+	 * @param re
+	 *            real parts
+	 * @param im
+	 *            imaginary parts
+	 * @param stride
+	 *            distance between two values of a line
+	 * @param length
+	 *            length of the lines
+	 * @param inverse
+	 *            true for the inverse transform
+	 */
+	public static void transform(final double[] re, final double[] im,
+			final int stride, final int length, final boolean inverse) {
+		final FFTPlan plan = get(length);
+		// a line starts at every index whose coordinate along the dimension is 0
+		Parallel.forItems(re.length / length, re.length, new Parallel.Range() {
+			public void run(int from, int to) {
+				double[] buffer = plan.newBuffer();
+				for (int line = from; line < to; line++)
+					plan.transform(re, im, line % stride + (line / stride)
+							* stride * length, stride, inverse, buffer);
+			}
+		});
+	}
+
+	/**
+	 * Transforms every line of real data along one dimension, in place. The
+	 * whole transform is written, the frequencies above n/2 being given by
+	 * the hermitian symmetry.
+	 *
+	 * @param re
+	 *            real data, replaced by the real parts of the transform
+	 * @param im
+	 *            imaginary parts of the transform
+	 * @param stride
+	 *            distance between two values of a line
+	 * @param length
+	 *            length of the lines
+	 */
+	public static void transformReal(final double[] re, final double[] im,
+			final int stride, final int length) {
+		final FFTPlan plan = get(length);
+		Parallel.forItems(re.length / length, re.length, new Parallel.Range() {
+			public void run(int from, int to) {
+				double[] buffer = plan.newBuffer();
+				for (int line = from; line < to; line++) {
+					int offset = line % stride + (line / stride) * stride
+							* length;
+					plan.forwardReal(re, offset, stride, re, im, offset,
+							stride, buffer);
+					for (int k = length / 2 + 1; k < length; k++) {
+						re[offset + k * stride] = re[offset + (length - k)
+								* stride];
+						im[offset + k * stride] = -im[offset + (length - k)
+								* stride];
+					}
+				}
+			}
+		});
+	}
+
+	/**
+	 * Transforms a real plane. Only the frequencies from 0 to xdim/2 along x
+	 * are kept, the other ones being given by the hermitian symmetry, so the
+	 * transform takes half the memory of a complex one.
+	 *
+	 * @param data
+	 *            real plane, indexed by x+xdim*y
+	 * @param xdim
+	 *            width
+	 * @param ydim
+	 *            height
+	 * @return real and imaginary parts of the transform, indexed by
+	 *         u+(xdim/2+1)*v
+	 */
+	public static double[][] forwardReal2D(final double[] data,
+			final int xdim, int ydim) {
+		final int width = xdim / 2 + 1;
+		final double[] re = new double[width * ydim];
+		final double[] im = new double[width * ydim];
+		final FFTPlan plan = get(xdim);
+		Parallel.forItems(ydim, xdim * ydim, new Parallel.Range() {
+			public void run(int from, int to) {
+				double[] buffer = plan.newBuffer();
+				for (int y = from; y < to; y++)
+					plan.forwardReal(data, y * xdim, 1, re, im, y * width, 1,
+							buffer);
+			}
+		});
+		transform(re, im, width, ydim, false);
+		return new double[][] { re, im };
+	}
+
+	/**
+	 * Inverse transform of the hermitian transform of a real plane, given by
+	 * {@link #forwardReal2D}.
+	 *
+	 * @param re
+	 *            real parts of the transform, modified
+	 * @param im
+	 *            imaginary parts of the transform, modified
+	 * @param xdim
+	 *            width of the real plane
+	 * @param ydim
+	 *            height of the real plane
+	 * @param data
+	 *            real plane, indexed by x+xdim*y
+	 */
+	public static void inverseReal2D(final double[] re, final double[] im,
+			final int xdim, int ydim, final double[] data) {
+		final int width = xdim / 2 + 1;
+		transform(re, im, width, ydim, true);
+		final FFTPlan plan = get(xdim);
+		Parallel.forItems(ydim, xdim * ydim, new Parallel.Range() {
+			public void run(int from, int to) {
+				double[] buffer = plan.newBuffer();
+				for (int y = from; y < to; y++)
+					plan.inverseReal(re, im, y * width, 1, data, y * xdim, 1,
+							buffer);
+			}
+		});
+	}
+
+}
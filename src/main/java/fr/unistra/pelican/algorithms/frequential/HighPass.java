@@ -50,8 +50,13 @@ public class HighPass extends Algorithm {
 	 * @see fr.unistra.pelican.Algorithm#launch()
 	 */
 	public void launch() throws AlgorithmException {
-
-
+		int xdim=input.xdim;
+		int ydim=input.ydim;
+		if(xdim%2==0 && ydim%2==0 && input.zdim==1 && input.tdim==1)
+		{
+			launchReal();
+			return;
+		}
 		DoubleImage inputRe=input.newDoubleImage(true);
 		DoubleImage inputIm=null;
 		DoubleImage[] outputs = FFT2.exec(inputRe,inputIm,false);
@@ -59,8 +64,6 @@ public class HighPass extends Algorithm {
 		int i2, j2;
 		double r2 = radius * radius;
 
-		int xdim=input.xdim;
-		int ydim=input.ydim;
 		int cx=xdim/2;
 		int cy=ydim/2;
 
@@ -104,6 +107,44 @@ public class HighPass extends Algorithm {
 
 	}
 	
+	/**
+	 * Filters each band with the transform of a real image, which takes half
+	 * the time and memory of a complex one. The filter is symmetric, so the
+	 * result is real, only when both dimensions are even.
+	 */
+	private void launchReal() {
+		int xdim=input.xdim;
+		int ydim=input.ydim;
+		int bdim=input.bdim;
+		int width=xdim/2+1;
+		int cy=ydim/2;
+		double r2 = radius * radius;
+		output=input.copyImage(false);
+		double [] plane=new double[xdim*ydim];
+		for(int b=0;b<bdim;b++)
+		{
+			for(int p=0;p<plane.length;p++)
+				plane[p]=input.getPixelDouble(p*bdim+b);
+			double [][] spectrum=FFTPlan.forwardReal2D(plane, xdim, ydim);
+			for (int j = 0; j < ydim; j++) {
+				int j2 = j >= cy ? j - ydim : j;
+				for (int i = 0; i < width; i++) {
+					// the last column is the frequency -xdim/2
+					int i2 = i == width - 1 ? i - xdim : i;
+					double r=i2*i2+j2*j2;
+					if(r<=r2)
+					{
+						spectrum[0][i+width*j]=0.0;
+						spectrum[1][i+width*j]=0.0;
+					}
+				}
+			}
+			FFTPlan.inverseReal2D(spectrum[0], spectrum[1], xdim, ydim, plane);
+			for(int p=0;p<plane.length;p++)
+				output.setPixelDouble(p*bdim+b, Math.abs(plane[p]));
+		}
+	}
+
 	/**
 	 * High pass circular frequential filter. A
 	 * smaller radius means more major frequences are kept...
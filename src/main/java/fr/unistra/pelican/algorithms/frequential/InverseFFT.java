@@ -4,13 +4,10 @@ import fr.unistra.pelican.Algorithm;
 import fr.unistra.pelican.AlgorithmException;
 import fr.unistra.pelican.DoubleImage;
 import fr.unistra.pelican.Image;
-import fr.unistra.pelican.util.Complex2dArray;
-import fr.unistra.pelican.util.ComplexNumber;
 
 /**
- * 2D recursive inverse fast fourier transform...
- * 
- * !!! Image dimensions must be power of 2 (dimx=2^k, dimy=2^k')
+ * 2D inverse fast fourier transform, of any dimensions, computed by
+ * {@link FFTPlan}.
  * 
  * Input is composed of two images representing real and respectively imaginary part of transform.
  * Third input parameter allow to choose type of result (real part, imaginary part, or magnitudes)
@@ -81,137 +78,50 @@ public class InverseFFT extends Algorithm {
 	public void launch() throws AlgorithmException {
 		int xDim = inputImageReal.getXDim();
 		int yDim = inputImageReal.getYDim();
-
-		double[][] pixelsR2 = new double[inputImageReal.getXDim()][inputImageReal
-				.getYDim()];
-		double[][] pixelsI2 = new double[inputImageReal.getXDim()][inputImageReal
-				.getYDim()];
-
-		for (int x = 0; x < inputImageReal.getXDim(); x++) {
-			for (int y = 0; y < inputImageReal.getYDim(); y++) {
-				pixelsR2[x][y] = inputImageReal.getPixelXYDouble(x, y);
-				pixelsI2[x][y] = inputImageImag.getPixelXYDouble(x, y);
-			}
-		}
-
-		pixelsR2 = shiftOrigin(pixelsR2);
-		pixelsI2 = shiftOrigin(pixelsI2);
-
-		double[] pixelsR = new double[inputImageReal.size()];
-		double[] pixelsI = new double[inputImageReal.size()];
-
-		for (int x = 0; x < inputImageReal.getXDim(); x++) {
-			for (int y = 0; y < inputImageReal.getYDim(); y++) {
-				pixelsR[y * inputImageReal.getXDim() + x] = pixelsR2[x][y];
-				pixelsI[y * inputImageReal.getXDim() + x] = pixelsI2[x][y];
+		int x = xDim / 2;
+		int y = yDim / 2;
+
+		// the origin of the input is shifted to its center
+		double[] pixelsR = new double[xDim * yDim];
+		double[] pixelsI = new double[xDim * yDim];
+		for (int j = 0; j < yDim; j++)
+			for (int i = 0; i < xDim; i++) {
+				int i2 = (i + x) % xDim;
+				int j2 = (j + y) % yDim;
+				pixelsR[j * xDim + i] = inputImageReal.getPixelXYDouble(i2, j2);
+				pixelsI[j * xDim + i] = inputImageImag.getPixelXYDouble(i2, j2);
 			}
-		}
-
-		Complex2dArray input = new Complex2dArray(pixelsR, pixelsI, xDim, yDim);
-		Complex2dArray intermediate = new Complex2dArray(pixelsR, xDim, yDim);
-		Complex2dArray output = new Complex2dArray(pixelsR, xDim, yDim);
-
-		for (int i = 0; i < input.size; ++i)
-			intermediate.putColumn(i, recIFFT(input.getColumn(i)));
 
-		for (int i = 0; i < intermediate.size; ++i)
-			output.putRow(i, recIFFT(intermediate.getRow(i)));
+		FFTPlan.transform(pixelsR, pixelsI, 1, xDim, true);
+		FFTPlan.transform(pixelsR, pixelsI, xDim, yDim, true);
 
 		// prepare output according to predefined type
 		outputImage = new DoubleImage(inputImageReal, false);
 
 		// constant factor
-		double c = outputImage.xdim * outputImage.ydim; 
-		
-		switch (outputType) {
-		case REAL:
-			double[][] reals = output.getReals();
-			for (int x = 0; x < xDim; x++)
-				for (int y = 0; y < yDim; y++)
-					outputImage.setPixelXYDouble(x, y, c*reals[x][y]);
-			break;
-		case IMAG:
-			double[][] imags = output.getImags();
-			for (int x = 0; x < xDim; x++)
-				for (int y = 0; y < yDim; y++)
-					outputImage.setPixelXYDouble(x, y, c*imags[x][y]);
-			break;
-		default:
-			double[][] mags = output.getMagnitudes();
-			for (int x = 0; x < xDim; x++)
-				for (int y = 0; y < yDim; y++)
-					outputImage.setPixelXYDouble(x, y, c*mags[x][y]);
-
-		}
-	}
-
-	private double[][] shiftOrigin(double[][] input) {
-		int width = input.length;
-		int height = input[0].length;
-
-		double[][] output = new double[width][height];
-		int x = width / 2;
-		int y = height / 2;
-		int i2, j2;
-		for (int j = 0; j < height; j++) {
-			for (int i = 0; i < width; i++) {
-				i2 = i + x;
-				j2 = j + y;
-				if (i2 >= width)
-					i2 = i2 % width;
-				if (j2 >= height)
-					j2 = j2 % height;
-				output[i][j] = input[i2][j2];
+		double c = outputImage.xdim * outputImage.ydim;
+
+		for (int j = 0; j < yDim; j++)
+			for (int i = 0; i < xDim; i++) {
+				double re = pixelsR[j * xDim + i];
+				double im = pixelsI[j * xDim + i];
+				double value;
+				switch (outputType) {
+				case REAL:
+					value = re;
+					break;
+				case IMAG:
+					value = im;
+					break;
+				default:
+					value = Math.sqrt(re * re + im * im);
+				}
+				outputImage.setPixelXYDouble(i, j, c * value);
 			}
-		}
-		return output;
 	}
 
-	private ComplexNumber[] recIFFT(ComplexNumber[] x) {
-		ComplexNumber z1, z2, z3, z4, tmp, cTwo;
-		int n = x.length;
-		int m = n / 2;
-
-		ComplexNumber[] result = new ComplexNumber[n];
-		ComplexNumber[] even = new ComplexNumber[m];
-		ComplexNumber[] odd = new ComplexNumber[m];
-		ComplexNumber[] sum = new ComplexNumber[m];
-		ComplexNumber[] diff = new ComplexNumber[m];
-
-		cTwo = new ComplexNumber(2, 0);
-
-		if (n == 1)
-			result[0] = x[0];
-		else {
-			z1 = new ComplexNumber(0.0, 2 * (Math.PI) / n);
-			tmp = ComplexNumber.cExp(z1);
-			z1 = new ComplexNumber(1.0, 0.0);
-
-			for (int i = 0; i < m; i++) {
-				z3 = ComplexNumber.cSum(x[i], x[i + m]);
-				sum[i] = ComplexNumber.cDiv(z3, cTwo);
-
-				z3 = ComplexNumber.cDiff(x[i], x[i + m]);
-				z4 = ComplexNumber.cMult(z3, z1);
-				diff[i] = ComplexNumber.cDiv(z4, cTwo);
-
-				z2 = ComplexNumber.cMult(z1, tmp);
-				z1 = new ComplexNumber(z2);
-			}
-
-			even = recIFFT(sum);
-			odd = recIFFT(diff);
-
-			for (int i = 0; i < m; i++) {
-				result[i * 2] = new ComplexNumber(even[i]);
-				result[i * 2 + 1] = new ComplexNumber(odd[i]);
-			}
-		}
-		return result;
-	}
-	
 	/**
-	 * 2D recursive inverse fast fourier transform...
+	 * 2D inverse fast fourier transform...
 	 * 
 	 * Input is composed of two images representing real and respectively imaginary part of transform.
 	 * Third input parameter allow to choose type of result (real part, imaginary part, or magnitudes)
@@ -3,11 +3,20 @@ package fr.unistra.pelican.algorithms.io;
 import java.io.DataInputStream;
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.ShortBuffer;
+import java.nio.channels.FileChannel;
 
 import fr.unistra.pelican.Algorithm;
+import fr.unistra.pelican.AlgorithmException;
 import fr.unistra.pelican.DoubleImage;
 import fr.unistra.pelican.Image;
 import fr.unistra.pelican.InvalidFileFormatException;
+import fr.unistra.pelican.LargeDoubleImage;
 
 /**
  * Loads fits images.EXTENSIONs are NOT and will NOT be supported
@@ -35,6 +44,11 @@ import fr.unistra.pelican.InvalidFileFormatException;
  * have<br>
  * any dimension it desires...in EA's case NAXIS3 = 6<br>
  * 
+ * The data unit is read a chunk of rows at a time, straight into the output
+ * : the rows are flipped, calibrated and the blanks filled while decoding. A
+ * window of the image can be read alone, and the pixels can be loaded into a
+ * LargeDoubleImage for images which do not fit in memory.<br>
+ * 
  * @author Erchan Aptoula
  * 
  */
@@ -51,6 +65,17 @@ public class FitsImageLoad extends Algorithm {
 	 */
 	public Image output;
 
+	/**
+	 * (optional) window to read : first column, first line, last column and
+	 * last line, the whole image by default
+	 */
+	public int[] window = null;
+
+	/**
+	 * (optional) flag to load the pixels into a LargeDoubleImage
+	 */
+	public boolean large = false;
+
 	private DataInputStream dis;
 
 	private int bitPix; // pixel coding type
@@ -75,6 +100,8 @@ public class FitsImageLoad extends Algorithm {
 	private int blankVal = 0; // add support for customizable blank fill
 								// (black or white)
 
+	private long dataOffset; // position of the data unit in the file
+
 	static final int BYTE = 1;
 
 	static final int INT16_SIGNED = 2;
@@ -91,6 +118,8 @@ public class FitsImageLoad extends Algorithm {
 
 	static final int HEADER_SIZE = 2880;
 
+	static final int CHUNK_SIZE = 1 << 22; // bytes read at once
+
 	/**
 	 * Constructor
 	 * 
@@ -99,6 +128,7 @@ public class FitsImageLoad extends Algorithm {
 
 		super();
 		super.inputs = "filename";
+		super.options = "window,large";
 		super.outputs = "output";
 		
 	}
@@ -106,176 +136,187 @@ public class FitsImageLoad extends Algorithm {
 	public void launch() {
 		try {
 			getHeaders();
-
-			double[] pixels = readPixels();
-			flip(pixels);
-
-			if (thereAreBlanks == true)
-				fillInTheBlanks(pixels); // ALWAYS before calibration
-			if (scaled == true)
-				calibrate(pixels);
-
-			DoubleImage doubleOutput = new DoubleImage(width, height, 1, 1,
-					band);
-
-			for (int b = 0; b < band; b++) {
-				for (int j = 0; j < height; j++) {
-					for (int i = 0; i < width; i++) {
-						double tmp = pixels[b * width * height + j * width + i];
-						doubleOutput.setPixelXYBDouble(i, j, b, tmp);
-					}
-				}
+			dis.close();
+			if (bytesPerPixel == 0)
+				return;
+
+			int x0 = 0, y0 = 0, x1 = width - 1, y1 = height - 1;
+			if (window != null) {
+				if (window.length != 4)
+					throw new AlgorithmException("The window is given by 4 coordinates");
+				x0 = window[0];
+				y0 = window[1];
+				x1 = window[2];
+				y1 = window[3];
+				if (x0 < 0 || y0 < 0 || x1 >= width || y1 >= height || x0 > x1
+						|| y0 > y1)
+					throw new AlgorithmException("Invalid window for a " + width
+							+ "x" + height + " image");
+			}
+			int w = x1 - x0 + 1;
+			int h = y1 - y0 + 1;
+
+			DoubleImage doubleOutput;
+			if (large)
+				doubleOutput = new LargeDoubleImage(w, h, 1, 1, band);
+			else
+				doubleOutput = new DoubleImage(w, h, 1, 1, band);
+
+			RandomAccessFile file = new RandomAccessFile(filename, "r");
+			try {
+				readPixels(file.getChannel(), doubleOutput, x0, y0, w, h);
+			} finally {
+				file.close();
 			}
 
 			//doubleOutput = doubleOutput.scaleToZeroOne();
 
 			this.output = doubleOutput;
-
-			dis.close();
-		} catch (Exception e) {
+		} catch (IOException e) {
+			e.printStackTrace();
+		} catch (InvalidFileFormatException e) {
 			e.printStackTrace();
 		}
 	}
 
-	private void fillInTheBlanks(double[] pixels) {
-		// get the min or max according to fill type...
-		// black backgrounds are natural for astronomical images => min
-		// BLANK used primarily with positive BITPIX => no reals...
-		System.err.println("Blanks detected : filling in...");
-
-		double min = Double.MAX_VALUE;
-
-		for (int i = 0; i < pixels.length; i++)
-			if (pixels[i] < min)
-				min = pixels[i];
-
-		for (int i = 0; i < pixels.length; i++)
-			if (pixels[i] == (double) blankVal)
-				pixels[i] = min;
-	}
-
-	private void calibrate(double[] pixels) {
-		System.err.println("[Debug] FitsImageLoad : calibrating with bscale "
-				+ bscale + " and bzero " + bzero);
-
-		for (int i = 0; i < pixels.length; i++)
-			pixels[i] = bscale * pixels[i] + bzero;
-
-		System.err.println("[Debug] FitsImageLoad : calibration is over");
-	}
-
-	private void flip(double[] pixels) {
-		int index1, index2;
-		double tmp;
+	/**
+	 * Reads the pixels of the window (x0,y0,w,h) of each band into the
+	 * output, a chunk of rows at a time. The rows are stored from bottom to top
+	 * in the file, they are flipped, calibrated and the blanks filled while
+	 * decoding.
+	 */
+	private void readPixels(FileChannel channel, DoubleImage doubleOutput,
+			int x0, int y0, int w, int h) throws IOException {
+		if (scaled)
+			System.err.println("[Debug] FitsImageLoad : calibrating with bscale "
+					+ bscale + " and bzero " + bzero);
+		// BLANK only applies to integer pixels, they are marked with NaN
+		// until the fill value is known
+		boolean blanks = thereAreBlanks && bitPix != FLOAT32
+				&& bitPix != FLOAT64;
+		double min = Double.POSITIVE_INFINITY;
+		boolean blankFound = false;
+
+		double[] pixels = doubleOutput instanceof LargeDoubleImage ? null
+				: doubleOutput.getPixelsUnsafe();
+		LargeDoubleImage largeOutput = pixels == null ? (LargeDoubleImage) doubleOutput
+				: null;
+		int rowLength = w * bytesPerPixel;
+		int rows = Math.max(1, Math.min(h, CHUNK_SIZE / rowLength));
+		// default : BIG-ENDIAN
+		ByteBuffer buffer = ByteBuffer.allocate(rows * rowLength);
+		double[] row = new double[w];
 
 		for (int b = 0; b < band; b++) {
-			for (int y = 0; y < height / 2; y++) {
-				index1 = y * width + b * width * height;
-				index2 = (height - 1 - y) * width + b * width * height;
-
-				for (int i = 0; i < width; i++) {
-					tmp = pixels[index1];
-					pixels[index1++] = pixels[index2];
-					pixels[index2++] = tmp;
+			for (int first = 0; first < h; first += rows) {
+				int count = Math.min(rows, h - first);
+				// output rows first..first+count-1 are the file rows
+				// fileRow..fileRow-count+1
+				int fileRow = height - 1 - (y0 + first);
+				buffer.clear();
+				buffer.limit(count * rowLength);
+				if (w == width) {
+					long position = dataOffset
+							+ ((long) b * height + fileRow - count + 1) * rowLength;
+					read(channel, buffer, position);
+				} else {
+					for (int r = count - 1; r >= 0; r--) {
+						long position = dataOffset
+								+ (((long) b * height + fileRow - r) * width + x0)
+								* bytesPerPixel;
+						buffer.limit(buffer.position() + rowLength);
+						read(channel, buffer, position);
+					}
+				}
+				for (int r = 0; r < count; r++) {
+					// the last row of the chunk in the file is the first one of
+					// the output
+					buffer.position((count - 1 - r) * rowLength);
+					decode(buffer, row, w);
+					for (int x = 0; x < w; x++) {
+						double value = row[x];
+						if (value < min)
+							min = value;
+						if (blanks && value == blankVal) {
+							blankFound = true;
+							value = Double.NaN;
+						} else if (scaled)
+							value = bscale * value + bzero;
+						row[x] = value;
+					}
+					long index = b + (long) band * w * (first + r);
+					if (pixels != null)
+						for (int x = 0, i = (int) index; x < w; x++, i += band)
+							pixels[i] = row[x];
+					else
+						for (int x = 0; x < w; x++, index += band)
+							largeOutput.setPixelDouble(index, row[x]);
 				}
 			}
 		}
-	}
 
-	private double[] readPixels() throws IOException {
-		int pixelCount = width * height * band;
-		int byteCount = pixelCount * bytesPerPixel;
+		if (blankFound) {
+			// blanks get the minimum of the values read, before calibration
+			System.err.println("Blanks detected : filling in...");
+			double fill = scaled ? bscale * min + bzero : min;
+			if (pixels != null) {
+				for (int p = 0; p < pixels.length; p++)
+					if (Double.isNaN(pixels[p]))
+						pixels[p] = fill;
+			} else
+				for (long p = 0; p < largeOutput.sizeL(); p++)
+					if (Double.isNaN(largeOutput.getPixelDouble(p)))
+						largeOutput.setPixelDouble(p, fill);
+		}
+	}
 
-		byte[] buffer = new byte[byteCount];
-		double[] pixels = new double[pixelCount];
-		int tmp = 0;
-		long longTmp = 0;
-		dis.read(buffer);
+	/**
+	 * Reads from the given position until the limit of the buffer.
+	 */
+	private void read(FileChannel channel, ByteBuffer buffer, long position)
+			throws IOException {
+		while (buffer.hasRemaining()) {
+			int read = channel.read(buffer, position);
+			if (read < 0)
+				throw new IOException("Unexpected end of file " + filename);
+			position += read;
+		}
+	}
 
-		// default : BIG-ENDIAN
+	/**
+	 * Decodes a row of w pixels from the position of the buffer.
+	 */
+	private void decode(ByteBuffer buffer, double[] row, int w) {
 		switch (bitPix) {
 		case INT32:
-			for (int i = 0, j = 0; i < pixelCount; i++, j += 4) {
-				tmp = (int) (((buffer[j] & 0xff) << 24)
-						| ((buffer[j + 1] & 0xff) << 16)
-						| ((buffer[j + 2] & 0xff) << 8) | (buffer[j + 3] & 0xff));
-				pixels[i] = (new Integer((int) (tmp & 0xffffffffL)))
-						.doubleValue();
-			}
-
+			IntBuffer ints = buffer.asIntBuffer();
+			for (int i = 0; i < w; i++)
+				row[i] = ints.get(i);
 			break;
 		case INT64:
-			for (int i = 0, j = 0; i < pixelCount; i++, j += 8) {
-				longTmp = 0;
-				longTmp = longTmp | (int) (buffer[j] & 0xff);
-				longTmp = longTmp << 8;
-				longTmp = longTmp | (int) (buffer[j + 1] & 0xff);
-				longTmp = longTmp << 8;
-				longTmp = longTmp | (int) (buffer[j + 2] & 0xff);
-				longTmp = longTmp << 8;
-				longTmp = longTmp | (int) (buffer[j + 3] & 0xff);
-				longTmp = longTmp << 8;
-				longTmp = longTmp | (int) (buffer[j + 4] & 0xff);
-				longTmp = longTmp << 8;
-				longTmp = longTmp | (int) (buffer[j + 5] & 0xff);
-				longTmp = longTmp << 8;
-				longTmp = longTmp | (int) (buffer[j + 6] & 0xff);
-				longTmp = longTmp << 8;
-				longTmp = longTmp | (int) (buffer[j + 7] & 0xff);
-
-				pixels[i] = (new Long((int) (longTmp & 0xffffffffffffffffL)))
-						.doubleValue();
-			}
-
+			LongBuffer longs = buffer.asLongBuffer();
+			for (int i = 0; i < w; i++)
+				row[i] = longs.get(i);
 			break;
 		case INT16_SIGNED:
-			for (int i = 0, j = 0; i < pixelCount; i++, j += 2)
-				pixels[i] = (new Short(
-						(short) ((((buffer[j] & 0xff) << 8) | (buffer[j + 1] & 0xff)))))
-						.doubleValue();
+			ShortBuffer shorts = buffer.asShortBuffer();
+			for (int i = 0; i < w; i++)
+				row[i] = shorts.get(i);
 			break;
-
 		case FLOAT32:
-			for (int i = 0, j = 0; i < pixelCount; i++, j += 4) {
-				tmp = (int) (((buffer[j] & 0xff) << 24)
-						| ((buffer[j + 1] & 0xff) << 16)
-						| ((buffer[j + 2] & 0xff) << 8) | (buffer[j + 3] & 0xff));
-				pixels[i] = (new Float(Float.intBitsToFloat(tmp)))
-						.doubleValue();
-			}
-
+			FloatBuffer floats = buffer.asFloatBuffer();
+			for (int i = 0; i < w; i++)
+				row[i] = floats.get(i);
 			break;
 		case FLOAT64:
-			for (int i = 0, j = 0; i < pixelCount; i++, j += 8) {
-				longTmp = 0;
-				longTmp = longTmp | (int) (buffer[j] & 0xff);
-				longTmp = longTmp << 8;
-				longTmp = longTmp | (int) (buffer[j + 1] & 0xff);
-				longTmp = longTmp << 8;
-				longTmp = longTmp | (int) (buffer[j + 2] & 0xff);
-				longTmp = longTmp << 8;
-				longTmp = longTmp | (int) (buffer[j + 3] & 0xff);
-				longTmp = longTmp << 8;
-				longTmp = longTmp | (int) (buffer[j + 4] & 0xff);
-				longTmp = longTmp << 8;
-				longTmp = longTmp | (int) (buffer[j + 5] & 0xff);
-				longTmp = longTmp << 8;
-				longTmp = longTmp | (int) (buffer[j + 6] & 0xff);
-				longTmp = longTmp << 8;
-				longTmp = longTmp | (int) (buffer[j + 7] & 0xff);
-
-				pixels[i] = Double.longBitsToDouble(longTmp);
-			}
+			buffer.asDoubleBuffer().get(row, 0, w);
 			break;
 		case BYTE:
-			for (int i = 0; i < pixelCount; i++)
-				pixels[i] = (new Byte(buffer[i])).doubleValue();
+			int position = buffer.position();
+			for (int i = 0; i < w; i++)
+				row[i] = buffer.get(position + i);
 			break;
-		default:
-			return null;
 		}
-
-		return pixels;
 	}
 
 	private void getHeaders() throws IOException, InvalidFileFormatException {
@@ -376,7 +417,7 @@ public class FitsImageLoad extends Algorithm {
 		int skipCount = (count * RECORD_SIZE - 1) / 2880;
 		skipCount = (skipCount + 1) * HEADER_SIZE - count * RECORD_SIZE;
 
-		dis.skip(skipCount);
+		dataOffset = (long) count * RECORD_SIZE + skipCount;
 	}
 
 	private int getInteger(String s) {
@@ -418,4 +459,17 @@ public class FitsImageLoad extends Algorithm {
 	public static Image exec(String filename) {
 		return (Image) new FitsImageLoad().process(filename);
 	}
+
+	/**
+	 * Loads a window of a fits image.
+	 * 
+	 * @param filename Filename of the fits image.
+	 * @param window first column, first line, last column and last line, or
+	 *          null for the whole image
+	 * @param large flag to load the pixels into a LargeDoubleImage
+	 * @return the Fits image.
+	 */
+	public static Image exec(String filename, int[] window, boolean large) {
+		return (Image) new FitsImageLoad().process(filename, window, large);
+	}
 }
\ No newline at end of file
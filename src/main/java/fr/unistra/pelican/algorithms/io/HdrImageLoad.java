@@ -1,6 +1,7 @@
 package fr.unistra.pelican.algorithms.io;
 
 import fr.unistra.pelican.Algorithm;
+import fr.unistra.pelican.AlgorithmException;
 import fr.unistra.pelican.Image;
 import fr.unistra.pelican.util.remotesensing.HdrReader;
 
@@ -22,6 +23,17 @@ public class HdrImageLoad extends Algorithm {
 	 */
 	public Image output;
 
+	/**
+	 * (optional) window to read : first column, first line, last column and
+	 * last line, the whole image by default
+	 */
+	public int[] window = null;
+
+	/**
+	 * (optional) indexes of the bands to read, all by default
+	 */
+	public int[] bands = null;
+
 	/**
 	 * Constructor
 	 * 
@@ -30,6 +42,7 @@ public class HdrImageLoad extends Algorithm {
 
 		super();
 		super.inputs = "filename";
+		super.options = "window,bands";
 		super.outputs = "output";
 		
 	}
@@ -39,9 +52,14 @@ public class HdrImageLoad extends Algorithm {
 		// RawImage source = PicTool.load(filename);
 
 		// output = source.getPelicanImage();
-		output = new HdrReader().getPelicanImage(filename); // TODO utiliser
-															// plus tard une
-															// méthode statique
+		if (window != null && window.length != 4)
+			throw new AlgorithmException("The window is given by 4 coordinates");
+		if (window == null)
+			output = new HdrReader().getPelicanImage(filename, -1, -1, -1, -1,
+				bands);
+		else
+			output = new HdrReader().getPelicanImage(filename, window[0],
+				window[1], window[2], window[3], bands);
 
 	}
 	/**
@@ -53,4 +71,17 @@ public class HdrImageLoad extends Algorithm {
 	public static Image exec(String filename) {
 		return (Image) new HdrImageLoad().process(filename);
 	}
+
+	/**
+	 * Loads a window and a subset of the bands of an hdr image.
+	 * 
+	 * @param filename Filename of the hrd image.
+	 * @param window first column, first line, last column and last line, or
+	 *          null for the whole image
+	 * @param bands indexes of the bands to read, or null for all of them
+	 * @return The hdr image.
+	 */
+	public static Image exec(String filename, int[] window, int[] bands) {
+		return (Image) new HdrImageLoad().process(filename, window, bands);
+	}
 }
\ No newline at end of file
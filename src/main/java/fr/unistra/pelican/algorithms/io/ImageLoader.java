@@ -27,6 +27,7 @@ import fr.unistra.pelican.Image;
 import fr.unistra.pelican.IntegerImage;
 import fr.unistra.pelican.InvalidParameterException;
 import fr.unistra.pelican.PelicanException;
+import fr.unistra.pelican.util.RasterConversion;
 
 /**
  * General loading of an image. Add a hook in this algorithm when you write a
@@ -209,6 +210,15 @@ public class ImageLoader extends Algorithm {
 			return;
 		}
 
+		if (filename.endsWith("praw")) {
+			try {
+				outputImage = (Image) new PelicanRawImageLoad().process(filename);
+			} catch (PelicanException ex) {
+				ex.printStackTrace();
+			}
+			return;
+		}
+
 		if (filename.endsWith("pelican") || filename.endsWith("pel")
 			|| filename.endsWith("plc")) {
 			try {
@@ -256,9 +266,6 @@ public class ImageLoader extends Algorithm {
 				"PELICAN cannot load (ImageIO error) : " + filename);
 		}
 		outputImage = convertFromJAI(im,normalize);
-
-		// collect and recycle the garbage
-		System.gc();
 	}
 
 	public static Image convertFromJAI(BufferedImage im, boolean normalize) {
@@ -288,25 +295,30 @@ public class ImageLoader extends Algorithm {
 		// Images 8 bits
 		else if (im.getColorModel().getPixelSize() == 8 * band) {
 			ByteImage image8b = new ByteImage(width, height, 1, 1, band);
-			int loc=0;
-			for (int j = 0; j < height; j++)
-				for (int i = 0; i < width; i++)
-					for (int b = 0; b < band; b++)
-					{
-						image8b.setPixelByte(loc++, (byte) r.getSample(i, j, b));
-					}
+			// copy from the data buffer when its layout is known
+			if (!RasterConversion.copy(r, image8b)) {
+				int loc=0;
+				for (int j = 0; j < height; j++)
+					for (int i = 0; i < width; i++)
+						for (int b = 0; b < band; b++)
+						{
+							image8b.setPixelByte(loc++, (byte) r.getSample(i, j, b));
+						}
+			}
 			outputImage = image8b;
 		}
 		// Images 16 bits // BufferedImage.TYPE_USHORT_GRAY
 		else if (im.getColorModel().getPixelSize() == 16 * band) {
 			IntegerImage image16b = new IntegerImage(width, height, 1, 1, band);
-			int loc=0;
-			for (int j = 0; j < height; j++)
-				for (int i = 0; i < width; i++)
-					for (int b = 0; b < band; b++)
-					{
-						image16b.setPixelInt(loc++, r.getSample(i, j, b));
-					}
+			if (!RasterConversion.copy(r, image16b)) {
+				int loc=0;
+				for (int j = 0; j < height; j++)
+					for (int i = 0; i < width; i++)
+						for (int b = 0; b < band; b++)
+						{
+							image16b.setPixelInt(loc++, r.getSample(i, j, b));
+						}
+			}
 			outputImage = image16b;
 			if (normalize)
 				outputImage=image16b.convertToByteImage();
@@ -117,6 +117,9 @@ public class ImageSave extends Algorithm {
 					|| extension.compareTo("plc")==0) {
 				 PelicanImageSave.exec(input, filename);
 				return;
+			}else if ( extension.compareTo("praw")==0) {
+				PelicanRawImageSave.exec(input, filename);
+				return;
 			}else if ( extension.compareTo("osf")==0) {
 				if(input instanceof IntegerImage)
 				{
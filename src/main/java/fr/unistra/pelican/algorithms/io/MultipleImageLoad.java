@@ -8,10 +8,14 @@ import fr.unistra.pelican.AlgorithmException;
 import fr.unistra.pelican.ByteImage;
 import fr.unistra.pelican.Image;
 import fr.unistra.pelican.PelicanException;
+import fr.unistra.pelican.util.Parallel;
 
 /**
  * Modified in order to support additional dimensions and not only T.
  * 
+ * The images following the first one are loaded on several threads, one batch
+ * of files at a time, and inserted in the output by the calling thread.
+ * 
  * @author
  */
 
@@ -88,7 +92,7 @@ public class MultipleImageLoad extends Algorithm {
 					img.getBDim(), img.getTDim());
 		output.setImage4D(img, 0, dim);
 
-		// process other images
+		// process other images, several at a time
 		if (verbose)
 			System.out.print("Directory Load in Progress:");
 
@@ -98,19 +102,34 @@ public class MultipleImageLoad extends Algorithm {
 			lg /= 9;
 		else
 			lg = 1;
-
-		for (int i = 1; i < tab.length; i++) {
-			if (verbose)
-				if (i % lg == 0)
-					System.out.print(i / lg);
-			try {
-				// System.err.println("Loading " + tab[i].getPath());
-				output
-						.setImage4D(ImageLoader.exec(tab[i].getPath()), i,
-								dim);
-			} catch (PelicanException ex) {
-				throw new AlgorithmException("load error with file : "
-						+ tab[i].getPath());
+		final File[] files = tab;
+		// an image being written by one thread only, the loaded images are
+		// kept until the calling thread copies them
+		final Image[] batch = new Image[Parallel.getThreadCount()];
+
+		for (int first = 1; first < tab.length; first += batch.length) {
+			final int offset = first;
+			int count = Math.min(batch.length, tab.length - first);
+			Parallel.forItems(count, (int) Math.min(Integer.MAX_VALUE,
+				(long) count * img.size()), new Parallel.Range() {
+				public void run(int from, int to) {
+					for (int i = from; i < to; i++) {
+						try {
+							// System.err.println("Loading " + files[offset + i].getPath());
+							batch[i] = ImageLoader.exec(files[offset + i].getPath());
+						} catch (PelicanException ex) {
+							throw new AlgorithmException("load error with file : "
+								+ files[offset + i].getPath());
+						}
+					}
+				}
+			});
+			for (int i = 0; i < count; i++) {
+				output.setImage4D(batch[i], offset + i, dim);
+				batch[i] = null;
+				if (verbose)
+					if ((offset + i) % lg == 0)
+						System.out.print((offset + i) / lg);
 			}
 		}
 		if (verbose)
@@ -0,0 +1,326 @@
+package fr.unistra.pelican.algorithms.io;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Map;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+import fr.unistra.pelican.Algorithm;
+import fr.unistra.pelican.AlgorithmException;
+import fr.unistra.pelican.BooleanImage;
+import fr.unistra.pelican.ByteImage;
+import fr.unistra.pelican.DoubleImage;
+import fr.unistra.pelican.Image;
+import fr.unistra.pelican.IntegerImage;
+import fr.unistra.pelican.LargeBooleanImage;
+import fr.unistra.pelican.LargeByteImage;
+import fr.unistra.pelican.LargeDoubleImage;
+import fr.unistra.pelican.LargeIntegerImage;
+import fr.unistra.pelican.util.largeImages.LargeImageInterface;
+
+/**
+ * Loads images in PELICAN raw format (see PelicanRawImageSave).
+ *
+ * The pixels of an uncompressed file are mapped in memory and copied in bulk
+ * into the image. With the view flag, an uncompressed file is not read at
+ * all : a large image is attached to it, which reads the units of pixels only
+ * when they are accessed and writes the modified ones back into the file when
+ * they are discarded or when saveData() is called. Compressed files are
+ * always loaded entirely, chunk by chunk.
+ *
+ * @author PELICAN team
+ */
+public class PelicanRawImageLoad extends Algorithm {
+
+	/**
+	 * Filename of the image
+	 */
+	public String filename;
+
+	/**
+	 * (optional) flag to attach a large image to the file instead of loading
+	 * the pixels
+	 */
+	public boolean view = false;
+
+	/**
+	 * Image to load
+	 */
+	public Image output;
+
+	/**
+	 * Largest part of the file mapped at once
+	 */
+	private static final int WINDOW = 1 << 28;
+
+	/**
+	 * Constructor
+	 *
+	 */
+	public PelicanRawImageLoad() {
+		super.inputs = "filename";
+		super.options = "view";
+		super.outputs = "output";
+	}
+
+	public void launch() throws AlgorithmException {
+		try {
+			RandomAccessFile file = new RandomAccessFile(filename, "r");
+			try {
+				FileChannel channel = file.getChannel();
+				int length = PelicanRawImageSave.MAGIC.length();
+				if (channel.size() < length + 4 * 9 + 1 + 4)
+					throw new AlgorithmException("Not a PELICAN raw file : "
+						+ filename);
+				ByteBuffer header = read(channel, 0, length + 4 * 9 + 1 + 4);
+				byte[] magic = new byte[length];
+				header.get(magic);
+				if (!PelicanRawImageSave.MAGIC.equals(new String(magic, "US-ASCII")))
+					throw new AlgorithmException("Not a PELICAN raw file : "
+						+ filename);
+				int pixelType = header.getInt();
+				int xdim = header.getInt();
+				int ydim = header.getInt();
+				int zdim = header.getInt();
+				int tdim = header.getInt();
+				int bdim = header.getInt();
+				int compression = header.getInt();
+				int chunkSize = header.getInt();
+				int type = header.getInt();
+				boolean color = header.get() != 0;
+				long position = header.limit();
+				String name = null;
+				length = header.getInt();
+				if (length >= 0) {
+					name = new String(read(channel, position, length).array(),
+						"UTF-8");
+					position += length;
+				}
+				length = read(channel, position, 4).getInt();
+				position += 4;
+				Map<String, Object> properties = null;
+				if (length > 0) {
+					properties = properties(read(channel, position, length).array());
+					position += length;
+				}
+				long dataOffset = read(channel, position, 8).getLong();
+				int dataLength = PelicanRawImageSave.dataLength(pixelType);
+				long size = (long) xdim * ydim * zdim * tdim * bdim;
+
+				if (view && compression == PelicanRawImageSave.NONE) {
+					output = attach(new File(filename), dataOffset, pixelType, xdim,
+						ydim, zdim, tdim, bdim);
+				} else {
+					if (size > Integer.MAX_VALUE)
+						throw new AlgorithmException("Image too large to be loaded in "
+							+ "memory, it should be viewed : " + filename);
+					output = create(pixelType, xdim, ydim, zdim, tdim, bdim);
+					if (compression == PelicanRawImageSave.NONE) {
+						int step = WINDOW / dataLength;
+						for (long first = 0; first < size; first += step) {
+							int count = (int) Math.min(step, size - first);
+							ByteBuffer buffer = channel.map(
+								FileChannel.MapMode.READ_ONLY,
+								dataOffset + first * dataLength, (long) count * dataLength)
+								.order(ByteOrder.LITTLE_ENDIAN);
+							decode(buffer, output, pixelType, (int) first, count);
+						}
+					} else if (compression == PelicanRawImageSave.DEFLATE)
+						inflate(channel, dataOffset, output, pixelType, chunkSize,
+							(int) size);
+					else
+						throw new AlgorithmException("Unknown compression : "
+							+ compression);
+				}
+				output.type = type;
+				output.color = color;
+				output.setName(name);
+				if (properties != null)
+					output.properties.putAll(properties);
+			} finally {
+				file.close();
+			}
+		} catch (IOException ex) {
+			throw new AlgorithmException("file reading error with file: "
+				+ filename, ex);
+		}
+	}
+
+	/**
+	 * Reads length bytes of the file from the given position
+	 */
+	private static ByteBuffer read(FileChannel channel, long position,
+		int length) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(length).order(
+			ByteOrder.LITTLE_ENDIAN);
+		while (buffer.hasRemaining())
+			if (channel.read(buffer, position + buffer.position()) < 0)
+				throw new AlgorithmException("Truncated file");
+		buffer.flip();
+		return buffer;
+	}
+
+	/**
+	 * Attaches a large image of the given type to the pixels of the file
+	 */
+	private static Image attach(File file, long dataOffset, int pixelType,
+		int xdim, int ydim, int zdim, int tdim, int bdim) {
+		LargeImageInterface large;
+		switch (pixelType) {
+		case PelicanRawImageSave.BOOLEAN:
+			large = new LargeBooleanImage();
+			break;
+		case PelicanRawImageSave.BYTE:
+			large = new LargeByteImage();
+			break;
+		case PelicanRawImageSave.INTEGER:
+			large = new LargeIntegerImage();
+			break;
+		default:
+			large = new LargeDoubleImage();
+		}
+		large.setDim(xdim, ydim, zdim, tdim, bdim);
+		large.computeUnitSize(0);
+		large.calculate();
+		large.attachFile(file, dataOffset);
+		return (Image) large;
+	}
+
+	/**
+	 * Creates an image of the given type
+	 */
+	private static Image create(int pixelType, int xdim, int ydim, int zdim,
+		int tdim, int bdim) {
+		switch (pixelType) {
+		case PelicanRawImageSave.BOOLEAN:
+			return new BooleanImage(xdim, ydim, zdim, tdim, bdim);
+		case PelicanRawImageSave.BYTE:
+			return new ByteImage(xdim, ydim, zdim, tdim, bdim);
+		case PelicanRawImageSave.INTEGER:
+			return new IntegerImage(xdim, ydim, zdim, tdim, bdim);
+		default:
+			return new DoubleImage(xdim, ydim, zdim, tdim, bdim);
+		}
+	}
+
+	/**
+	 * Reads the compressed chunks into the image
+	 */
+	private static void inflate(FileChannel channel, long dataOffset,
+		Image image, int pixelType, int chunkSize, int size) throws IOException {
+		int dataLength = PelicanRawImageSave.dataLength(pixelType);
+		int chunks = (int) (((long) size + chunkSize - 1) / chunkSize);
+		ByteBuffer table = channel.map(FileChannel.MapMode.READ_ONLY,
+			dataOffset, 8L * (chunks + 1)).order(ByteOrder.LITTLE_ENDIAN);
+		ByteBuffer buffer = ByteBuffer.allocate(chunkSize * dataLength).order(
+			ByteOrder.LITTLE_ENDIAN);
+		Inflater inflater = new Inflater();
+		try {
+			long start = table.getLong();
+			for (int c = 0; c < chunks; c++) {
+				long end = table.getLong();
+				byte[] compressed = read(channel, start, (int) (end - start))
+					.array();
+				int first = c * chunkSize;
+				int count = Math.min(chunkSize, size - first);
+				inflater.reset();
+				inflater.setInput(compressed);
+				int length = 0;
+				while (length < count * dataLength && !inflater.finished())
+					length += inflater.inflate(buffer.array(), length, count
+						* dataLength - length);
+				if (length != count * dataLength)
+					throw new AlgorithmException("Corrupted chunk " + c);
+				buffer.clear();
+				buffer.limit(length);
+				decode(buffer, image, pixelType, first, count);
+				start = end;
+			}
+		} catch (DataFormatException ex) {
+			throw new AlgorithmException("Corrupted chunk", ex);
+		} finally {
+			inflater.end();
+		}
+	}
+
+	/**
+	 * Copies count pixels from the buffer into the image from the first one
+	 */
+	private static void decode(ByteBuffer buffer, Image image, int pixelType,
+		int first, int count) {
+		int end = first + count;
+		switch (pixelType) {
+		case PelicanRawImageSave.BOOLEAN:
+			for (int p = first; p < end; p++)
+				image.setPixelBoolean(p, buffer.get() != 0);
+			break;
+		case PelicanRawImageSave.BYTE:
+			byte[] bytes = ((ByteImage) image).getPixels();
+			buffer.get(bytes, first, count);
+			// stored with an offset of Byte.MIN_VALUE
+			for (int p = first; p < end; p++)
+				bytes[p] ^= Byte.MIN_VALUE;
+			break;
+		case PelicanRawImageSave.INTEGER:
+			IntBuffer ints = buffer.asIntBuffer();
+			for (int p = first; p < end; p++)
+				image.setPixelInt(p, ints.get());
+			break;
+		default:
+			DoubleBuffer doubles = buffer.asDoubleBuffer();
+			doubles.get(((DoubleImage) image).getPixelsUnsafe(), first, count);
+		}
+	}
+
+	/**
+	 * Reads the serialized properties
+	 */
+	@SuppressWarnings("unchecked")
+	private static Map<String, Object> properties(byte[] bytes)
+		throws IOException {
+		ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(
+			bytes));
+		try {
+			return (Map<String, Object>) in.readObject();
+		} catch (ClassNotFoundException ex) {
+			throw new AlgorithmException("Unknown class in the properties", ex);
+		} finally {
+			in.close();
+		}
+	}
+
+	/**
+	 * Loads an image in PELICAN raw format
+	 *
+	 * @param filename
+	 *          Filename of the image
+	 * @return the loaded image
+	 */
+	public static Image exec(String filename) {
+		return (Image) new PelicanRawImageLoad().process(filename);
+	}
+
+	/**
+	 * Loads an image in PELICAN raw format, or attaches a large image to its
+	 * pixels
+	 *
+	 * @param filename
+	 *          Filename of the image
+	 * @param view
+	 *          Flag to attach a large image to an uncompressed file
+	 * @return the loaded image
+	 */
+	public static Image exec(String filename, boolean view) {
+		return (Image) new PelicanRawImageLoad().process(filename, view);
+	}
+
+}
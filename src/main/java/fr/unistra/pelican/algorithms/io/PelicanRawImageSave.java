@@ -0,0 +1,371 @@
+package fr.unistra.pelican.algorithms.io;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.RandomAccessFile;
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.Map.Entry;
+import java.util.TreeMap;
+import java.util.zip.Deflater;
+
+import fr.unistra.pelican.Algorithm;
+import fr.unistra.pelican.AlgorithmException;
+import fr.unistra.pelican.BooleanImage;
+import fr.unistra.pelican.ByteImage;
+import fr.unistra.pelican.DoubleImage;
+import fr.unistra.pelican.Image;
+import fr.unistra.pelican.IntegerImage;
+import fr.unistra.pelican.util.largeImages.LargeImageInterface;
+
+/**
+ * Saves images in PELICAN raw format : a small header followed by the pixels
+ * stored as they are, in little-endian order. Unlike PelicanImageSave, no
+ * serialization is involved for the pixels, so a file can be read back with
+ * bulk copies, or attached to a large image whose units are read only when
+ * needed (see PelicanRawImageLoad).
+ *
+ * The header holds, in little-endian order : the magic string "PELRAW01", the
+ * pixel type, the five dimensions, the compression, the number of pixels of
+ * a chunk, the type and color fields, the name, the serializable properties
+ * and the offset of the pixels in the file.
+ *
+ * Booleans are stored as one byte 0 or 1, bytes unsigned, integers on 32 bits
+ * and doubles on 64 bits. Without compression, the pixels start on a 4096
+ * bytes boundary so that they can be mapped in memory. With compression, the
+ * pixels are split in chunks compressed separately with deflate, preceded by
+ * the table of the offsets of the chunks.
+ *
+ * @author PELICAN team
+ */
+public class PelicanRawImageSave extends Algorithm {
+
+	/**
+	 * First bytes of a PELICAN raw file
+	 */
+	public static final String MAGIC = "PELRAW01";
+
+	/**
+	 * Pixel types
+	 */
+	public static final int BOOLEAN = 0;
+
+	public static final int BYTE = 1;
+
+	public static final int INTEGER = 2;
+
+	public static final int DOUBLE = 3;
+
+	/**
+	 * Compression methods
+	 */
+	public static final int NONE = 0;
+
+	public static final int DEFLATE = 1;
+
+	/**
+	 * Alignment of the pixels in an uncompressed file
+	 */
+	public static final int ALIGNMENT = 4096;
+
+	/**
+	 * Image to be saved
+	 */
+	public Image input;
+
+	/**
+	 * Filename of the image
+	 */
+	public String filename;
+
+	/**
+	 * (optional) compression flag
+	 */
+	public boolean compression = false;
+
+	/**
+	 * (optional) number of pixels of a compressed chunk
+	 */
+	public int chunkSize = 1 << 20;
+
+	/**
+	 * Constructor
+	 *
+	 */
+	public PelicanRawImageSave() {
+		super.inputs = "input,filename";
+		super.options = "compression,chunkSize";
+		super.outputs = "";
+	}
+
+	public void launch() throws AlgorithmException {
+		if (chunkSize <= 0)
+			throw new AlgorithmException("The chunk size must be positive");
+		int pixelType = pixelType(input);
+		int dataLength = dataLength(pixelType);
+		long size = size(input);
+		try {
+			RandomAccessFile file = new RandomAccessFile(filename, "rw");
+			try {
+				file.setLength(0);
+				FileChannel channel = file.getChannel();
+				ByteBuffer header = header(input, pixelType, compression ? DEFLATE
+					: NONE, chunkSize);
+				long dataOffset = header.limit();
+				if (!compression)
+					dataOffset = (dataOffset + ALIGNMENT - 1) / ALIGNMENT * ALIGNMENT;
+				header.putLong(header.limit() - 8, dataOffset);
+				write(channel, header, 0);
+
+				int step = compression ? chunkSize : (1 << 20);
+				ByteBuffer buffer = ByteBuffer.allocate(step * dataLength).order(
+					ByteOrder.LITTLE_ENDIAN);
+				if (!compression) {
+					long position = dataOffset;
+					for (long first = 0; first < size; first += step) {
+						int count = (int) Math.min(step, size - first);
+						buffer.clear();
+						encode(input, pixelType, buffer, first, count);
+						buffer.flip();
+						position += write(channel, buffer, position);
+					}
+				} else {
+					// chunk table, filled once the chunks are written
+					int chunks = (int) ((size + chunkSize - 1) / chunkSize);
+					ByteBuffer table = ByteBuffer.allocate(8 * (chunks + 1)).order(
+						ByteOrder.LITTLE_ENDIAN);
+					long position = dataOffset + table.capacity();
+					Deflater deflater = new Deflater();
+					byte[] compressed = new byte[buffer.capacity() + 64];
+					try {
+						for (int c = 0; c < chunks; c++) {
+							long first = (long) c * chunkSize;
+							int count = (int) Math.min(chunkSize, size - first);
+							buffer.clear();
+							encode(input, pixelType, buffer, first, count);
+							deflater.reset();
+							deflater.setInput(buffer.array(), 0, buffer.position());
+							deflater.finish();
+							table.putLong(position);
+							while (!deflater.finished()) {
+								int length = deflater.deflate(compressed);
+								position += write(channel, ByteBuffer.wrap(compressed, 0,
+									length), position);
+							}
+						}
+					} finally {
+						deflater.end();
+					}
+					table.putLong(position);
+					table.flip();
+					write(channel, table, dataOffset);
+				}
+			} finally {
+				file.close();
+			}
+		} catch (IOException ex) {
+			throw new AlgorithmException("file writing error with file: "
+				+ filename, ex);
+		}
+	}
+
+	/**
+	 * Builds the header, the offset of the pixels being left to 0 in its last 8
+	 * bytes
+	 */
+	private static ByteBuffer header(Image image, int pixelType,
+		int compression, int chunkSize) throws IOException {
+		byte[] name = image.getName() == null ? null : image.getName().getBytes(
+			"UTF-8");
+		byte[] properties = properties(image);
+		ByteBuffer header = ByteBuffer.allocate(
+			MAGIC.length() + 4 * 9 + 1 + 4 + (name == null ? 0 : name.length) + 4
+				+ properties.length + 8).order(ByteOrder.LITTLE_ENDIAN);
+		header.put(MAGIC.getBytes("US-ASCII"));
+		header.putInt(pixelType);
+		header.putInt(image.getXDim());
+		header.putInt(image.getYDim());
+		header.putInt(image.getZDim());
+		header.putInt(image.getTDim());
+		header.putInt(image.getBDim());
+		header.putInt(compression);
+		header.putInt(compression == NONE ? 0 : chunkSize);
+		header.putInt(image.type);
+		header.put(image.color ? (byte) 1 : (byte) 0);
+		if (name == null)
+			header.putInt(-1);
+		else {
+			header.putInt(name.length);
+			header.put(name);
+		}
+		header.putInt(properties.length);
+		header.put(properties);
+		header.putLong(0);
+		header.flip();
+		return header;
+	}
+
+	/**
+	 * Serializes the properties of the image which can be, the others are not
+	 * saved
+	 */
+	private static byte[] properties(Image image) throws IOException {
+		if (image.properties == null || image.properties.isEmpty())
+			return new byte[0];
+		TreeMap<String, Object> saved = new TreeMap<String, Object>();
+		for (Entry<String, Object> e : image.properties.entrySet()) {
+			if (!(e.getValue() instanceof Serializable))
+				continue;
+			try {
+				new ObjectOutputStream(new ByteArrayOutputStream()).writeObject(e
+					.getValue());
+				saved.put(e.getKey(), e.getValue());
+			} catch (IOException ex) {
+				// a field of the value is not serializable
+			}
+		}
+		if (saved.isEmpty())
+			return new byte[0];
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		ObjectOutputStream out = new ObjectOutputStream(bytes);
+		out.writeObject(saved);
+		out.close();
+		return bytes.toByteArray();
+	}
+
+	/**
+	 * Writes the whole buffer at the given position
+	 *
+	 * @return the number of bytes written
+	 */
+	private static int write(FileChannel channel, ByteBuffer buffer,
+		long position) throws IOException {
+		int length = buffer.remaining();
+		while (buffer.hasRemaining())
+			position += channel.write(buffer, position);
+		return length;
+	}
+
+	/**
+	 * Puts count pixels of the image from the first one into the buffer
+	 */
+	private static void encode(Image image, int pixelType, ByteBuffer buffer,
+		long first, int count) {
+		if (image instanceof LargeImageInterface) {
+			LargeImageInterface large = (LargeImageInterface) image;
+			long end = first + count;
+			switch (pixelType) {
+			case BOOLEAN:
+				for (long p = first; p < end; p++)
+					buffer.put(large.getPixelBoolean(p) ? (byte) 1 : (byte) 0);
+				break;
+			case BYTE:
+				for (long p = first; p < end; p++)
+					buffer.put((byte) large.getPixelByte(p));
+				break;
+			case INTEGER:
+				for (long p = first; p < end; p++)
+					buffer.putInt(large.getPixelInt(p));
+				break;
+			default:
+				for (long p = first; p < end; p++)
+					buffer.putDouble(large.getPixelDouble(p));
+			}
+			return;
+		}
+		int from = (int) first;
+		int end = from + count;
+		switch (pixelType) {
+		case BOOLEAN:
+			for (int p = from; p < end; p++)
+				buffer.put(image.getPixelBoolean(p) ? (byte) 1 : (byte) 0);
+			break;
+		case BYTE:
+			byte[] bytes = ((ByteImage) image).getPixels();
+			// stored with an offset of Byte.MIN_VALUE
+			for (int p = from; p < end; p++)
+				buffer.put((byte) (bytes[p] ^ Byte.MIN_VALUE));
+			break;
+		case INTEGER:
+			for (int p = from; p < end; p++)
+				buffer.putInt(image.getPixelInt(p));
+			break;
+		default:
+			double[] doubles = ((DoubleImage) image).getPixelsUnsafe();
+			buffer.asDoubleBuffer().put(doubles, from, count);
+			buffer.position(buffer.position() + 8 * count);
+		}
+	}
+
+	/**
+	 * @return the pixel type of the image
+	 */
+	static int pixelType(Image image) {
+		if (image instanceof BooleanImage)
+			return BOOLEAN;
+		if (image instanceof ByteImage)
+			return BYTE;
+		if (image instanceof IntegerImage)
+			return INTEGER;
+		if (image instanceof DoubleImage)
+			return DOUBLE;
+		throw new AlgorithmException("Unsupported image type : "
+			+ image.getClass().getName());
+	}
+
+	/**
+	 * @return the number of bytes of a pixel of the given type
+	 */
+	static int dataLength(int pixelType) {
+		switch (pixelType) {
+		case BOOLEAN:
+		case BYTE:
+			return 1;
+		case INTEGER:
+			return 4;
+		case DOUBLE:
+			return 8;
+		default:
+			throw new AlgorithmException("Unknown pixel type : " + pixelType);
+		}
+	}
+
+	/**
+	 * @return the number of pixels of the image, which can exceed the range of
+	 *         an int for a large image
+	 */
+	static long size(Image image) {
+		return (long) image.getXDim() * image.getYDim() * image.getZDim()
+			* image.getTDim() * image.getBDim();
+	}
+
+	/**
+	 * Saves an image in PELICAN raw format, uncompressed
+	 *
+	 * @param input
+	 *          Image to be saved
+	 * @param filename
+	 *          Filename of the image
+	 */
+	public static void exec(Image input, String filename) {
+		new PelicanRawImageSave().process(input, filename);
+	}
+
+	/**
+	 * Saves an image in PELICAN raw format, optionally compressed
+	 *
+	 * @param input
+	 *          Image to be saved
+	 * @param filename
+	 *          Filename of the image
+	 * @param compression
+	 *          Flag to compress the pixels by chunks
+	 */
+	public static void exec(Image input, String filename, boolean compression) {
+		new PelicanRawImageSave().process(input, filename, compression);
+	}
+
+}
@@ -6,6 +6,8 @@ import fr.unistra.pelican.BooleanImage;
 import fr.unistra.pelican.ByteImage;
 import fr.unistra.pelican.Image;
 import fr.unistra.pelican.IntegerImage;
+import fr.unistra.pelican.PackedBooleanImage;
+import fr.unistra.pelican.util.Parallel;
 import fr.unistra.pelican.util.mask.MaskStack;
 
 /**
@@ -54,65 +56,94 @@ public class AND extends Algorithm {
 	 */
 	public void launch() throws AlgorithmException {
 
-		int size = this.inputImage1.size();
-
-		boolean isHere1,isHere2;
-		if ( this.inputImage1 instanceof BooleanImage 
+		if ( this.inputImage1 instanceof PackedBooleanImage 
+		  && this.inputImage2 instanceof PackedBooleanImage 
+		  && this.inputImage1.size() == this.inputImage2.size() 
+		  && this.inputImage1.getMask().isTransparent() 
+		  && this.inputImage2.getMask().isTransparent() ) { 
+
+			// every pixel is present, so 64 pixels are processed at a time
+			this.outputImage = new PackedBooleanImage( this.inputImage1, false );
+			final long[] words1 = ( (PackedBooleanImage) this.inputImage1 ).getWordsUnsafe();
+			final long[] words2 = ( (PackedBooleanImage) this.inputImage2 ).getWordsUnsafe();
+			final long[] words = ( (PackedBooleanImage) this.outputImage ).getWordsUnsafe();
+			Parallel.forItems( words.length, this.outputImage.size(), new Parallel.Range() {
+				public void run( int from, int to ) {
+					for ( int w = from; w < to; ++w )
+						words[w] = words1[w] & words2[w];
+				}
+			});
+		} else if ( this.inputImage1 instanceof BooleanImage 
 		  || this.inputImage2 instanceof BooleanImage ) { 
 
 			this.outputImage = new BooleanImage( this.inputImage1, false );
-			for ( int i = 0; i < size; ++i ) { 
-
-				isHere1 = this.inputImage1.isPresent(i);
-				isHere2 = this.inputImage2.isPresent(i);
-				boolean tmp = false;
-				if ( isHere1 && !isHere2 ) tmp = this.inputImage1.getPixelBoolean(i);
-				else 
-				if ( !isHere1 && isHere2 ) tmp = this.inputImage2.getPixelBoolean(i);
-				else 
-				if ( isHere1 && isHere2 ) 
-					tmp = this.inputImage1.getPixelBoolean(i) 
-						& this.inputImage2.getPixelBoolean(i);
-
-				this.outputImage.setPixelBoolean( i,tmp );
-			}
+			Parallel.forPixels(this.outputImage, new Parallel.Range() {
+				public void run(int from, int to) {
+					boolean isHere1,isHere2;
+					for ( int i = from; i < to; ++i ) { 
+
+						isHere1 = inputImage1.isPresent(i);
+						isHere2 = inputImage2.isPresent(i);
+						boolean tmp = false;
+						if ( isHere1 && !isHere2 ) tmp = inputImage1.getPixelBoolean(i);
+						else 
+						if ( !isHere1 && isHere2 ) tmp = inputImage2.getPixelBoolean(i);
+						else 
+						if ( isHere1 && isHere2 ) 
+							tmp = inputImage1.getPixelBoolean(i) 
+								& inputImage2.getPixelBoolean(i);
+
+						outputImage.setPixelBoolean( i,tmp );
+					}
+				}
+			});
 		} else if ( this.inputImage1 instanceof ByteImage
 				||  this.inputImage2 instanceof ByteImage) { 
 
 			this.outputImage = new ByteImage(inputImage1, false);
 
-			for ( int i = 0; i < size; ++i ) { 
-
-				isHere1 = this.inputImage1.isPresent(i);
-				isHere2 = this.inputImage2.isPresent(i);
-				int tmp = 0;
-				if ( isHere1 && !isHere2 ) tmp = this.inputImage1.getPixelByte(i);
-				else 
-				if ( !isHere1 && isHere2 ) tmp = this.inputImage2.getPixelByte(i);
-				else 
-				if ( isHere1 && isHere2 ) 
-					tmp = this.inputImage1.getPixelByte(i)
-						& this.inputImage2.getPixelByte(i);
-				this.outputImage.setPixelByte( i,tmp );
-			}
+			Parallel.forPixels(this.outputImage, new Parallel.Range() {
+				public void run(int from, int to) {
+					boolean isHere1,isHere2;
+					for ( int i = from; i < to; ++i ) { 
+
+						isHere1 = inputImage1.isPresent(i);
+						isHere2 = inputImage2.isPresent(i);
+						int tmp = 0;
+						if ( isHere1 && !isHere2 ) tmp = inputImage1.getPixelByte(i);
+						else 
+						if ( !isHere1 && isHere2 ) tmp = inputImage2.getPixelByte(i);
+						else 
+						if ( isHere1 && isHere2 ) 
+							tmp = inputImage1.getPixelByte(i)
+								& inputImage2.getPixelByte(i);
+						outputImage.setPixelByte( i,tmp );
+					}
+				}
+			});
 		} else if ( this.inputImage1 instanceof IntegerImage
 				 || this.inputImage2 instanceof IntegerImage) {
 			this.outputImage = new IntegerImage( this.inputImage1, false) ;
 
-			for (int i = 0; i < size; ++i) {
-
-				isHere1 = this.inputImage1.isPresent(i);
-				isHere2 = this.inputImage2.isPresent(i);
-				int tmp = 0;
-				if ( isHere1 && !isHere2 ) tmp = this.inputImage1.getPixelInt(i);
-				else 
-				if ( !isHere1 && isHere2 ) tmp = this.inputImage2.getPixelInt(i);
-				else 
-				if ( isHere1 && isHere2 ) 
-					tmp = this.inputImage1.getPixelInt(i)
-						& this.inputImage2.getPixelInt(i);
-				this.outputImage.setPixelInt( i,tmp );
-			}
+			Parallel.forPixels(this.outputImage, new Parallel.Range() {
+				public void run(int from, int to) {
+					boolean isHere1,isHere2;
+					for (int i = from; i < to; ++i) {
+
+						isHere1 = inputImage1.isPresent(i);
+						isHere2 = inputImage2.isPresent(i);
+						int tmp = 0;
+						if ( isHere1 && !isHere2 ) tmp = inputImage1.getPixelInt(i);
+						else 
+						if ( !isHere1 && isHere2 ) tmp = inputImage2.getPixelInt(i);
+						else 
+						if ( isHere1 && isHere2 ) 
+							tmp = inputImage1.getPixelInt(i)
+								& inputImage2.getPixelInt(i);
+						outputImage.setPixelInt( i,tmp );
+					}
+				}
+			});
 		} else throw new AlgorithmException( "AND cannot be applied to floating point data" );
 
 		MaskStack mask = new MaskStack( MaskStack.AND );
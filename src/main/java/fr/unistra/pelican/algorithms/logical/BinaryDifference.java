@@ -3,6 +3,7 @@ package fr.unistra.pelican.algorithms.logical;
 import fr.unistra.pelican.Algorithm;
 import fr.unistra.pelican.AlgorithmException;
 import fr.unistra.pelican.Image;
+import fr.unistra.pelican.util.Parallel;
 import fr.unistra.pelican.util.mask.MaskStack;
 
 /**
@@ -59,24 +60,26 @@ public class BinaryDifference extends Algorithm {
 		mask.push( this.inputImage2.getMask() );
 		this.outputImage.setMask( mask );
 
-		int size = inputImage1.size();
+		Parallel.forPixels(outputImage, new Parallel.Range() {
+			public void run(int from, int to) {
+				boolean tmp, isHere1,isHere2;
+				for ( int i = from ; i < to; ++i ) { 
 
-		boolean tmp, isHere1,isHere2;
-		for ( int i = 0 ; i < size; ++i ) { 
+					tmp = false;
+					isHere1 = inputImage1.isPresent(i);
+					isHere2 = inputImage2.isPresent(i);
+					if ( isHere1 && !isHere2 ) tmp = inputImage1.getPixelBoolean(i);
+					else 
+					if ( !isHere1 && isHere2 ) tmp = !inputImage2.getPixelBoolean(i);
+					else 
+					if ( isHere1 && isHere2 ) 
+						tmp =  ( inputImage1.getPixelBoolean(i) == true )
+							&& ( inputImage2.getPixelBoolean(i) == false );
 
-			tmp = false;
-			isHere1 = this.inputImage1.isPresent(i);
-			isHere2 = this.inputImage2.isPresent(i);
-			if ( isHere1 && !isHere2 ) tmp = this.inputImage1.getPixelBoolean(i);
-			else 
-			if ( !isHere1 && isHere2 ) tmp = !this.inputImage2.getPixelBoolean(i);
-			else 
-			if ( isHere1 && isHere2 ) 
-				tmp =  ( this.inputImage1.getPixelBoolean(i) == true )
-					&& ( this.inputImage2.getPixelBoolean(i) == false );
-
-			this.outputImage.setPixelBoolean(i, tmp);
-		}
+					outputImage.setPixelBoolean(i, tmp);
+				}
+			}
+		});
 	}
 	
 	/**
@@ -1,6 +1,7 @@
 package fr.unistra.pelican.algorithms.logical;
 
 import fr.unistra.pelican.*;
+import fr.unistra.pelican.util.Parallel;
 
 /**
  *	Computes a comparison beetwen an image and a constant value.
@@ -83,139 +84,141 @@ public class CompareConstant extends Algorithm {
 
 		this.outputImage = new BooleanImage( this.inputImage1, false );
 		this.outputImage.setMask( this.inputImage1.getMask() );
-		boolean tmp = false;
-		int size = this.inputImage1.size();
-
-		if ( this.inputImage1 instanceof ByteImage) { 
-
-			ByteImage image = (ByteImage)this.inputImage1;
-			switch ( this.compOperator ) { 
-			case SUP:
-				for (int i = 0; i < size; ++i) { 
-
-					tmp = (image.getPixelByte(i) > this.input2);
-					this.outputImage.setPixelBoolean(i, tmp);
-				}
-				break;
-			case GEQ:
-				for (int i = 0; i < size; ++i) { 
-
-					tmp = (image.getPixelByte(i) >= this.input2);
-					this.outputImage.setPixelBoolean(i, tmp);
-				}
-				break;
-			case EQ:
-				for (int i = 0; i < size; ++i) { 
-
-					tmp = (image.getPixelByte(i) == this.input2);
-					this.outputImage.setPixelBoolean(i, tmp);
-				}
-				break;
-			case NEQ:
-				for (int i = 0; i < size; ++i) { 
-
-					tmp = (image.getPixelByte(i) != this.input2);
-					this.outputImage.setPixelBoolean(i, tmp);
-				}
-				break;
-			case LEQ:
-				for (int i = 0; i < size; ++i) { 
-
-					tmp = (image.getPixelByte(i) <= this.input2);
-					this.outputImage.setPixelBoolean(i, tmp);
-				}
-				break;
-			case INF:
-				for (int i = 0; i < size; ++i) { 
-
-					tmp = (image.getPixelByte(i) < this.input2);
-					this.outputImage.setPixelBoolean(i, tmp);
-				}
-				break;
-			}
-		}		
-		else if (inputImage1 instanceof IntegerImage) {
-			IntegerImage image=(IntegerImage)inputImage1;
-			switch (compOperator) {
-			case SUP:
-				for (int i = 0; i < size; ++i) {
-					tmp = (image.getPixelInt(i) > input2);
-					outputImage.setPixelBoolean(i, tmp);
-				}
-				break;
-			case GEQ:
-				for (int i = 0; i < size; ++i) {
-					tmp = (image.getPixelInt(i) >= input2);
-					outputImage.setPixelBoolean(i, tmp);
-				}
-				break;
-			case EQ:
-				for (int i = 0; i < size; ++i) {
-					tmp = (image.getPixelInt(i) == input2);
-					outputImage.setPixelBoolean(i, tmp);
-				}
-				break;
-			case NEQ:
-				for (int i = 0; i < size; ++i) {
-					tmp = (image.getPixelInt(i) != input2);
-					outputImage.setPixelBoolean(i, tmp);
-				}
-				break;
-			case LEQ:
-				for (int i = 0; i < size; ++i) {
-					tmp = (image.getPixelInt(i) <= input2);
-					outputImage.setPixelBoolean(i, tmp);
-				}
-				break;
-			case INF:
-				for (int i = 0; i < size; ++i) {
-					tmp = (image.getPixelInt(i) < input2);
-					outputImage.setPixelBoolean(i, tmp);
-				}
-				break;
-			}
-		}
-		else if (inputImage1 instanceof DoubleImage) {
-			DoubleImage image=(DoubleImage)inputImage1;
-						switch (compOperator) {
-			case SUP:
-				for (int i = 0; i < size; ++i) {
-					tmp = (image.getPixelDouble(i) > input2);
-					outputImage.setPixelBoolean(i, tmp);
-				}
-				break;
-			case GEQ:
-				for (int i = 0; i < size; ++i) {
-					tmp = (image.getPixelDouble(i) >= input2);
-					outputImage.setPixelBoolean(i, tmp);
-				}
-				break;
-			case EQ:
-				for (int i = 0; i < size; ++i) {
-					tmp = (image.getPixelDouble(i) == input2);
-					outputImage.setPixelBoolean(i, tmp);
-				}
-				break;
-			case NEQ:
-				for (int i = 0; i < size; ++i) {
-					tmp = (image.getPixelDouble(i) != input2);
-					outputImage.setPixelBoolean(i, tmp);
-				}
-				break;
-			case LEQ:
-				for (int i = 0; i < size; ++i) {
-					tmp = (image.getPixelDouble(i) <= input2);
-					outputImage.setPixelBoolean(i, tmp);
-				}
-				break;
-			case INF:
-				for (int i = 0; i < size; ++i) {
-					tmp = (image.getPixelDouble(i) < input2);
-					outputImage.setPixelBoolean(i, tmp);
+		Parallel.forPixels(this.outputImage, new Parallel.Range() {
+			public void run(int from, int to) {
+				boolean tmp = false;
+				if ( inputImage1 instanceof ByteImage) { 
+
+					ByteImage image = (ByteImage)inputImage1;
+					switch ( compOperator ) { 
+					case SUP:
+						for (int i = from; i < to; ++i) { 
+
+							tmp = (image.getPixelByte(i) > input2);
+							outputImage.setPixelBoolean(i, tmp);
+						}
+						break;
+					case GEQ:
+						for (int i = from; i < to; ++i) { 
+
+							tmp = (image.getPixelByte(i) >= input2);
+							outputImage.setPixelBoolean(i, tmp);
+						}
+						break;
+					case EQ:
+						for (int i = from; i < to; ++i) { 
+
+							tmp = (image.getPixelByte(i) == input2);
+							outputImage.setPixelBoolean(i, tmp);
+						}
+						break;
+					case NEQ:
+						for (int i = from; i < to; ++i) { 
+
+							tmp = (image.getPixelByte(i) != input2);
+							outputImage.setPixelBoolean(i, tmp);
+						}
+						break;
+					case LEQ:
+						for (int i = from; i < to; ++i) { 
+
+							tmp = (image.getPixelByte(i) <= input2);
+							outputImage.setPixelBoolean(i, tmp);
+						}
+						break;
+					case INF:
+						for (int i = from; i < to; ++i) { 
+
+							tmp = (image.getPixelByte(i) < input2);
+							outputImage.setPixelBoolean(i, tmp);
+						}
+						break;
+					}
+				}		
+				else if (inputImage1 instanceof IntegerImage) {
+					IntegerImage image=(IntegerImage)inputImage1;
+					switch (compOperator) {
+					case SUP:
+						for (int i = from; i < to; ++i) {
+							tmp = (image.getPixelInt(i) > input2);
+							outputImage.setPixelBoolean(i, tmp);
+						}
+						break;
+					case GEQ:
+						for (int i = from; i < to; ++i) {
+							tmp = (image.getPixelInt(i) >= input2);
+							outputImage.setPixelBoolean(i, tmp);
+						}
+						break;
+					case EQ:
+						for (int i = from; i < to; ++i) {
+							tmp = (image.getPixelInt(i) == input2);
+							outputImage.setPixelBoolean(i, tmp);
+						}
+						break;
+					case NEQ:
+						for (int i = from; i < to; ++i) {
+							tmp = (image.getPixelInt(i) != input2);
+							outputImage.setPixelBoolean(i, tmp);
+						}
+						break;
+					case LEQ:
+						for (int i = from; i < to; ++i) {
+							tmp = (image.getPixelInt(i) <= input2);
+							outputImage.setPixelBoolean(i, tmp);
+						}
+						break;
+					case INF:
+						for (int i = from; i < to; ++i) {
+							tmp = (image.getPixelInt(i) < input2);
+							outputImage.setPixelBoolean(i, tmp);
+						}
+						break;
+					}
+				}
+				else if (inputImage1 instanceof DoubleImage) {
+					DoubleImage image=(DoubleImage)inputImage1;
+								switch (compOperator) {
+					case SUP:
+						for (int i = from; i < to; ++i) {
+							tmp = (image.getPixelDouble(i) > input2);
+							outputImage.setPixelBoolean(i, tmp);
+						}
+						break;
+					case GEQ:
+						for (int i = from; i < to; ++i) {
+							tmp = (image.getPixelDouble(i) >= input2);
+							outputImage.setPixelBoolean(i, tmp);
+						}
+						break;
+					case EQ:
+						for (int i = from; i < to; ++i) {
+							tmp = (image.getPixelDouble(i) == input2);
+							outputImage.setPixelBoolean(i, tmp);
+						}
+						break;
+					case NEQ:
+						for (int i = from; i < to; ++i) {
+							tmp = (image.getPixelDouble(i) != input2);
+							outputImage.setPixelBoolean(i, tmp);
+						}
+						break;
+					case LEQ:
+						for (int i = from; i < to; ++i) {
+							tmp = (image.getPixelDouble(i) <= input2);
+							outputImage.setPixelBoolean(i, tmp);
+						}
+						break;
+					case INF:
+						for (int i = from; i < to; ++i) {
+							tmp = (image.getPixelDouble(i) < input2);
+							outputImage.setPixelBoolean(i, tmp);
+						}
+						break;
+					}
 				}
-				break;
 			}
-		}
+		});
 	}
 
 	/**
@@ -4,6 +4,7 @@ import fr.unistra.pelican.Algorithm;
 import fr.unistra.pelican.AlgorithmException;
 import fr.unistra.pelican.BooleanImage;
 import fr.unistra.pelican.Image;
+import fr.unistra.pelican.util.Parallel;
 
 /**
  *	Computes a comparison beetwen two binary images
@@ -89,44 +90,46 @@ public class CompareImage extends Algorithm {
 		outputImage = new BooleanImage(inputImage1, false);
 		outputImage.setMask( inputImage1.getMask() );
 
-		boolean tmp = false;
-		int size = inputImage1.size();
-
-		for (int i = 0; i < size; ++i) {
-			switch (compOperator) {
-			case SUP:
-				if ( inputImage2.isPresent(i) ) 
-					tmp = (inputImage1.getPixelDouble(i) > inputImage2.getPixelDouble(i));
-				else tmp = inputImage1.getPixelBoolean(i);
-				break;
-			case GEQ:
-				if ( inputImage2.isPresent(i) ) 
-					tmp = (inputImage1.getPixelDouble(i) >= inputImage2.getPixelDouble(i));
-				else tmp = inputImage1.getPixelBoolean(i);
-				break;
-			case EQ:
-				if ( inputImage2.isPresent(i) ) 
-					tmp = (inputImage1.getPixelDouble(i) == inputImage2.getPixelDouble(i));
-				else tmp = inputImage1.getPixelBoolean(i);
-				break;
-			case NEQ:
-				if ( inputImage2.isPresent(i) ) 
-					tmp = (inputImage1.getPixelDouble(i) != inputImage2.getPixelDouble(i));
-				else tmp = inputImage1.getPixelBoolean(i);
-				break;
-			case LEQ:
-				if ( inputImage2.isPresent(i) ) 
-					tmp = (inputImage1.getPixelDouble(i) <= inputImage2.getPixelDouble(i));
-				else tmp = inputImage1.getPixelBoolean(i);
-				break;
-			case INF:
-				if ( inputImage2.isPresent(i) ) 
-					tmp = (inputImage1.getPixelDouble(i) < inputImage2.getPixelDouble(i));
-				else tmp = inputImage1.getPixelBoolean(i);
-				break;
+		Parallel.forPixels(outputImage, new Parallel.Range() {
+			public void run(int from, int to) {
+				boolean tmp = false;
+				for (int i = from; i < to; ++i) {
+					switch (compOperator) {
+					case SUP:
+						if ( inputImage2.isPresent(i) ) 
+							tmp = (inputImage1.getPixelDouble(i) > inputImage2.getPixelDouble(i));
+						else tmp = inputImage1.getPixelBoolean(i);
+						break;
+					case GEQ:
+						if ( inputImage2.isPresent(i) ) 
+							tmp = (inputImage1.getPixelDouble(i) >= inputImage2.getPixelDouble(i));
+						else tmp = inputImage1.getPixelBoolean(i);
+						break;
+					case EQ:
+						if ( inputImage2.isPresent(i) ) 
+							tmp = (inputImage1.getPixelDouble(i) == inputImage2.getPixelDouble(i));
+						else tmp = inputImage1.getPixelBoolean(i);
+						break;
+					case NEQ:
+						if ( inputImage2.isPresent(i) ) 
+							tmp = (inputImage1.getPixelDouble(i) != inputImage2.getPixelDouble(i));
+						else tmp = inputImage1.getPixelBoolean(i);
+						break;
+					case LEQ:
+						if ( inputImage2.isPresent(i) ) 
+							tmp = (inputImage1.getPixelDouble(i) <= inputImage2.getPixelDouble(i));
+						else tmp = inputImage1.getPixelBoolean(i);
+						break;
+					case INF:
+						if ( inputImage2.isPresent(i) ) 
+							tmp = (inputImage1.getPixelDouble(i) < inputImage2.getPixelDouble(i));
+						else tmp = inputImage1.getPixelBoolean(i);
+						break;
+					}
+					outputImage.setPixelBoolean( i,tmp );
+				}
 			}
-			outputImage.setPixelBoolean( i,tmp );
-		}
+		});
 	}
 	
 	/**
@@ -3,6 +3,7 @@ package fr.unistra.pelican.algorithms.logical;
 import fr.unistra.pelican.Algorithm;
 import fr.unistra.pelican.AlgorithmException;
 import fr.unistra.pelican.Image;
+import fr.unistra.pelican.util.Parallel;
 
 /**
  *	This class realizes a sub-quantization of the input ByteImage.
@@ -62,20 +63,25 @@ public class Quantization extends Algorithm {
 		output.setMask(input.getMask());
 		if (bit >= 1 && bit <= 8) 
 		{
-			int shift = 8 - bit;
-			if(mode==LEVELSTEP)
-			{
-				for (int i = input.size(); --i >= 0;) 
-				{
-					output.setPixelByte(i, (input.getPixelByte(i) >> shift) << shift);
+			final int shift = 8 - bit;
+			final boolean levelStep = mode==LEVELSTEP;
+			Parallel.forPixels(output, new Parallel.Range() {
+				public void run(int from, int to) {
+					if(levelStep)
+					{
+						for (int i = from; i < to; i++) 
+						{
+							output.setPixelByte(i, (input.getPixelByte(i) >> shift) << shift);
+						}
+					} else
+					{
+						for (int i = from; i < to; i++) 
+						{
+							output.setPixelByte(i, input.getPixelByte(i) >> shift);
+						}
+					}
 				}
-			} else
-			{
-				for (int i = input.size(); --i >= 0;) 
-				{
-					output.setPixelByte(i, input.getPixelByte(i) >> shift);
-				}
-			}
+			});
 		} else
 			throw new AlgorithmException("The bit number must be in [1,8]");
 	}
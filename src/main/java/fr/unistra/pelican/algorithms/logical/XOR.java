@@ -6,6 +6,8 @@ import fr.unistra.pelican.BooleanImage;
 import fr.unistra.pelican.ByteImage;
 import fr.unistra.pelican.Image;
 import fr.unistra.pelican.IntegerImage;
+import fr.unistra.pelican.PackedBooleanImage;
+import fr.unistra.pelican.util.Parallel;
 import fr.unistra.pelican.util.mask.MaskStack;
 
 /**
@@ -53,55 +55,82 @@ public class XOR extends Algorithm {
 	 * @see fr.unistra.pelican.Algorithm#launch()
 	 */
 	public void launch() throws AlgorithmException {
-		int size = inputImage1.size();
+		if ( inputImage1 instanceof PackedBooleanImage && inputImage2 instanceof PackedBooleanImage 
+				&& inputImage1.size() == inputImage2.size()
+				&& inputImage1.getMask().isTransparent() && inputImage2.getMask().isTransparent() ) { 
+			// every pixel is present, so 64 pixels are processed at a time
+			outputImage = new PackedBooleanImage(inputImage1, false);
+			final long[] words1 = ((PackedBooleanImage) inputImage1).getWordsUnsafe();
+			final long[] words2 = ((PackedBooleanImage) inputImage2).getWordsUnsafe();
+			final long[] words = ((PackedBooleanImage) outputImage).getWordsUnsafe();
 
-		boolean isHere1,isHere2;
-		if ( inputImage1 instanceof BooleanImage || inputImage2 instanceof BooleanImage ) { 
+			Parallel.forItems(words.length, outputImage.size(), new Parallel.Range() {
+				public void run(int from, int to) {
+					for (int w = from; w < to; ++w)
+						words[w] = words1[w] ^ words2[w];
+				}
+			});
+		} else if ( inputImage1 instanceof BooleanImage || inputImage2 instanceof BooleanImage ) { 
 			outputImage = new BooleanImage(inputImage1, false);
 
-			for (int i = 0; i < size; ++i) {
-				boolean tmp = false;
-				isHere1 =  inputImage1.isPresent(i);
-				isHere2 =  inputImage2.isPresent(i);
-				if ( isHere1 && !isHere2 ) tmp = inputImage1.getPixelBoolean(i);
-				else 
-				if ( !isHere1 && isHere2 ) tmp = inputImage2.getPixelBoolean(i);
-				else 
-				if ( isHere1 && isHere2 ) 
-					tmp = inputImage1.getPixelBoolean(i) ^ inputImage2.getPixelBoolean(i);
+			Parallel.forPixels(outputImage, new Parallel.Range() {
+				public void run(int from, int to) {
+					boolean isHere1,isHere2;
+					for (int i = from; i < to; ++i) {
+						boolean tmp = false;
+						isHere1 =  inputImage1.isPresent(i);
+						isHere2 =  inputImage2.isPresent(i);
+						if ( isHere1 && !isHere2 ) tmp = inputImage1.getPixelBoolean(i);
+						else 
+						if ( !isHere1 && isHere2 ) tmp = inputImage2.getPixelBoolean(i);
+						else 
+						if ( isHere1 && isHere2 ) 
+							tmp = inputImage1.getPixelBoolean(i) ^ inputImage2.getPixelBoolean(i);
 
-				outputImage.setPixelBoolean(i, tmp);
-			}
+						outputImage.setPixelBoolean(i, tmp);
+					}
+				}
+			});
 		} else if ( inputImage1 instanceof ByteImage || inputImage2 instanceof ByteImage ) { 
 			outputImage = new ByteImage(inputImage1, false);
 
-			for (int i = 0; i < size; ++i) {
-				int tmp = 0;
-				isHere1 =  inputImage1.isPresent(i);
-				isHere2 =  inputImage2.isPresent(i);
-				if ( isHere1 && !isHere2 ) tmp = inputImage1.getPixelByte(i);
-				else 
-				if ( !isHere1 && isHere2 ) tmp = inputImage2.getPixelByte(i);
-				else 
-				if ( isHere1 && isHere2 ) 
-					tmp = inputImage1.getPixelByte(i) ^ inputImage2.getPixelByte(i);
-				outputImage.setPixelByte(i, tmp);
-			}
+			Parallel.forPixels(outputImage, new Parallel.Range() {
+				public void run(int from, int to) {
+					boolean isHere1,isHere2;
+					for (int i = from; i < to; ++i) {
+						int tmp = 0;
+						isHere1 =  inputImage1.isPresent(i);
+						isHere2 =  inputImage2.isPresent(i);
+						if ( isHere1 && !isHere2 ) tmp = inputImage1.getPixelByte(i);
+						else 
+						if ( !isHere1 && isHere2 ) tmp = inputImage2.getPixelByte(i);
+						else 
+						if ( isHere1 && isHere2 ) 
+							tmp = inputImage1.getPixelByte(i) ^ inputImage2.getPixelByte(i);
+						outputImage.setPixelByte(i, tmp);
+					}
+				}
+			});
 		} else if ( inputImage1 instanceof IntegerImage || inputImage2 instanceof IntegerImage ) { 
 			outputImage = new IntegerImage(inputImage1, false);
 
-			for (int i = 0; i < size; ++i) {
-				int tmp = 0;
-				isHere1 =  inputImage1.isPresent(i);
-				isHere2 =  inputImage2.isPresent(i);
-				if ( isHere1 && !isHere2 ) tmp = inputImage1.getPixelInt(i);
-				else 
-				if ( !isHere1 && isHere2 ) tmp = inputImage2.getPixelInt(i);
-				else 
-				if ( isHere1 && isHere2 ) 
-					tmp = inputImage1.getPixelInt(i) ^ inputImage2.getPixelInt(i);
-				outputImage.setPixelInt(i, tmp);
-			}
+			Parallel.forPixels(outputImage, new Parallel.Range() {
+				public void run(int from, int to) {
+					boolean isHere1,isHere2;
+					for (int i = from; i < to; ++i) {
+						int tmp = 0;
+						isHere1 =  inputImage1.isPresent(i);
+						isHere2 =  inputImage2.isPresent(i);
+						if ( isHere1 && !isHere2 ) tmp = inputImage1.getPixelInt(i);
+						else 
+						if ( !isHere1 && isHere2 ) tmp = inputImage2.getPixelInt(i);
+						else 
+						if ( isHere1 && isHere2 ) 
+							tmp = inputImage1.getPixelInt(i) ^ inputImage2.getPixelInt(i);
+						outputImage.setPixelInt(i, tmp);
+					}
+				}
+			});
 		} else throw new AlgorithmException( "XOR cannot be applied to floating point data" );
 
 
@@ -1,8 +1,11 @@
 package fr.unistra.pelican.algorithms.morphology.binary;
 
 import fr.unistra.pelican.*;
+import fr.unistra.pelican.util.Parallel;
 import fr.unistra.pelican.util.Point4D;
 import fr.unistra.pelican.util.buffers.BooleanBuffers;
+import fr.unistra.pelican.util.morphology.FlatMorphology;
+import fr.unistra.pelican.util.morphology.PackedMorphology;
 
 
 /**
@@ -159,54 +162,34 @@ public class BinaryDilation extends Algorithm {
 			case fr.unistra.pelican.algorithms.morphology.gray.GrayErosion.VANHERK_VLINE_OPTIMIZATION: 
 				this.verticalDilation();
 				break;
-			default : // try to find a possible optimization ...
-				int opt = fr.unistra.pelican.algorithms.morphology.gray.GrayErosion
-							.wichOptimization( this.se, this.inputImage );
-				if ( opt == fr.unistra.pelican.algorithms.morphology.gray.GrayErosion.NO_OPTIMIZATION ) 
-					this.standardDilation();
-				else this.outputImage = 
-					BinaryDilation.exec( this.inputImage,this.se,option,convexSEFlag,opt );
+			default : // the engine handles any structuring element
+				this.standardDilation();
 		}
 	}
 	  ///////////////////
 	 // OTHER METHODS //
 	///////////////////
 
+	/**	Performs the dilation with the flat morphology engine, whatever the shape of 
+	 *	the structuring element and the size of the image. 
+	 */
 	private void standardDilation() { 
 
-		int xDim = this.inputImage.getXDim();
-		int yDim = this.inputImage.getYDim();
-		int tDim = this.inputImage.getTDim();
-		int bDim = this.inputImage.getBDim();
-		int zDim = this.inputImage.getZDim();
-
 		this.outputImage = this.inputImage.copyImage(false);
-		Point4D[] points = this.se.foreground();
+		if ( this.inputImage instanceof PackedBooleanImage 
+			 && this.inputImage.getMask().isTransparent() ) { 
 
-		boolean isHere;
-		
-		for ( int t = 0 ; t < tDim ; t++ )
-		for ( int z = 0 ; z < zDim ; z++ )
-		for ( int y = 0 ; y < yDim ; y++ ) 
-		for ( int x = 0 ; x < xDim ; x++ )
-		for ( int b = 0 ; b < bDim ; b++ )
-		{ 
-
-			isHere = this.inputImage.isPresent( x,y,z,t,b );
-			if  ( !isHere && this.option == IGNORE ) continue; 
-
-			
-//			// FIXME sans doute encore un bug !!!!
-//			if (	this.convexSEFlag == true
-//				 && (  ( !isHere && this.option == BLACK )
-//					|| ( isHere && !this.inputImage.getPixelBoolean( x,y,z,t,b ) ) ) 
-//			   ) continue;
-//			this.outputImage.setPixelBoolean( x,y,z,t,b, getMax( x,y,z,t,b, points ) );
-
-			if ( isHere ) 
-				 this.outputImage.setPixelBoolean( x,y,z,t,b, this.getMax( x,y,z,t,b, points ) );
-			else this.outputImage.setPixelBoolean( x,y,z,t,b, false );
+			// packed pixels are shifted and combined 64 at a time
+			new PackedMorphology( this.se ).apply( (PackedBooleanImage) this.inputImage,
+				(PackedBooleanImage) this.outputImage,true,this.option == WHITE );
+			return;
 		}
+		// absent pixels count as white with the WHITE option, black otherwise, 
+		// out-of-image pixels are ignored unless they are white
+		double absent = ( this.option == WHITE ) ? 1 : 0;
+		double padding = ( this.option == WHITE ) ? 1 : Double.NEGATIVE_INFINITY;
+		new FlatMorphology( this.se ).apply( this.inputImage,this.outputImage,null,
+											 true,true,absent,padding );
 	}
 
 	/**	Gets the max value for the pixels under the structuring element when the
@@ -357,44 +340,50 @@ public class BinaryDilation extends Algorithm {
 	private void horizontalDilation() { 
 
 		this.outputImage = this.inputImage.copyImage( false );
-		int xdim = this.inputImage.getXDim();
-		int ydim = this.inputImage.getYDim();
-		int zdim = this.inputImage.getZDim();
-		int tdim = this.inputImage.getTDim();
-		int bdim = this.inputImage.getBDim();
-		int size = xdim;
-		BooleanBuffers buffers = new BooleanBuffers( size );
-		int lambda = this.se.getXDim(); //  lambada !
-		int o = this.se.getCenter().x;
-
-		assert buffers.size%lambda == 0;
-
-		boolean px;
-		int m,n;
-		for ( int b = 0 ; b < bdim ; b++ ) 
-		for ( int t = 0 ; t < tdim ; t++ )
-		for ( int z = 0 ; z < zdim ; z++ )
-		for ( int y = 0 ; y < ydim ; y++ ) { 
-
-			this.initRowBuffers( y,z,t,b, buffers,lambda );
-			for ( int x = 0 ; x < xdim ; x++ ) { 
-
-				m = x+lambda-o-1;
-				n = x-o;
-				if ( m >= xdim ) { 
-
-					if ( n < 0 ) px = false;
-					else px = buffers.h[ n ];
-
-				} else {
-
-					if ( n < 0 ) px = buffers.g[ m ];
-					else px = buffers.g[ m ] || buffers.h[ n ];
-				}
-				this.outputImage.setPixelBoolean( x,y,z,t,b, px );
-			} // rof x
-
-		} // rof
+		final int xdim = this.inputImage.getXDim();
+		final int ydim = this.inputImage.getYDim();
+		final int zdim = this.inputImage.getZDim();
+		final int tdim = this.inputImage.getTDim();
+		final int bdim = this.inputImage.getBDim();
+		final int lambda = this.se.getXDim(); //  lambada !
+		final int o = this.se.getCenter().x;
+
+		Parallel.forLines( this.outputImage, tdim*zdim*ydim, new Parallel.Range() { 
+			public void run( int from, int to ) { 
+				int size = xdim;
+				BooleanBuffers buffers = new BooleanBuffers( size );
+
+				assert buffers.size%lambda == 0;
+
+				boolean px;
+				int m,n;
+				for ( int line = from ; line < to ; line++ ) 
+				for ( int b = 0 ; b < bdim ; b++ ) { 
+
+					int y = line % ydim;
+					int z = ( line / ydim ) % zdim;
+					int t = line / ( ydim*zdim );
+
+					BinaryDilation.this.initRowBuffers( y,z,t,b, buffers,lambda );
+					for ( int x = 0 ; x < xdim ; x++ ) { 
+
+						m = x+lambda-o-1;
+						n = x-o;
+						if ( m >= xdim ) { 
+
+							if ( n < 0 ) px = false;
+							else px = buffers.h[ n ];
+
+						} else {
+
+							if ( n < 0 ) px = buffers.g[ m ];
+							else px = buffers.g[ m ] || buffers.h[ n ];
+						}
+						BinaryDilation.this.outputImage.setPixelBoolean( x,y,z,t,b, px );
+					} // rof x
+				} // rof
+			}
+		});
 
 	} // endfunc
 
@@ -407,44 +396,50 @@ public class BinaryDilation extends Algorithm {
 	private void verticalDilation() { 
 
 		this.outputImage = this.inputImage.copyImage( false );
-		int xdim = this.inputImage.getXDim();
-		int ydim = this.inputImage.getYDim();
-		int zdim = this.inputImage.getZDim();
-		int tdim = this.inputImage.getTDim();
-		int bdim = this.inputImage.getBDim();
-		int size = ydim;
-		BooleanBuffers buffers = new BooleanBuffers( size );
-		int lambda = this.se.getYDim(); //  lambada !
-		int o = this.se.getCenter().y;
-
-		assert buffers.size%lambda == 0;
-
-		boolean px;
-		int m,n;
-		for ( int b = 0 ; b < bdim ; b++ ) 
-		for ( int t = 0 ; t < tdim ; t++ )
-		for ( int z = 0 ; z < zdim ; z++ )
-		for ( int x = 0 ; x < xdim ; x++ ) { 
-
-			this.initColumnBuffers( x,z,t,b, buffers,lambda );
-			for ( int y = 0 ; y < ydim ; y++ ) { 
-
-				m = y+lambda-o-1;
-				n = y-o;
-				if ( m >= ydim ) { 
-
-					if ( n < 0 ) px = false;
-					else px = buffers.h[ n ];
-
-				} else {
-
-					if ( n < 0 ) px = buffers.g[ m ];
-					else px = buffers.g[ m ] || buffers.h[ n ];
-				}
-				this.outputImage.setPixelBoolean( x,y,z,t,b, px );
-			} // rof x
-
-		} // rof
+		final int xdim = this.inputImage.getXDim();
+		final int ydim = this.inputImage.getYDim();
+		final int zdim = this.inputImage.getZDim();
+		final int tdim = this.inputImage.getTDim();
+		final int bdim = this.inputImage.getBDim();
+		final int lambda = this.se.getYDim(); //  lambada !
+		final int o = this.se.getCenter().y;
+
+		Parallel.forColumns( this.outputImage, tdim*zdim*xdim, new Parallel.Range() { 
+			public void run( int from, int to ) { 
+				int size = ydim;
+				BooleanBuffers buffers = new BooleanBuffers( size );
+
+				assert buffers.size%lambda == 0;
+
+				boolean px;
+				int m,n;
+				for ( int column = from ; column < to ; column++ ) 
+				for ( int b = 0 ; b < bdim ; b++ ) { 
+
+					int x = column % xdim;
+					int z = ( column / xdim ) % zdim;
+					int t = column / ( xdim*zdim );
+
+					BinaryDilation.this.initColumnBuffers( x,z,t,b, buffers,lambda );
+					for ( int y = 0 ; y < ydim ; y++ ) { 
+
+						m = y+lambda-o-1;
+						n = y-o;
+						if ( m >= ydim ) { 
+
+							if ( n < 0 ) px = false;
+							else px = buffers.h[ n ];
+
+						} else {
+
+							if ( n < 0 ) px = buffers.g[ m ];
+							else px = buffers.g[ m ] || buffers.h[ n ];
+						}
+						BinaryDilation.this.outputImage.setPixelBoolean( x,y,z,t,b, px );
+					} // rof x
+				} // rof
+			}
+		});
 
 	} // endfunc
 
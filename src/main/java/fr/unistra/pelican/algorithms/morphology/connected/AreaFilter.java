@@ -10,7 +10,9 @@ import fr.unistra.pelican.algorithms.io.ImageLoader;
 import fr.unistra.pelican.algorithms.morphology.connected.FilterComponentTree.FilterStrategy;
 import fr.unistra.pelican.algorithms.visualisation.MViewer;
 import fr.unistra.pelican.gui.MultiViews.MultiView;
+import fr.unistra.pelican.util.connectivityTrees.CompactComponentTree;
 import fr.unistra.pelican.util.connectivityTrees.ComponentTree;
+import fr.unistra.pelican.util.connectivityTrees.CompactComponentTree.Attribute;
 import fr.unistra.pelican.util.connectivityTrees.ComponentTreeUtil.TreeType;
 import fr.unistra.pelican.util.connectivityTrees.attributes.AreaAttributFilter;
 import fr.unistra.pelican.util.connectivityTrees.attributes.AttributeFilter;
@@ -24,6 +26,9 @@ import fr.unistra.pelican.util.connectivityTrees.connectivity.TrivialConnectivit
  * 
  * Assumed connectivity is 8 neighborhood, option is here to modify it.
  * 
+ * Translation invariant connectivities use the array based CompactComponentTree,
+ * other ones the ComponentTree.
+ * 
  * @author Benjamin Perret
  *
  */
@@ -73,9 +78,17 @@ public class AreaFilter extends Algorithm {
 		if (size<1)
 			throw new AlgorithmException("Size filter must be greater or equal to one.");
 		AreaAttributFilter filter = new AreaAttributFilter(size);
-		ComponentTree root = BuildComponentTree.exec(inputImage, con,treeType);
-				root = FilterComponentTree.exec(root, new AttributeFilter[]{filter}, FilterStrategy.Min);	
-		outputImage=ReconstructImageFromTree.exec(root);
+		if(con instanceof TrivialConnectivity)
+		{
+			CompactComponentTree tree = BuildCompactComponentTree.exec(inputImage, con, treeType, new Attribute[]{Attribute.Area});
+			tree = FilterComponentTree.exec(tree, filter, FilterStrategy.Min);
+			outputImage=ReconstructImageFromTree.exec(tree);
+		}
+		else {
+			ComponentTree root = BuildComponentTree.exec(inputImage, con,treeType);
+					root = FilterComponentTree.exec(root, new AttributeFilter[]{filter}, FilterStrategy.Min);	
+			outputImage=ReconstructImageFromTree.exec(root);
+		}
 	}
 	
 	public static <T extends Image> T exec(T inputImage, int size)
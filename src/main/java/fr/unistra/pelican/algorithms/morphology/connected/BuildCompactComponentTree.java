@@ -0,0 +1,378 @@
+package fr.unistra.pelican.algorithms.morphology.connected;
+
+import java.util.Arrays;
+
+import fr.unistra.pelican.Algorithm;
+import fr.unistra.pelican.AlgorithmException;
+import fr.unistra.pelican.BooleanImage;
+import fr.unistra.pelican.ByteImage;
+import fr.unistra.pelican.Image;
+import fr.unistra.pelican.util.Point3D;
+import fr.unistra.pelican.util.connectivityTrees.CompactComponentTree;
+import fr.unistra.pelican.util.connectivityTrees.CompactComponentTree.Attribute;
+import fr.unistra.pelican.util.connectivityTrees.ComponentTreeUtil.TreeType;
+import fr.unistra.pelican.util.connectivityTrees.connectivity.Connectivity3D;
+import fr.unistra.pelican.util.connectivityTrees.connectivity.TrivialConnectivity;
+
+/**
+ * Build the component tree of a monoband image in a CompactComponentTree,
+ * using the union-find algorithm of Berger et al. (Effective component tree
+ * computation with application to pattern recognition in astronomical
+ * imaging, ICIP 2007). The tree is the same as the one of BuildComponentTree
+ * but needs a few arrays of the size of the image instead of several objects
+ * per pixel.
+ *
+ * Pixels are sorted by a counting sort on the ranks of their levels : byte
+ * and boolean images are ranked directly, other images through the sorted
+ * distinct values. Attributes are accumulated from the leaves to the root once
+ * the tree is built.
+ *
+ * Only translation invariant connectivities (TrivialConnectivity) are
+ * supported. The perimeter assumes that the connectivity contains the
+ * 4-neighbourhood.
+ *
+ * @author Benjamin Perret, PELICAN team
+ */
+public class BuildCompactComponentTree extends Algorithm {
+
+	/**
+	 * Input image
+	 */
+	public Image inputImage;
+
+	/**
+	 * Connectivity to use
+	 */
+	public Connectivity3D connectivity;
+
+	/**
+	 * TreeType to compute
+	 */
+	public TreeType treeType = TreeType.Max;
+
+	/**
+	 * Attributes to accumulate, the area is always computed
+	 */
+	public Attribute[] attributes = { Attribute.Area, Attribute.Volume,
+		Attribute.Perimeter, Attribute.BoundingBox };
+
+	/**
+	 * Result
+	 */
+	public CompactComponentTree tree;
+
+	/**
+	 * Image dimensions
+	 */
+	private int xdim, ydim, zdim;
+
+	public BuildCompactComponentTree() {
+		super.inputs = "inputImage,connectivity";
+		super.options = "treeType,attributes";
+		super.outputs = "tree";
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see fr.unistra.pelican.Algorithm#launch()
+	 */
+	@Override
+	public void launch() throws AlgorithmException {
+		xdim = inputImage.getXDim();
+		ydim = inputImage.getYDim();
+		zdim = inputImage.getZDim();
+		tree = new CompactComponentTree(xdim, ydim, zdim, treeType);
+		tree.image = inputImage;
+		tree.setConnectivity(connectivity);
+		rank(inputImage, treeType, tree);
+		tree.sorted = sort(tree.rank, tree.levels.length);
+		allocate(tree, attributes);
+		int size = tree.size();
+		int[] zpar = new int[size];
+		Arrays.fill(zpar, -1);
+		unionFind(tree.parent, zpar, tree.sorted, 0, size, 0, size,
+			offsets(connectivity), xdim, ydim, zdim);
+		tree.canonicalize();
+		initAttributes(tree, 0, tree.size());
+		accumulateAttributes(tree);
+	}
+
+	/**
+	 * Compute the rank of each pixel of the first frame and band of the image
+	 * and the level of each rank, ranks increasing from the root to the leaves
+	 *
+	 * @param image
+	 * @param treeType
+	 * @param tree
+	 */
+	static void rank(Image image, TreeType treeType, CompactComponentTree tree) {
+		int size = image.getXDim() * image.getYDim() * image.getZDim();
+		int bdim = image.getBDim();
+		int[] rank = new int[size];
+		double[] levels;
+		if (image instanceof ByteImage || image instanceof BooleanImage) {
+			// low bit depth : the byte values are the ranks
+			levels = new double[256];
+			for (int p = 0; p < size; p++) {
+				int r = image.getPixelByte(p * bdim);
+				rank[p] = r;
+				levels[r] = image.getPixelDouble(p * bdim);
+			}
+		} else {
+			double[] values = new double[size];
+			for (int p = 0; p < size; p++)
+				values[p] = image.getPixelDouble(p * bdim);
+			double[] distinct = values.clone();
+			Arrays.sort(distinct);
+			int nb = 0;
+			for (int i = 0; i < size; i++)
+				if (i == 0
+					|| Double.compare(distinct[i], distinct[nb - 1]) != 0)
+					distinct[nb++] = distinct[i];
+			levels = Arrays.copyOf(distinct, nb);
+			for (int p = 0; p < size; p++)
+				rank[p] = Arrays.binarySearch(levels, values[p]);
+		}
+		if (treeType == TreeType.Min) {
+			int last = levels.length - 1;
+			for (int p = 0; p < size; p++)
+				rank[p] = last - rank[p];
+			for (int i = 0, j = last; i < j; i++, j--) {
+				double tmp = levels[i];
+				levels[i] = levels[j];
+				levels[j] = tmp;
+			}
+		}
+		tree.rank = rank;
+		tree.levels = levels;
+	}
+
+	/**
+	 * Counting sort of the pixels by rank, pixels of same rank staying in
+	 * index order
+	 *
+	 * @param rank
+	 * @param nbRanks
+	 * @return
+	 */
+	static int[] sort(int[] rank, int nbRanks) {
+		int[] start = new int[nbRanks + 1];
+		for (int p = 0; p < rank.length; p++)
+			start[rank[p] + 1]++;
+		for (int r = 0; r < nbRanks; r++)
+			start[r + 1] += start[r];
+		int[] sorted = new int[rank.length];
+		for (int p = 0; p < rank.length; p++)
+			sorted[start[rank[p]]++] = p;
+		return sorted;
+	}
+
+	/**
+	 * Allocate the parent and attribute arrays
+	 *
+	 * @param tree
+	 * @param attributes
+	 */
+	static void allocate(CompactComponentTree tree, Attribute[] attributes) {
+		int size = tree.rank.length;
+		tree.parent = new int[size];
+		tree.area = new int[size];
+		for (Attribute a : attributes)
+			switch (a) {
+			case Volume:
+				tree.sum = new double[size];
+				break;
+			case Perimeter:
+				tree.perimeter = new int[size];
+				break;
+			case BoundingBox:
+				tree.xmin = new int[size];
+				tree.ymin = new int[size];
+				tree.zmin = new int[size];
+				tree.xmax = new int[size];
+				tree.ymax = new int[size];
+				tree.zmax = new int[size];
+				break;
+			}
+	}
+
+	/**
+	 * Neighbour offsets {dx,dy,dz} of a connectivity
+	 *
+	 * @param connectivity
+	 * @return
+	 */
+	public static int[][] offsets(Connectivity3D connectivity) {
+		if (!(connectivity instanceof TrivialConnectivity))
+			throw new AlgorithmException(
+				"Only translation invariant connectivities are supported");
+		Point3D[] neighbours = connectivity.getConnectedNeighbours(0, 0, 0);
+		int[][] offsets = new int[neighbours.length][];
+		int nb = 0;
+		for (Point3D n : neighbours)
+			if (n.x != 0 || n.y != 0 || n.z != 0)
+				offsets[nb++] = new int[] { n.x, n.y, n.z };
+		return Arrays.copyOf(offsets, nb);
+	}
+
+	/**
+	 * Initialise the attributes of the pixels from <tt>from</tt> to
+	 * <tt>to</tt> as if they were alone in their node. The perimeter of a
+	 * pixel is its number of sides minus two for every 4-neighbour processed
+	 * before it by the union-find, i.e. later in sorted order.
+	 */
+	static void initAttributes(CompactComponentTree tree, int from, int to) {
+		int xdim = tree.getXdim();
+		int ydim = tree.getYdim();
+		int xydim = xdim * ydim;
+		int[] rank = tree.rank;
+		for (int p = from; p < to; p++) {
+			int x = p % xdim;
+			int y = (p / xdim) % ydim;
+			int z = p / xydim;
+			int r = rank[p];
+			tree.area[p] = 1;
+			if (tree.sum != null)
+				tree.sum[p] = tree.levels[r];
+			if (tree.perimeter != null) {
+				// same rank : the pixel of higher index is after in sorted order
+				int shared = 0;
+				if (x > 0 && rank[p - 1] > r)
+					shared++;
+				if (x < xdim - 1 && rank[p + 1] >= r)
+					shared++;
+				if (y > 0 && rank[p - xdim] > r)
+					shared++;
+				if (y < ydim - 1 && rank[p + xdim] >= r)
+					shared++;
+				tree.perimeter[p] = 4 - 2 * shared;
+			}
+			if (tree.xmin != null) {
+				tree.xmin[p] = tree.xmax[p] = x;
+				tree.ymin[p] = tree.ymax[p] = y;
+				tree.zmin[p] = tree.zmax[p] = z;
+			}
+		}
+	}
+
+	/**
+	 * Merge the attributes of node r into node p
+	 */
+	static void mergeAttributes(CompactComponentTree tree, int p, int r) {
+		tree.area[p] += tree.area[r];
+		if (tree.sum != null)
+			tree.sum[p] += tree.sum[r];
+		if (tree.perimeter != null)
+			tree.perimeter[p] += tree.perimeter[r];
+		if (tree.xmin != null) {
+			tree.xmin[p] = Math.min(tree.xmin[p], tree.xmin[r]);
+			tree.ymin[p] = Math.min(tree.ymin[p], tree.ymin[r]);
+			tree.zmin[p] = Math.min(tree.zmin[p], tree.zmin[r]);
+			tree.xmax[p] = Math.max(tree.xmax[p], tree.xmax[r]);
+			tree.ymax[p] = Math.max(tree.ymax[p], tree.ymax[r]);
+			tree.zmax[p] = Math.max(tree.zmax[p], tree.zmax[r]);
+		}
+	}
+
+	/**
+	 * Accumulate the attributes of the initialised pixels of a canonical tree
+	 * from the leaves to the root, every pixel being merged in its parent
+	 * after all its children.
+	 */
+	static void accumulateAttributes(CompactComponentTree tree) {
+		int[] sorted = tree.sorted;
+		int[] parent = tree.parent;
+		for (int i = sorted.length - 1; i > 0; i--) {
+			int p = sorted[i];
+			mergeAttributes(tree, parent[p], p);
+		}
+	}
+
+	/**
+	 * Find the root of a set with path compression
+	 */
+	static int findRoot(int[] zpar, int p) {
+		int r = p;
+		while (zpar[r] != r)
+			r = zpar[r];
+		while (zpar[p] != r) {
+			int next = zpar[p];
+			zpar[p] = r;
+			p = next;
+		}
+		return r;
+	}
+
+	/**
+	 * Union-find on the pixels order[first..last[ from the leaves to the root,
+	 * the neighbours being restricted to the pixels begin..end-1. zpar must be
+	 * -1 for the pixels not processed yet.
+	 *
+	 * @param parent
+	 * @param zpar
+	 * @param order
+	 *            pixels sorted from the root to the leaves
+	 * @param first
+	 * @param last
+	 * @param begin
+	 * @param end
+	 * @param offsets
+	 * @param xdim
+	 * @param ydim
+	 * @param zdim
+	 */
+	static void unionFind(int[] parent, int[] zpar, int[] order, int first,
+		int last, int begin, int end, int[][] offsets, int xdim, int ydim,
+		int zdim) {
+		int[] delta = new int[offsets.length];
+		for (int k = 0; k < offsets.length; k++)
+			delta[k] = offsets[k][0] + xdim
+				* (offsets[k][1] + ydim * offsets[k][2]);
+		int xydim = xdim * ydim;
+
+		for (int i = last - 1; i >= first; i--) {
+			int p = order[i];
+			int x = p % xdim;
+			int y = (p / xdim) % ydim;
+			int z = p / xydim;
+			parent[p] = p;
+			zpar[p] = p;
+			for (int k = 0; k < offsets.length; k++) {
+				int nx = x + offsets[k][0];
+				int ny = y + offsets[k][1];
+				int nz = z + offsets[k][2];
+				if (nx < 0 || ny < 0 || nz < 0 || nx >= xdim || ny >= ydim
+					|| nz >= zdim)
+					continue;
+				int q = p + delta[k];
+				if (q < begin || q >= end || zpar[q] == -1)
+					continue;
+				int r = findRoot(zpar, q);
+				if (r != p) {
+					parent[r] = p;
+					zpar[r] = p;
+				}
+			}
+		}
+	}
+
+	public static CompactComponentTree exec(Image inputImage,
+		Connectivity3D connectivity) {
+		return (CompactComponentTree) (new BuildCompactComponentTree())
+			.process(inputImage, connectivity);
+	}
+
+	public static CompactComponentTree exec(Image inputImage,
+		Connectivity3D connectivity, TreeType treeType) {
+		return (CompactComponentTree) (new BuildCompactComponentTree())
+			.process(inputImage, connectivity, treeType);
+	}
+
+	public static CompactComponentTree exec(Image inputImage,
+		Connectivity3D connectivity, TreeType treeType, Attribute[] attributes) {
+		return (CompactComponentTree) (new BuildCompactComponentTree())
+			.process(inputImage, connectivity, treeType, attributes);
+	}
+
+}
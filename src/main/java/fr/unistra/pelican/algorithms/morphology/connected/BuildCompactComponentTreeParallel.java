@@ -0,0 +1,310 @@
+package fr.unistra.pelican.algorithms.morphology.connected;
+
+import java.util.Arrays;
+
+import fr.unistra.pelican.Algorithm;
+import fr.unistra.pelican.AlgorithmException;
+import fr.unistra.pelican.Image;
+import fr.unistra.pelican.util.Parallel;
+import fr.unistra.pelican.util.connectivityTrees.CompactComponentTree;
+import fr.unistra.pelican.util.connectivityTrees.CompactComponentTree.Attribute;
+import fr.unistra.pelican.util.connectivityTrees.ComponentTreeUtil.TreeType;
+import fr.unistra.pelican.util.connectivityTrees.connectivity.Connectivity3D;
+
+/**
+ * Multi-threaded version of BuildCompactComponentTree, following the
+ * concurrent max-tree algorithm of Wilkinson et al. (Concurrent computation
+ * of attribute filters on shared memory parallel machines, IEEE PAMI 2008).
+ *
+ * The image is cut in slabs of rows (or of planes for volumes), one per
+ * thread. The tree of each slab is built by union-find on a separate thread,
+ * then the trees of neighbouring slabs are merged along their common border,
+ * pairs of slabs being merged in parallel at each round. The canonical
+ * elements and the attributes are finally computed as in the sequential
+ * algorithm, so the result is the same tree, with the same arrays.
+ *
+ * The number of threads is the one of {@link Parallel}.
+ *
+ * @author Benjamin Perret, PELICAN team
+ */
+public class BuildCompactComponentTreeParallel extends Algorithm {
+
+	/**
+	 * Input image
+	 */
+	public Image inputImage;
+
+	/**
+	 * Connectivity to use
+	 */
+	public Connectivity3D connectivity;
+
+	/**
+	 * TreeType to compute
+	 */
+	public TreeType treeType = TreeType.Max;
+
+	/**
+	 * Attributes to accumulate, the area is always computed
+	 */
+	public Attribute[] attributes = { Attribute.Area, Attribute.Volume,
+		Attribute.Perimeter, Attribute.BoundingBox };
+
+	/**
+	 * Result
+	 */
+	public CompactComponentTree tree;
+
+	/**
+	 * Image dimensions
+	 */
+	private int xdim, ydim, zdim;
+
+	/**
+	 * Neighbour offsets {dx,dy,dz}
+	 */
+	private int[][] offsets;
+
+	/**
+	 * First pixel of each slab, and size of the image at the end
+	 */
+	private int[] bounds;
+
+	/**
+	 * Number of pixels of the first lines of a slab having neighbours in the
+	 * previous slab
+	 */
+	private int border;
+
+	public BuildCompactComponentTreeParallel() {
+		super.inputs = "inputImage,connectivity";
+		super.options = "treeType,attributes";
+		super.outputs = "tree";
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see fr.unistra.pelican.Algorithm#launch()
+	 */
+	@Override
+	public void launch() throws AlgorithmException {
+		xdim = inputImage.getXDim();
+		ydim = inputImage.getYDim();
+		zdim = inputImage.getZDim();
+		tree = new CompactComponentTree(xdim, ydim, zdim, treeType);
+		tree.image = inputImage;
+		tree.setConnectivity(connectivity);
+		BuildCompactComponentTree.rank(inputImage, treeType, tree);
+		tree.sorted = BuildCompactComponentTree.sort(tree.rank,
+			tree.levels.length);
+		BuildCompactComponentTree.allocate(tree, attributes);
+		offsets = BuildCompactComponentTree.offsets(connectivity);
+		slabs();
+
+		final int size = tree.size();
+		final int nbSlabs = bounds.length - 1;
+		final int[] parent = tree.parent;
+		final int[] zpar = new int[size];
+		Arrays.fill(zpar, -1);
+		final int[] order = split();
+
+		// trees of the slabs
+		Parallel.forItems(nbSlabs, size, new Parallel.Range() {
+			public void run(int from, int to) {
+				for (int s = from; s < to; s++)
+					BuildCompactComponentTree.unionFind(parent, zpar, order,
+						bounds[s], bounds[s + 1], bounds[s], bounds[s + 1],
+						offsets, xdim, ydim, zdim);
+			}
+		});
+
+		// merge of the slabs : slab s with s-step at each round
+		for (int step = 1; step < nbSlabs; step *= 2) {
+			final int round = step;
+			Parallel.forItems((nbSlabs - step + 2 * step - 1) / (2 * step),
+				size, new Parallel.Range() {
+					public void run(int from, int to) {
+						for (int k = from; k < to; k++)
+							merge(parent, (2 * k + 1) * round);
+					}
+				});
+		}
+
+		tree.parent = canonical(parent, zpar);
+		Parallel.forItems(nbSlabs, size, new Parallel.Range() {
+			public void run(int from, int to) {
+				BuildCompactComponentTree.initAttributes(tree, bounds[from],
+					bounds[to]);
+			}
+		});
+		BuildCompactComponentTree.accumulateAttributes(tree);
+	}
+
+	/**
+	 * Cut the image in slabs along its last dimension, each slab being at
+	 * least as thick as the connectivity so that only neighbouring slabs
+	 * touch.
+	 */
+	private void slabs() {
+		int reach = 1;
+		for (int[] o : offsets)
+			reach = Math.max(reach, Math.abs(zdim > 1 ? o[2] : o[1]));
+		int lines = zdim > 1 ? zdim : ydim;
+		int lineSize = zdim > 1 ? xdim * ydim : xdim;
+		int nbSlabs = Math.max(1, Math.min(Parallel.getThreadCount(), lines
+			/ reach));
+		if (lines * lineSize < 2 * Parallel.MIN_PIXELS_PER_TASK)
+			nbSlabs = 1;
+		bounds = new int[nbSlabs + 1];
+		for (int s = 0; s <= nbSlabs; s++)
+			bounds[s] = (int) ((long) lines * s / nbSlabs) * lineSize;
+		border = reach * lineSize;
+	}
+
+	/**
+	 * Sort the pixels of every slab from the root to the leaves, the pixels
+	 * of slab s being at bounds[s]..bounds[s+1]-1, in the order of the
+	 * sorted pixels of the tree.
+	 */
+	private int[] split() {
+		int size = tree.size();
+		int nbSlabs = bounds.length - 1;
+		int[] order = new int[size];
+		if (nbSlabs == 1) {
+			System.arraycopy(tree.sorted, 0, order, 0, size);
+			return order;
+		}
+		int[] next = Arrays.copyOf(bounds, nbSlabs);
+		int slabSize = bounds[1];
+		for (int p : tree.sorted) {
+			// slabs differ by at most one line, start from an estimation
+			int s = Math.min(p / slabSize, nbSlabs - 1);
+			while (p < bounds[s])
+				s--;
+			while (p >= bounds[s + 1])
+				s++;
+			order[next[s]++] = p;
+		}
+		return order;
+	}
+
+	/**
+	 * Merge the tree containing slab s-1 with the tree containing slab s,
+	 * along the border of slab s
+	 *
+	 * @param parent
+	 * @param s
+	 */
+	private void merge(int[] parent, int s) {
+		int begin = bounds[s];
+		int end = Math.min(begin + border, bounds[s + 1]);
+		int xydim = xdim * ydim;
+		for (int p = begin; p < end; p++) {
+			int x = p % xdim;
+			int y = (p / xdim) % ydim;
+			int z = p / xydim;
+			for (int[] o : offsets) {
+				int nx = x + o[0];
+				int ny = y + o[1];
+				int nz = z + o[2];
+				if (nx < 0 || ny < 0 || nz < 0 || nx >= xdim || ny >= ydim
+					|| nz >= zdim)
+					continue;
+				int q = nx + xdim * (ny + ydim * nz);
+				if (q < begin)
+					connect(parent, p, q);
+			}
+		}
+	}
+
+	/**
+	 * Find the pixel representing the node of x, the first pixel of same
+	 * rank on the path to the root, with path compression
+	 */
+	private int levroot(int[] parent, int x) {
+		int[] rank = tree.rank;
+		int r = x;
+		while (parent[r] != r && rank[parent[r]] == rank[r])
+			r = parent[r];
+		while (x != r) {
+			int next = parent[x];
+			parent[x] = r;
+			x = next;
+		}
+		return r;
+	}
+
+	/**
+	 * Merge the branches of two neighbour pixels x and y from their nodes to
+	 * the root, the nodes of each branch being inserted in the other one by
+	 * decreasing rank.
+	 */
+	private void connect(int[] parent, int x, int y) {
+		int[] rank = tree.rank;
+		x = levroot(parent, x);
+		y = levroot(parent, y);
+		if (rank[x] < rank[y]) {
+			int tmp = x;
+			x = y;
+			y = tmp;
+		}
+		while (x != y && y != -1) {
+			// parent node of x, -1 for the root
+			int z = parent[x] == x ? -1 : levroot(parent, parent[x]);
+			if (z != -1 && rank[z] >= rank[y])
+				x = z;
+			else {
+				parent[x] = y;
+				x = y;
+				y = z;
+			}
+		}
+	}
+
+	/**
+	 * Make the first pixel in sorted order of each node its canonical
+	 * element, as in the sequential tree.
+	 *
+	 * @param parent
+	 *            merged tree, modified
+	 * @param canon
+	 *            work array of the size of the image
+	 * @return the canonical parents
+	 */
+	private int[] canonical(int[] parent, int[] canon) {
+		int[] sorted = tree.sorted;
+		int[] res = new int[sorted.length];
+		Arrays.fill(canon, -1);
+		for (int i = 0; i < sorted.length; i++) {
+			int p = sorted[i];
+			int r = levroot(parent, p);
+			if (canon[r] == -1) {
+				// the nodes of lower rank are before in sorted order
+				canon[r] = p;
+				res[p] = parent[r] == r ? p : canon[levroot(parent, parent[r])];
+			} else
+				res[p] = canon[r];
+		}
+		return res;
+	}
+
+	public static CompactComponentTree exec(Image inputImage,
+		Connectivity3D connectivity) {
+		return (CompactComponentTree) (new BuildCompactComponentTreeParallel())
+			.process(inputImage, connectivity);
+	}
+
+	public static CompactComponentTree exec(Image inputImage,
+		Connectivity3D connectivity, TreeType treeType) {
+		return (CompactComponentTree) (new BuildCompactComponentTreeParallel())
+			.process(inputImage, connectivity, treeType);
+	}
+
+	public static CompactComponentTree exec(Image inputImage,
+		Connectivity3D connectivity, TreeType treeType, Attribute[] attributes) {
+		return (CompactComponentTree) (new BuildCompactComponentTreeParallel())
+			.process(inputImage, connectivity, treeType, attributes);
+	}
+
+}
@@ -8,6 +8,7 @@ import java.util.Stack;
 
 import fr.unistra.pelican.Algorithm;
 import fr.unistra.pelican.AlgorithmException;
+import fr.unistra.pelican.util.connectivityTrees.CompactComponentTree;
 import fr.unistra.pelican.util.connectivityTrees.ComponentNode;
 import fr.unistra.pelican.util.connectivityTrees.ComponentTree;
 import fr.unistra.pelican.util.connectivityTrees.attributes.AttributeFilter;
@@ -21,6 +22,8 @@ import fr.unistra.pelican.util.connectivityTrees.attributes.AttributeFilter;
  * - max : a node is deleted if it and its children do not fulfill filter rules
  * 
  * Combination rule of filters is AND, 
+ * 
+ * Works on ComponentTree and on CompactComponentTree
  * @TODO add more combination rules
  * 
  * @author Benjamin Perret
@@ -37,9 +40,14 @@ public class FilterComponentTree extends Algorithm {
 	public static enum FilterStrategy {Min, Max, Direct};
 	
 	/**
-	 * The component tree
+	 * The component tree, a ComponentTree or a CompactComponentTree
+	 */
+	public Object root;
+	
+	/**
+	 * The tree when it is a ComponentTree
 	 */
-	public ComponentTree root;
+	private ComponentTree tree;
 	
 	/**
 	 * The filter rules
@@ -74,7 +82,7 @@ public class FilterComponentTree extends Algorithm {
 	private void directFilter()
 	{
 		Stack<ComponentNode> s= new Stack<ComponentNode>();
-		s.push(root.getRoot());
+		s.push(tree.getRoot());
 		while(!s.isEmpty())
 		{
 			ComponentNode c= s.pop();
@@ -83,7 +91,7 @@ public class FilterComponentTree extends Algorithm {
 			if(!checkFilters(c))
 			{
 				//System.out.println("delete "  + c.location);
-				root.deleteNode(c);
+				tree.deleteNode(c);
 			}
 			
 				
@@ -98,15 +106,15 @@ public class FilterComponentTree extends Algorithm {
 		
 		
 		Stack<ComponentNode> s= new Stack<ComponentNode>();
-		s.push(root.getRoot());
-		ComponentNode r=root.getRoot();
+		s.push(tree.getRoot());
+		ComponentNode r=tree.getRoot();
 		while(!s.isEmpty())
 		{
 			ComponentNode c= s.pop();
 			if(c!=r && !checkFilters(c))
 			{
 				//System.out.println("delete "  + c.location);
-				root.deleteNodeAndChildren(c);
+				tree.deleteNodeAndChildren(c);
 			}
 			else{
 				for (ComponentNode child:(Collection<ComponentNode>)c.getChildren())
@@ -119,10 +127,10 @@ public class FilterComponentTree extends Algorithm {
 	
 	private void maxFilter()
 	{
-		root.resetFlag(0);
+		tree.resetFlag(0);
 		
 		Stack<ComponentNode> s= new Stack<ComponentNode>();
-		s.push(root.getRoot());
+		s.push(tree.getRoot());
 		while(!s.isEmpty())
 		{
 			ComponentNode c= s.peek();
@@ -132,7 +140,7 @@ public class FilterComponentTree extends Algorithm {
 				if(!checkFilters(c))
 				{
 					
-					root.deleteNodeAndChildren(c);
+					tree.deleteNodeAndChildren(c);
 				}
 				s.pop();
 			}else {
@@ -150,11 +158,78 @@ public class FilterComponentTree extends Algorithm {
 	}
 	
 	
+	private boolean checkFilters(CompactComponentTree t, int node)
+	{
+		boolean res=true;
+		for(AttributeFilter f: filters)
+		{
+			res=f.filter(t,node);
+			if(!res) break;
+		}
+		return res;
+	}
+	
+	/**
+	 * Same rules on a compact tree : deletion flags are computed from the root
+	 * to the leaves (direct, min) or from the leaves to the root (max), then
+	 * all flagged nodes are deleted in one pass
+	 */
+	private void compactFilter(CompactComponentTree t)
+	{
+		int size=t.size();
+		int[] sorted=t.sorted;
+		boolean [] delete=new boolean[size];
+		switch(strategy)
+		{
+		case Min:
+			for(int i=1;i<size;i++)
+			{
+				int p=sorted[i];
+				if(t.isNode(p))
+					delete[p]=delete[t.getParent(p)] || !checkFilters(t,p);
+			}
+			break;
+		case Max:
+			// a node is kept if it or one of its descendants fulfills the rules
+			boolean [] kept=new boolean[size];
+			for(int i=size-1;i>0;i--)
+			{
+				int p=sorted[i];
+				if(t.isNode(p))
+				{
+					if(kept[p] || checkFilters(t,p))
+						kept[t.getParent(p)]=true;
+					else delete[p]=true;
+				}
+			}
+			break;
+		case Direct:
+			for(int i=1;i<size;i++)
+			{
+				int p=sorted[i];
+				if(t.isNode(p))
+					delete[p]=!checkFilters(t,p);
+			}
+			break;
+		default:
+			System.out.println("Not supported yet: " + strategy);
+		}
+		t.deleteNodes(delete);
+	}
+	
 	/* (non-Javadoc)
 	 * @see fr.unistra.pelican.Algorithm#launch()
 	 */
 	@Override
 	public void launch() throws AlgorithmException {
+		if(root instanceof CompactComponentTree)
+		{
+			compactFilter((CompactComponentTree)root);
+			return;
+		}
+		if(!(root instanceof ComponentTree))
+			throw new AlgorithmException("Unsupported tree type: " + root.getClass());
+		tree=(ComponentTree)root;
 		switch(strategy)
 		{
 		case Min:
@@ -184,6 +259,16 @@ public class FilterComponentTree extends Algorithm {
 		return (ComponentTree<T>)(new FilterComponentTree()).process(tree,new AttributeFilter[]{filter},strategy);
 	}
 	
+	public static CompactComponentTree exec(CompactComponentTree tree, AttributeFilter [] filters, FilterStrategy strategy)
+	{
+		return (CompactComponentTree)(new FilterComponentTree()).process(tree,filters,strategy);
+	}
+	
+	public static CompactComponentTree exec(CompactComponentTree tree, AttributeFilter filter, FilterStrategy strategy)
+	{
+		return (CompactComponentTree)(new FilterComponentTree()).process(tree,new AttributeFilter[]{filter},strategy);
+	}
+	
 	
 
 }
@@ -9,8 +9,10 @@ import fr.unistra.pelican.BooleanImage;
 import fr.unistra.pelican.DoubleImage;
 import fr.unistra.pelican.Image;
 import fr.unistra.pelican.IntegerImage;
+import fr.unistra.pelican.util.connectivityTrees.CompactComponentTree;
 import fr.unistra.pelican.util.connectivityTrees.ComponentNode;
 import fr.unistra.pelican.util.connectivityTrees.ComponentTree;
+import fr.unistra.pelican.util.connectivityTrees.attributes.AttributeNotFoundException;
 import fr.unistra.pelican.util.connectivityTrees.attributes.ComponentAttribute;
 import fr.unistra.pelican.util.connectivityTrees.attributes.UnsupportedDataTypeException;
 import fr.unistra.pelican.util.vectorial.ordering.VectorialBasedComponentOrdering;
@@ -19,6 +21,10 @@ import fr.unistra.pelican.util.vectorial.ordering.VectorialOrdering;
 /**
  * Reconstruct an image from a connected component tree
  * 
+ * Works on ComponentTree and on CompactComponentTree, in the later case
+ * attributes are taken from the arrays of the tree and the result is always
+ * monoband
+ * 
  * @author Benjamin Perret
  *
  */
@@ -42,9 +48,14 @@ public class ReconstructImageFromTree extends Algorithm {
 	public ComponentAttribute attribute;
 	
 	/**
-	 * The component tree
+	 * The component tree, a ComponentTree or a CompactComponentTree
+	 */
+	public Object tree;
+	
+	/**
+	 * The tree when it is a ComponentTree
 	 */
-	public ComponentTree tree;
+	private ComponentTree componentTree;
 	
 	/**
 	 * Constraint result to be smaller than underlying image (ensure anti-extensivity)
@@ -87,10 +98,24 @@ public class ReconstructImageFromTree extends Algorithm {
 	 */
 	@Override
 	public void launch() throws AlgorithmException {
-		xdim=tree.getXdim();
-		ydim=tree.getYdim();
-		zdim=tree.getZdim();
-		root=tree.getRoot();
+		if(data==Data.Attribute && clazz==null)
+			throw new AlgorithmException("You must specify a class Attribute to use when using Attribute mode!");
+		if(tree instanceof CompactComponentTree)
+		{
+			try {
+				drawCompact((CompactComponentTree)tree);
+			} catch (AttributeNotFoundException e) {
+				throw new AlgorithmException("Error message was: " +e.getMessage());
+			}
+			return;
+		}
+		if(!(tree instanceof ComponentTree))
+			throw new AlgorithmException("Unsupported tree type: " + tree.getClass());
+		componentTree=(ComponentTree)tree;
+		xdim=componentTree.getXdim();
+		ydim=componentTree.getYdim();
+		zdim=componentTree.getZdim();
+		root=componentTree.getRoot();
 		switch (data)
 		{
 		case Level:
@@ -104,8 +129,6 @@ public class ReconstructImageFromTree extends Algorithm {
 			drawArea();
 			break;
 		case Attribute:
-			if (clazz==null)
-				throw new AlgorithmException("You must specify a class Attribute to use when using Attribute mode!");
 			try {
 					drawAttr();
 				} catch (UnsupportedDataTypeException e) {
@@ -119,7 +142,7 @@ public class ReconstructImageFromTree extends Algorithm {
 
 	private void drawAttr() throws UnsupportedDataTypeException
 	{
-		Object vv= tree.findNodeAt(0, 0, 0).getAttributeValue(clazz);
+		Object vv= componentTree.findNodeAt(0, 0, 0).getAttributeValue(clazz);
 		if(vv instanceof Double)
 		{
 		output=new DoubleImage(xdim,ydim,zdim,1,1);
@@ -128,14 +151,14 @@ public class ReconstructImageFromTree extends Algorithm {
 			for(int y=0;y<ydim;y++)
 				for(int x=0;x<xdim;x++)
 				{
-					ComponentNode n= tree.findNodeAt(x, y, z);
+					ComponentNode n= componentTree.findNodeAt(x, y, z);
 					if(!onlyLeaves || n.numberOfChildren()==0)
 					{
 					Object v= n.getAttributeValue(clazz);
 					if(v!=null)
 					output.setPixelXYZDouble(x, y, z,(Double)v);	
 					else {
-						System.out.println("Attribute does not exist for node: " +tree.findNodeAt(x, y, z) + " for pixel " + "["+x+";"+y+";"+z+"]" + "  NOW I WILL CRASH!");
+						System.out.println("Attribute does not exist for node: " +componentTree.findNodeAt(x, y, z) + " for pixel " + "["+x+";"+y+";"+z+"]" + "  NOW I WILL CRASH!");
 						v.toString();
 					}
 					}
@@ -148,14 +171,14 @@ public class ReconstructImageFromTree extends Algorithm {
 				for(int y=0;y<ydim;y++)
 					for(int x=0;x<xdim;x++)
 					{
-						ComponentNode n= tree.findNodeAt(x, y, z);
+						ComponentNode n= componentTree.findNodeAt(x, y, z);
 						if(!onlyLeaves || n.numberOfChildren()==0)
 						{
 							Object v= n.getAttributeValue(clazz);
 							if(v!=null)
 								output.setVectorPixelXYZTDouble(x, y, z,0,(double [])v);	
 							else {
-								System.out.println("Attribute does not exist for node: " +tree.findNodeAt(x, y, z) + " for pixel " + "["+x+";"+y+";"+z+"]" + "  NOW I WILL CRASH!");
+								System.out.println("Attribute does not exist for node: " +componentTree.findNodeAt(x, y, z) + " for pixel " + "["+x+";"+y+";"+z+"]" + "  NOW I WILL CRASH!");
 								v.toString();
 							}
 						}
@@ -168,14 +191,14 @@ public class ReconstructImageFromTree extends Algorithm {
 				for(int y=0;y<ydim;y++)
 					for(int x=0;x<xdim;x++)
 					{
-						ComponentNode n= tree.findNodeAt(x, y, z);
+						ComponentNode n= componentTree.findNodeAt(x, y, z);
 						if(!onlyLeaves || n.numberOfChildren()==0)
 						{
 						Object v= n.getAttributeValue(clazz);
 						if(v!=null)
 						output.setPixelXYZInt(x, y, z,(Integer)v);	
 						else {
-							System.out.println("Attribute does not exist for node: " +tree.findNodeAt(x, y, z) + " for pixel " + "["+x+";"+y+";"+z+"]" + "  NOW I WILL CRASH!");
+							System.out.println("Attribute does not exist for node: " +componentTree.findNodeAt(x, y, z) + " for pixel " + "["+x+";"+y+";"+z+"]" + "  NOW I WILL CRASH!");
 							v.toString();
 						}
 						}
@@ -188,14 +211,14 @@ public class ReconstructImageFromTree extends Algorithm {
 					for(int y=0;y<ydim;y++)
 						for(int x=0;x<xdim;x++)
 						{
-							ComponentNode n= tree.findNodeAt(x, y, z);
+							ComponentNode n= componentTree.findNodeAt(x, y, z);
 							if(!onlyLeaves || n.numberOfChildren()==0)
 							{
 							Object v= n.getAttributeValue(clazz);
 							if(v!=null)
 							output.setPixelXYZBoolean(x, y, z,(Boolean)v);	
 							else {
-								System.out.println("Attribute does not exist for node: " +tree.findNodeAt(x, y, z) + " for pixel " + "["+x+";"+y+";"+z+"]" + "  NOW I WILL CRASH!");
+								System.out.println("Attribute does not exist for node: " +componentTree.findNodeAt(x, y, z) + " for pixel " + "["+x+";"+y+";"+z+"]" + "  NOW I WILL CRASH!");
 								v.toString();
 							}
 							}
@@ -207,7 +230,7 @@ public class ReconstructImageFromTree extends Algorithm {
 	
 	private void drawLevel() throws UnsupportedDataTypeException
 	{
-		Object v=tree.findNodeAt(0, 0, 0).getLevel();
+		Object v=componentTree.findNodeAt(0, 0, 0).getLevel();
 		
 		if(v instanceof Double)
 		{
@@ -218,22 +241,22 @@ public class ReconstructImageFromTree extends Algorithm {
 				for(int y=0;y<ydim;y++)
 					for(int x=0;x<xdim;x++)
 					{
-						ComponentNode n= tree.findNodeAt(x, y, z);
+						ComponentNode n= componentTree.findNodeAt(x, y, z);
 						if(!onlyLeaves || n.numberOfChildren()==0)
 						{
 							double level=(Double)n.getLevel();
 							if(constraint)
-								level=Math.min(level, tree.image.getPixelXYZDouble(x, y, z));
+								level=Math.min(level, componentTree.image.getPixelXYZDouble(x, y, z));
 							output.setPixelXYZDouble(x, y, z,level);	
 						}
 							
 					}
 		} else if (v instanceof double[])
 		{
-			output=new DoubleImage(xdim,ydim,zdim,1,((double [])tree.findNodeAt(0, 0, 0).getLevel()).length);
+			output=new DoubleImage(xdim,ydim,zdim,1,((double [])componentTree.findNodeAt(0, 0, 0).getLevel()).length);
 			output.fill(Double.NEGATIVE_INFINITY);
 			
-			VectorialBasedComponentOrdering comp=(VectorialBasedComponentOrdering )tree.getComparator();
+			VectorialBasedComponentOrdering comp=(VectorialBasedComponentOrdering )componentTree.getComparator();
 			VectorialOrdering comparator=comp.getVectorialOrdering();
 			for(int z=0;z<zdim;z++)
 				for(int y=0;y<ydim;y++)
@@ -241,13 +264,13 @@ public class ReconstructImageFromTree extends Algorithm {
 					{
 					
 							
-						ComponentNode n= tree.findNodeAt(x, y, z);
+						ComponentNode n= componentTree.findNodeAt(x, y, z);
 						
 							
 						double [] level = (double [])n.getLevel();
 						
 						if(constraint)
-							level=comparator.min(level, tree.image.getVectorPixelXYZDouble(x, y, z));
+							level=comparator.min(level, componentTree.image.getVectorPixelXYZDouble(x, y, z));
 						if(!onlyLeaves || n.numberOfChildren()==0)
 							output.setVectorPixelXYZTDouble(x, y, z, 0, level);	
 					}
@@ -264,13 +287,68 @@ public class ReconstructImageFromTree extends Algorithm {
 			for(int y=0;y<ydim;y++)
 				for(int x=0;x<xdim;x++)
 				{
-					ComponentNode n= tree.findNodeAt(x, y, z);
+					ComponentNode n= componentTree.findNodeAt(x, y, z);
 					if(!onlyLeaves || n.numberOfChildren()==0)
 						output.setPixelXYZInt(x, y, z,n.getArea());	
 				}
 		output.setName("Area map");
 	}
 	
+	/**
+	 * Same reconstructions on a compact tree, pixel by pixel from the node of
+	 * each pixel
+	 * @param t
+	 * @throws AttributeNotFoundException
+	 */
+	private void drawCompact(CompactComponentTree t) throws AttributeNotFoundException
+	{
+		xdim=t.getXdim();
+		ydim=t.getYdim();
+		zdim=t.getZdim();
+		int size=t.size();
+		boolean [] hasChildren=(onlyLeaves)?t.hasChildren():null;
+		switch (data)
+		{
+		case Level:
+			output=new DoubleImage(xdim,ydim,zdim,1,1);
+			output.fill(Double.NEGATIVE_INFINITY);
+			int bdim=t.image.getBDim();
+			for(int p=0;p<size;p++)
+			{
+				if(onlyLeaves && hasChildren[t.findNodeAt(p)])
+					continue;
+				double level=t.getLevel(p);
+				if(constraint)
+					level=Math.min(level, t.image.getPixelDouble(p*bdim));
+				output.setPixelDouble(p,level);
+			}
+			output.setName("Reconstruction");
+			break;
+		case Area:
+			output=new IntegerImage(xdim,ydim,zdim,1,1);
+			output.fill(Integer.MIN_VALUE);
+			for(int p=0;p<size;p++)
+			{
+				int n=t.findNodeAt(p);
+				if(!onlyLeaves || !hasChildren[n])
+					output.setPixelInt(p,t.getArea(n));
+			}
+			output.setName("Area map");
+			break;
+		case Attribute:
+			output=new DoubleImage(xdim,ydim,zdim,1,1);
+			output.fill(Double.NEGATIVE_INFINITY);
+			for(int p=0;p<size;p++)
+			{
+				int n=t.findNodeAt(p);
+				if(!onlyLeaves || !hasChildren[n])
+					output.setPixelDouble(p,t.getAttributeValue(clazz,n));
+			}
+			output.setName(clazz.getSimpleName());
+			break;
+		}
+	}
+	
 	public static Image exec(ComponentTree tree)
 	{
 		return (Image)(new ReconstructImageFromTree()).process(tree);
@@ -295,4 +373,24 @@ public class ReconstructImageFromTree extends Algorithm {
 	{
 		return (Image)(new ReconstructImageFromTree()).process(tree,onlyLeaves,data,clazz);
 	}
+	
+	public static Image exec(CompactComponentTree tree)
+	{
+		return (Image)(new ReconstructImageFromTree()).process(tree);
+	}
+	
+	public static Image exec(CompactComponentTree tree, boolean onlyLeaves)
+	{
+		return (Image)(new ReconstructImageFromTree()).process(tree,onlyLeaves);
+	}
+	
+	public static Image exec(CompactComponentTree tree, Data data)
+	{
+		return (Image)(new ReconstructImageFromTree()).process(tree,null,data);
+	}
+	
+	public static Image exec(CompactComponentTree tree, Data data,Class<? extends ComponentAttribute> clazz)
+	{
+		return (Image)(new ReconstructImageFromTree()).process(tree,null,data,clazz);
+	}
 }
@@ -3,10 +3,13 @@ package fr.unistra.pelican.algorithms.morphology.gray;
 import fr.unistra.pelican.Algorithm;
 import fr.unistra.pelican.AlgorithmException;
 import fr.unistra.pelican.Image;
-import fr.unistra.pelican.algorithms.arithmetic.Inversion;
+import fr.unistra.pelican.util.morphology.IncreasingAttribute;
 
 /**
- * Perform an area closing on grayscale images by stack decomposition
+ * Perform an area closing on grayscale images : components of less than thresh
+ * pixels are filled. This is the GrayAttributeClosing with the area attribute,
+ * computed by union-find for any image type, in 2-D (8-neighbourhood) or 3-D
+ * (26-neighbourhood).
  * 
  * @author Lefevre
  * 
@@ -43,11 +46,12 @@ public class GrayAreaClosing extends Algorithm {
 	 * @see fr.unistra.pelican.Algorithm#launch()
 	 */
 	public void launch() throws AlgorithmException {
-		outputImage=Inversion.exec(GrayAreaOpening.exec(Inversion.exec(inputImage),thresh));
+		outputImage = GrayAttributeClosing.exec(inputImage,
+			new IncreasingAttribute.Area(), thresh);
 	}
 
 	/**
-	 * Perform an area closing on grayscale images by stack decomposition
+	 * Perform an area closing on grayscale images
 	 * @param inputImage image to be processed
 	 * @param thresh Threshold for connected component size
 	 * @return filtered picture
@@ -2,13 +2,14 @@ package fr.unistra.pelican.algorithms.morphology.gray;
 
 import fr.unistra.pelican.Algorithm;
 import fr.unistra.pelican.AlgorithmException;
-import fr.unistra.pelican.BooleanImage;
 import fr.unistra.pelican.Image;
-import fr.unistra.pelican.algorithms.morphology.binary.BinaryAreaOpening;
-import fr.unistra.pelican.algorithms.segmentation.ManualThresholding;
+import fr.unistra.pelican.util.morphology.IncreasingAttribute;
 
 /**
- * Perform an area opening on grayscale images by stack decomposition
+ * Perform an area opening on grayscale images : components of less than thresh
+ * pixels are removed. This is the GrayAttributeOpening with the area attribute,
+ * computed by union-find for any image type, in 2-D (8-neighbourhood) or 3-D
+ * (26-neighbourhood).
  * 
  * @author Lefevre
  * 
@@ -45,18 +46,12 @@ public class GrayAreaOpening extends Algorithm {
 	 * @see fr.unistra.pelican.Algorithm#launch()
 	 */
 	public void launch() throws AlgorithmException {
-		outputImage = inputImage.copyImage(false);
-		for (int t=0;t<256;t++) {
-			BooleanImage stack=ManualThresholding.exec(inputImage,t/255.);
-			stack=BinaryAreaOpening.exec(stack,thresh);
-			for (int p=0;p<stack.size();p++)
-				if( stack.isPresent(p) && stack.getPixelBoolean(p) )
-					outputImage.setPixelByte(p,t);
-		}
+		outputImage = GrayAttributeOpening.exec(inputImage,
+			new IncreasingAttribute.Area(), thresh);
 	}
 
 	/**
-	 * Perform an area opening on grayscale images by stack decomposition
+	 * Perform an area opening on grayscale images
 	 * @param inputImage image to be processed
 	 * @param thresh Threshold for connected component size
 	 * @return filtered picture
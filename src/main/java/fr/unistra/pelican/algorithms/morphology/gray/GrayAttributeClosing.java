@@ -0,0 +1,103 @@
+package fr.unistra.pelican.algorithms.morphology.gray;
+
+import fr.unistra.pelican.Algorithm;
+import fr.unistra.pelican.AlgorithmException;
+import fr.unistra.pelican.Image;
+import fr.unistra.pelican.util.connectivityTrees.connectivity.Connectivity3D;
+import fr.unistra.pelican.util.morphology.IncreasingAttribute;
+
+/**
+ * Perform an attribute closing on grayscale images : every connected
+ * component of the lower level sets whose attribute is lower than the
+ * threshold is filled. This is the attribute opening of the opposite image,
+ * see GrayAttributeOpening.
+ *
+ * @author PELICAN team
+ *
+ */
+public class GrayAttributeClosing extends Algorithm {
+	/**
+	 * Input image
+	 */
+	public Image inputImage;
+
+	/**
+	 * Attribute of the components
+	 */
+	public IncreasingAttribute attribute;
+
+	/**
+	 * Threshold of the attribute, components whose attribute is lower are
+	 * filled
+	 */
+	public double threshold;
+
+	/**
+	 * Connectivity of the components, must be a TrivialConnectivity
+	 */
+	public Connectivity3D connectivity = null;
+
+	/**
+	 * Output Image
+	 */
+	public Image outputImage;
+
+	/**
+	 * Constructor
+	 *
+	 */
+	public GrayAttributeClosing() {
+		super.inputs = "inputImage,attribute,threshold";
+		super.options = "connectivity";
+		super.outputs = "outputImage";
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see fr.unistra.pelican.Algorithm#launch()
+	 */
+	public void launch() throws AlgorithmException {
+		outputImage = GrayAttributeOpening.filter(inputImage, attribute,
+			threshold, connectivity, true);
+	}
+
+	/**
+	 * Perform an attribute closing on grayscale images
+	 *
+	 * @param inputImage
+	 *            image to be processed
+	 * @param attribute
+	 *            increasing attribute of the components
+	 * @param threshold
+	 *            components whose attribute is lower are filled
+	 * @return filtered picture
+	 */
+	@SuppressWarnings("unchecked")
+	public static <T extends Image> T exec(T inputImage,
+		IncreasingAttribute attribute, double threshold) {
+		return (T) new GrayAttributeClosing().process(inputImage, attribute,
+			threshold);
+	}
+
+	/**
+	 * Perform an attribute closing on grayscale images
+	 *
+	 * @param inputImage
+	 *            image to be processed
+	 * @param attribute
+	 *            increasing attribute of the components
+	 * @param threshold
+	 *            components whose attribute is lower are filled
+	 * @param connectivity
+	 *            connectivity of the components
+	 * @return filtered picture
+	 */
+	@SuppressWarnings("unchecked")
+	public static <T extends Image> T exec(T inputImage,
+		IncreasingAttribute attribute, double threshold,
+		Connectivity3D connectivity) {
+		return (T) new GrayAttributeClosing().process(inputImage, attribute,
+			threshold, connectivity);
+	}
+}
@@ -0,0 +1,293 @@
+package fr.unistra.pelican.algorithms.morphology.gray;
+
+import java.util.Arrays;
+
+import fr.unistra.pelican.Algorithm;
+import fr.unistra.pelican.AlgorithmException;
+import fr.unistra.pelican.BooleanImage;
+import fr.unistra.pelican.ByteImage;
+import fr.unistra.pelican.Image;
+import fr.unistra.pelican.IntegerImage;
+import fr.unistra.pelican.algorithms.morphology.connected.BuildCompactComponentTree;
+import fr.unistra.pelican.util.connectivityTrees.connectivity.Connectivity3D;
+import fr.unistra.pelican.util.connectivityTrees.connectivity.TrivialConnectivity;
+import fr.unistra.pelican.util.morphology.IncreasingAttribute;
+
+/**
+ * Perform an attribute opening on grayscale images : every connected
+ * component of the upper level sets whose attribute is lower than the
+ * threshold is removed. The attribute must be increasing (area, bounding box
+ * diagonal, volume...), see IncreasingAttribute.
+ *
+ * The filter uses the union-find algorithm of Meijster and Wilkinson (A
+ * comparison of algorithms for connected set openings and closings, 2002) :
+ * the pixels are sorted once, then merged from the highest level to the
+ * lowest one, a set stopping to grow as soon as its attribute reaches the
+ * threshold. The cost does not depend on the number of gray levels, so any
+ * image type can be filtered. Each band and frame is filtered separately, in
+ * 2-D or in 3-D. Pixels absent from the mask of the image belong to no
+ * component and are not written in the output.
+ *
+ * Default connectivity is 8-neighbourhood for 2-D images and
+ * 26-neighbourhood for 3-D ones.
+ *
+ * @author PELICAN team
+ *
+ */
+public class GrayAttributeOpening extends Algorithm {
+	/**
+	 * Input image
+	 */
+	public Image inputImage;
+
+	/**
+	 * Attribute of the components
+	 */
+	public IncreasingAttribute attribute;
+
+	/**
+	 * Threshold of the attribute, components whose attribute is lower are
+	 * removed
+	 */
+	public double threshold;
+
+	/**
+	 * Connectivity of the components, must be a TrivialConnectivity
+	 */
+	public Connectivity3D connectivity = null;
+
+	/**
+	 * Output Image
+	 */
+	public Image outputImage;
+
+	/**
+	 * Constructor
+	 *
+	 */
+	public GrayAttributeOpening() {
+		super.inputs = "inputImage,attribute,threshold";
+		super.options = "connectivity";
+		super.outputs = "outputImage";
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see fr.unistra.pelican.Algorithm#launch()
+	 */
+	public void launch() throws AlgorithmException {
+		outputImage = filter(inputImage, attribute, threshold, connectivity,
+			false);
+	}
+
+	/**
+	 * Attribute opening or closing of an image
+	 *
+	 * @param input
+	 *            image to be processed
+	 * @param attribute
+	 *            attribute of the components
+	 * @param threshold
+	 *            threshold of the attribute
+	 * @param connectivity
+	 *            connectivity, null for the default one
+	 * @param closing
+	 *            true for a closing, i.e. an opening of the opposite values
+	 * @return the filtered image, of the type of the input
+	 */
+	static Image filter(Image input, IncreasingAttribute attribute,
+		double threshold, Connectivity3D connectivity, boolean closing) {
+		int xdim = input.getXDim();
+		int ydim = input.getYDim();
+		int zdim = input.getZDim();
+		int tdim = input.getTDim();
+		int bdim = input.getBDim();
+		int size = xdim * ydim * zdim;
+		if (connectivity == null)
+			connectivity = zdim > 1 ? TrivialConnectivity
+				.getTwentySixNeighbourhood() : TrivialConnectivity
+				.getHeightNeighbourhood();
+		int[][] offsets = BuildCompactComponentTree.offsets(connectivity);
+		int[] delta = new int[offsets.length];
+		for (int k = 0; k < offsets.length; k++)
+			delta[k] = offsets[k][0] + xdim
+				* (offsets[k][1] + ydim * offsets[k][2]);
+		boolean bytes = input instanceof ByteImage
+			|| input instanceof BooleanImage;
+		boolean ints = input instanceof IntegerImage;
+		boolean masked = !input.getMask().isTransparent();
+
+		Image output = input.copyImage(false);
+		double[] values = new double[size];
+		int[] rank = new int[size];
+		int[] parent = new int[size];
+		boolean[] done = new boolean[size];
+		boolean[] present = new boolean[size];
+		int[] source = new int[size];
+		for (int t = 0; t < tdim; t++)
+			for (int b = 0; b < bdim; b++) {
+				// index of pixel p is first + bdim * p
+				int first = b + bdim * size * t;
+				for (int p = 0; p < size; p++)
+					present[p] = !masked || input.isPresent(first + bdim * p);
+				for (int p = 0; p < size; p++)
+					values[p] = closing ? -input.getPixelDouble(first + bdim * p)
+						: input.getPixelDouble(first + bdim * p);
+				int nbRanks;
+				if (bytes) {
+					for (int p = 0; p < size; p++) {
+						int v = input.getPixelByte(first + bdim * p);
+						rank[p] = closing ? 255 - v : v;
+					}
+					nbRanks = 256;
+				} else
+					nbRanks = rank(values, rank);
+				int[] order = sort(rank, nbRanks);
+
+				// union-find from the highest level to the lowest one
+				attribute.allocate(xdim, ydim, zdim);
+				Arrays.fill(parent, -1);
+				Arrays.fill(done, false);
+				int xydim = xdim * ydim;
+				for (int i = size - 1; i >= 0; i--) {
+					int p = order[i];
+					if (!present[p])
+						continue;
+					int x = p % xdim;
+					int y = (p / xdim) % ydim;
+					int z = p / xydim;
+					parent[p] = p;
+					attribute.init(p, values[p]);
+					for (int k = 0; k < offsets.length; k++) {
+						int nx = x + offsets[k][0];
+						int ny = y + offsets[k][1];
+						int nz = z + offsets[k][2];
+						if (nx < 0 || ny < 0 || nz < 0 || nx >= xdim
+							|| ny >= ydim || nz >= zdim)
+							continue;
+						int q = p + delta[k];
+						if (parent[q] == -1)
+							continue;
+						int r = findRoot(parent, q);
+						if (r == p)
+							continue;
+						if (rank[r] == rank[p] || !done[r]
+							&& !attribute.reaches(r, values[p], threshold)) {
+							parent[r] = p;
+							attribute.merge(p, r);
+							done[p] |= done[r];
+						} else
+							// contains a component which is kept
+							done[p] = true;
+					}
+				}
+
+				// every pixel takes the value of the root of its set
+				for (int i = 0; i < size; i++) {
+					int p = order[i];
+					if (present[p])
+						source[p] = parent[p] == p ? p : source[parent[p]];
+				}
+				for (int p = 0; p < size; p++) {
+					if (!present[p])
+						continue;
+					int from = first + bdim * source[p];
+					int to = first + bdim * p;
+					if (bytes)
+						output.setPixelByte(to, input.getPixelByte(from));
+					else if (ints)
+						output.setPixelInt(to, input.getPixelInt(from));
+					else
+						output.setPixelDouble(to, input.getPixelDouble(from));
+				}
+			}
+		return output;
+	}
+
+	/**
+	 * Find the root of a set with path compression
+	 */
+	private static int findRoot(int[] parent, int p) {
+		int r = p;
+		while (parent[r] != r)
+			r = parent[r];
+		while (parent[p] != r) {
+			int next = parent[p];
+			parent[p] = r;
+			p = next;
+		}
+		return r;
+	}
+
+	/**
+	 * Compute the rank of each value in the sorted distinct values
+	 *
+	 * @return the number of distinct values
+	 */
+	private static int rank(double[] values, int[] rank) {
+		double[] distinct = values.clone();
+		Arrays.sort(distinct);
+		int nb = 0;
+		for (int i = 0; i < distinct.length; i++)
+			if (i == 0 || Double.compare(distinct[i], distinct[nb - 1]) != 0)
+				distinct[nb++] = distinct[i];
+		for (int p = 0; p < values.length; p++)
+			rank[p] = Arrays.binarySearch(distinct, 0, nb, values[p]);
+		return nb;
+	}
+
+	/**
+	 * Counting sort of the pixels by increasing rank
+	 */
+	private static int[] sort(int[] rank, int nbRanks) {
+		int[] start = new int[nbRanks + 1];
+		for (int p = 0; p < rank.length; p++)
+			start[rank[p] + 1]++;
+		for (int r = 0; r < nbRanks; r++)
+			start[r + 1] += start[r];
+		int[] sorted = new int[rank.length];
+		for (int p = 0; p < rank.length; p++)
+			sorted[start[rank[p]]++] = p;
+		return sorted;
+	}
+
+	/**
+	 * Perform an attribute opening on grayscale images
+	 *
+	 * @param inputImage
+	 *            image to be processed
+	 * @param attribute
+	 *            increasing attribute of the components
+	 * @param threshold
+	 *            components whose attribute is lower are removed
+	 * @return filtered picture
+	 */
+	@SuppressWarnings("unchecked")
+	public static <T extends Image> T exec(T inputImage,
+		IncreasingAttribute attribute, double threshold) {
+		return (T) new GrayAttributeOpening().process(inputImage, attribute,
+			threshold);
+	}
+
+	/**
+	 * Perform an attribute opening on grayscale images
+	 *
+	 * @param inputImage
+	 *            image to be processed
+	 * @param attribute
+	 *            increasing attribute of the components
+	 * @param threshold
+	 *            components whose attribute is lower are removed
+	 * @param connectivity
+	 *            connectivity of the components
+	 * @return filtered picture
+	 */
+	@SuppressWarnings("unchecked")
+	public static <T extends Image> T exec(T inputImage,
+		IncreasingAttribute attribute, double threshold,
+		Connectivity3D connectivity) {
+		return (T) new GrayAttributeOpening().process(inputImage, attribute,
+			threshold, connectivity);
+	}
+}
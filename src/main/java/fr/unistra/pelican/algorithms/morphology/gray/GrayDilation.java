@@ -1,8 +1,9 @@
 package fr.unistra.pelican.algorithms.morphology.gray;
 
 import fr.unistra.pelican.*;
-import fr.unistra.pelican.util.Point4D;
+import fr.unistra.pelican.util.Parallel;
 import fr.unistra.pelican.util.buffers.DoubleBuffers;
+import fr.unistra.pelican.util.morphology.FlatMorphology;
 
 
 
@@ -116,11 +117,8 @@ public class GrayDilation extends Algorithm {
 			case GrayErosion.VANHERK_VLINE_OPTIMIZATION: 
 				this.verticalDilation();
 				break;
-			default : // try to find a possible optimization ...
-				int opt = GrayErosion.wichOptimization( this.se, this.inputImage );
-				if ( opt == GrayErosion.NO_OPTIMIZATION ) 
-					this.standardDilation();
-				else this.outputImage = GrayDilation.exec( this.inputImage,this.se,this.mask,opt );
+			default : // the engine handles any structuring element
+				this.standardDilation();
 		}
 	}
 
@@ -128,69 +126,17 @@ public class GrayDilation extends Algorithm {
 	 // OTHER METHODS //
 	///////////////////
 
-	/**	Returns the max value under a flat structuring element.
-	 *	@param x X coordinate.
-	 *	@param y Y coordinate.
-	 *	@param z Z coordinate.
-	 *	@param t T coordinate.
-	 *	@param b B coordinate.
-	 *	@param points Present points of {@link #se}.
-	 */
-	private double getMaxGray(int x, int y, int z, int t, int b, Point4D[] points) {
-
-		double max = Double.MIN_VALUE;
-		boolean flag = false;
-
-		for ( int i = 0 ; i < points.length ; i++ ) { 
-
-			int valX = x - this.se.getCenter().x + points[i].x;
-			int valY = y - this.se.getCenter().y + points[i].y;
-			int valZ = z - this.se.getCenter().z + points[i].z;
-			int valT = t - this.se.getCenter().t + points[i].t;
-			if (	valX >= 0 && valX < this.inputImage.getXDim() 
-				 && valY >= 0 && valY < this.inputImage.getYDim() 
-				 && valZ >= 0 && valZ < this.inputImage.getZDim() 
-				 && valT >= 0 && valT < this.inputImage.getTDim() 
-				 && this.inputImage.isPresent( valX,valY,valZ,valT,b ) ) { 
-
-				double value = this.inputImage.getPixelDouble( valX, valY, valZ, valT, b );
-				if ( max < value ) max = value;
-				flag = true;
-			} // fi
-		} // rof i
-		// FIXME: Strange, if nothing is under the se, what is the right way?
-		return (flag == true) ? max : this.inputImage.getPixelDouble( x,y,z,t,b );
-	} // endfunc
-
-
-
 	 //
 	// STANDARD DILATION METHOD
 
-	/**	Performs a standard "naive" dilation. */
+	/**	Performs the dilation with the flat morphology engine, whatever the shape of 
+	 *	the structuring element and the size of the image. 
+	 */
 	private void standardDilation() { 
 
-		this.outputImage = inputImage.copyImage( false );
-		int xDim = this.inputImage.getXDim();
-		int yDim = this.inputImage.getYDim();
-		int tDim = this.inputImage.getTDim();
-		int bDim = this.inputImage.getBDim();
-		int zDim = this.inputImage.getZDim();
-		Point4D[] points = se.foreground();
-		boolean isHere;
-		for ( int t = 0 ; t < tDim ; t++ )
-		for ( int z = 0 ; z < zDim ; z++ )
-		for ( int y = 0 ; y < yDim ; y++ ) 
-		for ( int x = 0 ; x < xDim ; x++ )
-		for ( int b = 0 ; b < bDim ; b++ ) { 
-			if(mask!=null)
-				isHere = this.inputImage.isPresent( x,y,z,t,b )&&mask.getPixelXYZTBBoolean(x, y, z, t, b);
-			else
-				isHere = this.inputImage.isPresent( x,y,z,t,b );
-			if ( isHere ) 
-				 this.outputImage.setPixelDouble( x,y,z,t,b, this.getMaxGray( x,y,z,t,b, points ) );
-			else this.outputImage.setPixelDouble( x,y,z,t,b, 0. );
-		} // rof
+		this.outputImage = this.inputImage.copyImage( false );
+		new FlatMorphology( this.se ).apply( this.inputImage,this.outputImage,this.mask,
+											 false,true,Double.NEGATIVE_INFINITY,Double.NEGATIVE_INFINITY );
 	} // endfunc
 
 
@@ -299,44 +245,50 @@ public class GrayDilation extends Algorithm {
 	private void horizontalDilation() { 
 
 		this.outputImage = this.inputImage.copyImage( false );
-		int xdim = this.inputImage.getXDim();
-		int ydim = this.inputImage.getYDim();
-		int zdim = this.inputImage.getZDim();
-		int tdim = this.inputImage.getTDim();
-		int bdim = this.inputImage.getBDim();
-		int size = xdim;
-		DoubleBuffers buffers = new DoubleBuffers( size );
-		int lambda = this.se.getXDim(); //  lambada !
-		int o = this.se.getCenter().x;
-
-		assert buffers.size%lambda == 0;
-
-		double px;
-		int m,n;
-		for ( int b = 0 ; b < bdim ; b++ ) 
-		for ( int t = 0 ; t < tdim ; t++ )
-		for ( int z = 0 ; z < zdim ; z++ )
-		for ( int y = 0 ; y < ydim ; y++ ) { 
-
-			this.initRowBuffers( y,z,t,b, buffers,lambda );
-			for ( int x = 0 ; x < xdim ; x++ ) { 
-
-				m = x+lambda-o-1;
-				n = x-o;
-				if ( m >= xdim ) { 
-
-					if ( n < 0 ) px = Double.MIN_VALUE;
-					else px = buffers.h[ n ];
-
-				} else {
-
-					if ( n < 0 ) px = buffers.g[ m ];
-					else px = Math.max( buffers.g[ m ],buffers.h[ n ] );
-				}
-				this.outputImage.setPixelDouble( x,y,z,t,b, px );
-			} // rof x
-
-		} // rof
+		final int xdim = this.inputImage.getXDim();
+		final int ydim = this.inputImage.getYDim();
+		final int zdim = this.inputImage.getZDim();
+		final int tdim = this.inputImage.getTDim();
+		final int bdim = this.inputImage.getBDim();
+		final int lambda = this.se.getXDim(); //  lambada !
+		final int o = this.se.getCenter().x;
+
+		Parallel.forLines( this.outputImage, tdim*zdim*ydim, new Parallel.Range() { 
+			public void run( int from, int to ) { 
+				int size = xdim;
+				DoubleBuffers buffers = new DoubleBuffers( size );
+
+				assert buffers.size%lambda == 0;
+
+				double px;
+				int m,n;
+				for ( int line = from ; line < to ; line++ ) 
+				for ( int b = 0 ; b < bdim ; b++ ) { 
+
+					int y = line % ydim;
+					int z = ( line / ydim ) % zdim;
+					int t = line / ( ydim*zdim );
+
+					GrayDilation.this.initRowBuffers( y,z,t,b, buffers,lambda );
+					for ( int x = 0 ; x < xdim ; x++ ) { 
+
+						m = x+lambda-o-1;
+						n = x-o;
+						if ( m >= xdim ) { 
+
+							if ( n < 0 ) px = Double.MIN_VALUE;
+							else px = buffers.h[ n ];
+
+						} else {
+
+							if ( n < 0 ) px = buffers.g[ m ];
+							else px = Math.max( buffers.g[ m ],buffers.h[ n ] );
+						}
+						GrayDilation.this.outputImage.setPixelDouble( x,y,z,t,b, px );
+					} // rof x
+				} // rof
+			}
+		});
 
 	} // endfunc
 
@@ -349,44 +301,50 @@ public class GrayDilation extends Algorithm {
 	private void verticalDilation() { 
 
 		this.outputImage = this.inputImage.copyImage( false );
-		int xdim = this.inputImage.getXDim();
-		int ydim = this.inputImage.getYDim();
-		int zdim = this.inputImage.getZDim();
-		int tdim = this.inputImage.getTDim();
-		int bdim = this.inputImage.getBDim();
-		int size = ydim;
-		DoubleBuffers buffers = new DoubleBuffers( size );
-		int lambda = this.se.getYDim(); //  lambada !
-		int o = this.se.getCenter().y;
-
-		assert buffers.size%lambda == 0;
-
-		double px;
-		int m,n;
-		for ( int b = 0 ; b < bdim ; b++ ) 
-		for ( int t = 0 ; t < tdim ; t++ )
-		for ( int z = 0 ; z < zdim ; z++ )
-		for ( int x = 0 ; x < xdim ; x++ ) { 
-
-			this.initColumnBuffers( x,z,t,b, buffers,lambda );
-			for ( int y = 0 ; y < ydim ; y++ ) { 
-
-				m = y+lambda-o-1;
-				n = y-o;
-				if ( m >= ydim ) { 
-
-					if ( n < 0 ) px = Double.MIN_VALUE;
-					else px = buffers.h[ n ];
-
-				} else {
-
-					if ( n < 0 ) px = buffers.g[ m ];
-					else px = Math.max( buffers.g[ m ],buffers.h[ n ] );
-				}
-				this.outputImage.setPixelDouble( x,y,z,t,b, px );
-			} // rof x
-
-		} // rof
+		final int xdim = this.inputImage.getXDim();
+		final int ydim = this.inputImage.getYDim();
+		final int zdim = this.inputImage.getZDim();
+		final int tdim = this.inputImage.getTDim();
+		final int bdim = this.inputImage.getBDim();
+		final int lambda = this.se.getYDim(); //  lambada !
+		final int o = this.se.getCenter().y;
+
+		Parallel.forColumns( this.outputImage, tdim*zdim*xdim, new Parallel.Range() { 
+			public void run( int from, int to ) { 
+				int size = ydim;
+				DoubleBuffers buffers = new DoubleBuffers( size );
+
+				assert buffers.size%lambda == 0;
+
+				double px;
+				int m,n;
+				for ( int column = from ; column < to ; column++ ) 
+				for ( int b = 0 ; b < bdim ; b++ ) { 
+
+					int x = column % xdim;
+					int z = ( column / xdim ) % zdim;
+					int t = column / ( xdim*zdim );
+
+					GrayDilation.this.initColumnBuffers( x,z,t,b, buffers,lambda );
+					for ( int y = 0 ; y < ydim ; y++ ) { 
+
+						m = y+lambda-o-1;
+						n = y-o;
+						if ( m >= ydim ) { 
+
+							if ( n < 0 ) px = Double.MIN_VALUE;
+							else px = buffers.h[ n ];
+
+						} else {
+
+							if ( n < 0 ) px = buffers.g[ m ];
+							else px = Math.max( buffers.g[ m ],buffers.h[ n ] );
+						}
+						GrayDilation.this.outputImage.setPixelDouble( x,y,z,t,b, px );
+					} // rof x
+				} // rof
+			}
+		});
 
 	} // endfunc
 
@@ -6,6 +6,7 @@ import fr.unistra.pelican.Algorithm;
 import fr.unistra.pelican.BooleanImage;
 import fr.unistra.pelican.Image;
 import fr.unistra.pelican.util.morphology.FlatStructuringElement2D;
+import fr.unistra.pelican.util.morphology.HistogramRankFilter;
 
 /**
  * This class applies a median filter with a given structuring element
@@ -73,6 +74,13 @@ public class GrayMedian extends Algorithm {
 	 */
 	public void launch() {
 		outputImage = inputImage.copyImage(false);
+		// histogram based engine for unmasked byte and integer images
+		if (HistogramRankFilter.isApplicable(inputImage)
+			&& inputImage.getMask().isTransparent() && se.getZDim() == 1
+			&& se.getTDim() == 1
+			&& new HistogramRankFilter(se).apply(inputImage, outputImage,
+				HistogramRankFilter.MEDIAN_UPPER, 0, false))
+			return;
 		int xDim = inputImage.getXDim();
 		int yDim = inputImage.getYDim();
 		int tDim = inputImage.getTDim();
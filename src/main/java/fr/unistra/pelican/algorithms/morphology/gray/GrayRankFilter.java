@@ -8,6 +8,7 @@ import fr.unistra.pelican.BooleanImage;
 import fr.unistra.pelican.Image;
 import fr.unistra.pelican.util.Point4D;
 import fr.unistra.pelican.util.morphology.FlatStructuringElement2D;
+import fr.unistra.pelican.util.morphology.HistogramRankFilter;
 
 /**
  * This class computes a gray-scale rank filter
@@ -95,6 +96,14 @@ public class GrayRankFilter extends Algorithm {
 		if (rank < 1 || rank > points.length)
 			throw new AlgorithmException("Invalid rank value");
 		
+		// histogram based engine for unmasked byte and integer images
+		if (HistogramRankFilter.isApplicable(input)
+			&& input.getMask().isTransparent() && se.getZDim() == 1
+			&& se.getTDim() == 1
+			&& new HistogramRankFilter(se).apply(input, output,
+				HistogramRankFilter.RANK_FROM_MAX, rank, false))
+			return;
+
 		boolean isHere;
 		for ( int b = 0 ; b < bDim ; b++ )
 		for ( int t = 0 ; t < tDim ; t++ )
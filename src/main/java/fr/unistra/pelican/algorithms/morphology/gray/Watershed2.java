@@ -1,6 +1,5 @@
 package fr.unistra.pelican.algorithms.morphology.gray;
 
-import java.awt.Point;
 import java.util.Vector;
 
 import fr.unistra.pelican.AlgorithmDeprecated;
@@ -9,6 +8,7 @@ import fr.unistra.pelican.Image;
 import fr.unistra.pelican.IntegerImage;
 import fr.unistra.pelican.InvalidNumberOfParametersException;
 import fr.unistra.pelican.InvalidTypeOfParameterException;
+import fr.unistra.pelican.util.BucketQueue;
 
 /*
 
@@ -50,43 +50,50 @@ public class Watershed2 implements AlgorithmDeprecated
 		output = new IntegerImage(xDim,yDim,1,1,bDim);
 		output.fill(INIT);
 
+		// a single level, as a fifo of pixel offsets
+		BucketQueue fifo = new BucketQueue(1);
+		// pixel value distribution, and the offsets of the current level
+		BucketQueue distro = new BucketQueue(256);
+		int[] level = new int[xDim * yDim];
+
 		for(int b = 0; b < bDim; b++){
 			
 			int current_label = WSHED;
 			boolean flag = false;
 			int x,y;
-			Fifo fifo = new Fifo();
-			Point p;
+			int p;
 			
 			int currentLabel = WSHED;
 
 			// pixel value distribution,
 			// so that we dont have to check the entire image
-			Vector[] distro = calculateDistro(b);
+			calculateDistro(b, distro);
 
 			for(int i = 0; i < 256; i++){
 
 				// geodesic SKIZ of level i - 1 inside level i
-				int size = distro[i].size();
+				int size = 0;
+				while(!distro.isEmpty() && distro.getCurrent() == i)
+					level[size++] = distro.get();
 
 				for(int j = 0; j < size; j++){
-					p = (Point)distro[i].elementAt(j);
+					p = level[j];
 
-					x = (int)p.getX(); 
-					y = (int)p.getY();
+					x = p % xDim; 
+					y = p / xDim;
 
 					output.setPixelXYBInt(x,y,b,MASK);
 
 					if(areThereLabelledNeighbours(x,y,b) == true){
 						output.setPixelXYBInt(x,y,b,INQUEUE);
-						fifo.add(p);
+						fifo.add(p,0);
 					}
 				}
 
 				while(fifo.isEmpty() == false){
-					p = (Point)fifo.retrieve();
-					x = (int)p.getX();
-					y = (int)p.getY();
+					p = fifo.get();
+					x = p % xDim;
+					y = p / xDim;
 
 					// for every pixel in the 8-neighbourhood of p
 					for(int j = y - 1; j <= y + 1; j++){
@@ -110,7 +117,7 @@ public class Watershed2 implements AlgorithmDeprecated
 								flag = true;
 							}else if(output.getPixelXYBInt(k,j,b) == MASK){
 								output.setPixelXYBInt(k,j,b,INQUEUE);
-								fifo.add(new Point(k,j));
+								fifo.add(k + xDim * j,0);
 							}
 						}
 					}
@@ -118,30 +125,28 @@ public class Watershed2 implements AlgorithmDeprecated
 
 
 				// check for new minima
-				size = distro[i].size();
-
 				for(int j = 0; j < size; j++){
-					p = (Point)distro[i].elementAt(j);
+					p = level[j];
 
-					x = (int)p.getX(); 
-					y = (int)p.getY();
+					x = p % xDim; 
+					y = p / xDim;
 
 					if(output.getPixelXYBInt(x,y,b) == MASK){
 						currentLabel++;
-						fifo.add(p);
+						fifo.add(p,0);
 						output.setPixelXYBInt(x,y,b,currentLabel);
 
 						while(fifo.isEmpty() == false){
-							p = (Point)fifo.retrieve();
-							x = (int)p.getX();
-							y = (int)p.getY();
+							p = fifo.get();
+							x = p % xDim;
+							y = p / xDim;
 						
 							// for every pixel in the 8-neighbourhood of p
 							for(int l = y - 1; l <= y + 1; l++){
 								for(int k = x - 1; k <= x + 1; k++){
 									if(k < 0 || k >= xDim || l < 0 || l >= yDim) continue;
 									if(!(k == x && l == y) && output.getPixelXYBInt(k,l,b) == MASK){
-										fifo.add(new Point(k,l));
+										fifo.add(k + xDim * l,0);
 										output.setPixelXYBInt(k,l,b,currentLabel);
 									}
 								}
@@ -153,19 +158,14 @@ public class Watershed2 implements AlgorithmDeprecated
 		}
 	}
 
-	private Vector[] calculateDistro(int b)
+	private void calculateDistro(int b, BucketQueue distro)
 	{
-		Vector[] distro = new Vector[256];
-
-		for(int i = 0; i < 256; i++)
-			distro[i] = new Vector();
+		distro.clear();
 
 		for(int x = 0; x < xDim; x++){
 			for(int y = 0; y < yDim; y++)
-				distro[input.getPixelXYBByte(x,y,b)].add(new Point(x,y));
+				distro.add(x + xDim * y, input.getPixelXYBByte(x,y,b));
 		}
-
-		return distro;
 	}
 
 	private boolean areThereLabelledNeighbours(int x,int y,int b)
@@ -258,38 +258,4 @@ public class Watershed2 implements AlgorithmDeprecated
 		algo.launch();
 		return (Image)algo.getOutput().firstElement();		
 	}
-
-
-	private class Fifo
-	{
-		private Vector v;
-
-		Fifo()
-		{
-			v = new Vector();
-		}
-
-		void add(Object o)
-		{
-			v.add(o);
-		}
-
-		Object retrieve()
-		{
-			Object o = v.firstElement();
-			v.remove(0);
-
-			return o;
-		}
-
-		boolean isEmpty()
-		{
-			return v.size() == 0;
-		}
-
-		int size()
-		{
-			return v.size();
-		}
-	}
 }
\ No newline at end of file
@@ -4,7 +4,9 @@ import fr.unistra.pelican.Algorithm;
 import fr.unistra.pelican.AlgorithmException;
 import fr.unistra.pelican.BooleanImage;
 import fr.unistra.pelican.Image;
-import fr.unistra.pelican.util.Point4D;
+import fr.unistra.pelican.util.vectorial.NeighbourhoodWindow;
+import fr.unistra.pelican.util.vectorial.RankTransform;
+import fr.unistra.pelican.util.vectorial.orders.TotalVectorialOrdering;
 import fr.unistra.pelican.util.vectorial.orders.VectorialOrdering;
 
 /**
@@ -59,37 +61,6 @@ public class VectorialDilation extends Algorithm
 		
 	}
 
-	private double[] getMaxVector(int x, int y, int z, int t, Point4D[] points) {
-		double[][] vectorArray = new double[se.getSum()][];
-		int tmp = 0;
-
-		for (int i = 0; i < points.length; i++) {
-			int valX = x - se.getCenter().x + points[i].x;
-			int valY = y - se.getCenter().y + points[i].y;
-
-			if (	valX >= 0 && valX < inputImage.getXDim() 
-				 && valY >= 0 && valY < inputImage.getYDim() 
-				 && inputImage.isPresentXYZT( valX,valY,z,t ) )
-				vectorArray[tmp++] = inputImage.getVectorPixelXYZTDouble( valX,valY,z,t );
-		}
-
-		// empty spots will occur only in image borders...
-		// if the fill policy changes...this must change too.
-		if (tmp == 0)
-			return inputImage.getVectorPixelXYZTDouble(x, y, z, t);
-
-		else if (tmp < vectorArray.length) {
-			double[][] tmpArray = new double[tmp][];
-
-			for (int i = 0; i < tmp; i++)
-				tmpArray[i] = vectorArray[i];
-
-			vectorArray = tmpArray;
-
-		}
-		return vo.max(vectorArray);
-	}
-
 	/*
 	 * (non-Javadoc)
 	 * 
@@ -98,19 +69,30 @@ public class VectorialDilation extends Algorithm
 	public void launch() throws AlgorithmException {
 		outputImage = inputImage.copyImage(false);
 
+		if (RankTransform.isApplicable(inputImage, se, vo)) {
+			RankTransform transform = new RankTransform(inputImage,
+					(TotalVectorialOrdering) vo);
+			transform.toImage(transform.dilate(transform.getRanks(), se), outputImage);
+			return;
+		}
+
 		int xDim = inputImage.getXDim();
 		int yDim = inputImage.getYDim();
 		int tDim = inputImage.getTDim();
 		int zDim = inputImage.getZDim();
 
-		Point4D[] points = se.foreground();
+		NeighbourhoodWindow window = new NeighbourhoodWindow(inputImage, se);
 
 		for ( int t = 0 ; t < tDim ; t++ )
 		for ( int z = 0 ; z < zDim ; z++ )
-		for ( int x = 0 ; x < xDim ; x++ )
 		for ( int y = 0 ; y < yDim ; y++ )
-			if ( inputImage.isPresentXYZT( x,y,z,t ) )
-				outputImage.setVectorPixelXYZTDouble( x,y,z,t, getMaxVector( x,y,z,t, points ) );
+		for ( int x = 0 ; x < xDim ; x++ )
+			if ( inputImage.isPresentXYZT( x,y,z,t ) ) {
+				window.moveTo(x,y,z,t);
+				// empty spots will occur only in image borders...
+				// if the fill policy changes...this must change too.
+				window.setPixel(outputImage, window.getCount() == 0 ? window.center() : window.maxIndex(vo));
+			}
 	}
 
 }
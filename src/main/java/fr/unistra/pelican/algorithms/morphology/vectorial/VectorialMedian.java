@@ -1,9 +1,15 @@
 package fr.unistra.pelican.algorithms.morphology.vectorial;
 
+import java.util.Arrays;
+
 import fr.unistra.pelican.Algorithm;
 import fr.unistra.pelican.AlgorithmException;
 import fr.unistra.pelican.BooleanImage;
 import fr.unistra.pelican.Image;
+import fr.unistra.pelican.util.Point4D;
+import fr.unistra.pelican.util.vectorial.NeighbourhoodWindow;
+import fr.unistra.pelican.util.vectorial.RankTransform;
+import fr.unistra.pelican.util.vectorial.orders.TotalVectorialOrdering;
 import fr.unistra.pelican.util.vectorial.orders.VectorialOrdering;
 
 /**
@@ -57,41 +63,6 @@ public class VectorialMedian extends Algorithm
 		
 	}
 
-	private double[] getMedianVector(int x, int y, int z, int t) {
-		double[][] vectorArray = new double[se.getSum()][];
-		int tmp = 0;
-
-		for (int i = 0; i < se.getXDim(); i++) {
-			for (int j = 0; j < se.getYDim(); j++) {
-				int valX = x - se.getCenter().x + i;
-				int valY = y - se.getCenter().y + j;
-
-				if (	se.getPixelXYBoolean(i,j) 
-					 && valX >= 0 && valX < inputImage.getXDim() 
-					 && valY >= 0 && valY < inputImage.getYDim() 
-					 && inputImage.isPresentXYZT( valX,valY,z,t ) ) 
-					vectorArray[tmp++] = inputImage.getVectorPixelXYZTDouble( valX,valY,z,t );
-			}
-		}
-
-		// empty spots will occur only in image borders...
-		// if the fill policy changes...this must change too.
-		if (tmp == 0)
-			return inputImage.getVectorPixelXYZTDouble(x, y, z, t);
-
-		else if (tmp < vectorArray.length) {
-			double[][] tmpArray = new double[tmp][];
-
-			for (int i = 0; i < tmp; i++)
-				tmpArray[i] = vectorArray[i];
-
-			vectorArray = tmpArray;
-
-		}
-
-		return vo.rank(vectorArray, tmp / 2);
-	}
-
 	/*
 	 * (non-Javadoc)
 	 * 
@@ -100,17 +71,39 @@ public class VectorialMedian extends Algorithm
 	public void launch() throws AlgorithmException {
 		outputImage = inputImage.copyImage(false);
 
+		if (RankTransform.isApplicable(inputImage, se, vo)) {
+			RankTransform transform = new RankTransform(inputImage,
+					(TotalVectorialOrdering) vo);
+			transform.toImage(transform.median(transform.getRanks(), se), outputImage);
+			return;
+		}
+
 		int xDim = inputImage.getXDim();
 		int yDim = inputImage.getYDim();
 		int tDim = inputImage.getTDim();
 		int zDim = inputImage.getZDim();
 
+		// the points column by column, the order in which the ordering gets them
+		Point4D[] points = new Point4D[se.getSum()];
+		int n = 0;
+
+		for (int i = 0; i < se.getXDim(); i++)
+			for (int j = 0; j < se.getYDim(); j++)
+				if (se.getPixelXYBoolean(i,j))
+					points[n++] = new Point4D(i,j,0,0);
+
+		NeighbourhoodWindow window = new NeighbourhoodWindow(inputImage, Arrays.copyOf(points, n), se.getCenter());
+
 		for ( int t = 0 ; t < tDim ; t++ ) 
 		for ( int z = 0 ; z < zDim ; z++ ) 
-		for ( int x = 0 ; x < xDim ; x++ ) 
 		for ( int y = 0 ; y < yDim ; y++ ) 
-			if ( inputImage.isPresentXYZT( x,y,z,t ) )
-				outputImage.setVectorPixelXYZTDouble( x,y,z,t, getMedianVector( x,y,z,t ) );
+		for ( int x = 0 ; x < xDim ; x++ ) 
+			if ( inputImage.isPresentXYZT( x,y,z,t ) ) {
+				window.moveTo(x,y,z,t);
+				// empty spots will occur only in image borders...
+				// if the fill policy changes...this must change too.
+				window.setPixel(outputImage, window.getCount() == 0 ? window.center() : window.rankIndex(vo, window.getCount() / 2));
+			}
 	}
 
 }
@@ -5,6 +5,8 @@ import fr.unistra.pelican.AlgorithmException;
 import fr.unistra.pelican.BooleanImage;
 import fr.unistra.pelican.Image;
 import fr.unistra.pelican.PelicanException;
+import fr.unistra.pelican.util.vectorial.RankTransform;
+import fr.unistra.pelican.util.vectorial.orders.TotalVectorialOrdering;
 import fr.unistra.pelican.util.vectorial.orders.VectorialOrdering;
 
 /**
@@ -67,6 +69,15 @@ public class VectorialOpening extends Algorithm
 	public void launch() throws AlgorithmException {
 		outputImage = inputImage.copyImage(false);
 
+		if (RankTransform.isApplicable(inputImage, se, vo)) {
+			// a single sort of the vectors for both operators
+			RankTransform transform = new RankTransform(inputImage,
+					(TotalVectorialOrdering) vo);
+			transform.toImage(transform.dilate(transform.erode(
+					transform.getRanks(), se), se), outputImage);
+			return;
+		}
+
 		try {
 			outputImage = (Image) new VectorialErosion().process(inputImage, se, vo);
 			outputImage = (Image) new VectorialDilation().process(outputImage, se, vo);
@@ -5,7 +5,10 @@ import fr.unistra.pelican.AlgorithmException;
 import fr.unistra.pelican.BooleanImage;
 import fr.unistra.pelican.Image;
 import fr.unistra.pelican.util.Point4D;
+import fr.unistra.pelican.util.vectorial.NeighbourhoodWindow;
+import fr.unistra.pelican.util.vectorial.RankTransform;
 import fr.unistra.pelican.util.vectorial.orders.BinaryVectorialOrdering;
+import fr.unistra.pelican.util.vectorial.orders.TotalVectorialOrdering;
 
 /**
  * This class computes a vectorial rank filter using binary vectorial orderings.
@@ -87,49 +90,29 @@ public class VectorialRankFilter extends Algorithm
 		if (rank < 1 || rank > points.length)
 			throw new AlgorithmException("Invalid rank value");
 		
+		if (RankTransform.isApplicable(input, se, vo)) {
+			RankTransform transform = new RankTransform(input,
+					(TotalVectorialOrdering) vo);
+			transform.toImage(transform.rank(transform.getRanks(), se, rank),
+					output);
+			return;
+		}
+		
+		NeighbourhoodWindow window = new NeighbourhoodWindow(input, points, se.getCenter());
+		
 		for ( int t = 0 ; t < tDim ; t++ ) 
 		for ( int z = 0 ; z < zDim ; z++ ) 
-		for ( int x = 0 ; x < xDim ; x++ ) 
 		for ( int y = 0 ; y < yDim ; y++ ) 
-			if ( input.isPresentXYZT( x,y,z,t ) )
-				output.setVectorPixelXYZTDouble( x,y,z,t, getRankVector( x,y,z,t, points ) );
-	}
-
-	private double[] getRankVector(int x,int y,int z,int t,Point4D[] points)
-	{
-		int tmp = 0;
-		int localRank = rank;
-		
-		double[][] vectorArray = new double[points.length][];
-		
-
-		for (int i = 0; i < points.length; i++){
-			int valX = x - se.getCenter().x + points[i].x;
-			int valY = y - se.getCenter().y + points[i].y;
+		for ( int x = 0 ; x < xDim ; x++ ) 
+			if ( input.isPresentXYZT( x,y,z,t ) ) {
+				window.moveTo(x,y,z,t);
+				int n = window.getCount();
 				
-			if (	valX < 0 || valX >= xDim 
-				 || valY < 0 || valY >= yDim 
-				 || !input.isPresentXYZT( valX,valY,z,t ) ) continue;
-			
-			vectorArray[tmp++] = input.getVectorPixelXYZTDouble(valX,valY,z,t);
-		}
-
-
-		if (tmp == 0)
-			return input.getVectorPixelXYZTDouble(x,y,z,t);
-
-		else if (tmp < vectorArray.length) {
-			double[][] tmpArray = new double[tmp][];
-
-			for (int i = 0; i < tmp; i++)
-				tmpArray[i] = vectorArray[i];
-
-			vectorArray = tmpArray;
-			localRank = Math.min(localRank,vectorArray.length);
-
-		}
-
-		return vo.rank(vectorArray,vectorArray.length - localRank);
+				if (n == 0)
+					window.setPixel(output, window.center());
+				else
+					window.setPixel(output, window.rankIndex(vo, n - Math.min(rank, n)));
+			}
 	}
 
 }
\ No newline at end of file
@@ -14,7 +14,7 @@ import fr.unistra.pelican.algorithms.io.SamplesLoader;
 import fr.unistra.pelican.algorithms.segmentation.labels.DrawFrontiersOnImage;
 import fr.unistra.pelican.algorithms.segmentation.labels.FrontiersFromSegmentation;
 import fr.unistra.pelican.algorithms.visualisation.Viewer2D;
-import fr.unistra.pelican.util.HierarchicalQueue;
+import fr.unistra.pelican.util.BucketQueue;
 import fr.unistra.pelican.util.Point4D;
 import fr.unistra.pelican.util.Tools;
 
@@ -47,7 +47,7 @@ public class GeodesicDistanceBasedWatershed extends Algorithm {
 	 */
 	public boolean hue = false;
 
-	public HierarchicalQueue queue = null;
+	public BucketQueue queue = null;
 
 	private final int NULL = 0;
 
@@ -103,9 +103,9 @@ public class GeodesicDistanceBasedWatershed extends Algorithm {
 				int scale = Math.max(inputImage.getXDim(), inputImage.getYDim());
 
 				if (queue == null)
-					queue = new HierarchicalQueue(scale * scale * 255);
+					queue = new BucketQueue(scale * scale * 255);
 				else
-					queue.reset();
+					queue.clear();
 
 				int currentLabel = 1;
 
@@ -140,8 +140,9 @@ public class GeodesicDistanceBasedWatershed extends Algorithm {
 				int labeled = 0;
 
 				// Viewer2D.exec(output.scaleToVisibleRange(),"tmp");
+				int xdim = output.getXDim();
 				int current = 0;
-				Point p = null;
+				int[] neighbours = new int[8];
 
 				t2 = System.currentTimeMillis();
 				if (CPU)
@@ -150,12 +151,14 @@ public class GeodesicDistanceBasedWatershed extends Algorithm {
 
 				while (!queue.isEmpty()) {
 					current = queue.getCurrent();
-					p = queue.get();
+					int p = queue.get();
+					int px = p % xdim;
+					int py = p / xdim;
 					if (DEBUG)
-						System.out.println("GET " + p.getX() + "," + p.getY());
+						System.out.println("GET " + px + "," + py);
 
 					// Get the label and check if it has not been labeled before
-					if (output.getPixelXYBInt(p.x, p.y, 0) != NULL)
+					if (output.getPixelXYBInt(px, py, 0) != NULL)
 						continue;
 
 					if (labeled % (input.size() / input.getBDim() / 10) == 0)
@@ -168,17 +171,19 @@ public class GeodesicDistanceBasedWatershed extends Algorithm {
 					// }
 
 					// Definitely set the label from the candidate
-					int label = output.getPixelXYBInt(p.x, p.y, 2);
-					output.setPixelXYBInt(p.x, p.y, 0, label);
+					int label = output.getPixelXYBInt(px, py, 2);
+					output.setPixelXYBInt(px, py, 0, label);
 					labeled++;
 
 					// get the non labelled 8-neighbours of (x,y)
-					Point[] neighbours = getNonLabelledNeighbours(output, p.x, p.y);
+					int count = getNonLabelledNeighbours(output, px, py, neighbours);
 
-					for (int i = 0; i < neighbours.length; i++) {
+					for (int i = 0; i < count; i++) {
+						int nx = neighbours[i] % xdim;
+						int ny = neighbours[i] / xdim;
 
 						// get the current distance for this neighbour
-						int ndist = output.getPixelXYBInt(neighbours[i].x, neighbours[i].y,
+						int ndist = output.getPixelXYBInt(nx, ny,
 							1);
 
 						double val = 0;
@@ -186,12 +191,12 @@ public class GeodesicDistanceBasedWatershed extends Algorithm {
 							// compute the geodesic distance between p and its
 							// neighbor IN THE APPROPRIATE BAND
 							for (int b = 0; b < input.getBDim(); b++) {
-								double val1 = input.getPixelXYBDouble(neighbours[i].x,
-									neighbours[i].y, b);
-								double val2 = input.getPixelXYBDouble(p.x, p.y, b);
+								double val1 = input.getPixelXYBDouble(nx,
+									ny, b);
+								double val2 = input.getPixelXYBDouble(px, py, b);
 								val += (val1 - val2)*(val1-val2);
-//								int val1 = input.getPixelXYBByte(neighbours[i].x,
-//									neighbours[i].y, b);
+//								int val1 = input.getPixelXYBByte(nx,
+//									ny, b);
 //								int val2 = input.getPixelXYBByte(p.x, p.y, b);
 //								val += Math.abs(val1 - val2);
 //								System.out.println(val1+" "+val2);
@@ -205,13 +210,13 @@ public class GeodesicDistanceBasedWatershed extends Algorithm {
 //							System.out.println("*");
 							// compute hue-base distance
 							val = Tools.HSLDistance(input.getVectorPixelXYZDouble(
-								neighbours[i].x, neighbours[i].y, 0), input
-								.getVectorPixelXYZDouble(p.x, p.y, 0));
+								nx, ny, 0), input
+								.getVectorPixelXYZDouble(px, py, 0));
 							val = Math.ceil(255 * val);
 							if (val == 0
 								&& Tools.HSLDistance(inputImage.getVectorPixelXYZDouble(
-									neighbours[i].x, neighbours[i].y, 0), inputImage
-									.getVectorPixelXYZDouble(p.x, p.y, 0)) != 0)
+									nx, ny, 0), inputImage
+									.getVectorPixelXYZDouble(px, py, 0)) != 0)
 								System.out.println(val);
 						}
 						if (trueDistance)
@@ -220,20 +225,20 @@ public class GeodesicDistanceBasedWatershed extends Algorithm {
 						int pdist = (int) val + current;// queue.getCurrent();
 						// update distance and candidate if necessary
 						if (ndist == 0 || pdist < ndist) {
-							output.setPixelXYBInt(neighbours[i].x, neighbours[i].y, 1, pdist);
-							output.setPixelXYBInt(neighbours[i].x, neighbours[i].y, 2, label);
+							output.setPixelXYBInt(nx, ny, 1, pdist);
+							output.setPixelXYBInt(nx, ny, 2, label);
 							// add him to the appropriate queue
 							queue.add(neighbours[i], pdist);
 
 						}
 						if (DEBUG) {
 							if (ndist == 0 || pdist < ndist)
-								System.out.println("SET " + neighbours[i].getX() + ","
-									+ neighbours[i].getY() + ":" + pdist + "(" + val + "|"
+								System.out.println("SET " + nx + ","
+									+ ny + ":" + pdist + "(" + val + "|"
 									+ current/* queue.getCurrent() */+ ")");
 							else
-								System.out.println("NOT " + neighbours[i].getX() + ","
-									+ neighbours[i].getY() + ":" + pdist + "/" + ndist + "("
+								System.out.println("NOT " + nx + ","
+									+ ny + ":" + pdist + "/" + ndist + "("
 									+ val + "|" + current/* queue.getCurrent() */+ ")");
 						}
 					}
@@ -264,7 +269,7 @@ public class GeodesicDistanceBasedWatershed extends Algorithm {
 	}
 
 	private void marker(Image input, Point4D[] centers, IntegerImage output,
-		int x, int y, HierarchicalQueue queue, int label) {
+		int x, int y, BucketQueue queue, int label) {
 		LinkedList<Point> fifo = new LinkedList<Point>();
 
 		fifo.add(new Point(x, y));
@@ -272,7 +277,7 @@ public class GeodesicDistanceBasedWatershed extends Algorithm {
 		while (fifo.size() > 0) {
 			Point p = (Point) fifo.removeFirst();
 
-			queue.add(p, NULL);
+			queue.add(p.x + input.getXDim() * p.y, NULL);
 			if (DEBUG)
 				System.out.println("SET " + p.getX() + "," + p.getY() + ":" + NULL);
 			// output.setPixelXYBInt(p.x,p.y,0,label);
@@ -307,9 +312,8 @@ public class GeodesicDistanceBasedWatershed extends Algorithm {
 		}
 	}
 
-	private Point[] getNonLabelledNeighbours(IntegerImage output, int x, int y) {
-		Point[] neighbours = new Point[8];
-
+	private int getNonLabelledNeighbours(IntegerImage output, int x, int y,
+		int[] neighbours) {
 		int cnt = 0;
 
 		for (int j = y - 1; j <= y + 1; j++) {
@@ -319,21 +323,12 @@ public class GeodesicDistanceBasedWatershed extends Algorithm {
 				int z = output.getPixelXYBInt(i, j, 0);
 
 				if (!(i == x && j == y) && z == NULL)
-					neighbours[cnt++] = new Point(i, j);
+					neighbours[cnt++] = i + output.getXDim() * j;
 
 			}
 		}
 
-		if (cnt < 8) {
-			Point[] tmp = new Point[cnt];
-
-			for (int i = 0; i < cnt; i++)
-				tmp[i] = neighbours[i];
-
-			neighbours = tmp;
-		}
-
-		return neighbours;
+		return cnt;
 	}
 
 	public static void main(String args[]) {
@@ -412,7 +407,7 @@ public class GeodesicDistanceBasedWatershed extends Algorithm {
 	}
 
 	public static Image exec(Image input, Point4D[] centers,
-		boolean trueDistance, boolean hue, HierarchicalQueue queue) {
+		boolean trueDistance, boolean hue, BucketQueue queue) {
 		return (Image) new GeodesicDistanceBasedWatershed().process(input, centers,
 			trueDistance, hue, queue);
 	}
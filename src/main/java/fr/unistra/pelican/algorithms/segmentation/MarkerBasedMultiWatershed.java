@@ -12,6 +12,7 @@ import fr.unistra.pelican.algorithms.conversion.BinaryMasksToLabels;
 import fr.unistra.pelican.algorithms.conversion.ProcessChannels;
 import fr.unistra.pelican.algorithms.logical.CompareConstant;
 import fr.unistra.pelican.algorithms.segmentation.flatzones.BooleanConnectedComponentsLabeling;
+import fr.unistra.pelican.util.BucketQueue;
 
 
 /**
@@ -42,6 +43,14 @@ public class MarkerBasedMultiWatershed extends Algorithm {
 	 */
 	public boolean connexity4 = false;
 
+	/**
+	 * (optional) The number of levels of the flooding : 256 works on the byte
+	 * values, more levels such as 65536 flood the pixel values scaled to
+	 * [0,levels-1] so that 16-bit or floating point inputs keep their
+	 * precision
+	 */
+	public int levels = 256;
+
 	/**
 	 * The optionnal mask image
 	 */
@@ -64,7 +73,7 @@ public class MarkerBasedMultiWatershed extends Algorithm {
 	public MarkerBasedMultiWatershed() {
 		super.inputs = "inputImage";
 		super.outputs = "outputImage";
-		super.options = "mask,connexity4";
+		super.options = "mask,connexity4,levels";
 	}
 
 	/**
@@ -98,6 +107,7 @@ public class MarkerBasedMultiWatershed extends Algorithm {
 			.getYDim(), 1, 1, 2);
 		outputImage = new IntegerImage(inputImage.getXDim(), inputImage.getYDim(),
 			inputImage.getZDim(), inputImage.getTDim(), 1/* inputImage.getBDim() */);
+		BucketQueue queue = new BucketQueue(levels);
 		for (int z = 0; z < inputImage.getZDim(); z++)
 			// Temporarily disable the B dim as we use it for the different
 			// markers
@@ -108,10 +118,9 @@ public class MarkerBasedMultiWatershed extends Algorithm {
 						for (int b = 0; b < inputImage.getBDim(); b++)
 							// That's a nice hack, isn't it? No Byte to Integer
 							// conversion.
-							// Work still have values from 0 to 255.
-							input.setPixelInt(x, y, 0, 0, b, inputImage.getPixelByte(x, y, z,
-								t, b));
-				HierarchicalQueue queue = new HierarchicalQueue(GRAY_LEVELS);
+							// Work has values from 0 to levels-1.
+							input.setPixelInt(x, y, 0, 0, b, level(inputImage, x, y, z, t, b));
+				queue.clear();
 				int currentLabel = 1;
 				output.fill(NULL);
 
@@ -144,7 +153,7 @@ public class MarkerBasedMultiWatershed extends Algorithm {
 							output.setPixelXYBInt(x, y, 0, p);
 							output.setPixelXYBInt(x, y, 1, c);
 							if (bord(x, y, p))
-								queue.add(new Point(x, y), NULL);
+								queue.add(x + xdim * y, NULL);
 						}
 					}
 				if (cpu) {
@@ -169,21 +178,30 @@ public class MarkerBasedMultiWatershed extends Algorithm {
 //				Viewer2D.exec(LabelsToRandomColors.exec(output.getImage4D(1,Image.B)));
 
 				while (!queue.isEmpty()) {
-					Point p = queue.get();
-					int label = output.getPixelXYBInt(p.x, p.y, 0);
-					int band = output.getPixelXYBInt(p.x, p.y, 1);
+					int p = queue.get();
+					int x = p % xdim;
+					int y = p / xdim;
+					int label = output.getPixelXYBInt(x, y, 0);
+					int band = output.getPixelXYBInt(x, y, 1);
 					// get the non labelled 8-neighbours of (x,y)
-					Point[] neighbours = getNonLabelledNeighbours(output, p.x, p.y);
-					for (int i = 0; i < neighbours.length; i++) {
-						// give him the label of p
-						output.setPixelXYBInt(neighbours[i].x, neighbours[i].y, 0, label);
-						output.setPixelXYBInt(neighbours[i].x, neighbours[i].y, 1, band);
-						// get his gray level IN THE APPROPRIATE BAND
-						int val = input.getPixelXYBInt(neighbours[i].x, neighbours[i].y,
-							band);
-						// add him to the appropriate queue
-						queue.add(neighbours[i], val);
-					}
+					for (int j = y - 1; j <= y + 1; j++)
+						for (int i = x - 1; i <= x + 1; i++) {
+							if (i < 0 || i >= xdim || j < 0 || j >= ydim)
+								continue;
+							if (connexity4 && i != x && j != y)
+								continue;
+							if (!mask.getPixelXYBoolean(i, j))
+								continue;
+							if ((i != x || j != y) && output.getPixelXYBInt(i, j, 0) == NULL) {
+								// give him the label of p
+								output.setPixelXYBInt(i, j, 0, label);
+								output.setPixelXYBInt(i, j, 1, band);
+								// get his gray level IN THE APPROPRIATE BAND
+								int val = input.getPixelXYBInt(i, j, band);
+								// add him to the appropriate queue
+								queue.add(i + xdim * j, val);
+							}
+						}
 				}
 				if (cpu) {
 					t2 = System.currentTimeMillis();
@@ -239,8 +257,18 @@ public class MarkerBasedMultiWatershed extends Algorithm {
 		return bord;
 	}
 
+	/**
+	 * Gives the level of a pixel in the flooding.
+	 */
+	private int level(Image image, int x, int y, int z, int t, int b) {
+		if (levels == GRAY_LEVELS)
+			return image.getPixelByte(x, y, z, t, b);
+		return (int) Math.round(image.getPixelDouble(x, y, z, t, b)
+			* (levels - 1));
+	}
+
 	private void marker(IntegerImage input, IntegerImage output, int x, int y,
-		int m, HierarchicalQueue queue, int label) {
+		int m, BucketQueue queue, int label) {
 		LinkedList<Point> fifo = new LinkedList<Point>();
 
 		fifo.add(new Point(x, y));
@@ -248,7 +276,7 @@ public class MarkerBasedMultiWatershed extends Algorithm {
 		while (fifo.size() > 0) {
 			Point p = (Point) fifo.removeFirst();
 
-			queue.add(p, NULL);
+			queue.add(p.x + xdim * p.y, NULL);
 			output.setPixelXYBInt(p.x, p.y, 0, label);
 			output.setPixelXYBInt(p.x, p.y, 1, m);
 
@@ -256,7 +284,7 @@ public class MarkerBasedMultiWatershed extends Algorithm {
 				for (int k = p.x - 1; k <= p.x + 1; k++) {
 					if (k < 0 || k >= input.getXDim() || j < 0 || j >= input.getYDim())
 						continue;
-					if (connexity4 && j != 0 && k != 0)
+					if (connexity4 && j != p.y && k != p.x)
 						continue;
 					if (!mask.getPixelXYBoolean(k, j))
 						continue;
@@ -278,83 +306,4 @@ public class MarkerBasedMultiWatershed extends Algorithm {
 			}
 		}
 	}
-
-	private Point[] getNonLabelledNeighbours(IntegerImage output, int x, int y) {
-		Point[] neighbours = new Point[8];
-
-		int cnt = 0;
-
-		for (int j = y - 1; j <= y + 1; j++) {
-			for (int i = x - 1; i <= x + 1; i++) {
-				if (i < 0 || i >= output.getXDim() || j < 0 || j >= output.getYDim())
-					continue;
-				if (connexity4 && i != 0 && j != 0)
-					continue;
-				if (!mask.getPixelXYBoolean(i, j))
-					continue;
-				int z = output.getPixelXYBInt(i, j, 0);
-
-				if (!(i == x && j == y) && z == NULL)
-					neighbours[cnt++] = new Point(i, j);
-
-			}
-		}
-
-		if (cnt < 8) {
-			Point[] tmp = new Point[cnt];
-
-			for (int i = 0; i < cnt; i++)
-				tmp[i] = neighbours[i];
-
-			neighbours = tmp;
-		}
-
-		return neighbours;
-	}
-
-	private class HierarchicalQueue {
-		private LinkedList<Point>[] queue;
-
-		private int current;
-
-		HierarchicalQueue(int size) {
-			queue = new LinkedList[size];
-
-			for (int i = 0; i < size; i++)
-				queue[i] = new LinkedList<Point>();
-
-			current = 0;
-		}
-
-		void add(Point p, int val) {
-			if (val >= current)
-				queue[val].add(p);
-			else
-				queue[current].add(p);
-		}
-
-		Point get() {
-			if (queue[current].size() >= 2)
-				return (Point) queue[current].removeFirst();
-			else if (queue[current].size() == 1) {
-				Point p = (Point) queue[current].removeFirst();
-
-				while (current < 255 && queue[current].size() == 0)
-					current++;
-
-				return p;
-
-			} else
-				return null;
-		}
-
-		boolean isEmpty() {
-			int sum = 0;
-
-			for (int i = current; i < queue.length; i++)
-				sum += queue[i].size();
-
-			return (sum == 0);
-		}
-	}
 }
@@ -16,6 +16,7 @@ import fr.unistra.pelican.algorithms.segmentation.flatzones.BooleanConnectedComp
 import fr.unistra.pelican.algorithms.segmentation.labels.LabelsToRandomColors;
 import fr.unistra.pelican.algorithms.segmentation.labels.RegionSize;
 import fr.unistra.pelican.algorithms.visualisation.Viewer2D;
+import fr.unistra.pelican.util.BucketQueue;
 import fr.unistra.pelican.util.Point4D;
 
 /**
@@ -56,6 +57,14 @@ public class MarkerBasedMultiWatershedND extends Algorithm {
 	 */
 	public int minSize = 0;
 
+	/**
+	 * (optional) The number of levels of the flooding : 256 works on the byte
+	 * values, more levels such as 65536 flood the pixel values scaled to
+	 * [0,levels-1] so that 16-bit or floating point inputs keep their
+	 * precision
+	 */
+	public int levels = 256;
+
 	/*
 	 * Private attributes
 	 */
@@ -73,7 +82,7 @@ public class MarkerBasedMultiWatershedND extends Algorithm {
 	public MarkerBasedMultiWatershedND() {
 		super.inputs = "inputImage";
 		super.outputs = "outputImage";
-		super.options = "mask,connexity4,minSize";
+		super.options = "mask,connexity4,minSize,levels";
 	}
 
 	/**
@@ -137,8 +146,8 @@ public class MarkerBasedMultiWatershedND extends Algorithm {
 		outputImage = new IntegerImage(inputImage.getXDim(), inputImage.getYDim(),
 			inputImage.getZDim(), inputImage.getTDim(), 1);
 		for (int p = 0; p < inputImage.size(); p++)
-			input.setPixelInt(p, inputImage.getPixelByte(p));
-		HierarchicalQueue queue = new HierarchicalQueue(GRAY_LEVELS);
+			input.setPixelInt(p, level(inputImage, p));
+		BucketQueue queue = new BucketQueue(levels);
 		int currentLabel = 1;
 		output.fill(NULL);
 
@@ -185,7 +194,7 @@ public class MarkerBasedMultiWatershedND extends Algorithm {
 							output.setPixelInt(x, y, z, t, 0, p);
 							output.setPixelInt(x, y, z, t, 1, c);
 							if (bord(x, y, z, t, p))
-								queue.add(new Point4D(x, y, z, t), NULL);
+								queue.add(x + xdim * (y + ydim * (z + zdim * t)), NULL);
 						}
 					}
 
@@ -213,24 +222,26 @@ public class MarkerBasedMultiWatershedND extends Algorithm {
 		// Perform the flooding
 		// System.err.println("Number of markers : " + currentLabel+ " queue length
 		// = " + queue.length());
+		int[] neighbours = new int[80];
 		while (!queue.isEmpty()) {
-			Point4D p = queue.get();
-			int label = output.getPixelInt(p.x, p.y, p.z, p.t, 0);
-			int band = output.getPixelInt(p.x, p.y, p.z, p.t, 1);
+			int p = queue.get();
+			int x = p % xdim;
+			int y = p / xdim % ydim;
+			int z = p / (xdim * ydim) % zdim;
+			int t = p / (xdim * ydim * zdim);
+			int label = output.getPixelInt(x, y, z, t, 0);
+			int band = output.getPixelInt(x, y, z, t, 1);
 			// get the non labelled 80-neighbours of (x,y,z,t)
-			Point4D[] neighbours = getNonLabelledNeighbours(output, p.x, p.y, p.z,
-				p.t);
-			for (int i = 0; i < neighbours.length; i++) {
+			int count = getNonLabelledNeighbours(output, x, y, z, t, neighbours);
+			for (int i = 0; i < count; i++) {
+				int q = neighbours[i];
 				// give him the label of p
-				output.setPixelInt(neighbours[i].x, neighbours[i].y, neighbours[i].z,
-					neighbours[i].t, 0, label);
-				output.setPixelInt(neighbours[i].x, neighbours[i].y, neighbours[i].z,
-					neighbours[i].t, 1, band);
+				output.setPixelInt(2 * q, label);
+				output.setPixelInt(2 * q + 1, band);
 				// get his gray level IN THE APPROPRIATE BAND
-				int val = input.getPixelInt(neighbours[i].x, neighbours[i].y,
-					neighbours[i].z, neighbours[i].t, band);
+				int val = input.getPixelInt(q * input.getBDim() + band);
 				// add him to the appropriate queue
-				queue.add(neighbours[i], val);
+				queue.add(q, val);
 			}
 		}
 
@@ -268,8 +279,17 @@ public class MarkerBasedMultiWatershedND extends Algorithm {
 		return bord;
 	}
 
+	/**
+	 * Gives the level of a pixel in the flooding.
+	 */
+	private int level(Image image, int p) {
+		if (levels == GRAY_LEVELS)
+			return image.getPixelByte(p);
+		return (int) Math.round(image.getPixelDouble(p) * (levels - 1));
+	}
+
 	private void marker(IntegerImage input, IntegerImage output, int x, int y,
-		int z, int t, HierarchicalQueue queue, int label) {
+		int z, int t, BucketQueue queue, int label) {
 		LinkedList fifo = new LinkedList();
 
 		fifo.add(new Point4D(x, y, z, t));
@@ -277,7 +297,7 @@ public class MarkerBasedMultiWatershedND extends Algorithm {
 		while (fifo.size() > 0) {
 			Point4D p = (Point4D) fifo.removeFirst();
 
-			queue.add(p, NULL);
+			queue.add(p.x + xdim * (p.y + ydim * (p.z + zdim * p.t)), NULL);
 			output.setPixelXYZTInt(p.x, p.y, p.z, p.t, label);
 
 			for (int m = p.t - 1; m <= p.t + 1; m++)
@@ -288,7 +308,9 @@ public class MarkerBasedMultiWatershedND extends Algorithm {
 								|| j >= input.getYDim() || l < 0 || l >= input.getZDim()
 								|| m < 0 || m >= input.getTDim())
 								continue;
-							if (connexity4 && j != 0 && k != 0 && l != 0 && m != 0)
+							if (connexity4
+								&& (Math.abs(k - p.x) + Math.abs(j - p.y) + Math.abs(l - p.z) + Math
+									.abs(m - p.t)) != 1)
 								continue;
 							if (!mask.getPixelXYZTBoolean(k, j, l, m))
 								continue;
@@ -312,86 +334,30 @@ public class MarkerBasedMultiWatershedND extends Algorithm {
 		}
 	}
 
-	private Point4D[] getNonLabelledNeighbours(IntegerImage output, int x, int y,
-		int z, int t) {
-		ArrayList<Point4D> neighbours = new ArrayList<Point4D>();
+	private int getNonLabelledNeighbours(IntegerImage output, int x, int y,
+		int z, int t, int[] neighbours) {
+		int count = 0;
 
 		for (int l = t - 1; l <= t + 1; l++)
 			for (int k = z - 1; k <= z + 1; k++)
 				for (int j = y - 1; j <= y + 1; j++)
 					for (int i = x - 1; i <= x + 1; i++) {
-						if (i < 0 || i >= output.getXDim() || j < 0
-							|| j >= output.getYDim() || k < 0 || k >= output.getZDim()
-							|| l < 0 || l >= output.getTDim())
+						if (i < 0 || i >= xdim || j < 0 || j >= ydim || k < 0
+							|| k >= zdim || l < 0 || l >= tdim)
 							continue;
 						if (connexity4
-							&& (Math.abs(i) + Math.abs(j) + Math.abs(k) + Math.abs(l)) != 1)
+							&& (Math.abs(i - x) + Math.abs(j - y) + Math.abs(k - z) + Math
+								.abs(l - t)) != 1)
 							continue;
 						if (!mask.getPixelXYZTBoolean(i, j, k, l))
 							continue;
 						int u = output.getPixelInt(i, j, k, l, 0);
 
 						if (!(i == x && j == y && k == z && l == t) && u == NULL)
-							neighbours.add(new Point4D(i, j, k, l));
-
+							neighbours[count++] = i + xdim * (j + ydim * (k + zdim * l));
 					}
 
-		return neighbours.toArray(new Point4D[] {});
-	}
-
-	private class HierarchicalQueue {
-		private LinkedList[] queue;
-
-		private int current;
-
-		private int length;
-
-		HierarchicalQueue(int size) {
-			queue = new LinkedList[size];
-
-			for (int i = 0; i < size; i++)
-				queue[i] = new LinkedList();
-
-			current = 0;
-			length = 0;
-		}
-
-		void add(Point4D p, int val) {
-			if (val >= current)
-				queue[val].add(p);
-			else
-				queue[current].add(p);
-			length++;
-		}
-
-		Point4D get() {
-			length--;
-			if (queue[current].size() >= 2)
-				return (Point4D) queue[current].removeFirst();
-			else if (queue[current].size() == 1) {
-				Point4D p = (Point4D) queue[current].removeFirst();
-
-				while (current < 255 && queue[current].size() == 0)
-					current++;
-
-				return p;
-
-			} else
-				return null;
-		}
-
-		int length() {
-			return length;
-		}
-
-		boolean isEmpty() {
-			int sum = 0;
-
-			for (int i = current; i < queue.length; i++)
-				sum += queue[i].size();
-
-			return (sum == 0);
-		}
+		return count;
 	}
 
 }
@@ -13,12 +13,14 @@ import fr.unistra.pelican.algorithms.segmentation.flatzones.BooleanConnectedComp
 import fr.unistra.pelican.algorithms.segmentation.labels.LabelsToRandomColors;
 import fr.unistra.pelican.algorithms.segmentation.labels.RegionSize;
 import fr.unistra.pelican.algorithms.visualisation.Viewer2D;
+import fr.unistra.pelican.util.BucketQueue;
 
 /**
  * This class performs a marker-based watershed segmentation using the Soille
  * algorithm (with hierarchical queues) and the 0 value for markers.
  * 
- * It works on Byte resolution. The maximum number of created segment is 2^31-1.
+ * It works on Byte resolution unless more levels are given. The maximum
+ * number of created segment is 2^31-1.
  * It return an IntegerImage, the first segment as label Integer.MIN_VALUE.
  * 
  * @author Aptoula, Lefevre
@@ -50,6 +52,14 @@ public class MarkerBasedWatershed extends Algorithm {
 	 */
 	public int minSize = 0;
 
+	/**
+	 * (optional) The number of levels of the flooding : 256 works on the byte
+	 * values, more levels such as 65536 flood the pixel values scaled to
+	 * [0,levels-1] so that 16-bit or floating point inputs keep their
+	 * precision
+	 */
+	public int levels = 256;
+
 	/*
 	 * Private attributes
 	 */
@@ -67,7 +77,7 @@ public class MarkerBasedWatershed extends Algorithm {
 	public MarkerBasedWatershed() {
 		super.inputs = "inputImage";
 		super.outputs = "outputImage";
-		super.options = "mask,connexity4,minSize";
+		super.options = "mask,connexity4,minSize,levels";
 	}
 
 	/**
@@ -125,6 +135,7 @@ public class MarkerBasedWatershed extends Algorithm {
 		IntegerImage output = new IntegerImage(xdim, inputImage.getYDim(), 1, 1, 1);
 		outputImage = new IntegerImage(xdim, ydim, inputImage.getZDim(), inputImage
 			.getTDim(), inputImage.getBDim());
+		BucketQueue queue = new BucketQueue(levels);
 		for (int z = 0; z < inputImage.getZDim(); z++)
 			for (int b = 0; b < inputImage.getBDim(); b++)
 				for (int t = 0; t < inputImage.getTDim(); t++) {
@@ -133,10 +144,9 @@ public class MarkerBasedWatershed extends Algorithm {
 						for (int y = 0; y < ydim; y++)
 							// That's a nice hack, isn't it? No Byte to Integer
 							// conversion.
-							// Work still have values from 0 to 255.
-							input.setPixelInt(x, y, 0, 0, 0, inputImage.getPixelByte(x, y, z,
-								t, b));
-					HierarchicalQueue queue = new HierarchicalQueue(GRAY_LEVELS);
+							// Work has values from 0 to levels-1.
+							input.setPixelInt(x, y, 0, 0, 0, level(inputImage, x, y, z, t, b));
+					queue.clear();
 					int currentLabel = 1;
 					output.fill(NULL);
 
@@ -177,7 +187,7 @@ public class MarkerBasedWatershed extends Algorithm {
 							else if (p != NULL) {
 								output.setPixelXYInt(x, y, p);
 								if (bord(x, y, p))
-									queue.add(new Point(x, y), NULL);
+									queue.add(x + xdim * y, NULL);
 							}
 						}
 
@@ -202,18 +212,27 @@ public class MarkerBasedWatershed extends Algorithm {
 
 					// Perform the flooding
 					while (!queue.isEmpty()) {
-						Point p = queue.get();
-						int label = output.getPixelXYInt(p.x, p.y);
+						int p = queue.get();
+						int x = p % xdim;
+						int y = p / xdim;
+						int label = output.getPixelInt(p);
 						// get the non labelled 8-neighbours of (x,y)
-						Point[] neighbours = getNonLabelledNeighbours(output, p.x, p.y);
-						for (int i = 0; i < neighbours.length; i++) {
-							// give him the label of p
-							output.setPixelXYInt(neighbours[i].x, neighbours[i].y, label);
-							// get his gray level
-							int val = input.getPixelXYInt(neighbours[i].x, neighbours[i].y);
-							// add him to the appropriate queue
-							queue.add(neighbours[i], val);
-						}
+						for (int j = y - 1; j <= y + 1; j++)
+							for (int i = x - 1; i <= x + 1; i++) {
+								if (i < 0 || i >= xdim || j < 0 || j >= ydim)
+									continue;
+								if (connexity4 && i != x && j != y)
+									continue;
+								if (!mask.getPixelXYBoolean(i, j))
+									continue;
+								int q = i + xdim * j;
+								if (q != p && output.getPixelInt(q) == NULL) {
+									// give him the label of p
+									output.setPixelInt(q, label);
+									// add him to the queue of his gray level
+									queue.add(q, input.getPixelInt(q));
+								}
+							}
 					}
 					if (cpu) {
 						t2 = System.currentTimeMillis();
@@ -269,8 +288,18 @@ public class MarkerBasedWatershed extends Algorithm {
 		return bord;
 	}
 
+	/**
+	 * Gives the level of a pixel in the flooding.
+	 */
+	private int level(Image image, int x, int y, int z, int t, int b) {
+		if (levels == GRAY_LEVELS)
+			return image.getPixelByte(x, y, z, t, b);
+		return (int) Math.round(image.getPixelDouble(x, y, z, t, b)
+			* (levels - 1));
+	}
+
 	private void marker(IntegerImage input, IntegerImage output, int x, int y,
-		HierarchicalQueue queue, int label) {
+		BucketQueue queue, int label) {
 		LinkedList fifo = new LinkedList();
 
 		fifo.add(new Point(x, y));
@@ -278,14 +307,14 @@ public class MarkerBasedWatershed extends Algorithm {
 		while (fifo.size() > 0) {
 			Point p = (Point) fifo.removeFirst();
 
-			queue.add(p, NULL);
+			queue.add(p.x + xdim * p.y, NULL);
 			output.setPixelXYInt(p.x, p.y, label);
 
 			for (int j = p.y - 1; j <= p.y + 1; j++) {
 				for (int k = p.x - 1; k <= p.x + 1; k++) {
 					if (k < 0 || k >= input.getXDim() || j < 0 || j >= input.getYDim())
 						continue;
-					if (connexity4 && j != 0 && k != 0)
+					if (connexity4 && j != p.y && k != p.x)
 						continue;
 					if (!mask.getPixelXYBoolean(k, j))
 						continue;
@@ -308,83 +337,4 @@ public class MarkerBasedWatershed extends Algorithm {
 		}
 	}
 
-	private Point[] getNonLabelledNeighbours(IntegerImage output, int x, int y) {
-		Point[] neighbours = new Point[8];
-
-		int cnt = 0;
-
-		for (int j = y - 1; j <= y + 1; j++) {
-			for (int i = x - 1; i <= x + 1; i++) {
-				if (i < 0 || i >= output.getXDim() || j < 0 || j >= output.getYDim())
-					continue;
-				if (connexity4 && i != 0 && j != 0)
-					continue;
-				if (!mask.getPixelXYBoolean(i, j))
-					continue;
-				int z = output.getPixelXYInt(i, j);
-
-				if (!(i == x && j == y) && z == NULL)
-					neighbours[cnt++] = new Point(i, j);
-
-			}
-		}
-
-		if (cnt < 8) {
-			Point[] tmp = new Point[cnt];
-
-			for (int i = 0; i < cnt; i++)
-				tmp[i] = neighbours[i];
-
-			neighbours = tmp;
-		}
-
-		return neighbours;
-	}
-
-	private class HierarchicalQueue {
-		private LinkedList[] queue;
-
-		private int current;
-
-		HierarchicalQueue(int size) {
-			queue = new LinkedList[size];
-
-			for (int i = 0; i < size; i++)
-				queue[i] = new LinkedList();
-
-			current = 0;
-		}
-
-		void add(Point p, int val) {
-			if (val >= current)
-				queue[val].add(p);
-			else
-				queue[current].add(p);
-		}
-
-		Point get() {
-			if (queue[current].size() >= 2)
-				return (Point) queue[current].removeFirst();
-			else if (queue[current].size() == 1) {
-				Point p = (Point) queue[current].removeFirst();
-
-				while (current < 255 && queue[current].size() == 0)
-					current++;
-
-				return p;
-
-			} else
-				return null;
-		}
-
-		boolean isEmpty() {
-			int sum = 0;
-
-			for (int i = current; i < queue.length; i++)
-				sum += queue[i].size();
-
-			return (sum == 0);
-		}
-	}
-
 }
@@ -12,13 +12,15 @@ import fr.unistra.pelican.IntegerImage;
 import fr.unistra.pelican.algorithms.logical.CompareConstant;
 import fr.unistra.pelican.algorithms.segmentation.flatzones.BooleanConnectedComponentsLabelingND;
 import fr.unistra.pelican.algorithms.segmentation.labels.RegionSize;
+import fr.unistra.pelican.util.BucketQueue;
 import fr.unistra.pelican.util.Point4D;
 
 /**
  * This class performs a marker-based watershed segmentation using the Soille
  * algorithm (with hierarchical queues) and the 0 value for markers.
  * 
- * It works on Byte resolution. The maximum number of created segment is 2^31-1.
+ * It works on Byte resolution unless more levels are given. The maximum
+ * number of created segment is 2^31-1.
  * It return an IntegerImage, the first segment as label Integer.MIN_VALUE.
  * 
  * @author Aptoula, Lefevre
@@ -50,6 +52,14 @@ public class MarkerBasedWatershedND extends Algorithm {
 	 */
 	public int minSize = 0;
 
+	/**
+	 * (optional) The number of levels of the flooding : 256 works on the byte
+	 * values, more levels such as 65536 flood the pixel values scaled to
+	 * [0,levels-1] so that 16-bit or floating point inputs keep their
+	 * precision
+	 */
+	public int levels = 256;
+
 	/*
 	 * Private attributes
 	 */
@@ -67,7 +77,7 @@ public class MarkerBasedWatershedND extends Algorithm {
 	public MarkerBasedWatershedND() {
 		super.inputs = "inputImage";
 		super.outputs = "outputImage";
-		super.options = "mask,connexity4,minSize";
+		super.options = "mask,connexity4,minSize,levels";
 	}
 
 	/**
@@ -130,6 +140,8 @@ public class MarkerBasedWatershedND extends Algorithm {
 			.getYDim(), inputImage.getZDim(), inputImage.getTDim(), 1);
 		outputImage = new IntegerImage(inputImage.getXDim(), inputImage.getYDim(),
 			inputImage.getZDim(), inputImage.getTDim(), inputImage.getBDim());
+		BucketQueue queue = new BucketQueue(levels);
+		int[] neighbours = new int[80];
 		for (int b = 0; b < bdim; b++) {
 			for (int x = 0; x < xdim; x++)
 				for (int y = 0; y < ydim; y++)
@@ -137,10 +149,9 @@ public class MarkerBasedWatershedND extends Algorithm {
 						for (int t = 0; t < tdim; t++)
 							// That's a nice hack, isn't it? No Byte to Integer
 							// conversion.
-							// Work still have values from 0 to 255.
-							input.setPixelInt(x, y, z, t, 0, inputImage.getPixelByte(x, y, z,
-								t, b));
-			HierarchicalQueue queue = new HierarchicalQueue(GRAY_LEVELS);
+							// Work has values from 0 to levels-1.
+							input.setPixelInt(x, y, z, t, 0, level(inputImage, x, y, z, t, b));
+			queue.clear();
 			int currentLabel = 1;
 			output.fill(NULL);
 
@@ -183,7 +194,7 @@ public class MarkerBasedWatershedND extends Algorithm {
 							else if (p != NULL) {
 								output.setPixelXYZTInt(x, y, z, t, p);
 								if (bord(x, y, z, t, p))
-									queue.add(new Point4D(x, y, z, t), NULL);
+									queue.add(x + xdim * (y + ydim * (z + zdim * t)), NULL);
 							}
 						}
 
@@ -212,20 +223,20 @@ public class MarkerBasedWatershedND extends Algorithm {
 			// System.err.println("Number of markers : " + currentLabel+ " queue
 			// length = " + queue.length());
 			while (!queue.isEmpty()) {
-				Point4D p = queue.get();
-				int label = output.getPixelXYZTInt(p.x, p.y, p.z, p.t);
+				int p = queue.get();
+				int x = p % xdim;
+				int y = p / xdim % ydim;
+				int z = p / (xdim * ydim) % zdim;
+				int t = p / (xdim * ydim * zdim);
+				int label = output.getPixelInt(p);
 				// get the non labelled 80-neighbours of (x,y,z,t)
-				Point4D[] neighbours = getNonLabelledNeighbours(output, p.x, p.y, p.z,
-					p.t);
-				for (int i = 0; i < neighbours.length; i++) {
+				int count = getNonLabelledNeighbours(output, x, y, z, t, neighbours);
+				for (int i = 0; i < count; i++) {
+					int q = neighbours[i];
 					// give him the label of p
-					output.setPixelXYZTInt(neighbours[i].x, neighbours[i].y,
-						neighbours[i].z, neighbours[i].t, label);
-					// get his gray level
-					int val = input.getPixelXYZTInt(neighbours[i].x, neighbours[i].y,
-						neighbours[i].z, neighbours[i].t);
-					// add him to the appropriate queue
-					queue.add(neighbours[i], val);
+					output.setPixelInt(q, label);
+					// add him to the queue of his gray level
+					queue.add(q, input.getPixelInt(q));
 				}
 			}
 
@@ -265,8 +276,18 @@ public class MarkerBasedWatershedND extends Algorithm {
 		return bord;
 	}
 
+	/**
+	 * Gives the level of a pixel in the flooding.
+	 */
+	private int level(Image image, int x, int y, int z, int t, int b) {
+		if (levels == GRAY_LEVELS)
+			return image.getPixelByte(x, y, z, t, b);
+		return (int) Math.round(image.getPixelDouble(x, y, z, t, b)
+			* (levels - 1));
+	}
+
 	private void marker(IntegerImage input, IntegerImage output, int x, int y,
-		int z, int t, HierarchicalQueue queue, int label) {
+		int z, int t, BucketQueue queue, int label) {
 		LinkedList fifo = new LinkedList();
 
 		fifo.add(new Point4D(x, y, z, t));
@@ -274,7 +295,7 @@ public class MarkerBasedWatershedND extends Algorithm {
 		while (fifo.size() > 0) {
 			Point4D p = (Point4D) fifo.removeFirst();
 
-			queue.add(p, NULL);
+			queue.add(p.x + xdim * (p.y + ydim * (p.z + zdim * p.t)), NULL);
 			output.setPixelXYZTInt(p.x, p.y, p.z, p.t, label);
 
 			for (int m = p.t - 1; m <= p.t + 1; m++)
@@ -285,7 +306,9 @@ public class MarkerBasedWatershedND extends Algorithm {
 								|| j >= input.getYDim() || l < 0 || l >= input.getZDim()
 								|| m < 0 || m >= input.getTDim())
 								continue;
-							if (connexity4 && j != 0 && k != 0 && l != 0 && m != 0)
+							if (connexity4
+								&& (Math.abs(k - p.x) + Math.abs(j - p.y) + Math.abs(l - p.z) + Math
+									.abs(m - p.t)) != 1)
 								continue;
 							if (!mask.getPixelXYZTBoolean(k, j, l, m))
 								continue;
@@ -309,86 +332,30 @@ public class MarkerBasedWatershedND extends Algorithm {
 		}
 	}
 
-	private Point4D[] getNonLabelledNeighbours(IntegerImage output, int x, int y,
-		int z, int t) {
-		ArrayList<Point4D> neighbours = new ArrayList<Point4D>();
+	private int getNonLabelledNeighbours(IntegerImage output, int x, int y,
+		int z, int t, int[] neighbours) {
+		int count = 0;
 
 		for (int l = t - 1; l <= t + 1; l++)
 			for (int k = z - 1; k <= z + 1; k++)
 				for (int j = y - 1; j <= y + 1; j++)
 					for (int i = x - 1; i <= x + 1; i++) {
-						if (i < 0 || i >= output.getXDim() || j < 0
-							|| j >= output.getYDim() || k < 0 || k >= output.getZDim()
-							|| l < 0 || l >= output.getTDim())
+						if (i < 0 || i >= xdim || j < 0 || j >= ydim || k < 0
+							|| k >= zdim || l < 0 || l >= tdim)
 							continue;
 						if (connexity4
-							&& (Math.abs(i) + Math.abs(j) + Math.abs(k) + Math.abs(l)) != 1)
+							&& (Math.abs(i - x) + Math.abs(j - y) + Math.abs(k - z) + Math
+								.abs(l - t)) != 1)
 							continue;
 						if (!mask.getPixelXYZTBoolean(i, j, k, l))
 							continue;
 						int u = output.getPixelXYZTInt(i, j, k, l);
 
 						if (!(i == x && j == y && k == z && l == t) && u == NULL)
-							neighbours.add(new Point4D(i, j, k, l));
-
+							neighbours[count++] = i + xdim * (j + ydim * (k + zdim * l));
 					}
 
-		return neighbours.toArray(new Point4D[] {});
-	}
-
-	private class HierarchicalQueue {
-		private LinkedList[] queue;
-
-		private int current;
-
-		private int length;
-
-		HierarchicalQueue(int size) {
-			queue = new LinkedList[size];
-
-			for (int i = 0; i < size; i++)
-				queue[i] = new LinkedList();
-
-			current = 0;
-			length = 0;
-		}
-
-		void add(Point4D p, int val) {
-			if (val >= current)
-				queue[val].add(p);
-			else
-				queue[current].add(p);
-			length++;
-		}
-
-		Point4D get() {
-			length--;
-			if (queue[current].size() >= 2)
-				return (Point4D) queue[current].removeFirst();
-			else if (queue[current].size() == 1) {
-				Point4D p = (Point4D) queue[current].removeFirst();
-
-				while (current < 255 && queue[current].size() == 0)
-					current++;
-
-				return p;
-
-			} else
-				return null;
-		}
-
-		int length() {
-			return length;
-		}
-
-		boolean isEmpty() {
-			int sum = 0;
-
-			for (int i = current; i < queue.length; i++)
-				sum += queue[i].size();
-
-			return (sum == 0);
-		}
+		return count;
 	}
 
 }
@@ -1,8 +1,6 @@
 package fr.unistra.pelican.algorithms.segmentation;
 
-import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.TreeMap;
 
 import fr.unistra.pelican.Algorithm;
 import fr.unistra.pelican.AlgorithmException;
@@ -10,6 +8,7 @@ import fr.unistra.pelican.BooleanImage;
 import fr.unistra.pelican.Image;
 import fr.unistra.pelican.IntegerImage;
 import fr.unistra.pelican.PelicanException;
+import fr.unistra.pelican.util.BucketQueue;
 import fr.unistra.pelican.util.Point4D;
 
 
@@ -19,6 +18,9 @@ import fr.unistra.pelican.util.Point4D;
  * Seeded region growing. IEEE Transaction on Pattern
  * Analysis and Machine Intelligence, 16(6) :641–647, 1994.
  * 
+ * The sequentially sorted list is a hierarchical queue over the
+ * distances to the region means, quantised to 1/{@value #PRECISION}.
+ * 
  * @author Jonathan Weber
  *
  */
@@ -63,6 +65,11 @@ public class SeededRegionGrowing extends Algorithm {
 	public static final int IGNORE=-2;
 	public static int FRONTIER;
 	
+	/**
+	 * Number of levels of the queue per grey level
+	 */
+	private static final int PRECISION=256;
+	
 	public SeededRegionGrowing()
 	{
 		super.inputs="inputImage,seeds,neighbourhood";
@@ -80,8 +87,9 @@ public class SeededRegionGrowing extends Algorithm {
 		int bDim = inputImage.getBDim();
 		outputImage=seeds.copyImage(true);
 		int size = outputImage.size();
-		double[] pointDelta = new double[size];
-		Arrays.fill(pointDelta, Double.MAX_VALUE);
+		// level of each pixel in the SSL, -1 if not queued
+		int[] queued = new int[size];
+		Arrays.fill(queued, -1);
 		FRONTIER=outputImage.maximumInt()+1;
 		
 		if(bDim!=1)
@@ -101,7 +109,7 @@ public class SeededRegionGrowing extends Algorithm {
 		//Init graph
 		
 		// Init SSL
-		TreeMap<Double,ArrayList<Point4D>> ssl = new TreeMap<Double,ArrayList<Point4D>>();
+		BucketQueue ssl = new BucketQueue(0,256*PRECISION-1,false);
 		for(int t=0;t<tDim;t++)
 			for(int z=0;z<zDim;z++)
 				for(int y=0;y<yDim;y++)
@@ -127,7 +135,7 @@ public class SeededRegionGrowing extends Algorithm {
 							}
 							if(delta!=Double.MAX_VALUE)
 							{
-								addToSSL(new Point4D(x,y,z,t),delta,ssl,pointDelta);
+								addToSSL(outputImage.getLinearIndexXYZT_(x, y, z, t),delta,ssl,queued);
 							}
 						}
 					}
@@ -138,7 +146,10 @@ public class SeededRegionGrowing extends Algorithm {
 			count++;
 			/*if(count%10000==0)
 				System.out.println(count+"/"+seeds.size());*/
-			Point4D point = getFirstFromSSL(ssl);
+			int index = getFirstFromSSL(ssl,queued);
+			if(index==-1)
+				continue;
+			Point4D point = new Point4D(index%xDim,index/xDim%yDim,index/(xDim*yDim)%zDim,index/(xDim*yDim*zDim));
 			if(seeds.getPixelXYZTInt(point.x, point.y, point.z, point.t)==UNLABELED)
 			{
 				int currentLabel=-1;
@@ -186,7 +197,7 @@ public class SeededRegionGrowing extends Algorithm {
 						{
 							if(outputImage.getPixelXYZTInt(locX, locY, locZ, locT)==UNLABELED)
 							{
-								addToSSL(new Point4D(locX, locY, locZ, locT),Math.abs(inputImage.getPixelXYZTByte(locX, locY, locZ, locT)-means[currentLabel].getMean()),ssl,pointDelta);
+								addToSSL(outputImage.getLinearIndexXYZT_(locX, locY, locZ, locT),Math.abs(inputImage.getPixelXYZTByte(locX, locY, locZ, locT)-means[currentLabel].getMean()),ssl,queued);
 							}
 						}
 					}
@@ -251,49 +262,33 @@ public class SeededRegionGrowing extends Algorithm {
 		}
 	}
 	
-	private void addToSSL(Point4D point, double delta,TreeMap<Double,ArrayList<Point4D>> ssl, double[] pointDelta)
+	/**
+	 * Adds a pixel to the SSL, or moves it to a lower level if it is already
+	 * there. The old entry is left in the queue and skipped when removed.
+	 */
+	private void addToSSL(int index, double delta, BucketQueue ssl, int[] queued)
 	{
-		boolean addPoint=true;
-		if(pointDelta[outputImage.getLinearIndexXYZT_(point.x, point.y, point.z, point.t)]!=Double.MAX_VALUE)
+		int level=(int)(delta*PRECISION);
+		if(queued[index]==-1||level<queued[index])
 		{
-			if(delta<pointDelta[outputImage.getLinearIndexXYZT_(point.x, point.y, point.z, point.t)])
-			{
-				ArrayList<Point4D> tmp = ssl.get(pointDelta[outputImage.getLinearIndexXYZT_(point.x, point.y, point.z, point.t)]);
-				tmp.remove(point);
-				if(tmp.isEmpty())
-				{
-					ssl.remove(pointDelta[outputImage.getLinearIndexXYZT_(point.x, point.y, point.z, point.t)]);
-				}
-			}
-			else
-			{
-				addPoint=false;
-			}
+			queued[index]=level;
+			ssl.add(index, level);
 		}
-		if(addPoint)
-		{
-			pointDelta[outputImage.getLinearIndexXYZT_(point.x, point.y, point.z, point.t)]=delta;
-			if(ssl.containsKey(delta))
-			{
-				ssl.get(delta).add(point);
-			} else
-			{
-				ArrayList<Point4D> tmp = new ArrayList<Point4D>();
-				tmp.add(point);
-				ssl.put(delta, tmp);
-			}
-		}		
 	}
 	
-	private Point4D getFirstFromSSL(TreeMap<Double,ArrayList<Point4D>> ssl)
+	/**
+	 * Removes the first pixel of the SSL.
+	 * 
+	 * @return its linear index, or -1 if the entry has been moved to a lower level
+	 */
+	private int getFirstFromSSL(BucketQueue ssl, int[] queued)
 	{
-		ArrayList<Point4D> tmp = ssl.get(ssl.firstKey());
-		Point4D point = tmp.remove(0);
-		if(tmp.isEmpty())
-		{
-			ssl.pollFirstEntry();
-		}
-		return point;
+		int level=ssl.getCurrent();
+		int index=ssl.get();
+		if(queued[index]!=level)
+			return -1;
+		queued[index]=-1;
+		return index;
 	}
 	
 	/**
@@ -1,12 +1,10 @@
 package fr.unistra.pelican.algorithms.segmentation;
 
-import java.awt.Point;
-import java.util.ArrayList;
-
 import fr.unistra.pelican.Algorithm;
 import fr.unistra.pelican.AlgorithmException;
 import fr.unistra.pelican.Image;
 import fr.unistra.pelican.IntegerImage;
+import fr.unistra.pelican.util.BucketQueue;
 
 /**
  * This class performs a watershed segmentation using the Soille algorithm (with
@@ -47,7 +45,7 @@ public class Watershed extends Algorithm {
 
 	private static final int MASK = -2;
 
-	private final Point fictitious = new Point(-1, -1);
+	private static final int FICTITIOUS = -1;
 
 	/**
 	 * Constructor
@@ -77,19 +75,25 @@ public class Watershed extends Algorithm {
 	 * @see fr.unistra.pelican.Algorithm#launch()
 	 */
 	public void launch() throws AlgorithmException {
-		IntegerImage work = new IntegerImage(inputImage.getXDim(), inputImage
-				.getYDim(), 1, 1, 1);
-		IntegerImage dist = new IntegerImage(inputImage.getXDim(), inputImage
-				.getYDim(), 1, 1, 1);
-		IntegerImage workOut = new IntegerImage(inputImage.getXDim(),
-				inputImage.getYDim(), 1, 1, 1);
+		int xdim = inputImage.getXDim();
+		int ydim = inputImage.getYDim();
+		IntegerImage work = new IntegerImage(xdim, ydim, 1, 1, 1);
+		IntegerImage dist = new IntegerImage(xdim, ydim, 1, 1, 1);
+		IntegerImage workOut = new IntegerImage(xdim, ydim, 1, 1, 1);
 		outputImage = new IntegerImage(inputImage, false);
+
+		// a single level, as a fifo of pixel offsets
+		BucketQueue fifo = new BucketQueue(1);
+		// pixel value distribution, and the offsets of the current level
+		BucketQueue distro = new BucketQueue(256);
+		int[] level = new int[xdim * ydim];
+
 		for (int z = 0; z < inputImage.getZDim(); z++)
 			for (int b = 0; b < inputImage.getBDim(); b++)
 				for (int t = 0; t < inputImage.getTDim(); t++) {
 					// Create a working Image.
-					for (int x = 0; x < inputImage.getXDim(); x++)
-						for (int y = 0; y < inputImage.getYDim(); y++)
+					for (int x = 0; x < xdim; x++)
+						for (int y = 0; y < ydim; y++)
 							// That's a nice hack, isn't it? No Byte to Integer
 							// conversion.
 							// Work still have values from 0 to 255.
@@ -100,124 +104,115 @@ public class Watershed extends Algorithm {
 					workOut.fill(INIT);
 					dist.fill(0);
 					int currentLabel = WSHED;
-					Fifo fifo = new Fifo();
-					Point p;
+					int p;
 
-					// pixel value distribution,
-					ArrayList<Point>[] distro = calculateDistro(work);
+					calculateDistro(work, distro);
 
 					// start flooding
 					for (int i = 0; i < 256; i++) {
 
 						// geodesic SKIZ of level i - 1 inside level i
-						int size = distro[i].size();
+						int size = 0;
+						while (!distro.isEmpty() && distro.getCurrent() == i)
+							level[size++] = distro.get();
 
 						for (int j = 0; j < size; j++) {
-							p = distro[i].get(j);
+							p = level[j];
 
-							workOut.setPixelXYInt(p.x, p.y, MASK);
+							workOut.setPixelInt(p, MASK);
 
-							if (areThereLabelledNeighbours(workOut, p.x, p.y) == true) {
-								dist.setPixelXYInt(p.x, p.y, 1);
-								fifo.add(p);
+							if (areThereLabelledNeighbours(workOut, p % xdim, p
+									/ xdim) == true) {
+								dist.setPixelInt(p, 1);
+								fifo.add(p, 0);
 							}
 						}
 
 						int curDist = 1;
-						fifo.add(fictitious);
+						fifo.add(FICTITIOUS, 0);
 
 						do {
-							p = fifo.retrieve();
+							p = fifo.get();
 
-							if (p.x == -1 && p.y == -1) {
+							if (p == FICTITIOUS) {
 								if (fifo.isEmpty() == true)
 									break;
 								else {
-									fifo.add(fictitious);
+									fifo.add(FICTITIOUS, 0);
 									curDist++;
-									p = fifo.retrieve();
+									p = fifo.get();
 								}
 							}
+							int px = p % xdim;
+							int py = p / xdim;
 
 							// labelling p by inspecting its neighbours
-							for (int j = p.y - 1; j <= p.y + 1; j++) {
-								for (int k = p.x - 1; k <= p.x + 1; k++) {
-									if (k < 0 || k >= inputImage.getXDim()
-											|| j < 0
-											|| j >= inputImage.getYDim())
+							for (int j = py - 1; j <= py + 1; j++) {
+								for (int k = px - 1; k <= px + 1; k++) {
+									if (k < 0 || k >= xdim || j < 0
+											|| j >= ydim)
 										continue;
 
 									// if the pixel is
 									// already labelled
-									if (!(j == p.y && k == p.x)
+									if (!(j == py && k == px)
 											&& dist.getPixelXYInt(k, j) < curDist
 											&& workOut.getPixelXYInt(k, j) > WSHED) {
 										if (workOut.getPixelXYInt(k, j) > 0) {
-											if (workOut.getPixelXYInt(p.x, p.y) == MASK
-													|| workOut.getPixelXYInt(
-															p.x, p.y) == WSHED)
-												workOut.setPixelXYInt(p.x, p.y,
-														workOut.getPixelXYInt(
-																k, j));
-
-											else if (workOut.getPixelXYInt(p.x,
-													p.y) != workOut
+											if (workOut.getPixelInt(p) == MASK
+													|| workOut.getPixelInt(p) == WSHED)
+												workOut.setPixelInt(p, workOut
+														.getPixelXYInt(k, j));
+
+											else if (workOut.getPixelInt(p) != workOut
 													.getPixelXYInt(k, j))
-												workOut.setPixelXYInt(p.x, p.y,
-														WSHED);
+												workOut.setPixelInt(p, WSHED);
 
-										} else if (workOut.getPixelXYInt(p.x,
-												p.y) == MASK)
-											workOut.setPixelXYInt(p.x, p.y,
-													WSHED);
+										} else if (workOut.getPixelInt(p) == MASK)
+											workOut.setPixelInt(p, WSHED);
 
 										// if the neighbour is a plateau pixel
 									} else if (workOut.getPixelXYInt(k, j) == MASK
 											&& dist.getPixelXYInt(k, j) == 0) {
 										dist.setPixelXYInt(k, j, curDist + 1);
-										fifo.add(new Point(k, j));
+										fifo.add(k + xdim * j, 0);
 									}
 								}
 							}
 						} while (true);
 
-						// check for new minima
-						size = distro[i].size();
-
 						// detect and process new minima at level i
 						for (int j = 0; j < size; j++) {
-							p = distro[i].get(j);
+							p = level[j];
 
 							// reset distance to 0
-							dist.setPixelXYInt(p.x, p.y, 0);
+							dist.setPixelInt(p, 0);
 
 							// if p is inside a new minimum
-							if (workOut.getPixelXYInt(p.x, p.y) == MASK) {
+							if (workOut.getPixelInt(p) == MASK) {
 
 								// create a new label
 								currentLabel++;
-								fifo.add(p);
-								workOut.setPixelXYInt(p.x, p.y, currentLabel);
+								fifo.add(p, 0);
+								workOut.setPixelInt(p, currentLabel);
 
 								while (fifo.isEmpty() == false) {
-									Point q = fifo.retrieve();
+									int q = fifo.get();
+									int qx = q % xdim;
+									int qy = q / xdim;
 
 									// for every pixel in the 8-neighbourhood of
 									// q
-									for (int l = q.y - 1; l <= q.y + 1; l++) {
-										for (int k = q.x - 1; k <= q.x + 1; k++) {
-											if (k < 0
-													|| k >= inputImage
-															.getXDim()
-													|| l < 0
-													|| l >= inputImage
-															.getYDim())
+									for (int l = qy - 1; l <= qy + 1; l++) {
+										for (int k = qx - 1; k <= qx + 1; k++) {
+											if (k < 0 || k >= xdim || l < 0
+													|| l >= ydim)
 												continue;
 
-											if (!(k == q.x && l == q.y)
+											if (!(k == qx && l == qy)
 													&& workOut.getPixelXYInt(k,
 															l) == MASK) {
-												fifo.add(new Point(k, l));
+												fifo.add(k + xdim * l, 0);
 												workOut.setPixelXYInt(k, l,
 														currentLabel);
 											}
@@ -226,40 +221,38 @@ public class Watershed extends Algorithm {
 								}
 							}
 						}
-
-						// Copy the result to the outputImage
-						for (int _x = 0; _x < inputImage.getXDim(); _x++)
-							for (int _y = 0; _y < inputImage.getYDim(); _y++) {
-								// That's a nice hack, isn't it? No Integer to
-								// Byte
-								// conversion.
-								// Values are inside [0,255] if the algo is
-								// correct.
-								outputImage.setPixelInt(_x, _y, z, t, b,
-										workOut.getPixelInt(_x, _y, 0, 0, 0)/*
-																			 * +
-																			 * Integer.MIN_VALUE
-																			 */);
-							}
-
 					}
+
+					// Copy the result to the outputImage, once all the levels
+					// are flooded
+					for (int _x = 0; _x < xdim; _x++)
+						for (int _y = 0; _y < ydim; _y++) {
+							// That's a nice hack, isn't it? No Integer to
+							// Byte
+							// conversion.
+							// Values are inside [0,255] if the algo is
+							// correct.
+							outputImage.setPixelInt(_x, _y, z, t, b, workOut
+									.getPixelInt(_x, _y, 0, 0, 0)/*
+																 * +
+																 * Integer.MIN_VALUE
+																 */);
+						}
 				}
 		return;
 	}
 
-	@SuppressWarnings("unchecked")
-	private ArrayList<Point>[] calculateDistro(IntegerImage img) {
-		ArrayList<Point>[] distro = (ArrayList<Point>[])new ArrayList[256];
-
-		for (int i = 0; i < 256; i++)
-			distro[i] = new ArrayList<Point>();
-
-		for (int x = 0; x < img.getXDim(); x++) {
+	/**
+	 * Fills the queue with the offsets of the pixels, by value, column by
+	 * column
+	 */
+	private void calculateDistro(IntegerImage img, BucketQueue distro) {
+		distro.clear();
+		int xdim = img.getXDim();
+		for (int x = 0; x < xdim; x++) {
 			for (int y = 0; y < img.getYDim(); y++)
-				distro[img.getPixelXYInt(x, y)].add(new Point(x, y));
+				distro.add(x + xdim * y, img.getPixelXYInt(x, y));
 		}
-
-		return distro;
 	}
 
 	private boolean areThereLabelledNeighbours(IntegerImage img, int x, int y)
@@ -287,29 +280,4 @@ public class Watershed extends Algorithm {
 		return false;
 	}
 
-	private class Fifo {
-		private ArrayList<Object> v;
-
-		Fifo() {
-			v = new ArrayList<Object>();
-		}
-
-		void add(Object o) {
-			v.add(o);
-		}
-
-		Point retrieve() {
-			Object o = v.remove(0);
-			return (Point) o;
-		}
-
-		boolean isEmpty() {
-			return (v.size() == 0);
-		}
-
-		int size() {
-			return v.size();
-		}
-	}
-
 }
@@ -1,11 +1,9 @@
 package fr.unistra.pelican.algorithms.segmentation;
 
-import java.awt.Point;
-import java.util.ArrayList;
-
 import fr.unistra.pelican.Algorithm;
 import fr.unistra.pelican.Image;
 import fr.unistra.pelican.IntegerImage;
+import fr.unistra.pelican.util.BucketQueue;
 
 
 /*
@@ -84,43 +82,49 @@ public class Watershed2 extends Algorithm {
 		output = new IntegerImage(xDim, yDim, 1, 1, bDim);
 		output.fill(INIT);
 
+		// a single level, as a fifo of pixel offsets
+		BucketQueue fifo = new BucketQueue(1);
+		// pixel value distribution, and the offsets of the current level
+		BucketQueue distro = new BucketQueue(256);
+		int[] level = new int[xDim * yDim];
+
 		for (int b = 0; b < bDim; b++) {
 
 			boolean flag = false;
 			int x, y;
-			Fifo fifo = new Fifo();
-			Point p;
+			int p;
 
 			int currentLabel = WSHED;
 
 			// pixel value distribution,
 			// so that we dont have to check the entire image
-			ArrayList<ArrayList<Point>> distro = calculateDistro(b);
+			calculateDistro(b, distro);
 
 			for (int i = 0; i < 256; i++) {
 
 				// geodesic SKIZ of level i - 1 inside level i
-				ArrayList<Point> pointsList = distro.get(i);
-				int size = pointsList.size();
+				int size = 0;
+				while (!distro.isEmpty() && distro.getCurrent() == i)
+					level[size++] = distro.get();
 
 				for (int j = 0; j < size; j++) {
-					p = pointsList.get(j);
+					p = level[j];
 
-					x = (int) p.getX();
-					y = (int) p.getY();
+					x = p % xDim;
+					y = p / xDim;
 
 					output.setPixelXYBInt(x, y, b, MASK);
 
 					if (areThereLabelledNeighbours(x, y, b) == true) {
 						output.setPixelXYBInt(x, y, b, INQUEUE);
-						fifo.add(p);
+						fifo.add(p, 0);
 					}
 				}
 
 				while (fifo.isEmpty() == false) {
-					p = fifo.retrieve();
-					x = (int) p.getX();
-					y = (int) p.getY();
+					p = fifo.get();
+					x = p % xDim;
+					y = p / xDim;
 
 					// for every pixel in the 8-neighbourhood of p
 					for (int j = y - 1; j <= y + 1; j++) {
@@ -149,30 +153,28 @@ public class Watershed2 extends Algorithm {
 								flag = true;
 							} else if (output.getPixelXYBInt(k, j, b) == MASK) {
 								output.setPixelXYBInt(k, j, b, INQUEUE);
-								fifo.add(new Point(k, j));
+								fifo.add(k + xDim * j, 0);
 							}
 						}
 					}
 				}
 
 				// check for new minima
-				size = pointsList.size();
-
 				for (int j = 0; j < size; j++) {
-					p = pointsList.get(j);
+					p = level[j];
 
-					x = (int) p.getX();
-					y = (int) p.getY();
+					x = p % xDim;
+					y = p / xDim;
 
 					if (output.getPixelXYBInt(x, y, b) == MASK) {
 						currentLabel++;
-						fifo.add(p);
+						fifo.add(p, 0);
 						output.setPixelXYBInt(x, y, b, currentLabel);
 
 						while (fifo.isEmpty() == false) {
-							p = fifo.retrieve();
-							x = (int) p.getX();
-							y = (int) p.getY();
+							p = fifo.get();
+							x = p % xDim;
+							y = p / xDim;
 
 							// for every pixel in the 8-neighbourhood of p
 							for (int l = y - 1; l <= y + 1; l++) {
@@ -182,7 +184,7 @@ public class Watershed2 extends Algorithm {
 										continue;
 									if (!(k == x && l == y)
 											&& output.getPixelXYBInt(k, l, b) == MASK) {
-										fifo.add(new Point(k, l));
+										fifo.add(k + xDim * l, 0);
 										output.setPixelXYBInt(k, l, b,
 												currentLabel);
 									}
@@ -266,17 +268,12 @@ public class Watershed2 extends Algorithm {
 		}
 	}
 
-	private ArrayList<ArrayList<Point>> calculateDistro(int b) {
-		ArrayList<ArrayList<Point>> distro = new ArrayList<ArrayList<Point>>();
-
-		for (int i = 0; i < 256; i++)
-			distro.add(new ArrayList<Point>());
-
+	private void calculateDistro(int b, BucketQueue distro) {
+		distro.clear();
 		for (int x = 0; x < xDim; x++) {
 			for (int y = 0; y < yDim; y++)
-				distro.get(input.getPixelXYBByte(x, y, b)).add(new Point(x, y));
+				distro.add(x + xDim * y, input.getPixelXYBByte(x, y, b));
 		}
-		return distro;
 	}
 
 	private boolean areThereLabelledNeighbours(int x, int y, int b) {
@@ -293,27 +290,4 @@ public class Watershed2 extends Algorithm {
 		return false;
 	}
 
-	private class Fifo {
-		private ArrayList<Point> v;
-
-		Fifo() {
-			v = new ArrayList<Point>();
-		}
-
-		void add(Point o) {
-			v.add(o);
-		}
-
-		Point retrieve() {
-			Point o = v.get(0);
-			v.remove(0);
-
-			return o;
-		}
-
-		boolean isEmpty() {
-			return v.size() == 0;
-		}
-	}
-
 }
@@ -1,14 +1,10 @@
 package fr.unistra.pelican.algorithms.segmentation;
 
-import fr.unistra.pelican.util.Point3D;
-import fr.unistra.pelican.util.Point4D;
-
-import java.util.Vector;
-
 import fr.unistra.pelican.Algorithm;
 import fr.unistra.pelican.AlgorithmException;
 import fr.unistra.pelican.Image;
 import fr.unistra.pelican.IntegerImage;
+import fr.unistra.pelican.util.BucketQueue;
 
 /**
  * This class performs a watershed segmentation in N dimensions (XYZT) (using
@@ -51,7 +47,7 @@ public class WatershedND extends Algorithm {
 
 	private static final int INQUEUE = -3;
 
-	private final Point4D fictitious = new Point4D(-1, -1, -1, -1);
+	private static final int FICTITIOUS = -1;
 	private int levels;
 
 	/**
@@ -87,20 +83,27 @@ public class WatershedND extends Algorithm {
 	 */
 	public void launch() throws AlgorithmException {
 		levels = (int) Math.pow(2, resolution);
-		IntegerImage work = new IntegerImage(inputImage.getXDim(), inputImage
-				.getYDim(), inputImage.getZDim(), inputImage.getTDim(), 1);
-		IntegerImage dist = new IntegerImage(inputImage.getXDim(), inputImage
-				.getYDim(), inputImage.getZDim(), inputImage.getTDim(), 1);
-		IntegerImage workOut = new IntegerImage(inputImage.getXDim(),
-				inputImage.getYDim(), inputImage.getZDim(), inputImage
-						.getTDim(), 1);
+		int xdim = inputImage.getXDim();
+		int ydim = inputImage.getYDim();
+		int zdim = inputImage.getZDim();
+		int tdim = inputImage.getTDim();
+		IntegerImage work = new IntegerImage(xdim, ydim, zdim, tdim, 1);
+		IntegerImage dist = new IntegerImage(xdim, ydim, zdim, tdim, 1);
+		IntegerImage workOut = new IntegerImage(xdim, ydim, zdim, tdim, 1);
 		outputImage = new IntegerImage(inputImage, false);
+
+		// a single level, as a fifo of pixel offsets
+		BucketQueue fifo = new BucketQueue(1);
+		// pixel value distribution, and the offsets of the current level
+		BucketQueue distro = new BucketQueue(levels);
+		int[] level = new int[work.size()];
+
 		for (int b = 0; b < inputImage.getBDim(); b++) {
 			// Create a working Image.
-			for (int x = 0; x < inputImage.getXDim(); x++)
-				for (int y = 0; y < inputImage.getYDim(); y++)
-					for (int z = 0; z < inputImage.getZDim(); z++)
-						for (int t = 0; t < inputImage.getTDim(); t++)
+			for (int x = 0; x < xdim; x++)
+				for (int y = 0; y < ydim; y++)
+					for (int z = 0; z < zdim; z++)
+						for (int t = 0; t < tdim; t++)
 							// That's a nice hack, isn't it? No Byte to Integer
 							// conversion.
 							// Work still have values from 0 to 255.
@@ -111,12 +114,9 @@ public class WatershedND extends Algorithm {
 			workOut.fill(INIT);
 			dist.fill(0);
 			int currentLabel = WSHED;
-			int x, y, z;
-			Fifo fifo = new Fifo();
-			Point4D p;
+			int p;
 
-			// pixel value distribution,
-			Vector[] distro = calculateDistro(work);
+			calculateDistro(work, distro);
 
 			// start flooding
 			for (int i = 0; i < levels; i++) {
@@ -124,83 +124,73 @@ public class WatershedND extends Algorithm {
 				System.out.println(i + "/" + (levels-1));
 
 				// geodesic SKIZ of level i - 1 inside level i
-				int size = distro[i].size();
+				int size = 0;
+				while (!distro.isEmpty() && distro.getCurrent() == i)
+					level[size++] = distro.get();
 
 				for (int j = 0; j < size; j++) {
-					p = (Point4D) distro[i].elementAt(j);
+					p = level[j];
 
-					workOut.setPixelXYZTInt(p.x, p.y, p.z, p.t, MASK);
+					workOut.setPixelInt(p, MASK);
 
-					if (areThereLabelledNeighbours(workOut, p.x, p.y, p.z, p.t) == true) {
-						dist.setPixelXYZTInt(p.x, p.y, p.z, p.t, 1);
-						fifo.add(p);
+					if (areThereLabelledNeighbours(workOut, p % xdim, p / xdim
+							% ydim, p / (xdim * ydim) % zdim, p
+							/ (xdim * ydim * zdim)) == true) {
+						dist.setPixelInt(p, 1);
+						fifo.add(p, 0);
 					}
 				}
 
 				int curDist = 1;
-				fifo.add(fictitious);
+				fifo.add(FICTITIOUS, 0);
 
 				do {
-					p = (Point4D) fifo.retrieve();
+					p = fifo.get();
 
-					if (p.x == -1 && p.y == -1 && p.z == -1 && p.t == -1) {
+					if (p == FICTITIOUS) {
 						if (fifo.isEmpty() == true)
 							break;
 						else {
-							fifo.add(fictitious);
+							fifo.add(FICTITIOUS, 0);
 							curDist++;
-							p = fifo.retrieve();
+							p = fifo.get();
 						}
 					}
+					int px = p % xdim;
+					int py = p / xdim % ydim;
+					int pz = p / (xdim * ydim) % zdim;
+					int pt = p / (xdim * ydim * zdim);
 
 					// labelling p by inspecting its neighbours
-					for (int j = p.y - 1; j <= p.y + 1; j++) {
-						for (int k = p.x - 1; k <= p.x + 1; k++)
-							for (int l = p.z - 1; l <= p.z + 1; l++)
-								for (int m = p.t - 1; m <= p.t + 1; m++) {
-									if (k < 0 || k >= inputImage.getXDim()
-											|| j < 0
-											|| j >= inputImage.getYDim()
-											|| l < 0
-											|| l >= inputImage.getZDim()
-											|| m < 0
-											|| m >= inputImage.getTDim())
+					for (int j = py - 1; j <= py + 1; j++) {
+						for (int k = px - 1; k <= px + 1; k++)
+							for (int l = pz - 1; l <= pz + 1; l++)
+								for (int m = pt - 1; m <= pt + 1; m++) {
+									if (k < 0 || k >= xdim || j < 0
+											|| j >= ydim || l < 0
+											|| l >= zdim || m < 0
+											|| m >= tdim)
 										continue;
 
 									// if the pixel is
 									// already labelled
-									if (!(j == p.y && k == p.x && l == p.z && m == p.t)
+									if (!(j == py && k == px && l == pz && m == pt)
 											&& dist.getPixelXYZTInt(k, j, l, m) < curDist
 											&& workOut.getPixelXYZTInt(k, j, l,
 													m) > WSHED) {
 										if (workOut.getPixelXYZTInt(k, j, l, m) > 0) {
-											if (workOut.getPixelXYZTInt(p.x,
-													p.y, p.z, p.t) == MASK
-													|| workOut.getPixelXYZTInt(
-															p.x, p.y, p.z, p.t) == WSHED)
-												workOut
-														.setPixelXYZTInt(
-																p.x,
-																p.y,
-																p.z,
-																p.t,
-																workOut
-																		.getPixelXYZTInt(
-																				k,
-																				j,
-																				l,
-																				m));
-
-											else if (workOut.getPixelXYZTInt(
-													p.x, p.y, p.z, p.t) != workOut
+											if (workOut.getPixelInt(p) == MASK
+													|| workOut.getPixelInt(p) == WSHED)
+												workOut.setPixelInt(p, workOut
+														.getPixelXYZTInt(k, j,
+																l, m));
+
+											else if (workOut.getPixelInt(p) != workOut
 													.getPixelXYZTInt(k, j, l, m))
-												workOut.setPixelXYZTInt(p.x,
-														p.y, p.z, p.t, WSHED);
+												workOut.setPixelInt(p, WSHED);
 
-										} else if (workOut.getPixelXYZTInt(p.x,
-												p.y, p.z, p.t) == MASK)
-											workOut.setPixelXYZTInt(p.x, p.y,
-													p.z, p.t, WSHED);
+										} else if (workOut.getPixelInt(p) == MASK)
+											workOut.setPixelInt(p, WSHED);
 
 										// if the neighbour is a plateau pixel
 									} else if (workOut.getPixelXYZTInt(k, j, l,
@@ -208,63 +198,53 @@ public class WatershedND extends Algorithm {
 											&& dist.getPixelXYZTInt(k, j, l, m) == 0) {
 										dist.setPixelXYZTInt(k, j, l, m,
 												curDist + 1);
-										fifo.add(new Point4D(k, j, l, m));
+										fifo.add(k + xdim
+												* (j + ydim * (l + zdim * m)), 0);
 									}
 								}
 					}
 				} while (true);
 
-				// check for new minima
-				size = distro[i].size();
-
 				// detect and process new minima at level i
 				for (int j = 0; j < size; j++) {
-					p = (Point4D) distro[i].elementAt(j);
+					p = level[j];
 
 					// reset distance to 0
-					dist.setPixelXYZTInt(p.x, p.y, p.z, p.t, 0);
+					dist.setPixelInt(p, 0);
 
 					// if p is inside a new minimum
-					if (workOut.getPixelXYZTInt(p.x, p.y, p.z, p.t) == MASK) {
+					if (workOut.getPixelInt(p) == MASK) {
 
 						// create a new label
 						currentLabel++;
-						fifo.add(p);
-						workOut.setPixelXYZTInt(p.x, p.y, p.z, p.t,
-								currentLabel);
+						fifo.add(p, 0);
+						workOut.setPixelInt(p, currentLabel);
 
 						while (fifo.isEmpty() == false) {
-							Point4D q = fifo.retrieve();
+							int q = fifo.get();
+							int qx = q % xdim;
+							int qy = q / xdim % ydim;
+							int qz = q / (xdim * ydim) % zdim;
+							int qt = q / (xdim * ydim * zdim);
 
 							// for every pixel in the 80-neighbourhood of
 							// q
-							for (int n = q.t - 1; n <= q.t + 1; n++)
-								for (int m = q.z - 1; m <= q.z + 1; m++)
-									for (int l = q.y - 1; l <= q.y + 1; l++)
-										for (int k = q.x - 1; k <= q.x + 1; k++) {
-											if (k < 0
-													|| k >= inputImage
-															.getXDim()
-													|| l < 0
-													|| l >= inputImage
-															.getYDim()
-													|| m < 0
-													|| m >= inputImage
-															.getZDim()
-													|| n < 0
-													|| n >= inputImage
-															.getTDim()
-
-											)
+							for (int n = qt - 1; n <= qt + 1; n++)
+								for (int m = qz - 1; m <= qz + 1; m++)
+									for (int l = qy - 1; l <= qy + 1; l++)
+										for (int k = qx - 1; k <= qx + 1; k++) {
+											if (k < 0 || k >= xdim || l < 0
+													|| l >= ydim || m < 0
+													|| m >= zdim || n < 0
+													|| n >= tdim)
 												continue;
 
-											if (!(k == q.x && l == q.y
-													&& m == q.z && n == q.t)
+											if (!(k == qx && l == qy
+													&& m == qz && n == qt)
 													&& workOut.getPixelXYZTInt(
 															k, l, m, n) == MASK) {
-												fifo
-														.add(new Point4D(k, l,
-																m, n));
+												fifo.add(k + xdim
+														* (l + ydim * (m + zdim * n)), 0);
 												workOut.setPixelXYZTInt(k, l,
 														m, n, currentLabel);
 											}
@@ -273,43 +253,44 @@ public class WatershedND extends Algorithm {
 						}
 					}
 				}
-
-				// Copy the result to the outputImage
-				for (int _x = 0; _x < inputImage.getXDim(); _x++)
-					for (int _y = 0; _y < inputImage.getYDim(); _y++)
-						for (int _z = 0; _z < inputImage.getZDim(); _z++)
-							for (int _t = 0; _t < inputImage.getTDim(); _t++) {
-								// That's a nice hack, isn't it? No Integer to
-								// Byte
-								// conversion.
-								// Values are inside [0,255] if the algo is
-								// correct.
-								outputImage.setPixelInt(_x, _y, _z, _t, b,
-										workOut.getPixelInt(_x, _y, _z, _t, 0)/*
-																				 * +
-																				 * Integer.MIN_VALUE
-																				 */);
-							}
-
 			}
+
+			// Copy the result to the outputImage, once all the levels are
+			// flooded
+			for (int _x = 0; _x < xdim; _x++)
+				for (int _y = 0; _y < ydim; _y++)
+					for (int _z = 0; _z < zdim; _z++)
+						for (int _t = 0; _t < tdim; _t++) {
+							// That's a nice hack, isn't it? No Integer to
+							// Byte
+							// conversion.
+							// Values are inside [0,255] if the algo is
+							// correct.
+							outputImage.setPixelInt(_x, _y, _z, _t, b,
+									workOut.getPixelInt(_x, _y, _z, _t, 0)/*
+																			 * +
+																			 * Integer.MIN_VALUE
+																			 */);
+						}
 		}
 		return;
 	}
 
-	private Vector[] calculateDistro(IntegerImage img) {
-		Vector[] distro = new Vector[levels];
-
-		for (int i = 0; i < levels; i++)
-			distro[i] = new Vector();
-
-		for (int x = 0; x < img.getXDim(); x++)
-			for (int y = 0; y < img.getYDim(); y++)
-				for (int z = 0; z < img.getZDim(); z++)
+	/**
+	 * Fills the queue with the offsets of the pixels, by value, in the order
+	 * x, y, z, t from the outermost loop
+	 */
+	private void calculateDistro(IntegerImage img, BucketQueue distro) {
+		distro.clear();
+		int xdim = img.getXDim();
+		int ydim = img.getYDim();
+		int zdim = img.getZDim();
+		for (int x = 0; x < xdim; x++)
+			for (int y = 0; y < ydim; y++)
+				for (int z = 0; z < zdim; z++)
 					for (int t = 0; t < img.getTDim(); t++)
-						distro[img.getPixelXYZTInt(x, y, z, t)]
-								.add(new Point4D(x, y, z, t));
-
-		return distro;
+						distro.add(x + xdim * (y + ydim * (z + zdim * t)), img
+								.getPixelXYZTInt(x, y, z, t));
 	}
 
 	private boolean areThereLabelledNeighbours(IntegerImage img, int x, int y,
@@ -345,31 +326,4 @@ public class WatershedND extends Algorithm {
 		return false;
 	}
 
-	private class Fifo {
-		private Vector v;
-
-		Fifo() {
-			v = new Vector();
-		}
-
-		void add(Object o) {
-			v.add(o);
-		}
-
-		Point4D retrieve() {
-			Object o = v.firstElement();
-			v.remove(0);
-
-			return (Point4D) o;
-		}
-
-		boolean isEmpty() {
-			return (v.size() == 0);
-		}
-
-		int size() {
-			return v.size();
-		}
-	}
-
 }
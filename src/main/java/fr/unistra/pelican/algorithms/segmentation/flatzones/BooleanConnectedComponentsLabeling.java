@@ -1,19 +1,21 @@
 package fr.unistra.pelican.algorithms.segmentation.flatzones;
 
-import java.util.ArrayList;
 import fr.unistra.pelican.Algorithm;
+import fr.unistra.pelican.AlgorithmException;
 import fr.unistra.pelican.BooleanImage;
 import fr.unistra.pelican.Image;
 import fr.unistra.pelican.IntegerImage;
-import fr.unistra.pelican.algorithms.segmentation.labels.LabelsToRandomColors;
-import fr.unistra.pelican.algorithms.visualisation.Viewer2D;
+import fr.unistra.pelican.util.ComponentLabeling;
 
 /**
  * This class performs a labeling of a binary image into connected components.
  * 
- * It uses a fast 2-pass algorithm relying on a correspondance table and offers
- * two options : the connexity used (either CONNEXITY4 or CONNEXITY8) and the
- * possiblity to label background pixels
+ * It uses the single-pass union-find labelling of ComponentLabeling, on several
+ * threads, and offers three options : the connexity used (either CONNEXITY4 or
+ * CONNEXITY8), the possiblity to label background pixels and the computation
+ * of the area, bounding box and centroid of the components. Each plane of
+ * each band is labelled separately, labels being numbered from 1 in the order
+ * of appearance of the components (band, frame, plane, line, column).
  * 
  * TODO: add support to integer images (not only boolean images)
  * 
@@ -56,20 +58,23 @@ public class BooleanConnectedComponentsLabeling extends Algorithm {
 	 */
 	public int countLabels;
 
-	/*
-	 * Private attributes
+	/**
+	 * Flag to compute the area, bounding box and centroid of the components
 	 */
-	private int nbLabels = 0;
+	public boolean computeStatistics = false;
 
-	private ArrayList<Integer> labels = new ArrayList<Integer>();
+	/**
+	 * Statistics of the components, indexed by label, null if not computed
+	 */
+	public ComponentLabeling.Statistics statistics;
 
 	/**
 	 * Constructor
 	 */
 	public BooleanConnectedComponentsLabeling() {
 		super.inputs = "input";
-		super.options = "connexity,background";
-		super.outputs = "output,countLabels";
+		super.options = "connexity,background,computeStatistics";
+		super.outputs = "output,countLabels,statistics";
 	}
 
 	/**
@@ -114,280 +119,40 @@ public class BooleanConnectedComponentsLabeling extends Algorithm {
 		int yDim = input.getYDim();
 		int zDim = input.getZDim();
 		int tDim = input.getTDim();
-		int bDim = input.getBDim();		
+		int bDim = input.getBDim();
 		output = new IntegerImage(xDim, yDim, zDim, tDim, bDim);
-		labels.add(0);
-		// Cas binaire
-		if (input instanceof BooleanImage) {
-			// Initialisation
-			for (int i = 0; i < input.size(); i++)
-				if (background || input.getPixelBoolean(i))
-					this.output.setPixelInt(i, Integer.MAX_VALUE);
-				else
-					this.output.setPixelInt(i, 0);
-			// Premier parcours
-			for (int b = 0; b < bDim; b++)
-				for (int t = 0; t < tDim; t++)
-					for (int z = 0; z < zDim; z++)
-						for (int y = 0; y < yDim; y++)
-							for (int x = 0; x < xDim; x++)
-								if (background || input.getPixelBoolean(x, y, z, t, b)) {
-									if (connexity == CONNEXITY4)
-										output.setPixelInt(x, y, z, t, b, get4Connexity(x, y, z, t,
-											b));
-									else if (connexity == CONNEXITY8)
-										output.setPixelInt(x, y, z, t, b, get8Connexity(x, y, z, t,
-											b));
-								}
-			// Simplification de la table d'equivalence
-			ArrayList<Integer> alreadyTreatedLabels = new ArrayList<Integer>();
-			for (int i = nbLabels; i >= 0; i--) 
-			{
-				int j = i;
-				alreadyTreatedLabels.add(j);
-				while (labels.get(j) != j)
-				{
-					j = labels.get(j);
-					// loop treatment
-					if(alreadyTreatedLabels.contains(j))
-					{
-						for(int label=0;label<alreadyTreatedLabels.size();label++)
-						{
-							labels.set(alreadyTreatedLabels.get(label), i);
-						}
-						j = i;
-					} else
-					{
-						alreadyTreatedLabels.add(j);
-					}
-				}
-				labels.set(i, j);
-				alreadyTreatedLabels.clear();
-			}
-			// Calcul du nombre de labels et requantification des labels
-			int[] labels2 = new int[nbLabels + 1];
-			countLabels = 0;
-			int firstLabel=0;
-			for (int i = firstLabel; i < nbLabels + 1; i++)
-				if (i == labels.get(i)) {
-					labels2[i] = countLabels;
-					countLabels++;
-				}
-			output.setProperty("nbRegions", countLabels);
-			// Second parcours
+		int[][] offsets;
+		if (connexity == CONNEXITY4)
+			offsets = ComponentLabeling.backwardOffsets(4);
+		else if (connexity == CONNEXITY8)
+			offsets = ComponentLabeling.backwardOffsets(8);
+		else
+			throw new AlgorithmException("Unknown connexity " + connexity);
+		// every band is a volume of planes, labelled one after the other
+		int size = input.size();
+		int plane = size / bDim;
+		int[] values = new int[size];
+		boolean binary = input instanceof BooleanImage;
+		for (int b = 0; b < bDim; b++)
+			for (int p = 0; p < plane; p++)
+				values[p + plane * b] = binary ? (input.getPixelBoolean(b + bDim
+					* p) ? 1 : 0) : input.getPixelInt(b + bDim * p);
+		// Cas d'une image label : le fond est le minimum des valeurs entieres
+		// (0 pour une ByteImage), et 0 pour une IntegerImage
+		int bg = binary || input instanceof IntegerImage ? 0 : Integer.MIN_VALUE;
+		ComponentLabeling labeling = new ComponentLabeling(xDim, yDim, zDim
+			* tDim * bDim, offsets);
+		labeling.setStatistics(computeStatistics);
+		int[] labels = new int[size];
+		countLabels = labeling.label(values, labels, !background, bg) + 1;
+		statistics = labeling.getStatistics();
+		if (bDim == 1)
+			output.setPixels(labels);
+		else
 			for (int b = 0; b < bDim; b++)
-				for (int t = 0; t < tDim; t++)
-					for (int z = 0; z < zDim; z++)
-						for (int y = 0; y < yDim; y++)
-							for (int x = 0; x < xDim; x++)
-								if (background || input.getPixelBoolean(x, y, z, t, b))
-									output.setPixelInt(x, y, z, t, b, labels2[labels.get(output
-										.getPixelInt(x, y, z, t, b))]);
-		}
-		// Cas d'une image label : fonctionne pour des ByteImage et IntegerImage (label)
-		else {
-			int bg=Integer.MIN_VALUE;
-			if(input instanceof IntegerImage)
-				bg=0;
-			// Initialisation
-			for (int i = input.size(); --i>=0 ;)
-				if (background || input.getPixelInt(i)!=bg)
-					this.output.setPixelInt(i, Integer.MAX_VALUE);
-				else
-					this.output.setPixelInt(i, 0);
-			// Premier parcours
-			for (int b = 0; b < bDim; b++)
-				for (int t = 0; t < tDim; t++)
-					for (int z = 0; z < zDim; z++)
-						for (int y = 0; y < yDim; y++)
-							for (int x = 0; x < xDim; x++)
-								if (background || input.getPixelInt(x, y, z, t, b) != bg) {
-									if (connexity == CONNEXITY4)
-										output.setPixelInt(x, y, z, t, b, get4ConnexityLabel(x, y,
-											z, t, b));
-									else if (connexity == CONNEXITY8)
-										output.setPixelInt(x, y, z, t, b, get8ConnexityLabel(x, y,
-											z, t, b));
-								}
-			// Simplification de la table d'equivalence
-			ArrayList<Integer> alreadyTreatedLabels = new ArrayList<Integer>();
-			for (int i = nbLabels; i >= 0; i--) 
-			{
-				int j = i;
-				alreadyTreatedLabels.add(j);
-				while (labels.get(j) != j)
-				{
-					j = labels.get(j);
-					// loop treatment
-					if(alreadyTreatedLabels.contains(j))
-					{
-						for(int label=0;label<alreadyTreatedLabels.size();label++)
-						{
-							labels.set(alreadyTreatedLabels.get(label), i);
-						}
-						j = i;
-					} else
-					{
-						alreadyTreatedLabels.add(j);
-					}
-				}
-				labels.set(i, j);
-				alreadyTreatedLabels.clear();
-			}
-			// Calcul du nombre de labels et requantification des labels
-			int[] labels2 = new int[nbLabels + 1];
-			countLabels = 0;
-			int firstLabel=0;
-			for (int i = firstLabel; i < nbLabels + 1; i++)
-				if (i == labels.get(i)) {
-					labels2[i] = countLabels;
-					countLabels++;
-				}
-			output.setProperty("nbRegions", countLabels);
-			// Second parcours
-			for (int b = 0; b < bDim; b++)
-				for (int t = 0; t < tDim; t++)
-					for (int z = 0; z < zDim; z++)
-						for (int y = 0; y < yDim; y++)
-							for (int x = 0; x < xDim; x++)
-								if (background || input.getPixelInt(x, y, z, t, b) != bg)
-									output.setPixelInt(x, y, z, t, b, labels2[labels.get(output
-										.getPixelInt(x, y, z, t, b))]);
-		}
-	}
-
-	private final int get4Connexity(int x, int y, int z, int t, int b) {
-		boolean current = input.getPixelBoolean(x, y, z, t, b);
-		int min = Integer.MAX_VALUE;
-		boolean val1 = false, val2 = false;
-		if (y - 1 >= 0 && current == input.getPixelBoolean(x, y - 1, z, t, b)) {
-			min = Math.min(min, labels.get(output.getPixelInt(x, y - 1, z, t, b)));
-			val1 = true;
-		}
-		if (x - 1 >= 0 && current == input.getPixelBoolean(x - 1, y, z, t, b)) {
-			min = Math.min(min, labels.get(output.getPixelInt(x - 1, y, z, t, b)));
-			val2 = true;
-		}
-		if (val1 && labels.get(output.getPixelInt(x, y - 1, z, t, b)) != min)
-			setTableMin(output.getPixelInt(x, y - 1, z, t, b), min);
-		if (val2 && labels.get(output.getPixelInt(x - 1, y, z, t, b)) != min)
-			setTableMin(output.getPixelInt(x - 1, y, z, t, b), min);
-		if (min == Integer.MAX_VALUE) {
-			labels.add(++nbLabels);
-			return nbLabels;
-		} else
-			return min;
-	}
-
-	private final int get8Connexity(int x, int y, int z, int t, int b) {
-		boolean current = input.getPixelBoolean(x, y, z, t, b);
-		int min = Integer.MAX_VALUE;
-		boolean val1 = false, val2 = false, val3 = false, val4 = false;
-		if (x - 1 >= 0 && y - 1 >= 0
-			&& current == input.getPixelBoolean(x - 1, y - 1, z, t, b)) {
-			min = Math
-				.min(min, labels.get(output.getPixelInt(x - 1, y - 1, z, t, b)));
-			val1 = true;
-		}
-		if (y - 1 >= 0 && current == input.getPixelBoolean(x, y - 1, z, t, b)) {
-			min = Math.min(min, labels.get(output.getPixelInt(x, y - 1, z, t, b)));
-			val2 = true;
-		}
-		if (y - 1 >= 0 && x + 1 < input.getXDim()
-			&& current == input.getPixelBoolean(x + 1, y - 1, z, t, b)) {
-			min = Math
-				.min(min, labels.get(output.getPixelInt(x + 1, y - 1, z, t, b)));
-			val3 = true;
-		}
-		if (x - 1 >= 0 && current == input.getPixelBoolean(x - 1, y, z, t, b)) {
-			min = Math.min(min, labels.get(output.getPixelInt(x - 1, y, z, t, b)));
-			val4 = true;
-		}
-		if (val1 && labels.get(output.getPixelInt(x - 1, y - 1, z, t, b)) != min)
-			setTableMin(output.getPixelInt(x - 1, y - 1, z, t, b), min);
-		if (val2 && labels.get(output.getPixelInt(x, y - 1, z, t, b)) != min)
-			setTableMin(output.getPixelInt(x, y - 1, z, t, b), min);
-		if (val3 && labels.get(output.getPixelInt(x + 1, y - 1, z, t, b)) != min)
-			setTableMin(output.getPixelInt(x + 1, y - 1, z, t, b), min);
-		if (val4 && labels.get(output.getPixelInt(x - 1, y, z, t, b)) != min)
-			setTableMin(output.getPixelInt(x - 1, y, z, t, b), min);
-		if (min == Integer.MAX_VALUE) {
-			labels.add(++nbLabels);
-			return nbLabels;
-		} else
-			return min;
-	}
-
-	private final int get4ConnexityLabel(int x, int y, int z, int t, int b) {
-		int current = input.getPixelInt(x, y, z, t, b);
-		int min = Integer.MAX_VALUE;
-		boolean val1 = false, val2 = false;
-		if (y - 1 >= 0 && current == input.getPixelInt(x, y - 1, z, t, b)) {
-			min = Math.min(min, labels.get(output.getPixelInt(x, y - 1, z, t, b)));
-			val1 = true;
-		}
-		if (x - 1 >= 0 && current == input.getPixelInt(x - 1, y, z, t, b)) {
-			min = Math.min(min, labels.get(output.getPixelInt(x - 1, y, z, t, b)));
-			val2 = true;
-		}
-		if (val1 && labels.get(output.getPixelInt(x, y - 1, z, t, b)) != min)
-			setTableMin(output.getPixelInt(x, y - 1, z, t, b), min);
-		if (val2 && labels.get(output.getPixelInt(x - 1, y, z, t, b)) != min)
-			setTableMin(output.getPixelInt(x - 1, y, z, t, b), min);
-		if (min == Integer.MAX_VALUE) {
-			labels.add(++nbLabels);
-			return nbLabels;
-		} else
-			return min;
-	}
-
-	private final int get8ConnexityLabel(int x, int y, int z, int t, int b) {
-		int current = input.getPixelInt(x, y, z, t, b);
-		int min = Integer.MAX_VALUE;
-		boolean val1 = false, val2 = false, val3 = false, val4 = false;
-		if (x - 1 >= 0 && y - 1 >= 0
-			&& current == input.getPixelInt(x - 1, y - 1, z, t, b)) {
-			min = Math
-				.min(min, labels.get(output.getPixelInt(x - 1, y - 1, z, t, b)));
-			val1 = true;
-		}
-		if (y - 1 >= 0 && current == input.getPixelInt(x, y - 1, z, t, b)) {
-			min = Math.min(min, labels.get(output.getPixelInt(x, y - 1, z, t, b)));
-			val2 = true;
-		}
-		if (y - 1 >= 0 && x + 1 < input.getXDim()
-			&& current == input.getPixelInt(x + 1, y - 1, z, t, b)) {
-			min = Math
-				.min(min, labels.get(output.getPixelInt(x + 1, y - 1, z, t, b)));
-			val3 = true;
-		}
-		if (x - 1 >= 0 && current == input.getPixelInt(x - 1, y, z, t, b)) {
-			min = Math.min(min, labels.get(output.getPixelInt(x - 1, y, z, t, b)));
-			val4 = true;
-		}
-		if (val1 && labels.get(output.getPixelInt(x - 1, y - 1, z, t, b)) != min)
-			setTableMin(output.getPixelInt(x - 1, y - 1, z, t, b), min);
-		if (val2 && labels.get(output.getPixelInt(x, y - 1, z, t, b)) != min)
-			setTableMin(output.getPixelInt(x, y - 1, z, t, b), min);
-		if (val3 && labels.get(output.getPixelInt(x + 1, y - 1, z, t, b)) != min)
-			setTableMin(output.getPixelInt(x + 1, y - 1, z, t, b), min);
-		if (val4 && labels.get(output.getPixelInt(x - 1, y, z, t, b)) != min)
-			setTableMin(output.getPixelInt(x - 1, y, z, t, b), min);
-		if (min == Integer.MAX_VALUE) {
-			labels.add(++nbLabels);
-			return nbLabels;
-		} else
-			return min;
-	}
-
-	private final void setTableMin(int u, int min) {
-		int v = labels.get(u);
-		while (u != v) {
-			labels.set(u, min);
-			u = v;
-			v = labels.get(v);
-		}
-		labels.set(u, min);
+				for (int p = 0; p < plane; p++)
+					output.setPixelInt(b + bDim * p, labels[p + plane * b]);
+		output.setProperty("nbRegions", countLabels);
 	}
 
-}
\ No newline at end of file
+}
@@ -6,11 +6,14 @@ import fr.unistra.pelican.Algorithm;
 import fr.unistra.pelican.AlgorithmException;
 import fr.unistra.pelican.Image;
 import fr.unistra.pelican.IntegerImage;
+import fr.unistra.pelican.util.ComponentLabeling;
 
 /**
  * This class performs a labeling of a monoband image into connected components.
  * 
- * It uses a fast 2-pass algorithm relying on a correspondance table
+ * It uses the single-pass union-find labelling of ComponentLabeling, on several
+ * threads. Labels are numbered from 1 in the order of appearance of the
+ * components.
  * 
  * @author Lefevre, Jonathan Weber
  */
@@ -56,34 +59,23 @@ public class GrayConnectedComponentsLabeling extends Algorithm {
 	 */
 	public int countLabels;
 
-	/*
-	 * Private attributes
+	/**
+	 * Flag to compute the area, bounding box and centroid of the components
 	 */
-	private int nbLabels = 0;
+	public boolean computeStatistics = false;
 
-	private ArrayList<Integer> labels = new ArrayList<Integer>();
-	
-	private int current;
-	private int min;
-	private int xm1ym1Index;
-	private int ym1Index;
-	private int xp1ym1Index;
-	private int xm1Index;
-	private int tm1Index;
-	private boolean val1, val2, val3, val4, val5;
-	
-	private int xDim;
-	private int yDim;
-	private int zDim;
-	private int tDim;
+	/**
+	 * Statistics of the components, indexed by label, null if not computed
+	 */
+	public ComponentLabeling.Statistics statistics;
 
 	/**
 	 * Constructor
 	 */
 	public GrayConnectedComponentsLabeling() {
 		super.inputs = "input";
-		super.options = "connexity";
-		super.outputs = "output,countLabels";
+		super.options = "connexity,computeStatistics";
+		super.outputs = "output,countLabels,statistics";
 	}
 
 	/**
@@ -127,280 +119,44 @@ public class GrayConnectedComponentsLabeling extends Algorithm {
 
 	public void launch() 
 	{
-		if(input.getBDim()==1)		{
-		
-			xDim = input.getXDim();
-			yDim = input.getYDim();
-			zDim = input.getZDim();
-			tDim = input.getTDim();
-			output = input.newIntegerImage();
-			labels.add(0);
-			
-			int index=-1;
-
-			// Initialisation
-			for (int i = input.size(); --i>=0 ;)
-			{
-					this.output.setPixelInt(i, Integer.MAX_VALUE);
-			}
-			// Premier parcours
-			if (connexity == CONNEXITY4)
-			{
-				for (int t = 0; t < tDim; t++)
-					for (int z = 0; z < zDim; z++)
-						for (int y = 0; y < yDim; y++)
-							for (int x = 0; x < xDim; x++)
-							{
-								output.setPixelInt(++index, get4ConnexityLabel(x, y, z, t));
-							}
-			} 
-			else if (connexity == CONNEXITY8)
-			{
-				for (int t = 0; t < tDim; t++)
-					for (int z = 0; z < zDim; z++)
-						for (int y = 0; y < yDim; y++)
-							for (int x = 0; x < xDim; x++)
-							{
-								output.setPixelInt(++index, get8ConnexityLabel(x, y, z, t));
-							}
-			}
-			else if (connexity == CONNEXITY6TEMPORAL)
-			{
-				for (int t = 0; t < tDim; t++)
-					for (int z = 0; z < zDim; z++)
-						for (int y = 0; y < yDim; y++)
-							for (int x = 0; x < xDim; x++)
-							{
-								output.setPixelInt(++index, get6TemporalConnexityLabel(x, y, z, t));
-							}
-			}
-			else if (connexity == CONNEXITY10TEMPORAL)
-			{
-				for (int t = 0; t < tDim; t++)
-					for (int z = 0; z < zDim; z++)
-						for (int y = 0; y < yDim; y++)
-							for (int x = 0; x < xDim; x++)
-							{
-								output.setPixelInt(++index, get10TemporalConnexityLabel(x, y, z, t));
-							}
-			}
-			// Simplification de la table d'equivalence
-			ArrayList<Integer> alreadyTreatedLabels = new ArrayList<Integer>();
-			for (int i = nbLabels; i >= 0; i--) 
-			{
-				int j = i;
-				alreadyTreatedLabels.add(j);
-				while (labels.get(j) != j)
-				{
-					j = labels.get(j);
-					// loop treatment
-					if(alreadyTreatedLabels.contains(j))
-					{
-						for(int label=0;label<alreadyTreatedLabels.size();label++)
-						{
-							labels.set(alreadyTreatedLabels.get(label), i);
-						}
-						j = i;
-					} else
-					{
-						alreadyTreatedLabels.add(j);
-					}
-				}
-				labels.set(i, j);
-				alreadyTreatedLabels.clear();
-			}
-			// Calcul du nombre de labels et requantification des labels
-			int[] labels2 = new int[nbLabels + 1];
-			countLabels = 0;
-			int firstLabel=0;
-			for (int i = firstLabel; i < nbLabels + 1; i++)
-				if (i == labels.get(i)) 
-				{
-					labels2[i] = countLabels++;
-				}
-			output.setProperty("nbRegions", countLabels);
-			// Second parcours
-			for(int i = output.size();--i>=0;)
-			{
-				output.setPixelInt(i, labels2[labels.get(output.getPixelInt(i))]);
-			}
-		}
-		else
-		{
+		if (input.getBDim() != 1)
 			throw new AlgorithmException("inputImage must be a gray level image");
-		}
-	}
-
-
-
-	private final int get4ConnexityLabel(int x, int y, int z, int t) {
-		current = input.getPixelXYZTInt(x, y, z, t);
-		min = Integer.MAX_VALUE;
-		val1 = false;
-		val2 = false;
-		ym1Index = input.getLinearIndexXYZT_(x, y - 1, z, t);
-		xm1Index = input.getLinearIndexXYZT_(x - 1, y, z, t);
-		if (y - 1 >= 0 && current == input.getPixelInt( ym1Index)) {
-			min = Math.min(min, labels.get(output.getPixelInt( ym1Index)));
-			val1 = true;
-		}
-		if (x - 1 >= 0 && current == input.getPixelInt(xm1Index)) {
-			min = Math.min(min, labels.get(output.getPixelInt(xm1Index)));
-			val2 = true;
-		}
-		if (val1 && labels.get(output.getPixelInt( ym1Index)) != min)
-			setTableMin(output.getPixelInt( ym1Index), min);
-		if (val2 && labels.get(output.getPixelInt(xm1Index)) != min)
-			setTableMin(output.getPixelInt(xm1Index), min);
-		if (min == Integer.MAX_VALUE) {
-			labels.add(++nbLabels);
-			return nbLabels;
-		} else
-			return min;
+		int xDim = input.getXDim();
+		int yDim = input.getYDim();
+		int zDim = input.getZDim();
+		int tDim = input.getTDim();
+		output = input.newIntegerImage();
+		int size = input.size();
+		int[] values = new int[size];
+		for (int i = 0; i < size; i++)
+			values[i] = input.getPixelInt(i);
+		ComponentLabeling labeling = new ComponentLabeling(xDim, yDim, zDim
+			* tDim, offsets(zDim));
+		labeling.setStatistics(computeStatistics);
+		// all the pixels are labelled, from 1
+		int[] labels = new int[size];
+		countLabels = labeling.label(values, labels, false, 0) + 1;
+		statistics = labeling.getStatistics();
+		output.setPixels(labels);
+		output.setProperty("nbRegions", countLabels);
 	}
 
-	private final int get8ConnexityLabel(int x, int y, int z, int t) {
-		current = input.getPixelXYZTInt(x, y, z, t);
-		min = Integer.MAX_VALUE;
-		xm1ym1Index = input.getLinearIndexXYZT_(x - 1, y - 1, z, t);
-		ym1Index = input.getLinearIndexXYZT_(x, y - 1, z, t);
-		xp1ym1Index = input.getLinearIndexXYZT_(x + 1, y - 1, z, t);
-		xm1Index = input.getLinearIndexXYZT_(x - 1, y, z, t);
-		val1 = false;
-		val2 = false;
-		val3 = false;
-		val4 = false;
-		if (x - 1 >= 0 && y - 1 >= 0
-			&& current == input.getPixelInt(xm1ym1Index)) {
-			min = Math
-				.min(min, labels.get(output.getPixelInt(xm1ym1Index)));
-			val1 = true;
-		}
-		if (y - 1 >= 0 && current == input.getPixelInt(ym1Index)) {
-			min = Math.min(min, labels.get(output.getPixelInt(ym1Index)));
-			val2 = true;
-		}
-		if (y - 1 >= 0 && x + 1 < xDim
-			&& current == input.getPixelInt(xp1ym1Index)) {
-			min = Math
-				.min(min, labels.get(output.getPixelInt(xp1ym1Index)));
-			val3 = true;
-		}
-		if (x - 1 >= 0 && current == input.getPixelInt(xm1Index)) {
-			min = Math.min(min, labels.get(output.getPixelInt(xm1Index)));
-			val4 = true;
-		}
-		if (val1 && labels.get(output.getPixelInt(xm1ym1Index)) != min)
-			setTableMin(output.getPixelInt(xm1ym1Index), min);
-		if (val2 && labels.get(output.getPixelInt(ym1Index)) != min)
-			setTableMin(output.getPixelInt(ym1Index), min);
-		if (val3 && labels.get(output.getPixelInt(xp1ym1Index)) != min)
-			setTableMin(output.getPixelInt(xp1ym1Index), min);
-		if (val4 && labels.get(output.getPixelInt(xm1Index)) != min)
-			setTableMin(output.getPixelInt(xm1Index), min);
-		if (min == Integer.MAX_VALUE) {
-			labels.add(++nbLabels);
-			return nbLabels;
-		} else
-			return min;
-	}
-	
-	private final int get6TemporalConnexityLabel(int x, int y, int z, int t) 
-	{
-		current = input.getPixelXYZTInt(x, y, z, t);
-		min = Integer.MAX_VALUE;
-		val1 = false;
-		val2 = false;
-		val3 = false;
-		ym1Index = input.getLinearIndexXYZT_(x, y - 1, z, t);
-		xm1Index = input.getLinearIndexXYZT_(x - 1, y, z, t);
-		tm1Index = input.getLinearIndexXYZT_(x, y, z, t-1);
-		if (y - 1 >= 0 && current == input.getPixelInt( ym1Index)) {
-			min = Math.min(min, labels.get(output.getPixelInt( ym1Index)));
-			val1 = true;
-		}
-		if (x - 1 >= 0 && current == input.getPixelInt(xm1Index)) {
-			min = Math.min(min, labels.get(output.getPixelInt(xm1Index)));
-			val2 = true;
-		}
-		if (t - 1 >= 0 && current == input.getPixelInt(tm1Index)) {
-			min = Math.min(min, labels.get(output.getPixelInt(tm1Index)));
-			val3 = true;
-		}
-		if (val1 && labels.get(output.getPixelInt( ym1Index)) != min)
-			setTableMin(output.getPixelInt( ym1Index), min);
-		if (val2 && labels.get(output.getPixelInt(xm1Index)) != min)
-			setTableMin(output.getPixelInt(xm1Index), min);
-		if (val3 && labels.get(output.getPixelInt(tm1Index)) != min)
-			setTableMin(output.getPixelInt(tm1Index), min);
-		if (min == Integer.MAX_VALUE) {
-			labels.add(++nbLabels);
-			return nbLabels;
-		} else
-			return min;
-	}
-
-	private final int get10TemporalConnexityLabel(int x, int y, int z, int t) {
-		current = input.getPixelXYZTInt(x, y, z, t);
-		min = Integer.MAX_VALUE;
-		xm1ym1Index = input.getLinearIndexXYZT_(x - 1, y - 1, z, t);
-		ym1Index = input.getLinearIndexXYZT_(x, y - 1, z, t);
-		xp1ym1Index = input.getLinearIndexXYZT_(x + 1, y - 1, z, t);
-		xm1Index = input.getLinearIndexXYZT_(x - 1, y, z, t);
-		tm1Index = input.getLinearIndexXYZT_(x, y, z, t - 1);
-		val1 = false;
-		val2 = false;
-		val3 = false;
-		val4 = false;
-		val5 = false;
-		if (x - 1 >= 0 && y - 1 >= 0
-			&& current == input.getPixelInt(xm1ym1Index)) {
-			min = Math
-				.min(min, labels.get(output.getPixelInt(xm1ym1Index)));
-			val1 = true;
-		}
-		if (y - 1 >= 0 && current == input.getPixelInt(ym1Index)) {
-			min = Math.min(min, labels.get(output.getPixelInt(ym1Index)));
-			val2 = true;
-		}
-		if (y - 1 >= 0 && x + 1 < xDim
-			&& current == input.getPixelInt(xp1ym1Index)) {
-			min = Math
-				.min(min, labels.get(output.getPixelInt(xp1ym1Index)));
-			val3 = true;
-		}
-		if (x - 1 >= 0 && current == input.getPixelInt(xm1Index)) {
-			min = Math.min(min, labels.get(output.getPixelInt(xm1Index)));
-			val4 = true;
-		}
-		if (t - 1 >= 0 && current == input.getPixelInt(tm1Index)) {
-			min = Math.min(min, labels.get(output.getPixelInt(tm1Index)));
-			val5 = true;
-		}
-		if (val1 && labels.get(output.getPixelInt(xm1ym1Index)) != min)
-			setTableMin(output.getPixelInt(xm1ym1Index), min);
-		if (val2 && labels.get(output.getPixelInt(ym1Index)) != min)
-			setTableMin(output.getPixelInt(ym1Index), min);
-		if (val3 && labels.get(output.getPixelInt(xp1ym1Index)) != min)
-			setTableMin(output.getPixelInt(xp1ym1Index), min);
-		if (val4 && labels.get(output.getPixelInt(xm1Index)) != min)
-			setTableMin(output.getPixelInt(xm1Index), min);
-		if (val5 && labels.get(output.getPixelInt(tm1Index)) != min)
-			setTableMin(output.getPixelInt(tm1Index), min);
-		if (min == Integer.MAX_VALUE) {
-			labels.add(++nbLabels);
-			return nbLabels;
-		} else
-			return min;
+	/**
+	 * Backward offsets of the connexity, the temporal neighbour being the
+	 * same pixel in the previous frame
+	 */
+	private int[][] offsets(int zDim) {
+		if (connexity == CONNEXITY4)
+			return ComponentLabeling.backwardOffsets(4);
+		if (connexity == CONNEXITY8)
+			return ComponentLabeling.backwardOffsets(8);
+		if (connexity == CONNEXITY6TEMPORAL)
+			return ComponentLabeling.append(ComponentLabeling.backwardOffsets(4),
+				new int[] { 0, 0, -zDim });
+		if (connexity == CONNEXITY10TEMPORAL)
+			return ComponentLabeling.append(ComponentLabeling.backwardOffsets(8),
+				new int[] { 0, 0, -zDim });
+		throw new AlgorithmException("Unknown connexity " + connexity);
 	}
 
-	private final void setTableMin(int u, int min) {
-		int v = labels.get(u);
-		while (u != v) {
-			labels.set(u, min);
-			u = v;
-			v = labels.get(v);
-		}
-		labels.set(u, min);
-	}
 }
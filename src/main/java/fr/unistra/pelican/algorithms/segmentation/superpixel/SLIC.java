@@ -8,8 +8,7 @@ import fr.unistra.pelican.AlgorithmException;
 import fr.unistra.pelican.DoubleImage;
 import fr.unistra.pelican.Image;
 import fr.unistra.pelican.IntegerImage;
-import fr.unistra.pelican.algorithms.conversion.RGBToXYZ;
-import fr.unistra.pelican.algorithms.conversion.XYZToLAB;
+import fr.unistra.pelican.algorithms.conversion.ColourTransform;
 import fr.unistra.pelican.algorithms.morphology.vectorial.gradient.MultispectralEuclideanGradient;
 import fr.unistra.pelican.util.morphology.FlatStructuringElement2D;
 
@@ -48,7 +47,7 @@ public class SLIC extends Algorithm {
 		
 		
 		// Convert image to Lab color space
-		Image lab = XYZToLAB.exec(RGBToXYZ.exec(inputImage));
+		Image lab = ColourTransform.RGB_TO_LAB.convert(inputImage);
 		
 		// Perform gradient on RGB image
 		Image gradient = MultispectralEuclideanGradient.exec(inputImage, FlatStructuringElement2D.createSquareFlatStructuringElement(3));
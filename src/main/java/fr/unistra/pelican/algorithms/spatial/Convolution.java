@@ -1,15 +1,19 @@
 package fr.unistra.pelican.algorithms.spatial;
 
-import java.awt.Point;
-
 import fr.unistra.pelican.Algorithm;
 import fr.unistra.pelican.AlgorithmException;
+import fr.unistra.pelican.DoubleImage;
 import fr.unistra.pelican.Image;
+import fr.unistra.pelican.util.Convolver;
 import fr.unistra.pelican.util.morphology.GrayStructuringElement;
 
 /**
  * Standard convolution for linear filters
  * 
+ * The result is divided by the sum of the weights of the kernel lying inside
+ * the image. Every slice, time and band is convolved, by a 2D kernel or by a
+ * 3D one (see Convolver).
+ * 
  * @author Lefevre
  */
 public class Convolution extends Algorithm {
@@ -47,49 +51,32 @@ public class Convolution extends Algorithm {
 	 * @see fr.unistra.pelican.Algorithm#launch()
 	 */
 	public void launch() throws AlgorithmException {
-		int xDim = input.getXDim();
-		int yDim = input.getYDim();
-		int bDim = input.getBDim();
-
 		// reflect...
-		kernel = kernel.getReflection();
+		Convolver convolver;
+		if (kernel.getZDim() == 1)
+			convolver = new Convolver(support(kernel.getReflection()));
+		else
+			convolver = new Convolver(support(new DoubleImage(kernel, true)))
+					.reflection();
 
 		// create empty output
-		output = input.copyImage(true);
+		output = input.copyImage(false);
 
 		//TODO: use a different SE for each band
-		Point[] points = kernel.getPoints().get(0);
-
-		// convolve and fill it up
-
-		for (int b = 0; b < bDim; b++) {
-			for (int x = 0; x < xDim; x++) {
-				for (int y = 0; y < yDim; y++) {
-
-					double gcc = 0.0;
-					double syc = 0.0;
-
-					for (int i = 0; i < points.length; i++) {
-						int _x = x - kernel.getCenter().x + points[i].x;
-						int _y = y - kernel.getCenter().y + points[i].y;
-
-						if (_x < 0 || _x >= xDim || _y < 0 || _y >= yDim)
-							continue;
-
-						// rows,columns
-						double p = kernel.getValue(points[i].x, points[i].y);
-
-						gcc += p * input.getPixelXYBDouble(_x, _y, b);
-						syc += p;
-					}
-					
-
-					output.setPixelXYBDouble(x, y, b, gcc / (double) syc);
-				}
-			}
-		}
+		convolver.convolve(input, output, Convolver.NORMALIZE);
 	}
 	
+	/**
+	 * Sets to 0 the pixels of the kernel outside the support of the
+	 * structuring element, which are ignored
+	 */
+	private static Image support(Image kernel) {
+		for (int p = 0; p < kernel.size(); p++)
+			if (!(kernel.getPixelDouble(p) > GrayStructuringElement.getINF()))
+				kernel.setPixelDouble(p, 0);
+		return kernel;
+	}
+
 	/**
 	 * Standard convolution for linear filters
 	 * @param input Input image
@@ -10,7 +10,8 @@ import fr.unistra.pelican.AlgorithmException;
 import fr.unistra.pelican.DoubleImage;
 import fr.unistra.pelican.Image;
 import fr.unistra.pelican.algorithms.visualisation.Viewer2D;
-
+import fr.unistra.pelican.util.Convolver;
+import fr.unistra.pelican.util.Point4D;
 import fr.unistra.pelican.util.morphology.GrayStructuringElement;
 
 /**
@@ -18,6 +19,12 @@ import fr.unistra.pelican.util.morphology.GrayStructuringElement;
  * is normalized (divided by the sum of structuring element values) if requested
  * Works on double precision
  * 
+ * Only the first slice (z=0) of the structuring element is used : each slice,
+ * time and band of the image is convolved separately, the rows being
+ * processed by Convolver. The pixels outside the image are ignored, and a
+ * pixel with no pixel of the image under the structuring element, which can
+ * only happen when its center lies outside of it, keeps its value.
+ * 
  * @author Benjamin Perret
  * 
  * TODO merge with convolution
@@ -116,19 +123,29 @@ public class Convolution2 extends Algorithm {
 	public void launch() throws AlgorithmException {
 		outputImage = inputImage.copyImage(false);
 		se = se.getReflection();
-		int xDim = inputImage.getXDim();
-		int yDim = inputImage.getYDim();
-		int tDim = inputImage.getTDim();
-		int bDim = inputImage.getBDim();
-		int zDim = inputImage.getZDim();
-
-		for (int b = 0; b < bDim; b++)
-			for (int t = 0; t < tDim; t++)
-				for (int z = 0; z < zDim; z++)
-					for (int x = 0; x < xDim; x++)
-						for (int y = 0; y < yDim; y++)
-							outputImage.setPixelDouble(x, y, z, t, b, getVal(x,
-									y, z, t, b, normalize == NORMALIZE));
+		int kx = se.getXDim();
+		int ky = se.getYDim();
+		Point4D center = se.getCenter();
+
+		if (center.x < 0 || center.x >= kx || center.y < 0 || center.y >= ky) {
+			// some pixels may have nothing under the se, see getVal
+			for (int b = 0; b < inputImage.getBDim(); b++)
+				for (int t = 0; t < inputImage.getTDim(); t++)
+					for (int z = 0; z < inputImage.getZDim(); z++)
+						for (int x = 0; x < inputImage.getXDim(); x++)
+							for (int y = 0; y < inputImage.getYDim(); y++)
+								outputImage.setPixelDouble(x, y, z, t, b, getVal(x,
+										y, z, t, b, normalize == NORMALIZE));
+			return;
+		}
+
+		double[] kernel = new double[kx * ky];
+		for (int j = 0; j < ky; j++)
+			for (int i = 0; i < kx; i++)
+				kernel[i + kx * j] = se.getPixelXYDouble(i, j);
+		new Convolver(kernel, kx, ky, 1, center.x, center.y, 0).convolve(
+				inputImage, outputImage,
+				normalize == NORMALIZE ? Convolver.NORMALIZE : Convolver.ZERO);
 	}
 
 	/*public static void main(String[] args) {
@@ -9,8 +9,7 @@ import fr.unistra.pelican.Algorithm;
 import fr.unistra.pelican.AlgorithmException;
 import fr.unistra.pelican.DoubleImage;
 import fr.unistra.pelican.Image;
-import fr.unistra.pelican.algorithms.frequential.FFT2;
-import fr.unistra.pelican.algorithms.frequential.Magnitude;
+import fr.unistra.pelican.algorithms.frequential.FFTPlan;
 import fr.unistra.pelican.algorithms.geometric.Crop2D;
 import fr.unistra.pelican.algorithms.geometric.Padding;
 import fr.unistra.pelican.algorithms.histogram.HistogramCorrection;
@@ -65,7 +64,10 @@ public class ConvolveFFT extends Algorithm {
 	
 	private DoubleImage kernelRef;
 	
-	private DoubleImage [] kernelFFT;
+	/**
+	 * Transform of the kernel, from frequency 0 to xdim/2 along x
+	 */
+	private double [][] kernelFFT;
 	
 	private int xdimSave;
 	
@@ -75,8 +77,6 @@ public class ConvolveFFT extends Algorithm {
 	
 	private int ydim;
 	
-	private FFT2 fft= new FFT2();
-	
 	/**
 	 * Result 
 	 */
@@ -128,7 +128,7 @@ public class ConvolveFFT extends Algorithm {
 			ydimSave = inputImage.ydim;
 			kernelRef = kernel;
 			kernel = kernelSave = Padding.exec(kernel,xdim,ydim,-1,-1,-1,Padding.NULL,(xdim-kernel.xdim)/2,(ydim-kernel.ydim)/2,0,0,0);
-			kernelFFT = (DoubleImage [])fft.process(kernel,null,false);
+			kernelFFT = FFTPlan.forwardReal2D(kernel.getPixelsUnsafe(), xdim, ydim);
 		}
 		
 		int sx=xdimSave-1;
@@ -144,21 +144,28 @@ public class ConvolveFFT extends Algorithm {
 			}*/
 		
 		//Viewer2D.exec(HistogramCorrection.exec(inputImage));
-		Image image=Padding.exec(inputImage, xdim, ydim, -1, -1, -1, Padding.MIRROR);//, (xdim-inputImage.xdim)/2, (ydim-inputImage.ydim)/2, 0, 0, 0);
+		DoubleImage image=Padding.exec(inputImage, xdim, ydim, -1, -1, -1, Padding.MIRROR);//, (xdim-inputImage.xdim)/2, (ydim-inputImage.ydim)/2, 0, 0, 0);
 		//Viewer2D.exec(HistogramCorrection.exec(inputImage));
 		
-		DoubleImage [] imageFFT=(DoubleImage [])fft.process(image,null,false);
+		// both images are real, so half of their transforms is enough
+		double [][] imageFFT=FFTPlan.forwardReal2D(image.getPixelsUnsafe(), xdim, ydim);
+		double [] re=imageFFT[0];
+		double [] im=imageFFT[1];
 		
-			for(int i=0;i<imageFFT[0].size();i++)
+			for(int i=0;i<re.length;i++)
 			{
-				double a1=imageFFT[0].getPixelDouble(i);
-				double b1=imageFFT[1].getPixelDouble(i);
-				double a2=kernelFFT[0].getPixelDouble(i);
-				double b2=kernelFFT[1].getPixelDouble(i);
-				imageFFT[0].setPixelDouble(i,a1*a2-b1*b2);
-				imageFFT[1].setPixelDouble(i,a1*b2+b1*a2);
+				double a1=re[i];
+				double b1=im[i];
+				double a2=kernelFFT[0][i];
+				double b2=kernelFFT[1][i];
+				re[i]=a1*a2-b1*b2;
+				im[i]=a1*b2+b1*a2;
 			}
-		outputImage = Magnitude.exec((DoubleImage [])fft.process(imageFFT[0], imageFFT[1], true));
+		outputImage = image.copyImage(false);
+		double [] pixels=outputImage.getPixelsUnsafe();
+		FFTPlan.inverseReal2D(re, im, xdim, ydim, pixels);
+		for(int i=0;i<pixels.length;i++)
+			pixels[i]=Math.abs(pixels[i]);
 		//outputImage = Crop2D.exec(outputImage, 0, 0, xdimSave, ydimSave);
 		
 		
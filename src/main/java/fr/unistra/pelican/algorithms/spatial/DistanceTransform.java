@@ -10,6 +10,9 @@ import fr.unistra.pelican.algorithms.visualisation.Viewer2D;
 /**
  * Computes the distance transform of a binary image
  * 
+ * The distance is approximated by a chamfer mask, see
+ * EuclideanDistanceTransform for exact Euclidean distances.
+ * 
  * @author Lefevre
  */
 public class DistanceTransform extends Algorithm {
@@ -0,0 +1,256 @@
+package fr.unistra.pelican.algorithms.spatial;
+
+import fr.unistra.pelican.Algorithm;
+import fr.unistra.pelican.AlgorithmException;
+import fr.unistra.pelican.DoubleImage;
+import fr.unistra.pelican.Image;
+import fr.unistra.pelican.IntegerImage;
+import fr.unistra.pelican.util.Parallel;
+
+/**
+ * Computes the exact Euclidean distance transform of a binary image : the
+ * distance of every pixel to the nearest true pixel, as DistanceTransform
+ * does with a chamfer mask.
+ *
+ * The transform is separable (A. Meijster, J.B.T.M. Roerdink, W.H. Hesselink,
+ * <i>A general algorithm for computing distance transforms in linear
+ * time</i>, 2000; P. Felzenszwalb, D. Huttenlocher, <i>Distance transforms of
+ * sampled functions</i>, 2004) : the squared distance is computed along the
+ * lines, then along the columns and the slices, each pass taking the lower
+ * envelope of the parabolas rooted at the values of the previous one. The
+ * cost is linear in the number of pixels, and the lines of a pass are
+ * processed on several threads.
+ *
+ * Each band and frame is processed separately, in 2-D or in 3-D. The spacing
+ * of the pixels can differ along x, y and z. The feature transform, i.e. the
+ * index of the nearest true pixel, can be computed too.
+ *
+ * @author PELICAN team
+ */
+public class EuclideanDistanceTransform extends Algorithm {
+
+	/**
+	 * Input image
+	 */
+	public Image input;
+
+	/**
+	 * Distance image, infinite when there is no true pixel
+	 */
+	public DoubleImage output;
+
+	/**
+	 * (optionnally) spacing of the pixels along x, y and z, 1 by default
+	 */
+	public double[] spacing = null;
+
+	/**
+	 * (optionnally) flag to get the squared distances
+	 */
+	public boolean squared = false;
+
+	/**
+	 * (optionnally) flag to compute the feature transform
+	 */
+	public boolean computeFeatures = false;
+
+	/**
+	 * Feature transform : index in the image of the nearest true pixel, -1
+	 * when there is none, null if not computed
+	 */
+	public IntegerImage features;
+
+	/**
+	 * Constructor
+	 *
+	 */
+	public EuclideanDistanceTransform() {
+		super.inputs = "input";
+		super.outputs = "output,features";
+		super.options = "spacing,squared,computeFeatures";
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see fr.unistra.pelican.Algorithm#launch()
+	 */
+	public void launch() throws AlgorithmException {
+		int xDim = input.getXDim();
+		int yDim = input.getYDim();
+		int zDim = input.getZDim();
+		int tDim = input.getTDim();
+		int bDim = input.getBDim();
+		double sx = 1, sy = 1, sz = 1;
+		if (spacing != null) {
+			if (spacing.length < (zDim > 1 ? 3 : 2))
+				throw new AlgorithmException("A spacing is needed for each axis");
+			sx = spacing[0];
+			sy = spacing[1];
+			sz = zDim > 1 ? spacing[2] : 1;
+		}
+		output = new DoubleImage(xDim, yDim, zDim, tDim, bDim);
+		output.copyAttributes(input);
+		features = computeFeatures ? new IntegerImage(xDim, yDim, zDim, tDim,
+			bDim) : null;
+
+		int size = xDim * yDim * zDim;
+		double[] dist = new double[size];
+		int[] feat = computeFeatures ? new int[size] : null;
+		for (int t = 0; t < tDim; t++)
+			for (int b = 0; b < bDim; b++) {
+				// index of pixel p is first + bDim * p
+				int first = b + bDim * size * t;
+				for (int p = 0; p < size; p++) {
+					boolean site = input.getPixelBoolean(first + bDim * p);
+					dist[p] = site ? 0 : Double.POSITIVE_INFINITY;
+					if (feat != null)
+						feat[p] = site ? p : -1;
+				}
+				transform(dist, feat, xDim, yDim * zDim, 1, 1, sx);
+				transform(dist, feat, yDim, xDim * zDim, xDim, xDim, sy);
+				if (zDim > 1)
+					transform(dist, feat, zDim, xDim * yDim, xDim * yDim, xDim
+						* yDim, sz);
+				for (int p = 0; p < size; p++) {
+					output.setPixelDouble(first + bDim * p, squared ? dist[p]
+						: Math.sqrt(dist[p]));
+					if (feat != null)
+						features.setPixelInt(first + bDim * p, feat[p] == -1 ? -1
+							: first + bDim * feat[p]);
+				}
+			}
+	}
+
+	/**
+	 * Transform all the lines along an axis
+	 *
+	 * @param dist
+	 *            squared distances, modified
+	 * @param feat
+	 *            nearest true pixels, modified, or null
+	 * @param length
+	 *            number of pixels of a line
+	 * @param count
+	 *            number of lines
+	 * @param stride
+	 *            index offset between two pixels of a line
+	 * @param block
+	 *            number of successive lines starting at successive pixels
+	 * @param spacing
+	 *            spacing of the pixels along the axis
+	 */
+	private static void transform(final double[] dist, final int[] feat,
+		final int length, int count, final int stride, final int block,
+		final double spacing) {
+		Parallel.forItems(count, count * length, new Parallel.Range() {
+			public void run(int from, int to) {
+				double[] f = new double[length];
+				int[] g = feat == null ? null : new int[length];
+				int[] v = new int[length];
+				double[] z = new double[length + 1];
+				double[] values = new double[length];
+				int[] roots = new int[length];
+				for (int line = from; line < to; line++) {
+					// lines are grouped by blocks of consecutive starts
+					int start = line % block + (line / block) * block * length;
+					for (int i = 0, p = start; i < length; i++, p += stride) {
+						f[i] = dist[p];
+						if (g != null)
+							g[i] = feat[p];
+					}
+					envelope(f, g, v, z, values, roots, length, spacing);
+					for (int i = 0, p = start; i < length; i++, p += stride) {
+						dist[p] = f[i];
+						if (g != null)
+							feat[p] = g[i];
+					}
+				}
+			}
+		});
+	}
+
+	/**
+	 * Lower envelope of the parabolas rooted at the finite values of a line,
+	 * in place
+	 *
+	 * @param f
+	 *            squared distances of the line
+	 * @param g
+	 *            nearest true pixels of the line, or null
+	 * @param v
+	 *            work array, roots of the parabolas of the envelope
+	 * @param z
+	 *            work array, bounds of the parabolas of the envelope
+	 * @param values
+	 *            work array, values at the roots
+	 * @param roots
+	 *            work array, nearest true pixels at the roots
+	 */
+	private static void envelope(double[] f, int[] g, int[] v, double[] z,
+		double[] values, int[] roots, int length, double spacing) {
+		double s2 = spacing * spacing;
+		int k = -1;
+		for (int q = 0; q < length; q++) {
+			if (f[q] == Double.POSITIVE_INFINITY)
+				continue;
+			double s = Double.NEGATIVE_INFINITY;
+			while (k >= 0) {
+				int r = v[k];
+				s = ((f[q] + s2 * q * q) - (f[r] + s2 * r * r)) / (2 * s2 * (q - r));
+				if (s > z[k])
+					break;
+				k--;
+			}
+			if (k < 0)
+				s = Double.NEGATIVE_INFINITY;
+			k++;
+			v[k] = q;
+			z[k] = s;
+		}
+		if (k < 0)
+			return;
+		z[k + 1] = Double.POSITIVE_INFINITY;
+		// f is overwritten from left to right, the roots are saved first
+		for (int j = 0; j <= k; j++) {
+			values[j] = f[v[j]];
+			roots[j] = g == null ? 0 : g[v[j]];
+		}
+		int j = 0;
+		for (int i = 0; i < length; i++) {
+			while (z[j + 1] < i)
+				j++;
+			double d = i - v[j];
+			f[i] = s2 * d * d + values[j];
+			if (g != null)
+				g[i] = roots[j];
+		}
+	}
+
+	/**
+	 * Computes the Euclidean distance transform of a binary image
+	 *
+	 * @param input
+	 *            binary image
+	 * @return the distance of each pixel to the nearest true pixel
+	 */
+	public static DoubleImage exec(Image input) {
+		return (DoubleImage) new EuclideanDistanceTransform().process(input);
+	}
+
+	/**
+	 * Computes the Euclidean distance transform of a binary image with the
+	 * given spacing of the pixels
+	 *
+	 * @param input
+	 *            binary image
+	 * @param spacing
+	 *            spacing of the pixels along x, y (and z)
+	 * @return the distance of each pixel to the nearest true pixel
+	 */
+	public static DoubleImage exec(Image input, double[] spacing) {
+		return (DoubleImage) new EuclideanDistanceTransform().process(input,
+			spacing);
+	}
+
+}
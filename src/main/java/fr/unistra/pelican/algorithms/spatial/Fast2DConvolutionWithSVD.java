@@ -3,13 +3,12 @@
  */
 package fr.unistra.pelican.algorithms.spatial;
 
-import Jama.Matrix;
-import Jama.SingularValueDecomposition;
 import fr.unistra.pelican.Algorithm;
 import fr.unistra.pelican.AlgorithmException;
 import fr.unistra.pelican.DoubleImage;
 import fr.unistra.pelican.Image;
 import fr.unistra.pelican.PelicanException;
+import fr.unistra.pelican.util.Convolver;
 import fr.unistra.pelican.util.morphology.GrayStructuringElement;
 
 /**
@@ -32,16 +31,16 @@ import fr.unistra.pelican.util.morphology.GrayStructuringElement;
  * => Fast2DConvolutionWithSVD: r*m*n²
  * 
  * 
- * For the moment this class only support square kernel with odd dimensions. 
+ * The center of the kernel is its middle pixel. Every slice, time and band of the image is convolved.
  * 
  * Border of the image are replicated to allow image dimension conservation.
  * 
  * Because computation of SVD takes time it is done only once when constructing the Fast2DConvolutionWithSVD.
- * Then use method convolve(Image) to convolve an image.
+ * Then use method convolve(Image) to convolve an image. The convolution itself is done by Convolver,
+ * which falls back to a direct or FFT convolution when they are cheaper than the separated kernels.
  * 
- * Because Fast2DConvolutionWithSVD uses multiple buffers, 
- * you should call the method convolve with images of same dimensions, 
- * so Fast2DConvolutionWithSVD does not have to reallocate buffers at each call.
+ * You should call the method convolve with images of same dimensions, 
+ * so Fast2DConvolutionWithSVD does not have to reallocate the result at each call.
  * 
  * @author Benjamin Perret
  *
@@ -65,18 +64,9 @@ public class Fast2DConvolutionWithSVD extends Algorithm {
 	private int rank;
 	
 	/**
-	 * SVD
+	 * Prepared kernel
 	 */
-	private Matrix u,s,v;
-	
-	
-	private int cx;
-	
-	private int cy;
-	
-	private Image tmp[];
-	
-	private Image inputImage;
+	private Convolver convolver;
 	
 	private Image outputImage;
 	
@@ -92,24 +82,14 @@ public class Fast2DConvolutionWithSVD extends Algorithm {
 	 */
 	@Override
 	public void launch() throws AlgorithmException {
-		if (kernel.getXDim() != kernel.getYDim())
-			throw new PelicanException("Fast Concolve with SVD works only with square kernel! ");
-		if (kernel.getXDim()%2 ==0  || kernel.getYDim()%2==0)
-			throw new PelicanException("Please use kernel with odd dimensions! ");
-		
-		cx=kernel.getXDim()/2;
-		cy=kernel.getYDim()/2;
+		if (kernel.getZDim() != 1)
+			throw new PelicanException("Fast Concolve with SVD works only with 2D kernel! ");
 		
-		Matrix m=new Matrix(kernel.getPixels(),kernel.getXDim());
-		SingularValueDecomposition svd = new SingularValueDecomposition(m);
-		rank=svd.rank();
-		s=svd.getS();
-		u=svd.getU();
-		v=svd.getV().transpose();
-		if (rank==kernel.getYDim())
+		convolver=new Convolver(kernel.getPixels(),kernel.getXDim(),kernel.getYDim(),1,kernel.getXDim()/2,kernel.getYDim()/2,0);
+		rank=convolver.getRank();
+		if (rank==Math.min(kernel.getXDim(),kernel.getYDim()) && rank > 1)
 			System.err.println("Warning: using SVDConvolution with a kernel of maximum rank, try another optimisation methode!");
 		//System.out.println("SVD rank :" + rank);
-		tmp=new DoubleImage[rank];
 		me=this;
 	}
 
@@ -122,67 +102,13 @@ public class Fast2DConvolutionWithSVD extends Algorithm {
 	{
 		if (outputImage==null || !Image.haveSameDimensions(outputImage, im))
 		{
-			outputImage= new DoubleImage(im.getXDim(),im.getYDim(),1,1,1);//im.copyImage(false);
-			for(int i=0;i<rank;i++)
-			{
-				tmp[i]=new DoubleImage(im.getXDim(),im.getYDim(),1,1,1);//im.copyImage(false);
-			}
+			outputImage= new DoubleImage(im.getXDim(),im.getYDim(),im.getZDim(),im.getTDim(),im.getBDim());
 		}
-		inputImage=im;
-		calculTmp();
-		calcul2Etape();
-		
+		convolver.convolve(im, outputImage, Convolver.CLAMP);
 		
 		return outputImage;
 	}
 	
-	private void calculTmp()
-	{
-		for(int o=0;o<rank;o++)
-		{
-			for (int j=0;j<outputImage.getYDim();j++)
-				for (int i=0;i<outputImage.getXDim();i++)
-				{
-					double temp=0.0;
-					for (int k=0;k<kernel.getXDim();k++)
-					{
-						int x=i+k-cx;
-						if(x<0)
-							temp+=inputImage.getPixelXYDouble(0, j)*u.get(k,o);
-						else if (x>=inputImage.getXDim())
-							temp+=inputImage.getPixelXYDouble(inputImage.getXDim()-1, j)*u.get(k,o);
-						else
-							temp+=inputImage.getPixelXYDouble(x, j)*u.get(k,o);
-						
-					}
-					tmp[o].setPixelXYDouble(i,j,temp*s.get(o,o));
-				}
-						
-		}
-	}
-	
-	private void calcul2Etape()
-	{
-		for (int j=0;j<outputImage.getYDim();j++)
-			for (int i=0;i<outputImage.getXDim();i++)
-			{
-				double temp=0.0;
-				for(int o=0;o<rank;o++)
-
-					for (int k=0;k<kernel.getXDim();k++)
-					{
-						int y=j+k-cy;
-						if(y<0)
-							temp+=tmp[o].getPixelXYDouble(i, 0)*v.get(o,k);
-						else if(y>=inputImage.getYDim())
-							temp+=tmp[o].getPixelXYDouble(i, inputImage.getYDim()-1)*v.get(o,k);
-						else
-							temp+=tmp[o].getPixelXYDouble(i, y)*v.get(o,k);
-					}
-				outputImage.setPixelXYDouble(i,j,temp);
-			}	
-	}
-	
 	
 	/**
 	 * Get a prepared  Fast2DConvolutionWithSVD with a given kernel.
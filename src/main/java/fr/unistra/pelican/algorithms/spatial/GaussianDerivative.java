@@ -0,0 +1,255 @@
+package fr.unistra.pelican.algorithms.spatial;
+
+import fr.unistra.pelican.Algorithm;
+import fr.unistra.pelican.AlgorithmException;
+import fr.unistra.pelican.DoubleImage;
+import fr.unistra.pelican.Image;
+import fr.unistra.pelican.util.Gaussian1D;
+import fr.unistra.pelican.util.Parallel;
+
+/**
+ * Gaussian filter and gaussian derivatives, computed separately along X, Y and
+ * optionally Z, for every band, frame and slice of the image.
+ * <p>
+ * Small sigmas are processed with sampled 1D kernels. Large sigmas are
+ * processed with the recursive filter of Young and van Vliet, whose cost does
+ * not depend on sigma, the derivatives being then computed with central
+ * differences.
+ * <p>
+ * The smoothed image has the type of the input image, the derivatives are
+ * returned in a DoubleImage.
+ *
+ * @author PELICAN team.
+ */
+public class GaussianDerivative extends Algorithm {
+
+	/**
+	 * Uses the recursive filter for large sigmas, the sampled kernels otherwise.
+	 */
+	public static final int AUTO = 0;
+
+	/**
+	 * Uses sampled kernels.
+	 */
+	public static final int SEPARABLE = 1;
+
+	/**
+	 * Uses the recursive filter.
+	 */
+	public static final int RECURSIVE = 2;
+
+	/**
+	 * Input image
+	 */
+	public Image input;
+
+	/**
+	 * Standard deviation of the gaussian along X and Y
+	 */
+	public double sigma;
+
+	/**
+	 * Order of the derivative along X, from 0 to 2
+	 */
+	public int orderX = 0;
+
+	/**
+	 * Order of the derivative along Y, from 0 to 2
+	 */
+	public int orderY = 0;
+
+	/**
+	 * Standard deviation of the gaussian along Z, 0 to process each slice
+	 * separately
+	 */
+	public double sigmaZ = 0;
+
+	/**
+	 * Order of the derivative along Z, from 0 to 2
+	 */
+	public int orderZ = 0;
+
+	/**
+	 * Method used : AUTO, SEPARABLE or RECURSIVE
+	 */
+	public int method = AUTO;
+
+	/**
+	 * Size of the sampled kernels, 0 to cover 3 sigmas on each side. The
+	 * kernels cover the offsets from -(size-1)/2 to size/2.
+	 */
+	public int size = 0;
+
+	/**
+	 * Output image
+	 */
+	public Image output;
+
+	/**
+	 * Constructor
+	 *
+	 */
+	public GaussianDerivative() {
+		super.inputs = "input,sigma";
+		super.options = "orderX,orderY,sigmaZ,orderZ,method,size";
+		super.outputs = "output";
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see fr.unistra.pelican.Algorithm#launch()
+	 */
+	public void launch() throws AlgorithmException {
+		if (method < AUTO || method > RECURSIVE)
+			throw new AlgorithmException("Unknown method : " + method);
+		if (orderX < 0 || orderX > 2 || orderY < 0 || orderY > 2 || orderZ < 0
+				|| orderZ > 2)
+			throw new AlgorithmException("Derivative orders must be 0, 1 or 2");
+
+		DoubleImage work = new DoubleImage(input);
+		int bdim = work.getBDim();
+		int xdim = work.getXDim();
+		int ydim = work.getYDim();
+		filter(work, bdim, xdim, sigma, orderX);
+		filter(work, bdim * xdim, ydim, sigma, orderY);
+		filter(work, bdim * xdim * ydim, work.getZDim(), sigmaZ, orderZ);
+
+		if (orderX == 0 && orderY == 0 && orderZ == 0) {
+			output = input.copyImage(false);
+			double[] pixels = work.getPixelsUnsafe();
+			for (int p = 0; p < pixels.length; p++)
+				output.setPixelDouble(p, pixels[p]);
+		} else
+			output = work;
+	}
+
+	/**
+	 * Filters every line of an image along one of its dimensions.
+	 *
+	 * @param work
+	 *            image filtered in place
+	 * @param stride
+	 *            distance between two pixels of a line
+	 * @param length
+	 *            number of pixels of a line
+	 * @param sigma
+	 *            standard deviation of the gaussian, 0 for no smoothing
+	 * @param order
+	 *            order of the derivative
+	 */
+	private void filter(DoubleImage work, final int stride, final int length,
+			double sigma, final int order) {
+		if (sigma <= 0 && order == 0)
+			return;
+		final double[] data = work.getPixelsUnsafe();
+
+		boolean recursive = false;
+		if (sigma > 0)
+			switch (method) {
+			case AUTO:
+				recursive = sigma >= Gaussian1D.RECURSIVE_SIGMA
+						&& (size <= 0 || size / 2 >= 3 * sigma);
+				break;
+			case RECURSIVE:
+				recursive = true;
+				break;
+			}
+
+		final Gaussian1D.Recursive filter = recursive ? new Gaussian1D.Recursive(
+				sigma) : null;
+		double[] weights = null;
+		int center = 0;
+		if (sigma > 0 && !recursive) {
+			int first, last;
+			if (size > 0) {
+				first = -((size - 1) / 2);
+				last = size / 2;
+			} else {
+				last = (int) Math.ceil(3 * sigma);
+				first = -last;
+			}
+			weights = Gaussian1D.kernel(sigma, order, first, last);
+			center = -first;
+		}
+		final double[] kernel = weights;
+		final int kernelCenter = center;
+		final int border = order == 0 ? Gaussian1D.NORMALIZE : Gaussian1D.CLAMP;
+
+		// a line starts at every index whose coordinate along the dimension is 0
+		final int lines = data.length / length;
+		Parallel.forColumns(work, lines, new Parallel.Range() {
+			public void run(int from, int to) {
+				double[] buffer = new double[length];
+				for (int line = from; line < to; line++) {
+					int offset = line % stride + (line / stride) * stride
+							* length;
+					if (kernel != null)
+						Gaussian1D.convolve(data, offset, stride, length,
+								kernel, kernelCenter, border, buffer);
+					else {
+						if (filter != null)
+							filter.apply(data, offset, stride, length, buffer);
+						if (order > 0)
+							Gaussian1D.derive(data, offset, stride, length,
+									order, buffer);
+					}
+				}
+			}
+		});
+	}
+
+	/**
+	 * Smoothes an image with a gaussian along X and Y.
+	 *
+	 * @param input
+	 *            Input image
+	 * @param sigma
+	 *            Standard deviation of the gaussian
+	 * @return Output image
+	 */
+	public static <T extends Image> T exec(T input, double sigma) {
+		return (T) new GaussianDerivative().process(input, sigma);
+	}
+
+	/**
+	 * Computes a gaussian derivative of an image along X and Y.
+	 *
+	 * @param input
+	 *            Input image
+	 * @param sigma
+	 *            Standard deviation of the gaussian
+	 * @param orderX
+	 *            Order of the derivative along X
+	 * @param orderY
+	 *            Order of the derivative along Y
+	 * @return Output image
+	 */
+	public static Image exec(Image input, double sigma, int orderX, int orderY) {
+		return (Image) new GaussianDerivative().process(input, sigma, orderX,
+				orderY);
+	}
+
+	/**
+	 * Computes a gaussian derivative of an image along X, Y and Z.
+	 *
+	 * @param input
+	 *            Input image
+	 * @param sigma
+	 *            Standard deviation of the gaussian along X and Y
+	 * @param orderX
+	 *            Order of the derivative along X
+	 * @param orderY
+	 *            Order of the derivative along Y
+	 * @param sigmaZ
+	 *            Standard deviation of the gaussian along Z
+	 * @param orderZ
+	 *            Order of the derivative along Z
+	 * @return Output image
+	 */
+	public static Image exec(Image input, double sigma, int orderX,
+			int orderY, double sigmaZ, int orderZ) {
+		return (Image) new GaussianDerivative().process(input, sigma, orderX,
+				orderY, sigmaZ, orderZ);
+	}
+}
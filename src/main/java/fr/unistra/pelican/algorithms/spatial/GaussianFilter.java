@@ -3,13 +3,11 @@ package fr.unistra.pelican.algorithms.spatial;
 import fr.unistra.pelican.Algorithm;
 import fr.unistra.pelican.AlgorithmException;
 import fr.unistra.pelican.Image;
-import fr.unistra.pelican.util.Tools;
-import fr.unistra.pelican.util.morphology.GrayStructuringElement;
 
 /**
- * Standard gaussian filter..applied with a 2D kernel. Not optimized.
- * 
- * TODO : use two 1D kernels.
+ * Standard gaussian filter, applied along X and Y with two 1D kernels of the
+ * given size. When the kernels cover more than 3 sigmas on each side, large
+ * sigmas are processed with the recursive filter of {@link GaussianDerivative}.
  * 
  * @author Abdullah
  */
@@ -36,11 +34,6 @@ public class GaussianFilter extends Algorithm {
 	 */
 	public int size = 5;
 
-	/**
-	 * Structuring element used for the filter
-	 */
-	public GrayStructuringElement kernel;
-
 	/**
 	 * Constructor
 	 * 
@@ -58,22 +51,12 @@ public class GaussianFilter extends Algorithm {
 	 * @see fr.unistra.pelican.Algorithm#launch()
 	 */
 	public void launch() throws AlgorithmException {
-		kernel = GrayStructuringElement.createSquareFlatStructuringElement(size);
-
-		for (int x = 0; x < kernel.getXDim(); x++) {
-			for (int y = 0; y < kernel.getYDim(); y++) {
-				int _x = x - kernel.getCenter().y;
-				int _y = y - kernel.getCenter().x;
-
-				kernel.setPixelXYDouble(y, x, Tools.Gaussian2D(_x, _y, sigma));
-			}
-		}
-
-		output = (Image) new Convolution().process(input, kernel);
+		output = (Image) new GaussianDerivative().process(input, sigma, 0, 0,
+			0.0, 0, GaussianDerivative.AUTO, size);
 	}
 	
 	/**
-	 * Standard gaussian filter..applied with a 2D kernel.
+	 * Standard gaussian filter, applied with two 1D kernels.
 	 * @param input Input image
 	 * @param sigma Standard deviation of the gaussian
 	 * @return Ouput image
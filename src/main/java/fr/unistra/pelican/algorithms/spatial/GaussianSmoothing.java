@@ -62,60 +62,10 @@ public class GaussianSmoothing extends Algorithm {
 
 		xDim = input.getXDim();
 		yDim = input.getYDim();
-		int tDim = input.getTDim();
-		int bDim = input.getBDim();
-		int zDim = input.getZDim();
-
-		output = input.copyImage(false);
-
-		for (int b = 0; b < bDim; b++)
-			for (int t = 0; t < tDim; t++)
-				for (int z = 0; z < zDim; z++)
-					for (int x = 0/* (size - 1) / 2 */; x < xDim /*- (size-1)/2*/; x++)
-						for (int y = 0/* (size - 1) / 2 */; y < yDim /*-  (size - 1) / 2*/; y++) {
-							double tmp = applyGaussianMask(x, y, z, t, b);
-							output.setPixelDouble(x, y, z, t, b, tmp);
-						}
-	}
-
-	/*
-	 * 
-	 */
-	private double applyGaussianMask(int x, int y, int z, int t, int b) {
-		double res = 0.0;
-
-		if (x >= (size - 1) / 2 && x < xDim - (size - 1) / 2
-				&& y >= (size - 1) / 2 && y < yDim - (size - 1) / 2) { // normal
-			// case
-			for (int i = 0; i < size; i++)
-				for (int j = 0; j < size; j++)
-					res += gaussianMask[i][j]
-							* input.getPixelDouble(x + i - (size - 1) / 2, y
-									+ j - (size - 1) / 2, z, t, b);
-		} else { // the mask overflows the image
-			float real_sum = 0.0f;
-			for (int i = 0; i < size; i++)
-				for (int j = 0; j < size; j++)
-					if (x + i - (size - 1) / 2 >= 0
-							&& x + i - (size - 1) / 2 < xDim
-							&& y + j - (size - 1) / 2 >= 0
-							&& y + j - (size - 1) / 2 < yDim)
-						real_sum += gaussianMask[i][j];
-
-			for (int i = 0; i < size; i++)
-				for (int j = 0; j < size; j++)
-					if (x + i - (size - 1) / 2 >= 0
-							&& x + i - (size - 1) / 2 < xDim
-							&& y + j - (size - 1) / 2 >= 0
-							&& y + j - (size - 1) / 2 < yDim)
-						res += gaussianMask[i][j]
-								* input.getPixelDouble(x + i - (size - 1) / 2,
-										y + j - (size - 1) / 2, z, t, b)
-								/ real_sum;
-
-		}
 
-		return res;
+		// the normalised mask is separable, even where it overflows the image
+		output = (Image) new GaussianDerivative().process(input,
+				(double) sig, 0, 0, 0.0, 0, GaussianDerivative.AUTO, size);
 	}
 
 	/*
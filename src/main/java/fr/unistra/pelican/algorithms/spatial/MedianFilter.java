@@ -8,6 +8,7 @@ import fr.unistra.pelican.AlgorithmException;
 import fr.unistra.pelican.BooleanImage;
 import fr.unistra.pelican.Image;
 import fr.unistra.pelican.util.Point4D;
+import fr.unistra.pelican.util.morphology.HistogramRankFilter;
 
 /**
  * A median filter
@@ -51,6 +52,13 @@ public class MedianFilter extends Algorithm {
 	 * @see fr.unistra.pelican.Algorithm#launch()
 	 */
 	public void launch() throws AlgorithmException {
+		// histogram based engine, only double valued images use the sort below
+		if (HistogramRankFilter.isApplicable(inputImage)) {
+			outputImage = inputImage.copyImage(false);
+			if (new HistogramRankFilter(filter).apply(inputImage, outputImage,
+				HistogramRankFilter.MEDIAN_MEAN, 0, true))
+				return;
+		}
 		Point4D[] filterPoints = filter.foreground();
 		int xDim = inputImage.getXDim();
 		int yDim = inputImage.getYDim();
@@ -1,6 +1,5 @@
 package fr.unistra.pelican.algorithms.spatial;
 
-import java.awt.Point;
 import java.util.LinkedList;
 
 import fr.unistra.pelican.Algorithm;
@@ -11,7 +10,7 @@ import fr.unistra.pelican.IntegerImage;
 import fr.unistra.pelican.algorithms.conversion.GrayToPseudoColors;
 import fr.unistra.pelican.algorithms.io.ImageLoader;
 import fr.unistra.pelican.algorithms.visualisation.Viewer2D;
-import fr.unistra.pelican.util.HierarchicalQueue;
+import fr.unistra.pelican.util.BucketQueue;
 import fr.unistra.pelican.util.Tools;
 
 /**
@@ -41,7 +40,7 @@ public class TopographicTransform extends Algorithm {
 	 */
 	public boolean hue = false;
 	
-	public HierarchicalQueue queue=null;
+	public BucketQueue queue=null;
 
 	/*
 	 * Output Image
@@ -79,8 +78,8 @@ public class TopographicTransform extends Algorithm {
 
 		int scale = Math.max(inputImage.getXDim(), inputImage.getYDim());// 500;
 		if (queue==null)
-			queue = new HierarchicalQueue(scale * scale * 255);
-		else queue.reset();
+			queue = new BucketQueue(scale * scale * 255);
+		else queue.clear();
 			
 		mask2 = mask.copyImage(true);
 		if (border) {
@@ -101,7 +100,7 @@ public class TopographicTransform extends Algorithm {
 					output.setPixelXYBInt(x, y, 0, 0); // label 0 le bord
 					output.setPixelXYBInt(x, y, 1, 0); // distance 0
 					if (bord(x, y))
-						queue.add(new Point(x, y), NULL);
+						queue.add(x + xdim * y, NULL);
 					else
 						output.setPixelXYBInt(x, y, 0, 1); // label 1
 				}
@@ -111,38 +110,42 @@ public class TopographicTransform extends Algorithm {
 		// Perform the flooding
 		int labeled = 0;
 		int current=0;
-		Point p=null;
+		int[] neighbours = new int[8];
 		while (!queue.isEmpty()) {
 			current=queue.getCurrent();
-			p = queue.get();
-			// System.out.println(p.x+" "+p.y);
+			int p = queue.get();
+			int px = p % xdim;
+			int py = p / xdim;
+			// System.out.println(px+" "+py);
 			// Get the label and check if it has not been labeled before
-			if (output.getPixelXYBInt(p.x, p.y, 0) != NULL)
+			if (output.getPixelXYBInt(px, py, 0) != NULL)
 				continue;
 			if (labeled % (inputImage.size() / inputImage.getBDim() / 10) == 0)
 				System.out.print('.');
 			// Definitely set the label from the candidate
-			//int label = output.getPixelXYBInt(p.x, p.y, 2);
+			//int label = output.getPixelXYBInt(px, py, 2);
 			int label=1;
-			output.setPixelXYBInt(p.x, p.y, 0, label);
+			output.setPixelXYBInt(px, py, 0, label);
 			labeled++;
 			// get the non labelled 8-neighbours of (x,y)
-			Point[] neighbours = getNonLabelledNeighbours(output, p.x, p.y);
-			for (int i = 0; i < neighbours.length; i++) {
+			int count = getNonLabelledNeighbours(output, px, py, neighbours);
+			for (int i = 0; i < count; i++) {
+				int nx = neighbours[i] % xdim;
+				int ny = neighbours[i] / xdim;
 				// get the current distance for this neighbour
-				int ndist = output.getPixelXYBInt(neighbours[i].x, neighbours[i].y, 1);
+				int ndist = output.getPixelXYBInt(nx, ny, 1);
 				// compute the geodesic distance between p and its
 				// neighbor IN THE APPROPRIATE BAND
 				double val = 0;
 				if (!hue) {
 					for (int b = 0; b < inputImage.getBDim(); b++) {
-						double val1 = inputImage.getPixelXYBDouble(neighbours[i].x,
-							neighbours[i].y, b);
-						double val2 = inputImage.getPixelXYBDouble(p.x, p.y, b);
+						double val1 = inputImage.getPixelXYBDouble(nx,
+							ny, b);
+						double val2 = inputImage.getPixelXYBDouble(px, py, b);
 						val += (val1 - val2)*(val1-val2);
-//					int val1 = inputImage.getPixelXYBByte(neighbours[i].x,
-//						neighbours[i].y, b);
-//					int val2 = inputImage.getPixelXYBByte(p.x, p.y, b);
+//					int val1 = inputImage.getPixelXYBByte(nx,
+//						ny, b);
+//					int val2 = inputImage.getPixelXYBByte(px, py, b);
 //					val += Math.abs(val1 - val2);
 				}
 					val/=inputImage.getBDim();
@@ -152,26 +155,26 @@ public class TopographicTransform extends Algorithm {
 					} else {
 					// compute hue-base distance
 					val = Tools.HSLDistance(inputImage.getVectorPixelXYZDouble(
-						neighbours[i].x, neighbours[i].y,0), inputImage
-						.getVectorPixelXYZDouble(p.x, p.y, 0));
+						nx, ny,0), inputImage
+						.getVectorPixelXYZDouble(px, py, 0));
 					val=Math.ceil(255*val);
 					if (val == 0
 						&& Tools.HSLDistance(inputImage.getVectorPixelXYZDouble(
-							neighbours[i].x, neighbours[i].y, 0), inputImage
-							.getVectorPixelXYZDouble(p.x, p.y, 0)) != 0)
+							nx, ny, 0), inputImage
+							.getVectorPixelXYZDouble(px, py, 0)) != 0)
 						System.out.println(val);
 				}
 				if (trueDistance)
 					val = scale * val + 1;// val += 1; // pour la distance
 																// topographique de Philipp
-				if(mask2.getPixelXYBoolean(p.x,p.y))
+				if(mask2.getPixelXYBoolean(px,py))
 					val=0;
 				
 				int pdist = (int)val + current;//queue.getCurrent();
 				// update distance and candidate if necessary
 				if (ndist == 0 || pdist < ndist) {
-					output.setPixelXYBInt(neighbours[i].x, neighbours[i].y, 1, pdist);
-					//output.setPixelXYBInt(neighbours[i].x, neighbours[i].y, 2, label);
+					output.setPixelXYBInt(nx, ny, 1, pdist);
+					//output.setPixelXYBInt(nx, ny, 2, label);
 					// add him to the appropriate queue
 					queue.add(neighbours[i], pdist);
 				}
@@ -205,9 +208,8 @@ public class TopographicTransform extends Algorithm {
 		return bord;
 	}
 
-	private Point[] getNonLabelledNeighbours(IntegerImage output, int x, int y) {
-		Point[] neighbours = new Point[8];
-
+	private int getNonLabelledNeighbours(IntegerImage output, int x, int y,
+		int[] neighbours) {
 		int cnt = 0;
 
 		for (int j = y - 1; j <= y + 1; j++) {
@@ -217,21 +219,12 @@ public class TopographicTransform extends Algorithm {
 				int z = output.getPixelXYBInt(i, j, 0);
 
 				if (!(i == x && j == y) && z == NULL)
-					neighbours[cnt++] = new Point(i, j);
+					neighbours[cnt++] = i + output.getXDim() * j;
 
 			}
 		}
 
-		if (cnt < 8) {
-			Point[] tmp = new Point[cnt];
-
-			for (int i = 0; i < cnt; i++)
-				tmp[i] = neighbours[i];
-
-			neighbours = tmp;
-		}
-
-		return neighbours;
+		return cnt;
 	}
 
 	
@@ -277,7 +270,7 @@ public class TopographicTransform extends Algorithm {
 	}
 
 	public static IntegerImage exec(Image input, BooleanImage mask,
-		boolean trueDistance, boolean border,HierarchicalQueue queue) {
+		boolean trueDistance, boolean border,BucketQueue queue) {
 		return (IntegerImage) new TopographicTransform().process(input, mask,
 			trueDistance, border,queue);
 	}
@@ -289,7 +282,7 @@ public class TopographicTransform extends Algorithm {
 	}
 
 	public static IntegerImage exec(Image input, BooleanImage mask,
-		boolean trueDistance, boolean border,boolean hue,HierarchicalQueue queue) {
+		boolean trueDistance, boolean border,boolean hue,BucketQueue queue) {
 		return (IntegerImage) new TopographicTransform().process(input, mask,
 			trueDistance, border,hue,queue);
 	}
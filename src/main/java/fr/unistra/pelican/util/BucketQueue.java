@@ -0,0 +1,258 @@
+package fr.unistra.pelican.util;
+
+import fr.unistra.pelican.PelicanException;
+
+/**
+ * Hierarchical queue of pixel offsets, as used by flooding algorithms
+ * (watersheds, region growing, geodesic distances).
+ * <p>
+ * Every priority level is a FIFO stored as a growable ring of <tt>int</tt>, so
+ * a flooding allocates nothing once the rings have grown to their working
+ * size, and the same queue can be {@link #clear() cleared} and reused. The
+ * element with the lowest priority is served first, and among equal
+ * priorities the first added.
+ * <p>
+ * Priorities can be any integer range : 256 levels for bytes, 65536 for
+ * 16-bit values, or any [min,max] interval. The rings are only allocated for
+ * the levels which are used. As in the usual watershed queue, an element
+ * added with a priority lower than the current one is added to the current
+ * level, the current level being the lowest non empty one once an element
+ * has been removed. A queue which is not monotone goes back to the lower
+ * level instead, as needed when the priorities are not increasing, as in
+ * seeded region growing.
+ *
+ * @author PELICAN team
+ */
+public class BucketQueue {
+
+	/**
+	 * Initial capacity of a level
+	 */
+	private static final int INITIAL_CAPACITY = 16;
+
+	/**
+	 * Index of the first element in a ring
+	 */
+	private static final int HEAD = 0;
+
+	/**
+	 * Number of elements in a ring
+	 */
+	private static final int COUNT = 1;
+
+	/**
+	 * Index of the first slot of a ring, after its head and count
+	 */
+	private static final int SLOTS = 2;
+
+	/**
+	 * Ring of each level, null until used. The head and number of elements
+	 * are stored in the ring itself, so an unused level costs one reference.
+	 */
+	private int[][] rings;
+
+	/**
+	 * Lowest priority
+	 */
+	private final int min;
+
+	/**
+	 * Whether the priorities lower than the current one are raised to it
+	 */
+	private final boolean monotone;
+
+	/**
+	 * Current level, from 0
+	 */
+	private int current;
+
+	/**
+	 * Number of elements
+	 */
+	private int number;
+
+	/**
+	 * Creates a queue for the priorities from 0 to <tt>levels-1</tt>, such
+	 * as 256 for byte values or 65536 for 16-bit ones.
+	 *
+	 * @param levels
+	 *            number of priority levels
+	 */
+	public BucketQueue(int levels) {
+		this(0, levels - 1);
+	}
+
+	/**
+	 * Creates a queue for the priorities from <tt>min</tt> to <tt>max</tt>.
+	 *
+	 * @param min
+	 *            lowest priority
+	 * @param max
+	 *            highest priority
+	 */
+	public BucketQueue(int min, int max) {
+		this(min, max, true);
+	}
+
+	/**
+	 * Creates a queue for the priorities from <tt>min</tt> to <tt>max</tt>.
+	 *
+	 * @param min
+	 *            lowest priority
+	 * @param max
+	 *            highest priority
+	 * @param monotone
+	 *            if true, an element added with a priority lower than the
+	 *            current one is added to the current level, otherwise the
+	 *            current level goes back to its priority
+	 */
+	public BucketQueue(int min, int max, boolean monotone) {
+		long levels = (long) max - min + 1;
+		if (levels <= 0 || levels > Integer.MAX_VALUE)
+			throw new PelicanException("Invalid priority range : [" + min
+					+ "," + max + "]");
+		this.min = min;
+		this.monotone = monotone;
+		rings = new int[(int) levels][];
+	}
+
+	/**
+	 * Gives the lowest priority.
+	 *
+	 * @return the lowest priority
+	 */
+	public int getMinPriority() {
+		return min;
+	}
+
+	/**
+	 * Gives the highest priority.
+	 *
+	 * @return the highest priority
+	 */
+	public int getMaxPriority() {
+		return min + rings.length - 1;
+	}
+
+	/**
+	 * Gives the priority of the level being served, which is also the lowest
+	 * priority of the elements in the queue.
+	 *
+	 * @return the current priority
+	 */
+	public int getCurrent() {
+		seek();
+		return min + current;
+	}
+
+	/**
+	 * Moves the current level to the first non empty one, if any.
+	 */
+	private void seek() {
+		while (number > 0
+				&& (rings[current] == null || rings[current][COUNT] == 0))
+			current++;
+	}
+
+	/**
+	 * Gives the number of elements in the queue.
+	 *
+	 * @return the number of elements
+	 */
+	public int size() {
+		return number;
+	}
+
+	/**
+	 * Tells whether the queue is empty.
+	 *
+	 * @return true if there is no element in the queue
+	 */
+	public boolean isEmpty() {
+		return number == 0;
+	}
+
+	/**
+	 * Adds an element at the end of a level. If the priority is lower than the
+	 * current one, the element is added to the current level when the queue is
+	 * monotone, and served next otherwise.
+	 *
+	 * @param element
+	 *            element, usually a pixel offset
+	 * @param priority
+	 *            priority, between the lowest and highest ones
+	 */
+	public void add(int element, int priority) {
+		int level = priority - min;
+		if (level >= rings.length || level < 0 && !monotone)
+			throw new PelicanException("Priority " + priority
+					+ " out of range [" + min + "," + getMaxPriority() + "]");
+		if (level < current) {
+			if (monotone)
+				level = current;
+			else
+				current = level;
+		}
+		int[] ring = rings[level];
+		if (ring == null)
+			ring = rings[level] = new int[SLOTS + INITIAL_CAPACITY];
+		else if (ring[COUNT] == ring.length - SLOTS)
+			ring = grow(level);
+		int index = ring[HEAD] + ring[COUNT]++;
+		if (index >= ring.length - SLOTS)
+			index -= ring.length - SLOTS;
+		ring[SLOTS + index] = element;
+		number++;
+	}
+
+	/**
+	 * Doubles the capacity of a full level, its elements starting at the
+	 * first slot afterwards.
+	 */
+	private int[] grow(int level) {
+		int[] ring = rings[level];
+		int capacity = ring.length - SLOTS;
+		int head = ring[HEAD];
+		int[] larger = new int[SLOTS + 2 * capacity];
+		System.arraycopy(ring, SLOTS + head, larger, SLOTS, capacity - head);
+		System.arraycopy(ring, SLOTS, larger, SLOTS + capacity - head, head);
+		larger[COUNT] = ring[COUNT];
+		return rings[level] = larger;
+	}
+
+	/**
+	 * Removes the first element of the lowest priority level.
+	 *
+	 * @return the element
+	 */
+	public int get() {
+		if (number == 0)
+			throw new PelicanException("The queue is empty");
+		seek();
+		int[] ring = rings[current];
+		int head = ring[HEAD];
+		int element = ring[SLOTS + head];
+		ring[HEAD] = head + 1 == ring.length - SLOTS ? 0 : head + 1;
+		number--;
+		if (--ring[COUNT] == 0) {
+			ring[HEAD] = 0;
+			// moves to the next level at once, so that the elements added
+			// below it from now on are served after the ones already there
+			seek();
+		}
+		return element;
+	}
+
+	/**
+	 * Empties the queue and sets the current priority back to the lowest one.
+	 * The memory of the levels is kept for the next use.
+	 */
+	public void clear() {
+		for (int level = 0; level < rings.length; level++)
+			if (rings[level] != null)
+				rings[level][HEAD] = rings[level][COUNT] = 0;
+		current = 0;
+		number = 0;
+	}
+
+}
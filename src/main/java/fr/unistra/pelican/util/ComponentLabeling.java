@@ -0,0 +1,524 @@
+package fr.unistra.pelican.util;
+
+import java.util.Arrays;
+
+import fr.unistra.pelican.PelicanException;
+
+/**
+ * Connected component labelling of a volume of integer values, shared by the
+ * flat zone labelling algorithms.
+ * <p>
+ * The labelling is done in a single scan with a union-find on an
+ * <tt>int</tt> array (K. Wu, E. Otoo, K. Suzuki, <i>Optimizing two-pass
+ * connected-component labeling algorithms</i>, 2009) : the provisional label
+ * of a pixel is the index of the pixel which created it, and two sets are
+ * always merged under the lowest label, so that the root of a component is
+ * its first pixel in raster order. In 2-D the neighbours are visited with the
+ * decision tree of Wu et al., which merges two labels only when needed. The
+ * final labels are numbered from 1 in the order of appearance of the
+ * components in the volume, as the former two-pass algorithms did.
+ * <p>
+ * The volume is cut in strips of lines labelled on separate threads, the
+ * strips being merged along their first lines afterwards. The area, bounding
+ * box and centroid of the components can be computed while the final labels
+ * are written.
+ * <p>
+ * Two pixels are connected if they have the same value and if the offset
+ * between them is one of the given backward offsets or their opposites. The
+ * volume is made of <tt>depth</tt> planes of <tt>xdim*ydim</tt> pixels,
+ * pixel index being x+xdim*(y+ydim*d), and an offset is {dx,dy,dd} : planes
+ * are independent with a 2-D connexity, an offset {0,0,-zdim} connects the
+ * same pixel in two successive frames of a (z,t) volume.
+ *
+ * @author PELICAN team
+ */
+public class ComponentLabeling {
+
+	/**
+	 * Area, bounding box and centroid of the components, indexed by label,
+	 * the background being label 0
+	 */
+	public static class Statistics {
+
+		/**
+		 * Number of pixels of the components
+		 */
+		public int[] area;
+
+		/**
+		 * Bounding boxes of the components
+		 */
+		public int[] xmin, ymin, zmin, xmax, ymax, zmax;
+
+		/**
+		 * Centroids of the components
+		 */
+		public double[] xc, yc, zc;
+
+		private Statistics(int count) {
+			area = new int[count];
+			xmin = new int[count];
+			ymin = new int[count];
+			zmin = new int[count];
+			xmax = new int[count];
+			ymax = new int[count];
+			zmax = new int[count];
+			xc = new double[count];
+			yc = new double[count];
+			zc = new double[count];
+			Arrays.fill(xmin, Integer.MAX_VALUE);
+			Arrays.fill(ymin, Integer.MAX_VALUE);
+			Arrays.fill(zmin, Integer.MAX_VALUE);
+			Arrays.fill(xmax, -1);
+			Arrays.fill(ymax, -1);
+			Arrays.fill(zmax, -1);
+		}
+
+		/**
+		 * Number of labels, background included
+		 *
+		 * @return
+		 */
+		public int size() {
+			return area.length;
+		}
+	}
+
+	/**
+	 * Dimensions of the volume
+	 */
+	private final int xdim, ydim, depth;
+
+	/**
+	 * Backward offsets {dx,dy,dd}
+	 */
+	private final int[][] offsets;
+
+	/**
+	 * Index offset of each backward offset
+	 */
+	private final int[] delta;
+
+	/**
+	 * 1 for the decision tree of the 4-connexity, 2 for the 8-connexity, 0 for
+	 * any other connexity
+	 */
+	private final int tree;
+
+	/**
+	 * Number of lines between a pixel and its farthest backward neighbour
+	 */
+	private final int reach;
+
+	/**
+	 * Whether the statistics are computed
+	 */
+	private boolean statistics = false;
+
+	/**
+	 * Statistics of the last labelling
+	 */
+	private Statistics stats;
+
+	/**
+	 * Union-find of the provisional labels, the parent of a label is never
+	 * greater than the label
+	 */
+	private int[] parent;
+
+	/**
+	 * Work data of the current labelling
+	 */
+	private int[] values, labels;
+
+	private boolean hasBackground;
+
+	private int background;
+
+	/**
+	 * First line of each strip, and number of lines at the end
+	 */
+	private int[] bounds;
+
+	/**
+	 * Create a labelling of volumes of the given size
+	 *
+	 * @param xdim
+	 * @param ydim
+	 * @param depth
+	 *            number of planes
+	 * @param offsets
+	 *            backward offsets {dx,dy,dd} of the connexity, i.e. with dd<0,
+	 *            or dd=0 and dy<0, or dd=dy=0 and dx<0
+	 */
+	public ComponentLabeling(int xdim, int ydim, int depth, int[][] offsets) {
+		this.xdim = xdim;
+		this.ydim = ydim;
+		this.depth = depth;
+		this.offsets = offsets;
+		delta = new int[offsets.length];
+		int r = 1;
+		for (int k = 0; k < offsets.length; k++) {
+			int[] o = offsets[k];
+			int lines = o[1] + ydim * o[2];
+			if (o[2] > 0 || o[2] == 0 && (o[1] > 0 || o[1] == 0 && o[0] >= 0))
+				throw new PelicanException("Offset " + o[0] + "," + o[1] + ","
+					+ o[2] + " is not a backward offset");
+			delta[k] = o[0] + xdim * lines;
+			r = Math.max(r, -lines);
+		}
+		reach = r;
+		if (same(offsets, backwardOffsets(4)))
+			tree = 1;
+		else if (same(offsets, backwardOffsets(8)))
+			tree = 2;
+		else
+			tree = 0;
+	}
+
+	/**
+	 * Backward offsets of the usual connexities, in the order of the decision
+	 * trees
+	 *
+	 * @param connexity
+	 *            4 or 8 in a plane, 6 or 26 in a volume
+	 * @return
+	 */
+	public static int[][] backwardOffsets(int connexity) {
+		switch (connexity) {
+		case 4:
+			return new int[][] { { 0, -1, 0 }, { -1, 0, 0 } };
+		case 8:
+			return new int[][] { { -1, -1, 0 }, { 0, -1, 0 }, { 1, -1, 0 },
+				{ -1, 0, 0 } };
+		case 6:
+			return new int[][] { { 0, 0, -1 }, { 0, -1, 0 }, { -1, 0, 0 } };
+		case 26:
+			int[][] res = new int[13][];
+			int k = 0;
+			for (int dz = -1; dz <= 0; dz++)
+				for (int dy = -1; dy <= 1; dy++)
+					for (int dx = -1; dx <= 1; dx++)
+						if (dz < 0 || dy < 0 || dy == 0 && dx < 0)
+							res[k++] = new int[] { dx, dy, dz };
+			return res;
+		default:
+			throw new PelicanException("Unknown connexity " + connexity);
+		}
+	}
+
+	/**
+	 * Backward offsets of a connexity plus the given offset
+	 *
+	 * @param offsets
+	 * @param offset
+	 * @return
+	 */
+	public static int[][] append(int[][] offsets, int[] offset) {
+		int[][] res = new int[offsets.length + 1][];
+		System.arraycopy(offsets, 0, res, 0, offsets.length);
+		res[offsets.length] = offset;
+		return res;
+	}
+
+	private static boolean same(int[][] a, int[][] b) {
+		if (a.length != b.length)
+			return false;
+		for (int k = 0; k < a.length; k++)
+			if (a[k][0] != b[k][0] || a[k][1] != b[k][1] || a[k][2] != b[k][2])
+				return false;
+		return true;
+	}
+
+	/**
+	 * Enable the computation of the statistics of the components
+	 *
+	 * @param statistics
+	 */
+	public void setStatistics(boolean statistics) {
+		this.statistics = statistics;
+	}
+
+	/**
+	 * Statistics of the last labelling, null if they were not computed
+	 *
+	 * @return
+	 */
+	public Statistics getStatistics() {
+		return stats;
+	}
+
+	/**
+	 * Label the connected components of a volume
+	 *
+	 * @param values
+	 *            values of the pixels, pixels of same value being connected
+	 * @param labels
+	 *            result, label of each pixel
+	 * @param hasBackground
+	 *            if true the pixels of value background are not labelled
+	 * @param background
+	 *            value of the background
+	 * @return number of components, background excluded
+	 */
+	public int label(int[] values, int[] labels, boolean hasBackground,
+		int background) {
+		int size = xdim * ydim * depth;
+		if (values.length < size || labels.length < size)
+			throw new PelicanException("Arrays are smaller than the volume");
+		this.values = values;
+		this.labels = labels;
+		this.hasBackground = hasBackground;
+		this.background = background;
+		parent = new int[size];
+		strips();
+		final int nbStrips = bounds.length - 1;
+
+		Parallel.forItems(nbStrips, size, new Parallel.Range() {
+			public void run(int from, int to) {
+				for (int s = from; s < to; s++)
+					if (tree == 2)
+						scan8(bounds[s], bounds[s + 1]);
+					else if (tree == 1)
+						scan4(bounds[s], bounds[s + 1]);
+					else
+						scan(bounds[s], bounds[s + 1]);
+			}
+		});
+		for (int s = 1; s < nbStrips; s++)
+			merge(bounds[s], Math.min(bounds[s] + reach, bounds[s + 1]));
+
+		// numbering of the roots, the roots being met in raster order
+		int count = 0;
+		for (int i = 0; i < size; i++)
+			if (labels[i] == i)
+				parent[i] = parent[i] == i ? -(++count) : parent[parent[i]];
+
+		if (statistics) {
+			stats = new Statistics(count + 1);
+			relabel(0, bounds[nbStrips]);
+		} else {
+			stats = null;
+			Parallel.forItems(nbStrips, size, new Parallel.Range() {
+				public void run(int from, int to) {
+					relabel(bounds[from], bounds[to]);
+				}
+			});
+		}
+		parent = null;
+		this.values = null;
+		this.labels = null;
+		return count;
+	}
+
+	/**
+	 * Cut the volume in strips of lines, each strip being at least as thick as
+	 * the reach of the connexity
+	 */
+	private void strips() {
+		int lines = ydim * depth;
+		int nbStrips = Math.max(1, Math.min(Parallel.getThreadCount(), lines
+			/ reach));
+		if (lines * xdim < 2 * Parallel.MIN_PIXELS_PER_TASK)
+			nbStrips = 1;
+		bounds = new int[nbStrips + 1];
+		for (int s = 0; s <= nbStrips; s++)
+			bounds[s] = (int) ((long) lines * s / nbStrips);
+	}
+
+	/**
+	 * Root of a label, with path halving
+	 */
+	private int find(int l) {
+		while (parent[l] != l) {
+			parent[l] = parent[parent[l]];
+			l = parent[l];
+		}
+		return l;
+	}
+
+	/**
+	 * Merge the sets of two labels under the lowest root
+	 *
+	 * @return the root of the union
+	 */
+	private int union(int a, int b) {
+		a = find(a);
+		b = find(b);
+		if (a < b) {
+			parent[b] = a;
+			return a;
+		}
+		parent[a] = b;
+		return b;
+	}
+
+	/**
+	 * New label created by pixel p
+	 */
+	private int newLabel(int p) {
+		parent[p] = p;
+		return p;
+	}
+
+	/**
+	 * Decision tree of the 8-connexity on the lines [first,last[, the lines
+	 * before first being ignored. Neighbours a,b,c are above the pixel, d is
+	 * on its left : when b is connected it is connected to a,c and d.
+	 */
+	private void scan8(int first, int last) {
+		for (int line = first; line < last; line++) {
+			boolean up = line > first && line % ydim != 0;
+			int p = line * xdim;
+			for (int x = 0; x < xdim; x++, p++) {
+				int v = values[p];
+				if (hasBackground && v == background) {
+					labels[p] = -1;
+					continue;
+				}
+				int q = p - xdim;
+				boolean left = x > 0;
+				boolean right = x < xdim - 1;
+				int l;
+				if (up && values[q] == v)
+					l = labels[q];
+				else if (up && right && values[q + 1] == v) {
+					if (left && values[q - 1] == v)
+						l = union(labels[q + 1], labels[q - 1]);
+					else if (left && values[p - 1] == v)
+						l = union(labels[q + 1], labels[p - 1]);
+					else
+						l = labels[q + 1];
+				} else if (up && left && values[q - 1] == v)
+					l = labels[q - 1];
+				else if (left && values[p - 1] == v)
+					l = labels[p - 1];
+				else
+					l = newLabel(p);
+				labels[p] = l;
+			}
+		}
+	}
+
+	/**
+	 * Decision tree of the 4-connexity on the lines [first,last[
+	 */
+	private void scan4(int first, int last) {
+		for (int line = first; line < last; line++) {
+			boolean up = line > first && line % ydim != 0;
+			int p = line * xdim;
+			for (int x = 0; x < xdim; x++, p++) {
+				int v = values[p];
+				if (hasBackground && v == background) {
+					labels[p] = -1;
+					continue;
+				}
+				boolean left = x > 0 && values[p - 1] == v;
+				int l;
+				if (up && values[p - xdim] == v)
+					l = left ? union(labels[p - xdim], labels[p - 1])
+						: labels[p - xdim];
+				else if (left)
+					l = labels[p - 1];
+				else
+					l = newLabel(p);
+				labels[p] = l;
+			}
+		}
+	}
+
+	/**
+	 * Scan of any connexity on the lines [first,last[
+	 */
+	private void scan(int first, int last) {
+		int begin = first * xdim;
+		for (int line = first; line < last; line++) {
+			int y = line % ydim;
+			int d = line / ydim;
+			int p = line * xdim;
+			for (int x = 0; x < xdim; x++, p++) {
+				int v = values[p];
+				if (hasBackground && v == background) {
+					labels[p] = -1;
+					continue;
+				}
+				int l = -1;
+				for (int k = 0; k < offsets.length; k++) {
+					int q = p + delta[k];
+					if (q < begin || !inside(x, y, d, offsets[k])
+						|| values[q] != v)
+						continue;
+					l = l == -1 ? labels[q] : union(l, labels[q]);
+				}
+				labels[p] = l == -1 ? newLabel(p) : l;
+			}
+		}
+	}
+
+	private boolean inside(int x, int y, int d, int[] o) {
+		x += o[0];
+		y += o[1];
+		d += o[2];
+		return x >= 0 && x < xdim && y >= 0 && y < ydim && d >= 0;
+	}
+
+	/**
+	 * Merge the components of the lines [first,last[ with the ones of the
+	 * previous strips
+	 */
+	private void merge(int first, int last) {
+		int begin = first * xdim;
+		for (int line = first; line < last; line++) {
+			int y = line % ydim;
+			int d = line / ydim;
+			int p = line * xdim;
+			for (int x = 0; x < xdim; x++, p++) {
+				int v = values[p];
+				if (hasBackground && v == background)
+					continue;
+				for (int k = 0; k < offsets.length; k++) {
+					int q = p + delta[k];
+					if (q < begin && inside(x, y, d, offsets[k])
+						&& values[q] == v)
+						union(labels[p], labels[q]);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Final labels of the lines [first,last[, the parent of every provisional
+	 * label being the opposite of its final label
+	 */
+	private void relabel(int first, int last) {
+		int p = first * xdim;
+		for (int line = first; line < last; line++) {
+			int y = line % ydim;
+			int d = line / ydim;
+			for (int x = 0; x < xdim; x++, p++) {
+				int l = labels[p] == -1 ? 0 : -parent[labels[p]];
+				labels[p] = l;
+				if (stats != null) {
+					stats.area[l]++;
+					stats.xmin[l] = Math.min(stats.xmin[l], x);
+					stats.ymin[l] = Math.min(stats.ymin[l], y);
+					stats.zmin[l] = Math.min(stats.zmin[l], d);
+					stats.xmax[l] = Math.max(stats.xmax[l], x);
+					stats.ymax[l] = Math.max(stats.ymax[l], y);
+					stats.zmax[l] = Math.max(stats.zmax[l], d);
+					stats.xc[l] += x;
+					stats.yc[l] += y;
+					stats.zc[l] += d;
+				}
+			}
+		}
+		if (stats != null)
+			for (int l = 0; l < stats.size(); l++)
+				if (stats.area[l] > 0) {
+					stats.xc[l] /= stats.area[l];
+					stats.yc[l] /= stats.area[l];
+					stats.zc[l] /= stats.area[l];
+				}
+	}
+
+}
@@ -0,0 +1,669 @@
+package fr.unistra.pelican.util;
+
+import java.util.Arrays;
+
+import Jama.Matrix;
+import Jama.SingularValueDecomposition;
+import fr.unistra.pelican.DoubleImage;
+import fr.unistra.pelican.Image;
+import fr.unistra.pelican.PelicanException;
+import fr.unistra.pelican.algorithms.frequential.FFTPlan;
+import fr.unistra.pelican.util.largeImages.LargeImageInterface;
+
+/**
+ * Linear filtering of images by a 2D or 3D kernel. The value of a pixel p of
+ * the result is the sum of kernel(i,j,k)*input(p-center+(i,j,k)), computed
+ * in every z, t and band of the image : the kernel is applied as it is, it
+ * has to be reflected by the caller to get a true convolution.
+ * <p>
+ * The bands of the input are first copied in row order into an array of
+ * doubles, each row being padded on both sides according to the border
+ * mode, so the kernel is applied by adding weighted rows without any bound
+ * checks. Three methods are available :
+ * <ul>
+ * <li>{@link #DIRECT} adds one row per non zero weight of the kernel.</li>
+ * <li>{@link #SEPARABLE} splits a 2D kernel of rank r, given by its singular
+ * value decomposition, into r pairs of 1D kernels applied along X then Y.</li>
+ * <li>{@link #FFT} multiplies the transforms of each plane and of a 2D
+ * kernel.</li>
+ * </ul>
+ * {@link #AUTO} picks the one with the lowest estimated cost. The rows are
+ * shared between threads across the bands, times and slices.
+ * <p>
+ * The kernel is prepared once, so a Convolver can be kept to filter several
+ * images and shared by threads.
+ *
+ * @author PELICAN team.
+ */
+public class Convolver {
+
+	/**
+	 * The pixels outside the image are 0.
+	 */
+	public static final int ZERO = Gaussian1D.ZERO;
+
+	/**
+	 * The pixels outside the image are copies of the nearest pixel of the
+	 * image.
+	 */
+	public static final int CLAMP = Gaussian1D.CLAMP;
+
+	/**
+	 * The pixels outside the image are ignored and the result is divided by
+	 * the sum of the weights of the pixels used.
+	 */
+	public static final int NORMALIZE = Gaussian1D.NORMALIZE;
+
+	/**
+	 * Method with the lowest estimated cost.
+	 */
+	public static final int AUTO = 0;
+
+	/**
+	 * Sum of the rows weighted by each non zero value of the kernel.
+	 */
+	public static final int DIRECT = 1;
+
+	/**
+	 * Sum of 1D filterings along X then Y, for 2D kernels.
+	 */
+	public static final int SEPARABLE = 2;
+
+	/**
+	 * Product of the transforms, for 2D kernels.
+	 */
+	public static final int FFT = 3;
+
+	/**
+	 * Estimated cost of the transforms, per pixel of the padded plane and per
+	 * level of the FFT, relative to the cost of one weight of the kernel.
+	 */
+	private static final double FFT_COST = 5;
+
+	/**
+	 * Dimensions of the kernel.
+	 */
+	private final int kx, ky, kz;
+
+	/**
+	 * Center of the kernel.
+	 */
+	private final int cx, cy, cz;
+
+	/**
+	 * Values of the kernel, indexed by i+kx*(j+ky*k).
+	 */
+	private final double[] values;
+
+	/**
+	 * Non zero weights of each row j+ky*k of the kernel, and their offsets
+	 * along X.
+	 */
+	private final double[][] rowWeights;
+
+	private final int[][] rowOffsets;
+
+	/**
+	 * Number of non zero weights.
+	 */
+	private int weights;
+
+	/**
+	 * Sums of the values of the kernel before (i,j,k), indexed by
+	 * i+(kx+1)*(j+(ky+1)*k).
+	 */
+	private final double[] sums;
+
+	/**
+	 * Rank of a finite 2D kernel, 0 otherwise.
+	 */
+	private int rank;
+
+	/**
+	 * 1D kernels along X, scaled by the singular values, and along Y.
+	 */
+	private double[][] xKernels, yKernels;
+
+	/**
+	 * Tells whether the kernel is 2D and finite, so that the separable and FFT
+	 * methods can be used.
+	 */
+	private final boolean decomposable;
+
+	/**
+	 * Transform of the kernel for the last plane size used.
+	 */
+	private double[][] kernelFFT;
+
+	private int fftWidth, fftHeight;
+
+	/**
+	 * Prepares a kernel.
+	 *
+	 * @param values
+	 *            values of the kernel, indexed by i+xdim*(j+ydim*k)
+	 * @param xdim
+	 *            width of the kernel
+	 * @param ydim
+	 *            height of the kernel
+	 * @param zdim
+	 *            depth of the kernel
+	 * @param cx
+	 *            x coordinate of the center
+	 * @param cy
+	 *            y coordinate of the center
+	 * @param cz
+	 *            z coordinate of the center
+	 */
+	public Convolver(double[] values, int xdim, int ydim, int zdim, int cx,
+			int cy, int cz) {
+		if (xdim <= 0 || ydim <= 0 || zdim <= 0
+				|| values.length != xdim * ydim * zdim)
+			throw new PelicanException("Invalid kernel dimensions");
+		if (cx < 0 || cx >= xdim || cy < 0 || cy >= ydim || cz < 0
+				|| cz >= zdim)
+			throw new PelicanException("The center must lie in the kernel");
+		this.kx = xdim;
+		this.ky = ydim;
+		this.kz = zdim;
+		this.cx = cx;
+		this.cy = cy;
+		this.cz = cz;
+		this.values = values.clone();
+
+		rowWeights = new double[ky * kz][];
+		rowOffsets = new int[ky * kz][];
+		for (int r = 0; r < rowWeights.length; r++) {
+			int count = 0;
+			for (int i = 0; i < kx; i++)
+				if (values[r * kx + i] != 0)
+					count++;
+			rowWeights[r] = new double[count];
+			rowOffsets[r] = new int[count];
+			for (int i = 0, n = 0; i < kx; i++)
+				if (values[r * kx + i] != 0) {
+					rowWeights[r][n] = values[r * kx + i];
+					rowOffsets[r][n++] = i;
+				}
+			weights += count;
+		}
+
+		sums = new double[(kx + 1) * (ky + 1) * (kz + 1)];
+		for (int k = 1; k <= kz; k++)
+			for (int j = 1; j <= ky; j++)
+				for (int i = 1; i <= kx; i++)
+					sums[sum(i, j, k)] = values[i - 1 + kx * (j - 1 + ky * (k - 1))]
+							+ sums[sum(i - 1, j, k)] + sums[sum(i, j - 1, k)]
+							+ sums[sum(i, j, k - 1)] - sums[sum(i - 1, j - 1, k)]
+							- sums[sum(i - 1, j, k - 1)] - sums[sum(i, j - 1, k - 1)]
+							+ sums[sum(i - 1, j - 1, k - 1)];
+
+		boolean finite = true;
+		for (int n = 0; n < values.length; n++)
+			finite &= !Double.isInfinite(values[n]) && !Double.isNaN(values[n]);
+		// only finite kernels can be decomposed or transformed
+		if (kz == 1 && finite)
+			decompose();
+		decomposable = kz == 1 && finite;
+	}
+
+	/**
+	 * Prepares the kernel given by the first time and band of an image, its
+	 * center being the one of the image.
+	 *
+	 * @param kernel
+	 *            the kernel
+	 */
+	public Convolver(Image kernel) {
+		this(values(kernel), kernel.getXDim(), kernel.getYDim(), kernel
+				.getZDim(), center(kernel).x, center(kernel).y,
+				center(kernel).z);
+	}
+
+	private static double[] values(Image kernel) {
+		double[] values = new double[kernel.getXDim() * kernel.getYDim()
+				* kernel.getZDim()];
+		for (int k = 0, n = 0; k < kernel.getZDim(); k++)
+			for (int j = 0; j < kernel.getYDim(); j++)
+				for (int i = 0; i < kernel.getXDim(); i++)
+					values[n++] = kernel.getPixelXYZTBDouble(i, j, k, 0, 0);
+		return values;
+	}
+
+	private static Point4D center(Image kernel) {
+		if (kernel.getCenter() != null)
+			return kernel.getCenter();
+		return new Point4D(kernel.getXDim() / 2, kernel.getYDim() / 2, kernel
+				.getZDim() / 2, 0);
+	}
+
+	/**
+	 * Index of the sum of the values before (i,j,k).
+	 */
+	private int sum(int i, int j, int k) {
+		return i + (kx + 1) * (j + (ky + 1) * k);
+	}
+
+	/**
+	 * Splits a 2D kernel into pairs of 1D kernels, from its singular value
+	 * decomposition.
+	 */
+	private void decompose() {
+		if (kx == 1 || ky == 1) {
+			rank = 1;
+			xKernels = new double[][] { kx == 1 ? new double[] { 1 } : values };
+			yKernels = new double[][] { kx == 1 ? values : new double[] { 1 } };
+			return;
+		}
+		// the decomposition of Jama needs at least as many rows as columns
+		boolean transposed = kx < ky;
+		Matrix m = new Matrix(values, kx);
+		if (transposed)
+			m = m.transpose();
+		SingularValueDecomposition svd = new SingularValueDecomposition(m);
+		rank = svd.rank();
+		double[] s = svd.getSingularValues();
+		Matrix u = transposed ? svd.getV() : svd.getU();
+		Matrix v = transposed ? svd.getU() : svd.getV();
+		xKernels = new double[rank][kx];
+		yKernels = new double[rank][ky];
+		for (int r = 0; r < rank; r++) {
+			for (int i = 0; i < kx; i++)
+				xKernels[r][i] = u.get(i, r) * s[r];
+			for (int j = 0; j < ky; j++)
+				yKernels[r][j] = v.get(j, r);
+		}
+	}
+
+	/**
+	 * Gets the rank of the kernel.
+	 *
+	 * @return the rank of a finite 2D kernel, 0 otherwise
+	 */
+	public int getRank() {
+		return rank;
+	}
+
+	/**
+	 * Gets the kernel reflected through its center, which gives the true
+	 * convolution.
+	 *
+	 * @return the reflected kernel
+	 */
+	public Convolver reflection() {
+		double[] reflected = new double[values.length];
+		for (int n = 0; n < values.length; n++)
+			reflected[values.length - 1 - n] = values[n];
+		return new Convolver(reflected, kx, ky, kz, kx - 1 - cx, ky - 1 - cy,
+				kz - 1 - cz);
+	}
+
+	/**
+	 * Chooses the method with the lowest estimated cost for an image.
+	 *
+	 * @param image
+	 *            image to filter
+	 * @return one of {@link #DIRECT}, {@link #SEPARABLE} or {@link #FFT}
+	 */
+	public int choose(Image image) {
+		int method = DIRECT;
+		double cost = weights;
+		if (decomposable && kx > 1 && ky > 1) {
+			double split = rank * (kx + ky) + 2;
+			if (split < cost) {
+				method = SEPARABLE;
+				cost = split;
+			}
+			long width = fftLength(image.getXDim() + kx - 1);
+			long height = fftLength(image.getYDim() + ky - 1);
+			double fft = FFT_COST * width * height
+					* (Math.log(width * height) / Math.log(2))
+					/ ((double) image.getXDim() * image.getYDim());
+			if (fft < cost)
+				method = FFT;
+		}
+		return method;
+	}
+
+	/**
+	 * Filters an image with the method of lowest cost.
+	 *
+	 * @param input
+	 *            image to filter
+	 * @param output
+	 *            image of the same dimensions receiving the result, which
+	 *            can be the input
+	 * @param border
+	 *            one of {@link #ZERO}, {@link #CLAMP} or {@link #NORMALIZE}
+	 */
+	public void convolve(Image input, Image output, int border) {
+		convolve(input, output, border, AUTO);
+	}
+
+	/**
+	 * Filters an image.
+	 *
+	 * @param input
+	 *            image to filter
+	 * @param output
+	 *            image of the same dimensions receiving the result, which
+	 *            can be the input
+	 * @param border
+	 *            one of {@link #ZERO}, {@link #CLAMP} or {@link #NORMALIZE}
+	 * @param method
+	 *            one of {@link #AUTO}, {@link #DIRECT}, {@link #SEPARABLE} or
+	 *            {@link #FFT}
+	 */
+	public void convolve(Image input, Image output, int border, int method) {
+		if (!Image.haveSameDimensions(input, output))
+			throw new PelicanException(
+					"Input and output images must have the same dimensions");
+		if (border < ZERO || border > NORMALIZE)
+			throw new PelicanException("Unknown border mode : " + border);
+		if (method == AUTO)
+			method = choose(input);
+		if ((method == SEPARABLE || method == FFT) && !decomposable)
+			throw new PelicanException("Only finite 2D kernels can be separated "
+					+ "or transformed");
+		Plane plane = new Plane(input, border);
+		if (method == DIRECT)
+			direct(plane, output);
+		else if (method == SEPARABLE)
+			separable(plane, output);
+		else if (method == FFT)
+			fft(plane, output);
+		else
+			throw new PelicanException("Unknown convolution method : " + method);
+	}
+
+	/**
+	 * Bands of the input image copied in row order, each row being padded on
+	 * both sides, for every band, time and slice.
+	 */
+	private final class Plane {
+
+		final int xdim, ydim, zdim, tdim, bdim;
+
+		final int border;
+
+		/**
+		 * Length of a padded row.
+		 */
+		final int width;
+
+		/**
+		 * Number of rows of the image, of all the bands, times and slices.
+		 */
+		final int rows;
+
+		/**
+		 * Padded rows, the row y of the slice z of the band b at time t being
+		 * the row y+ydim*(z+zdim*(b+bdim*t)).
+		 */
+		final double[] data;
+
+		Plane(final Image input, int border) {
+			xdim = input.getXDim();
+			ydim = input.getYDim();
+			zdim = input.getZDim();
+			tdim = input.getTDim();
+			bdim = input.getBDim();
+			this.border = border;
+			width = xdim + kx - 1;
+			long length = (long) width * ydim * zdim * tdim * bdim;
+			if (length > Integer.MAX_VALUE)
+				throw new PelicanException("Image too large to be convolved");
+			rows = ydim * zdim * tdim * bdim;
+			data = new double[(int) length];
+			final double[] pixels = input instanceof DoubleImage
+					&& !(input instanceof LargeImageInterface) ? ((DoubleImage) input)
+					.getPixelsUnsafe()
+					: null;
+			final boolean clamp = border == CLAMP;
+			Parallel.forItems(rows, data.length, new Parallel.Range() {
+				public void run(int from, int to) {
+					for (int row = from; row < to; row++) {
+						int offset = row * width;
+						int p = pixel(row, 0);
+						for (int x = 0, q = offset + cx; x < xdim; x++, q++, p += bdim)
+							data[q] = pixels != null ? pixels[p] : input
+									.getPixelDouble(p);
+						if (clamp) {
+							double first = data[offset + cx];
+							double last = data[offset + cx + xdim - 1];
+							for (int i = 0; i < cx; i++)
+								data[offset + i] = first;
+							for (int i = cx + xdim; i < width; i++)
+								data[offset + i] = last;
+						}
+					}
+				}
+			});
+		}
+
+		/**
+		 * Index in the image of the pixel x of a row.
+		 */
+		int pixel(int row, int x) {
+			int y = row % ydim;
+			int z = row / ydim % zdim;
+			int b = row / (ydim * zdim) % bdim;
+			int t = row / (ydim * zdim * bdim);
+			return b + bdim * (x + xdim * (y + ydim * (z + zdim * t)));
+		}
+
+		/**
+		 * Gets the row of the same band, time and slice at the given
+		 * distance along Y and Z.
+		 *
+		 * @return the row, or -1 if it is outside the image and the border
+		 *         is not clamped
+		 */
+		int neighbour(int row, int dy, int dz) {
+			int y = row % ydim + dy;
+			int z = row / ydim % zdim + dz;
+			if (y < 0 || y >= ydim || z < 0 || z >= zdim) {
+				if (border != CLAMP)
+					return -1;
+				y = y < 0 ? 0 : (y >= ydim ? ydim - 1 : y);
+				z = z < 0 ? 0 : (z >= zdim ? zdim - 1 : z);
+			}
+			return y + ydim * (z + zdim * (row / (ydim * zdim)));
+		}
+
+		/**
+		 * Stores a row of the result into the output image, dividing it by the
+		 * sum of the weights used if the border is normalized.
+		 *
+		 * @param buffer
+		 *            array of kx+1 values used for the sums of the weights
+		 */
+		void store(Image output, int row, double[] result, double[] buffer) {
+			if (border == NORMALIZE) {
+				int y = row % ydim;
+				int z = row / ydim % zdim;
+				int j0 = Math.max(0, cy - y), j1 = Math.min(ky, cy - y + ydim);
+				int k0 = Math.max(0, cz - z), k1 = Math.min(kz, cz - z + zdim);
+				for (int i = 0; i <= kx; i++)
+					buffer[i] = sums[sum(i, j1, k1)] - sums[sum(i, j0, k1)]
+							- sums[sum(i, j1, k0)] + sums[sum(i, j0, k0)];
+				for (int x = 0; x < xdim; x++)
+					result[x] /= buffer[Math.min(kx, cx - x + xdim)]
+							- buffer[Math.max(0, cx - x)];
+			}
+			int p = pixel(row, 0);
+			if (output instanceof DoubleImage
+					&& !(output instanceof LargeImageInterface)) {
+				double[] pixels = ((DoubleImage) output).getPixelsUnsafe();
+				for (int x = 0; x < xdim; x++, p += bdim)
+					pixels[p] = result[x];
+			} else
+				for (int x = 0; x < xdim; x++, p += bdim)
+					output.setPixelDouble(p, result[x]);
+		}
+	}
+
+	/**
+	 * Shares the rows of the output between threads, the calling thread
+	 * doing all the work for a large image.
+	 */
+	private void forRows(Plane plane, Image output, Parallel.Range range) {
+		if (output instanceof LargeImageInterface)
+			range.run(0, plane.rows);
+		else {
+			// the work of a pixel grows with the kernel
+			long work = (long) plane.rows * plane.xdim * Math.max(1, weights);
+			Parallel.forItems(plane.rows, (int) Math.min(work,
+					Integer.MAX_VALUE), range);
+		}
+	}
+
+	private void direct(final Plane plane, final Image output) {
+		final double[] data = plane.data;
+		final int xdim = plane.xdim;
+		final int width = plane.width;
+		forRows(plane, output, new Parallel.Range() {
+			public void run(int from, int to) {
+				double[] result = new double[xdim];
+				double[] buffer = new double[kx + 1];
+				for (int row = from; row < to; row++) {
+					Arrays.fill(result, 0);
+					for (int k = 0; k < kz; k++)
+						for (int j = 0; j < ky; j++) {
+							int source = plane.neighbour(row, j - cy, k - cz);
+							if (source < 0)
+								continue;
+							double[] w = rowWeights[j + ky * k];
+							int[] o = rowOffsets[j + ky * k];
+							for (int n = 0; n < w.length; n++) {
+								double weight = w[n];
+								int offset = source * width + o[n];
+								for (int x = 0; x < xdim; x++)
+									result[x] += weight * data[offset + x];
+							}
+						}
+					plane.store(output, row, result, buffer);
+				}
+			}
+		});
+	}
+
+	private void separable(final Plane plane, final Image output) {
+		final double[] data = plane.data;
+		final int xdim = plane.xdim;
+		final int width = plane.width;
+		// filtering of every row along X by each kernel
+		final double[][] filtered = new double[rank][plane.rows * xdim];
+		forRows(plane, output, new Parallel.Range() {
+			public void run(int from, int to) {
+				for (int row = from; row < to; row++)
+					for (int r = 0; r < rank; r++) {
+						double[] kernel = xKernels[r];
+						double[] line = filtered[r];
+						int start = row * xdim;
+						for (int i = 0; i < kx; i++) {
+							double weight = kernel[i];
+							if (weight == 0)
+								continue;
+							int offset = row * width + i;
+							for (int x = 0; x < xdim; x++)
+								line[start + x] += weight * data[offset + x];
+						}
+					}
+			}
+		});
+		// then along Y
+		forRows(plane, output, new Parallel.Range() {
+			public void run(int from, int to) {
+				double[] result = new double[xdim];
+				double[] buffer = new double[kx + 1];
+				for (int row = from; row < to; row++) {
+					Arrays.fill(result, 0);
+					for (int r = 0; r < rank; r++) {
+						double[] kernel = yKernels[r];
+						double[] line = filtered[r];
+						for (int j = 0; j < ky; j++) {
+							double weight = kernel[j];
+							int source = plane.neighbour(row, j - cy, 0);
+							if (weight == 0 || source < 0)
+								continue;
+							int offset = source * xdim;
+							for (int x = 0; x < xdim; x++)
+								result[x] += weight * line[offset + x];
+						}
+					}
+					plane.store(output, row, result, buffer);
+				}
+			}
+		});
+	}
+
+	private void fft(Plane plane, Image output) {
+		int xdim = plane.xdim;
+		int ydim = plane.ydim;
+		int fftX = fftLength(xdim + kx - 1);
+		int fftY = fftLength(ydim + ky - 1);
+		double[][] kernel = kernelFFT(fftX, fftY);
+		double[] padded = new double[fftX * fftY];
+		double[] result = new double[xdim];
+		double[] buffer = new double[kx + 1];
+		for (int first = 0; first < plane.rows; first += ydim) {
+			// plane padded along Y, the rows outside being zero or clamped
+			Arrays.fill(padded, 0);
+			for (int y = 0; y < ydim + ky - 1; y++) {
+				int source = plane.neighbour(first, y - cy, 0);
+				if (source >= 0)
+					System.arraycopy(plane.data, source * plane.width, padded, y
+							* fftX, plane.width);
+			}
+			double[][] transform = FFTPlan.forwardReal2D(padded, fftX, fftY);
+			double[] re = transform[0], im = transform[1];
+			for (int n = 0; n < re.length; n++) {
+				double a = re[n], b = im[n];
+				re[n] = a * kernel[0][n] - b * kernel[1][n];
+				im[n] = a * kernel[1][n] + b * kernel[0][n];
+			}
+			FFTPlan.inverseReal2D(re, im, fftX, fftY, padded);
+			// the kernel was reflected, so the result is shifted by its size
+			for (int y = 0; y < ydim; y++) {
+				System.arraycopy(padded, (y + ky - 1) * fftX + kx - 1, result, 0,
+						xdim);
+				plane.store(output, first + y, result, buffer);
+			}
+		}
+	}
+
+	/**
+	 * Gets the smallest length of the form 2^a*3^b*5^c at least equal to n,
+	 * which FFTPlan transforms quickly.
+	 */
+	private static int fftLength(int n) {
+		int best = Integer.highestOneBit(Math.max(n - 1, 1)) << 1;
+		for (long p5 = 1; p5 < best; p5 *= 5)
+			for (long p35 = p5; p35 < best; p35 *= 3) {
+				long length = p35;
+				while (length < n)
+					length *= 2;
+				if (length < best)
+					best = (int) length;
+			}
+		return best;
+	}
+
+	/**
+	 * Gets the transform of the reflected kernel for a plane size.
+	 */
+	private synchronized double[][] kernelFFT(int fftX, int fftY) {
+		if (kernelFFT == null || fftX != fftWidth || fftY != fftHeight) {
+			double[] padded = new double[fftX * fftY];
+			for (int j = 0; j < ky; j++)
+				for (int i = 0; i < kx; i++)
+					padded[(ky - 1 - j) * fftX + kx - 1 - i] = values[i + kx * j];
+			kernelFFT = FFTPlan.forwardReal2D(padded, fftX, fftY);
+			fftWidth = fftX;
+			fftHeight = fftY;
+		}
+		return kernelFFT;
+	}
+
+}
@@ -0,0 +1,328 @@
+package fr.unistra.pelican.util;
+
+import java.util.Arrays;
+
+import fr.unistra.pelican.PelicanException;
+
+/**
+ * One dimensional gaussian filters working in place on the lines of a pixel
+ * array. A line is given by the offset of its first pixel, the distance between
+ * two consecutive pixels (<tt>stride</tt>) and its length, so the same methods
+ * filter an image along X, Y or Z.
+ * <p>
+ * Two engines are available :
+ * <ul>
+ * <li>{@link #convolve} applies a sampled kernel, its cost is proportional to
+ * the size of the kernel.</li>
+ * <li>{@link Recursive} applies the recursive filter of Young and van Vliet,
+ * with the boundary conditions of Triggs and Sdika. Its cost does not depend on
+ * sigma, so it is the method of choice for large sigmas.</li>
+ * </ul>
+ *
+ * @author PELICAN team.
+ */
+public class Gaussian1D {
+
+	/**
+	 * The pixels outside the line are 0.
+	 */
+	public static final int ZERO = 0;
+
+	/**
+	 * The pixels outside the line are copies of the nearest pixel of the line.
+	 */
+	public static final int CLAMP = 1;
+
+	/**
+	 * The pixels outside the line are ignored and the result is divided by the
+	 * sum of the weights of the pixels used.
+	 */
+	public static final int NORMALIZE = 2;
+
+	/**
+	 * Sigma from which the recursive filter is more accurate than the sampled
+	 * kernel is fast.
+	 */
+	public static final double RECURSIVE_SIGMA = 3.0;
+
+	/**
+	 * Never instanciate utility class
+	 */
+	private Gaussian1D() {
+	}
+
+	/**
+	 * Samples the gaussian function without any normalisation.
+	 *
+	 * @param sigma
+	 *            standard deviation of the gaussian
+	 * @param first
+	 *            first offset of the kernel
+	 * @param last
+	 *            last offset of the kernel
+	 * @return the values of the gaussian from <tt>first</tt> to <tt>last</tt>
+	 */
+	public static double[] sample(double sigma, int first, int last) {
+		double[] kernel = new double[last - first + 1];
+		double factor = 1.0 / (Math.sqrt(2 * Math.PI) * sigma);
+		for (int i = first; i <= last; i++)
+			kernel[i - first] = factor * Math.exp(-i * i / (2 * sigma * sigma));
+		return kernel;
+	}
+
+	/**
+	 * Builds the kernel of a gaussian derivative. The kernel of order 0 has a
+	 * sum of 1, the kernel of order 1 gives 1 on the ramp f(x)=x and the kernel
+	 * of order 2 gives 1 on the parabola f(x)=x²/2 and 0 on constant lines.
+	 *
+	 * @param sigma
+	 *            standard deviation of the gaussian
+	 * @param order
+	 *            order of the derivative, from 0 to 2
+	 * @param first
+	 *            first offset of the kernel
+	 * @param last
+	 *            last offset of the kernel
+	 * @return the weights of the pixels from offset <tt>first</tt> to
+	 *         <tt>last</tt>
+	 */
+	public static double[] kernel(double sigma, int order, int first, int last) {
+		if (order < 0 || order > 2)
+			throw new PelicanException("Unsupported derivative order : "
+					+ order);
+		double[] kernel = sample(sigma, first, last);
+		double s2 = sigma * sigma;
+		double norm = 0;
+		switch (order) {
+		case 0:
+			for (int i = 0; i < kernel.length; i++)
+				norm += kernel[i];
+			break;
+		case 1:
+			for (int i = 0; i < kernel.length; i++) {
+				int d = i + first;
+				kernel[i] *= d / s2;
+				norm += kernel[i] * d;
+			}
+			break;
+		case 2:
+			double mean = 0;
+			for (int i = 0; i < kernel.length; i++) {
+				int d = i + first;
+				kernel[i] *= (d * d / s2 - 1) / s2;
+				mean += kernel[i];
+			}
+			mean /= kernel.length;
+			for (int i = 0; i < kernel.length; i++) {
+				int d = i + first;
+				kernel[i] -= mean;
+				norm += kernel[i] * d * d / 2;
+			}
+			break;
+		}
+		for (int i = 0; i < kernel.length; i++)
+			kernel[i] /= norm;
+		return kernel;
+	}
+
+	/**
+	 * Convolves a line with a kernel, in place.
+	 *
+	 * @param data
+	 *            pixel array
+	 * @param offset
+	 *            index of the first pixel of the line
+	 * @param stride
+	 *            distance between two pixels of the line
+	 * @param length
+	 *            number of pixels of the line
+	 * @param kernel
+	 *            weights of the neighbours, the result at x being the sum of
+	 *            kernel[i]*line[x+i-center]
+	 * @param center
+	 *            index of the weight of the pixel itself
+	 * @param border
+	 *            one of {@link #ZERO}, {@link #CLAMP} or {@link #NORMALIZE}
+	 * @param buffer
+	 *            array of at least <tt>length</tt> values used to hold the line
+	 */
+	public static void convolve(double[] data, int offset, int stride,
+			int length, double[] kernel, int center, int border, double[] buffer) {
+		for (int x = 0, p = offset; x < length; x++, p += stride)
+			buffer[x] = data[p];
+		int first = -center;
+		int last = kernel.length - 1 - center;
+		for (int x = 0, p = offset; x < length; x++, p += stride) {
+			double sum = 0;
+			if (x + first >= 0 && x + last < length) {
+				for (int i = 0, q = x + first; i < kernel.length; i++, q++)
+					sum += kernel[i] * buffer[q];
+			} else {
+				double weights = 0;
+				for (int i = 0, q = x + first; i < kernel.length; i++, q++) {
+					if (q >= 0 && q < length) {
+						sum += kernel[i] * buffer[q];
+						weights += kernel[i];
+					} else if (border == CLAMP)
+						sum += kernel[i] * buffer[q < 0 ? 0 : length - 1];
+				}
+				if (border == NORMALIZE)
+					sum /= weights;
+			}
+			data[p] = sum;
+		}
+	}
+
+	/**
+	 * Replaces a line by its central differences of order 1 or 2, in place.
+	 * The line is clamped at its ends.
+	 *
+	 * @param data
+	 *            pixel array
+	 * @param offset
+	 *            index of the first pixel of the line
+	 * @param stride
+	 *            distance between two pixels of the line
+	 * @param length
+	 *            number of pixels of the line
+	 * @param order
+	 *            order of the derivative, 1 or 2
+	 * @param buffer
+	 *            array of at least <tt>length</tt> values used to hold the line
+	 */
+	public static void derive(double[] data, int offset, int stride,
+			int length, int order, double[] buffer) {
+		if (order < 1 || order > 2)
+			throw new PelicanException("Unsupported derivative order : "
+					+ order);
+		for (int x = 0, p = offset; x < length; x++, p += stride)
+			buffer[x] = data[p];
+		for (int x = 0, p = offset; x < length; x++, p += stride) {
+			double previous = buffer[x > 0 ? x - 1 : 0];
+			double next = buffer[x < length - 1 ? x + 1 : length - 1];
+			if (order == 1)
+				data[p] = (next - previous) / 2;
+			else
+				data[p] = next - 2 * buffer[x] + previous;
+		}
+	}
+
+	/**
+	 * Recursive gaussian filter (I.T. Young, L.J. van Vliet, "Recursive
+	 * implementation of the Gaussian filter", Signal Processing 44, 1995). The
+	 * line is clamped at its ends, the states of the filters at both ends
+	 * being set as in B. Triggs, M. Sdika, "Boundary conditions for
+	 * Young-van Vliet recursive filtering", IEEE Trans. on Signal Processing
+	 * 54, 2006.
+	 * <p>
+	 * The coefficients depend only on sigma : an instance can be shared by the
+	 * threads filtering the lines of an image.
+	 */
+	public static class Recursive {
+
+		/**
+		 * Normalised feedback coefficients.
+		 */
+		private final double b1, b2, b3;
+
+		/**
+		 * Gain of each pass.
+		 */
+		private final double gain;
+
+		/**
+		 * Initial state of the anticausal pass according to the last states of
+		 * the causal one.
+		 */
+		private final double[][] end = new double[3][3];
+
+		/**
+		 * Builds the filter.
+		 *
+		 * @param sigma
+		 *            standard deviation of the gaussian, at least 0.5
+		 */
+		public Recursive(double sigma) {
+			if (sigma < 0.5)
+				throw new PelicanException(
+						"Recursive gaussian filter needs a sigma of at least 0.5");
+			double q;
+			if (sigma >= 2.5)
+				q = 0.98711 * sigma - 0.96330;
+			else
+				q = 3.97156 - 4.14554 * Math.sqrt(1 - 0.26891 * sigma);
+			double q2 = q * q;
+			double q3 = q2 * q;
+			double b0 = 1.57825 + 2.44413 * q + 1.4281 * q2 + 0.422205 * q3;
+			b1 = (2.44413 * q + 2.85619 * q2 + 1.26661 * q3) / b0;
+			b2 = -(1.4281 * q2 + 1.26661 * q3) / b0;
+			b3 = 0.422205 * q3 / b0;
+			gain = 1 - (b1 + b2 + b3);
+
+			// response of the anticausal pass, on a constant end of line, to
+			// each deviation of the causal states from that constant
+			int tail = (int) Math.ceil(40 * sigma) + 50;
+			double[] w = new double[tail + 3];
+			double[] y = new double[tail + 6];
+			for (int j = 0; j < 3; j++) {
+				Arrays.fill(w, 0);
+				Arrays.fill(y, 0);
+				w[2 - j] = 1;
+				for (int k = 3; k < w.length; k++)
+					w[k] = b1 * w[k - 1] + b2 * w[k - 2] + b3 * w[k - 3];
+				for (int k = w.length - 1; k >= 3; k--)
+					y[k] = gain * w[k] + b1 * y[k + 1] + b2 * y[k + 2] + b3
+							* y[k + 3];
+				for (int i = 0; i < 3; i++)
+					end[i][j] = y[3 + i];
+			}
+		}
+
+		/**
+		 * Filters a line in place.
+		 *
+		 * @param data
+		 *            pixel array
+		 * @param offset
+		 *            index of the first pixel of the line
+		 * @param stride
+		 *            distance between two pixels of the line
+		 * @param length
+		 *            number of pixels of the line
+		 * @param buffer
+		 *            array of at least <tt>length</tt> values used to hold the
+		 *            causal pass
+		 */
+		public void apply(double[] data, int offset, int stride, int length,
+				double[] buffer) {
+			if (length == 0)
+				return;
+			double first = data[offset];
+			double w1 = first, w2 = first, w3 = first;
+			for (int x = 0, p = offset; x < length; x++, p += stride) {
+				double w = gain * data[p] + b1 * w1 + b2 * w2 + b3 * w3;
+				buffer[x] = w;
+				w3 = w2;
+				w2 = w1;
+				w1 = w;
+			}
+
+			double last = data[offset + (length - 1) * stride];
+			double d1 = w1 - last, d2 = w2 - last, d3 = w3 - last;
+			double y1 = last + end[0][0] * d1 + end[0][1] * d2 + end[0][2]
+					* d3;
+			double y2 = last + end[1][0] * d1 + end[1][1] * d2 + end[1][2]
+					* d3;
+			double y3 = last + end[2][0] * d1 + end[2][1] * d2 + end[2][2]
+					* d3;
+			for (int x = length - 1, p = offset + x * stride; x >= 0; x--, p -= stride) {
+				double y = gain * buffer[x] + b1 * y1 + b2 * y2 + b3 * y3;
+				data[p] = y;
+				y3 = y2;
+				y2 = y1;
+				y1 = y;
+			}
+		}
+	}
+
+}
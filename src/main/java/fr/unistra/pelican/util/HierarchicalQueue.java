@@ -108,8 +108,11 @@ import java.util.LinkedList;
  * Hierarchical Queue used in several algorithms
  * 
  * @author lefevre
+ * @deprecated use {@link BucketQueue}, which stores pixel offsets in arrays
+ *             instead of one Point per element
  * 
  */
+@Deprecated
 public class HierarchicalQueue {
 	// private LinkedList[] queue;
 	private LinkedList[] queue;
@@ -0,0 +1,286 @@
+package fr.unistra.pelican.util;
+
+import java.util.ArrayList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import fr.unistra.pelican.AlgorithmException;
+import fr.unistra.pelican.Image;
+import fr.unistra.pelican.PackedBooleanImage;
+import fr.unistra.pelican.util.largeImages.LargeImageInterface;
+
+/**
+ * Class containing the static tools used by algorithms to share their work
+ * between several threads.
+ * <p>
+ * The work is split in ranges of indexes (pixels for point-wise algorithms,
+ * lines of the image for neighbourhood ones) run on a shared pool. Every
+ * range writes its own part of the output image, which is allocated once by
+ * the algorithm, so nothing has to be copied back. Neighbourhood algorithms
+ * read the whole input image, so the ranges do not need any halo.
+ * <p>
+ * Large images are always processed by the calling thread, since their units
+ * may be discarded while another thread writes in them.
+ * <p>
+ * The number of threads is global and can be changed with
+ * {@link #setThreadCount(int)}, 1 disabling the parallel mode.
+ *
+ * @author PELICAN team.
+ */
+public class Parallel {
+
+	/**
+	 * Minimum number of pixels processed by one task, smaller images are
+	 * processed by the calling thread alone.
+	 */
+	public static final int MIN_PIXELS_PER_TASK = 1 << 14;
+
+	/**
+	 * Number of tasks created for each thread, so that a slow task does not
+	 * keep the other threads waiting.
+	 */
+	private static final int TASKS_PER_THREAD = 4;
+
+	/**
+	 * Alignment of the bounds of the pixel ranges, so that the tasks start on
+	 * whole blocks of pixels and seldom write in the same cache line. As a
+	 * PackedBooleanImage stores 64 pixels per word, it also keeps two tasks
+	 * from writing in the same word of such an image.
+	 */
+	private static final int ALIGNMENT = 64;
+
+	/**
+	 * Number of threads used by the algorithms.
+	 */
+	private static volatile int threadCount = Runtime.getRuntime().availableProcessors();
+
+	/**
+	 * Pool running the tasks, created on first use.
+	 */
+	private static ExecutorService pool = null;
+
+	/**
+	 * Tells whether the current thread belongs to the pool.
+	 */
+	private static final ThreadLocal<Boolean> worker = new ThreadLocal<Boolean>() {
+		@Override
+		protected Boolean initialValue() {
+			return Boolean.FALSE;
+		}
+	};
+
+	/**
+	 * Work on a range of indexes.
+	 */
+	public static abstract class Range {
+
+		/**
+		 * Processes the indexes from <tt>from</tt> (inclusive) to <tt>to</tt>
+		 * (exclusive).
+		 */
+		public abstract void run(int from, int to);
+	}
+
+	/**
+	 * Never instanciate utility class
+	 */
+	private Parallel() {
+	}
+
+	/**
+	 * Gets the number of threads used by the algorithms.
+	 *
+	 * @return the number of threads
+	 */
+	public static int getThreadCount() {
+		return threadCount;
+	}
+
+	/**
+	 * Sets the number of threads used by the algorithms, 1 to run everything
+	 * in the calling thread.
+	 *
+	 * @param count
+	 *            number of threads
+	 */
+	public static synchronized void setThreadCount(int count) {
+		if (count < 1)
+			throw new AlgorithmException("Thread count must be at least 1");
+		if (count != threadCount && pool != null) {
+			pool.shutdown();
+			pool = null;
+		}
+		threadCount = count;
+	}
+
+	/**
+	 * Processes every pixel of an output image.
+	 *
+	 * @param output
+	 *            image written by the work
+	 * @param range
+	 *            work to do on a range of pixels
+	 */
+	public static void forPixels(Image output, Range range) {
+		int size = output.size();
+		if (output instanceof LargeImageInterface) {
+			range.run(0, size);
+			return;
+		}
+		int tasks = Math.min(size / MIN_PIXELS_PER_TASK, threadCount
+				* TASKS_PER_THREAD);
+		int step = 0;
+		if (tasks > 1)
+			step = ((size / tasks + ALIGNMENT - 1) / ALIGNMENT) * ALIGNMENT;
+		run(size, step, range);
+	}
+
+	/**
+	 * Processes every line of an output image. The lines must be consecutive
+	 * blocks of pixels of the same size, for instance the rows of the image
+	 * (with all their bands) for each z and t.
+	 *
+	 * @param output
+	 *            image written by the work
+	 * @param lines
+	 *            number of lines
+	 * @param range
+	 *            work to do on a range of lines
+	 */
+	public static void forLines(Image output, int lines, Range range) {
+		if (output instanceof LargeImageInterface || lines <= 0) {
+			range.run(0, lines);
+			return;
+		}
+		int size = output.size();
+		int tasks = Math.min(size / MIN_PIXELS_PER_TASK, Math.min(lines,
+				threadCount * TASKS_PER_THREAD));
+		int step = 0;
+		if (tasks > 1) {
+			step = (lines + tasks - 1) / tasks;
+			// the first pixel of each range must be aligned too
+			int lineSize = size / lines;
+			int multiple = lineSize == 0 ? 1 : ALIGNMENT
+					/ Math.min(Integer.lowestOneBit(lineSize), ALIGNMENT);
+			step = ((step + multiple - 1) / multiple) * multiple;
+		}
+		run(lines, step, range);
+	}
+
+	/**
+	 * Processes every column of an output image, the pixels of a column being
+	 * interleaved with the pixels of the other ones. Packed images are
+	 * processed by the calling thread, since their columns share words.
+	 *
+	 * @param output
+	 *            image written by the work
+	 * @param columns
+	 *            number of columns
+	 * @param range
+	 *            work to do on a range of columns
+	 */
+	public static void forColumns(Image output, int columns, Range range) {
+		if (output instanceof LargeImageInterface
+				|| output instanceof PackedBooleanImage || columns <= 0) {
+			range.run(0, columns);
+			return;
+		}
+		forItems(columns, output.size(), range);
+	}
+
+	/**
+	 * Processes independent items which are not stored in an image, for
+	 * instance the lines of a work array.
+	 *
+	 * @param count
+	 *            number of items
+	 * @param size
+	 *            total number of pixels processed
+	 * @param range
+	 *            work to do on a range of items
+	 */
+	public static void forItems(int count, int size, Range range) {
+		if (count <= 0)
+			return;
+		int tasks = Math.min(size / MIN_PIXELS_PER_TASK, Math.min(count,
+				threadCount * TASKS_PER_THREAD));
+		int step = 0;
+		if (tasks > 1)
+			step = (count + tasks - 1) / tasks;
+		run(count, step, range);
+	}
+
+	/**
+	 * Runs a range of indexes split in parts of the given length.
+	 */
+	private static void run(int count, int step, final Range range) {
+		if (step <= 0 || step >= count || threadCount == 1 || worker.get()) {
+			range.run(0, count);
+			return;
+		}
+		ExecutorService executor = getPool();
+		ArrayList<Future<Object>> futures = new ArrayList<Future<Object>>();
+		for (int from = step; from < count; from += step) {
+			final int first = from;
+			final int last = Math.min(from + step, count);
+			futures.add(executor.submit(new Callable<Object>() {
+				public Object call() {
+					range.run(first, last);
+					return null;
+				}
+			}));
+		}
+		// the calling thread processes the first part while waiting
+		Throwable error = null;
+		try {
+			range.run(0, step);
+		} catch (Throwable e) {
+			error = e;
+		}
+		for (Future<Object> future : futures) {
+			try {
+				future.get();
+			} catch (ExecutionException e) {
+				if (error == null)
+					error = e.getCause();
+			} catch (InterruptedException e) {
+				if (error == null)
+					error = e;
+			}
+		}
+		if (error instanceof RuntimeException)
+			throw (RuntimeException) error;
+		if (error instanceof Error)
+			throw (Error) error;
+		if (error != null)
+			throw new AlgorithmException("Parallel task failed", error);
+	}
+
+	/**
+	 * Gets the pool, creating it if needed.
+	 */
+	private static synchronized ExecutorService getPool() {
+		if (pool == null)
+			pool = Executors.newFixedThreadPool(threadCount - 1,
+					new ThreadFactory() {
+						private int number = 0;
+
+						public Thread newThread(final Runnable r) {
+							Thread thread = new Thread(new Runnable() {
+								public void run() {
+									worker.set(Boolean.TRUE);
+									r.run();
+								}
+							}, "pelican-worker-" + (number++));
+							thread.setDaemon(true);
+							return thread;
+						}
+					});
+		return pool;
+	}
+
+}
@@ -8,15 +8,18 @@ import java.awt.Graphics2D;
 import java.awt.TexturePaint;
 import java.awt.geom.Rectangle2D;
 import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
 
 import com.sun.org.apache.bcel.internal.generic.NEW;
 
 import fr.unistra.pelican.Algorithm;
 import fr.unistra.pelican.AlgorithmException;
 import fr.unistra.pelican.BooleanImage;
+import fr.unistra.pelican.ByteImage;
 import fr.unistra.pelican.Image;
 import fr.unistra.pelican.algorithms.io.ImageLoader;
 import fr.unistra.pelican.algorithms.visualisation.MViewer;
+import fr.unistra.pelican.util.largeImages.LargeImageInterface;
 
 /**
  * Want something more than class Name?
@@ -87,41 +90,28 @@ public class PelicanImageToBufferedImage extends Algorithm {
 			if(bands[b]>=bdim || bands[b]<0)
 				throw new AlgorithmException("PelicanImageToBufferedImage: invalid band index: " + bands[b]);
 		
-		if (colour==true) {
-			bimg = new BufferedImage(xDim, yDim, BufferedImage.TYPE_4BYTE_ABGR);
-			//Graphics2D g2 =bimg.createGraphics();
-			//texture.appliquer(g2);
-			//g2.fillRect(0, 0, inputImage.xdim, inputImage.ydim);
-			for (int y = 0; y < yDim; y++)
-				for (int x = 0; x < xDim; x++) {
-					int r = inputImage.getPixelXYBByte(x, y, bands[0]);
-					int g = inputImage.getPixelXYBByte(x, y, bands[1]);
-					int b = inputImage.getPixelXYBByte(x, y, bands[2]);
-					int alpha=(inputImage.isPresentXY(x, y))?255:10;
-					int rgb = ((alpha & 0xff) << 24) |((r & 0xff) << 16) | (( g & 0xff) << 8)
-							| ((b & 0xff));
-
-					bimg.setRGB(x, y, rgb);
-					
-				}
-		} else {
-			bimg = new BufferedImage(xDim, yDim, BufferedImage.TYPE_4BYTE_ABGR);
-			//for(int b=0;b<bdim;b++)
-			for (int y = 0; y < yDim; y++)
-				for (int x = 0; x < xDim; x++) {
-					int op = (int) inputImage.getPixelXYBByte(x, y, bands[0]);
-					
-					int alpha=255;
-					if(!inputImage.isPresentXY(x, y)){
-						alpha=10;
-						//op=255; 
-					}
-					int rgb = ((alpha & 0xff) << 24) |((op & 0xff) << 16) | (( op & 0xff) << 8)
-							| ((op & 0xff));
-
-					bimg.setRGB(x, y, rgb);
+		// the samples are written in the data buffer, as alpha, blue, green
+		// and red bytes for each pixel
+		bimg = new BufferedImage(xDim, yDim, BufferedImage.TYPE_4BYTE_ABGR);
+		byte[] data = ((DataBufferByte) bimg.getRaster().getDataBuffer()).getData();
+		int[] channels = colour ? new int[] { bands[2], bands[1], bands[0] }
+				: new int[] { bands[0], bands[0], bands[0] };
+		boolean masked = !inputImage.mask.isEmpty();
+		byte opaque = (byte) (xDim * yDim > 0 && inputImage.isPresentXY(0, 0) ? 255 : 10);
+		byte[] pixels = null;
+		if (inputImage instanceof ByteImage && !(inputImage instanceof LargeImageInterface))
+			pixels = ((ByteImage) inputImage).getPixels();
+		for (int y = 0, i = 0; y < yDim; y++)
+			for (int x = 0; x < xDim; x++) {
+				data[i++] = masked ? (byte) (inputImage.isPresentXY(x, y) ? 255 : 10) : opaque;
+				for (int c = 0; c < 3; c++) {
+					if (pixels != null)
+						// ByteImage holds the values with an offset of Byte.MIN_VALUE
+						data[i++] = (byte) (pixels[channels[c] + bdim * (x + xDim * y)] ^ Byte.MIN_VALUE);
+					else
+						data[i++] = (byte) inputImage.getPixelXYBByte(x, y, channels[c]);
 				}
-		}
+			}
 		
 		outputImage=bimg;
 	}
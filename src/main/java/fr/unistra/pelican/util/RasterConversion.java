@@ -0,0 +1,164 @@
+package fr.unistra.pelican.util;
+
+import java.awt.image.ComponentSampleModel;
+import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
+import java.awt.image.DataBufferUShort;
+import java.awt.image.Raster;
+import java.awt.image.SampleModel;
+import java.awt.image.SinglePixelPackedSampleModel;
+
+import fr.unistra.pelican.ByteImage;
+import fr.unistra.pelican.IntegerImage;
+import fr.unistra.pelican.util.largeImages.LargeImageInterface;
+
+/**
+ * Copies the samples of a raster into the pixel array of an image, reading
+ * the data buffer of the raster directly instead of calling getSample for
+ * each sample.
+ *
+ * The sample models handled are the component ones (pixel interleaved or
+ * banded) over bytes or unsigned shorts, and the packed ones over ints, which
+ * cover the images produced by the usual decoders. The copy methods return
+ * false for any other raster, which is then left to getSample.
+ *
+ * @author PELICAN team
+ */
+public final class RasterConversion {
+
+	/**
+	 * Never instanciate utility class
+	 */
+	private RasterConversion() {
+	}
+
+	/**
+	 * Copies the samples of the raster into a ByteImage of the same size and
+	 * number of bands, keeping the lowest 8 bits of each sample
+	 *
+	 * @param raster
+	 *            the samples
+	 * @param image
+	 *            the image to fill
+	 * @return false if the raster is not handled, the image being unchanged
+	 */
+	public static boolean copy(Raster raster, ByteImage image) {
+		if (image instanceof LargeImageInterface)
+			return false;
+		byte[] pixels = image.getPixels();
+		int width = raster.getWidth();
+		int height = raster.getHeight();
+		int bands = raster.getNumBands();
+		SampleModel model = raster.getSampleModel();
+		DataBuffer buffer = raster.getDataBuffer();
+		if (model instanceof ComponentSampleModel
+				&& buffer instanceof DataBufferByte) {
+			ComponentSampleModel sm = (ComponentSampleModel) model;
+			byte[][] data = ((DataBufferByte) buffer).getBankData();
+			int[] base = bases(raster, sm);
+			int[] banks = sm.getBankIndices();
+			int pixelStride = sm.getPixelStride();
+			int scanlineStride = sm.getScanlineStride();
+			boolean contiguous = pixelStride == bands;
+			for (int b = 0; b < bands; b++)
+				contiguous &= banks[b] == banks[0] && base[b] == base[0] + b;
+			// ByteImage holds the values with an offset of Byte.MIN_VALUE
+			for (int j = 0; j < height; j++) {
+				int loc = j * width * bands;
+				if (contiguous) {
+					byte[] bank = data[banks[0]];
+					int index = base[0] + j * scanlineStride;
+					for (int end = loc + width * bands; loc < end; loc++, index++)
+						pixels[loc] = (byte) (bank[index] ^ Byte.MIN_VALUE);
+				} else
+					for (int b = 0; b < bands; b++) {
+						byte[] bank = data[banks[b]];
+						int index = base[b] + j * scanlineStride;
+						for (int i = 0, p = loc + b; i < width; i++, p += bands, index += pixelStride)
+							pixels[p] = (byte) (bank[index] ^ Byte.MIN_VALUE);
+					}
+			}
+			return true;
+		}
+		if (model instanceof SinglePixelPackedSampleModel
+				&& buffer instanceof DataBufferInt && buffer.getNumBanks() == 1) {
+			SinglePixelPackedSampleModel sm = (SinglePixelPackedSampleModel) model;
+			int[] data = ((DataBufferInt) buffer).getData();
+			int[] masks = sm.getBitMasks();
+			int[] offsets = sm.getBitOffsets();
+			int scanlineStride = sm.getScanlineStride();
+			int first = buffer.getOffset()
+					+ (raster.getMinY() - raster.getSampleModelTranslateY())
+					* scanlineStride
+					+ (raster.getMinX() - raster.getSampleModelTranslateX());
+			int loc = 0;
+			for (int j = 0; j < height; j++) {
+				int index = first + j * scanlineStride;
+				for (int i = 0; i < width; i++, index++) {
+					int value = data[index];
+					for (int b = 0; b < bands; b++)
+						pixels[loc++] = (byte) (((value & masks[b]) >>> offsets[b]) ^ Byte.MIN_VALUE);
+				}
+			}
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Copies the samples of the raster into an IntegerImage of the same size
+	 * and number of bands
+	 *
+	 * @param raster
+	 *            the samples, unsigned shorts
+	 * @param image
+	 *            the image to fill
+	 * @return false if the raster is not handled, the image being unchanged
+	 */
+	public static boolean copy(Raster raster, IntegerImage image) {
+		if (image instanceof LargeImageInterface)
+			return false;
+		SampleModel model = raster.getSampleModel();
+		DataBuffer buffer = raster.getDataBuffer();
+		if (!(model instanceof ComponentSampleModel)
+				|| !(buffer instanceof DataBufferUShort))
+			return false;
+		int[] pixels = image.getPixelsUnsafe();
+		int width = raster.getWidth();
+		int height = raster.getHeight();
+		int bands = raster.getNumBands();
+		ComponentSampleModel sm = (ComponentSampleModel) model;
+		short[][] data = ((DataBufferUShort) buffer).getBankData();
+		int[] base = bases(raster, sm);
+		int[] banks = sm.getBankIndices();
+		int pixelStride = sm.getPixelStride();
+		int scanlineStride = sm.getScanlineStride();
+		for (int j = 0; j < height; j++)
+			for (int b = 0; b < bands; b++) {
+				short[] bank = data[banks[b]];
+				int index = base[b] + j * scanlineStride;
+				int loc = j * width * bands + b;
+				for (int i = 0; i < width; i++, loc += bands, index += pixelStride)
+					pixels[loc] = bank[index] & 0xffff;
+			}
+		return true;
+	}
+
+	/**
+	 * Computes the index in its bank of the first sample of each band
+	 */
+	private static int[] bases(Raster raster, ComponentSampleModel sm) {
+		int[] bandOffsets = sm.getBandOffsets();
+		int[] banks = sm.getBankIndices();
+		int[] offsets = raster.getDataBuffer().getOffsets();
+		int x = raster.getMinX() - raster.getSampleModelTranslateX();
+		int y = raster.getMinY() - raster.getSampleModelTranslateY();
+		int[] base = new int[raster.getNumBands()];
+		for (int b = 0; b < base.length; b++)
+			base[b] = offsets[banks[b]] + bandOffsets[b] + y
+					* sm.getScanlineStride() + x * sm.getPixelStride();
+		return base;
+	}
+
+}
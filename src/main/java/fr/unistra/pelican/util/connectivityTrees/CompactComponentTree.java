@@ -0,0 +1,386 @@
+package fr.unistra.pelican.util.connectivityTrees;
+
+import fr.unistra.pelican.Image;
+import fr.unistra.pelican.util.connectivityTrees.ComponentTreeUtil.TreeType;
+import fr.unistra.pelican.util.connectivityTrees.attributes.AttributeNotFoundException;
+import fr.unistra.pelican.util.connectivityTrees.attributes.AttributePerimetre;
+import fr.unistra.pelican.util.connectivityTrees.attributes.AttributeVolume;
+import fr.unistra.pelican.util.connectivityTrees.attributes.ComponentAttribute;
+import fr.unistra.pelican.util.connectivityTrees.connectivity.Connectivity3D;
+
+/**
+ * A connected component tree stored in arrays indexed by pixel, as computed by
+ * the union-find algorithm of Berger et al. There is no object per pixel nor
+ * per node.
+ *
+ * A node is represented by its canonical element, the first pixel of the node
+ * in the sorted order. The parent of a canonical element is the canonical
+ * element of the parent node (the root is its own parent), the parent of any
+ * other pixel is the canonical element of its node.
+ *
+ * The level of a pixel is given by its rank in the sorted levels, ranks being
+ * increasing from the root to the leaves whatever the tree type. The
+ * attributes are accumulated during the construction and are only meaningful
+ * for canonical elements.
+ *
+ * Designed for 3D (xyz) images, pixel index is x+xdim*(y+ydim*z)
+ *
+ * @author Benjamin Perret, PELICAN team
+ *
+ */
+public class CompactComponentTree {
+
+	/**
+	 * Attributes which can be accumulated during the construction, the area is
+	 * always computed
+	 *
+	 */
+	public static enum Attribute {
+		Area, Volume, Perimeter, BoundingBox
+	};
+
+	/**
+	 * Dimensions of underlying image
+	 */
+	private int xdim, ydim, zdim;
+
+	/**
+	 * Type of the tree
+	 */
+	private TreeType treeType;
+
+	/**
+	 * Base connectivity
+	 */
+	private Connectivity3D connectivity;
+
+	/**
+	 * Underlying image
+	 */
+	public Image image;
+
+	/**
+	 * Parent of each pixel
+	 */
+	public int[] parent;
+
+	/**
+	 * Pixels sorted from the root to the leaves, the root first
+	 */
+	public int[] sorted;
+
+	/**
+	 * Rank of the level of each pixel in the levels
+	 */
+	public int[] rank;
+
+	/**
+	 * Level of each rank
+	 */
+	public double[] levels;
+
+	/**
+	 * Number of pixels of the nodes
+	 */
+	public int[] area;
+
+	/**
+	 * Sum of the pixel values of the nodes, null if the volume is not computed
+	 */
+	public double[] sum;
+
+	/**
+	 * Perimeter of the nodes, null if not computed
+	 */
+	public int[] perimeter;
+
+	/**
+	 * Bounding boxes of the nodes, null if not computed
+	 */
+	public int[] xmin, ymin, zmin, xmax, ymax, zmax;
+
+	/**
+	 * Create an empty tree, the arrays are allocated by the builder
+	 *
+	 * @param xdim
+	 * @param ydim
+	 * @param zdim
+	 * @param treeType
+	 */
+	public CompactComponentTree(int xdim, int ydim, int zdim, TreeType treeType) {
+		this.xdim = xdim;
+		this.ydim = ydim;
+		this.zdim = zdim;
+		this.treeType = treeType;
+	}
+
+	/**
+	 * Number of pixels of the underlying image
+	 *
+	 * @return
+	 */
+	public int size() {
+		return parent.length;
+	}
+
+	/**
+	 * get canonical element of the root node
+	 *
+	 * @return
+	 */
+	public int getRoot() {
+		return sorted[0];
+	}
+
+	/**
+	 * Test if given pixel is the canonical element of a node
+	 *
+	 * @param p
+	 * @return
+	 */
+	public boolean isNode(int p) {
+		int q = parent[p];
+		return q == p || rank[q] != rank[p];
+	}
+
+	/**
+	 * Find canonical element of the node of given pixel
+	 *
+	 * @param p
+	 * @return
+	 */
+	public int findNodeAt(int p) {
+		return isNode(p) ? p : parent[p];
+	}
+
+	/**
+	 * Find canonical element of the node of pixel (x,y,z)
+	 *
+	 * @param x
+	 * @param y
+	 * @param z
+	 * @return
+	 */
+	public int findNodeAt(int x, int y, int z) {
+		return findNodeAt(x + xdim * (y + ydim * z));
+	}
+
+	/**
+	 * get parent node of given node, the root is its own parent
+	 *
+	 * @param node
+	 * @return
+	 */
+	public int getParent(int node) {
+		return parent[node];
+	}
+
+	/**
+	 * get level of given pixel or node
+	 *
+	 * @param p
+	 * @return
+	 */
+	public double getLevel(int p) {
+		return levels[rank[p]];
+	}
+
+	/**
+	 * get area of given node
+	 *
+	 * @param node
+	 * @return
+	 */
+	public int getArea(int node) {
+		return area[node];
+	}
+
+	/**
+	 * get volume of given node, as AttributeVolume : sum over the pixels of
+	 * the node of the difference between their level and the level of the
+	 * parent node
+	 *
+	 * @param node
+	 * @return
+	 * @throws AttributeNotFoundException
+	 */
+	public double getVolume(int node) throws AttributeNotFoundException {
+		if (sum == null)
+			throw new AttributeNotFoundException("Volume was not computed");
+		int q = parent[node];
+		if (q == node)
+			return sum[node];
+		return sum[node] - area[node] * levels[rank[q]];
+	}
+
+	/**
+	 * get perimeter of given node, as AttributePerimetre : number of pixel
+	 * sides in the xy plane between the node and its complement or the image
+	 * border
+	 *
+	 * @param node
+	 * @return
+	 * @throws AttributeNotFoundException
+	 */
+	public int getPerimeter(int node) throws AttributeNotFoundException {
+		if (perimeter == null)
+			throw new AttributeNotFoundException("Perimeter was not computed");
+		return perimeter[node];
+	}
+
+	/**
+	 * get bounding box of given node
+	 *
+	 * @param node
+	 * @return {xmin,ymin,zmin,xmax,ymax,zmax}
+	 * @throws AttributeNotFoundException
+	 */
+	public int[] getBoundingBox(int node) throws AttributeNotFoundException {
+		if (xmin == null)
+			throw new AttributeNotFoundException(
+				"Bounding box was not computed");
+		return new int[] { xmin[node], ymin[node], zmin[node], xmax[node],
+			ymax[node], zmax[node] };
+	}
+
+	/**
+	 * get value of the attribute of given class for a node, the supported
+	 * classes being AttributeVolume and AttributePerimetre
+	 *
+	 * @param clazz
+	 * @param node
+	 * @return
+	 * @throws AttributeNotFoundException
+	 */
+	public double getAttributeValue(Class<? extends ComponentAttribute> clazz,
+		int node) throws AttributeNotFoundException {
+		if (clazz == AttributeVolume.class)
+			return getVolume(node);
+		if (clazz == AttributePerimetre.class)
+			return getPerimeter(node);
+		throw new AttributeNotFoundException("Attribute "
+			+ clazz.getSimpleName() + " is not available in compact trees");
+	}
+
+	/**
+	 * Test if the attribute is available
+	 *
+	 * @param attribute
+	 * @return
+	 */
+	public boolean has(Attribute attribute) {
+		switch (attribute) {
+		case Volume:
+			return sum != null;
+		case Perimeter:
+			return perimeter != null;
+		case BoundingBox:
+			return xmin != null;
+		default:
+			return true;
+		}
+	}
+
+	/**
+	 * Make the parent of every pixel point to a canonical element, the parent
+	 * of a pixel must be before it in sorted order
+	 */
+	public void canonicalize() {
+		for (int i = 0; i < sorted.length; i++) {
+			int p = sorted[i];
+			int q = parent[p];
+			if (rank[parent[q]] == rank[q])
+				parent[p] = parent[q];
+		}
+	}
+
+	/**
+	 * Delete the marked nodes, the pixels of a deleted node being given to the
+	 * first node kept among its ancestors. The root is never deleted.
+	 *
+	 * @param delete
+	 *            deletion flag of each canonical element
+	 */
+	public void deleteNodes(boolean[] delete) {
+		int size = size();
+		int root = getRoot();
+		// 0: pixel, 1: kept node, 2: deleted node
+		byte[] state = new byte[size];
+		for (int p = 0; p < size; p++)
+			if (isNode(p))
+				state[p] = (byte) (delete[p] && p != root ? 2 : 1);
+		for (int i = 1; i < size; i++) {
+			int p = sorted[i];
+			int q = parent[p];
+			if (state[q] == 2)
+				parent[p] = q = parent[q];
+			if (state[p] != 1)
+				rank[p] = rank[q];
+		}
+	}
+
+	/**
+	 * Flag the nodes having children
+	 *
+	 * @return
+	 */
+	public boolean[] hasChildren() {
+		boolean[] res = new boolean[size()];
+		for (int p = 0; p < res.length; p++)
+			if (parent[p] != p && isNode(p))
+				res[parent[p]] = true;
+		return res;
+	}
+
+	/**
+	 * Compute number of nodes in the tree (nodes + leaves)
+	 *
+	 * @return
+	 */
+	public int countNodes() {
+		int nb = 0;
+		for (int p = 0; p < parent.length; p++)
+			if (isNode(p))
+				nb++;
+		return nb;
+	}
+
+	/**
+	 * Count number of leaves
+	 *
+	 * @return
+	 */
+	public int countLeaf() {
+		boolean[] hasChildren = hasChildren();
+		int nb = 0;
+		for (int p = 0; p < parent.length; p++)
+			if (isNode(p) && !hasChildren[p])
+				nb++;
+		return nb;
+	}
+
+	public int getXdim() {
+		return xdim;
+	}
+
+	public int getYdim() {
+		return ydim;
+	}
+
+	public int getZdim() {
+		return zdim;
+	}
+
+	public TreeType getTreeType() {
+		return treeType;
+	}
+
+	public Connectivity3D getConnectivity() {
+		return connectivity;
+	}
+
+	public void setConnectivity(Connectivity3D connectivity) {
+		this.connectivity = connectivity;
+	}
+
+}
@@ -3,6 +3,7 @@
  */
 package fr.unistra.pelican.util.connectivityTrees.attributes;
 
+import fr.unistra.pelican.util.connectivityTrees.CompactComponentTree;
 import fr.unistra.pelican.util.connectivityTrees.ComponentNode;
 
 /**
@@ -20,4 +21,16 @@ public abstract class AttributeFilter {
 	 * @throws AttributeNotFoundException The needed attribute is not found in given ComponentNode
 	 */
 	public abstract boolean filter(ComponentNode node) throws AttributeNotFoundException;
+	
+	/**
+	 * says whether or not the node of a compact tree fulfill attribute filter criteria
+	 * @param tree the compact tree
+	 * @param node canonical element of the node to test
+	 * @return result of the test
+	 * @throws AttributeNotFoundException The filter does not support compact trees or the needed attribute was not computed
+	 */
+	public boolean filter(CompactComponentTree tree, int node) throws AttributeNotFoundException
+	{
+		throw new AttributeNotFoundException(getClass().getSimpleName() + " does not support compact trees");
+	}
 }
@@ -1,5 +1,6 @@
 package fr.unistra.pelican.util.connectivityTrees.attributes;
 
+import fr.unistra.pelican.util.connectivityTrees.CompactComponentTree;
 import fr.unistra.pelican.util.connectivityTrees.ComponentNode;
 
 /**
@@ -31,6 +32,11 @@ public class ComponentAttributeThresholdFilter extends AttributeFilter {
 		return v.doubleValue() >= threshold;
 		
 	}
+	
+	@Override
+	public boolean filter(CompactComponentTree tree, int node) throws AttributeNotFoundException{
+		return tree.getAttributeValue(clazz, node) >= threshold;
+	}
 
 	public double getThreshold() {
 		return threshold;
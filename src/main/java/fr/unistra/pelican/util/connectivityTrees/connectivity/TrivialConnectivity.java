@@ -38,6 +38,22 @@ public class TrivialConnectivity extends Connectivity3D {
 		return new TrivialConnectivity(neigbours );
 	}
 	
+	public static TrivialConnectivity getSixNeighbourhood(){
+		Point3D [] neigbours={new Point3D(0,0,-1),new Point3D(0,-1,0),new Point3D(-1,0,0),new Point3D(1,0,0),new Point3D(0,1,0),new Point3D(0,0,1)};
+		return new TrivialConnectivity(neigbours );
+	}
+	
+	public static TrivialConnectivity getTwentySixNeighbourhood(){
+		Point3D [] neigbours=new Point3D[26];
+		int n=0;
+		for(int z=-1;z<=1;z++)
+			for(int y=-1;y<=1;y++)
+				for(int x=-1;x<=1;x++)
+					if(x!=0 || y!=0 || z!=0)
+						neigbours[n++]=new Point3D(x,y,z);
+		return new TrivialConnectivity(neigbours );
+	}
+	
 	private Point3D [] neigbours=null;
 
 	
@@ -1,6 +1,7 @@
 package fr.unistra.pelican.util.largeImages;
 
 import java.io.Serializable;
+import java.nio.ByteBuffer;
 import java.util.Arrays;
 
 import fr.unistra.pelican.PelicanException;
@@ -194,6 +195,20 @@ public class BooleanUnit extends Unit implements Serializable {
 	public int defaultSize(){
 		return this.pixels.length;
 	}
+
+	public int getDataLength(){
+		return 1;
+	}
+
+	public void readRaw(ByteBuffer buffer, int first, int count){
+		for (int p = first; p < first + count; p++)
+			this.pixels[p] = buffer.get() != 0;
+	}
+
+	public void writeRaw(ByteBuffer buffer, int first, int count){
+		for (int p = first; p < first + count; p++)
+			buffer.put(this.pixels[p] ? (byte) 1 : (byte) 0);
+	}
 	
 	@Override
 	public boolean equals(Unit u){
@@ -1,6 +1,7 @@
 package fr.unistra.pelican.util.largeImages;
 
 import java.io.Serializable;
+import java.nio.ByteBuffer;
 import java.util.Arrays;
 
 import fr.unistra.pelican.PelicanException;
@@ -198,6 +199,18 @@ public class ByteUnit extends Unit implements Serializable {
 	public int defaultSize(){
 		return this.pixels.length;
 	}
+
+	public int getDataLength(){
+		return 1;
+	}
+
+	public void readRaw(ByteBuffer buffer, int first, int count){
+		buffer.get(this.pixels, first, count);
+	}
+
+	public void writeRaw(ByteBuffer buffer, int first, int count){
+		buffer.put(this.pixels, first, count);
+	}
 	
 	public boolean equals(Unit u){
 		if (u==null || !(u instanceof ByteUnit)){
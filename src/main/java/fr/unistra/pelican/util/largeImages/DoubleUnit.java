@@ -1,6 +1,7 @@
 package fr.unistra.pelican.util.largeImages;
 
 import java.io.Serializable;
+import java.nio.ByteBuffer;
 import java.util.Arrays;
 
 import fr.unistra.pelican.PelicanException;
@@ -223,6 +224,18 @@ public class DoubleUnit extends Unit implements Serializable {
 		return this.pixels.length;
 	}
 
+	public int getDataLength(){
+		return 8;
+	}
+
+	public void readRaw(ByteBuffer buffer, int first, int count){
+		buffer.asDoubleBuffer().get(this.pixels, first, count);
+	}
+
+	public void writeRaw(ByteBuffer buffer, int first, int count){
+		buffer.asDoubleBuffer().put(this.pixels, first, count);
+	}
+
 	/**
 	 * Fill the specified band.
 	 * @param band
@@ -1,11 +1,13 @@
 package fr.unistra.pelican.util.largeImages;
 
 import java.io.Serializable;
+import java.nio.ByteBuffer;
 
 import fr.unistra.pelican.PelicanException;
 
 /**
- * Empty Unit used to fill the file when a new Large Image is created
+ * Empty Unit used to fill the file when a new Large Image is created. Since
+ * units are stored as raw blocks, an empty unit is a block of zeros.
  */
 public class EmptyUnit extends Unit implements Serializable {
 
@@ -32,6 +34,21 @@ public class EmptyUnit extends Unit implements Serializable {
 		throw new PelicanException("Someone tried to call size() on an empty Unit");
 	}
 	
+	@Override
+	public int getDataLength(){
+		throw new PelicanException("Someone tried to call getDataLength() on an empty Unit");
+	}
+
+	@Override
+	public void readRaw(ByteBuffer buffer, int first, int count){
+	}
+
+	@Override
+	public void writeRaw(ByteBuffer buffer, int first, int count){
+		for (int i = 0; i < count; i++)
+			buffer.put((byte) 0);
+	}
+
 	@Override
 	public boolean equals(Unit u){
 		if (u==null||!(u instanceof EmptyUnit)){
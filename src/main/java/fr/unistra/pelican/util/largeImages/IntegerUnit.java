@@ -1,6 +1,7 @@
 package fr.unistra.pelican.util.largeImages;
 
 import java.io.Serializable;
+import java.nio.ByteBuffer;
 import java.util.Arrays;
 
 import fr.unistra.pelican.PelicanException;
@@ -181,6 +182,18 @@ public class IntegerUnit extends Unit implements Serializable {
 	public int defaultSize(){
 		return this.pixels.length;
 	}
+
+	public int getDataLength(){
+		return 4;
+	}
+
+	public void readRaw(ByteBuffer buffer, int first, int count){
+		buffer.asIntBuffer().get(this.pixels, first, count);
+	}
+
+	public void writeRaw(ByteBuffer buffer, int first, int count){
+		buffer.asIntBuffer().put(this.pixels, first, count);
+	}
 	
 	@Override
 	public boolean equals(Unit u){
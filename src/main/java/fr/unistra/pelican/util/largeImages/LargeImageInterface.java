@@ -1,7 +1,7 @@
 package fr.unistra.pelican.util.largeImages;
 
 import java.io.File;
-import java.util.HashMap;
+import java.util.concurrent.ConcurrentHashMap;
 
 import fr.unistra.pelican.LargeBooleanImage;
 import fr.unistra.pelican.LargeByteImage;
@@ -148,6 +148,37 @@ public interface LargeImageInterface {
 	 */
 	public void setFile(File fichier);
 
+	/**
+	 * Gets the position of the first unit in the file, 0 unless the image
+	 * is attached to a file.
+	 * 
+	 * @return the offset of the units in the file, in bytes
+	 */
+	public long getFileOffset();
+
+	/**
+	 * Tells whether the image works in a file given by attachFile, which is
+	 * not deleted when the image is closed.
+	 * 
+	 * @return true if the file of the image is attached
+	 */
+	public boolean isAttached();
+
+	/**
+	 * Makes the image work in an existing file instead of a temporary one :
+	 * its pixels are the raw blocks of the file starting at the given offset,
+	 * and the units are read from the file when they are first used. The
+	 * modified units are written back to the file.</br> The dimensions and
+	 * the unit size must be set and calculate() called before, createFile()
+	 * and fillFile() must not be called.
+	 * 
+	 * @param file
+	 *            file holding the pixels
+	 * @param offset
+	 *            position of the first pixel in the file, in bytes
+	 */
+	public void attachFile(File file, long offset);
+
 	/**
 	 * Calculates and sets the unitLength and unitDim and size of the
 	 * LargeImage.</br> It needs unitSize and the five xdim, ydim, zdim, tdim
@@ -267,11 +298,11 @@ public interface LargeImageInterface {
 	public void putUnitIntoMap(int currentId, Unit currentUnit);
 
 	/**
-	 * Gets the HashMap of the large Image
+	 * Gets the map of the units of the large Image currently in memory
 	 * 
-	 * @return the HashMap of the largeImage
+	 * @return the unit map of the largeImage, safe to read without locking
 	 */
-	public HashMap<Integer, Unit> getMap();
+	public ConcurrentHashMap<Integer, Unit> getMap();
 
 	/**
 	 * Creates an new empty unit with the type of pixel and size according to
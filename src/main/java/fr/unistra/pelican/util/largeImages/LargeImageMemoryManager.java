@@ -7,7 +7,6 @@ import java.lang.management.MemoryPoolMXBean;
 import java.lang.management.MemoryType;
 import java.lang.ref.WeakReference;
 import java.util.HashMap;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.concurrent.locks.ReentrantLock;
 
@@ -20,6 +19,12 @@ import fr.unistra.pelican.PelicanException;
  * The LargeImageMemoryManager follows the design pattern Singleton. It is used
  * to manage the available memory of the JVM. It records all LargeImages that
  * are created and choose which unit has to be discarded when memory goes low.
+ * <p>
+ * Resident units are tracked with a CLOCK eviction index : each unit owns a
+ * reference bit which is set without locking each time the unit is accessed,
+ * and the clock hand evicts the first unit whose bit is not set, clearing the
+ * bits it passes over. Registering, accessing and evicting a unit are constant
+ * time operations whatever the number of resident units.
  * 
  */
 public class LargeImageMemoryManager implements
@@ -28,9 +33,25 @@ public class LargeImageMemoryManager implements
 	private static final LargeImageMemoryManager INSTANCE = new LargeImageMemoryManager();
 
 	/**
-	 * Eviction List used to choose the next unit to be discarded
+	 * Clock ring holding the resident units, used to choose the next unit to be
+	 * discarded
 	 */
-	private LinkedList<UnitRef> evictionList;
+	private UnitRef[] clock;
+
+	/**
+	 * Number of units in the clock ring
+	 */
+	private int clockSize;
+
+	/**
+	 * Position of the clock hand in the ring
+	 */
+	private int clockHand;
+
+	/**
+	 * Index of the resident units, keyed by {@link UnitRef#key(int, int)}
+	 */
+	private HashMap<Long, UnitRef> residents;
 
 	/**
 	 * Memory Threshold use to launch a cleanup
@@ -53,8 +74,8 @@ public class LargeImageMemoryManager implements
 	private MemoryPoolMXBean tenured = null;
 
 	/**
-	 * Lock used to make sure that two thread don't work in the evictionList at
-	 * the same time
+	 * Lock used to make sure that two thread don't load, discard or register
+	 * units at the same time. Accessing a resident unit does not need it.
 	 */
 	public ReentrantLock lock;
 	
@@ -64,7 +85,8 @@ public class LargeImageMemoryManager implements
 	 */
 	private LargeImageMemoryManager() {
 
-		evictionList = new LinkedList<UnitRef>();
+		clock = new UnitRef[1024];
+		residents = new HashMap<Long, UnitRef>();
 		lock = new ReentrantLock();
 
 		imageIndex = new HashMap<Integer, WeakReference<LargeImageInterface>>();
@@ -150,7 +172,7 @@ public class LargeImageMemoryManager implements
 	}
 
 	/**
-	 * Discards the next 10 units in the evictionList to free memory until used
+	 * Discards the next 10 units chosen by the clock to free memory until used
 	 * memory goes under the first threshold.
 	 */
 	private void discard() {
@@ -159,7 +181,7 @@ public class LargeImageMemoryManager implements
 			UnitRef ref = null;
 			while (tenured.getUsage().getUsed() > this.memoryThreshold) {				
 				for (int i = 0; i < LargeImageUtil.DEFAULT_DISCARD_NUMBER; i++) {
-					if ((ref = this.evictionList.pollFirst()) == null) {
+					if ((ref = this.nextVictim()) == null) {
 						System.err.println("Low memory and nothing to poll, we hope this is because the GC is on strike");
 						try {
 							Thread.sleep(1000);
@@ -168,8 +190,8 @@ public class LargeImageMemoryManager implements
 						}						
 						break;
 					} else {
-						LargeImageInterface currentImage = LargeImageMemoryManager.getInstance().imageIndex.get(ref.getImageId()).get();
-						if (currentImage != null) {
+						LargeImageInterface currentImage = this.getImage(ref.getImageId());
+						if (currentImage != null && currentImage.getMap().containsKey(ref.getUnitId())) {
 							currentImage.discardUnit(ref.getUnitId());
 						}
 					}
@@ -182,19 +204,75 @@ public class LargeImageMemoryManager implements
 	}
 
 	/**
-	 * Indicates to the MemoryManager that an unit has been modified
+	 * Moves the clock hand until it finds an unit which was not used since the
+	 * last pass, and removes it from the clock.
+	 * 
+	 * @return the unit to discard, null if no unit is resident
+	 */
+	private UnitRef nextVictim() {
+		// two full turns at most, the first one clearing all reference bits
+		for (int steps = 2 * this.clockSize; this.clockSize > 0; steps--) {
+			if (this.clockHand >= this.clockSize) {
+				this.clockHand = 0;
+			}
+			UnitRef ref = this.clock[this.clockHand];
+			if (ref.referenced && steps > 0) {
+				ref.referenced = false;
+				this.clockHand++;
+			} else {
+				this.clockSize--;
+				this.clock[this.clockHand] = this.clock[this.clockSize];
+				this.clock[this.clockSize] = null;
+				this.residents.remove(UnitRef.key(ref.imageId, ref.unitId));
+				return ref;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Indicates to the MemoryManager that an unit has been put in memory or
+	 * modified. The unit is registered in the clock if it was not yet, and
+	 * marked as used.
 	 * 
 	 * @param memoryId
 	 *            Index of the Image
 	 * @param unitId
 	 *            Index of the Unit
+	 * @return the reference of the unit in the clock, whose
+	 *         {@link UnitRef#markUsed()} method can be called without locking
 	 */
-	public void notifyUsage(int memoryId, int unitId) {
+	public UnitRef notifyUsage(int memoryId, int unitId) {
 		lock.lock();
 		try{
-			UnitRef currentUnit = new UnitRef(memoryId, unitId);
-			this.evictionList.remove(currentUnit);
-			this.evictionList.add(currentUnit);
+			Long key = UnitRef.key(memoryId, unitId);
+			UnitRef currentUnit = this.residents.get(key);
+			if (currentUnit == null) {
+				currentUnit = new UnitRef(memoryId, unitId);
+				if (this.clockSize == this.clock.length) {
+					UnitRef[] newClock = new UnitRef[2 * this.clock.length];
+					System.arraycopy(this.clock, 0, newClock, 0, this.clockSize);
+					this.clock = newClock;
+				}
+				this.clock[this.clockSize++] = currentUnit;
+				this.residents.put(key, currentUnit);
+			}
+			currentUnit.markUsed();
+			return currentUnit;
+		}finally{
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Gets the number of units currently registered as resident.
+	 * 
+	 * @return the number of resident units
+	 */
+	public int getResidentUnitCount() {
+		lock.lock();
+		try{
+			return this.clockSize;
 		}finally{
 			lock.unlock();
 		}
@@ -219,6 +297,20 @@ public class LargeImageMemoryManager implements
 		return this.memoryThreshold;
 	}
 
+	/**
+	 * Gets a managed image from its index.
+	 * 
+	 * @param imageId
+	 *            index of the image
+	 * @return the image, null if it has been garbage collected
+	 */
+	private LargeImageInterface getImage(int imageId) {
+		synchronized(this.imageIndex){
+			WeakReference<LargeImageInterface> weak = this.imageIndex.get(imageId);
+			return (weak == null) ? null : weak.get();
+		}
+	}
+
 	/**
 	 * Adds a new Large Image to be managed
 	 * 
@@ -262,11 +354,16 @@ public class LargeImageMemoryManager implements
 	 * Class used to identify an unit in the MemoryManager. It stores the index
 	 * of the Image from the imageIndex and the index of the unit in its image.
 	 */
-	public class UnitRef {
+	public static class UnitRef {
 
 		int imageId;
 		int unitId;
 
+		/**
+		 * Reference bit of the clock, set each time the unit is used
+		 */
+		volatile boolean referenced;
+
 		/**
 		 * Constructor
 		 * 
@@ -280,6 +377,30 @@ public class LargeImageMemoryManager implements
 			this.unitId = unitId;
 		}
 
+		/**
+		 * Marks the unit as used since the last pass of the clock hand. It
+		 * does not need any lock.
+		 */
+		public void markUsed() {
+			// avoid writing a shared cache line when the bit is already set
+			if (!this.referenced) {
+				this.referenced = true;
+			}
+		}
+
+		/**
+		 * Computes the key of an unit in the index of resident units.
+		 * 
+		 * @param imageId
+		 *            Image index
+		 * @param unitId
+		 *            Unit index
+		 * @return the key of the unit
+		 */
+		static Long key(int imageId, int unitId) {
+			return (((long) imageId) << 32) | (unitId & 0xffffffffL);
+		}
+
 		@Override
 		public boolean equals(Object o) {
 			if (!(o instanceof UnitRef)) {
@@ -291,7 +412,7 @@ public class LargeImageMemoryManager implements
 
 		@Override
 		public int hashCode() {
-			return ((Integer) this.imageId).hashCode();
+			return 31 * this.imageId + this.unitId;
 		}
 
 		/**
@@ -1,13 +1,12 @@
 package fr.unistra.pelican.util.largeImages;
 
-import java.io.ByteArrayOutputStream;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
 import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
 
 import fr.unistra.pelican.Image;
 import fr.unistra.pelican.LargeBooleanImage;
@@ -36,6 +35,25 @@ public class LargeImageUtil {
 	 */
 	private static final File DEFAULT_DIRECTORY = null;
 
+	/**
+	 * TRANSFER_BUFFER_SIZE is the number of bytes moved at once between the
+	 * units and their files.
+	 */
+	private static final int TRANSFER_BUFFER_SIZE = 1 << 20;
+
+	/**
+	 * Direct buffer used by each thread to read and write units. Units are
+	 * stored in little-endian order, as in the PELICAN raw format, so that an
+	 * image can be attached to such a file.
+	 */
+	private static final ThreadLocal<ByteBuffer> transferBuffer = new ThreadLocal<ByteBuffer>() {
+		@Override
+		protected ByteBuffer initialValue() {
+			return ByteBuffer.allocateDirect(LargeImageUtil.TRANSFER_BUFFER_SIZE)
+					.order(ByteOrder.LITTLE_ENDIAN);
+		}
+	};
+
 	/**
 	 * DEFAULT_DISCARD_NUMBER is the number of unit which will be discarded when
 	 * low memory event occurs
@@ -81,26 +99,10 @@ public class LargeImageUtil {
 	 * @see fr.unistra.pelican.util.largeImages.LargeImageInterface#computeUnitLength()
 	 */
 	public static final void computeUnitLength(LargeImageInterface largeIm) {
-		ByteArrayOutputStream byteArray = null;
-		ObjectOutputStream objOut = null;
-		try {
-			try {
-				byteArray = new ByteArrayOutputStream();
-				objOut = new ObjectOutputStream(byteArray);
-				Unit currentUnit = largeIm.newUnit();
-				objOut.writeObject(currentUnit);
-				largeIm.setUnitLength(byteArray.size());
-			} finally {
-				if (byteArray != null) {
-					byteArray.close();
-				}
-				if (objOut != null) {
-					objOut.close();
-				}
-			}
-		} catch (IOException e) {
-			throw new PelicanException("Unable to determine unitlenght");
-		}
+		// units are stored as raw blocks of primitives, one after the other
+		Unit currentUnit = largeIm.newUnit();
+		largeIm.setUnitLength((long) currentUnit.defaultSize()
+				* (long) currentUnit.getDataLength());
 	}
 
 	/**
@@ -158,8 +160,8 @@ public class LargeImageUtil {
 			
 		LargeImageMemoryManager.getInstance().lock.lock();
 		try{
+			currentUnit.usage = LargeImageMemoryManager.getInstance().notifyUsage(largeIm.getMemoryId(), currentId);
 			largeIm.putUnitIntoMap(currentId, currentUnit);
-			LargeImageMemoryManager.getInstance().notifyUsage(largeIm.getMemoryId(), currentId);
 		}finally{
 			LargeImageMemoryManager.getInstance().lock.unlock();
 		}
@@ -185,45 +187,155 @@ public class LargeImageUtil {
 	 * @see fr.unistra.pelican.util.largeImages.LargeImageInterface#loadAnUnit(int)
 	 */
 	public static final Unit loadAnUnit(LargeImageInterface largeIm, int id) {
-		Unit inputUnit;
 		if (id >= largeIm.getUnitDim()) {
 			throw new PelicanException("there is no " + id
 					+ "th unit in this image");
 		}
+		Unit inputUnit = largeIm.newUnit();
+		LargeImageUtil.readUnit(largeIm, inputUnit, id);
+		largeIm.setUnit(inputUnit, id, false);
+		return inputUnit;
+	}
+
+	/**
+	 * Reads the raw block of the given unit from the file of the image.
+	 * 
+	 * @param largeIm
+	 *            image which owns the file
+	 * @param unit
+	 *            unit receiving the pixels
+	 * @param id
+	 *            index of the unit in the image
+	 */
+	public static final void readUnit(LargeImageInterface largeIm, Unit unit,
+			int id) {
+		File currentFile = largeIm.getFile();
+		int dataLength = unit.getDataLength();
+		int count = unit.defaultSize();
+		int step = LargeImageUtil.TRANSFER_BUFFER_SIZE / dataLength;
+		ByteBuffer buffer = LargeImageUtil.transferBuffer.get();
 		try {
-			FileInputStream fileInput = new FileInputStream(largeIm.getFile()
-					.getAbsolutePath());
+			FileChannel channel = new RandomAccessFile(currentFile, "r")
+					.getChannel();
 			try {
-				fileInput.skip((long) id * (long) largeIm.getUnitLength());
-				ObjectInputStream objectInput = new ObjectInputStream(fileInput);
-				inputUnit = (Unit) objectInput.readObject();
-				if (inputUnit instanceof EmptyUnit) {
-					inputUnit = largeIm.newUnit();
+				long position = largeIm.getFileOffset() + (long) id
+						* largeIm.getUnitLength();
+				for (int first = 0; first < count; first += step) {
+					int length = Math.min(step, count - first);
+					buffer.clear();
+					buffer.limit(length * dataLength);
+					while (buffer.hasRemaining()) {
+						int read = channel.read(buffer, position);
+						if (read >= 0) {
+							position += read;
+						} else if (largeIm.isAttached()) {
+							// an attached file ends with the last pixel, the
+							// end of the last unit is empty
+							while (buffer.hasRemaining())
+								buffer.put((byte) 0);
+						} else {
+							throw new PelicanException("Unit " + id
+									+ " is truncated in "
+									+ currentFile.getAbsolutePath());
+						}
+					}
+					buffer.flip();
+					if (largeIm.isAttached() && unit instanceof ByteUnit)
+						toggleSign(buffer);
+					unit.readRaw(buffer, first, length);
 				}
-				largeIm.setUnit(inputUnit, id, false);
-
 			} finally {
-				if (fileInput != null) {
-					fileInput.close();
-				}
+				channel.close();
 			}
-		} catch (IOException e) {			
+		} catch (IOException e) {
 			e.printStackTrace();
 			throw new PelicanException("Unable to work in the file "
-					+ largeIm.getFile().getAbsolutePath());
-		} catch (ClassNotFoundException e) {
-			throw new PelicanException("Unit not found in "
-					+ largeIm.getFile().getAbsolutePath());
+					+ currentFile.getAbsolutePath());
+		}
+	}
+
+	/**
+	 * Writes the given unit as a raw block in the file of the image.
+	 * 
+	 * @param largeIm
+	 *            image which owns the file
+	 * @param unit
+	 *            unit to write, its id gives its place in the file
+	 */
+	public static final void writeUnit(LargeImageInterface largeIm, Unit unit) {
+		File currentFile = largeIm.getFile();
+		int dataLength;
+		int count;
+		if (unit instanceof EmptyUnit) {
+			dataLength = 1;
+			count = (int) largeIm.getUnitLength();
+		} else {
+			dataLength = unit.getDataLength();
+			count = unit.defaultSize();
+		}
+		if (largeIm.isAttached()) {
+			// do not write beyond the last pixel of an attached file
+			long size = largeIm.getLongXDim() * largeIm.getLongYDim()
+					* largeIm.getLongZDim() * largeIm.getLongTDim()
+					* largeIm.getLongBDim();
+			long pixels = size - (long) unit.id * largeIm.getUnitSize();
+			long bytes = pixels * (largeIm.getUnitLength() / largeIm.getUnitSize());
+			count = (int) Math.min(count, bytes / dataLength);
+		}
+		int step = LargeImageUtil.TRANSFER_BUFFER_SIZE / dataLength;
+		ByteBuffer buffer = LargeImageUtil.transferBuffer.get();
+		try {
+			FileChannel channel = new RandomAccessFile(currentFile, "rw")
+					.getChannel();
+			try {
+				long position = largeIm.getFileOffset() + (long) unit.id
+						* largeIm.getUnitLength();
+				for (int first = 0; first < count; first += step) {
+					int length = Math.min(step, count - first);
+					buffer.clear();
+					unit.writeRaw(buffer, first, length);
+					// typed views do not move the position of the buffer
+					buffer.position(0);
+					buffer.limit(length * dataLength);
+					if (largeIm.isAttached() && unit instanceof ByteUnit)
+						toggleSign(buffer);
+					while (buffer.hasRemaining()) {
+						position += channel.write(buffer, position);
+					}
+				}
+			} finally {
+				channel.close();
+			}
+		} catch (IOException e) {
+			throw new PelicanException("Unable to work in the file "
+					+ currentFile.getAbsolutePath());
 		}
-		return inputUnit;
+	}
+
+	/**
+	 * Byte units hold the pixels with an offset of Byte.MIN_VALUE, attached
+	 * files hold the unsigned values : converts the remaining bytes of the
+	 * buffer from one to the other.
+	 * 
+	 * @param buffer
+	 *            raw bytes, its position is not moved
+	 */
+	private static final void toggleSign(ByteBuffer buffer) {
+		for (int i = buffer.position(); i < buffer.limit(); i++)
+			buffer.put(i, (byte) (buffer.get(i) ^ Byte.MIN_VALUE));
 	}
 
 	/**
 	 * @see fr.unistra.pelican.util.largeImages.LargeImageInterface#getAnUnit(int)
 	 */
 	public static final Unit getAnUnit(LargeImageInterface largeIm, int id) {
+		// resident units are reached without locking, only loading needs it
+		Unit res = largeIm.getMap().get(id);
+		if (res != null) {
+			res.markUsed();
+			return res;
+		}
 		LargeImageMemoryManager.getInstance().lock.lock();
-		Unit res = null;
 		try{
 			res = largeIm.getMap().get(id);			
 			if (res == null) {
@@ -239,13 +351,21 @@ public class LargeImageUtil {
 	 * @see fr.unistra.pelican.util.largeImages.LargeImageInterface#fillFile()
 	 */
 	public static final void fillFile(LargeImageInterface largeIm) {
-		Unit emptyUnit = new EmptyUnit();
-		emptyUnit.setModified();
-		emptyUnit.setParentImage(largeIm);
-		for (int i = 0; i < largeIm.getUnitDim(); i++) {
-			emptyUnit.setId(i);
-			emptyUnit.setModified();			
-			emptyUnit.discard();
+		// an empty unit is a block of zeros, so truncating the file and
+		// extending it again empties every unit without writing them
+		try {
+			RandomAccessFile raAccess = new RandomAccessFile(largeIm.getFile(),
+					"rw");
+			try {
+				raAccess.setLength(0);
+				raAccess.setLength(largeIm.getUnitLength()
+						* (long) largeIm.getUnitDim());
+			} finally {
+				raAccess.close();
+			}
+		} catch (IOException e) {
+			throw new PelicanException("Unable to work in file "
+					+ largeIm.getFile().getAbsolutePath());
 		}
 	}
 
@@ -253,7 +373,8 @@ public class LargeImageUtil {
 	 * @see fr.unistra.pelican.util.largeImages.LargeImageInterface#close()
 	 */
 	public static final void close(LargeImageInterface largeIm) {
-		largeIm.getFile().delete();
+		if (!largeIm.isAttached())
+			largeIm.getFile().delete();
 	}
 
 	/**
@@ -1,10 +1,6 @@
 package fr.unistra.pelican.util.largeImages;
 
-import java.io.File;
-import java.io.FileOutputStream;
-import java.io.IOException;
-import java.io.ObjectOutputStream;
-import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
 
 import fr.unistra.pelican.PelicanException;
 
@@ -39,6 +35,11 @@ public abstract class Unit {
 	 */
 	public transient Integer end = null;
 
+	/**
+	 * Reference of the unit in the clock of the LargeImageMemoryManager.
+	 */
+	public transient LargeImageMemoryManager.UnitRef usage = null;
+
 	/**
 	 * Constructor
 	 */
@@ -73,6 +74,16 @@ public abstract class Unit {
 		return this.modified;
 	}
 
+	/**
+	 * Tells the LargeImageMemoryManager that the unit has just been used, so
+	 * it is not the next one to be discarded. It does not need any lock.
+	 */
+	public void markUsed() {
+		if (this.usage != null) {
+			this.usage.markUsed();
+		}
+	}
+
 	/**
 	 * Set the index of the unit.
 	 * 
@@ -99,31 +110,7 @@ public abstract class Unit {
 	public void discard() {
 
 		if (this.isModified() && (this.parentImage != null)) {
-
-			File currentFile = this.parentImage.getFile();
-			long unitLength = this.parentImage.getUnitLength();
-
-			try {
-				RandomAccessFile randomAccess = new RandomAccessFile(
-						currentFile, "rw");
-				try {
-					randomAccess.seek((long) this.id * unitLength);
-					FileOutputStream fileOutput = new FileOutputStream(
-							randomAccess.getFD());
-					try {
-						ObjectOutputStream objectOutput = new ObjectOutputStream(
-								fileOutput);
-						objectOutput.writeUnshared(this);
-					} finally {
-						fileOutput.close();
-					}
-				} finally {
-					randomAccess.close();
-				}
-			} catch (IOException e) {
-				throw new PelicanException("Unable to work in the file "
-						+ currentFile.getAbsolutePath());
-			}
+			LargeImageUtil.writeUnit(this.parentImage, this);
 			this.setModified(false);
 		}
 	}
@@ -184,6 +171,41 @@ public abstract class Unit {
 	 * 		the size of the unit array
 	 */
 	public abstract int defaultSize();
+
+	/**
+	 * Gets the number of bytes used by one pixel in the file of the image.
+	 * 
+	 * @return the length of a pixel in bytes
+	 */
+	public abstract int getDataLength();
+
+	/**
+	 * Reads pixels from a raw block of the file of the image. The buffer must
+	 * be in little-endian byte order, as in the .praw files, and hold at least
+	 * count pixels from its position.
+	 * 
+	 * @param buffer
+	 *            buffer containing the raw pixels
+	 * @param first
+	 *            index of the first pixel to read in the unit
+	 * @param count
+	 *            number of pixels to read
+	 */
+	public abstract void readRaw(ByteBuffer buffer, int first, int count);
+
+	/**
+	 * Writes pixels into a raw block of the file of the image. The buffer must
+	 * be in little-endian byte order, as in the .praw files, and have room for
+	 * at least count pixels from its position.
+	 * 
+	 * @param buffer
+	 *            buffer receiving the raw pixels
+	 * @param first
+	 *            index of the first pixel to write from the unit
+	 * @param count
+	 *            number of pixels to write
+	 */
+	public abstract void writeRaw(ByteBuffer buffer, int first, int count);
 	
 	public boolean equals(Object o){
 		if(o==null||!(o instanceof Unit)){
@@ -0,0 +1,106 @@
+package fr.unistra.pelican.util.lut;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+
+import fr.unistra.pelican.AlgorithmException;
+
+/**
+ * Raw binary files of the LUTs : a magic string identifying the kind of LUT,
+ * a header specific to it, then the table, all in little-endian order. The
+ * files are mapped in memory to be loaded, so the table is copied in bulk.
+ *
+ * @author PELICAN team
+ */
+final class LUTFile {
+
+	/**
+	 * Never instanciate utility class
+	 */
+	private LUTFile() {
+	}
+
+	/**
+	 * Creates a header holding the magic string, followed by length bytes to
+	 * fill
+	 */
+	static ByteBuffer header(String magic, int length) {
+		ByteBuffer header = ByteBuffer.allocate(magic.length() + length).order(
+				ByteOrder.LITTLE_ENDIAN);
+		for (int i = 0; i < magic.length(); i++)
+			header.put((byte) magic.charAt(i));
+		return header;
+	}
+
+	/**
+	 * Writes the header and the table in a file, replacing it
+	 */
+	static void write(String filename, ByteBuffer header, ByteBuffer table) {
+		try {
+			RandomAccessFile file = new RandomAccessFile(filename, "rw");
+			try {
+				file.setLength(0);
+				FileChannel channel = file.getChannel();
+				while (header.hasRemaining())
+					channel.write(header);
+				while (table.hasRemaining())
+					channel.write(table);
+			} finally {
+				file.close();
+			}
+		} catch (IOException ex) {
+			throw new AlgorithmException("file writing error with file: "
+					+ filename, ex);
+		}
+	}
+
+	/**
+	 * Maps a file in memory, checking its magic string
+	 *
+	 * @return the content of the file, positioned after the magic string
+	 */
+	static ByteBuffer map(String filename, String magic, int header) {
+		try {
+			RandomAccessFile file = new RandomAccessFile(filename, "r");
+			try {
+				FileChannel channel = file.getChannel();
+				if (channel.size() < magic.length() + header)
+					throw new AlgorithmException("Not a LUT file : " + filename);
+				ByteBuffer data = channel.map(FileChannel.MapMode.READ_ONLY, 0,
+						channel.size()).order(ByteOrder.LITTLE_ENDIAN);
+				for (int i = 0; i < magic.length(); i++)
+					if (data.get() != magic.charAt(i))
+						throw new AlgorithmException("Not a LUT file : " + filename);
+				return data;
+			} finally {
+				file.close();
+			}
+		} catch (IOException ex) {
+			throw new AlgorithmException("file reading error with file: "
+					+ filename, ex);
+		}
+	}
+
+	/**
+	 * Tells whether a file is compressed with GZIP, as the serialized LUTs of
+	 * the previous versions
+	 */
+	static boolean isGZIP(String filename) {
+		try {
+			RandomAccessFile file = new RandomAccessFile(filename, "r");
+			try {
+				return file.length() >= 2 && file.read() == 0x1f
+						&& file.read() == 0x8b;
+			} finally {
+				file.close();
+			}
+		} catch (IOException ex) {
+			throw new AlgorithmException("file reading error with file: "
+					+ filename, ex);
+		}
+	}
+
+}
@@ -0,0 +1,295 @@
+package fr.unistra.pelican.util.lut;
+
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import fr.unistra.pelican.AlgorithmException;
+import fr.unistra.pelican.DoubleImage;
+import fr.unistra.pelican.Image;
+import fr.unistra.pelican.algorithms.conversion.RGBToXYZ;
+import fr.unistra.pelican.algorithms.conversion.XYZToLAB;
+import fr.unistra.pelican.util.Parallel;
+
+/**
+ * Look-Up Table converting three band colours with double values.
+ *
+ * The conversion is sampled on a regular grid of nodes^3 nodes (33 or 65 are
+ * usual) covering a box of the input space, and the colours are converted by
+ * trilinear interpolation between the eight surrounding nodes. Colours outside
+ * the box are clamped to it. The converted colours of the nodes are held in a
+ * single array, three doubles per node.
+ *
+ * The interpolation is exact for linear conversions such as RGBToXYZ. For the
+ * others, the error decreases with the square of the grid step, but it is
+ * larger where the conversion is not smooth, like the cube root of XYZToLAB
+ * near black.
+ *
+ * A LUT is saved as a raw binary file (see {@link LUTFile}) which is mapped in
+ * memory to be loaded.
+ */
+public class ThreeBandGridLUT implements Serializable
+{
+
+	private static final long serialVersionUID = 202610181200L;
+
+	/**
+	 * First bytes of a saved LUT
+	 */
+	static final String MAGIC = "PELGRD01";
+
+	/**
+	 * Number of nodes along each band
+	 */
+	private int nodes;
+
+	/**
+	 * Lower corner of the box covered by the grid
+	 */
+	private double[] min;
+
+	/**
+	 * Upper corner of the box covered by the grid
+	 */
+	private double[] max;
+
+	/**
+	 * Converted colours of the nodes, three doubles per node, the node (i,j,k)
+	 * starting at index 3*((i*nodes+j)*nodes+k)
+	 */
+	private double[] grid;
+
+	/**
+	 * Conversion of a colour, used to fill a LUT. It is called by several
+	 * threads at the same time.
+	 */
+	public static abstract class Function
+	{
+		/**
+		 * Converts a colour
+		 * @param a value of band 0
+		 * @param b value of band 1
+		 * @param c value of band 2
+		 * @param out array receiving the three converted bands
+		 */
+		public abstract void convert(double a, double b, double c, double[] out);
+	}
+
+	/**
+	 * Constructor
+	 */
+	private ThreeBandGridLUT() {}
+
+	/**
+	 * Builds the LUT of a conversion
+	 * @param nodes number of nodes along each band, at least 2
+	 * @param min lower corner of the box of the input space covered
+	 * @param max upper corner of the box of the input space covered
+	 * @param function the conversion
+	 */
+	public ThreeBandGridLUT(final int nodes, double[] min, double[] max, final Function function)
+	{
+		if (nodes < 2)
+			throw new AlgorithmException("A grid LUT needs at least 2 nodes per band");
+		for (int c=0;c<3;c++)
+			if (!(min[c] < max[c]))
+				throw new AlgorithmException("Invalid box for a grid LUT");
+		this.nodes = nodes;
+		this.min = min.clone();
+		this.max = max.clone();
+		this.grid = new double[3*nodes*nodes*nodes];
+		Parallel.forItems(nodes, grid.length, new Parallel.Range() {
+			public void run(int from, int to) {
+				double[] out = new double[3];
+				for(int i=from;i<to;i++)
+					for(int j=0,n=3*i*nodes*nodes;j<nodes;j++)
+						for(int k=0;k<nodes;k++,n+=3)
+						{
+							function.convert(node(0,i), node(1,j), node(2,k), out);
+							grid[n] = out[0];
+							grid[n+1] = out[1];
+							grid[n+2] = out[2];
+						}
+			}
+		});
+	}
+
+	/**
+	 * Gives the value of band c at the given node
+	 */
+	private double node(int c, int i)
+	{
+		return min[c]+(max[c]-min[c])*i/(nodes-1);
+	}
+
+	/**
+	 * Gives the number of nodes along each band
+	 * @return the number of nodes
+	 */
+	public int getNodes()
+	{
+		return nodes;
+	}
+
+	/**
+	 * Converts a colour by interpolation
+	 * @param a value of band 0
+	 * @param b value of band 1
+	 * @param c value of band 2
+	 * @param out array receiving the three converted bands
+	 */
+	public void convert(double a, double b, double c, double[] out)
+	{
+		int last = nodes-1;
+		// position of the colour in the grid, in nodes
+		double u = (a-min[0])*last/(max[0]-min[0]);
+		double v = (b-min[1])*last/(max[1]-min[1]);
+		double w = (c-min[2])*last/(max[2]-min[2]);
+		u = u < 0 ? 0 : u > last ? last : u;
+		v = v < 0 ? 0 : v > last ? last : v;
+		w = w < 0 ? 0 : w > last ? last : w;
+		int i = Math.min((int)u, last-1);
+		int j = Math.min((int)v, last-1);
+		int k = Math.min((int)w, last-1);
+		u -= i;
+		v -= j;
+		w -= k;
+		int n000 = 3*((i*nodes+j)*nodes+k);
+		int n010 = n000+3*nodes;
+		int n100 = n000+3*nodes*nodes;
+		int n110 = n100+3*nodes;
+		for (int band=0;band<3;band++)
+		{
+			double c00 = grid[n000+band]+w*(grid[n000+3+band]-grid[n000+band]);
+			double c01 = grid[n010+band]+w*(grid[n010+3+band]-grid[n010+band]);
+			double c10 = grid[n100+band]+w*(grid[n100+3+band]-grid[n100+band]);
+			double c11 = grid[n110+band]+w*(grid[n110+3+band]-grid[n110+band]);
+			double c0 = c00+v*(c01-c00);
+			double c1 = c10+v*(c11-c10);
+			out[band] = c0+u*(c1-c0);
+		}
+	}
+
+	/**
+	 * Converts a three band image, the colours being read with getPixelDouble
+	 * @param input the image to convert
+	 * @return the converted image
+	 */
+	public DoubleImage convert(final Image input)
+	{
+		if (input.getBDim() != 3)
+			throw new AlgorithmException("The input must be a three band image");
+		DoubleImage output = input.newDoubleImage();
+		final double[] values = output.getPixelsUnsafe();
+		Parallel.forItems(values.length/3, values.length, new Parallel.Range() {
+			public void run(int from, int to) {
+				double[] out = new double[3];
+				for(int i=3*from;i<3*to;i=i+3)
+				{
+					convert(input.getPixelDouble(i), input.getPixelDouble(i+1), input.getPixelDouble(i+2), out);
+					values[i] = out[0];
+					values[i+1] = out[1];
+					values[i+2] = out[2];
+				}
+			}
+		});
+		return output;
+	}
+
+	/**
+	 * Create the LUT for converting RGB image to XYZ Image, the RGB values being
+	 * in [0,1] as given by getPixelDouble. The interpolation is exact.
+	 * @param nodes number of nodes along each band
+	 * @return LUT RGBToXYZ
+	 */
+	public static ThreeBandGridLUT getRGBToXYZLUT(int nodes)
+	{
+		return new ThreeBandGridLUT(nodes, new double[]{0,0,0}, new double[]{1,1,1}, new Function() {
+			public void convert(double r, double g, double b, double[] out) {
+				double[] xyz = RGBToXYZ.convert(r*255, g*255, b*255);
+				System.arraycopy(xyz, 0, out, 0, 3);
+			}
+		});
+	}
+
+	/**
+	 * Create the LUT for converting XYZ image to Lab Image, covering the XYZ
+	 * values of the RGB colours
+	 * @param nodes number of nodes along each band
+	 * @return LUT XYZToLab
+	 */
+	public static ThreeBandGridLUT getXYZToLabLUT(int nodes)
+	{
+		double[] white = RGBToXYZ.convert(255.0, 255.0, 255.0);
+		return new ThreeBandGridLUT(nodes, new double[]{0,0,0}, white, new Function() {
+			public void convert(double x, double y, double z, double[] out) {
+				double[] lab = XYZToLAB.convert(x, y, z);
+				System.arraycopy(lab, 0, out, 0, 3);
+			}
+		});
+	}
+
+	/**
+	 * Create the LUT for converting RGB image to Lab Image, the RGB values being
+	 * in [0,1] as given by getPixelDouble
+	 * @param nodes number of nodes along each band
+	 * @return LUT RGBToLab
+	 */
+	public static ThreeBandGridLUT getRGBToLabLUT(int nodes)
+	{
+		return new ThreeBandGridLUT(nodes, new double[]{0,0,0}, new double[]{1,1,1}, new Function() {
+			public void convert(double r, double g, double b, double[] out) {
+				double[] xyz = RGBToXYZ.convert(r*255, g*255, b*255);
+				double[] lab = XYZToLAB.convert(xyz[0], xyz[1], xyz[2]);
+				System.arraycopy(lab, 0, out, 0, 3);
+			}
+		});
+	}
+
+	/**
+	 * Save the LUT on the specified filename
+	 * @param filename
+	 */
+	public void save(String filename)
+	{
+		ByteBuffer header = LUTFile.header(MAGIC, 56);
+		header.putInt(nodes);
+		header.putInt(3);
+		for (int c=0;c<3;c++)
+		{
+			header.putDouble(min[c]);
+			header.putDouble(max[c]);
+		}
+		header.flip();
+		ByteBuffer table = ByteBuffer.allocate(8*grid.length).order(ByteOrder.LITTLE_ENDIAN);
+		table.asDoubleBuffer().put(grid);
+		LUTFile.write(filename, header, table);
+	}
+
+	/**
+	 * Load a LUT from a specified filename
+	 * @param filename
+	 * @return LUT
+	 */
+	public static ThreeBandGridLUT load(String filename)
+	{
+		ByteBuffer data = LUTFile.map(filename, MAGIC, 56);
+		ThreeBandGridLUT lut = new ThreeBandGridLUT();
+		lut.nodes = data.getInt();
+		if (lut.nodes < 2 || lut.nodes > 1024 || data.getInt() != 3)
+			throw new AlgorithmException("Invalid LUT file: " + filename);
+		lut.min = new double[3];
+		lut.max = new double[3];
+		for (int c=0;c<3;c++)
+		{
+			lut.min[c] = data.getDouble();
+			lut.max[c] = data.getDouble();
+		}
+		lut.grid = new double[3*lut.nodes*lut.nodes*lut.nodes];
+		if (data.remaining() != 8*lut.grid.length)
+			throw new AlgorithmException("Invalid LUT file: " + filename);
+		data.asDoubleBuffer().get(lut.grid);
+		return lut;
+	}
+
+}
@@ -394,6 +394,30 @@ public class MaskStack extends Stack<Mask> implements Mask {
 		this.policy = policy;
 	}
 
+	/**
+	 * Get this MaskStack's comparaison policy.
+	 *
+	 * @return One of the "public static final int" constants wich are at the
+	 *         beginning of this class declaration.
+	 */
+	public int getPolicy() {
+		return this.policy;
+	}
+
+	/**
+	 * Tells whether every pixel is present whatever its location, that is to
+	 * say if testing the stack can be skipped altogether.
+	 *
+	 * @return true if no pixel can be masked by this stack
+	 */
+	public boolean isTransparent() {
+		if (this.policy == TRUE)
+			return true;
+		if (this.policy == FALSE)
+			return false;
+		return this.isEmpty();
+	}
+
 	/**
 	 * Attempts to merge BooleanMasks contained in {@link #mask} if they are all
 	 * equal to each other. A time consumer, but room-saver.
@@ -0,0 +1,474 @@
+package fr.unistra.pelican.util.morphology;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.TreeSet;
+
+import fr.unistra.pelican.BooleanImage;
+import fr.unistra.pelican.Image;
+import fr.unistra.pelican.util.Parallel;
+import fr.unistra.pelican.util.Point4D;
+
+/**
+ * Flat erosion and dilation engine, used by the gray and binary erosions and
+ * dilations with any flat structuring element.
+ * <p>
+ * The structuring element is decomposed once :
+ * <ul>
+ * <li>a full box (line, rectangle, 3-D box...) is processed as a sequence of
+ * 1-D filters along X, Y, Z and T;</li>
+ * <li>any other shape is split into periodic lines (P. Soille, E. Breen, R.
+ * Jones, <i>Recursive implementation of erosions and dilations along discrete
+ * lines at arbitrary angles</i>, 1996) : runs of points {p, p+v, ..., p+(k-1)v}
+ * along the direction v giving the cheapest decomposition. Each distinct run
+ * length is filtered once along v, then the runs are combined with a min (or
+ * max) over their starting points.</li>
+ * </ul>
+ * The 1-D filters use the algorithm of van Herk and Gil-Werman (M. van Herk,
+ * <i>A fast algorithm for local minimum and maximum filters on rectangular and
+ * octogonal kernels</i>, 1992), whose cost per pixel does not depend on the
+ * length of the line. The image is padded with a given value so that neither
+ * the image size nor the position of the center of the structuring element is
+ * restricted.
+ * <p>
+ * The structuring element is decomposed exactly, not approximated, so the
+ * cost per pixel is constant only for boxes and for lines along an axis or a
+ * diagonal. Otherwise it grows with the number of runs (see getRunCount) : a
+ * digital line at another angle gives a few runs, their number growing
+ * slowly with its length (9 for a line of length 41 at 30 degrees), and a
+ * disc, a diamond or an octagon gives one run per chord, about its diameter.
+ *
+ * @author PELICAN team
+ */
+public class FlatMorphology {
+
+	/** Largest component of the candidate directions of periodic lines. */
+	private static final int MAX_PERIOD = 16;
+
+	/** Relative cost of a 1-D filter compared to the combination of one run. */
+	private static final int FILTER_COST = 3;
+
+	// lowest and highest offsets of the structuring element along each axis
+	private final int[] lo = new int[4];
+	private final int[] hi = new int[4];
+
+	// true if the structuring element fills its bounding box
+	private final boolean box;
+
+	// direction of the runs and their lengths and starts relatively to the center
+	private int[] direction;
+	private int[] runLength;
+	private int[][] runStart;
+
+	/**
+	 * Decomposes a flat structuring element.
+	 *
+	 * @param se
+	 *            flat structuring element
+	 */
+	public FlatMorphology(BooleanImage se) {
+		Point4D center = se.getCenter();
+		Point4D[] points = se.foreground();
+		int[][] offsets = new int[points.length][];
+		for (int i = 0; i < points.length; i++) {
+			offsets[i] = new int[] { points[i].x - center.x,
+				points[i].y - center.y, points[i].z - center.z,
+				points[i].t - center.t };
+			for (int a = 0; a < 4; a++) {
+				if (i == 0 || offsets[i][a] < lo[a])
+					lo[a] = offsets[i][a];
+				if (i == 0 || offsets[i][a] > hi[a])
+					hi[a] = offsets[i][a];
+			}
+		}
+		int volume = 1;
+		for (int a = 0; a < 4; a++)
+			volume *= hi[a] - lo[a] + 1;
+		box = points.length > 0 && points.length == volume;
+		if (!box)
+			decompose(offsets);
+	}
+
+	/**
+	 * Tells whether the structuring element is processed as a box.
+	 *
+	 * @return true if the structuring element fills its bounding box
+	 */
+	public boolean isBox() {
+		return box;
+	}
+
+	/**
+	 * Gets the number of periodic lines of the decomposition.
+	 *
+	 * @return the number of runs, 0 for a box
+	 */
+	public int getRunCount() {
+		return box ? 0 : runLength.length;
+	}
+
+	/**
+	 * Erodes or dilates every band of an image.
+	 * <p>
+	 * A pixel outside the image counts as <tt>padding</tt>, a pixel hidden by
+	 * the mask of the input image as <tt>absent</tt>. Where every value under
+	 * the structuring element is neutral (infinite for gray images), the result
+	 * is the input pixel itself. Pixels hidden in the input image or by
+	 * <tt>mask</tt> are set to 0. Binary images are read and written as
+	 * booleans (0 or 1), whatever their type.
+	 *
+	 * @param input
+	 *            input image
+	 * @param output
+	 *            output image, of the same dimensions
+	 * @param mask
+	 *            pixels to compute, null for all of them
+	 * @param binary
+	 *            true to process the image as a binary one
+	 * @param dilation
+	 *            true for a dilation (max), false for an erosion (min)
+	 * @param absent
+	 *            value of the pixels hidden in the input image
+	 * @param padding
+	 *            value of the pixels outside the image
+	 */
+	public void apply(Image input, Image output, BooleanImage mask,
+			boolean binary, boolean dilation, double absent, double padding) {
+		int xdim = input.getXDim();
+		int ydim = input.getYDim();
+		int zdim = input.getZDim();
+		int tdim = input.getTDim();
+		int bdim = input.getBDim();
+		int size = xdim * ydim * zdim * tdim;
+		double neutral = dilation ? Double.NEGATIVE_INFINITY
+			: Double.POSITIVE_INFINITY;
+		boolean transparent = input.getMask().isTransparent();
+		double[] values = new double[size];
+		for (int b = 0; b < bdim; b++) {
+			for (int i = 0, p = b; i < size; i++, p += bdim)
+				if (!transparent && !input.isPresent(p))
+					values[i] = absent;
+				else if (binary)
+					values[i] = input.getPixelBoolean(p) ? 1 : 0;
+				else
+					values[i] = input.getPixelDouble(p);
+			double[] result = filter(values, xdim, ydim, zdim, tdim, dilation,
+				padding);
+			for (int i = 0, p = b; i < size; i++, p += bdim) {
+				double r = result[i];
+				if (!transparent && !input.isPresent(p) || mask != null
+					&& !mask.getPixelBoolean(p))
+					r = 0;
+				else if (r == neutral)
+					r = values[i];
+				if (binary)
+					output.setPixelBoolean(p, r > 0);
+				else
+					output.setPixelDouble(p, r);
+			}
+		}
+	}
+
+	/**
+	 * Erodes or dilates a single band volume.
+	 *
+	 * @param values
+	 *            pixel values, indexed by x+xdim*(y+ydim*(z+zdim*t))
+	 * @param xdim
+	 *            width
+	 * @param ydim
+	 *            height
+	 * @param zdim
+	 *            depth
+	 * @param tdim
+	 *            duration
+	 * @param dilation
+	 *            true for a dilation (max), false for an erosion (min)
+	 * @param padding
+	 *            value of the pixels outside the volume
+	 * @return the filtered values, neutral (infinite) where the structuring
+	 *         element is empty
+	 */
+	public double[] filter(double[] values, int xdim, int ydim, int zdim,
+			int tdim, final boolean dilation, double padding) {
+		final int[] dims = { xdim, ydim, zdim, tdim };
+		// padded volume, pixel x being stored at x+before
+		final int[] before = new int[4];
+		final int[] padded = new int[4];
+		for (int a = 0; a < 4; a++) {
+			before[a] = Math.max(0, -lo[a]);
+			padded[a] = before[a] + dims[a] + Math.max(0, hi[a]);
+		}
+		final int[] strides = { 1, padded[0], padded[0] * padded[1],
+			padded[0] * padded[1] * padded[2] };
+		double[] source = new double[strides[3] * padded[3]];
+		Arrays.fill(source, padding);
+		for (int t = 0, i = 0; t < tdim; t++)
+			for (int z = 0; z < zdim; z++)
+				for (int y = 0; y < ydim; y++, i += xdim)
+					System.arraycopy(values, i, source, index(0, y, z, t, before,
+						strides), xdim);
+
+		final double[] result = new double[values.length];
+		if (box) {
+			for (int a = 0; a < 4; a++) {
+				int[] v = new int[4];
+				v[a] = 1;
+				if (hi[a] > lo[a])
+					pass(source, padded, strides, v, hi[a] - lo[a] + 1, dilation);
+			}
+			combine(source, result, dims, before, strides, lo, true, dilation);
+		} else {
+			Arrays.fill(result, dilation ? Double.NEGATIVE_INFINITY
+				: Double.POSITIVE_INFINITY);
+			TreeSet<Integer> lengths = new TreeSet<Integer>();
+			for (int r = 0; r < runLength.length; r++)
+				lengths.add(runLength[r]);
+			double[] lines = null;
+			for (int length : lengths) {
+				double[] filtered = source;
+				if (length > 1) {
+					if (lines == null)
+						lines = new double[source.length];
+					System.arraycopy(source, 0, lines, 0, source.length);
+					pass(lines, padded, strides, direction, length, dilation);
+					filtered = lines;
+				}
+				for (int r = 0; r < runLength.length; r++)
+					if (runLength[r] == length)
+						combine(filtered, result, dims, before, strides,
+							runStart[r], false, dilation);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Index of a pixel in the padded volume.
+	 */
+	private static int index(int x, int y, int z, int t, int[] before,
+			int[] strides) {
+		return x + before[0] + (y + before[1]) * strides[1] + (z + before[2])
+			* strides[2] + (t + before[3]) * strides[3];
+	}
+
+	/**
+	 * Combines a filtered padded volume, shifted by an offset, with the result.
+	 */
+	private static void combine(final double[] lines, final double[] result,
+			final int[] dims, final int[] before, final int[] strides,
+			int[] offset, final boolean copy, final boolean dilation) {
+		final int shift = offset[0] + offset[1] * strides[1] + offset[2]
+			* strides[2] + offset[3] * strides[3];
+		final int xdim = dims[0];
+		Parallel.forItems(dims[1] * dims[2] * dims[3], result.length,
+			new Parallel.Range() {
+				public void run(int from, int to) {
+					for (int line = from; line < to; line++) {
+						int y = line % dims[1];
+						int z = (line / dims[1]) % dims[2];
+						int t = line / (dims[1] * dims[2]);
+						int q = index(0, y, z, t, before, strides) + shift;
+						int p = line * xdim;
+						if (copy)
+							System.arraycopy(lines, q, result, p, xdim);
+						else if (dilation) {
+							for (int x = 0; x < xdim; x++, p++, q++)
+								if (lines[q] > result[p])
+									result[p] = lines[q];
+						} else {
+							for (int x = 0; x < xdim; x++, p++, q++)
+								if (lines[q] < result[p])
+									result[p] = lines[q];
+						}
+					}
+				}
+			});
+	}
+
+	/**
+	 * Replaces every pixel by the min (or max) of the <tt>length</tt> pixels
+	 * starting at it along a direction, with the van Herk/Gil-Werman
+	 * algorithm.
+	 */
+	private static void pass(final double[] data, final int[] dims,
+			final int[] strides, final int[] v, final int length,
+			final boolean dilation) {
+		final int delta = v[0] + v[1] * strides[1] + v[2] * strides[2] + v[3]
+			* strides[3];
+
+		// the paths start at the pixels whose predecessor is outside
+		int count = 0;
+		int[] starts = new int[16];
+		int[] lengths = new int[16];
+		int maxLength = 0;
+		int[] u = new int[4];
+		for (u[3] = 0; u[3] < dims[3]; u[3]++)
+			for (u[2] = 0; u[2] < dims[2]; u[2]++)
+				for (u[1] = 0; u[1] < dims[1]; u[1]++)
+					for (u[0] = 0; u[0] < dims[0]; u[0]++) {
+						boolean start = false;
+						int n = Integer.MAX_VALUE;
+						for (int a = 0; a < 4; a++) {
+							if (v[a] == 0)
+								continue;
+							int previous = u[a] - v[a];
+							if (previous < 0 || previous >= dims[a])
+								start = true;
+							int steps = v[a] > 0 ? (dims[a] - 1 - u[a]) / v[a]
+								: u[a] / -v[a];
+							n = Math.min(n, steps + 1);
+						}
+						if (!start)
+							continue;
+						if (count == starts.length) {
+							starts = Arrays.copyOf(starts, 2 * count);
+							lengths = Arrays.copyOf(lengths, 2 * count);
+						}
+						starts[count] = u[0] + u[1] * strides[1] + u[2]
+							* strides[2] + u[3] * strides[3];
+						lengths[count++] = n;
+						maxLength = Math.max(maxLength, n);
+						if (v[0] == 1 && delta == 1)
+							break; // the rest of the row is not a start
+					}
+
+		final int[] pathStarts = starts;
+		final int[] pathLengths = lengths;
+		final int bufferLength = maxLength;
+		Parallel.forItems(count, data.length, new Parallel.Range() {
+			public void run(int from, int to) {
+				double[] values = new double[bufferLength];
+				double[] g = new double[bufferLength];
+				double[] h = new double[bufferLength];
+				for (int s = from; s < to; s++) {
+					int n = pathLengths[s];
+					for (int i = 0, p = pathStarts[s]; i < n; i++, p += delta)
+						values[i] = data[p];
+					filterPath(values, n, g, h, length, dilation);
+					for (int i = 0, p = pathStarts[s]; i < n; i++, p += delta)
+						data[p] = values[i];
+				}
+			}
+		});
+	}
+
+	/**
+	 * van Herk/Gil-Werman forward window filter of a path, in place.
+	 */
+	private static void filterPath(double[] values, int n, double[] g,
+			double[] h, int length, boolean dilation) {
+		for (int i = 0; i < n; i++)
+			if (i % length == 0)
+				g[i] = values[i];
+			else
+				g[i] = dilation ? Math.max(g[i - 1], values[i]) : Math.min(
+					g[i - 1], values[i]);
+		for (int i = n - 1; i >= 0; i--)
+			if (i % length == length - 1 || i == n - 1)
+				h[i] = values[i];
+			else
+				h[i] = dilation ? Math.max(h[i + 1], values[i]) : Math.min(
+					h[i + 1], values[i]);
+		for (int i = 0; i < n; i++) {
+			int last = Math.min(i + length - 1, n - 1);
+			if (last / length == i / length)
+				values[i] = h[i];
+			else
+				values[i] = dilation ? Math.max(h[i], g[last]) : Math.min(h[i],
+					g[last]);
+		}
+	}
+
+	/**
+	 * Splits the structuring element into periodic lines, choosing the
+	 * direction which minimises the cost of the filtering.
+	 */
+	private void decompose(int[][] offsets) {
+		HashSet<Long> set = new HashSet<Long>();
+		for (int[] o : offsets)
+			set.add(key(o[0], o[1], o[2], o[3]));
+
+		int best = Integer.MAX_VALUE;
+		for (int[] v : candidates()) {
+			int runs = 0;
+			HashSet<Integer> lengths = new HashSet<Integer>();
+			for (int[] o : offsets) {
+				if (set.contains(key(o[0] - v[0], o[1] - v[1], o[2] - v[2], o[3]
+					- v[3])))
+					continue;
+				runs++;
+				lengths.add(runLength(set, o, v));
+			}
+			lengths.remove(1);
+			int cost = runs + FILTER_COST * lengths.size();
+			if (cost < best) {
+				best = cost;
+				direction = v;
+			}
+		}
+
+		int runs = 0;
+		int[] v = direction;
+		for (int[] o : offsets)
+			if (!set.contains(key(o[0] - v[0], o[1] - v[1], o[2] - v[2], o[3]
+				- v[3])))
+				runs++;
+		runLength = new int[runs];
+		runStart = new int[runs][];
+		runs = 0;
+		for (int[] o : offsets)
+			if (!set.contains(key(o[0] - v[0], o[1] - v[1], o[2] - v[2], o[3]
+				- v[3]))) {
+				runStart[runs] = o;
+				runLength[runs++] = runLength(set, o, v);
+			}
+	}
+
+	/**
+	 * Number of points of the structuring element from a point along a
+	 * direction.
+	 */
+	private static int runLength(HashSet<Long> set, int[] o, int[] v) {
+		int length = 1;
+		while (set.contains(key(o[0] + length * v[0], o[1] + length * v[1],
+			o[2] + length * v[2], o[3] + length * v[3])))
+			length++;
+		return length;
+	}
+
+	/**
+	 * Candidate directions : the four axes and the primitive directions of the
+	 * XY plane with small components.
+	 */
+	private int[][] candidates() {
+		int rx = Math.min(MAX_PERIOD, hi[0] - lo[0]);
+		int ry = Math.min(MAX_PERIOD, hi[1] - lo[1]);
+		ArrayList<int[]> list = new ArrayList<int[]>();
+		list.add(new int[] { 1, 0, 0, 0 });
+		list.add(new int[] { 0, 1, 0, 0 });
+		list.add(new int[] { 0, 0, 1, 0 });
+		list.add(new int[] { 0, 0, 0, 1 });
+		for (int dx = 1; dx <= rx; dx++)
+			for (int dy = -ry; dy <= ry; dy++)
+				if (dy != 0 && gcd(dx, Math.abs(dy)) == 1)
+					list.add(new int[] { dx, dy, 0, 0 });
+		return list.toArray(new int[list.size()][]);
+	}
+
+	private static int gcd(int a, int b) {
+		while (b != 0) {
+			int r = a % b;
+			a = b;
+			b = r;
+		}
+		return a;
+	}
+
+	private static long key(int x, int y, int z, int t) {
+		return ((((long) (x & 0xFFFF) << 16 | (y & 0xFFFF)) << 16 | (z & 0xFFFF)) << 16)
+			| (t & 0xFFFF);
+	}
+
+}
@@ -0,0 +1,480 @@
+package fr.unistra.pelican.util.morphology;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+import fr.unistra.pelican.BooleanImage;
+import fr.unistra.pelican.ByteImage;
+import fr.unistra.pelican.Image;
+import fr.unistra.pelican.IntegerImage;
+import fr.unistra.pelican.util.Point4D;
+
+/**
+ * Histogram based rank filtering engine for byte and quantized integer images,
+ * used by median and rank filters with flat structuring elements.
+ * <p>
+ * Pixel values are first mapped to levels (the byte value itself, or the index
+ * of the value among the distinct values of the band for integer images), then
+ * a histogram of the levels under the structuring element is slid along each
+ * row. Histograms are two-tiered (coarse and fine bins), so finding a given
+ * rank costs about twice the square root of the number of levels.
+ * <p>
+ * Two sliding strategies are used :
+ * <ul>
+ * <li>rectangular 2-D structuring elements are processed with column
+ * histograms (S. Perreault and P. Hébert, <i>Median filtering in constant
+ * time</i>, 2007) : each pixel costs a constant number of operations whatever
+ * the size of the structuring element;</li>
+ * <li>any other flat structuring element (including 3-D and 4-D ones) is split
+ * into horizontal runs, and moving the window one pixel right removes and adds
+ * one pixel per run, as in Huang's algorithm.</li>
+ * </ul>
+ * Pixels outside the image are ignored, as in the naive filters. Masks are not
+ * taken into account, callers must check it themselves.
+ *
+ * @author PELICAN team
+ */
+public class HistogramRankFilter {
+
+	/**
+	 * Mean of the two central values, i.e. the median when the number of
+	 * values is odd.
+	 */
+	public static final int MEDIAN_MEAN = 0;
+
+	/** Upper median, i.e. the value of rank n/2 in ascending order. */
+	public static final int MEDIAN_UPPER = 1;
+
+	/** Value of a given rank counted from the maximum (rank 1 is the maximum). */
+	public static final int RANK_FROM_MAX = 2;
+
+	/** Maximum number of distinct values handled in a band. */
+	public static final int MAX_LEVELS = 65536;
+
+	/** Maximum number of levels for which column histograms are used. */
+	private static final int MAX_COLUMN_LEVELS = 256;
+
+	// horizontal runs of the structuring element, relatively to its center
+	private int nbRuns;
+	private int[] runDX0;
+	private int[] runDX1;
+	private int[] runDY;
+	private int[] runDZ;
+	private int[] runDT;
+
+	// bounding box of a rectangular 2-D structuring element, null otherwise
+	private int[] rectangle;
+
+	// current processing
+	private Image input;
+	private Image output;
+	private boolean byteValued;
+	private int mode;
+	private int rank;
+	private int band;
+	private int bdim;
+	private int[] values;
+
+	// two-tiered kernel histogram
+	private int nbLevels;
+	private int shift;
+	private int[] fine;
+	private int[] coarse;
+
+	// column histograms
+	private boolean columnMode;
+	private int[] colFine;
+	private int[] colCoarse;
+	private int[] lastSync;
+	private int kernelX;
+	private int xdim;
+
+	/**
+	 * Prepares the engine for a given flat structuring element.
+	 *
+	 * @param se
+	 *            the flat structuring element
+	 */
+	public HistogramRankFilter(BooleanImage se) {
+		Point4D[] points = se.foreground();
+		Point4D center = se.getCenter();
+		int[][] offsets = new int[points.length][];
+		for (int i = 0; i < points.length; i++)
+			offsets[i] = new int[] { points[i].t - center.t,
+				points[i].z - center.z, points[i].y - center.y,
+				points[i].x - center.x };
+		Arrays.sort(offsets, new Comparator<int[]>() {
+			public int compare(int[] a, int[] b) {
+				for (int k = 0; k < 4; k++)
+					if (a[k] != b[k])
+						return a[k] < b[k] ? -1 : 1;
+				return 0;
+			}
+		});
+		runDX0 = new int[points.length];
+		runDX1 = new int[points.length];
+		runDY = new int[points.length];
+		runDZ = new int[points.length];
+		runDT = new int[points.length];
+		nbRuns = 0;
+		for (int i = 0; i < offsets.length; i++) {
+			int[] o = offsets[i];
+			int r = nbRuns - 1;
+			if (r >= 0 && runDT[r] == o[0] && runDZ[r] == o[1]
+				&& runDY[r] == o[2] && runDX1[r] + 1 == o[3])
+				runDX1[r] = o[3];
+			else {
+				runDT[nbRuns] = o[0];
+				runDZ[nbRuns] = o[1];
+				runDY[nbRuns] = o[2];
+				runDX0[nbRuns] = o[3];
+				runDX1[nbRuns] = o[3];
+				nbRuns++;
+			}
+		}
+
+		// rectangular 2-D structuring element ?
+		if (nbRuns > 0) {
+			boolean flat2D = true;
+			int minX = runDX0[0], maxX = runDX1[0];
+			for (int r = 0; r < nbRuns && flat2D; r++)
+				flat2D = runDZ[r] == 0 && runDT[r] == 0 && runDX0[r] == minX
+					&& runDX1[r] == maxX
+					&& (r == 0 || runDY[r] == runDY[r - 1] + 1);
+			if (flat2D)
+				rectangle = new int[] { minX, maxX, runDY[0], runDY[nbRuns - 1] };
+		}
+	}
+
+	/**
+	 * Tells whether the engine can process a given image, i.e. if it is a byte
+	 * or integer valued one.
+	 *
+	 * @param image
+	 *            the image to filter
+	 * @return true if the engine applies to this kind of image
+	 */
+	public static boolean isApplicable(Image image) {
+		return image instanceof ByteImage || image instanceof IntegerImage;
+	}
+
+	/**
+	 * Filters all the bands of an image.
+	 *
+	 * @param input
+	 *            the input image, must be accepted by
+	 *            {@link #isApplicable(Image)}
+	 * @param output
+	 *            the output image, with the same dimensions
+	 * @param mode
+	 *            one of {@link #MEDIAN_MEAN}, {@link #MEDIAN_UPPER} or
+	 *            {@link #RANK_FROM_MAX}
+	 * @param rank
+	 *            the rank used by {@link #RANK_FROM_MAX}, ignored otherwise
+	 * @param byteValued
+	 *            if true, pixels are read and written as bytes whatever the
+	 *            type of the images
+	 * @return false if a band holds more than {@link #MAX_LEVELS} distinct
+	 *         values : the caller has then to fall back on another algorithm,
+	 *         as the output may have been partially written
+	 */
+	public boolean apply(Image input, Image output, int mode, int rank,
+		boolean byteValued) {
+		this.input = input;
+		this.output = output;
+		this.mode = mode;
+		this.rank = rank;
+		this.byteValued = byteValued || input instanceof ByteImage;
+		this.xdim = input.getXDim();
+		int ydim = input.getYDim();
+		int zdim = input.getZDim();
+		int tdim = input.getTDim();
+		this.bdim = input.getBDim();
+		int size = xdim * ydim * zdim * tdim;
+
+		char[] levels = new char[size];
+		int[] raw = this.byteValued ? null : new int[size];
+		int[] sorted = this.byteValued ? null : new int[size];
+
+		for (band = 0; band < bdim; band++) {
+			if (this.byteValued) {
+				for (int p = 0, loc = band; p < size; p++, loc += bdim)
+					levels[p] = (char) input.getPixelByte(loc);
+				setLevels(256);
+				values = null;
+			} else {
+				for (int p = 0, loc = band; p < size; p++, loc += bdim)
+					raw[p] = input.getPixelInt(loc);
+				System.arraycopy(raw, 0, sorted, 0, size);
+				Arrays.sort(sorted);
+				int distinct = 0;
+				for (int p = 0; p < size; p++)
+					if (distinct == 0 || sorted[p] != sorted[distinct - 1])
+						sorted[distinct++] = sorted[p];
+				if (distinct > MAX_LEVELS)
+					return false;
+				for (int p = 0; p < size; p++)
+					levels[p] = (char) Arrays.binarySearch(sorted, 0, distinct,
+						raw[p]);
+				setLevels(distinct);
+				values = sorted;
+			}
+
+			columnMode = rectangle != null && nbLevels <= MAX_COLUMN_LEVELS
+				&& rectangle[3] - rectangle[2] + 1 > coarse.length;
+			if (columnMode)
+				sweepColumns(levels, ydim, zdim, tdim);
+			else
+				sweepRuns(levels, ydim, zdim, tdim);
+		}
+		return true;
+	}
+
+	/*
+	 * Allocates the kernel histogram for a given number of levels.
+	 */
+	private void setLevels(int nbLevels) {
+		int bits = 32 - Integer.numberOfLeadingZeros(Math.max(nbLevels - 1, 0));
+		int shift = (bits + 1) / 2;
+		if (fine == null || this.nbLevels != nbLevels) {
+			this.nbLevels = nbLevels;
+			this.shift = shift;
+			fine = new int[nbLevels];
+			coarse = new int[((nbLevels - 1) >> shift) + 1];
+		}
+	}
+
+	/*
+	 * Slides the histogram along each row, one pixel being added and removed
+	 * per run of the structuring element.
+	 */
+	private void sweepRuns(char[] levels, int ydim, int zdim, int tdim) {
+		int[] base = new int[nbRuns];
+		int[] x0 = new int[nbRuns];
+		int[] x1 = new int[nbRuns];
+		for (int t = 0; t < tdim; t++)
+			for (int z = 0; z < zdim; z++)
+				for (int y = 0; y < ydim; y++) {
+					// runs falling inside the image for this row
+					int nv = 0;
+					for (int r = 0; r < nbRuns; r++) {
+						int yy = y + runDY[r];
+						int zz = z + runDZ[r];
+						int tt = t + runDT[r];
+						if (yy < 0 || yy >= ydim || zz < 0 || zz >= zdim
+							|| tt < 0 || tt >= tdim)
+							continue;
+						base[nv] = xdim * (yy + ydim * (zz + zdim * tt));
+						x0[nv] = runDX0[r];
+						x1[nv] = runDX1[r];
+						nv++;
+					}
+					int n = 0;
+					for (int v = 0; v < nv; v++)
+						for (int xx = Math.max(0, x0[v]); xx <= Math.min(
+							xdim - 1, x1[v]); xx++) {
+							add(levels[base[v] + xx]);
+							n++;
+						}
+					int row = xdim * (y + ydim * (z + zdim * t));
+					for (int x = 0; x < xdim; x++) {
+						emit(row + x, n);
+						if (x + 1 == xdim)
+							break;
+						for (int v = 0; v < nv; v++) {
+							int xo = x + x0[v];
+							if (xo >= 0 && xo < xdim) {
+								remove(levels[base[v] + xo]);
+								n--;
+							}
+							int xi = x + 1 + x1[v];
+							if (xi >= 0 && xi < xdim) {
+								add(levels[base[v] + xi]);
+								n++;
+							}
+						}
+					}
+					// empty the histogram for the next row
+					for (int v = 0; v < nv; v++)
+						for (int xx = Math.max(0, xdim - 1 + x0[v]); xx <= Math
+							.min(xdim - 1, xdim - 1 + x1[v]); xx++)
+							remove(levels[base[v] + xx]);
+				}
+	}
+
+	/*
+	 * Perreault and Hébert's algorithm : column histograms go down one row at
+	 * a time, the kernel histogram is updated by adding the entering column and
+	 * removing the leaving one. Only coarse bins are kept up to date, fine bins
+	 * being synchronized when the rank search needs them.
+	 */
+	private void sweepColumns(char[] levels, int ydim, int zdim, int tdim) {
+		int nbCoarse = coarse.length;
+		if (colFine == null || colFine.length != xdim * nbLevels) {
+			colFine = new int[xdim * nbLevels];
+			colCoarse = new int[xdim * nbCoarse];
+		}
+		lastSync = new int[nbCoarse];
+		int dx0 = rectangle[0], dx1 = rectangle[1];
+		int dy0 = rectangle[2], dy1 = rectangle[3];
+
+		for (int t = 0; t < tdim; t++)
+			for (int z = 0; z < zdim; z++) {
+				int plane = xdim * ydim * (z + zdim * t);
+				Arrays.fill(colFine, 0);
+				Arrays.fill(colCoarse, 0);
+				for (int yy = Math.max(0, dy0); yy <= Math.min(ydim - 1, dy1); yy++)
+					for (int x = 0; x < xdim; x++)
+						columnAdd(x, levels[plane + yy * xdim + x], 1);
+
+				for (int y = 0; y < ydim; y++) {
+					int rows = Math.min(ydim - 1, y + dy1) - Math.max(0, y + dy0)
+						+ 1;
+					if (rows < 0)
+						rows = 0;
+					Arrays.fill(coarse, 0);
+					Arrays.fill(lastSync, Integer.MIN_VALUE / 2);
+					for (int xx = Math.max(0, dx0); xx <= Math.min(xdim - 1, dx1); xx++)
+						kernelCoarse(xx, 1);
+
+					for (int x = 0; x < xdim; x++) {
+						int cols = Math.min(xdim - 1, x + dx1)
+							- Math.max(0, x + dx0) + 1;
+						if (cols < 0)
+							cols = 0;
+						kernelX = x;
+						emit(plane + y * xdim + x, rows * cols);
+						if (x + 1 == xdim)
+							break;
+						int xo = x + dx0;
+						if (xo >= 0 && xo < xdim)
+							kernelCoarse(xo, -1);
+						int xi = x + 1 + dx1;
+						if (xi >= 0 && xi < xdim)
+							kernelCoarse(xi, 1);
+					}
+
+					if (y + 1 == ydim)
+						break;
+					int yo = y + dy0;
+					if (yo >= 0 && yo < ydim)
+						for (int x = 0; x < xdim; x++)
+							columnAdd(x, levels[plane + yo * xdim + x], -1);
+					int yi = y + 1 + dy1;
+					if (yi >= 0 && yi < ydim)
+						for (int x = 0; x < xdim; x++)
+							columnAdd(x, levels[plane + yi * xdim + x], 1);
+				}
+			}
+	}
+
+	private void columnAdd(int x, int level, int delta) {
+		colFine[x * nbLevels + level] += delta;
+		colCoarse[x * coarse.length + (level >> shift)] += delta;
+	}
+
+	private void kernelCoarse(int x, int sign) {
+		int nbCoarse = coarse.length;
+		int offset = x * nbCoarse;
+		for (int c = 0; c < nbCoarse; c++)
+			coarse[c] += sign * colCoarse[offset + c];
+	}
+
+	/*
+	 * Brings the fine bins of a coarse bin up to date with the kernel position.
+	 */
+	private void syncFine(int c) {
+		int last = lastSync[c];
+		if (last == kernelX)
+			return;
+		int lo = c << shift;
+		int hi = Math.min(lo + (1 << shift), nbLevels);
+		int dx0 = rectangle[0], dx1 = rectangle[1];
+		if (kernelX - last > dx1 - dx0 + 1) {
+			for (int l = lo; l < hi; l++)
+				fine[l] = 0;
+			for (int xx = Math.max(0, kernelX + dx0); xx <= Math.min(xdim - 1,
+				kernelX + dx1); xx++) {
+				int offset = xx * nbLevels;
+				for (int l = lo; l < hi; l++)
+					fine[l] += colFine[offset + l];
+			}
+		} else {
+			for (int s = last + 1; s <= kernelX; s++) {
+				int xo = s - 1 + dx0;
+				if (xo >= 0 && xo < xdim) {
+					int offset = xo * nbLevels;
+					for (int l = lo; l < hi; l++)
+						fine[l] -= colFine[offset + l];
+				}
+				int xi = s + dx1;
+				if (xi >= 0 && xi < xdim) {
+					int offset = xi * nbLevels;
+					for (int l = lo; l < hi; l++)
+						fine[l] += colFine[offset + l];
+				}
+			}
+		}
+		lastSync[c] = kernelX;
+	}
+
+	private void add(int level) {
+		fine[level]++;
+		coarse[level >> shift]++;
+	}
+
+	private void remove(int level) {
+		fine[level]--;
+		coarse[level >> shift]--;
+	}
+
+	/*
+	 * Returns the level of rank k (starting from 0) in ascending order.
+	 */
+	private int levelOfRank(int k) {
+		int c = 0;
+		int cum = 0;
+		while (cum + coarse[c] <= k)
+			cum += coarse[c++];
+		if (columnMode)
+			syncFine(c);
+		int l = c << shift;
+		while (cum + fine[l] <= k)
+			cum += fine[l++];
+		return l;
+	}
+
+	private int valueOfRank(int k) {
+		int level = levelOfRank(k);
+		return values == null ? level : values[level];
+	}
+
+	/*
+	 * Computes and writes the result for pixel p of the current band, n being
+	 * the number of values in the histogram.
+	 */
+	private void emit(int p, int n) {
+		int loc = band + bdim * p;
+		int value;
+		if (n == 0)
+			value = byteValued ? input.getPixelByte(loc) : input.getPixelInt(loc);
+		else
+			switch (mode) {
+			case MEDIAN_MEAN:
+				value = valueOfRank((n - 1) / 2);
+				if (n % 2 == 0)
+					value = (int) (((long) value + valueOfRank(n / 2)) / 2);
+				break;
+			case MEDIAN_UPPER:
+				value = valueOfRank(n / 2);
+				break;
+			default:
+				value = valueOfRank(n - Math.min(rank, n));
+			}
+		if (byteValued)
+			output.setPixelByte(loc, value);
+		else
+			output.setPixelInt(loc, value);
+	}
+
+}
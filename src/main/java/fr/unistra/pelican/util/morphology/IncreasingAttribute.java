@@ -0,0 +1,183 @@
+package fr.unistra.pelican.util.morphology;
+
+/**
+ * Increasing attribute of the connected components, as used by the union-find
+ * attribute openings and closings (A. Meijster, M.H.F. Wilkinson, <i>A
+ * comparison of algorithms for connected set openings and closings</i>,
+ * 2002).
+ * <p>
+ * The attribute is accumulated in arrays indexed by pixel : every pixel
+ * starts as a set of its own, then the sets are merged two by two, the values
+ * of a set being those of its root. An attribute is increasing if the value
+ * of a component is never lower than the value of a component it contains,
+ * so that a component containing a component reaching the threshold reaches
+ * it too.
+ * <p>
+ * An instance holds the arrays of one filtering, so it must not be shared
+ * between threads. New attributes only have to implement the four methods.
+ *
+ * @author PELICAN team
+ */
+public abstract class IncreasingAttribute {
+
+	/**
+	 * Dimensions of the filtered image
+	 */
+	protected int xdim, ydim, zdim;
+
+	/**
+	 * Allocates the arrays for an image, called before each filtering.
+	 *
+	 * @param xdim
+	 * @param ydim
+	 * @param zdim
+	 */
+	public void allocate(int xdim, int ydim, int zdim) {
+		this.xdim = xdim;
+		this.ydim = ydim;
+		this.zdim = zdim;
+		allocate(xdim * ydim * zdim);
+	}
+
+	/**
+	 * Allocates the arrays for the given number of pixels.
+	 *
+	 * @param size
+	 *            number of pixels
+	 */
+	protected abstract void allocate(int size);
+
+	/**
+	 * Initialises the attribute of a pixel alone in its set.
+	 *
+	 * @param p
+	 *            pixel index, x+xdim*(y+ydim*z)
+	 * @param value
+	 *            value of the pixel, opposite for a closing
+	 */
+	public abstract void init(int p, double value);
+
+	/**
+	 * Merges the set of root <tt>r</tt> into the set of root <tt>p</tt>.
+	 *
+	 * @param p
+	 *            root of the result
+	 * @param r
+	 *            root of the merged set
+	 */
+	public abstract void merge(int p, int r);
+
+	/**
+	 * Tells whether the component of root <tt>r</tt> reaches the threshold,
+	 * the component being seen just above the given level.
+	 *
+	 * @param r
+	 *            root of the set
+	 * @param level
+	 *            level of the pixel which is merging the set, opposite for a
+	 *            closing
+	 * @param threshold
+	 *            threshold of the filter
+	 * @return true if the component must be kept
+	 */
+	public abstract boolean reaches(int r, double level, double threshold);
+
+	/**
+	 * Number of pixels of the components.
+	 */
+	public static class Area extends IncreasingAttribute {
+
+		private int[] area;
+
+		protected void allocate(int size) {
+			area = new int[size];
+		}
+
+		public void init(int p, double value) {
+			area[p] = 1;
+		}
+
+		public void merge(int p, int r) {
+			area[p] += area[r];
+		}
+
+		public boolean reaches(int r, double level, double threshold) {
+			return area[r] >= threshold;
+		}
+	}
+
+	/**
+	 * Length of the diagonal of the bounding boxes of the components, a
+	 * single pixel having a diagonal of sqrt(2) in 2-D.
+	 */
+	public static class BoundingBoxDiagonal extends IncreasingAttribute {
+
+		private int[] xmin, xmax, ymin, ymax, zmin, zmax;
+
+		protected void allocate(int size) {
+			xmin = new int[size];
+			xmax = new int[size];
+			ymin = new int[size];
+			ymax = new int[size];
+			zmin = new int[size];
+			zmax = new int[size];
+		}
+
+		public void init(int p, double value) {
+			int x = p % xdim;
+			int y = (p / xdim) % ydim;
+			int z = p / (xdim * ydim);
+			xmin[p] = xmax[p] = x;
+			ymin[p] = ymax[p] = y;
+			zmin[p] = zmax[p] = z;
+		}
+
+		public void merge(int p, int r) {
+			xmin[p] = Math.min(xmin[p], xmin[r]);
+			xmax[p] = Math.max(xmax[p], xmax[r]);
+			ymin[p] = Math.min(ymin[p], ymin[r]);
+			ymax[p] = Math.max(ymax[p], ymax[r]);
+			zmin[p] = Math.min(zmin[p], zmin[r]);
+			zmax[p] = Math.max(zmax[p], zmax[r]);
+		}
+
+		public boolean reaches(int r, double level, double threshold) {
+			double dx = xmax[r] - xmin[r] + 1;
+			double dy = ymax[r] - ymin[r] + 1;
+			double dz = zdim > 1 ? zmax[r] - zmin[r] + 1 : 0;
+			return dx * dx + dy * dy + dz * dz >= threshold * threshold;
+		}
+	}
+
+	/**
+	 * Volume of the components above the level where they are merged, i.e.
+	 * the sum of the differences between the values of their pixels and this
+	 * level, as the AttributeVolume of the component trees.
+	 */
+	public static class Volume extends IncreasingAttribute {
+
+		private int[] area;
+
+		private double[] sum;
+
+		protected void allocate(int size) {
+			area = new int[size];
+			sum = new double[size];
+		}
+
+		public void init(int p, double value) {
+			area[p] = 1;
+			sum[p] = value;
+		}
+
+		public void merge(int p, int r) {
+			area[p] += area[r];
+			sum[p] += sum[r];
+		}
+
+		public boolean reaches(int r, double level, double threshold) {
+			return sum[r] - area[r] * level >= threshold;
+		}
+	}
+
+}
@@ -0,0 +1,161 @@
+package fr.unistra.pelican.util.morphology;
+
+import java.util.Arrays;
+
+import fr.unistra.pelican.BooleanImage;
+import fr.unistra.pelican.PackedBooleanImage;
+import fr.unistra.pelican.util.Parallel;
+import fr.unistra.pelican.util.Point4D;
+
+/**
+ * Binary erosion and dilation of packed images by any flat structuring
+ * element, 64 pixels at a time.
+ * <p>
+ * Every point of the structuring element shifts the rows of the input image,
+ * which are combined with a word-wide AND (erosion) or OR (dilation). The cost
+ * is the number of points of the structuring element per 64 pixels. Every
+ * pixel of the input image must be present.
+ *
+ * @author PELICAN team
+ */
+public class PackedMorphology {
+
+	/**
+	 * Offsets of the points of the structuring element from its center, as
+	 * {x,y,z,t}
+	 */
+	private final int[][] offsets;
+
+	/**
+	 * Prepares the erosion and dilation by a structuring element.
+	 *
+	 * @param se
+	 *            flat structuring element
+	 */
+	public PackedMorphology(BooleanImage se) {
+		Point4D[] points = se.foreground();
+		Point4D center = se.getCenter();
+		offsets = new int[points.length][];
+		for (int i = 0; i < points.length; i++)
+			offsets[i] = new int[] { points[i].x - center.x,
+					points[i].y - center.y, points[i].z - center.z,
+					points[i].t - center.t };
+	}
+
+	/**
+	 * Erodes or dilates every band of a packed image. Where no point of the
+	 * structuring element falls inside the image, the result is the input
+	 * pixel itself, as in {@link fr.unistra.pelican.algorithms.morphology.binary.BinaryErosion}.
+	 *
+	 * @param input
+	 *            input image, without any hidden pixel
+	 * @param output
+	 *            output image, of the same dimensions
+	 * @param dilation
+	 *            true for a dilation, false for an erosion
+	 * @param strong
+	 *            true if the pixels outside the image are black for an erosion
+	 *            or white for a dilation, false to ignore them
+	 */
+	public void apply(PackedBooleanImage input, PackedBooleanImage output,
+			final boolean dilation, final boolean strong) {
+		final long[] source = input.getWordsUnsafe();
+		final long[] target = output.getWordsUnsafe();
+		if (offsets.length == 0) {
+			System.arraycopy(source, 0, target, 0, source.length);
+			return;
+		}
+		final int xdim = input.getXDim();
+		final int ydim = input.getYDim();
+		final int zdim = input.getZDim();
+		final int tdim = input.getTDim();
+		final int bdim = input.getBDim();
+		final int rowBits = xdim * bdim;
+		final int rowWords = PackedBooleanImage.wordCount(rowBits);
+
+		Parallel.forLines(output, tdim * zdim * ydim, new Parallel.Range() {
+			public void run(int from, int to) {
+				long[] acc = new long[rowWords];
+				long[] any = new long[rowWords];
+				for (int line = from; line < to; line++) {
+					int y = line % ydim;
+					int z = (line / ydim) % zdim;
+					int t = line / (ydim * zdim);
+					Arrays.fill(acc, dilation ? 0L : -1L);
+					Arrays.fill(any, 0L);
+					// pixels for which every point falls inside the image
+					int allLo = 0, allHi = rowBits;
+
+					for (int[] o : offsets) {
+						int sy = y + o[1], sz = z + o[2], st = t + o[3];
+						int lo = Math.max(0, -o[0]) * bdim;
+						int hi = Math.min(xdim, xdim - o[0]) * bdim;
+						if (sy < 0 || sy >= ydim || sz < 0 || sz >= zdim
+								|| st < 0 || st >= tdim || lo >= hi) {
+							allHi = 0;
+							continue;
+						}
+						allLo = Math.max(allLo, lo);
+						allHi = Math.min(allHi, hi);
+						int start = ((st * zdim + sz) * ydim + sy) * rowBits + lo
+								+ o[0] * bdim;
+						for (int w = lo >>> 6; w <= (hi - 1) >>> 6; w++) {
+							int first = w << 6;
+							long value = first >= lo ? PackedBooleanImage.getBits(
+									source, start + first - lo) : PackedBooleanImage
+									.getBits(source, start) << (lo - first);
+							long mask = range(w, lo, hi);
+							if (dilation)
+								acc[w] |= value & mask;
+							else
+								acc[w] &= value | ~mask;
+							any[w] |= mask;
+						}
+					}
+
+					int rowStart = line * rowBits;
+					for (int w = 0; w < rowWords; w++) {
+						int first = w << 6;
+						if (strong) {
+							long all = range(w, allLo, allHi);
+							if (dilation)
+								acc[w] |= ~all;
+							else
+								acc[w] &= all;
+						} else {
+							long pixels = PackedBooleanImage.getBits(source,
+									rowStart + first);
+							if (dilation)
+								acc[w] |= pixels & ~any[w];
+							else
+								acc[w] &= pixels | any[w];
+						}
+						PackedBooleanImage.setBits(target, rowStart + first,
+								acc[w], Math.min(64, rowBits - first));
+					}
+				}
+			}
+		});
+	}
+
+	/**
+	 * Gives the bits of a word which are between two pixel indexes of a row.
+	 *
+	 * @param w
+	 *            index of the word in the row
+	 * @param lo
+	 *            first pixel index (inclusive)
+	 * @param hi
+	 *            last pixel index (exclusive)
+	 * @return the mask of the bits of the word
+	 */
+	private static long range(int w, int lo, int hi) {
+		int first = Math.max(lo - (w << 6), 0);
+		int last = Math.min(hi - (w << 6), 64);
+		if (first >= last)
+			return 0;
+		long high = last == 64 ? -1L : (1L << last) - 1;
+		return high & (-1L << first);
+	}
+
+}
@@ -15,6 +15,7 @@ import fr.unistra.pelican.IntegerImage;
 
 /**
  * Loads an image (in BIL format) into an Image
+ * (HdrReader now reads the BIL files with EnviReader)
  * @author Clément Hengy
  */
 public final class BILReader extends BinReader {
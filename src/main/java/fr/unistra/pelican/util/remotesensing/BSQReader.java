@@ -17,6 +17,7 @@ import fr.unistra.pelican.IntegerImage;
 
 /**
  * Loads an image (in BSQ format) into an Image
+ * (HdrReader now reads the BSQ files with EnviReader)
  * @author Clément Hengy, Jonathan Weber
  */
 public final class BSQReader extends BinReader {
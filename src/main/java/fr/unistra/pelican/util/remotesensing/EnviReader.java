@@ -0,0 +1,346 @@
+package fr.unistra.pelican.util.remotesensing;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+import fr.unistra.pelican.ByteImage;
+import fr.unistra.pelican.DoubleImage;
+import fr.unistra.pelican.Image;
+import fr.unistra.pelican.IntegerImage;
+import fr.unistra.pelican.PelicanException;
+import fr.unistra.pelican.util.Parallel;
+
+
+/**
+ * Loads an image in BSQ, BIL or BIP format into an Image.
+ *
+ * The binary file is mapped in memory and read a row at a time through the
+ * typed views of the mapped buffer, in the byte order of the header. Only a
+ * window of the image and a subset of its bands can be read, the bands being
+ * decoded in parallel.
+ *
+ * The pixels types are those of BSQReader and BILReader : bytes give a
+ * ByteImage, 16 and 32 bits integers an IntegerImage, floating point values a
+ * DoubleImage. Unsigned 16 bits integers (data type 12) give an IntegerImage,
+ * except for BSQ files where, as BSQReader did, they are read as signed and
+ * scaled by 2^-11 into a DoubleImage.
+ *
+ * @author PELICAN team
+ */
+public final class EnviReader extends BinReader {
+
+	/**
+	 * Largest part of the file mapped at once, a row of the file is also
+	 * mapped at the end of each part so that no row is split
+	 */
+	private static final long SEGMENT = 1L << 30;
+
+	/**
+	 * Bands to read, all if null
+	 */
+	private int[] bands = null;
+
+	public EnviReader(HdrReader h, String p){
+		this.hr = h;
+		this.path = new File(p).getAbsoluteFile();
+	}
+
+	/**
+	 * Sets the bands to read, in the order of the bands of the image built.
+	 *
+	 * @param bands indexes of the bands in the file, or null for all of them
+	 */
+	public void setBands(int[] bands){
+		this.bands = bands;
+	}
+
+	public Image getPelicanImage() throws Throwable {
+		return this.getPelicanImage(0, 0, hr.getCols()-1, hr.getLines()-1);
+	}
+
+	/**
+	 * Reads the pixels from (sx,sy) to (ex,ey), included.
+	 */
+	public Image getPelicanImage(int sx, int sy, int ex, int ey) throws Throwable {
+		final int cols = hr.getCols();
+		final int lines = hr.getLines();
+		final int fileBands = hr.getBands();
+		final int bytesNumber = hr.getBytesNumber();
+		final int dataType = hr.getDataType();
+		final int format = hr.getFileType();
+		if(sx < 0 || sy < 0 || ex >= cols || ey >= lines || sx > ex || sy > ey)
+			throw new PelicanException("Invalid window (" + sx + "," + sy + ")-(" + ex + "," + ey + ") for a " + cols + "x" + lines + " image");
+		final int[] selected;
+		if(null == bands){
+			selected = new int[fileBands];
+			for(int b = 0; b < fileBands; ++b)
+				selected[b] = b;
+		}
+		else
+			selected = bands.clone();
+		for(int b : selected)
+			if(b < 0 || b >= fileBands)
+				throw new PelicanException("Invalid band " + b + " for an image of " + fileBands + " bands");
+
+		File binaryFile = this.findBinaryFile(format);
+		if(null == binaryFile){
+			System.err.println("getPelicanImage() : Unable to find the associated binary file");
+			return null;
+		}
+
+		final int width = ex - sx + 1;
+		final int height = ey - sy + 1;
+		final int nb = selected.length;
+		switch(dataType){
+			case 1:
+				img = new ByteImage(width, height, 1, 1, nb);
+				break;
+			case 2:
+			case 3:
+				img = new IntegerImage(width, height, 1, 1, nb);
+				break;
+			case 4:
+			case 5:
+				img = new DoubleImage(width, height, 1, 1, nb);
+				break;
+			case 12:
+				if(format == HdrReader.FORMAT_BSQ)
+					img = new DoubleImage(width, height, 1, 1, nb);
+				else
+					img = new IntegerImage(width, height, 1, 1, nb);
+				break;
+			default:
+				throw new PelicanException("Unsupported data type " + dataType);
+		}
+
+		// offset of a sample and distance between two samples of a row
+		final long rowLength = (long) cols * fileBands * bytesNumber;
+		final int stride = (format == HdrReader.FORMAT_BIP ? fileBands : 1) * bytesNumber;
+		final ByteOrder order = hr.getByteOrder() ? ByteOrder.BIG_ENDIAN : ByteOrder.LITTLE_ENDIAN;
+		final MappedByteBuffer[] segments = map(binaryFile, (long) cols * lines * fileBands * bytesNumber, rowLength);
+		final int x0 = sx, y0 = sy;
+
+		Parallel.forItems(nb, width * height * nb, new Parallel.Range() {
+			public void run(int from, int to) {
+				Row row = new Row(width, dataType);
+				for(int i = from; i < to; ++i){
+					int b = selected[i];
+					for(int y = 0; y < height; ++y){
+						long offset;
+						switch(format){
+							case HdrReader.FORMAT_BSQ:
+								offset = ((long) b * lines + y0 + y) * cols + x0;
+								break;
+							case HdrReader.FORMAT_BIL:
+								offset = ((long) (y0 + y) * fileBands + b) * cols + x0;
+								break;
+							default:
+								offset = ((long) (y0 + y) * cols + x0) * fileBands + b;
+						}
+						offset *= bytesNumber;
+						ByteBuffer buffer = segments[(int) (offset / SEGMENT)].duplicate();
+						buffer.order(order);
+						row.read(buffer, (int) (offset % SEGMENT), stride);
+						row.store(img, format, i, nb, width * y);
+					}
+				}
+			}
+		});
+
+		this.setProperties(selected);
+
+		return img;
+	}
+
+	/**
+	 * Looks for the binary file next to the header, named after the header
+	 * with no extension, or with the extension img or the one of the format.
+	 */
+	private File findBinaryFile(int format){
+		String extension;
+		switch(format){
+			case HdrReader.FORMAT_BSQ:
+				extension = "bsq";
+				break;
+			case HdrReader.FORMAT_BIL:
+				extension = "bil";
+				break;
+			default:
+				extension = "bip";
+		}
+		String hdrPathRadical = this.path.getName().substring(0, this.path.getName().length()-4);
+		File[] subFiles = this.path.getParentFile().listFiles();
+		for(int i = 0; i < subFiles.length; ++i){
+			String fileName = subFiles[i].getName();
+			if(fileName.equals(hdrPathRadical) || fileName.equals(hdrPathRadical+".img") || fileName.endsWith(hdrPathRadical+".IMG")
+				|| fileName.endsWith(hdrPathRadical+"."+extension) || fileName.endsWith(hdrPathRadical+"."+extension.toUpperCase()))
+				return subFiles[i];
+		}
+		return null;
+	}
+
+	/**
+	 * Maps the file in parts of SEGMENT bytes, each one followed by a row.
+	 */
+	private static MappedByteBuffer[] map(File file, long length, long rowLength) throws IOException {
+		RandomAccessFile raf = new RandomAccessFile(file, "r");
+		try{
+			FileChannel channel = raf.getChannel();
+			if(channel.size() < length)
+				throw new PelicanException("getPelicanImage() : Error while reading file, unexpected length");
+			MappedByteBuffer[] segments = new MappedByteBuffer[(int) ((length + SEGMENT - 1) / SEGMENT)];
+			for(int s = 0; s < segments.length; ++s){
+				long start = s * SEGMENT;
+				segments[s] = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(SEGMENT + rowLength, length - start));
+			}
+			return segments;
+		}
+		finally{
+			raf.close();
+		}
+	}
+
+	/**
+	 * Sets the properties, with the wavelengths of the bands read only.
+	 */
+	private void setProperties(int[] selected){
+		super.setProperties();
+		Double[] wavelength = hr.getWavelength();
+		if(null != bands && 0 != wavelength.length){
+			for(int b = 0; b < wavelength.length; ++b)
+				img.properties.remove(HdrReader.WAVELENGTH_ENVI+b);
+			for(int b = 0; b < selected.length; ++b)
+				img.setProperty(HdrReader.WAVELENGTH_ENVI+b, wavelength[selected[b]]);
+		}
+	}
+
+	/**
+	 * The values of a row of a band, decoded from the file.
+	 */
+	private static final class Row {
+
+		private final int width;
+		private final int dataType;
+		private byte[] bytes;
+		private short[] shorts;
+		private int[] ints;
+		private float[] floats;
+		private double[] doubles;
+
+		Row(int width, int dataType){
+			this.width = width;
+			this.dataType = dataType;
+			switch(dataType){
+				case 1:
+					bytes = new byte[width];
+					break;
+				case 2:
+				case 12:
+					shorts = new short[width];
+					break;
+				case 3:
+					ints = new int[width];
+					break;
+				case 4:
+					floats = new float[width];
+					break;
+				default:
+					doubles = new double[width];
+			}
+		}
+
+		/**
+		 * Reads the row from the given position, the samples being stride
+		 * bytes apart.
+		 */
+		void read(ByteBuffer buffer, int position, int stride){
+			buffer.position(position);
+			switch(dataType){
+				case 1:
+					if(1 == stride)
+						buffer.get(bytes);
+					else
+						for(int x = 0; x < width; ++x)
+							bytes[x] = buffer.get(position + x * stride);
+					break;
+				case 2:
+				case 12:
+					if(2 == stride)
+						buffer.asShortBuffer().get(shorts);
+					else
+						for(int x = 0; x < width; ++x)
+							shorts[x] = buffer.getShort(position + x * stride);
+					break;
+				case 3:
+					if(4 == stride)
+						buffer.asIntBuffer().get(ints);
+					else
+						for(int x = 0; x < width; ++x)
+							ints[x] = buffer.getInt(position + x * stride);
+					break;
+				case 4:
+					if(4 == stride)
+						buffer.asFloatBuffer().get(floats);
+					else
+						for(int x = 0; x < width; ++x)
+							floats[x] = buffer.getFloat(position + x * stride);
+					break;
+				default:
+					if(8 == stride)
+						buffer.asDoubleBuffer().get(doubles);
+					else
+						for(int x = 0; x < width; ++x)
+							doubles[x] = buffer.getDouble(position + x * stride);
+			}
+		}
+
+		/**
+		 * Stores the row in band b of the image, from pixel first.
+		 */
+		void store(Image img, int format, int b, int nb, int first){
+			int p = b + first * nb;
+			switch(dataType){
+				case 1:
+					byte[] pixels = ((ByteImage) img).getPixels();
+					// ByteImage holds the values with an offset of Byte.MIN_VALUE
+					for(int x = 0; x < width; ++x, p += nb)
+						pixels[p] = (byte) (bytes[x] ^ Byte.MIN_VALUE);
+					break;
+				case 2:
+					for(int x = 0; x < width; ++x, p += nb)
+						img.setPixelInt(p, shorts[x]);
+					break;
+				case 12:
+					if(format == HdrReader.FORMAT_BSQ){
+						// 16 bits pixels with only 11 bits coded
+						double _2pow11 = 1./Math.pow(2, 11);
+						double[] values = ((DoubleImage) img).getPixelsUnsafe();
+						for(int x = 0; x < width; ++x, p += nb)
+							values[p] = shorts[x] * _2pow11;
+					}
+					else
+						for(int x = 0; x < width; ++x, p += nb)
+							img.setPixelInt(p, shorts[x] & 0xffff);
+					break;
+				case 3:
+					for(int x = 0; x < width; ++x, p += nb)
+						img.setPixelInt(p, ints[x]);
+					break;
+				case 4:
+					double[] values = ((DoubleImage) img).getPixelsUnsafe();
+					for(int x = 0; x < width; ++x, p += nb)
+						values[p] = floats[x];
+					break;
+				default:
+					values = ((DoubleImage) img).getPixelsUnsafe();
+					for(int x = 0; x < width; ++x, p += nb)
+						values[p] = doubles[x];
+			}
+		}
+	}
+}
@@ -207,54 +207,54 @@ public final class HdrReader {
 	 * @return the fr.unistra.pelican Image generated  
 	 */
 	public Image getPelicanImage(String path){
-		this.readHeader(path);
-		switch(this.fileType){
-			case HdrReader.FORMAT_BSQ:
-				br = new BSQReader(this, path);
-				break;
-			case HdrReader.FORMAT_BIL:
-				br = new BILReader(this, path);
-				break;
-			default:
-				System.err.println("getPelicanImage(String) : the asked format is currently not supported");
-				return null;
-		}
-		
-		headerPath = path;
-		try{
-			return br.getPelicanImage();
-		}catch(Throwable t) {
-			throw new RuntimeException(t);
-		}
+		return this.getPelicanImage(path, -1, -1, -1, -1, null);
 	}
-	
+
 	/**
 	 * 
 	 * @param path	path of the header file
 	 * @return the fr.unistra.pelican Image generated  
 	 */
 	public Image getPelicanImage(String path, int sx, int sy, int ex, int ey){
+		return this.getPelicanImage(path, sx, sy, ex, ey, null);
+	}
+
+	/**
+	 * Reads a window and a subset of the bands of the image.
+	 * 
+	 * @param path	path of the header file
+	 * @param sx	first column of the window, or -1 to read the whole image
+	 * @param sy	first line of the window
+	 * @param ex	last column of the window
+	 * @param ey	last line of the window
+	 * @param bands	indexes of the bands to read, or null to read all of them
+	 * @return the fr.unistra.pelican Image generated  
+	 */
+	public Image getPelicanImage(String path, int sx, int sy, int ex, int ey, int[] bands){
 		this.readHeader(path);
 		switch(this.fileType){
 			case HdrReader.FORMAT_BSQ:
-				br = new BSQReader(this, path);
-				break;
 			case HdrReader.FORMAT_BIL:
-				br = new BILReader(this, path);
+			case HdrReader.FORMAT_BIP:
+				EnviReader reader = new EnviReader(this, path);
+				reader.setBands(bands);
+				br = reader;
 				break;
 			default:
 				System.err.println("getPelicanImage(String) : the asked format is currently not supported");
 				return null;
 		}
-		
+
 		headerPath = path;
 		try{
+			if(sx < 0)
+				return br.getPelicanImage();
 			return br.getPelicanImage(sx, sy, ex, ey);
 		}catch(Throwable t) {
 			throw new RuntimeException(t);
 		}
 	}
-	
+
 	/**
 	 * Determines the tag corresponding with the line of a header file.
 	 * @param line	a line contained in the header file.
@@ -0,0 +1,386 @@
+package fr.unistra.pelican.util.vectorial;
+
+import fr.unistra.pelican.BooleanImage;
+import fr.unistra.pelican.Image;
+import fr.unistra.pelican.util.Point4D;
+import fr.unistra.pelican.util.vectorial.orders.IndexedVectorialOrdering;
+import fr.unistra.pelican.util.vectorial.orders.VectorialOrdering;
+
+/**
+ * The vectors of the pixels of an image under a 2-D structuring element, as
+ * needed by the vectorial filters.
+ *
+ * The vectors of the points of the structuring element inside the image and
+ * present, in the order of the points, are stored one after the other in a
+ * single array : band b of vector k is at getValues()[k*getStride()+b]. The
+ * window is moved from pixel to pixel, reusing its arrays. Moving to the right
+ * neighbour of the current pixel only reads the pixels entering the window,
+ * the others being shifted, so scanning the rows of an image reads each pixel
+ * about once per column of the structuring element.
+ *
+ * The vectors are given to the orderings through minIndex, maxIndex and
+ * rankIndex, directly if they are IndexedVectorialOrderings. The other ones
+ * get arrays of vectors, reused from one call to the other. A vector computed
+ * by such an ordering, instead of chosen among the ones of the window, is
+ * stored after them, at position getCount().
+ *
+ * @author PELICAN team
+ */
+public class NeighbourhoodWindow {
+
+	private final Image image;
+
+	private final int xdim;
+	private final int ydim;
+	private final int bdim;
+
+	private final boolean masked;
+
+	/**
+	 * Offsets of the points from the center
+	 */
+	private final int[] dx;
+	private final int[] dy;
+
+	/**
+	 * Point giving the vector of each point after a move to the right, or -1 if
+	 * it enters the window
+	 */
+	private final int[] shift;
+
+	/**
+	 * Vectors of the window, and the ones of the previous position
+	 */
+	private double[] values;
+	private double[] previous;
+
+	/**
+	 * Position in the window of the vector of each point, or -1 if the point is
+	 * outside the image or absent, and the ones of the previous position
+	 */
+	private int[] slots;
+	private int[] previousSlots;
+
+	private int count;
+
+	private int x = -2, y, z, t;
+
+	private final double[] scores;
+
+	private final int[] indices;
+
+	/**
+	 * Vectors and arrays of each size given to the orderings which are not
+	 * IndexedVectorialOrderings
+	 */
+	private double[][] rows;
+	private double[][][] arrays;
+
+	/**
+	 * Constructor
+	 *
+	 * @param image
+	 *            the image
+	 * @param se
+	 *            the structuring element, whose points are taken at the z and t
+	 *            of the pixel
+	 */
+	public NeighbourhoodWindow(Image image, BooleanImage se) {
+		this(image, se.foreground(), se.getCenter());
+	}
+
+	/**
+	 * Constructor
+	 *
+	 * @param image
+	 *            the image
+	 * @param points
+	 *            the points of the structuring element, in the order of the
+	 *            vectors of the window
+	 * @param center
+	 *            the center of the structuring element
+	 */
+	public NeighbourhoodWindow(Image image, Point4D[] points, Point4D center) {
+		this.image = image;
+		xdim = image.getXDim();
+		ydim = image.getYDim();
+		bdim = image.getBDim();
+		masked = !image.getMask().isTransparent();
+
+		int n = points.length;
+		dx = new int[n];
+		dy = new int[n];
+		for (int i = 0; i < n; i++) {
+			dx[i] = points[i].x - center.x;
+			dy[i] = points[i].y - center.y;
+		}
+		shift = new int[n];
+		for (int i = 0; i < n; i++) {
+			shift[i] = -1;
+			for (int j = 0; j < n && shift[i] < 0; j++)
+				if (dx[j] == dx[i] + 1 && dy[j] == dy[i])
+					shift[i] = j;
+		}
+
+		// one more vector for the ones given by the orderings
+		values = new double[(n + 1) * bdim];
+		previous = new double[(n + 1) * bdim];
+		slots = new int[n];
+		previousSlots = new int[n];
+		scores = new double[n];
+		indices = new int[n];
+	}
+
+	/**
+	 * Moves the window to a pixel
+	 *
+	 * @param x
+	 * @param y
+	 * @param z
+	 * @param t
+	 */
+	public void moveTo(int x, int y, int z, int t) {
+		boolean right = x == this.x + 1 && y == this.y && z == this.z
+				&& t == this.t;
+		this.x = x;
+		this.y = y;
+		this.z = z;
+		this.t = t;
+
+		if (right) {
+			double[] tmp = values;
+			values = previous;
+			previous = tmp;
+			int[] tmpSlots = slots;
+			slots = previousSlots;
+			previousSlots = tmpSlots;
+		}
+		count = 0;
+		for (int i = 0; i < dx.length; i++) {
+			int j = right ? shift[i] : -1;
+			if (j >= 0) {
+				int from = previousSlots[j];
+				if (from >= 0) {
+					System.arraycopy(previous, from * bdim, values, count
+							* bdim, bdim);
+					slots[i] = count++;
+				} else
+					slots[i] = -1;
+				continue;
+			}
+			int xx = x + dx[i];
+			int yy = y + dy[i];
+			if (xx >= 0 && xx < xdim && yy >= 0 && yy < ydim
+					&& (!masked || image.isPresentXYZT(xx, yy, z, t))) {
+				read(xx, yy, count);
+				slots[i] = count++;
+			} else
+				slots[i] = -1;
+		}
+	}
+
+	private void read(int x, int y, int k) {
+		int index = image.getLinearIndexXYZT_(x, y, z, t);
+		for (int b = 0, i = k * bdim; b < bdim; b++, i++)
+			values[i] = image.getPixelDouble(index + b);
+	}
+
+	/**
+	 * @return the vectors of the window, one after the other
+	 */
+	public double[] getValues() {
+		return values;
+	}
+
+	/**
+	 * @return the number of vectors in the window
+	 */
+	public int getCount() {
+		return count;
+	}
+
+	/**
+	 * @return the number of values of each vector
+	 */
+	public int getStride() {
+		return bdim;
+	}
+
+	/**
+	 * Gives a value of a vector of the window
+	 *
+	 * @param k
+	 *            position of the vector
+	 * @param b
+	 *            band
+	 * @return the value
+	 */
+	public double get(int k, int b) {
+		return values[k * bdim + b];
+	}
+
+	/**
+	 * @return an array of one score per vector, working memory for the
+	 *         orderings
+	 */
+	public double[] getScores() {
+		return scores;
+	}
+
+	/**
+	 * @return an array of one index per vector, working memory for the
+	 *         orderings
+	 */
+	public int[] getIndices() {
+		return indices;
+	}
+
+	/**
+	 * Stores the vector of the pixel the window is on after its vectors
+	 *
+	 * @return its position, getCount()
+	 */
+	public int center() {
+		read(x, y, count);
+		return count;
+	}
+
+	/**
+	 * Writes a vector of the window at its position in an image
+	 *
+	 * @param output
+	 *            image of the dimensions of the one of the window
+	 * @param k
+	 *            position of the vector
+	 */
+	public void setPixel(Image output, int k) {
+		int index = output.getLinearIndexXYZT_(x, y, z, t);
+		for (int b = 0, i = k * bdim; b < bdim; b++, i++)
+			output.setPixelDouble(index + b, values[i]);
+	}
+
+	/**
+	 * @return the position of the first smallest score
+	 */
+	public int minScoreIndex() {
+		int min = 0;
+		for (int i = 1; i < count; i++)
+			if (scores[min] > scores[i])
+				min = i;
+		return min;
+	}
+
+	/**
+	 * @return the position of the first greatest score
+	 */
+	public int maxScoreIndex() {
+		int max = 0;
+		for (int i = 1; i < count; i++)
+			if (scores[max] < scores[i])
+				max = i;
+		return max;
+	}
+
+	/**
+	 * Selects a vector by its score, equal scores being in the order of the
+	 * vectors as with a stable sort
+	 *
+	 * @param r
+	 *            position in the sorted scores
+	 * @return the position of the vector
+	 */
+	public int rankScoreIndex(int r) {
+		for (int i = 0; i < count; i++)
+			indices[i] = i;
+		int left = 0, right = count - 1;
+		while (left < right) {
+			int pivot = indices[r];
+			int i = left, j = right;
+			do {
+				while (before(indices[i], pivot))
+					i++;
+				while (before(pivot, indices[j]))
+					j--;
+				if (i <= j) {
+					int tmp = indices[i];
+					indices[i++] = indices[j];
+					indices[j--] = tmp;
+				}
+			} while (i <= j);
+			if (j < r)
+				left = i;
+			if (r < i)
+				right = j;
+		}
+		return indices[r];
+	}
+
+	private boolean before(int i, int j) {
+		return scores[i] < scores[j] || scores[i] == scores[j] && i < j;
+	}
+
+	/**
+	 * Calculates the min of the vectors of the window
+	 *
+	 * @param vo
+	 *            the ordering
+	 * @return the position of the smallest vector
+	 */
+	public int minIndex(VectorialOrdering vo) {
+		if (vo instanceof IndexedVectorialOrdering)
+			return ((IndexedVectorialOrdering) vo).minIndex(this);
+		return indexOf(vo.min(arrays()));
+	}
+
+	/**
+	 * Calculates the max of the vectors of the window
+	 *
+	 * @param vo
+	 *            the ordering
+	 * @return the position of the greatest vector
+	 */
+	public int maxIndex(VectorialOrdering vo) {
+		if (vo instanceof IndexedVectorialOrdering)
+			return ((IndexedVectorialOrdering) vo).maxIndex(this);
+		return indexOf(vo.max(arrays()));
+	}
+
+	/**
+	 * Gives the vector of the window in the given position once sorted
+	 *
+	 * @param vo
+	 *            the ordering
+	 * @param r
+	 *            position in the sorted vectors
+	 * @return the position of the vector in the window
+	 */
+	public int rankIndex(VectorialOrdering vo, int r) {
+		if (vo instanceof IndexedVectorialOrdering)
+			return ((IndexedVectorialOrdering) vo).rankIndex(this, r);
+		return indexOf(vo.rank(arrays(), r));
+	}
+
+	private double[][] arrays() {
+		if (rows == null) {
+			rows = new double[dx.length][bdim];
+			arrays = new double[dx.length + 1][][];
+		}
+		double[][] p = arrays[count];
+		if (p == null)
+			p = arrays[count] = new double[count][];
+		for (int k = 0; k < count; k++) {
+			System.arraycopy(values, k * bdim, rows[k], 0, bdim);
+			p[k] = rows[k];
+		}
+		return p;
+	}
+
+	private int indexOf(double[] vector) {
+		for (int k = 0; k < count; k++)
+			if (rows[k] == vector)
+				return k;
+		System.arraycopy(vector, 0, values, count * bdim, bdim);
+		return count;
+	}
+
+}
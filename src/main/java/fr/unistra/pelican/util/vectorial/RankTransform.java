@@ -0,0 +1,376 @@
+package fr.unistra.pelican.util.vectorial;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+import fr.unistra.pelican.BooleanImage;
+import fr.unistra.pelican.Image;
+import fr.unistra.pelican.util.Parallel;
+import fr.unistra.pelican.util.Point4D;
+import fr.unistra.pelican.util.largeImages.LargeImageInterface;
+import fr.unistra.pelican.util.morphology.FlatMorphology;
+import fr.unistra.pelican.util.vectorial.orders.LexicographicalOrdering;
+import fr.unistra.pelican.util.vectorial.orders.TotalVectorialOrdering;
+import fr.unistra.pelican.util.vectorial.orders.VectorialOrdering;
+
+/**
+ * Rank transform of a multiband image for a total vectorial ordering.
+ *
+ * The distinct vectors of the image are sorted once according to the ordering,
+ * and each pixel is replaced by the rank of its vector. A vectorial erosion,
+ * dilation or rank filter is then a scalar one on the ranks, computed by the
+ * flat morphology engine or by sorting numbers, and the ranks of the result
+ * are mapped back to the vectors. The vectors are compared n log n times, n
+ * being the number of distinct vectors, instead of several times per pixel.
+ *
+ * The neighbourhood of a pixel is the one of the vectorial operators : the
+ * points of the 2-D structuring element inside the image, at the same z and t,
+ * or the pixel itself if there is none. Distinct vectors equal according to
+ * the ordering get distinct ranks, so only the choice among such vectors may
+ * differ from the one of the ordering. LexicographicalOrdering compares the
+ * components with a tolerance, which is not transitive : its vectors are
+ * sorted with the exact lexicographical order instead, the vectors closer than
+ * the tolerance being such equal vectors.
+ *
+ * @author PELICAN team
+ */
+public class RankTransform {
+
+	private final int xdim;
+	private final int ydim;
+	private final int zdim;
+	private final int tdim;
+	private final int bdim;
+
+	/**
+	 * Distinct vectors of the image, sorted
+	 */
+	private final double[][] vectors;
+
+	/**
+	 * Rank of the vector of each pixel, indexed by x+xdim*(y+ydim*(z+zdim*t))
+	 */
+	private final double[] ranks;
+
+	/**
+	 * The order of LexicographicalOrdering without its tolerance
+	 */
+	private static final Comparator<double[]> LEXICOGRAPHICAL = new Comparator<double[]>() {
+		public int compare(double[] p1, double[] p2) {
+			for (int b = 0; b < p1.length; b++)
+				if (p1[b] < p2[b])
+					return -1;
+				else if (p1[b] > p2[b])
+					return 1;
+			return 0;
+		}
+	};
+
+	/**
+	 * Tells whether an operator with the given structuring element and ordering
+	 * can work on the ranks of an image : the ordering must be total, the
+	 * structuring element 2-D and the image neither masked nor large.
+	 *
+	 * @param image
+	 *            the image
+	 * @param se
+	 *            the structuring element
+	 * @param vo
+	 *            the ordering
+	 * @return true if a RankTransform can be used
+	 */
+	public static boolean isApplicable(Image image, BooleanImage se,
+			VectorialOrdering vo) {
+		if (!(vo instanceof TotalVectorialOrdering)
+				|| image instanceof LargeImageInterface
+				|| !image.getMask().isTransparent())
+			return false;
+		Point4D center = se.getCenter();
+		return se.getZDim() == 1 && se.getTDim() == 1 && center.z == 0
+				&& center.t == 0;
+	}
+
+	/**
+	 * Sorts the vectors of an image
+	 *
+	 * @param image
+	 *            the image
+	 * @param vo
+	 *            the ordering of the vectors
+	 */
+	public RankTransform(Image image, TotalVectorialOrdering vo) {
+		xdim = image.getXDim();
+		ydim = image.getYDim();
+		zdim = image.getZDim();
+		tdim = image.getTDim();
+		bdim = image.getBDim();
+		int size = xdim * ydim * zdim * tdim;
+
+		// identifies the distinct vectors with an open addressing hash table
+		int[] ids = new int[size];
+		int[] first = new int[16];
+		int[] table = new int[32];
+		Arrays.fill(table, -1);
+		int count = 0;
+		for (int p = 0; p < size; p++) {
+			int h = hash(image, p) & (table.length - 1);
+			while (table[h] >= 0 && !equals(image, first[table[h]], p))
+				h = (h + 1) & (table.length - 1);
+			int id = table[h];
+			if (id < 0) {
+				if (count == first.length)
+					first = Arrays.copyOf(first, 2 * count);
+				first[count] = p;
+				id = count++;
+				table[h] = id;
+				if (2 * count > table.length)
+					table = rehash(image, first, count, 2 * table.length);
+			}
+			ids[p] = id;
+		}
+
+		double[][] distinct = new double[count][bdim];
+		int[] order = new int[count];
+		for (int i = 0; i < count; i++) {
+			for (int b = 0; b < bdim; b++)
+				distinct[i][b] = image.getPixelDouble(first[i] * bdim + b);
+			order[i] = i;
+		}
+		sort(order, order.clone(), 0, count, distinct,
+				vo.getClass() == LexicographicalOrdering.class ? LEXICOGRAPHICAL
+						: vo);
+		vectors = new double[count][];
+		int[] rankOf = new int[count];
+		for (int r = 0; r < count; r++) {
+			vectors[r] = distinct[order[r]];
+			rankOf[order[r]] = r;
+		}
+		ranks = new double[size];
+		for (int p = 0; p < size; p++)
+			ranks[p] = rankOf[ids[p]];
+	}
+
+	/**
+	 * Merge sort of the indices of vectors, stable so that the vectors equal
+	 * according to the ordering keep the order of their first pixels.
+	 */
+	private static void sort(int[] order, int[] buffer, int from, int to,
+			double[][] vectors, Comparator vo) {
+		if (to - from < 2)
+			return;
+		int middle = (from + to) >>> 1;
+		// sorts both halves of buffer, then merges them into order
+		sort(buffer, order, from, middle, vectors, vo);
+		sort(buffer, order, middle, to, vectors, vo);
+		for (int i = from, j = middle, k = from; k < to; k++)
+			if (j == to || i < middle
+					&& vo.compare(vectors[buffer[i]], vectors[buffer[j]]) <= 0)
+				order[k] = buffer[i++];
+			else
+				order[k] = buffer[j++];
+	}
+
+	private int hash(Image image, int p) {
+		int h = 1;
+		for (int b = 0, i = p * bdim; b < bdim; b++, i++) {
+			long bits = Double.doubleToLongBits(image.getPixelDouble(i));
+			h = 31 * h + (int) (bits ^ (bits >>> 32));
+		}
+		// spreads the bits, the table being indexed by the lowest ones
+		h ^= h >>> 16;
+		h *= 0x85ebca6b;
+		h ^= h >>> 13;
+		return h;
+	}
+
+	private boolean equals(Image image, int p, int q) {
+		for (int b = 0; b < bdim; b++)
+			if (Double.doubleToLongBits(image.getPixelDouble(p * bdim + b)) != Double
+					.doubleToLongBits(image.getPixelDouble(q * bdim + b)))
+				return false;
+		return true;
+	}
+
+	private int[] rehash(Image image, int[] first, int count, int length) {
+		int[] table = new int[length];
+		Arrays.fill(table, -1);
+		for (int i = 0; i < count; i++) {
+			int h = hash(image, first[i]) & (length - 1);
+			while (table[h] >= 0)
+				h = (h + 1) & (length - 1);
+			table[h] = i;
+		}
+		return table;
+	}
+
+	/**
+	 * @return the number of distinct vectors
+	 */
+	public int getCount() {
+		return vectors.length;
+	}
+
+	/**
+	 * @return the rank of the vector of each pixel, indexed by
+	 *         x+xdim*(y+ydim*(z+zdim*t)), not to be modified
+	 */
+	public double[] getRanks() {
+		return ranks;
+	}
+
+	/**
+	 * Erodes ranks, as a vectorial erosion of the image
+	 *
+	 * @param ranks
+	 *            ranks of the pixels
+	 * @param se
+	 *            2-D flat structuring element
+	 * @return the lowest rank of each neighbourhood
+	 */
+	public double[] erode(double[] ranks, BooleanImage se) {
+		return morphology(ranks, se, false);
+	}
+
+	/**
+	 * Dilates ranks, as a vectorial dilation of the image
+	 *
+	 * @param ranks
+	 *            ranks of the pixels
+	 * @param se
+	 *            2-D flat structuring element
+	 * @return the highest rank of each neighbourhood
+	 */
+	public double[] dilate(double[] ranks, BooleanImage se) {
+		return morphology(ranks, se, true);
+	}
+
+	private double[] morphology(double[] ranks, BooleanImage se,
+			boolean dilation) {
+		double[] result = new FlatMorphology(se).filter(ranks, xdim, ydim,
+				zdim, tdim, dilation, dilation ? Double.NEGATIVE_INFINITY
+						: Double.POSITIVE_INFINITY);
+		// an empty neighbourhood keeps the pixel
+		for (int p = 0; p < result.length; p++)
+			if (Double.isInfinite(result[p]))
+				result[p] = ranks[p];
+		return result;
+	}
+
+	/**
+	 * Median filter of the ranks, as a vectorial median of the image
+	 *
+	 * @param ranks
+	 *            ranks of the pixels
+	 * @param se
+	 *            2-D flat structuring element
+	 * @return the rank n/2 of the n sorted ranks of each neighbourhood
+	 */
+	public double[] median(double[] ranks, BooleanImage se) {
+		return select(ranks, se, true, 0);
+	}
+
+	/**
+	 * Rank filter of the ranks, as a vectorial rank filter of the image
+	 *
+	 * @param ranks
+	 *            ranks of the pixels
+	 * @param se
+	 *            2-D flat structuring element
+	 * @param rank
+	 *            1 for the highest rank of each neighbourhood, 2 for the
+	 *            second one..., the lowest one if rank exceeds their number
+	 * @return the selected rank of each neighbourhood
+	 */
+	public double[] rank(double[] ranks, BooleanImage se, int rank) {
+		return select(ranks, se, false, rank);
+	}
+
+	private double[] select(final double[] ranks, BooleanImage se,
+			final boolean median, final int rank) {
+		Point4D center = se.getCenter();
+		Point4D[] points = se.foreground();
+		final int[] dx = new int[points.length];
+		final int[] dy = new int[points.length];
+		for (int i = 0; i < points.length; i++) {
+			dx[i] = points[i].x - center.x;
+			dy[i] = points[i].y - center.y;
+		}
+		final double[] result = new double[ranks.length];
+		Parallel.forItems(ydim * zdim * tdim, ranks.length,
+				new Parallel.Range() {
+					public void run(int from, int to) {
+						double[] window = new double[dx.length];
+						for (int line = from; line < to; line++) {
+							int y = line % ydim;
+							int plane = line - y;
+							for (int x = 0, p = line * xdim; x < xdim; x++, p++) {
+								int n = 0;
+								for (int i = 0; i < dx.length; i++) {
+									int xx = x + dx[i], yy = y + dy[i];
+									if (xx >= 0 && xx < xdim && yy >= 0
+											&& yy < ydim)
+										window[n++] = ranks[xx + xdim
+												* (plane + yy)];
+								}
+								if (n == 0) {
+									result[p] = ranks[p];
+									continue;
+								}
+								result[p] = select(window, n, median ? n / 2
+										: n - Math.min(rank, n));
+							}
+						}
+					}
+				});
+		return result;
+	}
+
+	/**
+	 * Wirth's selection : partially sorts the n first values of an array to
+	 * give the k-th smallest one
+	 */
+	private static double select(double[] values, int n, int k) {
+		int left = 0, right = n - 1;
+		while (left < right) {
+			double pivot = values[k];
+			int i = left, j = right;
+			do {
+				while (values[i] < pivot)
+					i++;
+				while (pivot < values[j])
+					j--;
+				if (i <= j) {
+					double tmp = values[i];
+					values[i++] = values[j];
+					values[j--] = tmp;
+				}
+			} while (i <= j);
+			if (j < k)
+				left = i;
+			if (k < i)
+				right = j;
+		}
+		return values[k];
+	}
+
+	/**
+	 * Writes the vectors of ranks in an image
+	 *
+	 * @param ranks
+	 *            ranks of the pixels
+	 * @param output
+	 *            image of the dimensions of the transformed one
+	 */
+	public void toImage(final double[] ranks, final Image output) {
+		Parallel.forItems(ranks.length, output.size(), new Parallel.Range() {
+			public void run(int from, int to) {
+				for (int p = from, i = from * bdim; p < to; p++) {
+					double[] vector = vectors[(int) ranks[p]];
+					for (int b = 0; b < bdim; b++, i++)
+						output.setPixelDouble(i, vector[b]);
+				}
+			}
+		});
+	}
+
+}
@@ -2,7 +2,6 @@ package fr.unistra.pelican.util.vectorial.orders;
 
 import java.awt.Point;
 import java.util.Arrays;
-import java.util.Comparator;
 
 import fr.unistra.pelican.ByteImage;
 import fr.unistra.pelican.Image;
@@ -16,7 +15,7 @@ import fr.unistra.pelican.util.vectorial.VectorPixel;
  *
  */
 
-public class AlphaLexicographicalOrdering implements VectorialOrdering,Comparator
+public class AlphaLexicographicalOrdering implements TotalVectorialOrdering
 {
 	private double alpha = 0.0;
 	private Image cimg;
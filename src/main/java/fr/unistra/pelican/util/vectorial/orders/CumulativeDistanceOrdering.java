@@ -3,6 +3,7 @@ package fr.unistra.pelican.util.vectorial.orders;
 
 import java.util.Arrays;
 
+import fr.unistra.pelican.util.vectorial.NeighbourhoodWindow;
 import fr.unistra.pelican.util.vectorial.VectorPixel;
 
 /**
@@ -12,7 +13,7 @@ import fr.unistra.pelican.util.vectorial.VectorPixel;
  *
  */
 
-public class CumulativeDistanceOrdering implements VectorialOrdering
+public class CumulativeDistanceOrdering implements IndexedVectorialOrdering
 {
 	private double[] d = null;
 
@@ -88,17 +89,75 @@ public class CumulativeDistanceOrdering implements VectorialOrdering
 	}
 
 	private double distance(double[] p1,double[] p2)
+	{
+		return distance(p1,0,p2,0,p1.length);
+	}
+
+	private double distance(double[] p1,int o1,double[] p2,int o2,int length)
 	{
 		double dist = 0.0;
 
-		for(int i = 0; i < p1.length; i++){
-			double tmp = p1[i] - p2[i];
+		for(int i = 0; i < length; i++){
+			double tmp = p1[o1 + i] - p2[o2 + i];
 			dist += tmp * tmp;
 		}
 
 		return Math.sqrt(dist);
 	}
 
+	/*
+	 *  (non-Javadoc)
+	 * @see fr.unistra.pelican.util.vectorial.orders.IndexedVectorialOrdering#maxIndex(fr.unistra.pelican.util.vectorial.NeighbourhoodWindow)
+	 */
+	public int maxIndex(NeighbourhoodWindow window)
+	{
+		preprocess(window);
+
+		return window.maxScoreIndex();
+	}
+
+	/*
+	 *  (non-Javadoc)
+	 * @see fr.unistra.pelican.util.vectorial.orders.IndexedVectorialOrdering#minIndex(fr.unistra.pelican.util.vectorial.NeighbourhoodWindow)
+	 */
+	public int minIndex(NeighbourhoodWindow window)
+	{
+		preprocess(window);
+
+		return window.minScoreIndex();
+	}
+
+	/*
+	 *  (non-Javadoc)
+	 * @see fr.unistra.pelican.util.vectorial.orders.IndexedVectorialOrdering#rankIndex(fr.unistra.pelican.util.vectorial.NeighbourhoodWindow, int)
+	 */
+	public int rankIndex(NeighbourhoodWindow window,int r)
+	{
+		preprocess(window);
+
+		return window.rankScoreIndex(r);
+	}
+
+	/**
+	 * Puts the cumulative distance of each vector of the window in its scores
+	 */
+	private void preprocess(NeighbourhoodWindow window)
+	{
+		double[] v = window.getValues();
+		double[] d = window.getScores();
+		int n = window.getCount();
+		int s = window.getStride();
+
+		for(int i = 0; i < n; i++){
+			d[i] = 0.0;
+
+			for(int j = 0; j < n; j++){
+				if(j != i) d[i] += distance(v,i * s,v,j * s,s);
+			}
+
+		}
+	}
+
 	/*
 	 *  (non-Javadoc)
 	 * @see fr.unistra.pelican.util.vectorial.orders.VectorialOrdering#order(fr.unistra.pelican.util.vectorial.VectorPixel[])
@@ -0,0 +1,42 @@
+package fr.unistra.pelican.util.vectorial.orders;
+
+import fr.unistra.pelican.util.vectorial.NeighbourhoodWindow;
+
+/**
+ * A VectorialOrdering working directly on the vectors of a NeighbourhoodWindow,
+ * stored one after the other in a single array, and giving the position of the
+ * chosen vector instead of the vector itself. It lets the vectorial filters
+ * run without allocating any array per pixel.
+ *
+ * The methods choose the same vectors as min, max and rank on the vectors of
+ * the window, in the same order. The scores and indices of the window are
+ * available as working memory.
+ *
+ * @author PELICAN team
+ *
+ */
+
+public interface IndexedVectorialOrdering extends VectorialOrdering
+{
+	/**
+	 * Calculates the max of the vectors of a window
+	 * @param window the vectors, at least one
+	 * @return the position of the greatest vector in the window
+	 */
+	public int maxIndex(NeighbourhoodWindow window);
+
+	/**
+	 * Calculates the min of the vectors of a window
+	 * @param window the vectors, at least one
+	 * @return the position of the smallest vector in the window
+	 */
+	public int minIndex(NeighbourhoodWindow window);
+
+	/**
+	 * Gives the vector of the window in the given position once sorted
+	 * @param window the vectors, at least one
+	 * @param r desired position in the sorted vectors
+	 * @return the position of this vector in the window
+	 */
+	public int rankIndex(NeighbourhoodWindow window,int r);
+}
@@ -1,19 +1,23 @@
 package fr.unistra.pelican.util.vectorial.orders;
 
 import java.util.Arrays;
-import java.util.Comparator;
 
 import fr.unistra.pelican.util.Tools;
+import fr.unistra.pelican.util.vectorial.NeighbourhoodWindow;
 import fr.unistra.pelican.util.vectorial.VectorPixel;
 
 /**
  * This class represents a lexicographical ordering scheme for double valued arrays and derivatives.
  * 
+ * The components are compared with the tolerance of Tools.doubleCompare, which
+ * is not transitive ; RankTransform sorts the vectors with the exact
+ * lexicographical order.
+ * 
  * @author E.A.
  *
  */
 
-public class LexicographicalOrdering implements BinaryVectorialOrdering,Comparator
+public class LexicographicalOrdering implements BinaryVectorialOrdering,TotalVectorialOrdering,IndexedVectorialOrdering
 {
 	/**
 	 * number of comparisons
@@ -88,9 +92,6 @@ public class LexicographicalOrdering implements BinaryVectorialOrdering,Comparat
 	 */
 	public int compare(Object o1,Object o2)
 	{
-		// one more comparison
-		comps++;
-		
 		double[] p1 = null,p2 = null;
 
 		try{
@@ -107,12 +108,23 @@ public class LexicographicalOrdering implements BinaryVectorialOrdering,Comparat
 			ex.printStackTrace();
 		}
 
-		for(int i = 0; i < p1.length; i++){
-			if(Tools.doubleCompare(p1[i],p2[i]) == -1){
+		return compare(p1,0,p2,0,p1.length);
+	}
+	
+	/**
+	 * Compares two vectors stored in arrays at the given offsets
+	 */
+	private int compare(double[] p1,int o1,double[] p2,int o2,int length)
+	{
+		// one more comparison
+		comps++;
+		
+		for(int i = 0; i < length; i++){
+			if(Tools.doubleCompare(p1[o1 + i],p2[o2 + i]) == -1){
 			dims[i]++;
 				return -1;
 			}
-			else if(Tools.doubleCompare(p1[i],p2[i]) == 1){
+			else if(Tools.doubleCompare(p1[o1 + i],p2[o2 + i]) == 1){
 				dims[i]++;
 				return 1;
 			}
@@ -124,6 +136,61 @@ public class LexicographicalOrdering implements BinaryVectorialOrdering,Comparat
 		return 0;
 	}
 	
+	/*
+	 *  (non-Javadoc)
+	 * @see fr.unistra.pelican.util.vectorial.orders.IndexedVectorialOrdering#maxIndex(fr.unistra.pelican.util.vectorial.NeighbourhoodWindow)
+	 */
+	public int maxIndex(NeighbourhoodWindow window)
+	{
+		double[] v = window.getValues();
+		int s = window.getStride();
+		int max = 0;
+
+		for(int i = 1; i < window.getCount(); i++){
+			if(compare(v,max * s,v,i * s,s) < 0) max = i;
+		}
+
+		return max;
+	}
+	
+	/*
+	 *  (non-Javadoc)
+	 * @see fr.unistra.pelican.util.vectorial.orders.IndexedVectorialOrdering#minIndex(fr.unistra.pelican.util.vectorial.NeighbourhoodWindow)
+	 */
+	public int minIndex(NeighbourhoodWindow window)
+	{
+		double[] v = window.getValues();
+		int s = window.getStride();
+		int min = 0;
+
+		for(int i = 1; i < window.getCount(); i++){
+			if(compare(v,min * s,v,i * s,s) > 0) min = i;
+		}
+
+		return min;
+	}
+	
+	/*
+	 *  (non-Javadoc)
+	 * @see fr.unistra.pelican.util.vectorial.orders.IndexedVectorialOrdering#rankIndex(fr.unistra.pelican.util.vectorial.NeighbourhoodWindow, int)
+	 */
+	public int rankIndex(NeighbourhoodWindow window,int r)
+	{
+		double[] v = window.getValues();
+		int s = window.getStride();
+		int[] id = window.getIndices();
+
+		// insertion sort, stable as Arrays.sort
+		for(int i = 0; i < window.getCount(); i++){
+			int j = i;
+			for(; j > 0 && compare(v,id[j - 1] * s,v,i * s,s) > 0; j--)
+				id[j] = id[j - 1];
+			id[j] = i;
+		}
+
+		return id[r];
+	}
+	
 	/*
 	 *  (non-Javadoc)
 	 * @see fr.unistra.pelican.util.vectorial.orders.VectorialOrdering#max(double[], double[])
@@ -5,6 +5,7 @@ import java.util.Comparator;
 
 import Jama.Matrix;
 import fr.unistra.pelican.Image;
+import fr.unistra.pelican.util.vectorial.NeighbourhoodWindow;
 import fr.unistra.pelican.util.vectorial.VectorPixel;
 
 
@@ -15,10 +16,11 @@ import fr.unistra.pelican.util.vectorial.VectorPixel;
  *
  */
 
-public class MahalanobisBasedOrdering implements VectorialOrdering,Comparator
+public class MahalanobisBasedOrdering implements IndexedVectorialOrdering,Comparator
 {
 	private double[] d = null;
 	private double[][] sigma = null;
+	private double[] tmp = null;
 	
 	public MahalanobisBasedOrdering(Image img)
 	{
@@ -161,20 +163,77 @@ public class MahalanobisBasedOrdering implements VectorialOrdering,Comparator
 	}
 
 	private double norm(double[] p)
+	{
+		return norm(p,0,p.length,new double[p.length]);
+	}
+
+	/**
+	 * Computes the norm of the vector stored in p at the given offset, using v as working memory
+	 */
+	private double norm(double[] p,int offset,int length,double[] v)
 	{
 		double norm = 0.0;
-		double[] v = new double[p.length];
 		
-		for(int i = 0; i < p.length; i++)
-			for(int j = 0; j < p.length; j++)
-				v[i] += p[j] * sigma[j][i];
+		for(int i = 0; i < length; i++){
+			v[i] = 0.0;
+			for(int j = 0; j < length; j++)
+				v[i] += p[offset + j] * sigma[j][i];
+		}
 		
-		for(int i = 0; i < p.length; i++)
-			norm += v[i] * p[i];
+		for(int i = 0; i < length; i++)
+			norm += v[i] * p[offset + i];
 
 		return Math.sqrt(norm);
 	}
 
+	/*
+	 *  (non-Javadoc)
+	 * @see fr.unistra.pelican.util.vectorial.orders.IndexedVectorialOrdering#maxIndex(fr.unistra.pelican.util.vectorial.NeighbourhoodWindow)
+	 */
+	public int maxIndex(NeighbourhoodWindow window)
+	{
+		preprocess(window);
+
+		return window.maxScoreIndex();
+	}
+
+	/*
+	 *  (non-Javadoc)
+	 * @see fr.unistra.pelican.util.vectorial.orders.IndexedVectorialOrdering#minIndex(fr.unistra.pelican.util.vectorial.NeighbourhoodWindow)
+	 */
+	public int minIndex(NeighbourhoodWindow window)
+	{
+		preprocess(window);
+
+		return window.minScoreIndex();
+	}
+
+	/*
+	 *  (non-Javadoc)
+	 * @see fr.unistra.pelican.util.vectorial.orders.IndexedVectorialOrdering#rankIndex(fr.unistra.pelican.util.vectorial.NeighbourhoodWindow, int)
+	 */
+	public int rankIndex(NeighbourhoodWindow window,int r)
+	{
+		preprocess(window);
+
+		return window.rankScoreIndex(r);
+	}
+
+	/**
+	 * Puts the norm of each vector of the window in its scores
+	 */
+	private void preprocess(NeighbourhoodWindow window)
+	{
+		double[] p = window.getValues();
+		double[] d = window.getScores();
+		int s = window.getStride();
+
+		if(tmp == null || tmp.length != s) tmp = new double[s];
+
+		for(int i = 0; i < window.getCount(); i++)
+			d[i] = norm(p,i * s,s,tmp);
+	}
+
 	private class IndexedDouble implements Comparable
 	{
 		double d;
@@ -1,7 +1,6 @@
 package fr.unistra.pelican.util.vectorial.orders;
 
 import java.util.Arrays;
-import java.util.Comparator;
 
 import fr.unistra.pelican.util.Tools;
 import fr.unistra.pelican.util.vectorial.VectorPixel;
@@ -15,7 +14,7 @@ import fr.unistra.pelican.util.vectorial.VectorPixel;
  *
  */
 
-public class ReducedLexicographicalOrdering implements VectorialOrdering,Comparator
+public class ReducedLexicographicalOrdering implements TotalVectorialOrdering
 {
 	/*
 	 *  (non-Javadoc)
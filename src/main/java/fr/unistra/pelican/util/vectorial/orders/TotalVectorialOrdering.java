@@ -0,0 +1,29 @@
+package fr.unistra.pelican.util.vectorial.orders;
+
+import java.util.Comparator;
+
+/**
+ * A VectorialOrdering defined by a total order on the vectors, given by compare.
+ *
+ * The comparison of two vectors depends only on them, not on the other vectors
+ * of the array, and min, max and rank return the smallest, greatest and r-th
+ * vector of the array according to it. The result of a morphological operator
+ * then only depends on the position of each vector in the sorted list of the
+ * vectors of the image, which lets the vectorial morphology sort these vectors
+ * once and work on their ranks (see RankTransform). The comparison must thus be
+ * transitive.
+ *
+ * @author PELICAN team
+ *
+ */
+
+public interface TotalVectorialOrdering extends VectorialOrdering,Comparator
+{
+	/**
+	 * Compares two vectors
+	 * @param o1 first double valued array
+	 * @param o2 second double valued array
+	 * @return a negative, null or positive value if o1 is respectively inferior, equal or superior to o2
+	 */
+	public int compare(Object o1,Object o2);
+}
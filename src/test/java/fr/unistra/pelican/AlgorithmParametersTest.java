@@ -0,0 +1,62 @@
+package fr.unistra.pelican;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import org.junit.Test;
+
+/**
+ * Checks the binding of the parameters of an algorithm to its fields. The
+ * overhead of one call is measured by the Algorithm.process benchmarks of
+ * {@link fr.unistra.pelican.benchmark.OperatorBenchmarks}.
+ */
+public class AlgorithmParametersTest {
+
+	/**
+	 * Algorithm doing nothing but binding its parameters.
+	 */
+	public static class Identity extends Algorithm {
+
+		public Image input;
+
+		public int offset = 0;
+
+		public double[] weights;
+
+		public Image output;
+
+		public Identity() {
+			super.inputs = "input";
+			super.options = "offset,weights";
+			super.outputs = "output";
+		}
+
+		public void launch() throws AlgorithmException {
+			output = input;
+		}
+	}
+
+	@Test
+	public void testBinding() {
+		Image image = new ByteImage(1, 1, 1, 1, 1);
+		Identity algorithm = new Identity();
+		assertEquals(image, algorithm.process(image, 3));
+		assertEquals(3, algorithm.offset);
+		assertNull(algorithm.weights);
+		assertEquals(Integer.class, algorithm.getOptionTypes()[0]);
+		assertEquals(Double[].class, algorithm.getOptionTypes()[1]);
+		assertEquals(Image.class, algorithm.getInputTypes()[0]);
+		assertEquals("output", algorithm.getOutputNames().get(0));
+	}
+
+	@Test(expected = InvalidNumberOfParametersException.class)
+	public void testNumberOfParameters() {
+		new Identity().process();
+	}
+
+	@Test(expected = InvalidTypeOfParameterException.class)
+	public void testTypeOfParameters() {
+		new Identity().process(new ByteImage(1, 1, 1, 1, 1), "three");
+	}
+
+}
@@ -0,0 +1,157 @@
+package fr.unistra.pelican;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import fr.unistra.pelican.algorithms.logical.AND;
+import fr.unistra.pelican.algorithms.logical.OR;
+import fr.unistra.pelican.algorithms.logical.XOR;
+import fr.unistra.pelican.algorithms.morphology.binary.BinaryDilation;
+import fr.unistra.pelican.algorithms.morphology.binary.BinaryErosion;
+import fr.unistra.pelican.util.Point4D;
+import fr.unistra.pelican.util.morphology.FlatStructuringElement2D;
+
+/**
+ * Checks the packed storage of binary images against the plain one.
+ */
+public class PackedBooleanImageTest {
+
+	private Random random = new Random(11);
+
+	private BooleanImage randomImage(int xdim, int ydim, int zdim, int bdim,
+			double density) {
+		BooleanImage image = new BooleanImage(xdim, ydim, zdim, 1, bdim);
+		for (int p = 0; p < image.size(); p++)
+			image.setPixelBoolean(p, random.nextDouble() < density);
+		return image;
+	}
+
+	private static void assertSame(Image truth, Image result) {
+		assertEquals(truth.size(), result.size());
+		for (int p = 0; p < truth.size(); p++)
+			assertEquals("pixel " + p, truth.getPixelBoolean(p), result
+				.getPixelBoolean(p));
+	}
+
+	@Test
+	public void testStorage() {
+		BooleanImage image = randomImage(67, 5, 1, 3, 0.5);
+		PackedBooleanImage packed = new PackedBooleanImage(image);
+		assertSame(image, packed);
+		assertEquals(image.getSum(), packed.getSum());
+		assertSame(image.getComplement(), packed.getComplement());
+		assertTrue(packed.equals(new PackedBooleanImage(packed)));
+		assertTrue(image.equals(packed));
+		assertSame(image, new BooleanImage(packed));
+		assertSame(image, packed.copyImage(true));
+
+		packed.setPixelBoolean(100, !packed.getPixelBoolean(100));
+		assertFalse(image.equals(packed));
+		assertEquals(!image.getPixelBoolean(100), packed.getPixelBoolean(100));
+
+		packed.fill(true);
+		assertTrue(packed.minimum());
+		assertEquals(packed.size(), packed.getSum());
+		assertEquals(0, packed.getComplement().getSum());
+		packed.setPixelDouble(packed.size() - 1, 0.2);
+		assertFalse(packed.minimum());
+		packed.fill(false);
+		assertTrue(packed.isEmpty());
+		assertFalse(packed.maximum());
+	}
+
+	@Test
+	public void testBits() {
+		long[] words = new long[5];
+		boolean[] truth = new boolean[320];
+		for (int i = 0; i < 1000; i++) {
+			int bit = random.nextInt(300);
+			int count = 1 + random.nextInt(Math.min(64, 320 - bit));
+			long value = random.nextLong();
+			PackedBooleanImage.setBits(words, bit, value, count);
+			for (int k = 0; k < count; k++)
+				truth[bit + k] = (value >>> k & 1) != 0;
+			bit = random.nextInt(320);
+			long read = PackedBooleanImage.getBits(words, bit);
+			for (int k = 0; k < 64; k++)
+				assertEquals(bit + k < 320 && truth[bit + k], (read >>> k & 1) != 0);
+		}
+	}
+
+	@Test
+	public void testLogical() {
+		BooleanImage image1 = randomImage(130, 70, 2, 1, 0.5);
+		BooleanImage image2 = randomImage(130, 70, 2, 1, 0.5);
+		PackedBooleanImage packed1 = new PackedBooleanImage(image1);
+		PackedBooleanImage packed2 = new PackedBooleanImage(image2);
+
+		Image result = AND.exec(packed1, packed2);
+		assertTrue(result instanceof PackedBooleanImage);
+		assertSame(AND.exec(image1, image2), result);
+		assertSame(OR.exec(image1, image2), OR.exec(packed1, packed2));
+		assertSame(XOR.exec(image1, image2), XOR.exec(packed1, packed2));
+	}
+
+	@Test
+	public void testMorphology() {
+		BooleanImage[] ses = new BooleanImage[6];
+		ses[0] = FlatStructuringElement2D.createSquareFlatStructuringElement(5);
+		ses[1] = FlatStructuringElement2D.createCircleFlatStructuringElement(3);
+		ses[2] = FlatStructuringElement2D.createLineFlatStructuringElement(9, 60);
+		ses[3] = FlatStructuringElement2D
+			.createHollowSquareFlatStructuringElement(7);
+		ses[4] = randomImage(4, 3, 2, 1, 0.6);
+		ses[4].setCenter(new Point4D(3, 0, 1, 0));
+		ses[5] = new BooleanImage(3, 3, 1, 1, 1);
+
+		BooleanImage[] images = { randomImage(61, 19, 3, 1, 0.7),
+			randomImage(13, 11, 1, 3, 0.6), randomImage(300, 200, 1, 1, 0.8) };
+		for (BooleanImage image : images) {
+			PackedBooleanImage packed = new PackedBooleanImage(image);
+			for (BooleanImage se : ses)
+				for (int option = BinaryErosion.IGNORE; option <= BinaryErosion.BLACK; option++) {
+					// boxed, since the int overload is the optimization one
+					Integer boxed = Integer.valueOf(option);
+					Image result = BinaryErosion.exec(packed, se, boxed);
+					assertTrue(result instanceof PackedBooleanImage);
+					assertSame(BinaryErosion.exec(image, se, boxed), result);
+					assertSame(BinaryDilation.exec(image, se, boxed),
+						BinaryDilation.exec(packed, se, boxed));
+				}
+		}
+	}
+
+	public static void main(String[] args) {
+		PackedBooleanImageTest test = new PackedBooleanImageTest();
+		BooleanImage image = test.randomImage(2048, 2048, 1, 1, 0.9);
+		PackedBooleanImage packed = new PackedBooleanImage(image);
+		BooleanImage[] ses = {
+			FlatStructuringElement2D.createSquareFlatStructuringElement(3),
+			FlatStructuringElement2D.createCircleFlatStructuringElement(5),
+			FlatStructuringElement2D.createCircleFlatStructuringElement(15) };
+		for (BooleanImage se : ses) {
+			long start = System.currentTimeMillis();
+			BinaryErosion.exec(image, se);
+			long middle = System.currentTimeMillis();
+			BinaryErosion.exec(packed, se);
+			long end = System.currentTimeMillis();
+			System.out.println(se.getSum() + " points : boolean[] "
+				+ (middle - start) + " ms, long[] " + (end - middle) + " ms");
+		}
+		long start = System.currentTimeMillis();
+		for (int i = 0; i < 10; i++)
+			AND.exec(image, image);
+		long middle = System.currentTimeMillis();
+		for (int i = 0; i < 10; i++)
+			AND.exec(packed, packed);
+		long end = System.currentTimeMillis();
+		System.out.println("10 AND : boolean[] " + (middle - start)
+			+ " ms, long[] " + (end - middle) + " ms");
+	}
+
+}
@@ -0,0 +1,104 @@
+package fr.unistra.pelican.algorithms.conversion;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import fr.unistra.pelican.AlgorithmException;
+import fr.unistra.pelican.ByteImage;
+import fr.unistra.pelican.Image;
+
+/**
+ * Checks the fused colour transforms.
+ */
+public class ColourTransformTest {
+
+	private static ByteImage random() {
+		ByteImage image = new ByteImage(200, 150, 1, 1, 3);
+		Random random = new Random(1);
+		for (int p = 0; p < image.size(); p++)
+			image.setPixelByte(p, random.nextInt(256));
+		image.setColor(true);
+		return image;
+	}
+
+	/**
+	 * Colours, and their values given by the conversions of each pixel before
+	 * the fused transforms
+	 */
+	private static final int[][] RGB = { { 0, 0, 0 }, { 255, 255, 255 },
+			{ 255, 0, 0 }, { 0, 128, 255 }, { 12, 200, 77 }, { 90, 90, 30 } };
+
+	private static final double[][] LCH = { { 0.0, 0.0, 1.0 },
+			{ 99.99439306792942, 0.0, 1.0 },
+			{ 53.23727688353884, 104.54691051311663, 0.11110479480499472 },
+			{ 71.62882937401127, 46.78447687369631, 0.6944801676710941 },
+			{ 81.43563916947875, 65.92910063908407, 0.4327906714476035 },
+			{ 64.6367682120009, 34.75821253750179, 0.29559543882519074 } };
+
+	private static final double[][] LUV = { { -16.0, Double.NaN, Double.NaN },
+			{ 99.99439306792942, 5.227382810548641E-4, 2.6100689811527165E-4 },
+			{ 53.23727688353884, 175.0041601667904, 37.749882810278535 },
+			{ 71.62882937401127, -48.2255679624982, -69.5500109304136 },
+			{ 81.43563916947875, -65.01014600328928, 47.77172044144735 },
+			{ 64.6367682120009, 3.1336980619198496, 43.42514431517767 } };
+
+	private static final double[][] HSV = { { 0.0, 0.0, 0.0 },
+			{ 0.0, 0.0, 0.999855 }, { 0.0, 1.0, 0.999855 },
+			{ 0.5830065359477123, 1.0, 0.999855 },
+			{ 0.39095744680851063, 0.9400000000000001, 0.7842 },
+			{ 0.16666666666666666, 0.6666666666666666, 0.35289 } };
+
+	private static final double[][] HSL = { { Double.NaN, 0.0, 0.0 },
+			{ Double.NaN, 0.0, 0.999855 }, { 0.0, 1.0, 0.4999275 },
+			{ 0.5830065359477125, 1.0, 0.4999275 },
+			{ 0.39095744680851063, 0.8867924528301887, 0.415626 },
+			{ 0.16666666666666663, 0.49999999999999994, 0.23526 } };
+
+	private static final double[][] I1I2I3 = { { 0.0, 0.5, 0.5 },
+			{ 0.999855, 0.5, 0.5 },
+			{ 0.333285, 0.9999275000000001, 0.25003624999999996 },
+			{ 0.500581, 7.249999999997536E-5, 0.50098025 },
+			{ 0.37772300000000003, 0.3725675, 0.80485775 },
+			{ 0.27447, 0.61763, 0.558815 } };
+
+	private static void assertColours(double[][] expected, Image result) {
+		for (int i = 0; i < expected.length; i++)
+			for (int c = 0; c < 3; c++)
+				assertEquals(expected[i][c], result.getPixelXYBDouble(i, 0, c),
+						1e-12);
+	}
+
+	@Test
+	public void testFused() {
+		ByteImage input = new ByteImage(RGB.length, 1, 1, 1, 3);
+		for (int i = 0; i < RGB.length; i++)
+			for (int c = 0; c < 3; c++)
+				input.setPixelXYBByte(i, 0, c, RGB[i][c]);
+		input.setColor(true);
+		assertColours(LCH, ColourTransform.RGB_TO_LCH.convert(input));
+		assertColours(LUV, ColourTransform.RGB_TO_LUV.convert(input));
+		assertColours(HSV, ColourTransform.RGB_TO_HSV.convert(input));
+		assertColours(HSV, RGBToHSV.exec(input));
+		assertColours(HSL, ColourTransform.RGB_TO_HSL.convert(input));
+		assertColours(I1I2I3, ColourTransform.RGB_TO_I1I2I3.convert(input));
+	}
+
+	@Test
+	public void testInverse() {
+		ByteImage input = random();
+		Image lab = ColourTransform.RGB_TO_LAB.convert(input);
+		Image back = ColourTransform.LAB_TO_LCH.then(ColourTransform.LCH_TO_LAB)
+				.convert(lab);
+		for (int p = 0; p < lab.size(); p++)
+			assertEquals(lab.getPixelDouble(p), back.getPixelDouble(p), 1e-9);
+	}
+
+	@Test(expected = AlgorithmException.class)
+	public void testMismatch() {
+		ColourTransform.RGB_TO_XYZ.then(ColourTransform.RGB_TO_HSV);
+	}
+
+}
@@ -0,0 +1,197 @@
+package fr.unistra.pelican.algorithms.frequential;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import fr.unistra.pelican.DoubleImage;
+
+/**
+ * Compares the fast Fourier transforms with the naive discrete Fourier
+ * transform, for power of two, smooth, prime and odd lengths.
+ */
+public class FFTPlanTest {
+
+	private static final double EPSILON = 1e-9;
+
+	private Random random = new Random(5);
+
+	private double[] randomLine(int n) {
+		double[] line = new double[n];
+		for (int i = 0; i < n; i++)
+			line[i] = random.nextGaussian();
+		return line;
+	}
+
+	/**
+	 * Naive forward transform, as {re,im}.
+	 */
+	private static double[][] naive(double[] re, double[] im) {
+		int n = re.length;
+		double[][] result = new double[2][n];
+		for (int k = 0; k < n; k++)
+			for (int j = 0; j < n; j++) {
+				double angle = -2 * Math.PI * ((long) j * k % n) / n;
+				double c = Math.cos(angle), s = Math.sin(angle);
+				result[0][k] += re[j] * c - im[j] * s;
+				result[1][k] += re[j] * s + im[j] * c;
+			}
+		return result;
+	}
+
+	@Test
+	public void testComplex() {
+		for (int n = 1; n <= 130; n++) {
+			FFTPlan plan = FFTPlan.get(n);
+			double[] buffer = plan.newBuffer();
+			double[] re = randomLine(n), im = randomLine(n);
+			double[][] truth = naive(re, im);
+			double[] r = re.clone(), i = im.clone();
+			plan.transform(r, i, 0, 1, false, buffer);
+			for (int k = 0; k < n; k++) {
+				assertEquals("n=" + n, truth[0][k], r[k], EPSILON);
+				assertEquals("n=" + n, truth[1][k], i[k], EPSILON);
+			}
+			plan.transform(r, i, 0, 1, true, buffer);
+			for (int k = 0; k < n; k++) {
+				assertEquals("n=" + n, re[k], r[k], EPSILON);
+				assertEquals("n=" + n, im[k], i[k], EPSILON);
+			}
+		}
+	}
+
+	@Test
+	public void testReal() {
+		for (int n : new int[] { 1, 2, 7, 16, 30, 37, 74, 97, 128, 250 }) {
+			FFTPlan plan = FFTPlan.get(n);
+			double[] buffer = plan.newBuffer();
+			// interleaved with another line, to check the strides
+			double[] data = randomLine(2 * n);
+			double[] line = new double[n];
+			for (int k = 0; k < n; k++)
+				line[k] = data[2 * k + 1];
+			double[][] truth = naive(line, new double[n]);
+			double[] re = new double[n / 2 + 1], im = new double[n / 2 + 1];
+			plan.forwardReal(data, 1, 2, re, im, 0, 1, buffer);
+			for (int k = 0; k <= n / 2; k++) {
+				assertEquals("n=" + n, truth[0][k], re[k], EPSILON);
+				assertEquals("n=" + n, truth[1][k], im[k], EPSILON);
+			}
+			double[] back = new double[n];
+			plan.inverseReal(re, im, 0, 1, back, 0, 1, buffer);
+			for (int k = 0; k < n; k++)
+				assertEquals("n=" + n, line[k], back[k], EPSILON);
+		}
+	}
+
+	@Test
+	public void testImages() {
+		int[][] dims = { { 16, 8, 1 }, { 12, 10, 3 }, { 37, 20, 1 },
+				{ 45, 33, 2 } };
+		for (int[] d : dims) {
+			int xdim = d[0], ydim = d[1], bdim = d[2];
+			DoubleImage re = new DoubleImage(xdim, ydim, 1, 1, bdim);
+			DoubleImage im = new DoubleImage(xdim, ydim, 1, 1, bdim);
+			for (int p = 0; p < re.size(); p++) {
+				re.setPixelDouble(p, random.nextDouble());
+				im.setPixelDouble(p, random.nextDouble());
+			}
+			DoubleImage[] real = FFT2.exec(re.copyImage(true), null, false);
+			DoubleImage[] complex = FFT2.exec(re.copyImage(true), im
+					.copyImage(true), false);
+			for (int b = 0; b < bdim; b++) {
+				// naive 2-D transforms of the band
+				double[] pr = new double[xdim * ydim];
+				double[] pi = new double[xdim * ydim];
+				for (int p = 0; p < pr.length; p++) {
+					pr[p] = re.getPixelDouble(p * bdim + b);
+					pi[p] = im.getPixelDouble(p * bdim + b);
+				}
+				double[][] r = naive2D(pr, new double[pr.length], xdim, ydim);
+				double[][] c = naive2D(pr, pi, xdim, ydim);
+				for (int p = 0; p < pr.length; p++) {
+					assertEquals(r[0][p], real[0].getPixelDouble(p * bdim + b),
+							EPSILON);
+					assertEquals(r[1][p], real[1].getPixelDouble(p * bdim + b),
+							EPSILON);
+					assertEquals(c[0][p], complex[0].getPixelDouble(p * bdim
+							+ b), EPSILON);
+					assertEquals(c[1][p], complex[1].getPixelDouble(p * bdim
+							+ b), EPSILON);
+				}
+				if (bdim == 1) {
+					double[][] half = FFTPlan.forwardReal2D(pr, xdim, ydim);
+					int width = xdim / 2 + 1;
+					for (int v = 0; v < ydim; v++)
+						for (int u = 0; u < width; u++) {
+							assertEquals(r[0][u + xdim * v], half[0][u + width
+									* v], EPSILON);
+							assertEquals(r[1][u + xdim * v], half[1][u + width
+									* v], EPSILON);
+						}
+					double[] back = new double[pr.length];
+					FFTPlan.inverseReal2D(half[0], half[1], xdim, ydim, back);
+					for (int p = 0; p < pr.length; p++)
+						assertEquals(pr[p], back[p], EPSILON);
+				}
+			}
+			DoubleImage[] back = FFT2.exec(complex[0], complex[1], true);
+			for (int p = 0; p < re.size(); p++) {
+				assertEquals(re.getPixelDouble(p), back[0].getPixelDouble(p),
+						EPSILON);
+				assertEquals(im.getPixelDouble(p), back[1].getPixelDouble(p),
+						EPSILON);
+			}
+		}
+	}
+
+	private static double[][] naive2D(double[] re, double[] im, int xdim,
+			int ydim) {
+		double[][] result = { re.clone(), im.clone() };
+		double[] r = new double[xdim], i = new double[xdim];
+		for (int y = 0; y < ydim; y++) {
+			System.arraycopy(result[0], y * xdim, r, 0, xdim);
+			System.arraycopy(result[1], y * xdim, i, 0, xdim);
+			double[][] line = naive(r, i);
+			System.arraycopy(line[0], 0, result[0], y * xdim, xdim);
+			System.arraycopy(line[1], 0, result[1], y * xdim, xdim);
+		}
+		r = new double[ydim];
+		i = new double[ydim];
+		for (int x = 0; x < xdim; x++) {
+			for (int y = 0; y < ydim; y++) {
+				r[y] = result[0][x + xdim * y];
+				i[y] = result[1][x + xdim * y];
+			}
+			double[][] line = naive(r, i);
+			for (int y = 0; y < ydim; y++) {
+				result[0][x + xdim * y] = line[0][y];
+				result[1][x + xdim * y] = line[1][y];
+			}
+		}
+		return result;
+	}
+
+	public static void main(String[] args) {
+		FFTPlanTest test = new FFTPlanTest();
+		for (int size : new int[] { 512, 500, 509, 1024, 1000, 1021 }) {
+			DoubleImage image = new DoubleImage(size, size, 1, 1, 1);
+			double[] data = test.randomLine(size * size);
+			image.setPixels(data);
+			FFT2.exec(image.copyImage(true), null, false);
+			long start = System.currentTimeMillis();
+			for (int i = 0; i < 5; i++)
+				FFT2.exec(image.copyImage(true), null, false);
+			long middle = System.currentTimeMillis();
+			for (int i = 0; i < 5; i++)
+				FFTPlan.forwardReal2D(data, size, size);
+			long end = System.currentTimeMillis();
+			System.out.println(size + "x" + size + " : FFT2 "
+					+ (middle - start) / 5 + " ms, real half transform "
+					+ (end - middle) / 5 + " ms");
+		}
+	}
+
+}
@@ -0,0 +1,185 @@
+package fr.unistra.pelican.algorithms.io;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import fr.unistra.pelican.DoubleImage;
+import fr.unistra.pelican.Image;
+import fr.unistra.pelican.LargeDoubleImage;
+
+/**
+ * The pixels must be read flipped, calibrated and with the blanks filled,
+ * whatever the window.
+ */
+public class FitsImageLoadTest {
+
+	private static final int WIDTH = 61, HEIGHT = 47, BANDS = 2;
+
+	private File file;
+
+	@Before
+	public void createFile() throws IOException {
+		file = File.createTempFile("pelican", ".fits");
+	}
+
+	@After
+	public void deleteFile() {
+		file.delete();
+	}
+
+	private static String card(String card) {
+		StringBuilder s = new StringBuilder(card);
+		while (s.length() < 80)
+			s.append(' ');
+		return s.toString();
+	}
+
+	private static String card(String key, Object value) {
+		StringBuilder s = new StringBuilder(key);
+		while (s.length() < 8)
+			s.append(' ');
+		String v = value.toString();
+		s.append("= ");
+		for (int i = v.length(); i < 20; i++)
+			s.append(' ');
+		return card(s.append(v).toString());
+	}
+
+	/**
+	 * Writes a fits file of random raw values, returns the expected values
+	 * of the image, by band, line (top to bottom) and column
+	 */
+	private double[][][] write(int bitPix, double bscale, double bzero,
+		Integer blank) throws IOException {
+		StringBuilder header = new StringBuilder();
+		header.append(card("SIMPLE", "T"));
+		header.append(card("BITPIX", bitPix));
+		header.append(card("NAXIS", 3));
+		header.append(card("NAXIS1", WIDTH));
+		header.append(card("NAXIS2", HEIGHT));
+		header.append(card("NAXIS3", BANDS));
+		header.append(card("BSCALE", bscale));
+		header.append(card("BZERO", bzero));
+		if (blank != null)
+			header.append(card("BLANK", blank));
+		header.append(card("END"));
+		while (header.length() % 2880 != 0)
+			header.append(' ');
+		int bytes = Math.abs(bitPix) / 8;
+		int size = WIDTH * HEIGHT * BANDS;
+		ByteBuffer data = ByteBuffer.allocate((size * bytes + 2879) / 2880
+			* 2880);
+		Random random = new Random(bitPix);
+		double[] raw = new double[size];
+		double min = Double.POSITIVE_INFINITY;
+		for (int i = 0; i < size; i++) {
+			switch (bitPix) {
+			case 8:
+				data.put((byte) random.nextInt());
+				raw[i] = data.get(i);
+				break;
+			case 16:
+				short s = (short) random.nextInt();
+				if (blank != null && i % 17 == 0)
+					s = (short) blank.intValue();
+				data.putShort(s);
+				raw[i] = s;
+				break;
+			case 32:
+				raw[i] = random.nextInt();
+				data.putInt((int) raw[i]);
+				break;
+			case -32:
+				float f = (float) random.nextGaussian();
+				data.putFloat(f);
+				raw[i] = f;
+				break;
+			default:
+				raw[i] = random.nextGaussian();
+				data.putDouble(raw[i]);
+			}
+			min = Math.min(min, raw[i]);
+		}
+		FileOutputStream out = new FileOutputStream(file);
+		out.write(header.toString().getBytes("US-ASCII"));
+		out.write(data.array());
+		out.close();
+
+		double[][][] expected = new double[BANDS][HEIGHT][WIDTH];
+		for (int b = 0; b < BANDS; b++)
+			for (int y = 0; y < HEIGHT; y++)
+				for (int x = 0; x < WIDTH; x++) {
+					// the first row of the file is the bottom of the image
+					double v = raw[(b * HEIGHT + HEIGHT - 1 - y) * WIDTH + x];
+					if (blank != null && v == blank)
+						v = min;
+					expected[b][y][x] = bscale * v + bzero;
+				}
+		return expected;
+	}
+
+	private static void check(double[][][] expected, Image image, int x0,
+		int y0) {
+		for (int b = 0; b < image.getBDim(); b++)
+			for (int y = 0; y < image.getYDim(); y++)
+				for (int x = 0; x < image.getXDim(); x++)
+					assertEquals(expected[b][y0 + y][x0 + x], image.getPixelXYBDouble(
+						x, y, b), 0);
+	}
+
+	@Test
+	public void testBitPix() throws IOException {
+		for (int bitPix : new int[] { 8, 16, 32, -32, -64 }) {
+			double[][][] expected = write(bitPix, 1, 0, null);
+			Image image = FitsImageLoad.exec(file.getPath());
+			assertEquals(WIDTH, image.getXDim());
+			assertEquals(HEIGHT, image.getYDim());
+			assertEquals(BANDS, image.getBDim());
+			check(expected, image, 0, 0);
+		}
+	}
+
+	@Test
+	public void testCalibration() throws IOException {
+		double[][][] expected = write(16, 0.5, 100, -32768);
+		check(expected, FitsImageLoad.exec(file.getPath()), 0, 0);
+		expected = write(-32, 2, -1, null);
+		check(expected, FitsImageLoad.exec(file.getPath()), 0, 0);
+	}
+
+	@Test
+	public void testWindow() throws IOException {
+		double[][][] expected = write(-64, 1, 0, null);
+		Image image = FitsImageLoad.exec(file.getPath(), new int[] { 5, 3, 40,
+			30 }, false);
+		assertEquals(36, image.getXDim());
+		assertEquals(28, image.getYDim());
+		check(expected, image, 5, 3);
+		// whole lines
+		image = FitsImageLoad.exec(file.getPath(), new int[] { 0, 10, WIDTH - 1,
+			HEIGHT - 1 }, false);
+		check(expected, image, 0, 10);
+	}
+
+	@Test
+	public void testLarge() throws IOException {
+		double[][][] expected = write(32, 1.5, 3, null);
+		Image image = FitsImageLoad.exec(file.getPath(), new int[] { 7, 0, 60,
+			20 }, true);
+		assertTrue(image instanceof LargeDoubleImage);
+		check(expected, image, 7, 0);
+		((LargeDoubleImage) image).close();
+		assertTrue(FitsImageLoad.exec(file.getPath()) instanceof DoubleImage);
+	}
+
+}
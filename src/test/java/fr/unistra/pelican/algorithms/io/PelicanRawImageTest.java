@@ -0,0 +1,141 @@
+package fr.unistra.pelican.algorithms.io;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import fr.unistra.pelican.BooleanImage;
+import fr.unistra.pelican.ByteImage;
+import fr.unistra.pelican.DoubleImage;
+import fr.unistra.pelican.Image;
+import fr.unistra.pelican.IntegerImage;
+import fr.unistra.pelican.LargeByteImage;
+import fr.unistra.pelican.LargeDoubleImage;
+import fr.unistra.pelican.util.largeImages.LargeImageInterface;
+
+/**
+ * Images saved in raw format must be loaded back identical, in memory or
+ * attached to the file.
+ */
+public class PelicanRawImageTest {
+
+	private File file;
+
+	@Before
+	public void createFile() throws IOException {
+		file = File.createTempFile("pelican", ".raw");
+	}
+
+	@After
+	public void deleteFile() {
+		file.delete();
+	}
+
+	private static Image random(Image image, long seed) {
+		Random random = new Random(seed);
+		for (int p = 0; p < image.size(); p++)
+			if (image instanceof BooleanImage)
+				image.setPixelBoolean(p, random.nextBoolean());
+			else if (image instanceof ByteImage)
+				image.setPixelByte(p, random.nextInt(256));
+			else if (image instanceof IntegerImage)
+				image.setPixelInt(p, random.nextInt());
+			else
+				image.setPixelDouble(p, random.nextGaussian());
+		image.setName("random");
+		image.type = 2;
+		image.color = true;
+		image.setProperty("seed", seed);
+		return image;
+	}
+
+	private static Image[] images() {
+		return new Image[] { random(new BooleanImage(37, 21, 3, 2, 1), 1),
+			random(new ByteImage(41, 33, 1, 1, 3), 2),
+			random(new IntegerImage(17, 9, 5, 1, 2), 3),
+			random(new DoubleImage(29, 31, 2, 1, 1), 4) };
+	}
+
+	private static void assertSame(Image expected, Image image) {
+		assertEquals(expected.getXDim(), image.getXDim());
+		assertEquals(expected.getYDim(), image.getYDim());
+		assertEquals(expected.getZDim(), image.getZDim());
+		assertEquals(expected.getTDim(), image.getTDim());
+		assertEquals(expected.getBDim(), image.getBDim());
+		assertEquals(expected.getName(), image.getName());
+		assertEquals(expected.type, image.type);
+		assertEquals(expected.color, image.color);
+		assertEquals(expected.getProperty("seed"), image.getProperty("seed"));
+		for (int p = 0; p < expected.size(); p++)
+			assertEquals(expected.getPixelDouble(p), image.getPixelDouble(p), 0);
+	}
+
+	@Test
+	public void testRoundTrip() {
+		for (Image image : images()) {
+			PelicanRawImageSave.exec(image, file.getPath());
+			Image loaded = PelicanRawImageLoad.exec(file.getPath());
+			assertEquals(image.getClass(), loaded.getClass());
+			assertSame(image, loaded);
+		}
+	}
+
+	@Test
+	public void testCompression() {
+		for (Image image : images()) {
+			// several chunks, the last one incomplete
+			new PelicanRawImageSave().process(image, file.getPath(), true, 1000);
+			Image loaded = PelicanRawImageLoad.exec(file.getPath(), true);
+			assertEquals(image.getClass(), loaded.getClass());
+			assertSame(image, loaded);
+		}
+	}
+
+	@Test
+	public void testView() {
+		for (Image image : images()) {
+			PelicanRawImageSave.exec(image, file.getPath());
+			long length = file.length();
+			Image view = PelicanRawImageLoad.exec(file.getPath(), true);
+			assertTrue(view instanceof LargeImageInterface);
+			assertSame(image, view);
+			((LargeImageInterface) view).close();
+			// the file is not deleted nor extended by the view
+			assertEquals(length, file.length());
+		}
+	}
+
+	@Test
+	public void testWriteBack() {
+		ByteImage image = (ByteImage) random(new ByteImage(300, 200, 1, 1, 3), 5);
+		PelicanRawImageSave.exec(image, file.getPath());
+		long length = file.length();
+		LargeByteImage view = (LargeByteImage) PelicanRawImageLoad.exec(file
+			.getPath(), true);
+		for (int p = 0; p < image.size(); p += 7) {
+			image.setPixelByte(p, 255 - image.getPixelByte(p));
+			view.setPixelByte(p, image.getPixelByte(p));
+		}
+		view.saveData();
+		assertEquals(length, file.length());
+		assertSame(image, PelicanRawImageLoad.exec(file.getPath()));
+
+		DoubleImage doubles = (DoubleImage) random(new DoubleImage(50, 40, 1, 1,
+			1), 6);
+		PelicanRawImageSave.exec(doubles, file.getPath());
+		LargeDoubleImage doubleView = (LargeDoubleImage) PelicanRawImageLoad
+			.exec(file.getPath(), true);
+		doubles.setPixelDouble(123, Math.PI);
+		doubleView.setPixelDouble(123, Math.PI);
+		doubleView.saveData();
+		assertSame(doubles, PelicanRawImageLoad.exec(file.getPath()));
+	}
+
+}
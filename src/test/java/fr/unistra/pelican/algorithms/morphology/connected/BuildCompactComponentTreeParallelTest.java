@@ -0,0 +1,104 @@
+package fr.unistra.pelican.algorithms.morphology.connected;
+
+import static org.junit.Assert.assertArrayEquals;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+import org.junit.After;
+import org.junit.Test;
+
+import fr.unistra.pelican.ByteImage;
+import fr.unistra.pelican.DoubleImage;
+import fr.unistra.pelican.Image;
+import fr.unistra.pelican.util.Parallel;
+import fr.unistra.pelican.util.Point3D;
+import fr.unistra.pelican.util.connectivityTrees.CompactComponentTree;
+import fr.unistra.pelican.util.connectivityTrees.ComponentTreeUtil.TreeType;
+import fr.unistra.pelican.util.connectivityTrees.connectivity.Connectivity3D;
+import fr.unistra.pelican.util.connectivityTrees.connectivity.TrivialConnectivity;
+
+/**
+ * The parallel builder must give the same arrays as the sequential one,
+ * whatever the number of slabs.
+ */
+public class BuildCompactComponentTreeParallelTest {
+
+	private final int threads = Parallel.getThreadCount();
+
+	@After
+	public void restoreThreads() {
+		Parallel.setThreadCount(threads);
+	}
+
+	private static Image random(Image image, int levels, long seed) {
+		// levels evenly spread over the range of the type, as a byte image
+		// would saturate on the raw level numbers
+		Random random = new Random(seed);
+		for (int p = 0; p < image.size(); p++)
+			image.setPixelDouble(p, random.nextInt(levels) / (levels - 1.0));
+		// some smoothing, so that the nodes cross the slab borders, keeping
+		// the values on the levels
+		int xdim = image.getXDim();
+		double step = levels - 1;
+		for (int p = image.size() - 1; p >= xdim; p--)
+			image.setPixelDouble(p, Math.floor((image.getPixelDouble(p)
+					+ image.getPixelDouble(p - 1) + image
+					.getPixelDouble(p - xdim)) / 3 * step + 1e-9) / step);
+		return image;
+	}
+
+	/**
+	 * Neighbourhood of the points at distance at most <tt>radius</tt>, in
+	 * the xy plane or in the volume
+	 */
+	private static Connectivity3D cube(int radius, boolean volume) {
+		ArrayList<Point3D> points = new ArrayList<Point3D>();
+		int rz = volume ? radius : 0;
+		for (int z = -rz; z <= rz; z++)
+			for (int y = -radius; y <= radius; y++)
+				for (int x = -radius; x <= radius; x++)
+					if (x != 0 || y != 0 || z != 0)
+						points.add(new Point3D(x, y, z));
+		return new TrivialConnectivity(points.toArray(new Point3D[0]));
+	}
+
+	private static void check(Image image, Connectivity3D con) {
+		for (TreeType type : TreeType.values()) {
+			CompactComponentTree expected = BuildCompactComponentTree.exec(
+					image, con, type);
+			for (int n : new int[] { 1, 2, 3, 4, 7 }) {
+				Parallel.setThreadCount(n);
+				CompactComponentTree tree = BuildCompactComponentTreeParallel
+						.exec(image, con, type);
+				assertArrayEquals(expected.sorted, tree.sorted);
+				assertArrayEquals(expected.rank, tree.rank);
+				assertArrayEquals(expected.parent, tree.parent);
+				assertArrayEquals(expected.area, tree.area);
+				assertArrayEquals(expected.sum, tree.sum, 0);
+				assertArrayEquals(expected.perimeter, tree.perimeter);
+				assertArrayEquals(expected.xmin, tree.xmin);
+				assertArrayEquals(expected.ymax, tree.ymax);
+				assertArrayEquals(expected.zmax, tree.zmax);
+			}
+		}
+	}
+
+	@Test
+	public void images() {
+		check(random(new ByteImage(300, 211, 1, 1, 1), 256, 1),
+				TrivialConnectivity.getFourNeighbourhood());
+		check(random(new ByteImage(300, 211, 1, 1, 1), 8, 2),
+				TrivialConnectivity.getHeightNeighbourhood());
+		check(random(new DoubleImage(257, 199, 1, 1, 1), 1000, 3),
+				TrivialConnectivity.getHeightNeighbourhood());
+		check(random(new ByteImage(300, 211, 1, 1, 1), 16, 4), cube(2, false));
+	}
+
+	@Test
+	public void volumes() {
+		check(random(new ByteImage(41, 37, 29, 1, 1), 6, 5), cube(1, true));
+		check(random(new ByteImage(41, 37, 29, 1, 1), 256, 6), cube(1, true));
+	}
+
+}
@@ -0,0 +1,177 @@
+package fr.unistra.pelican.algorithms.morphology.gray;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import fr.unistra.pelican.ByteImage;
+import fr.unistra.pelican.DoubleImage;
+import fr.unistra.pelican.Image;
+import fr.unistra.pelican.IntegerImage;
+import fr.unistra.pelican.algorithms.morphology.connected.BuildCompactComponentTree;
+import fr.unistra.pelican.algorithms.morphology.connected.FilterComponentTree;
+import fr.unistra.pelican.algorithms.morphology.connected.FilterComponentTree.FilterStrategy;
+import fr.unistra.pelican.algorithms.morphology.connected.ReconstructImageFromTree;
+import fr.unistra.pelican.util.connectivityTrees.CompactComponentTree;
+import fr.unistra.pelican.util.connectivityTrees.ComponentTreeUtil.TreeType;
+import fr.unistra.pelican.util.connectivityTrees.attributes.AttributeVolume;
+import fr.unistra.pelican.util.connectivityTrees.attributes.ComponentAttributeThresholdFilter;
+import fr.unistra.pelican.util.connectivityTrees.connectivity.TrivialConnectivity;
+import fr.unistra.pelican.util.morphology.IncreasingAttribute;
+
+/**
+ * Checks the union-find attribute openings and closings against the
+ * threshold decomposition and the component trees.
+ */
+public class GrayAttributeOpeningTest {
+
+	private static ByteImage random(int xdim, int ydim, int levels, long seed) {
+		Random random = new Random(seed);
+		ByteImage image = new ByteImage(xdim, ydim, 1, 1, 1);
+		for (int p = 0; p < image.size(); p++)
+			image.setPixelByte(p, random.nextInt(levels) * (255 / (levels - 1)));
+		return image;
+	}
+
+	/**
+	 * Area opening by threshold decomposition : each pixel takes the highest
+	 * level t such that its 8-connected component of pixels >= t has at least
+	 * thresh pixels.
+	 */
+	private static int[] decomposition(ByteImage image, int thresh) {
+		int xdim = image.getXDim(), ydim = image.getYDim();
+		int size = image.size();
+		int[] result = new int[size];
+		int[] stack = new int[size];
+		int[] label = new int[size];
+		for (int t = 0; t < 256; t++) {
+			java.util.Arrays.fill(label, -1);
+			for (int s = 0; s < size; s++) {
+				if (label[s] != -1 || image.getPixelByte(s) < t)
+					continue;
+				int n = 0, top = 0;
+				stack[top++] = s;
+				label[s] = s;
+				int[] members = new int[size];
+				while (top > 0) {
+					int p = stack[--top];
+					members[n++] = p;
+					for (int dy = -1; dy <= 1; dy++)
+						for (int dx = -1; dx <= 1; dx++) {
+							int x = p % xdim + dx, y = p / xdim + dy;
+							if (x < 0 || y < 0 || x >= xdim || y >= ydim)
+								continue;
+							int q = x + xdim * y;
+							if (label[q] == -1 && image.getPixelByte(q) >= t) {
+								label[q] = s;
+								stack[top++] = q;
+							}
+						}
+				}
+				if (n >= thresh)
+					for (int k = 0; k < n; k++)
+						result[members[k]] = t;
+			}
+		}
+		return result;
+	}
+
+	@Test
+	public void areaOpeningAndClosing() {
+		for (int seed = 0; seed < 6; seed++) {
+			ByteImage image = random(23, 19, seed % 2 == 0 ? 256 : 4, seed);
+			int thresh = 1 + 7 * seed;
+			int[] expected = decomposition(image, thresh);
+			Image result = GrayAreaOpening.exec(image, thresh);
+			for (int p = 0; p < image.size(); p++)
+				assertEquals(expected[p], result.getPixelByte(p));
+
+			ByteImage inverse = new ByteImage(image, false);
+			for (int p = 0; p < image.size(); p++)
+				inverse.setPixelByte(p, 255 - image.getPixelByte(p));
+			expected = decomposition(inverse, thresh);
+			result = GrayAreaClosing.exec(image, thresh);
+			for (int p = 0; p < image.size(); p++)
+				assertEquals(255 - expected[p], result.getPixelByte(p));
+		}
+	}
+
+	@Test
+	public void volumeOpeningAsComponentTree() {
+		for (int seed = 0; seed < 4; seed++) {
+			ByteImage image = random(31, 27, 16, seed);
+			double thresh = 0.5 + seed;
+			CompactComponentTree tree = BuildCompactComponentTree.exec(image,
+					TrivialConnectivity.getHeightNeighbourhood(), TreeType.Max);
+			tree = FilterComponentTree.exec(tree,
+					new ComponentAttributeThresholdFilter(AttributeVolume.class,
+							thresh), FilterStrategy.Min);
+			Image expected = ReconstructImageFromTree.exec(tree);
+			Image result = GrayAttributeOpening.exec(image,
+					new IncreasingAttribute.Volume(), thresh);
+			for (int p = 0; p < image.size(); p++)
+				assertEquals(expected.getPixelDouble(p), result
+						.getPixelDouble(p), 0);
+		}
+	}
+
+	@Test
+	public void anyTypeBandAndDepth() {
+		// every band of a volume is filtered separately, whatever the type
+		Random random = new Random(7);
+		DoubleImage volume = new DoubleImage(13, 11, 9, 1, 2);
+		for (int p = 0; p < volume.size(); p++)
+			volume.setPixelDouble(p, random.nextGaussian());
+		IntegerImage ints = new IntegerImage(volume, false);
+		for (int p = 0; p < volume.size(); p++)
+			ints.setPixelInt(p, (int) (1000000 * volume.getPixelDouble(p)));
+		Image result = GrayAttributeOpening.exec(volume,
+				new IncreasingAttribute.BoundingBoxDiagonal(), 3.0);
+		Image intResult = GrayAttributeOpening.exec(ints,
+				new IncreasingAttribute.BoundingBoxDiagonal(), 3.0);
+		for (int b = 0; b < 2; b++) {
+			DoubleImage band = new DoubleImage(13, 11, 9, 1, 1);
+			for (int p = 0; p < band.size(); p++)
+				band.setPixelDouble(p, volume.getPixelDouble(2 * p + b));
+			Image expected = GrayAttributeOpening.exec(band,
+					new IncreasingAttribute.BoundingBoxDiagonal(), 3.0);
+			for (int p = 0; p < band.size(); p++) {
+				assertEquals(expected.getPixelDouble(p), result
+						.getPixelDouble(2 * p + b), 0);
+				assertEquals((int) (1000000 * expected.getPixelDouble(p)),
+						intResult.getPixelInt(2 * p + b));
+			}
+		}
+		// isolated maxima are removed, so the result is below the input
+		int changed = 0;
+		for (int p = 0; p < volume.size(); p++) {
+			if (result.getPixelDouble(p) > volume.getPixelDouble(p))
+				throw new AssertionError("not anti-extensive at " + p);
+			if (result.getPixelDouble(p) != volume.getPixelDouble(p))
+				changed++;
+		}
+		assertEquals(true, changed > 0);
+	}
+
+	@Test
+	public void maskedPixels() {
+		// a bright run of 4 pixels, cut in two by an absent pixel
+		int[] row = { 50, 200, 200, 200, 200, 50, 50, 50 };
+		ByteImage image = new ByteImage(row.length, 1, 1, 1, 1);
+		for (int x = 0; x < row.length; x++)
+			image.setPixelXYByte(x, 0, row[x]);
+		assertEquals(200, GrayAreaOpening.exec(image, 3).getPixelXYByte(2, 0));
+
+		ByteImage mask = new ByteImage(row.length, 1, 1, 1, 1);
+		for (int x = 0; x < row.length; x++)
+			mask.setPixelXYByte(x, 0, x == 3 ? 0 : 255);
+		image.pushMask(mask);
+		ByteImage result = GrayAreaOpening.exec(image, 3);
+		for (int x = 0; x < row.length; x++)
+			if (x != 3)
+				assertEquals(50, result.getPixelXYByte(x, 0));
+	}
+
+}
@@ -0,0 +1,81 @@
+package fr.unistra.pelican.algorithms.morphology.gray;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import fr.unistra.pelican.BooleanImage;
+import fr.unistra.pelican.ByteImage;
+import fr.unistra.pelican.DoubleImage;
+import fr.unistra.pelican.Image;
+import fr.unistra.pelican.IntegerImage;
+import fr.unistra.pelican.algorithms.spatial.MedianFilter;
+import fr.unistra.pelican.util.morphology.FlatStructuringElement2D;
+
+/**
+ * The histogram based engine used for byte and integer images must give the
+ * same results as the sort based algorithm still used for double images.
+ */
+public class GrayRankFilterTest {
+
+	private static ByteImage randomImage(int bdim) {
+		ByteImage image = new ByteImage(37, 23, 1, 1, bdim);
+		Random random = new Random(42);
+		for (int p = 0; p < image.size(); p++)
+			image.setPixelByte(p, random.nextInt(256));
+		return image;
+	}
+
+	private static BooleanImage[] structuringElements() {
+		return new BooleanImage[] {
+			FlatStructuringElement2D.createSquareFlatStructuringElement(7),
+			FlatStructuringElement2D.createRectangularFlatStructuringElement(3,
+				21),
+			FlatStructuringElement2D.createCircleFlatStructuringElement(4),
+			FlatStructuringElement2D.createHollowSquareFlatStructuringElement(5),
+			FlatStructuringElement2D.createLineFlatStructuringElement(9, 30) };
+	}
+
+	@Test
+	public void testByteRankFilter() {
+		Image image = randomImage(2);
+		Image reference = new DoubleImage(image);
+		for (BooleanImage se : structuringElements())
+			for (int rank = 1; rank <= se.getSum(); rank += 3) {
+				Image result = GrayRankFilter.exec(image, se, rank);
+				Image truth = GrayRankFilter.exec(reference, se, rank);
+				for (int p = 0; p < image.size(); p++)
+					assertEquals(truth.getPixelByte(p), result.getPixelByte(p));
+			}
+	}
+
+	@Test
+	public void testIntegerMedian() {
+		IntegerImage image = new IntegerImage(31, 29, 1, 1, 1);
+		Random random = new Random(7);
+		for (int p = 0; p < image.size(); p++)
+			image.setPixelInt(p, (random.nextInt(1000) - 500) * 1000);
+		for (BooleanImage se : structuringElements()) {
+			Image result = GrayMedian.exec(image, se);
+			Image truth = GrayMedian.exec(new DoubleImage(image), se);
+			for (int p = 0; p < image.size(); p++)
+				assertEquals(truth.getPixelDouble(p), result.getPixelDouble(p),
+					1e-8);
+		}
+	}
+
+	@Test
+	public void testMedianFilter() {
+		Image image = randomImage(3);
+		Image reference = new DoubleImage(image);
+		for (BooleanImage se : structuringElements()) {
+			Image result = MedianFilter.exec(image, se);
+			Image truth = MedianFilter.exec(reference, se);
+			for (int p = 0; p < image.size(); p++)
+				assertEquals(truth.getPixelByte(p), result.getPixelByte(p));
+		}
+	}
+
+}
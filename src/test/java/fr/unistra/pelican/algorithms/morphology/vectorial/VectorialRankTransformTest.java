@@ -0,0 +1,177 @@
+package fr.unistra.pelican.algorithms.morphology.vectorial;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.Point;
+import java.util.Random;
+
+import org.junit.Test;
+
+import fr.unistra.pelican.BooleanImage;
+import fr.unistra.pelican.ByteImage;
+import fr.unistra.pelican.DoubleImage;
+import fr.unistra.pelican.Image;
+import fr.unistra.pelican.util.morphology.FlatStructuringElement2D;
+import fr.unistra.pelican.util.vectorial.RankTransform;
+import fr.unistra.pelican.util.vectorial.orders.AlphaLexicographicalOrdering;
+import fr.unistra.pelican.util.vectorial.orders.BinaryVectorialOrdering;
+import fr.unistra.pelican.util.vectorial.orders.LexicographicalOrdering;
+import fr.unistra.pelican.util.vectorial.orders.ReducedLexicographicalOrdering;
+import fr.unistra.pelican.util.vectorial.orders.TotalVectorialOrdering;
+import fr.unistra.pelican.util.vectorial.orders.VectorialOrdering;
+
+/**
+ * Compares the vectorial operators computed on the ranks of the vectors with
+ * the ones comparing the vectors of each neighbourhood.
+ */
+public class VectorialRankTransformTest {
+
+	/**
+	 * Few levels per band, for many equal vectors and equal first bands
+	 */
+	private static Image random() {
+		ByteImage image = new ByteImage(60, 45, 2, 1, 3);
+		Random random = new Random(3);
+		for (int p = 0; p < image.size(); p++)
+			image.setPixelByte(p, random.nextInt(6) * 51);
+		return image;
+	}
+
+	/**
+	 * The same ordering, but not known to be total
+	 */
+	private static BinaryVectorialOrdering generic(
+			final BinaryVectorialOrdering vo) {
+		return new BinaryVectorialOrdering() {
+			public int compare(Object o1, Object o2) {
+				return vo.compare(o1, o2);
+			}
+
+			public double[] max(double[] p1, double[] p2) {
+				return vo.max(p1, p2);
+			}
+
+			public double[] min(double[] p1, double[] p2) {
+				return vo.min(p1, p2);
+			}
+
+			public double[] max(double[][] p) {
+				return vo.max(p);
+			}
+
+			public double[] min(double[][] p) {
+				return vo.min(p);
+			}
+
+			public double[] rank(double[][] p, int r) {
+				return vo.rank(p, r);
+			}
+		};
+	}
+
+	private static void assertSame(Image expected, Image result) {
+		assertEquals(expected.size(), result.size());
+		for (int p = 0; p < expected.size(); p++)
+			assertEquals(expected.getPixelDouble(p), result.getPixelDouble(p), 0);
+	}
+
+	/**
+	 * The same ordering, through arrays of vectors only
+	 */
+	private static VectorialOrdering generic(final VectorialOrdering vo) {
+		return new VectorialOrdering() {
+			public double[] max(double[][] p) {
+				return vo.max(p);
+			}
+
+			public double[] min(double[][] p) {
+				return vo.min(p);
+			}
+
+			public double[] rank(double[][] p, int r) {
+				return vo.rank(p, r);
+			}
+		};
+	}
+
+	private static BooleanImage[] structuringElements() {
+		// a line and a rectangle whose centers are at one end or corner
+		BooleanImage line = FlatStructuringElement2D
+				.createVerticalLineFlatStructuringElement(5, new Point(0, 0));
+		BooleanImage rectangle = FlatStructuringElement2D
+				.createRectangularFlatStructuringElement(4, 3);
+		rectangle.setCenter(new Point(3, 2));
+		return new BooleanImage[] {
+				FlatStructuringElement2D.createSquareFlatStructuringElement(3),
+				FlatStructuringElement2D.createCircleFlatStructuringElement(2),
+				FlatStructuringElement2D.createLineFlatStructuringElement(7, 30),
+				line, rectangle };
+	}
+
+	private static void check(Image image, TotalVectorialOrdering vo,
+			VectorialOrdering reference) {
+		for (BooleanImage se : structuringElements()) {
+			assertTrue(RankTransform.isApplicable(image, se, vo));
+			assertSame(VectorialErosion.exec(image, se, reference),
+					VectorialErosion.exec(image, se, vo));
+			assertSame(VectorialDilation.exec(image, se, reference),
+					VectorialDilation.exec(image, se, vo));
+			assertSame(VectorialOpening.exec(image, se, reference),
+					VectorialOpening.exec(image, se, vo));
+			assertSame(VectorialClosing.exec(image, se, reference),
+					VectorialClosing.exec(image, se, vo));
+			assertSame(VectorialMedian.exec(image, se, reference),
+					VectorialMedian.exec(image, se, vo));
+			// the rank filter only takes binary orderings
+			if (vo instanceof BinaryVectorialOrdering)
+				for (int rank = 1; rank <= se.getSum(); rank += 2)
+					assertSame(VectorialRankFilter.exec(image, se,
+							(BinaryVectorialOrdering) reference, rank),
+							VectorialRankFilter.exec(image, se,
+									(BinaryVectorialOrdering) vo, rank));
+		}
+	}
+
+	@Test
+	public void testOperators() {
+		LexicographicalOrdering vo = new LexicographicalOrdering();
+		check(random(), vo, generic(vo));
+	}
+
+	@Test
+	public void testOtherOrderings() {
+		Image image = random();
+		TotalVectorialOrdering[] orderings = {
+				new AlphaLexicographicalOrdering(10),
+				new ReducedLexicographicalOrdering() };
+		for (TotalVectorialOrdering vo : orderings)
+			check(image, vo, generic(vo));
+	}
+
+	@Test
+	public void testRanks() {
+		Image image = random();
+		RankTransform transform = new RankTransform(image,
+				new LexicographicalOrdering());
+		assertTrue(transform.getCount() <= 6 * 6 * 6);
+		Image back = image.copyImage(false);
+		transform.toImage(transform.getRanks(), back);
+		assertSame(image, back);
+	}
+
+	@Test
+	public void testTolerance() {
+		// the first bands are closer than the tolerance two by two only, so
+		// that the ordering finds a > b > c > a
+		DoubleImage image = new DoubleImage(3, 1, 1, 1, 2);
+		image.setPixels(new double[] { 0, 1, 6e-6, 0.5, 12e-6, 0 });
+		LexicographicalOrdering vo = new LexicographicalOrdering();
+		assertTrue(vo.compare(image.getVectorPixelXYZTDouble(0, 0, 0, 0),
+				image.getVectorPixelXYZTDouble(2, 0, 0, 0)) < 0);
+		double[] ranks = new RankTransform(image, vo).getRanks();
+		for (int p = 0; p < 3; p++)
+			assertEquals(p, ranks[p], 0);
+	}
+
+}
@@ -0,0 +1,118 @@
+package fr.unistra.pelican.algorithms.spatial;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+import org.junit.After;
+import org.junit.Test;
+
+import fr.unistra.pelican.BooleanImage;
+import fr.unistra.pelican.DoubleImage;
+import fr.unistra.pelican.IntegerImage;
+import fr.unistra.pelican.util.Parallel;
+
+/**
+ * The separable transform must give the distances of a brute force search,
+ * whatever the number of threads.
+ */
+public class EuclideanDistanceTransformTest {
+
+	private final int threads = Parallel.getThreadCount();
+
+	@After
+	public void restoreThreads() {
+		Parallel.setThreadCount(threads);
+	}
+
+	private static BooleanImage random(int xdim, int ydim, int zdim, int bdim,
+		double density, long seed) {
+		Random random = new Random(seed);
+		BooleanImage image = new BooleanImage(xdim, ydim, zdim, 1, bdim);
+		for (int p = 0; p < image.size(); p++)
+			image.setPixelBoolean(p, random.nextDouble() < density);
+		return image;
+	}
+
+	private static double distance(int x, int y, int z, int x2, int y2,
+		int z2, double[] s) {
+		double dx = (x - x2) * s[0];
+		double dy = (y - y2) * s[1];
+		double dz = (z - z2) * s[2];
+		return Math.sqrt(dx * dx + dy * dy + dz * dz);
+	}
+
+	private void check(BooleanImage image, double[] spacing) {
+		int xdim = image.getXDim(), ydim = image.getYDim(), zdim = image
+			.getZDim(), bdim = image.getBDim();
+		double[] s = spacing == null ? new double[] { 1, 1, 1 }
+			: new double[] { spacing[0], spacing[1],
+				spacing.length > 2 ? spacing[2] : 1 };
+		for (int t = 1; t <= 3; t++) {
+			Parallel.setThreadCount(t);
+			ArrayList<Object> res = new EuclideanDistanceTransform().processAll(
+				image, spacing, null, true);
+			DoubleImage dist = (DoubleImage) res.get(0);
+			IntegerImage features = (IntegerImage) res.get(1);
+			for (int b = 0; b < bdim; b++)
+				for (int z = 0; z < zdim; z++)
+					for (int y = 0; y < ydim; y++)
+						for (int x = 0; x < xdim; x++) {
+							double min = Double.POSITIVE_INFINITY;
+							for (int z2 = 0; z2 < zdim; z2++)
+								for (int y2 = 0; y2 < ydim; y2++)
+									for (int x2 = 0; x2 < xdim; x2++)
+										if (image.getPixelXYZBBoolean(x2, y2, z2, b))
+											min = Math.min(min, distance(x, y, z, x2, y2, z2, s));
+							assertEquals(min, dist.getPixelXYZBDouble(x, y, z, b), 1e-9);
+							int f = features.getPixelXYZBInt(x, y, z, b);
+							if (min == Double.POSITIVE_INFINITY)
+								assertEquals(-1, f);
+							else {
+								// nearest true pixel, of the same band
+								assertEquals(true, image.getPixelBoolean(f));
+								assertEquals(b, f % bdim);
+								int q = f / bdim;
+								assertEquals(min, distance(x, y, z, q % xdim, (q / xdim)
+									% ydim, q / (xdim * ydim), s), 1e-9);
+							}
+						}
+		}
+	}
+
+	@Test
+	public void testPlane() {
+		check(random(70, 50, 1, 1, 0.01, 1), null);
+		check(random(70, 50, 1, 2, 0.002, 2), new double[] { 1, 2.5 });
+	}
+
+	@Test
+	public void testVolume() {
+		check(random(20, 18, 15, 1, 0.003, 3), null);
+		check(random(20, 18, 15, 1, 0.01, 4), new double[] { 0.5, 0.5, 2 });
+	}
+
+	@Test
+	public void testThreads() {
+		BooleanImage image = random(300, 200, 4, 1, 0.001, 5);
+		double[] spacing = { 1, 1, 3 };
+		Parallel.setThreadCount(1);
+		DoubleImage expected = EuclideanDistanceTransform.exec(image, spacing);
+		for (int t = 2; t <= 4; t++) {
+			Parallel.setThreadCount(t);
+			DoubleImage dist = EuclideanDistanceTransform.exec(image, spacing);
+			for (int p = 0; p < dist.size(); p++)
+				assertEquals(expected.getPixelDouble(p), dist.getPixelDouble(p), 0);
+		}
+	}
+
+	@Test
+	public void testEmpty() {
+		DoubleImage dist = EuclideanDistanceTransform.exec(new BooleanImage(5,
+			4, 1, 1, 1));
+		for (int p = 0; p < dist.size(); p++)
+			assertEquals(Double.POSITIVE_INFINITY, dist.getPixelDouble(p), 0);
+	}
+
+}
@@ -0,0 +1,121 @@
+package fr.unistra.pelican.algorithms.spatial;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import fr.unistra.pelican.DoubleImage;
+import fr.unistra.pelican.Image;
+import fr.unistra.pelican.util.Tools;
+import fr.unistra.pelican.util.morphology.GrayStructuringElement;
+
+/**
+ * Compares the separable and recursive gaussian filters with the 2D
+ * convolution, and checks the derivatives on polynomials.
+ */
+public class GaussianDerivativeTest {
+
+	private static DoubleImage randomImage(int xdim, int ydim, int bdim) {
+		DoubleImage image = new DoubleImage(xdim, ydim, 1, 1, bdim);
+		Random random = new Random(42);
+		for (int p = 0; p < image.size(); p++)
+			image.setPixelDouble(p, random.nextDouble());
+		return image;
+	}
+
+	/**
+	 * Gaussian filter as it was computed with a 2D kernel.
+	 */
+	private static Image convolution(Image input, double sigma, int size) {
+		GrayStructuringElement kernel = GrayStructuringElement
+			.createSquareFlatStructuringElement(size);
+		for (int x = 0; x < size; x++)
+			for (int y = 0; y < size; y++)
+				kernel.setPixelXYDouble(y, x, Tools.Gaussian2D(x
+					- kernel.getCenter().y, y - kernel.getCenter().x, sigma));
+		return Convolution.exec(input, kernel);
+	}
+
+	@Test
+	public void testSeparable() {
+		Image image = randomImage(41, 27, 2);
+		for (int size = 3; size <= 9; size += 2) {
+			Image truth = convolution(image, 1.5, size);
+			Image result = GaussianFilter.exec(image, 1.5, size);
+			for (int p = 0; p < image.size(); p++)
+				assertEquals(truth.getPixelDouble(p), result.getPixelDouble(p),
+					1e-12);
+		}
+	}
+
+	@Test
+	public void testRecursive() {
+		Image image = randomImage(120, 100, 1);
+		for (double sigma = 3; sigma <= 12; sigma *= 2) {
+			Image truth = (Image) new GaussianDerivative().process(image, sigma, 0, 0,
+				0.0, 0, GaussianDerivative.SEPARABLE, 2 * (int) (5 * sigma) + 1);
+			Image result = (Image) new GaussianDerivative().process(image, sigma, 0, 0,
+				0.0, 0, GaussianDerivative.RECURSIVE);
+			// the borders differ : normalised kernels against clamped lines
+			int margin = (int) (4 * sigma);
+			for (int y = margin; y < image.getYDim() - margin; y++)
+				for (int x = margin; x < image.getXDim() - margin; x++)
+					assertEquals(truth.getPixelXYDouble(x, y), result
+						.getPixelXYDouble(x, y), 0.01);
+		}
+	}
+
+	@Test
+	public void testDerivatives() {
+		DoubleImage ramp = new DoubleImage(100, 80, 5, 1, 1);
+		DoubleImage parabola = new DoubleImage(100, 80, 5, 1, 1);
+		for (int z = 0; z < 5; z++)
+			for (int y = 0; y < 80; y++)
+				for (int x = 0; x < 100; x++) {
+					ramp.setPixelXYZDouble(x, y, z, 0.5 * x - 0.25 * y);
+					parabola.setPixelXYZDouble(x, y, z, x * x / 2.0 + y + z);
+				}
+		for (int method = GaussianDerivative.SEPARABLE; method <= GaussianDerivative.RECURSIVE; method++)
+			for (double sigma = 1; sigma <= 4; sigma *= 2) {
+				Image dx = (Image) new GaussianDerivative().process(ramp, sigma, 1, 0,
+					0.0, 0, method);
+				Image dy = (Image) new GaussianDerivative().process(ramp, sigma, 0, 1,
+					0.0, 0, method);
+				Image dxx = (Image) new GaussianDerivative().process(parabola, sigma,
+					2, 0, 1.0, 0, method);
+				Image dz = (Image) new GaussianDerivative().process(parabola, sigma, 0,
+					0, 0.0, 1, method);
+				for (int y = 30; y < 50; y++)
+					for (int x = 30; x < 70; x++) {
+						assertEquals(0.5, dx.getPixelXYDouble(x, y), 1e-4);
+						assertEquals(-0.25, dy.getPixelXYDouble(x, y), 1e-4);
+						assertEquals(1, dxx.getPixelXYZDouble(x, y, 2), 1e-3);
+						assertEquals(1, dz.getPixelXYZDouble(x, y, 2), 1e-6);
+					}
+			}
+	}
+
+	public static void main(String[] args) {
+		Image image = randomImage(512, 512, 1);
+		for (double sigma = 2; sigma <= 16; sigma *= 2) {
+			int size = 2 * (int) Math.ceil(3 * sigma) + 1;
+			long start = System.currentTimeMillis();
+			convolution(image, sigma, size);
+			long end = System.currentTimeMillis();
+			System.out.println("sigma " + sigma + " 2D kernel : " + (end - start)
+				+ " ms");
+			for (int method = GaussianDerivative.SEPARABLE; method <= GaussianDerivative.RECURSIVE; method++) {
+				start = System.currentTimeMillis();
+				new GaussianDerivative().process(image, sigma, 0, 0, 0.0, 0,
+					method);
+				end = System.currentTimeMillis();
+				System.out.println("sigma " + sigma
+					+ (method == GaussianDerivative.SEPARABLE ? " separable : "
+						: " recursive : ") + (end - start) + " ms");
+			}
+		}
+	}
+
+}
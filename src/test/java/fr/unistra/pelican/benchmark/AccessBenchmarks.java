@@ -0,0 +1,131 @@
+package fr.unistra.pelican.benchmark;
+
+import java.util.Iterator;
+import java.util.List;
+
+import fr.unistra.pelican.Image;
+import fr.unistra.pelican.util.Pixel;
+import fr.unistra.pelican.util.iterator.LinearImageIterator;
+
+/**
+ * Benchmarks of the pixel access paths : linear and XYZTB accessors, and the
+ * iterators of {@link fr.unistra.pelican.util.iterator}. Every benchmark
+ * reads the whole image once.
+ *
+ * @author PELICAN team
+ */
+public class AccessBenchmarks {
+
+	/**
+	 * Never instanciate utility class
+	 */
+	private AccessBenchmarks() {
+	}
+
+	/**
+	 * Base of the access benchmarks, creating the image.
+	 */
+	private static abstract class Access extends Benchmark {
+
+		protected final String type;
+
+		protected final int size;
+
+		protected Image image;
+
+		Access(String name, String type, int size) {
+			super("access." + name, "type=" + type + " size=" + size);
+			this.type = type;
+			this.size = size;
+		}
+
+		public void setUp() {
+			image = BenchmarkImages.create(type, size, 3);
+		}
+
+		public void tearDown() {
+			image = null;
+		}
+	}
+
+	/**
+	 * Adds the benchmarks of this suite.
+	 *
+	 * @param benchmarks
+	 *            list to fill
+	 * @param sizes
+	 *            image sizes
+	 */
+	public static void register(List<Benchmark> benchmarks, int[] sizes) {
+		for (int size : sizes)
+			for (String type : BenchmarkImages.TYPES) {
+				benchmarks.add(new Access("getPixelDouble", type, size) {
+					public Object run() {
+						double sum = 0;
+						for (int p = 0, n = image.size(); p < n; p++)
+							sum += image.getPixelDouble(p);
+						return sum;
+					}
+				});
+				benchmarks.add(new Access("getPixelByte", type, size) {
+					public Object run() {
+						long sum = 0;
+						for (int p = 0, n = image.size(); p < n; p++)
+							sum += image.getPixelByte(p);
+						return sum;
+					}
+				});
+				benchmarks.add(new Access("getPixelXYZTBDouble", type, size) {
+					public Object run() {
+						double sum = 0;
+						int bdim = image.getBDim();
+						for (int y = 0; y < size; y++)
+							for (int x = 0; x < size; x++)
+								for (int b = 0; b < bdim; b++)
+									sum += image.getPixelXYZTBDouble(x, y, 0, 0, b);
+						return sum;
+					}
+				});
+				benchmarks.add(new Access("setPixelDouble", type, size) {
+					public Object run() {
+						for (int p = 0, n = image.size(); p < n; p++)
+							image.setPixelDouble(p, 0.5);
+						return image;
+					}
+				});
+				benchmarks.add(new Access("iterator", type, size) {
+					public Object run() {
+						double sum = 0;
+						Iterator<Pixel> it = image.iterator();
+						while (it.hasNext()) {
+							Pixel p = it.next();
+							sum += image.getPixelXYZTBDouble(p.x, p.y, p.z, p.t,
+									p.b);
+						}
+						return sum;
+					}
+				});
+				benchmarks.add(new Access("linearIterator", type, size) {
+					public Object run() {
+						double sum = 0;
+						LinearImageIterator it = new LinearImageIterator(image);
+						while (it.hasNext())
+							sum += image.getPixelDouble(it.next());
+						return sum;
+					}
+				});
+				benchmarks.add(new Access("iterateOverXY", type, size) {
+					public Object run() {
+						double sum = 0;
+						Iterator<Pixel> it = image.iterateOverXY(0, 0, 1);
+						while (it.hasNext()) {
+							Pixel p = it.next();
+							sum += image.getPixelXYBDouble(p.x, p.y, 1);
+						}
+						return sum;
+					}
+				});
+			}
+	}
+
+}
@@ -0,0 +1,73 @@
+package fr.unistra.pelican.benchmark;
+
+/**
+ * One measured operation, with the values of the parameters it was built
+ * with. The inputs are prepared by {@link #setUp()}, outside of the measure,
+ * then {@link #run()} is called repeatedly.
+ *
+ * @author PELICAN team
+ */
+public abstract class Benchmark {
+
+	/**
+	 * Name of the benchmark, such as <tt>morphology.GrayErosion</tt>
+	 */
+	private final String name;
+
+	/**
+	 * Parameters, as <tt>key=value</tt> pairs separated by spaces
+	 */
+	private final String params;
+
+	/**
+	 * Creates a benchmark.
+	 *
+	 * @param name
+	 *            name of the benchmark
+	 * @param params
+	 *            parameters, as <tt>key=value</tt> pairs separated by spaces
+	 */
+	public Benchmark(String name, String params) {
+		this.name = name;
+		this.params = params;
+	}
+
+	/**
+	 * Gets the name of the benchmark.
+	 *
+	 * @return the name
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * Gets the parameters of the benchmark.
+	 *
+	 * @return the parameters, as <tt>key=value</tt> pairs separated by spaces
+	 */
+	public String getParams() {
+		return params;
+	}
+
+	/**
+	 * Prepares the inputs, called once before the first run.
+	 */
+	public void setUp() {
+	}
+
+	/**
+	 * Releases the inputs, called once after the last run.
+	 */
+	public void tearDown() {
+	}
+
+	/**
+	 * Runs the measured operation once.
+	 *
+	 * @return the result, which is consumed by the runner so that the
+	 *         operation cannot be optimised away
+	 */
+	public abstract Object run();
+
+}
@@ -0,0 +1,128 @@
+package fr.unistra.pelican.benchmark;
+
+import java.util.Random;
+
+import fr.unistra.pelican.BooleanImage;
+import fr.unistra.pelican.ByteImage;
+import fr.unistra.pelican.DoubleImage;
+import fr.unistra.pelican.Image;
+import fr.unistra.pelican.IntegerImage;
+import fr.unistra.pelican.LargeByteImage;
+import fr.unistra.pelican.LargeDoubleImage;
+import fr.unistra.pelican.LargeIntegerImage;
+import fr.unistra.pelican.PelicanException;
+import fr.unistra.pelican.util.morphology.FlatStructuringElement2D;
+
+/**
+ * Inputs of the benchmarks : images of every storage type and structuring
+ * elements of the usual shapes, always built the same way so that two runs
+ * can be compared.
+ *
+ * @author PELICAN team
+ */
+public class BenchmarkImages {
+
+	/**
+	 * Image types
+	 */
+	public static final String[] TYPES = { "ByteImage", "IntegerImage",
+			"DoubleImage", "LargeByteImage", "LargeIntegerImage",
+			"LargeDoubleImage" };
+
+	/**
+	 * Image types stored in memory
+	 */
+	public static final String[] MEMORY_TYPES = { "ByteImage",
+			"IntegerImage", "DoubleImage" };
+
+	/**
+	 * Structuring element shapes
+	 */
+	public static final String[] SHAPES = { "square", "disc", "line" };
+
+	/**
+	 * Never instanciate utility class
+	 */
+	private BenchmarkImages() {
+	}
+
+	/**
+	 * Creates an empty image of a type.
+	 *
+	 * @param type
+	 *            one of {@link #TYPES}
+	 * @param xdim
+	 *            width
+	 * @param ydim
+	 *            height
+	 * @param bdim
+	 *            number of bands
+	 * @return the image
+	 */
+	public static Image newImage(String type, int xdim, int ydim, int bdim) {
+		if (type.equals("ByteImage"))
+			return new ByteImage(xdim, ydim, 1, 1, bdim);
+		if (type.equals("IntegerImage"))
+			return new IntegerImage(xdim, ydim, 1, 1, bdim);
+		if (type.equals("DoubleImage"))
+			return new DoubleImage(xdim, ydim, 1, 1, bdim);
+		if (type.equals("LargeByteImage"))
+			return new LargeByteImage(xdim, ydim, 1, 1, bdim);
+		if (type.equals("LargeIntegerImage"))
+			return new LargeIntegerImage(xdim, ydim, 1, 1, bdim);
+		if (type.equals("LargeDoubleImage"))
+			return new LargeDoubleImage(xdim, ydim, 1, 1, bdim);
+		throw new PelicanException("Unknown image type : " + type);
+	}
+
+	/**
+	 * Creates a square image looking like a natural one : smooth regions,
+	 * plateaus and some noise.
+	 *
+	 * @param type
+	 *            one of {@link #TYPES}
+	 * @param size
+	 *            width and height
+	 * @param bdim
+	 *            number of bands
+	 * @return the image
+	 */
+	public static Image create(String type, int size, int bdim) {
+		Image image = newImage(type, size, size, bdim);
+		Random random = new Random(size * 31 + bdim);
+		for (int y = 0; y < size; y++)
+			for (int x = 0; x < size; x++)
+				for (int b = 0; b < bdim; b++) {
+					double value = 128 + 70 * Math.sin(x / (7.0 + b))
+							* Math.cos(y / 11.0) + 20 * random.nextGaussian();
+					// quantised, to get plateaus
+					int level = 8 * (int) Math.round(value / 8);
+					image.setPixelXYBByte(x, y, b, Math.max(0, Math.min(255,
+							level)));
+				}
+		return image;
+	}
+
+	/**
+	 * Creates a structuring element.
+	 *
+	 * @param shape
+	 *            one of {@link #SHAPES}
+	 * @param radius
+	 *            radius of the shape
+	 * @return the structuring element
+	 */
+	public static BooleanImage createSE(String shape, int radius) {
+		if (shape.equals("square"))
+			return FlatStructuringElement2D
+					.createSquareFlatStructuringElement(2 * radius + 1);
+		if (shape.equals("disc"))
+			return FlatStructuringElement2D
+					.createCircleFlatStructuringElement(radius);
+		if (shape.equals("line"))
+			return FlatStructuringElement2D.createLineFlatStructuringElement(
+					2 * radius + 1, 30);
+		throw new PelicanException("Unknown shape : " + shape);
+	}
+
+}
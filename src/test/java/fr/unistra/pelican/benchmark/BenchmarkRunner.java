@@ -0,0 +1,257 @@
+package fr.unistra.pelican.benchmark;
+
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+import fr.unistra.pelican.PelicanException;
+
+/**
+ * Runs the benchmarks and writes their results in CSV or JSON, one record per
+ * benchmark and parameter set, so that successive runs can be compared.
+ * <p>
+ * Each benchmark is warmed up, then measured during several iterations of a
+ * fixed duration; an iteration calls the operation as many times as it can
+ * and gives the mean time per call. The score is the mean of the iterations
+ * and the error the half width of its 99.9% confidence interval.
+ * <p>
+ * Options :
+ * <ul>
+ * <li><tt>-f regex</tt> : runs only the benchmarks whose name and parameters
+ * match the expression</li>
+ * <li><tt>-s 256,1024</tt> : image sizes</li>
+ * <li><tt>-wi 3 -i 5</tt> : numbers of warmup and measure iterations</li>
+ * <li><tt>-t 500</tt> : duration of an iteration in milliseconds</li>
+ * <li><tt>-o results.csv</tt> : output file, JSON if its name ends with
+ * <tt>.json</tt>, standard output by default</li>
+ * <li><tt>-l</tt> : lists the benchmarks without running them</li>
+ * </ul>
+ *
+ * @author PELICAN team
+ */
+public class BenchmarkRunner {
+
+	private Pattern filter = null;
+
+	private int[] sizes = { 256, 1024 };
+
+	private int warmupIterations = 3;
+
+	private int iterations = 5;
+
+	private long iterationMillis = 500;
+
+	private String output = null;
+
+	private boolean list = false;
+
+	/**
+	 * Consumes the results of the operations
+	 */
+	private int sink = 0;
+
+	/**
+	 * Result of a benchmark.
+	 */
+	private static class Result {
+		Benchmark benchmark;
+
+		/**
+		 * Mean time per call of each iteration, in ns
+		 */
+		double[] raw;
+
+		double score;
+
+		double error;
+
+		long calls;
+	}
+
+	/**
+	 * Parses the command line.
+	 */
+	private void parse(String[] args) {
+		for (int i = 0; i < args.length; i++) {
+			String arg = args[i];
+			if (arg.equals("-l")) {
+				list = true;
+				continue;
+			}
+			if (i + 1 == args.length)
+				throw new PelicanException("Missing value for " + arg);
+			String value = args[++i];
+			if (arg.equals("-f"))
+				filter = Pattern.compile(value);
+			else if (arg.equals("-s")) {
+				String[] parts = value.split(",");
+				sizes = new int[parts.length];
+				for (int k = 0; k < parts.length; k++)
+					sizes[k] = Integer.parseInt(parts[k].trim());
+			} else if (arg.equals("-wi"))
+				warmupIterations = Integer.parseInt(value);
+			else if (arg.equals("-i"))
+				iterations = Integer.parseInt(value);
+			else if (arg.equals("-t"))
+				iterationMillis = Long.parseLong(value);
+			else if (arg.equals("-o"))
+				output = value;
+			else
+				throw new PelicanException("Unknown option " + arg);
+		}
+	}
+
+	/**
+	 * Gives all the benchmarks selected by the filter.
+	 */
+	private List<Benchmark> benchmarks() {
+		List<Benchmark> all = new ArrayList<Benchmark>();
+		AccessBenchmarks.register(all, sizes);
+		OperatorBenchmarks.register(all, sizes);
+		List<Benchmark> selected = new ArrayList<Benchmark>();
+		for (Benchmark benchmark : all)
+			if (filter == null
+					|| filter.matcher(
+							benchmark.getName() + " " + benchmark.getParams())
+							.find())
+				selected.add(benchmark);
+		return selected;
+	}
+
+	/**
+	 * Runs the operation during an iteration.
+	 *
+	 * @return {mean time per call in ns, number of calls}
+	 */
+	private double[] iteration(Benchmark benchmark) {
+		long calls = 0;
+		long start = System.nanoTime();
+		long end = start + iterationMillis * 1000000L;
+		long now;
+		do {
+			Object result = benchmark.run();
+			sink ^= System.identityHashCode(result);
+			calls++;
+			now = System.nanoTime();
+		} while (now < end);
+		return new double[] { (double) (now - start) / calls, calls };
+	}
+
+	/**
+	 * Measures one benchmark.
+	 */
+	private Result measure(Benchmark benchmark) {
+		Result result = new Result();
+		result.benchmark = benchmark;
+		result.raw = new double[iterations];
+		benchmark.setUp();
+		try {
+			for (int i = 0; i < warmupIterations; i++)
+				iteration(benchmark);
+			for (int i = 0; i < iterations; i++) {
+				double[] it = iteration(benchmark);
+				result.raw[i] = it[0];
+				result.calls += (long) it[1];
+			}
+		} finally {
+			benchmark.tearDown();
+		}
+		double sum = 0;
+		for (double v : result.raw)
+			sum += v;
+		result.score = sum / iterations;
+		if (iterations > 1) {
+			double var = 0;
+			for (double v : result.raw)
+				var += (v - result.score) * (v - result.score);
+			var /= iterations - 1;
+			// 3.29 standard errors, normal approximation of the 99.9% interval
+			result.error = 3.29 * Math.sqrt(var / iterations);
+		}
+		return result;
+	}
+
+	private static String format(double value) {
+		return String.format(Locale.US, "%.3f", value);
+	}
+
+	private static void writeCSV(PrintWriter out, List<Result> results) {
+		out.println("benchmark,params,iterations,calls,score,error,unit");
+		for (Result r : results)
+			out.println(r.benchmark.getName() + ",\"" + r.benchmark.getParams()
+					+ "\"," + r.raw.length + "," + r.calls + ","
+					+ format(r.score / 1000) + "," + format(r.error / 1000)
+					+ ",us/op");
+	}
+
+	private static void writeJSON(PrintWriter out, List<Result> results) {
+		out.println("[");
+		for (int i = 0; i < results.size(); i++) {
+			Result r = results.get(i);
+			out.println("  {");
+			out.println("    \"benchmark\" : \"" + r.benchmark.getName() + "\",");
+			out.print("    \"params\" : {");
+			String[] params = r.benchmark.getParams().split(" ");
+			for (int k = 0; k < params.length; k++) {
+				String[] pair = params[k].split("=", 2);
+				out.print((k == 0 ? " " : ", ") + "\"" + pair[0] + "\" : \""
+						+ pair[1] + "\"");
+			}
+			out.println(" },");
+			out.println("    \"primaryMetric\" : {");
+			out.println("      \"score\" : " + format(r.score / 1000) + ",");
+			out.println("      \"scoreError\" : " + format(r.error / 1000) + ",");
+			out.println("      \"scoreUnit\" : \"us/op\",");
+			out.print("      \"rawData\" : [");
+			for (int k = 0; k < r.raw.length; k++)
+				out.print((k == 0 ? " " : ", ") + format(r.raw[k] / 1000));
+			out.println(" ]");
+			out.println("    }");
+			out.println(i + 1 < results.size() ? "  }," : "  }");
+		}
+		out.println("]");
+	}
+
+	/**
+	 * Runs the benchmarks given by the command line.
+	 *
+	 * @param args
+	 *            options, see the description of the class
+	 */
+	public static void main(String[] args) throws IOException {
+		BenchmarkRunner runner = new BenchmarkRunner();
+		runner.parse(args);
+		List<Benchmark> benchmarks = runner.benchmarks();
+		List<Result> results = new ArrayList<Result>();
+		for (Benchmark benchmark : benchmarks) {
+			if (runner.list) {
+				System.out.println(benchmark.getName() + " "
+						+ benchmark.getParams());
+				continue;
+			}
+			Result result = runner.measure(benchmark);
+			results.add(result);
+			// progress on the error stream, the results may be on the output
+			System.err.println(benchmark.getName() + " "
+					+ benchmark.getParams() + " : " + format(result.score / 1000)
+					+ " +/- " + format(result.error / 1000) + " us/op");
+		}
+		if (runner.list)
+			return;
+
+		PrintWriter out = runner.output == null ? new PrintWriter(System.out)
+				: new PrintWriter(new FileWriter(runner.output));
+		if (runner.output != null && runner.output.endsWith(".json"))
+			writeJSON(out, results);
+		else
+			writeCSV(out, results);
+		out.close();
+		if (runner.sink == 42)
+			System.err.println();
+	}
+
+}
@@ -0,0 +1,385 @@
+package fr.unistra.pelican.benchmark;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.WritableRaster;
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.List;
+
+import fr.unistra.pelican.Algorithm;
+import fr.unistra.pelican.BooleanImage;
+import fr.unistra.pelican.DoubleImage;
+import fr.unistra.pelican.Image;
+import fr.unistra.pelican.PelicanException;
+import fr.unistra.pelican.algorithms.arithmetic.Addition;
+import fr.unistra.pelican.algorithms.conversion.ColourTransform;
+import fr.unistra.pelican.algorithms.frequential.FFT2;
+import fr.unistra.pelican.algorithms.io.ImageLoader;
+import fr.unistra.pelican.algorithms.morphology.connected.BuildCompactComponentTree;
+import fr.unistra.pelican.algorithms.morphology.connected.BuildCompactComponentTreeParallel;
+import fr.unistra.pelican.algorithms.morphology.connected.BuildComponentTree;
+import fr.unistra.pelican.algorithms.morphology.gray.GrayAreaOpening;
+import fr.unistra.pelican.algorithms.morphology.gray.GrayDilation;
+import fr.unistra.pelican.algorithms.morphology.gray.GrayErosion;
+import fr.unistra.pelican.algorithms.morphology.vectorial.VectorialErosion;
+import fr.unistra.pelican.algorithms.morphology.vectorial.VectorialMedian;
+import fr.unistra.pelican.algorithms.segmentation.MarkerBasedWatershed;
+import fr.unistra.pelican.algorithms.segmentation.flatzones.BooleanConnectedComponentsLabeling;
+import fr.unistra.pelican.algorithms.segmentation.flatzones.GrayConnectedComponentsLabeling;
+import fr.unistra.pelican.algorithms.spatial.Convolution;
+import fr.unistra.pelican.algorithms.spatial.ConvolveFFT;
+import fr.unistra.pelican.algorithms.spatial.DistanceTransform;
+import fr.unistra.pelican.algorithms.spatial.EuclideanDistanceTransform;
+import fr.unistra.pelican.util.Parallel;
+import fr.unistra.pelican.util.PelicanImageToBufferedImage;
+import fr.unistra.pelican.util.Tools;
+import fr.unistra.pelican.util.connectivityTrees.connectivity.TrivialConnectivity;
+import fr.unistra.pelican.util.morphology.GrayStructuringElement;
+import fr.unistra.pelican.util.vectorial.orders.LexicographicalOrdering;
+
+/**
+ * Benchmarks of the core operators : flat morphology, convolution, Fourier
+ * transform, labelling, watershed, component tree construction, image and
+ * colour conversions, vectorial morphology, on single band images but for the
+ * colour ones. The
+ * parallel component tree is measured with 1 to N threads. The overhead of one
+ * call to a small algorithm is measured on 1x1 images.
+ *
+ * @author PELICAN team
+ */
+public class OperatorBenchmarks {
+
+	/**
+	 * Radius of the structuring elements and kernels
+	 */
+	private static final int RADIUS = 5;
+
+	/**
+	 * Never instanciate utility class
+	 */
+	private OperatorBenchmarks() {
+	}
+
+	/**
+	 * Base of the operator benchmarks, creating the image.
+	 */
+	private static abstract class Operator extends Benchmark {
+
+		protected final String type;
+
+		protected final int size;
+
+		protected Image image;
+
+		Operator(String name, String params, String type, int size) {
+			super(name, "type=" + type + " size=" + size
+					+ (params == null ? "" : " " + params));
+			this.type = type;
+			this.size = size;
+		}
+
+		public void setUp() {
+			image = BenchmarkImages.create(type, size, 1);
+		}
+
+		public void tearDown() {
+			image = null;
+		}
+	}
+
+	/**
+	 * Binds the parameters as it was done before the profiles were cached :
+	 * parsing the names and looking for the fields on each call.
+	 */
+	private static Object processUncached(Algorithm algorithm,
+			Object... parameters) throws Exception {
+		Class c = algorithm.getClass();
+		String[] names = algorithm.inputs.split(",");
+		for (int i = 0; i < parameters.length; i++)
+			c.getDeclaredField(names[i]).set(algorithm, parameters[i]);
+		algorithm.launch();
+		ArrayList<Object> output = new ArrayList<Object>();
+		for (String name : algorithm.outputs.split(",")) {
+			Field f = c.getDeclaredField(name);
+			output.add(f.get(algorithm));
+		}
+		return output.get(0);
+	}
+
+	/**
+	 * Adds the benchmarks of this suite.
+	 *
+	 * @param benchmarks
+	 *            list to fill
+	 * @param sizes
+	 *            image sizes
+	 */
+	public static void register(List<Benchmark> benchmarks, int[] sizes) {
+		// the binding of the parameters does not depend on the size
+		benchmarks.add(new Operator("Algorithm.process", "binding=cached",
+				"ByteImage", 1) {
+			public Object run() {
+				return Addition.exec(image, image);
+			}
+		});
+		benchmarks.add(new Operator("Algorithm.process", "binding=uncached",
+				"ByteImage", 1) {
+			public Object run() {
+				try {
+					return processUncached(new Addition(), image, image);
+				} catch (Exception ex) {
+					throw new PelicanException("Uncached process failed", ex);
+				}
+			}
+		});
+
+		for (int size : sizes) {
+			for (String type : BenchmarkImages.TYPES)
+				for (String shape : BenchmarkImages.SHAPES) {
+					final BooleanImage se = BenchmarkImages.createSE(shape, RADIUS);
+					String params = "se=" + shape;
+					benchmarks.add(new Operator("morphology.GrayErosion", params,
+							type, size) {
+						public Object run() {
+							return GrayErosion.exec(image, se);
+						}
+					});
+					benchmarks.add(new Operator("morphology.GrayDilation", params,
+							type, size) {
+						public Object run() {
+							return GrayDilation.exec(image, se);
+						}
+					});
+				}
+
+			for (String type : BenchmarkImages.MEMORY_TYPES) {
+				benchmarks.add(new Operator("spatial.Convolution", null, type,
+						size) {
+					GrayStructuringElement kernel;
+
+					public void setUp() {
+						super.setUp();
+						kernel = GrayStructuringElement
+								.createCircleStructuringElement(RADIUS);
+					}
+
+					public Object run() {
+						return Convolution.exec(image, kernel);
+					}
+				});
+				benchmarks.add(new Operator("spatial.Convolution", "gaussian",
+						type, size) {
+					GrayStructuringElement kernel;
+
+					public void setUp() {
+						super.setUp();
+						// separable kernel, applied along X then Y
+						kernel = GrayStructuringElement
+								.createSquareFlatStructuringElement(4 * RADIUS + 1);
+						for (int y = 0; y < kernel.getYDim(); y++)
+							for (int x = 0; x < kernel.getXDim(); x++)
+								kernel.setPixelXYDouble(x, y, Tools.Gaussian2D(x
+										- 2 * RADIUS, y - 2 * RADIUS, RADIUS));
+					}
+
+					public Object run() {
+						return Convolution.exec(image, kernel);
+					}
+				});
+				benchmarks.add(new Operator("spatial.ConvolveFFT", null, type,
+						size) {
+					DoubleImage input, kernel;
+
+					public void setUp() {
+						super.setUp();
+						input = new DoubleImage(image, true);
+						kernel = new DoubleImage(2 * RADIUS + 1, 2 * RADIUS + 1, 1,
+								1, 1);
+						kernel.fill(1.0);
+					}
+
+					public Object run() {
+						return ConvolveFFT.exec(input, kernel);
+					}
+				});
+				benchmarks.add(new Operator("segmentation.GrayLabeling", null,
+						type, size) {
+					public Object run() {
+						return GrayConnectedComponentsLabeling.exec(image);
+					}
+				});
+				benchmarks.add(new Operator("segmentation.MarkerBasedWatershed",
+						null, type, size) {
+					public Object run() {
+						return MarkerBasedWatershed.exec(image);
+					}
+				});
+				benchmarks.add(new Operator("connected.BuildComponentTree",
+						null, type, size) {
+					public Object run() {
+						return BuildComponentTree.exec(image, TrivialConnectivity
+								.getFourNeighbourhood());
+					}
+				});
+				benchmarks.add(new Operator("connected.BuildCompactComponentTree",
+						null, type, size) {
+					public Object run() {
+						return BuildCompactComponentTree.exec(image,
+								TrivialConnectivity.getFourNeighbourhood());
+					}
+				});
+				benchmarks.add(new Operator("morphology.GrayAreaOpening",
+						"area=100", type, size) {
+					public Object run() {
+						return GrayAreaOpening.exec(image, 100);
+					}
+				});
+			}
+
+			// frequency and labelling paths depend on the size, not the type
+			benchmarks.add(new Operator("frequential.FFT2", null, "DoubleImage",
+					size) {
+				public Object run() {
+					return FFT2.exec(new DoubleImage(image, true), null, false);
+				}
+			});
+			benchmarks.add(new Operator("frequential.FFT2", null, "DoubleImage",
+					size + 1) {
+				public Object run() {
+					return FFT2.exec(new DoubleImage(image, true), null, false);
+				}
+			});
+			benchmarks.add(new Operator("segmentation.BooleanLabeling", null,
+					"BooleanImage", size) {
+				public void setUp() {
+					Image gray = BenchmarkImages.create("ByteImage", size, 1);
+					image = new BooleanImage(size, size, 1, 1, 1);
+					for (int p = 0; p < image.size(); p++)
+						image.setPixelBoolean(p, gray.getPixelByte(p) > 128);
+				}
+
+				public Object run() {
+					return BooleanConnectedComponentsLabeling.exec(image);
+				}
+			});
+			benchmarks.add(new Operator("spatial.DistanceTransform", null,
+					"BooleanImage", size) {
+				public void setUp() {
+					Image gray = BenchmarkImages.create("ByteImage", size, 1);
+					image = new BooleanImage(size, size, 1, 1, 1);
+					for (int p = 0; p < image.size(); p++)
+						image.setPixelBoolean(p, gray.getPixelByte(p) > 128);
+				}
+
+				public Object run() {
+					return DistanceTransform.exec(image);
+				}
+			});
+			benchmarks.add(new Operator("spatial.EuclideanDistanceTransform",
+					null, "BooleanImage", size) {
+				public void setUp() {
+					Image gray = BenchmarkImages.create("ByteImage", size, 1);
+					image = new BooleanImage(size, size, 1, 1, 1);
+					for (int p = 0; p < image.size(); p++)
+						image.setPixelBoolean(p, gray.getPixelByte(p) > 128);
+				}
+
+				public Object run() {
+					return EuclideanDistanceTransform.exec(image);
+				}
+			});
+
+			benchmarks.add(new Operator("io.ImageLoader.convertFromJAI", null,
+					"ByteImage", size) {
+				BufferedImage bimg;
+
+				public void setUp() {
+					super.setUp();
+					bimg = new BufferedImage(size, size,
+							BufferedImage.TYPE_3BYTE_BGR);
+					WritableRaster raster = bimg.getRaster();
+					for (int y = 0; y < size; y++)
+						for (int x = 0; x < size; x++)
+							for (int b = 0; b < 3; b++)
+								raster.setSample(x, y, b, image.getPixelXYByte(x, y));
+				}
+
+				public void tearDown() {
+					super.tearDown();
+					bimg = null;
+				}
+
+				public Object run() {
+					return ImageLoader.convertFromJAI(bimg, false);
+				}
+			});
+			benchmarks.add(new Operator("util.PelicanImageToBufferedImage",
+					null, "ByteImage", size) {
+				public Object run() {
+					return PelicanImageToBufferedImage.exec(image);
+				}
+			});
+			benchmarks.add(new Operator("conversion.ColourTransform",
+					"RGBToLCH", "ByteImage", size) {
+				public void setUp() {
+					image = BenchmarkImages.create(type, size, 3);
+				}
+
+				public Object run() {
+					return ColourTransform.RGB_TO_LCH.convert(image);
+				}
+			});
+			final BooleanImage square = BenchmarkImages.createSE("square", RADIUS);
+			benchmarks.add(new Operator("morphology.VectorialErosion",
+					"se=square lexicographical", "ByteImage", size) {
+				public void setUp() {
+					image = BenchmarkImages.create(type, size, 3);
+				}
+
+				public Object run() {
+					return VectorialErosion.exec(image, square,
+							new LexicographicalOrdering());
+				}
+			});
+			benchmarks.add(new Operator("morphology.VectorialMedian",
+					"se=square lexicographical", "ByteImage", size) {
+				public void setUp() {
+					image = BenchmarkImages.create(type, size, 3);
+				}
+
+				public Object run() {
+					return VectorialMedian.exec(image, square,
+							new LexicographicalOrdering());
+				}
+			});
+
+			// scaling of the parallel tree, 1, 2, 4... threads up to the cores
+			int cores = Runtime.getRuntime().availableProcessors();
+			for (int t = 1; t < 2 * cores; t *= 2) {
+				final int threads = Math.min(t, cores);
+				benchmarks.add(new Operator(
+						"connected.BuildCompactComponentTreeParallel", "threads="
+								+ threads, "ByteImage", size) {
+					int previous;
+
+					public void setUp() {
+						super.setUp();
+						previous = Parallel.getThreadCount();
+						Parallel.setThreadCount(threads);
+					}
+
+					public void tearDown() {
+						super.tearDown();
+						Parallel.setThreadCount(previous);
+					}
+
+					public Object run() {
+						return BuildCompactComponentTreeParallel.exec(image,
+								TrivialConnectivity.getFourNeighbourhood());
+					}
+				});
+			}
+		}
+	}
+
+}
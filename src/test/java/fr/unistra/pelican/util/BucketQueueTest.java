@@ -0,0 +1,105 @@
+package fr.unistra.pelican.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import fr.unistra.pelican.PelicanException;
+
+/**
+ * Checks the order in which the hierarchical queue serves its elements, in
+ * monotone and non monotone modes.
+ */
+public class BucketQueueTest {
+
+	@Test
+	public void fifoWithinLevels() {
+		BucketQueue queue = new BucketQueue(256);
+		queue.add(1, 5);
+		queue.add(2, 3);
+		queue.add(3, 5);
+		queue.add(4, 3);
+		assertEquals(4, queue.size());
+		assertEquals(3, queue.getCurrent());
+		assertEquals(2, queue.get());
+		assertEquals(4, queue.get());
+		assertEquals(5, queue.getCurrent());
+		assertEquals(1, queue.get());
+		assertEquals(3, queue.get());
+		assertTrue(queue.isEmpty());
+	}
+
+	@Test
+	public void lowerPriorityIsClamped() {
+		BucketQueue queue = new BucketQueue(256);
+		queue.add(1, 10);
+		queue.add(2, 10);
+		queue.add(3, 20);
+		assertEquals(1, queue.get());
+		// below the current level : served after the elements already there
+		queue.add(4, 2);
+		assertEquals(10, queue.getCurrent());
+		assertEquals(2, queue.get());
+		assertEquals(4, queue.get());
+		assertEquals(3, queue.get());
+	}
+
+	@Test
+	public void nonMonotoneGoesBack() {
+		BucketQueue queue = new BucketQueue(0, 255, false);
+		queue.add(1, 10);
+		queue.add(2, 10);
+		queue.add(3, 20);
+		assertEquals(1, queue.get());
+		queue.add(4, 2);
+		assertEquals(2, queue.getCurrent());
+		assertEquals(4, queue.get());
+		assertEquals(2, queue.get());
+		assertEquals(3, queue.get());
+	}
+
+	@Test
+	public void growAndClear() {
+		BucketQueue queue = new BucketQueue(-100, 100);
+		Random random = new Random(3);
+		int[] priorities = new int[1000];
+		for (int i = 0; i < priorities.length; i++) {
+			priorities[i] = random.nextInt(5) - 2;
+			queue.add(i, priorities[i]);
+		}
+		// interleaved removals, so that the rings wrap around before growing
+		for (int i = 0; i < 10; i++)
+			queue.get();
+		for (int i = 0; i < 10; i++)
+			queue.add(i, 2);
+		int last = -100, previous = -1;
+		while (!queue.isEmpty()) {
+			int priority = queue.getCurrent();
+			int element = queue.get();
+			assertTrue(priority >= last);
+			if (priority == last && priority != 2)
+				assertTrue(element > previous);
+			last = priority;
+			previous = element;
+		}
+		queue.clear();
+		assertEquals(-100, queue.getCurrent());
+		queue.add(7, 100);
+		assertEquals(100, queue.getCurrent());
+		assertEquals(7, queue.get());
+	}
+
+	@Test(expected = PelicanException.class)
+	public void priorityOutOfRange() {
+		new BucketQueue(256).add(0, 256);
+	}
+
+	@Test(expected = PelicanException.class)
+	public void getOnEmptyQueue() {
+		new BucketQueue(256).get();
+	}
+
+}
@@ -0,0 +1,163 @@
+package fr.unistra.pelican.util;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+
+import org.junit.After;
+import org.junit.Test;
+
+import fr.unistra.pelican.BooleanImage;
+import fr.unistra.pelican.IntegerImage;
+import fr.unistra.pelican.algorithms.segmentation.flatzones.BooleanConnectedComponentsLabeling;
+
+/**
+ * The labelling must give the components of a flood fill, numbered in order
+ * of appearance, whatever the number of strips.
+ */
+public class ComponentLabelingTest {
+
+	private final int threads = Parallel.getThreadCount();
+
+	@After
+	public void restoreThreads() {
+		Parallel.setThreadCount(threads);
+	}
+
+	/**
+	 * Reference labelling by flood fill from the first unlabelled pixel
+	 */
+	private static int[] floodFill(int[] values, int xdim, int ydim,
+		int depth, int[][] offsets, boolean hasBackground, int background) {
+		int size = values.length;
+		int[] labels = new int[size];
+		java.util.Arrays.fill(labels, -1);
+		int[] stack = new int[size];
+		int count = 0;
+		for (int p = 0; p < size; p++) {
+			if (labels[p] != -1)
+				continue;
+			if (hasBackground && values[p] == background) {
+				labels[p] = 0;
+				continue;
+			}
+			labels[p] = ++count;
+			int top = 0;
+			stack[top++] = p;
+			while (top > 0) {
+				int q = stack[--top];
+				int x = q % xdim;
+				int y = (q / xdim) % ydim;
+				int d = q / (xdim * ydim);
+				for (int[] o : offsets)
+					for (int sign = -1; sign <= 1; sign += 2) {
+						int nx = x + sign * o[0];
+						int ny = y + sign * o[1];
+						int nd = d + sign * o[2];
+						if (nx < 0 || ny < 0 || nd < 0 || nx >= xdim
+							|| ny >= ydim || nd >= depth)
+							continue;
+						int r = nx + xdim * (ny + ydim * nd);
+						if (labels[r] == -1 && values[r] == values[p]) {
+							labels[r] = count;
+							stack[top++] = r;
+						}
+					}
+			}
+		}
+		return labels;
+	}
+
+	private static int[] random(int size, int levels, long seed) {
+		Random random = new Random(seed);
+		int[] values = new int[size];
+		for (int p = 0; p < size; p++)
+			values[p] = random.nextInt(levels);
+		return values;
+	}
+
+	private void check(int xdim, int ydim, int depth, int[][] offsets,
+		int levels, boolean hasBackground) {
+		int size = xdim * ydim * depth;
+		int[] values = random(size, levels, size + levels);
+		int[] expected = floodFill(values, xdim, ydim, depth, offsets,
+			hasBackground, 0);
+		for (int t = 1; t <= 4; t++) {
+			Parallel.setThreadCount(t);
+			int[] labels = new int[size];
+			int count = new ComponentLabeling(xdim, ydim, depth, offsets)
+				.label(values, labels, hasBackground, 0);
+			assertArrayEquals(expected, labels);
+			int max = 0;
+			for (int l : expected)
+				max = Math.max(max, l);
+			assertEquals(max, count);
+		}
+	}
+
+	@Test
+	public void testPlanes() {
+		for (int c : new int[] { 4, 8 }) {
+			check(300, 250, 1, ComponentLabeling.backwardOffsets(c), 2, false);
+			check(300, 250, 1, ComponentLabeling.backwardOffsets(c), 3, true);
+			check(128, 100, 5, ComponentLabeling.backwardOffsets(c), 2, true);
+		}
+	}
+
+	@Test
+	public void testVolumes() {
+		for (int c : new int[] { 6, 26 }) {
+			check(64, 60, 40, ComponentLabeling.backwardOffsets(c), 2, false);
+			check(64, 60, 40, ComponentLabeling.backwardOffsets(c), 3, true);
+		}
+		// 2 frames of 3 planes, connected in time only
+		check(120, 100, 6, ComponentLabeling.append(ComponentLabeling
+			.backwardOffsets(8), new int[] { 0, 0, -3 }), 2, false);
+	}
+
+	@Test
+	public void testStatistics() {
+		int xdim = 200, ydim = 180;
+		int[] values = random(xdim * ydim, 2, 7);
+		ComponentLabeling labeling = new ComponentLabeling(xdim, ydim, 1,
+			ComponentLabeling.backwardOffsets(4));
+		labeling.setStatistics(true);
+		int[] labels = new int[values.length];
+		int count = labeling.label(values, labels, true, 0);
+		ComponentLabeling.Statistics stats = labeling.getStatistics();
+		assertEquals(count + 1, stats.size());
+		int[] area = new int[count + 1];
+		double[] sumx = new double[count + 1];
+		int[] ymax = new int[count + 1];
+		for (int p = 0; p < labels.length; p++) {
+			area[labels[p]]++;
+			sumx[labels[p]] += p % xdim;
+			ymax[labels[p]] = Math.max(ymax[labels[p]], p / xdim);
+		}
+		assertArrayEquals(area, stats.area);
+		assertArrayEquals(ymax, stats.ymax);
+		for (int l = 0; l <= count; l++)
+			assertEquals(sumx[l] / area[l], stats.xc[l], 1e-9);
+	}
+
+	@Test
+	public void testBooleanLabeling() {
+		boolean[] pixels = { true, false, true, false, true, false, false,
+			true, false };
+		BooleanImage image = new BooleanImage(3, 3, 1, 1, 1);
+		image.setPixels(pixels);
+		IntegerImage four = BooleanConnectedComponentsLabeling.exec(image,
+			BooleanConnectedComponentsLabeling.CONNEXITY4);
+		for (int p = 0; p < pixels.length; p++)
+			assertEquals(new int[] { 1, 0, 2, 0, 3, 0, 0, 3, 0 }[p], four
+				.getPixelInt(p));
+		assertEquals(4, four.getProperty("nbRegions"));
+		IntegerImage eight = BooleanConnectedComponentsLabeling.exec(image,
+			BooleanConnectedComponentsLabeling.CONNEXITY8, true);
+		for (int p = 0; p < pixels.length; p++)
+			assertEquals(new int[] { 1, 2, 1, 2, 1, 2, 2, 1, 2 }[p], eight
+				.getPixelInt(p));
+	}
+
+}
@@ -0,0 +1,215 @@
+package fr.unistra.pelican.util;
+
+import static org.junit.Assert.assertEquals;
+
+import java.awt.Point;
+import java.util.Random;
+
+import org.junit.Test;
+
+import fr.unistra.pelican.ByteImage;
+import fr.unistra.pelican.DoubleImage;
+import fr.unistra.pelican.Image;
+import fr.unistra.pelican.algorithms.spatial.Convolution;
+import fr.unistra.pelican.algorithms.spatial.Convolution2;
+import fr.unistra.pelican.algorithms.spatial.Fast2DConvolutionWithSVD;
+import fr.unistra.pelican.util.morphology.GrayStructuringElement;
+
+/**
+ * Compares every convolution method with a naive computation, for each
+ * border mode.
+ */
+public class ConvolverTest {
+
+	private static DoubleImage random(int xdim, int ydim, int zdim, int tdim,
+			int bdim, long seed) {
+		DoubleImage image = new DoubleImage(xdim, ydim, zdim, tdim, bdim);
+		Random random = new Random(seed);
+		for (int p = 0; p < image.size(); p++)
+			image.setPixelDouble(p, random.nextDouble());
+		return image;
+	}
+
+	/**
+	 * Kernel of the given rank, with positive values so that the normalized
+	 * border is well defined.
+	 */
+	private static double[] kernel(int kx, int ky, int kz, int rank, long seed) {
+		Random random = new Random(seed);
+		double[] values = new double[kx * ky * kz];
+		for (int r = 0; r < rank; r++) {
+			double[] u = new double[kx], v = new double[ky * kz];
+			for (int i = 0; i < kx; i++)
+				u[i] = random.nextDouble();
+			for (int j = 0; j < v.length; j++)
+				v[j] = random.nextDouble();
+			for (int j = 0; j < v.length; j++)
+				for (int i = 0; i < kx; i++)
+					values[i + kx * j] += u[i] * v[j];
+		}
+		return values;
+	}
+
+	private static Image naive(Image input, double[] kernel, int kx, int ky,
+			int kz, int cx, int cy, int cz, int border) {
+		Image output = input.copyImage(false);
+		int xdim = input.getXDim(), ydim = input.getYDim(), zdim = input
+				.getZDim();
+		for (int b = 0; b < input.getBDim(); b++)
+			for (int t = 0; t < input.getTDim(); t++)
+				for (int z = 0; z < zdim; z++)
+					for (int y = 0; y < ydim; y++)
+						for (int x = 0; x < xdim; x++) {
+							double sum = 0, weights = 0;
+							for (int k = 0; k < kz; k++)
+								for (int j = 0; j < ky; j++)
+									for (int i = 0; i < kx; i++) {
+										int xx = x - cx + i, yy = y - cy + j, zz = z
+												- cz + k;
+										boolean inside = xx >= 0 && xx < xdim
+												&& yy >= 0 && yy < ydim && zz >= 0
+												&& zz < zdim;
+										if (!inside && border != Convolver.CLAMP)
+											continue;
+										xx = Math.min(Math.max(xx, 0), xdim - 1);
+										yy = Math.min(Math.max(yy, 0), ydim - 1);
+										zz = Math.min(Math.max(zz, 0), zdim - 1);
+										double w = kernel[i + kx * (j + ky * k)];
+										sum += w
+												* input.getPixelDouble(xx, yy, zz, t, b);
+										weights += w;
+									}
+							if (border == Convolver.NORMALIZE)
+								sum /= weights;
+							output.setPixelDouble(x, y, z, t, b, sum);
+						}
+		return output;
+	}
+
+	private static void assertClose(Image expected, Image image, double delta) {
+		assertEquals(expected.size(), image.size());
+		for (int p = 0; p < expected.size(); p++)
+			assertEquals(expected.getPixelDouble(p), image.getPixelDouble(p),
+					delta);
+	}
+
+	@Test
+	public void test2D() {
+		Image input = random(37, 29, 2, 1, 3, 1);
+		int[][] shapes = { { 5, 5, 2, 2 }, { 7, 4, 1, 3 }, { 3, 9, 2, 0 },
+				{ 1, 6, 0, 5 }, { 8, 1, 7, 0 } };
+		for (int[] shape : shapes) {
+			int kx = shape[0], ky = shape[1];
+			for (int rank = 1; rank <= 2; rank++) {
+				double[] kernel = kernel(kx, ky, 1, rank, kx * 10 + rank);
+				Convolver convolver = new Convolver(kernel, kx, ky, 1, shape[2],
+						shape[3], 0);
+				if (kx > 1 && ky > 1)
+					assertEquals(rank, convolver.getRank());
+				for (int border = Convolver.ZERO; border <= Convolver.NORMALIZE; border++) {
+					Image truth = naive(input, kernel, kx, ky, 1, shape[2],
+							shape[3], 0, border);
+					for (int method = Convolver.AUTO; method <= Convolver.FFT; method++) {
+						Image output = input.copyImage(false);
+						convolver.convolve(input, output, border, method);
+						assertClose(truth, output, 1e-10);
+					}
+				}
+			}
+		}
+	}
+
+	@Test
+	public void test3D() {
+		Image input = random(23, 19, 7, 2, 2, 2);
+		double[] kernel = kernel(3, 4, 5, 3, 3);
+		Convolver convolver = new Convolver(kernel, 3, 4, 5, 1, 2, 3);
+		for (int border = Convolver.ZERO; border <= Convolver.NORMALIZE; border++) {
+			Image output = input.copyImage(false);
+			convolver.convolve(input, output, border);
+			assertClose(naive(input, kernel, 3, 4, 5, 1, 2, 3, border), output,
+					1e-10);
+		}
+		// the reflection gives the true convolution
+		double[] reflected = new double[kernel.length];
+		for (int n = 0; n < kernel.length; n++)
+			reflected[kernel.length - 1 - n] = kernel[n];
+		Image output = input.copyImage(false);
+		convolver.reflection().convolve(input, output, Convolver.ZERO);
+		assertClose(naive(input, reflected, 3, 4, 5, 1, 1, 1, Convolver.ZERO),
+				output, 1e-10);
+	}
+
+	@Test
+	public void testConvolution() {
+		ByteImage input = new ByteImage(40, 30, 1, 1, 3);
+		Random random = new Random(4);
+		for (int p = 0; p < input.size(); p++)
+			input.setPixelByte(p, random.nextInt(256));
+		GrayStructuringElement kernel = new GrayStructuringElement(5, 5,
+				new Point(2, 2));
+		double[] values = kernel(5, 5, 1, 5, 5);
+		for (int p = 0; p < values.length; p++)
+			kernel.setPixelDouble(p, values[p]);
+		Image result = Convolution.exec(input, kernel);
+		// the kernel is reflected, and the result normalized
+		double[] reflected = new double[values.length];
+		for (int n = 0; n < values.length; n++)
+			reflected[values.length - 1 - n] = values[n];
+		Image truth = naive(input, reflected, 5, 5, 1, 2, 2, 0,
+				Convolver.NORMALIZE);
+		for (int p = 0; p < input.size(); p++)
+			assertEquals(truth.getPixelByte(p), result.getPixelByte(p), 1);
+
+		// the pixels outside the support of the structuring element are ignored
+		kernel = GrayStructuringElement.createCircleStructuringElement(3);
+		values = new double[kernel.size()];
+		for (int p = 0; p < values.length; p++)
+			values[p] = kernel.getPixelDouble(p) > GrayStructuringElement
+					.getINF() ? 1 : 0;
+		result = Convolution.exec(input, kernel);
+		truth = naive(input, values, 7, 7, 1, 3, 3, 0, Convolver.NORMALIZE);
+		for (int p = 0; p < input.size(); p++)
+			assertEquals(truth.getPixelByte(p), result.getPixelByte(p), 1);
+	}
+
+	@Test
+	public void testConvolution2() {
+		Image input = random(30, 20, 2, 1, 2, 8);
+		// a 3-D structuring element, of which only the slice z=0 is used
+		Image values = random(5, 3, 3, 1, 1, 9);
+		Point[] centers = { new Point(1, 2), new Point(7, 1) };
+		for (Point center : centers)
+			for (int normalize : new int[] { Convolution2.NORMALIZE,
+					Convolution2.NO_NORMALIZE }) {
+				GrayStructuringElement se = new GrayStructuringElement(values,
+						center);
+				Image result = Convolution2.exec(input, se, normalize);
+				Convolution2 reference = new Convolution2();
+				reference.inputImage = input;
+				reference.se = se.getReflection();
+				for (int b = 0; b < 2; b++)
+					for (int z = 0; z < 2; z++)
+						for (int y = 0; y < 20; y++)
+							for (int x = 0; x < 30; x++)
+								assertEquals(reference.getVal(x, y, z, 0, b,
+										normalize == Convolution2.NORMALIZE),
+										result.getPixelDouble(x, y, z, 0, b),
+										1e-12);
+			}
+	}
+
+	@Test
+	public void testFast2DConvolutionWithSVD() {
+		DoubleImage input = random(50, 40, 1, 1, 1, 6);
+		GrayStructuringElement kernel = new GrayStructuringElement(7, 7,
+				new Point(3, 3));
+		double[] values = kernel(7, 7, 1, 2, 7);
+		for (int p = 0; p < values.length; p++)
+			kernel.setPixelDouble(p, values[p]);
+		Image result = Fast2DConvolutionWithSVD.exec(kernel).convolve(input);
+		assertClose(naive(input, values, 7, 7, 1, 3, 3, 0, Convolver.CLAMP),
+				result, 1e-10);
+	}
+
+}
@@ -0,0 +1,248 @@
+package fr.unistra.pelican.util;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+
+import org.junit.After;
+import org.junit.Test;
+
+import fr.unistra.pelican.BooleanImage;
+import fr.unistra.pelican.ByteImage;
+import fr.unistra.pelican.DoubleImage;
+import fr.unistra.pelican.Image;
+import fr.unistra.pelican.algorithms.arithmetic.Addition;
+import fr.unistra.pelican.algorithms.arithmetic.AdditionConstantChecked;
+import fr.unistra.pelican.algorithms.arithmetic.Blending;
+import fr.unistra.pelican.algorithms.arithmetic.Division;
+import fr.unistra.pelican.algorithms.arithmetic.EuclideanNorm;
+import fr.unistra.pelican.algorithms.arithmetic.LinearCombination;
+import fr.unistra.pelican.algorithms.arithmetic.MultiplicationByConstant;
+import fr.unistra.pelican.algorithms.arithmetic.NormalizedDifference;
+import fr.unistra.pelican.algorithms.arithmetic.ReplaceValue;
+import fr.unistra.pelican.algorithms.conversion.AngleToPseudoColors;
+import fr.unistra.pelican.algorithms.conversion.AverageChannels;
+import fr.unistra.pelican.algorithms.conversion.BinaryArrayToLabels;
+import fr.unistra.pelican.algorithms.conversion.ColourExtractor;
+import fr.unistra.pelican.algorithms.conversion.GrayToPseudoColors;
+import fr.unistra.pelican.algorithms.conversion.GrayToRGB;
+import fr.unistra.pelican.algorithms.conversion.HSVToRGB;
+import fr.unistra.pelican.algorithms.conversion.RGBAToGray;
+import fr.unistra.pelican.algorithms.conversion.RGBToGray;
+import fr.unistra.pelican.algorithms.conversion.RGBToLSH;
+import fr.unistra.pelican.algorithms.conversion.XYZToRGB;
+import fr.unistra.pelican.algorithms.logical.AND;
+import fr.unistra.pelican.algorithms.logical.BinaryDifference;
+import fr.unistra.pelican.algorithms.logical.Quantization;
+import fr.unistra.pelican.algorithms.morphology.gray.GrayErosion;
+import fr.unistra.pelican.util.morphology.FlatStructuringElement2D;
+
+/**
+ * The operators which split their work through {@link Parallel} must give
+ * the same pixels whatever the number of threads.
+ */
+public class ParallelTest {
+
+	private final int threads = Parallel.getThreadCount();
+
+	@After
+	public void restoreThreads() {
+		Parallel.setThreadCount(threads);
+	}
+
+	private static abstract class Operator {
+		abstract Image run();
+	}
+
+	private static ByteImage bytes(int xdim, int ydim, int zdim, int tdim,
+			int bdim, long seed) {
+		Random random = new Random(seed);
+		ByteImage image = new ByteImage(xdim, ydim, zdim, tdim, bdim);
+		for (int p = 0; p < image.size(); p++)
+			image.setPixelByte(p, random.nextInt(256));
+		return image;
+	}
+
+	private static DoubleImage doubles(int xdim, int ydim, int zdim, int tdim,
+			int bdim, long seed) {
+		Random random = new Random(seed);
+		DoubleImage image = new DoubleImage(xdim, ydim, zdim, tdim, bdim);
+		for (int p = 0; p < image.size(); p++)
+			image.setPixelDouble(p, random.nextDouble());
+		return image;
+	}
+
+	private static BooleanImage booleans(int xdim, int ydim, long seed) {
+		Random random = new Random(seed);
+		BooleanImage image = new BooleanImage(xdim, ydim, 1, 1, 1);
+		for (int p = 0; p < image.size(); p++)
+			image.setPixelBoolean(p, random.nextBoolean());
+		return image;
+	}
+
+	private static void check(String name, Operator operator) {
+		Parallel.setThreadCount(1);
+		Image expected = operator.run();
+		for (int n : new int[] { 2, 4, 7 }) {
+			Parallel.setThreadCount(n);
+			Image image = operator.run();
+			assertEquals(name, expected.size(), image.size());
+			for (int p = 0; p < expected.size(); p++)
+				assertEquals(name + " with " + n + " threads, pixel " + p,
+						expected.getPixelDouble(p), image.getPixelDouble(p), 0);
+		}
+	}
+
+	@Test
+	public void arithmetic() {
+		final Image a = bytes(300, 211, 1, 1, 3, 1);
+		final Image b = bytes(300, 211, 1, 1, 3, 2);
+		check("Addition", new Operator() {
+			Image run() {
+				return Addition.exec(a, b);
+			}
+		});
+		check("AdditionConstantChecked", new Operator() {
+			Image run() {
+				return AdditionConstantChecked.exec(a, 0.3);
+			}
+		});
+		check("Division", new Operator() {
+			Image run() {
+				return Division.exec(a, new double[] { 2, 3, 5 });
+			}
+		});
+		check("MultiplicationByConstant", new Operator() {
+			Image run() {
+				return MultiplicationByConstant.exec(a,
+						new double[] { 0.5, 1.5, 2 });
+			}
+		});
+		check("LinearCombination", new Operator() {
+			Image run() {
+				return LinearCombination.exec(new Image[] { a, b },
+						new Double[] { 0.25, 0.75 });
+			}
+		});
+		check("Blending", new Operator() {
+			Image run() {
+				return Blending.exec(a, b, 0.3);
+			}
+		});
+		check("Blending without background", new Operator() {
+			Image run() {
+				return Blending.exec(a, b, 0.3, true);
+			}
+		});
+		check("ReplaceValue", new Operator() {
+			Image run() {
+				return ReplaceValue.exec(a, 0.5, 0.0);
+			}
+		});
+		check("NormalizedDifference", new Operator() {
+			Image run() {
+				return NormalizedDifference.exec(a, b);
+			}
+		});
+		check("EuclideanNorm", new Operator() {
+			Image run() {
+				return EuclideanNorm.exec(a);
+			}
+		});
+		check("Quantization", new Operator() {
+			Image run() {
+				return Quantization.exec(a, 3);
+			}
+		});
+	}
+
+	@Test
+	public void logical() {
+		final Image a = booleans(400, 311, 3);
+		final Image b = booleans(400, 311, 4);
+		check("AND", new Operator() {
+			Image run() {
+				return AND.exec(a, b);
+			}
+		});
+		check("BinaryDifference", new Operator() {
+			Image run() {
+				return BinaryDifference.exec(a, b);
+			}
+		});
+		check("BinaryArrayToLabels", new Operator() {
+			Image run() {
+				return BinaryArrayToLabels.exec(new Image[] { a, b }, true);
+			}
+		});
+	}
+
+	@Test
+	public void conversions() {
+		// a volume in time, so that the tasks cross the z and t borders
+		final Image rgb = bytes(60, 50, 7, 3, 3, 5);
+		final Image colour = doubles(60, 50, 7, 3, 3, 6);
+		check("GrayToRGB", new Operator() {
+			Image run() {
+				return GrayToRGB.exec(bytes(60, 50, 7, 3, 1, 7));
+			}
+		});
+		check("GrayToPseudoColors", new Operator() {
+			Image run() {
+				return GrayToPseudoColors.exec(bytes(60, 50, 7, 3, 1, 7));
+			}
+		});
+		check("AngleToPseudoColors", new Operator() {
+			Image run() {
+				return AngleToPseudoColors.exec(bytes(60, 50, 7, 3, 1, 7));
+			}
+		});
+		check("RGBToGray", new Operator() {
+			Image run() {
+				return RGBToGray.exec(rgb);
+			}
+		});
+		check("RGBAToGray", new Operator() {
+			Image run() {
+				return RGBAToGray.exec(bytes(60, 50, 7, 3, 4, 8));
+			}
+		});
+		check("AverageChannels", new Operator() {
+			Image run() {
+				return AverageChannels.exec(rgb);
+			}
+		});
+		check("ColourExtractor", new Operator() {
+			Image run() {
+				return ColourExtractor.exec(rgb, 12, 34, 56);
+			}
+		});
+		check("RGBToLSH", new Operator() {
+			Image run() {
+				return RGBToLSH.exec(rgb);
+			}
+		});
+		check("HSVToRGB", new Operator() {
+			Image run() {
+				return HSVToRGB.exec(colour);
+			}
+		});
+		check("XYZToRGB", new Operator() {
+			Image run() {
+				return XYZToRGB.exec(colour);
+			}
+		});
+	}
+
+	@Test
+	public void morphology() {
+		final Image image = bytes(300, 211, 1, 1, 1, 9);
+		check("GrayErosion", new Operator() {
+			Image run() {
+				return GrayErosion.exec(image, FlatStructuringElement2D
+						.createSquareFlatStructuringElement(5));
+			}
+		});
+	}
+
+}
@@ -0,0 +1,134 @@
+package fr.unistra.pelican.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.Point;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBuffer;
+import java.awt.image.Raster;
+import java.awt.image.WritableRaster;
+import java.util.Random;
+
+import org.junit.Test;
+
+import fr.unistra.pelican.BooleanImage;
+import fr.unistra.pelican.ByteImage;
+import fr.unistra.pelican.DoubleImage;
+import fr.unistra.pelican.Image;
+import fr.unistra.pelican.IntegerImage;
+
+/**
+ * The copy from the data buffer must give the samples of getSample, whatever
+ * the layout of the raster, and the conversion to a BufferedImage the colors
+ * of the pixels.
+ */
+public class RasterConversionTest {
+
+	private static void fill(WritableRaster raster, int max, long seed) {
+		Random random = new Random(seed);
+		for (int j = 0; j < raster.getHeight(); j++)
+			for (int i = 0; i < raster.getWidth(); i++)
+				for (int b = 0; b < raster.getNumBands(); b++)
+					raster.setSample(raster.getMinX() + i, raster.getMinY() + j, b,
+						random.nextInt(max));
+	}
+
+	private static void checkBytes(Raster raster) {
+		int width = raster.getWidth(), height = raster.getHeight(), bands = raster
+			.getNumBands();
+		ByteImage image = new ByteImage(width, height, 1, 1, bands);
+		assertTrue(RasterConversion.copy(raster, image));
+		for (int j = 0; j < height; j++)
+			for (int i = 0; i < width; i++)
+				for (int b = 0; b < bands; b++)
+					assertEquals(raster.getSample(raster.getMinX() + i, raster.getMinY()
+						+ j, b) & 0xff, image.getPixelXYBByte(i, j, b));
+	}
+
+	@Test
+	public void testByteRasters() {
+		int[] types = { BufferedImage.TYPE_3BYTE_BGR,
+			BufferedImage.TYPE_4BYTE_ABGR, BufferedImage.TYPE_BYTE_GRAY,
+			BufferedImage.TYPE_INT_RGB, BufferedImage.TYPE_INT_ARGB,
+			BufferedImage.TYPE_INT_BGR, BufferedImage.TYPE_BYTE_INDEXED };
+		for (int t = 0; t < types.length; t++) {
+			BufferedImage im = new BufferedImage(37, 23, types[t]);
+			fill(im.getRaster(), 256, t);
+			checkBytes(im.getRaster());
+			// part of the raster, sharing its buffer
+			checkBytes(im.getSubimage(5, 3, 20, 11).getRaster());
+		}
+		WritableRaster banded = Raster.createBandedRaster(DataBuffer.TYPE_BYTE,
+			31, 17, 3, new Point(0, 0));
+		fill(banded, 256, 10);
+		checkBytes(banded);
+		checkBytes(banded.createChild(4, 2, 10, 9, 0, 0, new int[] { 2, 0 }));
+	}
+
+	@Test
+	public void testShortRasters() {
+		WritableRaster[] rasters = {
+			new BufferedImage(29, 19, BufferedImage.TYPE_USHORT_GRAY).getRaster(),
+			Raster.createInterleavedRaster(DataBuffer.TYPE_USHORT, 29, 19, 3,
+				new Point(0, 0)),
+			Raster.createBandedRaster(DataBuffer.TYPE_USHORT, 29, 19, 2,
+				new Point(0, 0)) };
+		for (int r = 0; r < rasters.length; r++) {
+			fill(rasters[r], 65536, r);
+			for (Raster raster : new Raster[] { rasters[r],
+				rasters[r].createChild(3, 4, 20, 10, 0, 0, null) }) {
+				IntegerImage image = new IntegerImage(raster.getWidth(), raster
+					.getHeight(), 1, 1, raster.getNumBands());
+				assertTrue(RasterConversion.copy(raster, image));
+				for (int j = 0; j < raster.getHeight(); j++)
+					for (int i = 0; i < raster.getWidth(); i++)
+						for (int b = 0; b < raster.getNumBands(); b++)
+							assertEquals(raster.getSample(raster.getMinX() + i, raster
+								.getMinY()
+								+ j, b), image.getPixelXYBInt(i, j, b));
+			}
+		}
+	}
+
+	private static void checkColors(Image image, int[] bands, BooleanImage mask) {
+		if (mask != null)
+			image.pushMask(mask);
+		BufferedImage bimg = bands == null ? PelicanImageToBufferedImage
+			.exec(image) : PelicanImageToBufferedImage.exec(image, bands);
+		int[] channels = bands != null ? (bands.length == 3 ? bands : new int[] {
+			bands[0], bands[0], bands[0] }) : image.getBDim() == 3 ? new int[] { 0,
+			1, 2 } : new int[] { 0, 0, 0 };
+		for (int y = 0; y < image.getYDim(); y++)
+			for (int x = 0; x < image.getXDim(); x++) {
+				int alpha = mask == null || mask.getPixelXYBoolean(x, y) ? 255 : 10;
+				int rgb = alpha << 24;
+				for (int c = 0; c < 3; c++)
+					rgb |= (image.getPixelXYBByte(x, y, channels[c]) & 0xff) << (16 - 8 * c);
+				assertEquals(rgb, bimg.getRGB(x, y));
+			}
+	}
+
+	@Test
+	public void testToBufferedImage() {
+		Random random = new Random(1);
+		ByteImage color = new ByteImage(23, 17, 1, 1, 3);
+		ByteImage multi = new ByteImage(23, 17, 1, 1, 5);
+		DoubleImage doubles = new DoubleImage(23, 17, 1, 1, 1);
+		BooleanImage mask = new BooleanImage(23, 17, 1, 1, 1);
+		for (int p = 0; p < color.size(); p++)
+			color.setPixelByte(p, random.nextInt(256));
+		for (int p = 0; p < multi.size(); p++)
+			multi.setPixelByte(p, random.nextInt(256));
+		for (int p = 0; p < doubles.size(); p++)
+			doubles.setPixelDouble(p, random.nextDouble());
+		for (int p = 0; p < mask.size(); p++)
+			mask.setPixelBoolean(p, random.nextBoolean());
+		checkColors(color, null, null);
+		checkColors(multi, new int[] { 4, 0, 2 }, null);
+		checkColors(multi, new int[] { 3 }, null);
+		checkColors(doubles, null, null);
+		checkColors(color, null, mask);
+	}
+
+}
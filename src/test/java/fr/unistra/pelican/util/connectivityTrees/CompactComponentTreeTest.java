@@ -0,0 +1,109 @@
+package fr.unistra.pelican.util.connectivityTrees;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import fr.unistra.pelican.ByteImage;
+import fr.unistra.pelican.DoubleImage;
+import fr.unistra.pelican.Image;
+import fr.unistra.pelican.algorithms.morphology.connected.BuildCompactComponentTree;
+import fr.unistra.pelican.algorithms.morphology.connected.BuildComponentTree;
+import fr.unistra.pelican.algorithms.morphology.connected.FilterComponentTree;
+import fr.unistra.pelican.algorithms.morphology.connected.FilterComponentTree.FilterStrategy;
+import fr.unistra.pelican.algorithms.morphology.connected.ReconstructImageFromTree;
+import fr.unistra.pelican.util.connectivityTrees.ComponentTreeUtil.TreeType;
+import fr.unistra.pelican.util.connectivityTrees.attributes.AreaAttributFilter;
+import fr.unistra.pelican.util.connectivityTrees.attributes.AttributePerimetre;
+import fr.unistra.pelican.util.connectivityTrees.attributes.AttributeVolume;
+import fr.unistra.pelican.util.connectivityTrees.connectivity.Connectivity3D;
+import fr.unistra.pelican.util.connectivityTrees.connectivity.TrivialConnectivity;
+
+/**
+ * Compares the array based component tree with the object based one, on
+ * small random images with many flat zones.
+ */
+public class CompactComponentTreeTest {
+
+	private static final int XDIM = 23, YDIM = 17;
+
+	private static Image random(boolean bytes, long seed) {
+		Random random = new Random(seed);
+		Image image = bytes ? new ByteImage(XDIM, YDIM, 1, 1, 1)
+				: new DoubleImage(XDIM, YDIM, 1, 1, 1);
+		for (int p = 0; p < image.size(); p++)
+			if (bytes)
+				image.setPixelByte(p, 10 * random.nextInt(8));
+			else
+				image.setPixelDouble(p, random.nextInt(8) * 0.25 - 1);
+		return image;
+	}
+
+	private static Connectivity3D[] connectivities() {
+		return new Connectivity3D[] { TrivialConnectivity.getFourNeighbourhood(),
+				TrivialConnectivity.getHeightNeighbourhood() };
+	}
+
+	@Test
+	public void sameNodesAndAttributes() throws Exception {
+		long seed = 0;
+		for (boolean bytes : new boolean[] { true, false })
+			for (TreeType type : TreeType.values())
+				for (Connectivity3D con : connectivities()) {
+					Image image = random(bytes, seed++);
+					ComponentTree<?> reference = BuildComponentTree.exec(image,
+							con, type);
+					reference.addAttribute(new AttributeVolume());
+					reference.addAttribute(new AttributePerimetre());
+					CompactComponentTree tree = BuildCompactComponentTree.exec(
+							image, con, type);
+
+					assertEquals(reference.countNodes(), tree.countNodes());
+					assertEquals(reference.countLeaf(), tree.countLeaf());
+					boolean[] hasChildren = tree.hasChildren();
+					for (int y = 0; y < YDIM; y++)
+						for (int x = 0; x < XDIM; x++) {
+							ComponentNode<?> n = reference.findNodeAt(x, y, 0);
+							int node = tree.findNodeAt(x, y, 0);
+							assertEquals(image.getPixelXYDouble(x, y), tree
+									.getLevel(x + XDIM * y), 0);
+							assertEquals(n.getArea(), tree.getArea(node));
+							assertEquals(n.numberOfChildren() == 0,
+									!hasChildren[node]);
+							assertEquals(n.getAttributeValue(AttributeVolume.class),
+									tree.getVolume(node), 1e-9);
+							assertEquals(n
+									.getAttributeValue(AttributePerimetre.class),
+									tree.getPerimeter(node), 0);
+						}
+				}
+	}
+
+	@Test
+	public void sameFilterings() {
+		long seed = 100;
+		for (boolean bytes : new boolean[] { true, false })
+			for (TreeType type : TreeType.values())
+				for (Connectivity3D con : connectivities())
+					for (FilterStrategy strategy : FilterStrategy.values()) {
+						Image image = random(bytes, seed++);
+						AreaAttributFilter filter = new AreaAttributFilter(6);
+						ComponentTree<?> reference = BuildComponentTree.exec(
+								image, con, type);
+						reference = FilterComponentTree.exec(reference, filter,
+								strategy);
+						Image expected = ReconstructImageFromTree.exec(reference);
+						CompactComponentTree tree = BuildCompactComponentTree
+								.exec(image, con, type);
+						tree = FilterComponentTree.exec(tree, filter, strategy);
+						Image result = ReconstructImageFromTree.exec(tree);
+						for (int p = 0; p < image.size(); p++)
+							assertEquals(strategy + " " + type + " pixel " + p,
+									expected.getPixelDouble(p), result
+											.getPixelDouble(p), 0);
+					}
+	}
+
+}
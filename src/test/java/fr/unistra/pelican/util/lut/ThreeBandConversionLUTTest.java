@@ -0,0 +1,99 @@
+package fr.unistra.pelican.util.lut;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.util.Random;
+
+import org.junit.Test;
+
+import fr.unistra.pelican.ByteImage;
+import fr.unistra.pelican.Image;
+import fr.unistra.pelican.algorithms.conversion.OptimizedByteImageConversionBasedOnLUT;
+import fr.unistra.pelican.algorithms.conversion.RGBToXYZ;
+import fr.unistra.pelican.algorithms.conversion.XYZToLAB;
+
+/**
+ * Checks the conversions of the LUTs and their files.
+ */
+public class ThreeBandConversionLUTTest {
+
+	private static ByteImage random(long seed) {
+		ByteImage image = new ByteImage(300, 200, 1, 1, 3);
+		Random random = new Random(seed);
+		for (int p = 0; p < image.size(); p++)
+			image.setPixelByte(p, random.nextInt(256));
+		image.setColor(true);
+		return image;
+	}
+
+	@Test
+	public void testByteLUT() throws Exception {
+		// a permutation of the bands, easy to check
+		ThreeBandByteConversionLUT lut = new ThreeBandByteConversionLUT(
+				new ThreeBandByteConversionLUT.Conversion() {
+					public void convert(int r, int g, int b, byte[] out,
+							int offset) {
+						out[offset] = Image.unsignedByteToSignedByte(b);
+						out[offset + 1] = Image.unsignedByteToSignedByte(255 - r);
+						out[offset + 2] = Image.unsignedByteToSignedByte(g);
+					}
+				});
+		assertEquals(200, lut.get(55, 1, 200, 0));
+		assertEquals(200, lut.get(55, 1, 200, 1));
+		assertEquals(1, lut.get(55, 1, 200, 2));
+
+		ByteImage input = random(1);
+		ByteImage output = OptimizedByteImageConversionBasedOnLUT.exec(input,
+				lut);
+		for (int p = 0; p < input.size(); p += 3) {
+			assertEquals(input.getPixelByte(p + 2), output.getPixelByte(p));
+			assertEquals(255 - input.getPixelByte(p), output.getPixelByte(p + 1));
+			assertEquals(input.getPixelByte(p + 1), output.getPixelByte(p + 2));
+		}
+
+		File file = File.createTempFile("pelican", ".lut");
+		try {
+			lut.save(file.getPath());
+			assertArrayEquals(lut.getTable(), ThreeBandByteConversionLUT.load(
+					file.getPath()).getTable());
+		} finally {
+			file.delete();
+		}
+	}
+
+	@Test
+	public void testGridLUT() throws Exception {
+		ByteImage input = random(2);
+		// RGBToXYZ is linear, so exactly interpolated
+		Image xyz = RGBToXYZ.exec(input);
+		Image interpolated = RGBToXYZ.exec(input, ThreeBandGridLUT
+				.getRGBToXYZLUT(2));
+		for (int p = 0; p < input.size(); p++)
+			assertEquals(xyz.getPixelDouble(p), interpolated.getPixelDouble(p),
+					1e-12);
+
+		ThreeBandGridLUT lut = ThreeBandGridLUT.getXYZToLabLUT(33);
+		Image lab = XYZToLAB.exec(xyz);
+		interpolated = XYZToLAB.exec(xyz, false, lut);
+		double error = 0;
+		for (int p = 0; p < input.size(); p++)
+			error += Math.abs(lab.getPixelDouble(p)
+					- interpolated.getPixelDouble(p));
+		assertEquals(0, error / input.size(), 0.1);
+
+		File file = File.createTempFile("pelican", ".lut");
+		try {
+			lut.save(file.getPath());
+			ThreeBandGridLUT loaded = ThreeBandGridLUT.load(file.getPath());
+			double[] expected = new double[3], result = new double[3];
+			lut.convert(0.2, 0.5, 0.7, expected);
+			loaded.convert(0.2, 0.5, 0.7, result);
+			assertArrayEquals(expected, result, 0);
+		} finally {
+			file.delete();
+		}
+	}
+
+}
@@ -0,0 +1,235 @@
+package fr.unistra.pelican.util.morphology;
+
+import static org.junit.Assert.assertEquals;
+
+import java.awt.Point;
+import java.util.Random;
+
+import org.junit.Test;
+
+import fr.unistra.pelican.BooleanImage;
+import fr.unistra.pelican.DoubleImage;
+import fr.unistra.pelican.Image;
+import fr.unistra.pelican.algorithms.morphology.binary.BinaryDilation;
+import fr.unistra.pelican.algorithms.morphology.binary.BinaryErosion;
+import fr.unistra.pelican.algorithms.morphology.gray.GrayDilation;
+import fr.unistra.pelican.algorithms.morphology.gray.GrayErosion;
+import fr.unistra.pelican.util.Point4D;
+
+/**
+ * Compares the flat morphology engine with the naive erosions and dilations,
+ * on random, disc, line and 3-D structuring elements.
+ */
+public class FlatMorphologyTest {
+
+	private Random random = new Random(7);
+
+	private DoubleImage randomImage(int xdim, int ydim, int zdim, int bdim) {
+		DoubleImage image = new DoubleImage(xdim, ydim, zdim, 1, bdim);
+		for (int p = 0; p < image.size(); p++)
+			image.setPixelDouble(p, random.nextInt(50) / 50.0);
+		return image;
+	}
+
+	private BooleanImage randomMask(Image image, double density) {
+		BooleanImage mask = new BooleanImage(image.getXDim(), image.getYDim(),
+			image.getZDim(), image.getTDim(), image.getBDim());
+		for (int p = 0; p < mask.size(); p++)
+			mask.setPixelBoolean(p, random.nextDouble() < density);
+		return mask;
+	}
+
+	private BooleanImage randomSE(int xdim, int ydim, int zdim, double density) {
+		BooleanImage se = new BooleanImage(xdim, ydim, zdim, 1, 1);
+		for (int p = 0; p < se.size(); p++)
+			se.setPixelBoolean(p, random.nextDouble() < density);
+		se.setCenter(new Point4D(random.nextInt(xdim), random.nextInt(ydim),
+			random.nextInt(zdim), 0));
+		return se;
+	}
+
+	private BooleanImage[] structuringElements() {
+		BooleanImage[] ses = new BooleanImage[14];
+		ses[0] = FlatStructuringElement2D.createSquareFlatStructuringElement(5);
+		ses[1] = FlatStructuringElement2D.createCircleFlatStructuringElement(4);
+		ses[2] = FlatStructuringElement2D.createDiamondFlatStructuringElement(7);
+		ses[3] = FlatStructuringElement2D.createLineFlatStructuringElement(11, 30);
+		ses[4] = FlatStructuringElement2D.createLineFlatStructuringElement(9, 125);
+		ses[5] = FlatStructuringElement2D.createHollowSquareFlatStructuringElement(5);
+		ses[6] = FlatStructuringElement2D.createRectangularFlatStructuringElement(
+			6, 3);
+		ses[6].setCenter(new Point(4, 2));
+		ses[7] = FlatStructuringElement2D.createCrossFlatStructuringElement(3);
+		for (int i = 8; i < 12; i++)
+			ses[i] = randomSE(1 + random.nextInt(7), 1 + random.nextInt(7), 1,
+				0.5);
+		// 3-D box and 3-D random shape
+		ses[12] = randomSE(3, 2, 3, 1.0);
+		ses[13] = randomSE(3, 3, 2, 0.6);
+		return ses;
+	}
+
+	/**
+	 * Naive gray erosion or dilation, with the semantics of the former
+	 * implementation.
+	 */
+	private static Image naiveGray(Image input, BooleanImage se,
+			BooleanImage mask, boolean dilation) {
+		Image output = input.copyImage(false);
+		Point4D[] points = se.foreground();
+		Point4D c = se.getCenter();
+		for (int t = 0; t < input.getTDim(); t++)
+			for (int z = 0; z < input.getZDim(); z++)
+				for (int y = 0; y < input.getYDim(); y++)
+					for (int x = 0; x < input.getXDim(); x++)
+						for (int b = 0; b < input.getBDim(); b++) {
+							if (!input.isPresent(x, y, z, t, b) || mask != null
+									&& !mask.getPixelXYZTBBoolean(x, y, z, t, b)) {
+								output.setPixelDouble(x, y, z, t, b, 0);
+								continue;
+							}
+							double value = dilation ? Double.NEGATIVE_INFINITY
+								: Double.POSITIVE_INFINITY;
+							boolean flag = false;
+							for (Point4D p : points) {
+								int vx = x - c.x + p.x, vy = y - c.y + p.y;
+								int vz = z - c.z + p.z, vt = t - c.t + p.t;
+								if (vx < 0 || vx >= input.getXDim() || vy < 0
+										|| vy >= input.getYDim() || vz < 0
+										|| vz >= input.getZDim() || vt < 0
+										|| vt >= input.getTDim()
+										|| !input.isPresent(vx, vy, vz, vt, b))
+									continue;
+								double v = input.getPixelDouble(vx, vy, vz, vt, b);
+								value = dilation ? Math.max(value, v) : Math.min(
+									value, v);
+								flag = true;
+							}
+							output.setPixelDouble(x, y, z, t, b, flag ? value
+								: input.getPixelDouble(x, y, z, t, b));
+						}
+		return output;
+	}
+
+	/**
+	 * Naive binary erosion or dilation, with the semantics of the former
+	 * implementation.
+	 */
+	private static Image naiveBinary(Image input, BooleanImage se, int option,
+			boolean dilation) {
+		// a dilation is an erosion of the complement where black and white
+		// swap
+		int strong = dilation ? BinaryErosion.WHITE : BinaryErosion.BLACK;
+		Image output = input.copyImage(false);
+		Point4D[] points = se.foreground();
+		Point4D c = se.getCenter();
+		for (int z = 0; z < input.getZDim(); z++)
+			for (int y = 0; y < input.getYDim(); y++)
+				for (int x = 0; x < input.getXDim(); x++)
+					for (int b = 0; b < input.getBDim(); b++) {
+						if (!input.isPresent(x, y, z, 0, b)) {
+							output.setPixelBoolean(x, y, z, 0, b, false);
+							continue;
+						}
+						boolean flag = false;
+						boolean result = !dilation;
+						for (Point4D p : points) {
+							int vx = x - c.x + p.x, vy = y - c.y + p.y;
+							int vz = z - c.z + p.z;
+							if (vx < 0 || vx >= input.getXDim() || vy < 0
+									|| vy >= input.getYDim() || vz < 0
+									|| vz >= input.getZDim()) {
+								if (option == strong)
+									result = dilation;
+								continue;
+							}
+							flag = true;
+							if (!input.isPresent(vx, vy, vz, 0, b)) {
+								if (option == strong)
+									result = dilation;
+							} else if (input.getPixelBoolean(vx, vy, vz, 0, b) == dilation)
+								result = dilation;
+						}
+						if (!flag && result != dilation)
+							result = input.getPixelBoolean(x, y, z, 0, b);
+						output.setPixelBoolean(x, y, z, 0, b, result);
+					}
+		return output;
+	}
+
+	private static void assertSame(Image truth, Image result) {
+		assertEquals(truth.size(), result.size());
+		for (int p = 0; p < truth.size(); p++)
+			assertEquals("pixel " + p, truth.getPixelDouble(p), result
+				.getPixelDouble(p), 0);
+	}
+
+	@Test
+	public void testGray() {
+		DoubleImage[] images = { randomImage(37, 29, 1, 2),
+			randomImage(17, 13, 5, 1), randomImage(160, 130, 1, 1) };
+		for (DoubleImage image : images)
+			for (BooleanImage se : structuringElements()) {
+				assertSame(naiveGray(image, se, null, false), GrayErosion.exec(
+					image, se));
+				assertSame(naiveGray(image, se, null, true), GrayDilation.exec(
+					image, se));
+				BooleanImage mask = randomMask(image, 0.8);
+				assertSame(naiveGray(image, se, mask, false), GrayErosion.exec(
+					image, se, mask));
+				assertSame(naiveGray(image, se, mask, true), GrayDilation.exec(
+					image, se, mask));
+			}
+	}
+
+	@Test
+	public void testGrayAbsentPixels() {
+		DoubleImage image = randomImage(31, 23, 2, 2);
+		image.pushMask(randomMask(image, 0.7));
+		for (BooleanImage se : structuringElements()) {
+			assertSame(naiveGray(image, se, null, false), GrayErosion.exec(
+				image, se));
+			assertSame(naiveGray(image, se, null, true), GrayDilation.exec(
+				image, se));
+		}
+	}
+
+	@Test
+	public void testBinary() {
+		for (int pass = 0; pass < 2; pass++) {
+			BooleanImage image = new BooleanImage(randomMask(randomImage(33, 27,
+				3, 2), 0.6));
+			if (pass == 1)
+				image.pushMask(randomMask(image, 0.75));
+			for (BooleanImage se : structuringElements())
+				for (int option = BinaryErosion.IGNORE; option <= BinaryErosion.BLACK; option++) {
+					// boxed, since the int overload is the optimization one
+					Integer boxed = Integer.valueOf(option);
+					assertSame(naiveBinary(image, se, option, false), BinaryErosion
+						.exec(image, se, boxed));
+					assertSame(naiveBinary(image, se, option, true), BinaryDilation
+						.exec(image, se, boxed));
+				}
+		}
+	}
+
+	public static void main(String[] args) {
+		FlatMorphologyTest test = new FlatMorphologyTest();
+		DoubleImage image = test.randomImage(1024, 1024, 1, 1);
+		for (int radius = 2; radius <= 32; radius *= 2) {
+			BooleanImage disc = FlatStructuringElement2D
+				.createCircleFlatStructuringElement(radius);
+			BooleanImage line = FlatStructuringElement2D
+				.createLineFlatStructuringElement(2 * radius + 1, 30);
+			long start = System.currentTimeMillis();
+			GrayErosion.exec(image, disc);
+			long middle = System.currentTimeMillis();
+			GrayErosion.exec(image, line);
+			long end = System.currentTimeMillis();
+			System.out.println("radius " + radius + " disc : "
+				+ (middle - start) + " ms (" + new FlatMorphology(disc).getRunCount()
+				+ " runs), line at 30 degrees : " + (end - middle) + " ms");
+		}
+	}
+
+}
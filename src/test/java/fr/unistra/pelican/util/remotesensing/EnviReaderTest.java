@@ -0,0 +1,187 @@
+package fr.unistra.pelican.util.remotesensing;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Random;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import fr.unistra.pelican.Image;
+import fr.unistra.pelican.algorithms.io.HdrImageLoad;
+import fr.unistra.pelican.util.Parallel;
+
+/**
+ * The bulk reader must give the values of the file, whatever the interleave,
+ * the byte order, the window and the bands read, and those of BSQReader and
+ * BILReader on the whole image.
+ */
+public class EnviReaderTest {
+
+	private static final int COLS = 123, LINES = 67, BANDS = 5;
+
+	private final int threads = Parallel.getThreadCount();
+
+	private File dir;
+
+	@Before
+	public void createDir() throws IOException {
+		dir = File.createTempFile("envi", "");
+		dir.delete();
+		dir.mkdir();
+	}
+
+	@After
+	public void deleteDir() {
+		for (File f : dir.listFiles())
+			f.delete();
+		dir.delete();
+		Parallel.setThreadCount(threads);
+	}
+
+	/**
+	 * Writes an image of random values, returns the path of its header and
+	 * fills the values of each sample (x, y, b)
+	 */
+	private String write(String interleave, int dataType, boolean bigEndian,
+		double[][][] values) throws IOException {
+		int bytes = dataType == 1 ? 1 : dataType == 2 || dataType == 12 ? 2
+			: dataType == 5 ? 8 : 4;
+		ByteBuffer buffer = ByteBuffer.allocate(COLS * LINES * BANDS * bytes)
+			.order(bigEndian ? ByteOrder.BIG_ENDIAN : ByteOrder.LITTLE_ENDIAN);
+		Random random = new Random(dataType);
+		for (int y = 0; y < LINES; y++)
+			for (int b = 0; b < BANDS; b++)
+				for (int x = 0; x < COLS; x++) {
+					int index;
+					if (interleave.equals("bsq"))
+						index = (b * LINES + y) * COLS + x;
+					else if (interleave.equals("bil"))
+						index = (y * BANDS + b) * COLS + x;
+					else
+						index = (y * COLS + x) * BANDS + b;
+					index *= bytes;
+					switch (dataType) {
+					case 1:
+						int u = random.nextInt(256);
+						buffer.put(index, (byte) u);
+						values[x][y][b] = u;
+						break;
+					case 2:
+					case 12:
+						short s = (short) random.nextInt();
+						buffer.putShort(index, s);
+						values[x][y][b] = dataType == 2 ? s : s & 0xffff;
+						break;
+					case 3:
+						int i = random.nextInt();
+						buffer.putInt(index, i);
+						values[x][y][b] = i;
+						break;
+					case 4:
+						float f = (float) random.nextGaussian();
+						buffer.putFloat(index, f);
+						values[x][y][b] = f;
+						break;
+					default:
+						double d = random.nextGaussian();
+						buffer.putDouble(index, d);
+						values[x][y][b] = d;
+					}
+				}
+		String name = "image" + interleave + dataType + bigEndian;
+		FileOutputStream out = new FileOutputStream(new File(dir, name + "."
+			+ interleave));
+		out.write(buffer.array());
+		out.close();
+		File header = new File(dir, name + ".hdr");
+		FileWriter writer = new FileWriter(header);
+		writer.write("ENVI\ndescription = {test}\nsamples = " + COLS
+			+ "\nlines = " + LINES + "\nbands = " + BANDS
+			+ "\nheader offset = 0\nfile type = ENVI Standard\ndata type = "
+			+ dataType + "\ninterleave = " + interleave + "\nbyte order = "
+			+ (bigEndian ? 1 : 0)
+			+ "\nwavelength = {\n 400.0, 500.0, 600.0,\n 700.0, 800.0}\n");
+		writer.close();
+		return header.getPath();
+	}
+
+	private static void check(double[][][] values, Image image, int sx,
+		int sy, int[] bands) {
+		for (int i = 0; i < image.getBDim(); i++)
+			for (int y = 0; y < image.getYDim(); y++)
+				for (int x = 0; x < image.getXDim(); x++) {
+					int b = bands == null ? i : bands[i];
+					double expected = values[sx + x][sy + y][b];
+					if (image instanceof fr.unistra.pelican.ByteImage)
+						assertEquals(expected, image.getPixelXYBByte(x, y, i), 0);
+					else if (image instanceof fr.unistra.pelican.IntegerImage)
+						assertEquals(expected, image.getPixelXYBInt(x, y, i), 0);
+					else
+						assertEquals(expected, image.getPixelXYBDouble(x, y, i), 0);
+				}
+	}
+
+	@Test
+	public void testFormats() throws IOException {
+		for (String interleave : new String[] { "bsq", "bil", "bip" })
+			for (int dataType : new int[] { 1, 2, 3, 4, 5 })
+				for (boolean bigEndian : new boolean[] { false, true }) {
+					double[][][] values = new double[COLS][LINES][BANDS];
+					String header = write(interleave, dataType, bigEndian, values);
+					for (int t = 1; t <= 3; t += 2) {
+						Parallel.setThreadCount(t);
+						Image image = HdrImageLoad.exec(header);
+						assertEquals(COLS, image.getXDim());
+						assertEquals(BANDS, image.getBDim());
+						check(values, image, 0, 0, null);
+						int[] bands = { 4, 1, 2 };
+						image = HdrImageLoad.exec(header, new int[] { 3, 2, 20, 15 },
+							bands);
+						assertEquals(18, image.getXDim());
+						assertEquals(14, image.getYDim());
+						check(values, image, 3, 2, bands);
+						assertEquals(800.0, image.getProperty(HdrReader.WAVELENGTH_ENVI
+							+ 0));
+						assertEquals(null, image.getProperty(HdrReader.WAVELENGTH_ENVI
+							+ 3));
+					}
+				}
+	}
+
+	@Test
+	public void testOldReaders() throws Throwable {
+		for (int dataType : new int[] { 1, 2, 3, 4, 5, 12 })
+			for (boolean bigEndian : new boolean[] { false, true }) {
+				double[][][] values = new double[COLS][LINES][BANDS];
+				String header = write("bsq", dataType, bigEndian, values);
+				HdrReader hr = new HdrReader();
+				hr.readHeader(header);
+				Image expected = new BSQReader(hr, header).getPelicanImage();
+				Image image = HdrImageLoad.exec(header);
+				assertEquals(expected.getClass(), image.getClass());
+				for (int p = 0; p < image.size(); p++)
+					assertEquals(expected.getPixelDouble(p), image.getPixelDouble(p),
+						0);
+
+				header = write("bil", dataType, bigEndian, values);
+				hr = new HdrReader();
+				hr.readHeader(header);
+				expected = new BILReader(hr, header).getPelicanImage();
+				image = HdrImageLoad.exec(header);
+				assertEquals(expected.getClass(), image.getClass());
+				for (int p = 0; p < image.size(); p++)
+					assertEquals(expected.getPixelDouble(p), image.getPixelDouble(p),
+						0);
+				check(values, image, 0, 0, null);
+			}
+	}
+
+}
@@ -0,0 +1,113 @@
+package fr.unistra.pelican.util.vectorial;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import fr.unistra.pelican.BooleanImage;
+import fr.unistra.pelican.ByteImage;
+import fr.unistra.pelican.DoubleImage;
+import fr.unistra.pelican.Image;
+import fr.unistra.pelican.algorithms.morphology.vectorial.VectorialDilation;
+import fr.unistra.pelican.algorithms.morphology.vectorial.VectorialMedian;
+import fr.unistra.pelican.util.Point4D;
+import fr.unistra.pelican.util.morphology.FlatStructuringElement2D;
+import fr.unistra.pelican.util.vectorial.orders.CumulativeDistanceOrdering;
+import fr.unistra.pelican.util.vectorial.orders.MahalanobisBasedOrdering;
+import fr.unistra.pelican.util.vectorial.orders.VectorialOrdering;
+
+/**
+ * Checks the vectors of the windows moved over an image, and the orderings
+ * working on them.
+ */
+public class NeighbourhoodWindowTest {
+
+	private static DoubleImage random(boolean masked) {
+		DoubleImage image = new DoubleImage(40, 30, 2, 1, 3);
+		Random random = new Random(5);
+		for (int p = 0; p < image.size(); p++)
+			image.setPixelDouble(p, random.nextInt(10) / 10.0);
+		if (masked) {
+			ByteImage mask = new ByteImage(40, 30, 2, 1, 1);
+			for (int p = 0; p < mask.size(); p++)
+				mask.setPixelByte(p, random.nextInt(4) == 0 ? 0 : 255);
+			image.pushMask(mask);
+		}
+		return image;
+	}
+
+	/**
+	 * The same ordering, through arrays of vectors
+	 */
+	private static VectorialOrdering arrays(final VectorialOrdering vo) {
+		return new VectorialOrdering() {
+			public double[] max(double[][] p) {
+				return vo.max(p);
+			}
+
+			public double[] min(double[][] p) {
+				return vo.min(p);
+			}
+
+			public double[] rank(double[][] p, int r) {
+				return vo.rank(p, r);
+			}
+		};
+	}
+
+	@Test
+	public void testVectors() {
+		Image image = random(true);
+		BooleanImage se = FlatStructuringElement2D
+				.createCircleFlatStructuringElement(2);
+		Point4D[] points = se.foreground();
+		Point4D center = se.getCenter();
+		NeighbourhoodWindow window = new NeighbourhoodWindow(image, se);
+		for (int z = 0; z < image.getZDim(); z++)
+			for (int y = 0; y < image.getYDim(); y++)
+				// every other row skips pixels, moving without sliding
+				for (int x = y % 2; x < image.getXDim(); x += 1 + y % 2) {
+					window.moveTo(x, y, z, 0);
+					int k = 0;
+					for (Point4D point : points) {
+						int xx = x + point.x - center.x, yy = y + point.y
+								- center.y;
+						if (xx < 0 || xx >= image.getXDim() || yy < 0
+								|| yy >= image.getYDim()
+								|| !image.isPresentXYZT(xx, yy, z, 0))
+							continue;
+						for (int b = 0; b < image.getBDim(); b++)
+							assertEquals(image.getPixelXYZTBDouble(xx, yy, z, 0,
+									b), window.get(k, b), 0);
+						k++;
+					}
+					assertEquals(k, window.getCount());
+				}
+	}
+
+	@Test
+	public void testIndexedOrderings() {
+		for (boolean masked : new boolean[] { false, true }) {
+			Image image = random(masked);
+			BooleanImage se = FlatStructuringElement2D
+					.createSquareFlatStructuringElement(3);
+			VectorialOrdering[] orderings = { new CumulativeDistanceOrdering(),
+					new MahalanobisBasedOrdering(image) };
+			for (VectorialOrdering vo : orderings) {
+				Image expected = VectorialMedian.exec(image, se, arrays(vo));
+				Image result = VectorialMedian.exec(image, se, vo);
+				for (int p = 0; p < image.size(); p++)
+					assertEquals(expected.getPixelDouble(p), result
+							.getPixelDouble(p), 0);
+				expected = VectorialDilation.exec(image, se, arrays(vo));
+				result = VectorialDilation.exec(image, se, vo);
+				for (int p = 0; p < image.size(); p++)
+					assertEquals(expected.getPixelDouble(p), result
+							.getPixelDouble(p), 0);
+			}
+		}
+	}
+
+}